@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.algebra.AlgebraException;
+import com.irurueta.algebra.Matrix;
+import com.irurueta.algebra.Utils;
+import com.irurueta.navigation.geodesic.Constants;
+
+import java.util.Collection;
+
+/**
+ * Solves GNSS user position and receiver clock offset in closed form using
+ * Bancroft's method.
+ * Pseudo-range equations are transformed into a linear system by means of the
+ * Lorentz inner product, which leaves a single quadratic equation on an
+ * auxiliary unknown. Hence no prior position is required and no iterations
+ * are needed, which makes this solver suitable to initialize iterative
+ * estimators or to solve minimal subsets of 4 measurements within robust
+ * estimators.
+ * When more than 4 measurements are provided, the linear system is solved in
+ * the least squares sense.
+ * Earth rotation during signal transit time is compensated by solving twice,
+ * the second time rotating satellite positions using ranges to the first
+ * solution.
+ * Only pseudo-ranges are used, hence estimated velocity and clock drift are
+ * always zero.
+ * Instances of this class reuse internal buffers and are not thread-safe.
+ */
+public class GNSSBancroftSolver {
+
+    /**
+     * Minimum number of measurements required to solve position and clock
+     * offset.
+     */
+    public static final int MIN_MEASUREMENTS = 4;
+
+    /**
+     * Speed of light in the vacuum expressed in meters per second (m/s).
+     */
+    public static final double SPEED_OF_LIGHT = Constants.SPEED_OF_LIGHT;
+
+    /**
+     * Earth rotation rate expressed in radians per second (rad/s).
+     */
+    public static final double EARTH_ROTATION_RATE = Constants.EARTH_ROTATION_RATE;
+
+    /**
+     * Earth equatorial radius expressed in meters (m).
+     * Among both solutions of Bancroft's method, the one closest to this
+     * radius is picked.
+     */
+    public static final double EARTH_EQUATORIAL_RADIUS_WGS84 =
+            Constants.EARTH_EQUATORIAL_RADIUS_WGS84;
+
+    /**
+     * Number of unknowns being solved (position coordinates and clock offset).
+     */
+    private static final int UNKNOWNS = 4;
+
+    /**
+     * Internal batch used to convert collections of measurements.
+     */
+    private final GNSSMeasurementBatch mInternalBatch = new GNSSMeasurementBatch();
+
+    /**
+     * Right hand side of linear system. First column contains ones and second
+     * column contains half of the Lorentz norm of each measurement.
+     */
+    private Matrix mRhs;
+
+    /**
+     * Matrix of linear system containing satellite positions and
+     * pseudo-ranges.
+     */
+    private Matrix mB;
+
+    /**
+     * Solution of linear system.
+     */
+    private Matrix mSolution;
+
+    /**
+     * Solves position and clock offset using all provided measurements.
+     *
+     * @param measurements GNSS measurements.
+     * @param result       instance where estimated position and clock offset
+     *                     will be stored.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws GNSSException            if estimation fails due to numerical
+     *                                  instabilities.
+     */
+    public void solve(final GNSSMeasurementBatch measurements,
+                      final GNSSEstimation result) throws GNSSException {
+        if (measurements.getSize() < MIN_MEASUREMENTS) {
+            throw new IllegalArgumentException();
+        }
+
+        internalSolve(measurements, null, measurements.getSize(), result);
+    }
+
+    /**
+     * Solves position and clock offset using all provided measurements.
+     *
+     * @param measurements GNSS measurements.
+     * @return estimated position and clock offset.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws GNSSException            if estimation fails due to numerical
+     *                                  instabilities.
+     */
+    public GNSSEstimation solve(final GNSSMeasurementBatch measurements)
+            throws GNSSException {
+        final GNSSEstimation result = new GNSSEstimation();
+        solve(measurements, result);
+        return result;
+    }
+
+    /**
+     * Solves position and clock offset using all provided measurements.
+     *
+     * @param measurements GNSS measurements.
+     * @param result       instance where estimated position and clock offset
+     *                     will be stored.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws GNSSException            if estimation fails due to numerical
+     *                                  instabilities.
+     */
+    public void solve(final Collection<GNSSMeasurement> measurements,
+                      final GNSSEstimation result) throws GNSSException {
+        mInternalBatch.setMeasurements(measurements);
+        solve(mInternalBatch, result);
+    }
+
+    /**
+     * Solves position and clock offset using all provided measurements.
+     *
+     * @param measurements GNSS measurements.
+     * @return estimated position and clock offset.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws GNSSException            if estimation fails due to numerical
+     *                                  instabilities.
+     */
+    public GNSSEstimation solve(final Collection<GNSSMeasurement> measurements)
+            throws GNSSException {
+        final GNSSEstimation result = new GNSSEstimation();
+        solve(measurements, result);
+        return result;
+    }
+
+    /**
+     * Solves position and clock offset using a subset of provided
+     * measurements.
+     *
+     * @param measurements GNSS measurements.
+     * @param indices      positions of measurements to be used.
+     * @param result       instance where estimated position and clock offset
+     *                     will be stored.
+     * @throws IllegalArgumentException if less than 4 indices are provided.
+     * @throws GNSSException            if estimation fails due to numerical
+     *                                  instabilities.
+     */
+    public void solve(final GNSSMeasurementBatch measurements,
+                      final int[] indices, final GNSSEstimation result)
+            throws GNSSException {
+        if (indices.length < MIN_MEASUREMENTS) {
+            throw new IllegalArgumentException();
+        }
+
+        internalSolve(measurements, indices, indices.length, result);
+    }
+
+    /**
+     * Internally solves position and clock offset.
+     *
+     * @param measurements GNSS measurements.
+     * @param indices      positions of measurements to be used or null to use
+     *                     the first n measurements.
+     * @param n            number of measurements to be used.
+     * @param result       instance where estimated position and clock offset
+     *                     will be stored.
+     * @throws GNSSException if estimation fails due to numerical instabilities.
+     */
+    private void internalSolve(final GNSSMeasurementBatch measurements,
+                               final int[] indices, final int n,
+                               final GNSSEstimation result) throws GNSSException {
+        final double[] xs = measurements.getXs();
+        final double[] ys = measurements.getYs();
+        final double[] zs = measurements.getZs();
+        final double[] pseudoRanges = measurements.getPseudoRanges();
+
+        try {
+            if (mB == null || mB.getRows() != n) {
+                mB = new Matrix(n, UNKNOWNS);
+                mRhs = new Matrix(n, 2);
+                mSolution = new Matrix(UNKNOWNS, 2);
+            }
+
+            double x = 0.0;
+            double y = 0.0;
+            double z = 0.0;
+            double clockOffset = 0.0;
+
+            // first pass ignores Earth rotation, second pass rotates satellite
+            // positions during signal transit time using (8.36) and ranges to
+            // the first solution
+            for (int pass = 0; pass < 2; pass++) {
+                for (int j = 0; j < n; j++) {
+                    final int i = indices != null ? indices[j] : j;
+                    double satX = xs[i];
+                    double satY = ys[i];
+                    final double satZ = zs[i];
+                    final double pseudoRange = pseudoRanges[i];
+
+                    if (pass > 0) {
+                        final double diffX = satX - x;
+                        final double diffY = satY - y;
+                        final double diffZ = satZ - z;
+                        final double range = Math.sqrt(diffX * diffX
+                                + diffY * diffY + diffZ * diffZ);
+                        final double ceiValue = EARTH_ROTATION_RATE * range
+                                / SPEED_OF_LIGHT;
+                        final double rotatedX = satX + ceiValue * satY;
+                        satY = -ceiValue * satX + satY;
+                        satX = rotatedX;
+                    }
+
+                    mB.setElementAt(j, 0, satX);
+                    mB.setElementAt(j, 1, satY);
+                    mB.setElementAt(j, 2, satZ);
+                    mB.setElementAt(j, 3, pseudoRange);
+
+                    mRhs.setElementAt(j, 0, 1.0);
+                    mRhs.setElementAt(j, 1, 0.5 * (satX * satX + satY * satY
+                            + satZ * satZ - pseudoRange * pseudoRange));
+                }
+
+                Utils.solve(mB, mRhs, mSolution);
+
+                final double p0 = mSolution.getElementAt(0, 0);
+                final double p1 = mSolution.getElementAt(1, 0);
+                final double p2 = mSolution.getElementAt(2, 0);
+                final double p3 = mSolution.getElementAt(3, 0);
+                final double q0 = mSolution.getElementAt(0, 1);
+                final double q1 = mSolution.getElementAt(1, 1);
+                final double q2 = mSolution.getElementAt(2, 1);
+                final double q3 = mSolution.getElementAt(3, 1);
+
+                // solution is q + lambda * p, where lambda solves
+                // a * lambda^2 + 2 * b * lambda + c = 0
+                final double a = lorentz(p0, p1, p2, p3, p0, p1, p2, p3);
+                final double b = lorentz(p0, p1, p2, p3, q0, q1, q2, q3) - 1.0;
+                final double c = lorentz(q0, q1, q2, q3, q0, q1, q2, q3);
+
+                // noise might make discriminant slightly negative
+                final double discriminant = Math.max(b * b - a * c, 0.0);
+                final double tmp = -(b + Math.copySign(Math.sqrt(discriminant), b));
+                if (tmp == 0.0) {
+                    throw new GNSSException();
+                }
+                final double lambda1 = c / tmp;
+                final double lambda2 = a != 0.0 ? tmp / a : lambda1;
+
+                // pick solution closest to Earth's surface
+                final double x1 = q0 + lambda1 * p0;
+                final double y1 = q1 + lambda1 * p1;
+                final double z1 = q2 + lambda1 * p2;
+                final double x2 = q0 + lambda2 * p0;
+                final double y2 = q1 + lambda2 * p1;
+                final double z2 = q2 + lambda2 * p2;
+                final double dist1 = Math.abs(Math.sqrt(x1 * x1 + y1 * y1 + z1 * z1)
+                        - EARTH_EQUATORIAL_RADIUS_WGS84);
+                final double dist2 = Math.abs(Math.sqrt(x2 * x2 + y2 * y2 + z2 * z2)
+                        - EARTH_EQUATORIAL_RADIUS_WGS84);
+                if (dist1 <= dist2) {
+                    x = x1;
+                    y = y1;
+                    z = z1;
+                    clockOffset = -(q3 + lambda1 * p3);
+                } else {
+                    x = x2;
+                    y = y2;
+                    z = z2;
+                    clockOffset = -(q3 + lambda2 * p3);
+                }
+            }
+
+            if (Double.isNaN(x) || Double.isNaN(y) || Double.isNaN(z)
+                    || Double.isNaN(clockOffset)) {
+                throw new GNSSException();
+            }
+
+            result.setPositionCoordinates(x, y, z);
+            result.setVelocityCoordinates(0.0, 0.0, 0.0);
+            result.setClockOffset(clockOffset);
+            result.setClockDrift(0.0);
+
+        } catch (final AlgebraException e) {
+            throw new GNSSException(e);
+        }
+    }
+
+    /**
+     * Computes the Lorentz inner product of two 4 dimensional vectors.
+     *
+     * @param a0 1st coordinate of 1st vector.
+     * @param a1 2nd coordinate of 1st vector.
+     * @param a2 3rd coordinate of 1st vector.
+     * @param a3 4th coordinate of 1st vector.
+     * @param b0 1st coordinate of 2nd vector.
+     * @param b1 2nd coordinate of 2nd vector.
+     * @param b2 3rd coordinate of 2nd vector.
+     * @param b3 4th coordinate of 2nd vector.
+     * @return Lorentz inner product.
+     */
+    private static double lorentz(final double a0, final double a1,
+                                  final double a2, final double a3,
+                                  final double b0, final double b1,
+                                  final double b2, final double b3) {
+        return a0 * b0 + a1 * b1 + a2 * b2 - a3 * b3;
+    }
+}
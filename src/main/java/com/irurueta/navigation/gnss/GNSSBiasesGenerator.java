@@ -113,6 +113,152 @@ public class GNSSBiasesGenerator {
         return generate(satellitePosition, userPosition, config, cen, random);
     }
 
+    /**
+     * Generates biases for satellite positions provided as primitive arrays.
+     * Biases are written into provided array without boxing them.
+     *
+     * @param satelliteX   ECEF x coordinates of satellites expressed in meters (m).
+     * @param satelliteY   ECEF y coordinates of satellites expressed in meters (m).
+     * @param satelliteZ   ECEF z coordinates of satellites expressed in meters (m).
+     * @param userPosition ECEF user position expressed in meters (m).
+     * @param config       GNSS configuration.
+     * @param random       random number generator.
+     * @param result       array where generated bias for each satellite will be
+     *                     stored.
+     * @throws IllegalArgumentException if satellite coordinate arrays do not have
+     *                                  the same length or if result array is
+     *                                  shorter than them.
+     */
+    public static void generateBiases(final double[] satelliteX, final double[] satelliteY,
+                                      final double[] satelliteZ,
+                                      final ECEFPosition userPosition,
+                                      final GNSSConfig config, final Random random,
+                                      final double[] result) {
+        generateBiases(satelliteX, satelliteY, satelliteZ, userPosition.getX(),
+                userPosition.getY(), userPosition.getZ(), config, random, result);
+    }
+
+    /**
+     * Generates biases for satellite positions provided as primitive arrays.
+     * Biases are written into provided array without boxing them.
+     *
+     * @param satelliteX ECEF x coordinates of satellites expressed in meters (m).
+     * @param satelliteY ECEF y coordinates of satellites expressed in meters (m).
+     * @param satelliteZ ECEF z coordinates of satellites expressed in meters (m).
+     * @param userX      ECEF x coordinate of user position expressed in meters (m).
+     * @param userY      ECEF y coordinate of user position expressed in meters (m).
+     * @param userZ      ECEF z coordinate of user position expressed in meters (m).
+     * @param config     GNSS configuration.
+     * @param random     random number generator.
+     * @param result     array where generated bias for each satellite will be
+     *                   stored.
+     * @throws IllegalArgumentException if satellite coordinate arrays do not have
+     *                                  the same length or if result array is
+     *                                  shorter than them.
+     */
+    public static void generateBiases(final double[] satelliteX, final double[] satelliteY,
+                                      final double[] satelliteZ,
+                                      final double userX, final double userY,
+                                      final double userZ,
+                                      final GNSSConfig config, final Random random,
+                                      final double[] result) {
+        generateBiases(satelliteX, satelliteY, satelliteZ, userX, userY, userZ,
+                ecefToNedMatrix(userX, userY, userZ), config, random, result);
+    }
+
+    /**
+     * Generates biases for satellite positions provided as primitive arrays using
+     * a precomputed ECEF to NED coordinate transformation matrix.
+     * This is meant to be used for static users, so that the transformation matrix
+     * is computed only once for all calls.
+     * Biases are written into provided array without boxing them.
+     *
+     * @param satelliteX ECEF x coordinates of satellites expressed in meters (m).
+     * @param satelliteY ECEF y coordinates of satellites expressed in meters (m).
+     * @param satelliteZ ECEF z coordinates of satellites expressed in meters (m).
+     * @param userX      ECEF x coordinate of user position expressed in meters (m).
+     * @param userY      ECEF y coordinate of user position expressed in meters (m).
+     * @param userZ      ECEF z coordinate of user position expressed in meters (m).
+     * @param cen        ECEF to NED coordinate transformation matrix at user
+     *                   position.
+     * @param config     GNSS configuration.
+     * @param random     random number generator.
+     * @param result     array where generated bias for each satellite will be
+     *                   stored.
+     * @throws IllegalArgumentException if satellite coordinate arrays do not have
+     *                                  the same length or if result array is
+     *                                  shorter than them.
+     * @see #ecefToNedMatrix(double, double, double)
+     */
+    public static void generateBiases(final double[] satelliteX, final double[] satelliteY,
+                                      final double[] satelliteZ,
+                                      final double userX, final double userY,
+                                      final double userZ, final Matrix cen,
+                                      final GNSSConfig config, final Random random,
+                                      final double[] result) {
+        final int numSatellites = satelliteX.length;
+        if (satelliteY.length != numSatellites || satelliteZ.length != numSatellites
+                || result.length < numSatellites) {
+            throw new IllegalArgumentException();
+        }
+
+        final double cen1 = cen.getElementAt(2, 0);
+        final double cen2 = cen.getElementAt(2, 1);
+        final double cen3 = cen.getElementAt(2, 2);
+        final double maskAngle = Math.toRadians(config.getMaskAngleDegrees());
+
+        for (int i = 0; i < numSatellites; i++) {
+            result[i] = generate(satelliteX[i], satelliteY[i], satelliteZ[i],
+                    userX, userY, userZ, cen1, cen2, cen3, maskAngle, config, random);
+        }
+    }
+
+    /**
+     * Generates bias using a precomputed ECEF to NED coordinate transformation
+     * matrix.
+     *
+     * @param satelliteX ECEF x coordinate of satellite expressed in meters (m).
+     * @param satelliteY ECEF y coordinate of satellite expressed in meters (m).
+     * @param satelliteZ ECEF z coordinate of satellite expressed in meters (m).
+     * @param userX      ECEF x coordinate of user position expressed in meters (m).
+     * @param userY      ECEF y coordinate of user position expressed in meters (m).
+     * @param userZ      ECEF z coordinate of user position expressed in meters (m).
+     * @param cen        ECEF to NED coordinate transformation matrix at user
+     *                   position.
+     * @param config     GNSS configuration.
+     * @param random     random number generator.
+     * @return generated bias for provided satellite position.
+     * @see #ecefToNedMatrix(double, double, double)
+     */
+    public static double generateBias(final double satelliteX, final double satelliteY,
+                                      final double satelliteZ,
+                                      final double userX, final double userY,
+                                      final double userZ, final Matrix cen,
+                                      final GNSSConfig config, final Random random) {
+        return generate(satelliteX, satelliteY, satelliteZ, userX, userY, userZ,
+                cen.getElementAt(2, 0), cen.getElementAt(2, 1), cen.getElementAt(2, 2),
+                Math.toRadians(config.getMaskAngleDegrees()), config, random);
+    }
+
+    /**
+     * Computes ECEF to NED coordinate transformation matrix at provided user
+     * position, which can be reused to generate biases for a static user.
+     *
+     * @param userX ECEF x coordinate of user position expressed in meters (m).
+     * @param userY ECEF y coordinate of user position expressed in meters (m).
+     * @param userZ ECEF z coordinate of user position expressed in meters (m).
+     * @return ECEF to NED coordinate transformation matrix.
+     */
+    public static Matrix ecefToNedMatrix(final double userX, final double userY,
+                                         final double userZ) {
+        final NEDPosition userNedPosition = new NEDPosition();
+        final NEDVelocity userNedVelocity = new NEDVelocity();
+        ECEFtoNEDPositionVelocityConverter.convertECEFtoNED(
+                userX, userY, userZ, 0.0, 0.0, 0.0, userNedPosition, userNedVelocity);
+        return CoordinateTransformation.ecefToNedMatrix(userNedPosition.getLatitude(),
+                userNedPosition.getLongitude());
+    }
+
     /**
      * Generates biases.
      *
@@ -135,10 +281,20 @@ public class GNSSBiasesGenerator {
 
         // Calculate ECEF to NED coordinate transformation matrix
         final Matrix cen = CoordinateTransformation.ecefToNedMatrix(userLatitude, userLongitude);
+        final double cen1 = cen.getElementAt(2, 0);
+        final double cen2 = cen.getElementAt(2, 1);
+        final double cen3 = cen.getElementAt(2, 2);
+        final double maskAngle = Math.toRadians(config.getMaskAngleDegrees());
+
+        final double userX = userPosition.getX();
+        final double userY = userPosition.getY();
+        final double userZ = userPosition.getZ();
 
         // Loop satellites
         for (final ECEFPosition satellitePosition : satellitePositions) {
-            result.add(generate(satellitePosition, userPosition, config, cen, random));
+            result.add(generate(satellitePosition.getX(), satellitePosition.getY(),
+                    satellitePosition.getZ(), userX, userY, userZ, cen1, cen2, cen3,
+                    maskAngle, config, random));
         }
     }
 
@@ -152,14 +308,44 @@ public class GNSSBiasesGenerator {
      * @param random            random number generator.
      * @return generated bias provided satellite position.
      */
-    @SuppressWarnings("DuplicatedCode")
     private static double generate(final ECEFPosition satellitePosition, final ECEFPosition userPosition,
                                    final GNSSConfig config, final Matrix cen, final Random random) {
+        return generate(satellitePosition.getX(), satellitePosition.getY(),
+                satellitePosition.getZ(), userPosition.getX(), userPosition.getY(),
+                userPosition.getZ(), cen.getElementAt(2, 0), cen.getElementAt(2, 1),
+                cen.getElementAt(2, 2), Math.toRadians(config.getMaskAngleDegrees()),
+                config, random);
+    }
+
+    /**
+     * Generates bias.
+     *
+     * @param satelliteX ECEF x coordinate of satellite expressed in meters (m).
+     * @param satelliteY ECEF y coordinate of satellite expressed in meters (m).
+     * @param satelliteZ ECEF z coordinate of satellite expressed in meters (m).
+     * @param userX      ECEF x coordinate of user position expressed in meters (m).
+     * @param userY      ECEF y coordinate of user position expressed in meters (m).
+     * @param userZ      ECEF z coordinate of user position expressed in meters (m).
+     * @param cen1       element (2, 0) of ECEF to NED coordinate transformation matrix.
+     * @param cen2       element (2, 1) of ECEF to NED coordinate transformation matrix.
+     * @param cen3       element (2, 2) of ECEF to NED coordinate transformation matrix.
+     * @param maskAngle  masking angle expressed in radians (rad).
+     * @param config     GNSS configuration.
+     * @param random     random number generator.
+     * @return generated bias provided satellite position.
+     */
+    @SuppressWarnings("DuplicatedCode")
+    private static double generate(final double satelliteX, final double satelliteY,
+                                   final double satelliteZ, final double userX,
+                                   final double userY, final double userZ,
+                                   final double cen1, final double cen2,
+                                   final double cen3, final double maskAngle,
+                                   final GNSSConfig config, final Random random) {
 
         // Determine ECEF line-of-sight vector using (8.41)
-        final double deltaRx = satellitePosition.getX() - userPosition.getX();
-        final double deltaRy = satellitePosition.getY() - userPosition.getY();
-        final double deltaRz = satellitePosition.getZ() - userPosition.getZ();
+        final double deltaRx = satelliteX - userX;
+        final double deltaRy = satelliteY - userY;
+        final double deltaRz = satelliteZ - userZ;
 
         final double deltaRNorm = Math.sqrt(deltaRx * deltaRx + deltaRy * deltaRy + deltaRz * deltaRz);
 
@@ -169,14 +355,10 @@ public class GNSSBiasesGenerator {
 
         // Convert line of sight vector to NED using (8.39) and determine
         // elevation using (8.57)
-        final double cen1 = cen.getElementAt(2, 0);
-        final double cen2 = cen.getElementAt(2, 1);
-        final double cen3 = cen.getElementAt(2, 2);
-
         double elevation = -Math.asin(cen1 * uaseX + cen2 * uaseY + cen3 * uaseZ);
 
         // Limit the minimum elevation angle to the masking angle
-        elevation = Math.max(elevation, Math.toRadians(config.getMaskAngleDegrees()));
+        elevation = Math.max(elevation, maskAngle);
 
         // Calculate ionosphere and troposphere error SDs using (9.79) and (9.80)
         final double cosElevation = Math.cos(elevation);
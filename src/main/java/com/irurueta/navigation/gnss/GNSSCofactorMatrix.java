@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.algebra.AlgebraException;
+import com.irurueta.algebra.Matrix;
+import com.irurueta.algebra.Utils;
+
+/**
+ * Cofactor matrix Q = (H^T * H)^-1 of a linearized pseudo-range least squares
+ * problem solving position and clock offset, where each row of the geometry
+ * matrix H contains the negated line of sight of a satellite and a unit clock
+ * offset term.
+ * Supports computing the leverage of each measurement and downdating the
+ * cofactor matrix when a measurement is removed, so that subsets of
+ * measurements can be evaluated without inverting the normal matrix again.
+ */
+class GNSSCofactorMatrix {
+
+    /**
+     * Number of unknowns (position coordinates and clock offset).
+     */
+    static final int UNKNOWNS = GNSSDilutionOfPrecision.UNKNOWNS;
+
+    /**
+     * Minimum number of measurements required to solve position and clock
+     * offset.
+     */
+    static final int MIN_MEASUREMENTS = UNKNOWNS;
+
+    /**
+     * Normal matrix H^T * H to be reused.
+     */
+    private final Matrix mNormal;
+
+    /**
+     * Inverse of normal matrix to be reused.
+     */
+    private final Matrix mInverse;
+
+    /**
+     * Cofactor matrix stored in row-major order.
+     */
+    private final double[] mQ = new double[UNKNOWNS * UNKNOWNS];
+
+    /**
+     * Product of cofactor matrix and the geometry row of the last measurement
+     * whose leverage was computed.
+     */
+    private final double[] mQh = new double[UNKNOWNS];
+
+    /**
+     * Constructor.
+     */
+    GNSSCofactorMatrix() {
+        Matrix normal = null;
+        Matrix inverse = null;
+        try {
+            normal = new Matrix(UNKNOWNS, UNKNOWNS);
+            inverse = new Matrix(UNKNOWNS, UNKNOWNS);
+        } catch (final AlgebraException ignore) {
+            // never happens
+        }
+        mNormal = normal;
+        mInverse = inverse;
+    }
+
+    /**
+     * Gets cofactor matrix stored in row-major order.
+     * Returned array is owned by this instance and is modified by later
+     * calls to {@link #invert(double[], int[], int)} or
+     * {@link #downdate(double)}.
+     *
+     * @return cofactor matrix.
+     */
+    double[] getCofactor() {
+        return mQ;
+    }
+
+    /**
+     * Gets product of cofactor matrix and the geometry row of the last
+     * measurement whose leverage was computed.
+     * Returned array is owned by this instance.
+     *
+     * @return product of cofactor matrix and geometry row.
+     */
+    double[] getProduct() {
+        return mQh;
+    }
+
+    /**
+     * Computes cofactor matrix of provided geometry rows.
+     *
+     * @param h       geometry matrix stored in row-major order.
+     * @param indices positions of geometry rows to be used or null to use the
+     *                first n rows.
+     * @param n       number of geometry rows to be used.
+     * @throws GNSSException if normal matrix is singular.
+     */
+    void invert(final double[] h, final int[] indices, final int n)
+            throws GNSSException {
+        for (int k = 0; k < UNKNOWNS; k++) {
+            for (int l = k; l < UNKNOWNS; l++) {
+                double sum = 0.0;
+                for (int j = 0; j < n; j++) {
+                    final int row = (indices != null ? indices[j] : j) * UNKNOWNS;
+                    sum += h[row + k] * h[row + l];
+                }
+                mNormal.setElementAt(k, l, sum);
+                mNormal.setElementAt(l, k, sum);
+            }
+        }
+
+        try {
+            Utils.inverse(mNormal, mInverse);
+        } catch (final AlgebraException e) {
+            throw new GNSSException(e);
+        }
+
+        for (int k = 0; k < UNKNOWNS; k++) {
+            for (int l = 0; l < UNKNOWNS; l++) {
+                mQ[k * UNKNOWNS + l] = mInverse.getElementAt(k, l);
+            }
+        }
+    }
+
+    /**
+     * Computes leverage of a measurement, which is the diagonal element
+     * h^T * Q * h of the hat matrix of the least squares problem for such
+     * measurement.
+     * Product Q * h is kept so that it can be used to downdate the cofactor
+     * matrix if the measurement is removed.
+     *
+     * @param h geometry matrix stored in row-major order.
+     * @param i position of measurement.
+     * @return leverage of measurement.
+     */
+    double leverage(final double[] h, final int i) {
+        final int row = i * UNKNOWNS;
+        double result = 0.0;
+        for (int k = 0; k < UNKNOWNS; k++) {
+            final int qRow = k * UNKNOWNS;
+            final double value = mQ[qRow] * h[row] + mQ[qRow + 1] * h[row + 1]
+                    + mQ[qRow + 2] * h[row + 2] + mQ[qRow + 3] * h[row + 3];
+            mQh[k] = value;
+            result += h[row + k] * value;
+        }
+        return result;
+    }
+
+    /**
+     * Downdates cofactor matrix using Sherman-Morrison formula to remove the
+     * last measurement whose leverage was computed, so that
+     * Q' = Q + Q*h*h^T*Q / (1 - h^T*Q*h).
+     *
+     * @param redundancy redundancy 1 - h^T*Q*h of removed measurement.
+     */
+    void downdate(final double redundancy) {
+        for (int k = 0; k < UNKNOWNS; k++) {
+            final double factor = mQh[k] / redundancy;
+            for (int l = 0; l < UNKNOWNS; l++) {
+                mQ[k * UNKNOWNS + l] += factor * mQh[l];
+            }
+        }
+    }
+}
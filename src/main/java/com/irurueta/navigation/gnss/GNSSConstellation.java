@@ -0,0 +1,489 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeConverter;
+import com.irurueta.units.TimeUnit;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable model of a GNSS constellation of satellites in circular orbits.
+ * All quantities that do not depend on time (orbital angular rate, inclination
+ * terms and per-satellite phase and ascending node offsets) are computed once
+ * from a {@link GNSSConfig} when this instance is built, so that generating
+ * positions and velocities of all satellites at a given time only requires
+ * evaluating a single rotation of the orbital argument of latitude and of the
+ * Earth, regardless of the number of satellites.
+ * Results are equivalent to those obtained with
+ * {@link SatelliteECEFPositionAndVelocityGenerator} up to floating point
+ * rounding.
+ * Because it is immutable, a single instance can be safely shared among
+ * several threads.
+ * This implementation is based on the equations defined in "Principles of GNSS, Inertial, and Multi-sensor
+ * Integrated Navigation Systems, Second Edition" and on the companion software available at:
+ * https://github.com/ymjdz/MATLAB-Codes/blob/master/Satellite_positions_and_velocities.m
+ */
+public class GNSSConstellation implements Serializable {
+
+    /**
+     * WGS84 Earth gravitational constant expressed in m^3 * s^-2
+     */
+    public static final double EARTH_GRAVITATIONAL_CONSTANT =
+            SatelliteECEFPositionAndVelocityGenerator.EARTH_GRAVITATIONAL_CONSTANT;
+
+    /**
+     * Earth rotation rate expressed in radians per second (rad/s).
+     */
+    public static final double EARTH_ROTATION_RATE =
+            SatelliteECEFPositionAndVelocityGenerator.EARTH_ROTATION_RATE;
+
+    /**
+     * Number of satellites in the constellation.
+     */
+    private final int mNumberOfSatellites;
+
+    /**
+     * Orbital radius of satellites expressed in meters (m).
+     */
+    private final double mOrbitalRadius;
+
+    /**
+     * Inclination angle of satellites expressed in radians (rad).
+     */
+    private final double mInclination;
+
+    /**
+     * Cosine of inclination angle.
+     */
+    private final double mCosInclination;
+
+    /**
+     * Sine of inclination angle.
+     */
+    private final double mSinInclination;
+
+    /**
+     * Orbital angular rate of satellites expressed in radians per second (rad/s).
+     */
+    private final double mOrbitalAngularRate;
+
+    /**
+     * Orbital speed of satellites expressed in meters per second (m/s).
+     */
+    private final double mOrbitalSpeed;
+
+    /**
+     * Timing offset of constellation expressed in seconds (s).
+     */
+    private final double mConstellationTimingOffset;
+
+    /**
+     * Cosine of the argument of latitude of each satellite at constellation
+     * time zero.
+     */
+    private final double[] mCosArgumentOffsets;
+
+    /**
+     * Sine of the argument of latitude of each satellite at constellation time
+     * zero.
+     */
+    private final double[] mSinArgumentOffsets;
+
+    /**
+     * Cosine of the longitude of the ascending node of each satellite at
+     * constellation time zero.
+     */
+    private final double[] mCosNodeOffsets;
+
+    /**
+     * Sine of the longitude of the ascending node of each satellite at
+     * constellation time zero.
+     */
+    private final double[] mSinNodeOffsets;
+
+    /**
+     * Constructor.
+     *
+     * @param config GNSS configuration.
+     */
+    public GNSSConstellation(final GNSSConfig config) {
+        mNumberOfSatellites = config.getNumberOfSatellites();
+        mOrbitalRadius = config.getOrbitalRadiusOfSatellites();
+        mConstellationTimingOffset = config.getConstellationTimingOffset();
+
+        // Convert inclination angle to radians.
+        mInclination = Math.toRadians(config.getSatellitesInclinationDegrees());
+        mCosInclination = Math.cos(mInclination);
+        mSinInclination = Math.sin(mInclination);
+
+        // Determine orbital angular rate using (8.8)
+        final double orbitalRadius3 = mOrbitalRadius * mOrbitalRadius * mOrbitalRadius;
+        mOrbitalAngularRate = Math.sqrt(EARTH_GRAVITATIONAL_CONSTANT / orbitalRadius3);
+        mOrbitalSpeed = mOrbitalRadius * mOrbitalAngularRate;
+
+        final double constDeltaLambdaRadians = Math.toRadians(
+                config.getConstellationLongitudeOffsetDegrees());
+
+        mCosArgumentOffsets = new double[mNumberOfSatellites];
+        mSinArgumentOffsets = new double[mNumberOfSatellites];
+        mCosNodeOffsets = new double[mNumberOfSatellites];
+        mSinNodeOffsets = new double[mNumberOfSatellites];
+        for (int j = 0; j < mNumberOfSatellites; j++) {
+            // time invariant part of argument of latitude
+            final double uOffset = 2.0 * Math.PI * j / mNumberOfSatellites;
+            mCosArgumentOffsets[j] = Math.cos(uOffset);
+            mSinArgumentOffsets[j] = Math.sin(uOffset);
+
+            // time invariant part of longitude of the ascending node from (8.16)
+            final double omegaOffset = Math.PI * ((j + 1) % 6) / 3.0
+                    + constDeltaLambdaRadians;
+            mCosNodeOffsets[j] = Math.cos(omegaOffset);
+            mSinNodeOffsets[j] = Math.sin(omegaOffset);
+        }
+    }
+
+    /**
+     * Gets number of satellites in the constellation.
+     *
+     * @return number of satellites in the constellation.
+     */
+    public int getNumberOfSatellites() {
+        return mNumberOfSatellites;
+    }
+
+    /**
+     * Gets orbital radius of satellites expressed in meters (m).
+     *
+     * @return orbital radius of satellites.
+     */
+    public double getOrbitalRadius() {
+        return mOrbitalRadius;
+    }
+
+    /**
+     * Gets inclination angle of satellites expressed in radians (rad).
+     *
+     * @return inclination angle of satellites.
+     */
+    public double getInclination() {
+        return mInclination;
+    }
+
+    /**
+     * Gets orbital angular rate of satellites expressed in radians per second (rad/s).
+     *
+     * @return orbital angular rate of satellites.
+     */
+    public double getOrbitalAngularRate() {
+        return mOrbitalAngularRate;
+    }
+
+    /**
+     * Gets timing offset of constellation expressed in seconds (s).
+     *
+     * @return timing offset of constellation.
+     */
+    public double getConstellationTimingOffset() {
+        return mConstellationTimingOffset;
+    }
+
+    /**
+     * Generates positions and velocities of all satellites.
+     *
+     * @param time current time.
+     * @return collection containing position and velocities of satellites.
+     */
+    public Collection<ECEFPositionAndVelocity> generateSatellitesPositionAndVelocity(
+            final Time time) {
+        return generateSatellitesPositionAndVelocity(convertTime(time));
+    }
+
+    /**
+     * Generates positions and velocities of all satellites.
+     *
+     * @param time   current time.
+     * @param result instance where computed positions and velocities of satellites will be stored.
+     */
+    public void generateSatellitesPositionAndVelocity(
+            final Time time, final Collection<ECEFPositionAndVelocity> result) {
+        generateSatellitesPositionAndVelocity(convertTime(time), result);
+    }
+
+    /**
+     * Generates positions and velocities of all satellites.
+     *
+     * @param time current time expressed in seconds (s).
+     * @return collection containing position and velocities of satellites.
+     */
+    public Collection<ECEFPositionAndVelocity> generateSatellitesPositionAndVelocity(
+            final double time) {
+        final List<ECEFPositionAndVelocity> result = new ArrayList<>();
+        generateSatellitesPositionAndVelocity(time, result);
+        return result;
+    }
+
+    /**
+     * Generates positions and velocities of all satellites.
+     *
+     * @param time   current time expressed in seconds (s).
+     * @param result instance where computed positions and velocities of satellites will be stored.
+     */
+    public void generateSatellitesPositionAndVelocity(
+            final double time, final Collection<ECEFPositionAndVelocity> result) {
+        result.clear();
+
+        final double[] x = new double[mNumberOfSatellites];
+        final double[] y = new double[mNumberOfSatellites];
+        final double[] z = new double[mNumberOfSatellites];
+        final double[] vx = new double[mNumberOfSatellites];
+        final double[] vy = new double[mNumberOfSatellites];
+        final double[] vz = new double[mNumberOfSatellites];
+        generateSatellitesPositionAndVelocity(time, x, y, z, vx, vy, vz);
+
+        for (int j = 0; j < mNumberOfSatellites; j++) {
+            result.add(new ECEFPositionAndVelocity(x[j], y[j], z[j],
+                    vx[j], vy[j], vz[j]));
+        }
+    }
+
+    /**
+     * Generates positions and velocities of all satellites into provided arrays, so that
+     * the j-th position of each array contains the values of the j-th satellite.
+     *
+     * @param time current time.
+     * @param x    array where ECEF x coordinates of satellites will be stored, expressed in meters (m).
+     * @param y    array where ECEF y coordinates of satellites will be stored, expressed in meters (m).
+     * @param z    array where ECEF z coordinates of satellites will be stored, expressed in meters (m).
+     * @param vx   array where ECEF x velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @param vy   array where ECEF y velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @param vz   array where ECEF z velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @throws IllegalArgumentException if any of provided arrays is shorter than the
+     *                                  number of satellites.
+     */
+    public void generateSatellitesPositionAndVelocity(
+            final Time time, final double[] x, final double[] y, final double[] z,
+            final double[] vx, final double[] vy, final double[] vz) {
+        generateSatellitesPositionAndVelocity(convertTime(time), x, y, z, vx, vy, vz);
+    }
+
+    /**
+     * Generates positions and velocities of all satellites into provided arrays, so that
+     * the j-th position of each array contains the values of the j-th satellite.
+     *
+     * @param time current time expressed in seconds (s).
+     * @param x    array where ECEF x coordinates of satellites will be stored, expressed in meters (m).
+     * @param y    array where ECEF y coordinates of satellites will be stored, expressed in meters (m).
+     * @param z    array where ECEF z coordinates of satellites will be stored, expressed in meters (m).
+     * @param vx   array where ECEF x velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @param vy   array where ECEF y velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @param vz   array where ECEF z velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @throws IllegalArgumentException if any of provided arrays is shorter than the
+     *                                  number of satellites.
+     */
+    public void generateSatellitesPositionAndVelocity(
+            final double time, final double[] x, final double[] y, final double[] z,
+            final double[] vx, final double[] vy, final double[] vz) {
+        if (x.length < mNumberOfSatellites || y.length < mNumberOfSatellites
+                || z.length < mNumberOfSatellites || vx.length < mNumberOfSatellites
+                || vy.length < mNumberOfSatellites || vz.length < mNumberOfSatellites) {
+            throw new IllegalArgumentException();
+        }
+
+        // determine constellation time
+        final double constTime = time + mConstellationTimingOffset;
+
+        // rotations common to all satellites
+        final double argumentRotation = mOrbitalAngularRate * constTime;
+        final double cosArgumentRotation = Math.cos(argumentRotation);
+        final double sinArgumentRotation = Math.sin(argumentRotation);
+
+        final double earthRotation = EARTH_ROTATION_RATE * constTime;
+        final double cosEarthRotation = Math.cos(earthRotation);
+        final double sinEarthRotation = Math.sin(earthRotation);
+
+        for (int j = 0; j < mNumberOfSatellites; j++) {
+            generate(j, cosArgumentRotation, sinArgumentRotation,
+                    cosEarthRotation, sinEarthRotation, x, y, z, vx, vy, vz, j);
+        }
+    }
+
+    /**
+     * Generates position and velocity of a single satellite.
+     *
+     * @param time current time.
+     * @param j    number of satellite whose position and velocity must be computed.
+     * @return computed satellite position and velocity.
+     * @throws IllegalArgumentException if satellite number is outside the constellation.
+     */
+    public ECEFPositionAndVelocity generateSatellitePositionAndVelocity(
+            final Time time, final int j) {
+        return generateSatellitePositionAndVelocity(convertTime(time), j);
+    }
+
+    /**
+     * Generates position and velocity of a single satellite.
+     *
+     * @param time   current time.
+     * @param j      number of satellite whose position and velocity must be computed.
+     * @param result instance where computed satellite position and velocity will be stored.
+     * @throws IllegalArgumentException if satellite number is outside the constellation.
+     */
+    public void generateSatellitePositionAndVelocity(
+            final Time time, final int j, final ECEFPositionAndVelocity result) {
+        generateSatellitePositionAndVelocity(convertTime(time), j, result);
+    }
+
+    /**
+     * Generates position and velocity of a single satellite.
+     *
+     * @param time current time expressed in seconds (s).
+     * @param j    number of satellite whose position and velocity must be computed.
+     * @return computed satellite position and velocity.
+     * @throws IllegalArgumentException if satellite number is outside the constellation.
+     */
+    public ECEFPositionAndVelocity generateSatellitePositionAndVelocity(
+            final double time, final int j) {
+        final ECEFPositionAndVelocity result = new ECEFPositionAndVelocity();
+        generateSatellitePositionAndVelocity(time, j, result);
+        return result;
+    }
+
+    /**
+     * Generates position and velocity of a single satellite.
+     *
+     * @param time   current time expressed in seconds (s).
+     * @param j      number of satellite whose position and velocity must be computed.
+     * @param result instance where computed satellite position and velocity will be stored.
+     * @throws IllegalArgumentException if satellite number is outside the constellation.
+     */
+    public void generateSatellitePositionAndVelocity(
+            final double time, final int j, final ECEFPositionAndVelocity result) {
+        if (j < 0 || j >= mNumberOfSatellites) {
+            throw new IllegalArgumentException();
+        }
+
+        final double constTime = time + mConstellationTimingOffset;
+
+        final double argumentRotation = mOrbitalAngularRate * constTime;
+        final double earthRotation = EARTH_ROTATION_RATE * constTime;
+
+        final double[] x = new double[1];
+        final double[] y = new double[1];
+        final double[] z = new double[1];
+        final double[] vx = new double[1];
+        final double[] vy = new double[1];
+        final double[] vz = new double[1];
+        generate(j, Math.cos(argumentRotation), Math.sin(argumentRotation),
+                Math.cos(earthRotation), Math.sin(earthRotation),
+                x, y, z, vx, vy, vz, 0);
+
+        result.setPositionCoordinates(x[0], y[0], z[0]);
+        result.setVelocityCoordinates(vx[0], vy[0], vz[0]);
+    }
+
+    /**
+     * Internal method to compute position and velocity of a single satellite
+     * once the time dependent rotations have been computed.
+     *
+     * @param j                   number of satellite.
+     * @param cosArgumentRotation cosine of orbital rotation since constellation time zero.
+     * @param sinArgumentRotation sine of orbital rotation since constellation time zero.
+     * @param cosEarthRotation    cosine of Earth rotation since constellation time zero.
+     * @param sinEarthRotation    sine of Earth rotation since constellation time zero.
+     * @param x                   array where ECEF x coordinate will be stored.
+     * @param y                   array where ECEF y coordinate will be stored.
+     * @param z                   array where ECEF z coordinate will be stored.
+     * @param vx                  array where ECEF x velocity will be stored.
+     * @param vy                  array where ECEF y velocity will be stored.
+     * @param vz                  array where ECEF z velocity will be stored.
+     * @param pos                 position within arrays where results will be stored.
+     */
+    private void generate(final int j,
+                          final double cosArgumentRotation,
+                          final double sinArgumentRotation,
+                          final double cosEarthRotation,
+                          final double sinEarthRotation,
+                          final double[] x, final double[] y, final double[] z,
+                          final double[] vx, final double[] vy, final double[] vz,
+                          final int pos) {
+        // (Corrected) argument of latitude, using angle addition
+        final double cosArgumentOffset = mCosArgumentOffsets[j];
+        final double sinArgumentOffset = mSinArgumentOffsets[j];
+        final double cosUoso = cosArgumentOffset * cosArgumentRotation
+                - sinArgumentOffset * sinArgumentRotation;
+        final double sinUoso = sinArgumentOffset * cosArgumentRotation
+                + cosArgumentOffset * sinArgumentRotation;
+
+        // Satellite position in the orbital frame from (8.14)
+        final double rOsO1 = mOrbitalRadius * cosUoso;
+        final double rOsO2 = mOrbitalRadius * sinUoso;
+
+        // longitude of the ascending node from (8.16), using angle subtraction
+        final double cosNodeOffset = mCosNodeOffsets[j];
+        final double sinNodeOffset = mSinNodeOffsets[j];
+        final double cosOmega = cosNodeOffset * cosEarthRotation
+                + sinNodeOffset * sinEarthRotation;
+        final double sinOmega = sinNodeOffset * cosEarthRotation
+                - cosNodeOffset * sinEarthRotation;
+
+        // ECEF satellite position from (8.19)
+        final double satelliteX = rOsO1 * cosOmega
+                - rOsO2 * mCosInclination * sinOmega;
+        final double satelliteY = rOsO1 * sinOmega
+                + rOsO2 * mCosInclination * cosOmega;
+        final double satelliteZ = rOsO2 * mSinInclination;
+
+        // Satellite velocity in the orbital frame from (8.25)
+        final double vOsO1 = -mOrbitalSpeed * sinUoso;
+        final double vOsO2 = mOrbitalSpeed * cosUoso;
+
+        // ECEF satellite velocity from (8.26)
+        final double satelliteVx = vOsO1 * cosOmega - vOsO2 * mCosInclination * sinOmega
+                + EARTH_ROTATION_RATE * satelliteY;
+        final double satelliteVy = vOsO1 * sinOmega + vOsO2 * mCosInclination * cosOmega
+                - EARTH_ROTATION_RATE * satelliteX;
+        final double satelliteVz = vOsO2 * mSinInclination;
+
+        x[pos] = satelliteX;
+        y[pos] = satelliteY;
+        z[pos] = satelliteZ;
+        vx[pos] = satelliteVx;
+        vy[pos] = satelliteVy;
+        vz[pos] = satelliteVz;
+    }
+
+    /**
+     * Converts provided time instance to seconds.
+     *
+     * @param time time instance to be converted.
+     * @return converted value expressed in seconds.
+     */
+    private static double convertTime(final Time time) {
+        return TimeConverter.convert(time.getValue().doubleValue(),
+                time.getUnit(), TimeUnit.SECOND);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.ECEFtoNEDPositionVelocityConverter;
+
+/**
+ * Contains dilution of precision (DOP) values of a GNSS satellite geometry.
+ * Dilution of precision values are obtained from the cofactor matrix
+ * (H^T * H)^-1 of the pseudo-range measurement matrix H, whose rows contain
+ * the negated line of sight from user to each satellite and a unit clock
+ * offset term. Hence, values can be obtained from the same inverse already
+ * computed by least squares estimators.
+ * Horizontal and vertical values are obtained by rotating the position block
+ * of the cofactor matrix into the local navigation (NED) frame at user
+ * position.
+ * Instances of this class can be reused to avoid allocations.
+ */
+public class GNSSDilutionOfPrecision {
+
+    /**
+     * Number of unknowns of pseudo-range measurement matrix (position
+     * coordinates and clock offset).
+     */
+    static final int UNKNOWNS = 4;
+
+    /**
+     * Geometric dilution of precision.
+     */
+    private double mGdop = Double.NaN;
+
+    /**
+     * Position dilution of precision.
+     */
+    private double mPdop = Double.NaN;
+
+    /**
+     * Horizontal dilution of precision.
+     */
+    private double mHdop = Double.NaN;
+
+    /**
+     * Vertical dilution of precision.
+     */
+    private double mVdop = Double.NaN;
+
+    /**
+     * Time dilution of precision.
+     */
+    private double mTdop = Double.NaN;
+
+    /**
+     * Internal NED position used to obtain latitude and longitude of user.
+     */
+    private final NEDPosition mNedPosition = new NEDPosition();
+
+    /**
+     * Internal NED velocity required by frame conversion.
+     */
+    private final NEDVelocity mNedVelocity = new NEDVelocity();
+
+    /**
+     * Gets geometric dilution of precision (GDOP), which relates
+     * pseudo-range standard deviation with standard deviation of both
+     * position and clock offset.
+     *
+     * @return geometric dilution of precision or NaN if not available.
+     */
+    public double getGdop() {
+        return mGdop;
+    }
+
+    /**
+     * Gets position dilution of precision (PDOP), which relates pseudo-range
+     * standard deviation with standard deviation of 3D position.
+     *
+     * @return position dilution of precision or NaN if not available.
+     */
+    public double getPdop() {
+        return mPdop;
+    }
+
+    /**
+     * Gets horizontal dilution of precision (HDOP), which relates
+     * pseudo-range standard deviation with standard deviation of horizontal
+     * position.
+     *
+     * @return horizontal dilution of precision or NaN if not available.
+     */
+    public double getHdop() {
+        return mHdop;
+    }
+
+    /**
+     * Gets vertical dilution of precision (VDOP), which relates pseudo-range
+     * standard deviation with standard deviation of height.
+     *
+     * @return vertical dilution of precision or NaN if not available.
+     */
+    public double getVdop() {
+        return mVdop;
+    }
+
+    /**
+     * Gets time dilution of precision (TDOP), which relates pseudo-range
+     * standard deviation with standard deviation of clock offset.
+     *
+     * @return time dilution of precision or NaN if not available.
+     */
+    public double getTdop() {
+        return mTdop;
+    }
+
+    /**
+     * Indicates whether dilution of precision values are available.
+     *
+     * @return true if values are available, false otherwise.
+     */
+    public boolean isAvailable() {
+        return !Double.isNaN(mGdop);
+    }
+
+    /**
+     * Copies this instance data into provided instance.
+     *
+     * @param output destination instance where data will be copied to.
+     */
+    public void copyTo(final GNSSDilutionOfPrecision output) {
+        output.mGdop = mGdop;
+        output.mPdop = mPdop;
+        output.mHdop = mHdop;
+        output.mVdop = mVdop;
+        output.mTdop = mTdop;
+    }
+
+    /**
+     * Copies data of provided instance into this instance.
+     *
+     * @param input instance to copy data from.
+     */
+    public void copyFrom(final GNSSDilutionOfPrecision input) {
+        input.copyTo(this);
+    }
+
+    /**
+     * Resets all values to NaN.
+     */
+    void reset() {
+        mGdop = Double.NaN;
+        mPdop = Double.NaN;
+        mHdop = Double.NaN;
+        mVdop = Double.NaN;
+        mTdop = Double.NaN;
+    }
+
+    /**
+     * Sets dilution of precision values from provided cofactor matrix.
+     *
+     * @param cofactor 4x4 symmetric cofactor matrix (H^T * H)^-1, with
+     *                 position coordinates first and clock offset last.
+     *                 Because it is symmetric, either row or column order
+     *                 can be used.
+     * @param x        x coordinate of user position expressed in meters (m).
+     * @param y        y coordinate of user position expressed in meters (m).
+     * @param z        z coordinate of user position expressed in meters (m).
+     */
+    void setFromCofactor(final double[] cofactor, final double x,
+                         final double y, final double z) {
+        ECEFtoNEDPositionVelocityConverter.convertECEFtoNED(x, y, z,
+                0.0, 0.0, 0.0, mNedPosition, mNedVelocity);
+        final double sinLat = Math.sin(mNedPosition.getLatitude());
+        final double cosLat = Math.cos(mNedPosition.getLatitude());
+        final double sinLon = Math.sin(mNedPosition.getLongitude());
+        final double cosLon = Math.cos(mNedPosition.getLongitude());
+
+        final double qxx = cofactor[0];
+        final double qxy = cofactor[1];
+        final double qxz = cofactor[2];
+        final double qyy = cofactor[5];
+        final double qyz = cofactor[6];
+        final double qzz = cofactor[10];
+        final double qtt = cofactor[15];
+
+        // north, east and down axes of local navigation frame resolved in
+        // ECEF frame
+        final double nx = -sinLat * cosLon;
+        final double ny = -sinLat * sinLon;
+        final double nz = cosLat;
+        final double ex = -sinLon;
+        final double ey = cosLon;
+        final double dx = -cosLat * cosLon;
+        final double dy = -cosLat * sinLon;
+        final double dz = -sinLat;
+
+        final double positionTrace = qxx + qyy + qzz;
+        final double northVariance = quadraticForm(qxx, qxy, qxz, qyy, qyz,
+                qzz, nx, ny, nz);
+        final double eastVariance = quadraticForm(qxx, qxy, qxz, qyy, qyz,
+                qzz, ex, ey, 0.0);
+        final double downVariance = quadraticForm(qxx, qxy, qxz, qyy, qyz,
+                qzz, dx, dy, dz);
+
+        mGdop = Math.sqrt(positionTrace + qtt);
+        mPdop = Math.sqrt(positionTrace);
+        mHdop = Math.sqrt(northVariance + eastVariance);
+        mVdop = Math.sqrt(downVariance);
+        mTdop = Math.sqrt(qtt);
+    }
+
+    /**
+     * Evaluates quadratic form a^T * Q * a of position block of cofactor
+     * matrix.
+     *
+     * @param qxx xx element of cofactor matrix.
+     * @param qxy xy element of cofactor matrix.
+     * @param qxz xz element of cofactor matrix.
+     * @param qyy yy element of cofactor matrix.
+     * @param qyz yz element of cofactor matrix.
+     * @param qzz zz element of cofactor matrix.
+     * @param ax  x coordinate of vector.
+     * @param ay  y coordinate of vector.
+     * @param az  z coordinate of vector.
+     * @return value of quadratic form.
+     */
+    private static double quadraticForm(
+            final double qxx, final double qxy, final double qxz,
+            final double qyy, final double qyz, final double qzz,
+            final double ax, final double ay, final double az) {
+        return qxx * ax * ax + qyy * ay * ay + qzz * az * az
+                + 2.0 * (qxy * ax * ay + qxz * ax * az + qyz * ay * az);
+    }
+}
@@ -0,0 +1,571 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeConverter;
+import com.irurueta.units.TimeUnit;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Table containing precomputed positions and velocities of all satellites of a
+ * constellation on a regular time grid.
+ * This is meant to be computed once per scenario and shared among many simulated
+ * receivers, so that satellite orbits are not evaluated once per receiver and epoch.
+ * Values are stored in a single primitive array, and positions and velocities at
+ * times between grid epochs are obtained by cubic Hermite interpolation, which takes
+ * advantage of satellite ECEF velocities being the time derivatives of their
+ * positions.
+ * Instances are immutable and can be safely shared among several threads.
+ */
+public class GNSSEphemerisTable implements Serializable {
+
+    /**
+     * Minimum number of epochs required to build a table.
+     */
+    public static final int MIN_EPOCHS = 2;
+
+    /**
+     * Number of values stored for each satellite and epoch (position and velocity
+     * coordinates).
+     */
+    private static final int STRIDE = 6;
+
+    /**
+     * Number of satellites.
+     */
+    private final int mNumberOfSatellites;
+
+    /**
+     * Number of epochs.
+     */
+    private final int mNumberOfEpochs;
+
+    /**
+     * Time of first epoch expressed in seconds (s).
+     */
+    private final double mStartTime;
+
+    /**
+     * Time interval between consecutive epochs expressed in seconds (s).
+     */
+    private final double mTimeInterval;
+
+    /**
+     * Positions and velocities of all satellites at all epochs. Values for
+     * satellite j at epoch k start at position (k * numberOfSatellites + j) * 6
+     * and are stored as x, y, z, vx, vy, vz.
+     */
+    private final double[] mData;
+
+    /**
+     * Constructor.
+     *
+     * @param config         GNSS configuration.
+     * @param startTime      time of first epoch.
+     * @param timeInterval   time interval between consecutive epochs.
+     * @param numberOfEpochs number of epochs.
+     * @throws IllegalArgumentException if time interval is not positive or number of
+     *                                  epochs is less than {@link #MIN_EPOCHS}.
+     */
+    public GNSSEphemerisTable(final GNSSConfig config, final Time startTime,
+                              final Time timeInterval, final int numberOfEpochs) {
+        this(new GNSSConstellation(config), startTime, timeInterval, numberOfEpochs);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param config         GNSS configuration.
+     * @param startTime      time of first epoch expressed in seconds (s).
+     * @param timeInterval   time interval between consecutive epochs expressed in
+     *                       seconds (s).
+     * @param numberOfEpochs number of epochs.
+     * @throws IllegalArgumentException if time interval is not positive or number of
+     *                                  epochs is less than {@link #MIN_EPOCHS}.
+     */
+    public GNSSEphemerisTable(final GNSSConfig config, final double startTime,
+                              final double timeInterval, final int numberOfEpochs) {
+        this(new GNSSConstellation(config), startTime, timeInterval, numberOfEpochs);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param constellation  constellation to compute positions and velocities from.
+     * @param startTime      time of first epoch.
+     * @param timeInterval   time interval between consecutive epochs.
+     * @param numberOfEpochs number of epochs.
+     * @throws IllegalArgumentException if time interval is not positive or number of
+     *                                  epochs is less than {@link #MIN_EPOCHS}.
+     */
+    public GNSSEphemerisTable(final GNSSConstellation constellation, final Time startTime,
+                              final Time timeInterval, final int numberOfEpochs) {
+        this(constellation, convertTime(startTime), convertTime(timeInterval),
+                numberOfEpochs);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param constellation  constellation to compute positions and velocities from.
+     * @param startTime      time of first epoch expressed in seconds (s).
+     * @param timeInterval   time interval between consecutive epochs expressed in
+     *                       seconds (s).
+     * @param numberOfEpochs number of epochs.
+     * @throws IllegalArgumentException if time interval is not positive or number of
+     *                                  epochs is less than {@link #MIN_EPOCHS}.
+     */
+    public GNSSEphemerisTable(final GNSSConstellation constellation, final double startTime,
+                              final double timeInterval, final int numberOfEpochs) {
+        if (timeInterval <= 0.0 || numberOfEpochs < MIN_EPOCHS) {
+            throw new IllegalArgumentException();
+        }
+
+        mNumberOfSatellites = constellation.getNumberOfSatellites();
+        mNumberOfEpochs = numberOfEpochs;
+        mStartTime = startTime;
+        mTimeInterval = timeInterval;
+        mData = new double[numberOfEpochs * mNumberOfSatellites * STRIDE];
+
+        final double[] x = new double[mNumberOfSatellites];
+        final double[] y = new double[mNumberOfSatellites];
+        final double[] z = new double[mNumberOfSatellites];
+        final double[] vx = new double[mNumberOfSatellites];
+        final double[] vy = new double[mNumberOfSatellites];
+        final double[] vz = new double[mNumberOfSatellites];
+        int pos = 0;
+        for (int k = 0; k < numberOfEpochs; k++) {
+            constellation.generateSatellitesPositionAndVelocity(getEpochTime(k),
+                    x, y, z, vx, vy, vz);
+            for (int j = 0; j < mNumberOfSatellites; j++) {
+                mData[pos++] = x[j];
+                mData[pos++] = y[j];
+                mData[pos++] = z[j];
+                mData[pos++] = vx[j];
+                mData[pos++] = vy[j];
+                mData[pos++] = vz[j];
+            }
+        }
+    }
+
+    /**
+     * Gets number of satellites.
+     *
+     * @return number of satellites.
+     */
+    public int getNumberOfSatellites() {
+        return mNumberOfSatellites;
+    }
+
+    /**
+     * Gets number of epochs.
+     *
+     * @return number of epochs.
+     */
+    public int getNumberOfEpochs() {
+        return mNumberOfEpochs;
+    }
+
+    /**
+     * Gets time of first epoch expressed in seconds (s).
+     *
+     * @return time of first epoch.
+     */
+    public double getStartTime() {
+        return mStartTime;
+    }
+
+    /**
+     * Gets time of last epoch expressed in seconds (s).
+     *
+     * @return time of last epoch.
+     */
+    public double getEndTime() {
+        return getEpochTime(mNumberOfEpochs - 1);
+    }
+
+    /**
+     * Gets time interval between consecutive epochs expressed in seconds (s).
+     *
+     * @return time interval between consecutive epochs.
+     */
+    public double getTimeInterval() {
+        return mTimeInterval;
+    }
+
+    /**
+     * Gets time of provided epoch expressed in seconds (s).
+     *
+     * @param epoch epoch index.
+     * @return time of epoch.
+     */
+    public double getEpochTime(final int epoch) {
+        return mStartTime + epoch * mTimeInterval;
+    }
+
+    /**
+     * Indicates whether provided time is within the time span covered by this table.
+     *
+     * @param time time to be checked.
+     * @return true if time is covered by this table, false otherwise.
+     */
+    public boolean isInRange(final Time time) {
+        return isInRange(convertTime(time));
+    }
+
+    /**
+     * Indicates whether provided time is within the time span covered by this table.
+     *
+     * @param time time to be checked expressed in seconds (s).
+     * @return true if time is covered by this table, false otherwise.
+     */
+    public boolean isInRange(final double time) {
+        return time >= mStartTime && time <= getEndTime();
+    }
+
+    /**
+     * Gets positions and velocities of all satellites at provided time.
+     *
+     * @param time current time.
+     * @return collection containing positions and velocities of satellites.
+     * @throws IllegalArgumentException if time is not covered by this table.
+     */
+    public Collection<ECEFPositionAndVelocity> generateSatellitesPositionAndVelocity(
+            final Time time) {
+        return generateSatellitesPositionAndVelocity(convertTime(time));
+    }
+
+    /**
+     * Gets positions and velocities of all satellites at provided time.
+     *
+     * @param time   current time.
+     * @param result instance where positions and velocities of satellites will be stored.
+     * @throws IllegalArgumentException if time is not covered by this table.
+     */
+    public void generateSatellitesPositionAndVelocity(
+            final Time time, final Collection<ECEFPositionAndVelocity> result) {
+        generateSatellitesPositionAndVelocity(convertTime(time), result);
+    }
+
+    /**
+     * Gets positions and velocities of all satellites at provided time.
+     *
+     * @param time current time expressed in seconds (s).
+     * @return collection containing positions and velocities of satellites.
+     * @throws IllegalArgumentException if time is not covered by this table.
+     */
+    public Collection<ECEFPositionAndVelocity> generateSatellitesPositionAndVelocity(
+            final double time) {
+        final List<ECEFPositionAndVelocity> result = new ArrayList<>();
+        generateSatellitesPositionAndVelocity(time, result);
+        return result;
+    }
+
+    /**
+     * Gets positions and velocities of all satellites at provided time.
+     *
+     * @param time   current time expressed in seconds (s).
+     * @param result instance where positions and velocities of satellites will be stored.
+     * @throws IllegalArgumentException if time is not covered by this table.
+     */
+    public void generateSatellitesPositionAndVelocity(
+            final double time, final Collection<ECEFPositionAndVelocity> result) {
+        final int epoch = findEpoch(time);
+        final double s = (time - getEpochTime(epoch)) / mTimeInterval;
+
+        result.clear();
+        for (int j = 0; j < mNumberOfSatellites; j++) {
+            result.add(new ECEFPositionAndVelocity(
+                    interpolatePosition(epoch, s, j, 0),
+                    interpolatePosition(epoch, s, j, 1),
+                    interpolatePosition(epoch, s, j, 2),
+                    interpolateVelocity(epoch, s, j, 0),
+                    interpolateVelocity(epoch, s, j, 1),
+                    interpolateVelocity(epoch, s, j, 2)));
+        }
+    }
+
+    /**
+     * Gets positions and velocities of all satellites at provided time into provided
+     * arrays, so that the j-th position of each array contains the values of the j-th
+     * satellite.
+     *
+     * @param time current time.
+     * @param x    array where ECEF x coordinates of satellites will be stored, expressed in meters (m).
+     * @param y    array where ECEF y coordinates of satellites will be stored, expressed in meters (m).
+     * @param z    array where ECEF z coordinates of satellites will be stored, expressed in meters (m).
+     * @param vx   array where ECEF x velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @param vy   array where ECEF y velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @param vz   array where ECEF z velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @throws IllegalArgumentException if time is not covered by this table or if any of
+     *                                  provided arrays is shorter than the number of satellites.
+     */
+    public void generateSatellitesPositionAndVelocity(
+            final Time time, final double[] x, final double[] y, final double[] z,
+            final double[] vx, final double[] vy, final double[] vz) {
+        generateSatellitesPositionAndVelocity(convertTime(time), x, y, z, vx, vy, vz);
+    }
+
+    /**
+     * Gets positions and velocities of all satellites at provided time into provided
+     * arrays, so that the j-th position of each array contains the values of the j-th
+     * satellite.
+     *
+     * @param time current time expressed in seconds (s).
+     * @param x    array where ECEF x coordinates of satellites will be stored, expressed in meters (m).
+     * @param y    array where ECEF y coordinates of satellites will be stored, expressed in meters (m).
+     * @param z    array where ECEF z coordinates of satellites will be stored, expressed in meters (m).
+     * @param vx   array where ECEF x velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @param vy   array where ECEF y velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @param vz   array where ECEF z velocities of satellites will be stored, expressed in meters
+     *             per second (m/s).
+     * @throws IllegalArgumentException if time is not covered by this table or if any of
+     *                                  provided arrays is shorter than the number of satellites.
+     */
+    public void generateSatellitesPositionAndVelocity(
+            final double time, final double[] x, final double[] y, final double[] z,
+            final double[] vx, final double[] vy, final double[] vz) {
+        if (x.length < mNumberOfSatellites || y.length < mNumberOfSatellites
+                || z.length < mNumberOfSatellites || vx.length < mNumberOfSatellites
+                || vy.length < mNumberOfSatellites || vz.length < mNumberOfSatellites) {
+            throw new IllegalArgumentException();
+        }
+
+        final int epoch = findEpoch(time);
+        final double s = (time - getEpochTime(epoch)) / mTimeInterval;
+        for (int j = 0; j < mNumberOfSatellites; j++) {
+            x[j] = interpolatePosition(epoch, s, j, 0);
+            y[j] = interpolatePosition(epoch, s, j, 1);
+            z[j] = interpolatePosition(epoch, s, j, 2);
+            vx[j] = interpolateVelocity(epoch, s, j, 0);
+            vy[j] = interpolateVelocity(epoch, s, j, 1);
+            vz[j] = interpolateVelocity(epoch, s, j, 2);
+        }
+    }
+
+    /**
+     * Gets position and velocity of a single satellite at provided time.
+     *
+     * @param time current time.
+     * @param j    number of satellite.
+     * @return satellite position and velocity.
+     * @throws IllegalArgumentException if time is not covered by this table or if
+     *                                  satellite number is not valid.
+     */
+    public ECEFPositionAndVelocity generateSatellitePositionAndVelocity(
+            final Time time, final int j) {
+        return generateSatellitePositionAndVelocity(convertTime(time), j);
+    }
+
+    /**
+     * Gets position and velocity of a single satellite at provided time.
+     *
+     * @param time   current time.
+     * @param j      number of satellite.
+     * @param result instance where satellite position and velocity will be stored.
+     * @throws IllegalArgumentException if time is not covered by this table or if
+     *                                  satellite number is not valid.
+     */
+    public void generateSatellitePositionAndVelocity(
+            final Time time, final int j, final ECEFPositionAndVelocity result) {
+        generateSatellitePositionAndVelocity(convertTime(time), j, result);
+    }
+
+    /**
+     * Gets position and velocity of a single satellite at provided time.
+     *
+     * @param time current time expressed in seconds (s).
+     * @param j    number of satellite.
+     * @return satellite position and velocity.
+     * @throws IllegalArgumentException if time is not covered by this table or if
+     *                                  satellite number is not valid.
+     */
+    public ECEFPositionAndVelocity generateSatellitePositionAndVelocity(
+            final double time, final int j) {
+        final ECEFPositionAndVelocity result = new ECEFPositionAndVelocity();
+        generateSatellitePositionAndVelocity(time, j, result);
+        return result;
+    }
+
+    /**
+     * Gets position and velocity of a single satellite at provided time.
+     *
+     * @param time   current time expressed in seconds (s).
+     * @param j      number of satellite.
+     * @param result instance where satellite position and velocity will be stored.
+     * @throws IllegalArgumentException if time is not covered by this table or if
+     *                                  satellite number is not valid.
+     */
+    public void generateSatellitePositionAndVelocity(
+            final double time, final int j, final ECEFPositionAndVelocity result) {
+        if (j < 0 || j >= mNumberOfSatellites) {
+            throw new IllegalArgumentException();
+        }
+
+        final int epoch = findEpoch(time);
+        final double s = (time - getEpochTime(epoch)) / mTimeInterval;
+
+        result.setPositionCoordinates(interpolatePosition(epoch, s, j, 0),
+                interpolatePosition(epoch, s, j, 1),
+                interpolatePosition(epoch, s, j, 2));
+        result.setVelocityCoordinates(interpolateVelocity(epoch, s, j, 0),
+                interpolateVelocity(epoch, s, j, 1),
+                interpolateVelocity(epoch, s, j, 2));
+    }
+
+    /**
+     * Gets position and velocity of a single satellite at provided time into
+     * provided array.
+     *
+     * @param time   current time.
+     * @param j      number of satellite.
+     * @param result array of length 6 where ECEF x, y, z coordinates expressed in
+     *               meters (m) and ECEF x, y, z velocities expressed in meters per
+     *               second (m/s) will be stored, in that order.
+     * @throws IllegalArgumentException if time is not covered by this table, if
+     *                                  satellite number is not valid or if provided
+     *                                  array does not have length 6.
+     */
+    public void generateSatellitePositionAndVelocity(
+            final Time time, final int j, final double[] result) {
+        generateSatellitePositionAndVelocity(convertTime(time), j, result);
+    }
+
+    /**
+     * Gets position and velocity of a single satellite at provided time into
+     * provided array.
+     *
+     * @param time   current time expressed in seconds (s).
+     * @param j      number of satellite.
+     * @param result array of length 6 where ECEF x, y, z coordinates expressed in
+     *               meters (m) and ECEF x, y, z velocities expressed in meters per
+     *               second (m/s) will be stored, in that order.
+     * @throws IllegalArgumentException if time is not covered by this table, if
+     *                                  satellite number is not valid or if provided
+     *                                  array does not have length 6.
+     */
+    public void generateSatellitePositionAndVelocity(
+            final double time, final int j, final double[] result) {
+        if (j < 0 || j >= mNumberOfSatellites || result.length != STRIDE) {
+            throw new IllegalArgumentException();
+        }
+
+        final int epoch = findEpoch(time);
+        final double s = (time - getEpochTime(epoch)) / mTimeInterval;
+        for (int c = 0; c < 3; c++) {
+            result[c] = interpolatePosition(epoch, s, j, c);
+            result[3 + c] = interpolateVelocity(epoch, s, j, c);
+        }
+    }
+
+    /**
+     * Finds the epoch starting the grid interval that contains provided time.
+     *
+     * @param time time expressed in seconds (s).
+     * @return epoch index, which is always smaller than the number of epochs minus one.
+     * @throws IllegalArgumentException if time is not covered by this table.
+     */
+    private int findEpoch(final double time) {
+        if (!isInRange(time)) {
+            throw new IllegalArgumentException();
+        }
+
+        final int epoch = (int) Math.floor((time - mStartTime) / mTimeInterval);
+        return Math.max(0, Math.min(epoch, mNumberOfEpochs - 2));
+    }
+
+    /**
+     * Interpolates a position coordinate of a satellite using cubic Hermite
+     * interpolation between the two epochs delimiting the grid interval.
+     * Values are returned rather than stored in an array, so that lookups do
+     * not allocate memory.
+     *
+     * @param epoch     epoch starting the grid interval.
+     * @param s         normalized time within the grid interval.
+     * @param j         number of satellite.
+     * @param component coordinate to be interpolated (0 for x, 1 for y and 2
+     *                  for z).
+     * @return interpolated coordinate expressed in meters (m).
+     */
+    private double interpolatePosition(final int epoch, final double s,
+                                       final int j, final int component) {
+        final int i0 = (epoch * mNumberOfSatellites + j) * STRIDE + component;
+        final int i1 = i0 + mNumberOfSatellites * STRIDE;
+        final double h = mTimeInterval;
+
+        // cubic Hermite basis functions
+        final double s2 = s * s;
+        final double s3 = s2 * s;
+        final double h00 = 2.0 * s3 - 3.0 * s2 + 1.0;
+        final double h10 = (s3 - 2.0 * s2 + s) * h;
+        final double h01 = -2.0 * s3 + 3.0 * s2;
+        final double h11 = (s3 - s2) * h;
+
+        return h00 * mData[i0] + h10 * mData[i0 + 3]
+                + h01 * mData[i1] + h11 * mData[i1 + 3];
+    }
+
+    /**
+     * Interpolates a velocity coordinate of a satellite as the time derivative
+     * of the cubic Hermite interpolation of its position between the two epochs
+     * delimiting the grid interval.
+     *
+     * @param epoch     epoch starting the grid interval.
+     * @param s         normalized time within the grid interval.
+     * @param j         number of satellite.
+     * @param component coordinate to be interpolated (0 for x, 1 for y and 2
+     *                  for z).
+     * @return interpolated velocity coordinate expressed in meters per second
+     * (m/s).
+     */
+    private double interpolateVelocity(final int epoch, final double s,
+                                       final int j, final int component) {
+        final int i0 = (epoch * mNumberOfSatellites + j) * STRIDE + component;
+        final int i1 = i0 + mNumberOfSatellites * STRIDE;
+        final double h = mTimeInterval;
+
+        // derivatives of cubic Hermite basis functions
+        final double s2 = s * s;
+        final double d00 = (6.0 * s2 - 6.0 * s) / h;
+        final double d10 = 3.0 * s2 - 4.0 * s + 1.0;
+        final double d01 = -d00;
+        final double d11 = 3.0 * s2 - 2.0 * s;
+
+        return d00 * mData[i0] + d10 * mData[i0 + 3]
+                + d01 * mData[i1] + d11 * mData[i1 + 3];
+    }
+
+    /**
+     * Converts provided time instance to seconds.
+     *
+     * @param time time instance to be converted.
+     * @return converted value expressed in seconds.
+     */
+    private static double convertTime(final Time time) {
+        return TimeConverter.convert(time.getValue().doubleValue(),
+                time.getUnit(), TimeUnit.SECOND);
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Computes differences between the sets of satellites measured on two
+ * consecutive GNSS epochs.
+ * Measurements are matched by their satellite identifier, so that satellites
+ * that are added, removed or that persist between epochs can be determined,
+ * along with the position that persisting satellites had on the previous epoch.
+ * Since constellations change slowly, most satellites usually persist, hence
+ * any per-satellite data computed on the previous epoch can be reused by
+ * following the index mappings provided by this class.
+ * Measurements having an unknown satellite identifier can never be matched,
+ * hence they are always considered as added (or removed).
+ * Instances of this class can be reused between epochs to avoid allocations.
+ */
+public class GNSSEpochDiff {
+
+    /**
+     * Value indicating that a measurement has no counterpart in the other epoch.
+     */
+    public static final int NO_INDEX = -1;
+
+    /**
+     * Number of measurements of previous epoch.
+     */
+    private int mPreviousSize;
+
+    /**
+     * Number of measurements of current epoch.
+     */
+    private int mCurrentSize;
+
+    /**
+     * Positions within current epoch of satellites that were not measured on
+     * previous epoch.
+     */
+    private int[] mAdded = new int[0];
+
+    /**
+     * Number of added satellites.
+     */
+    private int mNumAdded;
+
+    /**
+     * Positions within previous epoch of satellites that are no longer measured
+     * on current epoch.
+     */
+    private int[] mRemoved = new int[0];
+
+    /**
+     * Number of removed satellites.
+     */
+    private int mNumRemoved;
+
+    /**
+     * Positions within previous epoch of satellites measured on both epochs.
+     */
+    private int[] mPersistingPrevious = new int[0];
+
+    /**
+     * Positions within current epoch of satellites measured on both epochs.
+     */
+    private int[] mPersistingCurrent = new int[0];
+
+    /**
+     * Number of persisting satellites.
+     */
+    private int mNumPersisting;
+
+    /**
+     * Maps each position of previous epoch to its position on current epoch, or
+     * to {@link #NO_INDEX}.
+     */
+    private int[] mPreviousToCurrent = new int[0];
+
+    /**
+     * Maps each position of current epoch to its position on previous epoch, or
+     * to {@link #NO_INDEX}.
+     */
+    private int[] mCurrentToPrevious = new int[0];
+
+    /**
+     * Sorting keys of previous epoch containing satellite identifier on upper
+     * bits and position on lower bits.
+     */
+    private long[] mPreviousKeys = new long[0];
+
+    /**
+     * Sorting keys of current epoch containing satellite identifier on upper
+     * bits and position on lower bits.
+     */
+    private long[] mCurrentKeys = new long[0];
+
+    /**
+     * Constructor.
+     */
+    public GNSSEpochDiff() {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param previous measurements of previous epoch.
+     * @param current  measurements of current epoch.
+     */
+    public GNSSEpochDiff(final GNSSMeasurementBatch previous,
+                         final GNSSMeasurementBatch current) {
+        compute(previous, current);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param previous measurements of previous epoch.
+     * @param current  measurements of current epoch.
+     */
+    public GNSSEpochDiff(final Collection<GNSSMeasurement> previous,
+                         final Collection<GNSSMeasurement> current) {
+        compute(previous, current);
+    }
+
+    /**
+     * Computes differences between satellites measured on provided epochs.
+     *
+     * @param previous measurements of previous epoch.
+     * @param current  measurements of current epoch.
+     */
+    public void compute(final Collection<GNSSMeasurement> previous,
+                        final Collection<GNSSMeasurement> current) {
+        compute(new GNSSMeasurementBatch(previous),
+                new GNSSMeasurementBatch(current));
+    }
+
+    /**
+     * Computes differences between satellites measured on provided epochs.
+     * This method only allocates memory when provided epochs contain more
+     * measurements than any previously compared epoch.
+     *
+     * @param previous measurements of previous epoch.
+     * @param current  measurements of current epoch.
+     */
+    public void compute(final GNSSMeasurementBatch previous,
+                        final GNSSMeasurementBatch current) {
+        final int previousSize = previous.getSize();
+        final int currentSize = current.getSize();
+        ensureCapacity(previousSize, currentSize);
+
+        mPreviousSize = previousSize;
+        mCurrentSize = currentSize;
+        Arrays.fill(mPreviousToCurrent, 0, previousSize, NO_INDEX);
+        Arrays.fill(mCurrentToPrevious, 0, currentSize, NO_INDEX);
+
+        final int numPreviousKeys = buildKeys(previous, mPreviousKeys);
+        final int numCurrentKeys = buildKeys(current, mCurrentKeys);
+
+        // match satellite identifiers by merging sorted keys
+        int i = 0;
+        int j = 0;
+        while (i < numPreviousKeys && j < numCurrentKeys) {
+            final long previousKey = mPreviousKeys[i];
+            final long currentKey = mCurrentKeys[j];
+            final int previousId = (int) (previousKey >>> Integer.SIZE);
+            final int currentId = (int) (currentKey >>> Integer.SIZE);
+
+            if (previousId == currentId) {
+                final int previousIndex = (int) previousKey;
+                final int currentIndex = (int) currentKey;
+                mPreviousToCurrent[previousIndex] = currentIndex;
+                mCurrentToPrevious[currentIndex] = previousIndex;
+                i++;
+                j++;
+            } else if (previousId < currentId) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        // collect results in order of position
+        mNumAdded = 0;
+        mNumPersisting = 0;
+        for (int k = 0; k < currentSize; k++) {
+            final int previousIndex = mCurrentToPrevious[k];
+            if (previousIndex == NO_INDEX) {
+                mAdded[mNumAdded++] = k;
+            } else {
+                mPersistingPrevious[mNumPersisting] = previousIndex;
+                mPersistingCurrent[mNumPersisting] = k;
+                mNumPersisting++;
+            }
+        }
+
+        mNumRemoved = 0;
+        for (int k = 0; k < previousSize; k++) {
+            if (mPreviousToCurrent[k] == NO_INDEX) {
+                mRemoved[mNumRemoved++] = k;
+            }
+        }
+    }
+
+    /**
+     * Gets number of measurements of previous epoch.
+     *
+     * @return number of measurements of previous epoch.
+     */
+    public int getPreviousSize() {
+        return mPreviousSize;
+    }
+
+    /**
+     * Gets number of measurements of current epoch.
+     *
+     * @return number of measurements of current epoch.
+     */
+    public int getCurrentSize() {
+        return mCurrentSize;
+    }
+
+    /**
+     * Indicates whether both epochs contain exactly the same satellites in the
+     * same order, so that all per-satellite data of previous epoch can be
+     * reused as is.
+     *
+     * @return true if satellites have not changed, false otherwise.
+     */
+    public boolean isUnchanged() {
+        if (mNumAdded > 0 || mNumRemoved > 0) {
+            return false;
+        }
+        for (int k = 0; k < mCurrentSize; k++) {
+            if (mCurrentToPrevious[k] != k) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets number of satellites measured on current epoch that were not
+     * measured on previous epoch.
+     *
+     * @return number of added satellites.
+     */
+    public int getNumberOfAdded() {
+        return mNumAdded;
+    }
+
+    /**
+     * Gets position within current epoch of an added satellite.
+     *
+     * @param n index of added satellite. Must be less than
+     *          {@link #getNumberOfAdded()}.
+     * @return position within current epoch.
+     * @throws IllegalArgumentException if index is out of range.
+     */
+    public int getAddedIndex(final int n) {
+        checkIndex(n, mNumAdded);
+        return mAdded[n];
+    }
+
+    /**
+     * Gets positions within current epoch of added satellites in increasing
+     * order.
+     *
+     * @return a new array containing positions of added satellites.
+     */
+    public int[] getAddedIndices() {
+        return Arrays.copyOf(mAdded, mNumAdded);
+    }
+
+    /**
+     * Gets number of satellites measured on previous epoch that are no longer
+     * measured on current epoch.
+     *
+     * @return number of removed satellites.
+     */
+    public int getNumberOfRemoved() {
+        return mNumRemoved;
+    }
+
+    /**
+     * Gets position within previous epoch of a removed satellite.
+     *
+     * @param n index of removed satellite. Must be less than
+     *          {@link #getNumberOfRemoved()}.
+     * @return position within previous epoch.
+     * @throws IllegalArgumentException if index is out of range.
+     */
+    public int getRemovedIndex(final int n) {
+        checkIndex(n, mNumRemoved);
+        return mRemoved[n];
+    }
+
+    /**
+     * Gets positions within previous epoch of removed satellites in increasing
+     * order.
+     *
+     * @return a new array containing positions of removed satellites.
+     */
+    public int[] getRemovedIndices() {
+        return Arrays.copyOf(mRemoved, mNumRemoved);
+    }
+
+    /**
+     * Gets number of satellites measured on both epochs.
+     *
+     * @return number of persisting satellites.
+     */
+    public int getNumberOfPersisting() {
+        return mNumPersisting;
+    }
+
+    /**
+     * Gets position within previous epoch of a persisting satellite.
+     *
+     * @param n index of persisting satellite. Must be less than
+     *          {@link #getNumberOfPersisting()}.
+     * @return position within previous epoch.
+     * @throws IllegalArgumentException if index is out of range.
+     */
+    public int getPersistingPreviousIndex(final int n) {
+        checkIndex(n, mNumPersisting);
+        return mPersistingPrevious[n];
+    }
+
+    /**
+     * Gets position within current epoch of a persisting satellite.
+     *
+     * @param n index of persisting satellite. Must be less than
+     *          {@link #getNumberOfPersisting()}.
+     * @return position within current epoch.
+     * @throws IllegalArgumentException if index is out of range.
+     */
+    public int getPersistingCurrentIndex(final int n) {
+        checkIndex(n, mNumPersisting);
+        return mPersistingCurrent[n];
+    }
+
+    /**
+     * Gets positions within previous epoch of persisting satellites, sorted by
+     * their position within current epoch.
+     *
+     * @return a new array containing positions within previous epoch.
+     */
+    public int[] getPersistingPreviousIndices() {
+        return Arrays.copyOf(mPersistingPrevious, mNumPersisting);
+    }
+
+    /**
+     * Gets positions within current epoch of persisting satellites in
+     * increasing order.
+     *
+     * @return a new array containing positions within current epoch.
+     */
+    public int[] getPersistingCurrentIndices() {
+        return Arrays.copyOf(mPersistingCurrent, mNumPersisting);
+    }
+
+    /**
+     * Gets position within previous epoch of the satellite at provided position
+     * of current epoch.
+     *
+     * @param currentIndex position within current epoch.
+     * @return position within previous epoch or {@link #NO_INDEX} if satellite
+     * has been added.
+     * @throws IllegalArgumentException if index is out of range.
+     */
+    public int getPreviousIndex(final int currentIndex) {
+        checkIndex(currentIndex, mCurrentSize);
+        return mCurrentToPrevious[currentIndex];
+    }
+
+    /**
+     * Gets position within current epoch of the satellite at provided position
+     * of previous epoch.
+     *
+     * @param previousIndex position within previous epoch.
+     * @return position within current epoch or {@link #NO_INDEX} if satellite
+     * has been removed.
+     * @throws IllegalArgumentException if index is out of range.
+     */
+    public int getCurrentIndex(final int previousIndex) {
+        checkIndex(previousIndex, mPreviousSize);
+        return mPreviousToCurrent[previousIndex];
+    }
+
+    /**
+     * Ensures that internal arrays can hold provided number of measurements.
+     *
+     * @param previousSize number of measurements of previous epoch.
+     * @param currentSize  number of measurements of current epoch.
+     */
+    private void ensureCapacity(final int previousSize, final int currentSize) {
+        if (mPreviousToCurrent.length < previousSize) {
+            mPreviousToCurrent = new int[previousSize];
+            mPreviousKeys = new long[previousSize];
+            mRemoved = new int[previousSize];
+        }
+        if (mCurrentToPrevious.length < currentSize) {
+            mCurrentToPrevious = new int[currentSize];
+            mCurrentKeys = new long[currentSize];
+            mAdded = new int[currentSize];
+            mPersistingPrevious = new int[currentSize];
+            mPersistingCurrent = new int[currentSize];
+        }
+    }
+
+    /**
+     * Builds sorted keys for measurements having a known satellite identifier.
+     *
+     * @param batch measurements.
+     * @param keys  array where keys will be stored.
+     * @return number of stored keys.
+     */
+    private static int buildKeys(final GNSSMeasurementBatch batch,
+                                 final long[] keys) {
+        final int[] satelliteIds = batch.getSatelliteIds();
+        final int size = batch.getSize();
+        int numKeys = 0;
+        for (int k = 0; k < size; k++) {
+            final int satelliteId = satelliteIds[k];
+            if (satelliteId != GNSSMeasurement.UNKNOWN_SATELLITE_ID) {
+                keys[numKeys++] = ((long) satelliteId << Integer.SIZE) | k;
+            }
+        }
+        Arrays.sort(keys, 0, numKeys);
+        return numKeys;
+    }
+
+    /**
+     * Checks that provided index is within range.
+     *
+     * @param index index to be checked.
+     * @param size  number of available elements.
+     * @throws IllegalArgumentException if index is out of range.
+     */
+    private static void checkIndex(final int index, final int size) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException();
+        }
+    }
+}
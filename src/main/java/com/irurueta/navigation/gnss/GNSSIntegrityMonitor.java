@@ -0,0 +1,683 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.ECEFtoNEDPositionVelocityConverter;
+import com.irurueta.statistics.ChiSqDist;
+import com.irurueta.statistics.MaxIterationsExceededException;
+import com.irurueta.statistics.NormalDist;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Monitors integrity of GNSS epochs using receiver autonomous integrity
+ * monitoring (RAIM) with fault detection and exclusion.
+ * Pseudo-ranges are solved once using least squares, and the residuals and
+ * normal equations of that solution are used to evaluate every leave-one-out
+ * solution by means of rank-one downdates, instead of solving again the least
+ * squares problem once for each left out measurement.
+ * A fault is detected when the sum of squared residuals normalized by the
+ * pseudo-range variance exceeds the chi-squared threshold corresponding to
+ * the configured probability of false alarm. In such case, the measurement
+ * whose removal reduces the most the sum of squared residuals is excluded,
+ * and the process is repeated until remaining measurements are consistent,
+ * until no more measurements can be excluded, or until the maximum number of
+ * exclusions is reached.
+ * Horizontal and vertical protection levels are computed from the largest
+ * slope among remaining measurements, as proposed by Brown, where the bias to
+ * be detected is approximated as the square root of the detection threshold
+ * plus the standard normal quantile of the probability of missed detection.
+ * Because only pseudo-ranges are monitored, velocity and clock drift of a
+ * solution are only re-estimated when measurements are excluded.
+ */
+public class GNSSIntegrityMonitor {
+
+    /**
+     * Minimum number of measurements required to detect faults.
+     */
+    public static final int MIN_MEASUREMENTS_FOR_DETECTION =
+            GNSSCofactorMatrix.MIN_MEASUREMENTS + 1;
+
+    /**
+     * Minimum number of measurements required to exclude a faulty measurement
+     * and still be able to detect faults on the remaining ones.
+     */
+    public static final int MIN_MEASUREMENTS_FOR_EXCLUSION =
+            MIN_MEASUREMENTS_FOR_DETECTION + 1;
+
+    /**
+     * Default standard deviation of pseudo-range errors expressed in meters
+     * (m).
+     */
+    public static final double DEFAULT_PSEUDO_RANGE_STANDARD_DEVIATION = 5.0;
+
+    /**
+     * Default probability of false alarm.
+     */
+    public static final double DEFAULT_PROBABILITY_OF_FALSE_ALARM = 1e-5;
+
+    /**
+     * Default probability of missed detection.
+     */
+    public static final double DEFAULT_PROBABILITY_OF_MISSED_DETECTION = 1e-3;
+
+    /**
+     * Default maximum number of measurements that can be excluded on a single
+     * epoch.
+     */
+    public static final int DEFAULT_MAX_EXCLUSIONS = 2;
+
+    /**
+     * Number of unknowns of pseudo-range solution (position and clock offset).
+     */
+    private static final int UNKNOWNS = GNSSCofactorMatrix.UNKNOWNS;
+
+    /**
+     * Earth rotation rate expressed in radians per second (rad/s).
+     */
+    private static final double EARTH_ROTATION_RATE =
+            GNSSLeastSquaresPositionAndVelocityEstimator.EARTH_ROTATION_RATE;
+
+    /**
+     * Speed of light in the vacuum expressed in meters per second (m/s).
+     */
+    private static final double SPEED_OF_LIGHT =
+            GNSSLeastSquaresPositionAndVelocityEstimator.SPEED_OF_LIGHT;
+
+    /**
+     * Standard deviation of pseudo-range errors expressed in meters (m).
+     */
+    private double mPseudoRangeStandardDeviation =
+            DEFAULT_PSEUDO_RANGE_STANDARD_DEVIATION;
+
+    /**
+     * Probability of false alarm.
+     */
+    private double mProbabilityOfFalseAlarm = DEFAULT_PROBABILITY_OF_FALSE_ALARM;
+
+    /**
+     * Probability of missed detection.
+     */
+    private double mProbabilityOfMissedDetection =
+            DEFAULT_PROBABILITY_OF_MISSED_DETECTION;
+
+    /**
+     * Maximum number of measurements that can be excluded on a single epoch.
+     */
+    private int mMaxExclusions = DEFAULT_MAX_EXCLUSIONS;
+
+    /**
+     * Detection thresholds already computed for each number of degrees of
+     * freedom, or zero if not computed yet.
+     */
+    private double[] mThresholds = new double[0];
+
+    /**
+     * Standard normal quantile of the probability of missed detection, or NaN
+     * if not computed yet.
+     */
+    private double mMissedDetectionQuantile = Double.NaN;
+
+    /**
+     * Least squares estimator used to obtain the initial solution.
+     */
+    private final GNSSLeastSquaresPositionAndVelocityEstimator mLsEstimator =
+            new GNSSLeastSquaresPositionAndVelocityEstimator();
+
+    /**
+     * Batch to be reused where measurements provided as a collection are
+     * copied.
+     */
+    private final GNSSMeasurementBatch mInternalBatch = new GNSSMeasurementBatch();
+
+    /**
+     * Batch to be reused containing measurements remaining after exclusion.
+     */
+    private final GNSSMeasurementBatch mRemainingBatch = new GNSSMeasurementBatch();
+
+    /**
+     * Inverse of normal matrix of measurements still being used.
+     */
+    private final GNSSCofactorMatrix mCofactor = new GNSSCofactorMatrix();
+
+    /**
+     * Geometry matrix stored in row-major order.
+     */
+    private double[] mH = new double[0];
+
+    /**
+     * Residuals of each measurement.
+     */
+    private double[] mResiduals = new double[0];
+
+    /**
+     * Indicates whether each measurement is still used.
+     */
+    private boolean[] mUsed = new boolean[0];
+
+    /**
+     * NED position to be reused.
+     */
+    private final NEDPosition mNedPosition = new NEDPosition();
+
+    /**
+     * NED velocity to be reused.
+     */
+    private final NEDVelocity mNedVelocity = new NEDVelocity();
+
+    /**
+     * Constructor.
+     */
+    public GNSSIntegrityMonitor() {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pseudoRangeStandardDeviation standard deviation of pseudo-range
+     *                                     errors expressed in meters (m).
+     * @throws IllegalArgumentException if standard deviation is zero or
+     *                                  negative.
+     */
+    public GNSSIntegrityMonitor(final double pseudoRangeStandardDeviation) {
+        this();
+        setPseudoRangeStandardDeviation(pseudoRangeStandardDeviation);
+    }
+
+    /**
+     * Gets standard deviation of pseudo-range errors expressed in meters (m).
+     *
+     * @return standard deviation of pseudo-range errors.
+     */
+    public double getPseudoRangeStandardDeviation() {
+        return mPseudoRangeStandardDeviation;
+    }
+
+    /**
+     * Sets standard deviation of pseudo-range errors expressed in meters (m).
+     *
+     * @param pseudoRangeStandardDeviation standard deviation of pseudo-range
+     *                                     errors.
+     * @throws IllegalArgumentException if standard deviation is zero or
+     *                                  negative.
+     */
+    public void setPseudoRangeStandardDeviation(
+            final double pseudoRangeStandardDeviation) {
+        if (pseudoRangeStandardDeviation <= 0.0) {
+            throw new IllegalArgumentException();
+        }
+        mPseudoRangeStandardDeviation = pseudoRangeStandardDeviation;
+    }
+
+    /**
+     * Gets probability of false alarm.
+     *
+     * @return probability of false alarm.
+     */
+    public double getProbabilityOfFalseAlarm() {
+        return mProbabilityOfFalseAlarm;
+    }
+
+    /**
+     * Sets probability of false alarm.
+     *
+     * @param probabilityOfFalseAlarm probability of false alarm.
+     * @throws IllegalArgumentException if probability is not between 0.0 and
+     *                                  1.0 (both excluded).
+     */
+    public void setProbabilityOfFalseAlarm(final double probabilityOfFalseAlarm) {
+        if (probabilityOfFalseAlarm <= 0.0 || probabilityOfFalseAlarm >= 1.0) {
+            throw new IllegalArgumentException();
+        }
+        mProbabilityOfFalseAlarm = probabilityOfFalseAlarm;
+        mThresholds = new double[0];
+    }
+
+    /**
+     * Gets probability of missed detection.
+     *
+     * @return probability of missed detection.
+     */
+    public double getProbabilityOfMissedDetection() {
+        return mProbabilityOfMissedDetection;
+    }
+
+    /**
+     * Sets probability of missed detection.
+     *
+     * @param probabilityOfMissedDetection probability of missed detection.
+     * @throws IllegalArgumentException if probability is not between 0.0 and
+     *                                  1.0 (both excluded).
+     */
+    public void setProbabilityOfMissedDetection(
+            final double probabilityOfMissedDetection) {
+        if (probabilityOfMissedDetection <= 0.0
+                || probabilityOfMissedDetection >= 1.0) {
+            throw new IllegalArgumentException();
+        }
+        mProbabilityOfMissedDetection = probabilityOfMissedDetection;
+        mMissedDetectionQuantile = Double.NaN;
+    }
+
+    /**
+     * Gets maximum number of measurements that can be excluded on a single
+     * epoch.
+     *
+     * @return maximum number of exclusions.
+     */
+    public int getMaxExclusions() {
+        return mMaxExclusions;
+    }
+
+    /**
+     * Sets maximum number of measurements that can be excluded on a single
+     * epoch.
+     * Zero disables exclusion, so that faults are only detected.
+     *
+     * @param maxExclusions maximum number of exclusions.
+     * @throws IllegalArgumentException if provided value is negative.
+     */
+    public void setMaxExclusions(final int maxExclusions) {
+        if (maxExclusions < 0) {
+            throw new IllegalArgumentException();
+        }
+        mMaxExclusions = maxExclusions;
+    }
+
+    /**
+     * Monitors integrity of provided measurements.
+     *
+     * @param measurements GNSS measurements of a collection of satellites.
+     * @param result       instance where result will be stored.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws GNSSException            if estimation fails due to numerical
+     *                                  instabilities.
+     */
+    public void monitor(final Collection<GNSSMeasurement> measurements,
+                        final GNSSIntegrityResult result) throws GNSSException {
+        mInternalBatch.setMeasurements(measurements);
+        monitor(mInternalBatch, result);
+    }
+
+    /**
+     * Monitors integrity of provided measurements.
+     *
+     * @param measurements GNSS measurements of a collection of satellites.
+     * @return result of integrity monitoring.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws GNSSException            if estimation fails due to numerical
+     *                                  instabilities.
+     */
+    public GNSSIntegrityResult monitor(
+            final Collection<GNSSMeasurement> measurements) throws GNSSException {
+        final GNSSIntegrityResult result = new GNSSIntegrityResult();
+        monitor(measurements, result);
+        return result;
+    }
+
+    /**
+     * Monitors integrity of provided measurements.
+     *
+     * @param measurements GNSS measurements of a collection of satellites.
+     * @return result of integrity monitoring.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws GNSSException            if estimation fails due to numerical
+     *                                  instabilities.
+     */
+    public GNSSIntegrityResult monitor(final GNSSMeasurementBatch measurements)
+            throws GNSSException {
+        final GNSSIntegrityResult result = new GNSSIntegrityResult();
+        monitor(measurements, result);
+        return result;
+    }
+
+    /**
+     * Monitors integrity of provided measurements.
+     *
+     * @param measurements GNSS measurements of a collection of satellites.
+     * @param result       instance where result will be stored.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws GNSSException            if estimation fails due to numerical
+     *                                  instabilities.
+     */
+    public void monitor(final GNSSMeasurementBatch measurements,
+                        final GNSSIntegrityResult result) throws GNSSException {
+        if (!GNSSLeastSquaresPositionAndVelocityEstimator.isValidMeasurementBatch(
+                measurements)) {
+            throw new IllegalArgumentException();
+        }
+
+        final int n = measurements.getSize();
+        result.reset(n);
+        final GNSSEstimation estimation = result.getEstimation();
+
+        // solve full least squares problem once
+        solve(measurements, null, estimation);
+
+        ensureCapacity(n);
+        Arrays.fill(mUsed, 0, n, true);
+
+        // refine solution with a single linear step at the solution itself,
+        // so that residuals are consistent with the geometry matrix
+        final double x0 = estimation.getX();
+        final double y0 = estimation.getY();
+        final double z0 = estimation.getZ();
+        final double b0 = estimation.getClockOffset();
+        linearize(measurements, x0, y0, z0, b0);
+        mCofactor.invert(mH, null, n);
+        final double[] p = mCofactor.getCofactor();
+
+        double dx = 0.0;
+        double dy = 0.0;
+        double dz = 0.0;
+        double db = 0.0;
+        for (int i = 0; i < n; i++) {
+            final int row = i * UNKNOWNS;
+            final double r = mResiduals[i];
+            dx += (p[0] * mH[row] + p[1] * mH[row + 1] + p[2] * mH[row + 2]
+                    + p[3] * mH[row + 3]) * r;
+            dy += (p[4] * mH[row] + p[5] * mH[row + 1] + p[6] * mH[row + 2]
+                    + p[7] * mH[row + 3]) * r;
+            dz += (p[8] * mH[row] + p[9] * mH[row + 1] + p[10] * mH[row + 2]
+                    + p[11] * mH[row + 3]) * r;
+            db += (p[12] * mH[row] + p[13] * mH[row + 1] + p[14] * mH[row + 2]
+                    + p[15] * mH[row + 3]) * r;
+        }
+
+        final double variance = mPseudoRangeStandardDeviation
+                * mPseudoRangeStandardDeviation;
+        double sse = 0.0;
+        for (int i = 0; i < n; i++) {
+            final int row = i * UNKNOWNS;
+            mResiduals[i] -= mH[row] * dx + mH[row + 1] * dy + mH[row + 2] * dz
+                    + mH[row + 3] * db;
+            sse += mResiduals[i] * mResiduals[i];
+        }
+        double x = x0 + dx;
+        double y = y0 + dy;
+        double z = z0 + dz;
+        double b = b0 + db;
+
+        int used = n;
+        if (used >= MIN_MEASUREMENTS_FOR_DETECTION) {
+            result.setAvailable(true);
+
+            double threshold = getThreshold(used - UNKNOWNS);
+            result.setFaultDetected(sse / variance > threshold);
+
+            while (sse / variance > threshold
+                    && used >= MIN_MEASUREMENTS_FOR_EXCLUSION
+                    && result.getNumberOfExcludedMeasurements() < mMaxExclusions) {
+
+                // find the measurement whose removal reduces the most the sum
+                // of squared residuals
+                int worst = -1;
+                double worstReduction = -1.0;
+                for (int i = 0; i < n; i++) {
+                    if (!mUsed[i]) {
+                        continue;
+                    }
+                    final double redundancy = 1.0 - mCofactor.leverage(mH, i);
+                    if (redundancy <= 0.0) {
+                        // measurement cannot be excluded without losing
+                        // observability
+                        continue;
+                    }
+                    final double reduction = mResiduals[i] * mResiduals[i]
+                            / redundancy;
+                    if (reduction > worstReduction) {
+                        worstReduction = reduction;
+                        worst = i;
+                    }
+                }
+                if (worst < 0) {
+                    break;
+                }
+
+                // downdate solution, residuals and inverse normal matrix
+                // (Sherman-Morrison)
+                final double redundancy = 1.0 - mCofactor.leverage(mH, worst);
+                final double[] ph = mCofactor.getProduct();
+                final double factor = -mResiduals[worst] / redundancy;
+                final double cx = ph[0] * factor;
+                final double cy = ph[1] * factor;
+                final double cz = ph[2] * factor;
+                final double cb = ph[3] * factor;
+                x += cx;
+                y += cy;
+                z += cz;
+                b += cb;
+                mCofactor.downdate(redundancy);
+
+                mUsed[worst] = false;
+                used--;
+                result.addExcluded(worst);
+
+                sse = 0.0;
+                for (int i = 0; i < n; i++) {
+                    if (!mUsed[i]) {
+                        continue;
+                    }
+                    final int row = i * UNKNOWNS;
+                    mResiduals[i] -= mH[row] * cx + mH[row + 1] * cy
+                            + mH[row + 2] * cz + mH[row + 3] * cb;
+                    sse += mResiduals[i] * mResiduals[i];
+                }
+
+                threshold = getThreshold(used - UNKNOWNS);
+            }
+
+            result.setTestStatistic(sse / variance, threshold);
+            computeProtectionLevels(x, y, z, threshold, result);
+        }
+
+        if (result.getNumberOfExcludedMeasurements() > 0) {
+            // solve again remaining measurements so that velocity and clock
+            // drift do not include excluded measurements either
+            mRemainingBatch.clear();
+            final GNSSMeasurement measurement = new GNSSMeasurement();
+            for (int i = 0; i < n; i++) {
+                if (mUsed[i]) {
+                    measurements.getMeasurement(i, measurement);
+                    mRemainingBatch.add(measurement);
+                }
+            }
+            solve(mRemainingBatch, new ECEFPositionAndVelocity(x, y, z,
+                    estimation.getVx(), estimation.getVy(), estimation.getVz()),
+                    estimation);
+        } else {
+            estimation.setPositionCoordinates(x, y, z);
+            estimation.setClockOffset(b);
+        }
+    }
+
+    /**
+     * Solves provided measurements using least squares.
+     *
+     * @param measurements measurements to be solved.
+     * @param prior        prior position and velocity or null.
+     * @param result       instance where estimation will be stored.
+     * @throws GNSSException if estimation fails due to numerical instabilities.
+     */
+    private void solve(final GNSSMeasurementBatch measurements,
+                       final ECEFPositionAndVelocity prior,
+                       final GNSSEstimation result) throws GNSSException {
+        try {
+            mLsEstimator.setMeasurementBatch(measurements);
+            mLsEstimator.setPriorPositionAndVelocity(prior);
+            mLsEstimator.estimate(result);
+        } catch (final LockedException | NotReadyException e) {
+            throw new GNSSException(e);
+        }
+    }
+
+    /**
+     * Computes geometry matrix and pseudo-range residuals at provided
+     * solution, taking into account Earth rotation during signal transit time.
+     *
+     * @param measurements measurements.
+     * @param x            x coordinate of user position.
+     * @param y            y coordinate of user position.
+     * @param z            z coordinate of user position.
+     * @param b            receiver clock offset.
+     */
+    private void linearize(final GNSSMeasurementBatch measurements,
+                           final double x, final double y, final double z,
+                           final double b) {
+        final int n = measurements.getSize();
+        final double[] xs = measurements.getXs();
+        final double[] ys = measurements.getYs();
+        final double[] zs = measurements.getZs();
+        final double[] pseudoRanges = measurements.getPseudoRanges();
+        for (int i = 0; i < n; i++) {
+            final double approxRange = Math.sqrt((xs[i] - x) * (xs[i] - x)
+                    + (ys[i] - y) * (ys[i] - y) + (zs[i] - z) * (zs[i] - z));
+            final double cei = EARTH_ROTATION_RATE * approxRange / SPEED_OF_LIGHT;
+
+            final double deltaX = xs[i] + cei * ys[i] - x;
+            final double deltaY = ys[i] - cei * xs[i] - y;
+            final double deltaZ = zs[i] - z;
+            final double range = Math.sqrt(deltaX * deltaX + deltaY * deltaY
+                    + deltaZ * deltaZ);
+
+            final int row = i * UNKNOWNS;
+            mH[row] = -deltaX / range;
+            mH[row + 1] = -deltaY / range;
+            mH[row + 2] = -deltaZ / range;
+            mH[row + 3] = 1.0;
+            mResiduals[i] = pseudoRanges[i] - range - b;
+        }
+    }
+
+    /**
+     * Computes horizontal and vertical protection levels of remaining
+     * measurements.
+     *
+     * @param x         x coordinate of user position.
+     * @param y         y coordinate of user position.
+     * @param z         z coordinate of user position.
+     * @param threshold detection threshold of remaining measurements.
+     * @param result    instance where protection levels will be stored.
+     * @throws GNSSException if quantile of missed detection cannot be computed.
+     */
+    private void computeProtectionLevels(
+            final double x, final double y, final double z,
+            final double threshold, final GNSSIntegrityResult result)
+            throws GNSSException {
+        ECEFtoNEDPositionVelocityConverter.convertECEFtoNED(x, y, z,
+                0.0, 0.0, 0.0, mNedPosition, mNedVelocity);
+        final double sinLat = Math.sin(mNedPosition.getLatitude());
+        final double cosLat = Math.cos(mNedPosition.getLatitude());
+        final double sinLon = Math.sin(mNedPosition.getLongitude());
+        final double cosLon = Math.cos(mNedPosition.getLongitude());
+
+        double maxHorizontalSlope = 0.0;
+        double maxVerticalSlope = 0.0;
+        final int n = result.getNumberOfMeasurements();
+        for (int i = 0; i < n; i++) {
+            if (!mUsed[i]) {
+                continue;
+            }
+            final double redundancy = 1.0 - mCofactor.leverage(mH, i);
+            if (redundancy <= 0.0) {
+                continue;
+            }
+
+            // ECEF position sensitivity to the pseudo-range of this measurement
+            final double[] sensitivity = mCofactor.getProduct();
+            final double ax = sensitivity[0];
+            final double ay = sensitivity[1];
+            final double az = sensitivity[2];
+
+            // rotate to NED
+            final double an = -sinLat * cosLon * ax - sinLat * sinLon * ay
+                    + cosLat * az;
+            final double ae = -sinLon * ax + cosLon * ay;
+            final double ad = -cosLat * cosLon * ax - cosLat * sinLon * ay
+                    - sinLat * az;
+
+            final double sqrtRedundancy = Math.sqrt(redundancy);
+            maxHorizontalSlope = Math.max(maxHorizontalSlope,
+                    Math.sqrt(an * an + ae * ae) / sqrtRedundancy);
+            maxVerticalSlope = Math.max(maxVerticalSlope,
+                    Math.abs(ad) / sqrtRedundancy);
+        }
+
+        final double bias = mPseudoRangeStandardDeviation
+                * (Math.sqrt(threshold) + getMissedDetectionQuantile());
+        result.setProtectionLevels(maxHorizontalSlope * bias,
+                maxVerticalSlope * bias);
+    }
+
+    /**
+     * Gets detection threshold of the normalized sum of squared residuals for
+     * provided number of degrees of freedom.
+     * Thresholds are cached, since computing them is expensive.
+     *
+     * @param degreesOfFreedom number of degrees of freedom.
+     * @return detection threshold.
+     * @throws GNSSException if threshold cannot be computed.
+     */
+    private double getThreshold(final int degreesOfFreedom) throws GNSSException {
+        if (degreesOfFreedom >= mThresholds.length) {
+            mThresholds = Arrays.copyOf(mThresholds, degreesOfFreedom + 1);
+        }
+        if (mThresholds[degreesOfFreedom] <= 0.0) {
+            try {
+                mThresholds[degreesOfFreedom] = ChiSqDist.invcdf(
+                        1.0 - mProbabilityOfFalseAlarm, degreesOfFreedom);
+            } catch (final MaxIterationsExceededException e) {
+                throw new GNSSException(e);
+            }
+        }
+        return mThresholds[degreesOfFreedom];
+    }
+
+    /**
+     * Gets standard normal quantile of the probability of missed detection.
+     *
+     * @return standard normal quantile.
+     */
+    private double getMissedDetectionQuantile() {
+        if (Double.isNaN(mMissedDetectionQuantile)) {
+            mMissedDetectionQuantile = NormalDist.invcdf(
+                    1.0 - mProbabilityOfMissedDetection, 0.0, 1.0);
+        }
+        return mMissedDetectionQuantile;
+    }
+
+    /**
+     * Ensures that internal arrays can hold provided number of measurements.
+     *
+     * @param n number of measurements.
+     */
+    private void ensureCapacity(final int n) {
+        if (mResiduals.length < n) {
+            mH = new double[n * UNKNOWNS];
+            mResiduals = new double[n];
+            mUsed = new boolean[n];
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import java.util.Arrays;
+
+/**
+ * Contains the result of monitoring the integrity of a GNSS epoch with
+ * {@link GNSSIntegrityMonitor}.
+ * Instances of this class can be reused between epochs to avoid allocations.
+ */
+public class GNSSIntegrityResult {
+
+    /**
+     * Estimated position, velocity, clock offset and clock drift once faulty
+     * measurements have been excluded.
+     */
+    private final GNSSEstimation mEstimation = new GNSSEstimation();
+
+    /**
+     * Number of provided measurements.
+     */
+    private int mNumberOfMeasurements;
+
+    /**
+     * Positions within provided measurements of excluded measurements, in
+     * order of exclusion.
+     */
+    private int[] mExcluded = new int[0];
+
+    /**
+     * Number of excluded measurements.
+     */
+    private int mNumExcluded;
+
+    /**
+     * Indicates whether a fault was detected on provided measurements before
+     * any exclusion.
+     */
+    private boolean mFaultDetected;
+
+    /**
+     * Indicates whether enough redundant measurements were available to
+     * detect faults.
+     */
+    private boolean mAvailable;
+
+    /**
+     * Test statistic of the remaining measurements, computed as the sum of
+     * squared residuals normalized by the pseudo-range variance.
+     */
+    private double mTestStatistic = Double.NaN;
+
+    /**
+     * Detection threshold of the test statistic.
+     */
+    private double mThreshold = Double.NaN;
+
+    /**
+     * Horizontal protection level expressed in meters (m).
+     */
+    private double mHorizontalProtectionLevel = Double.NaN;
+
+    /**
+     * Vertical protection level expressed in meters (m).
+     */
+    private double mVerticalProtectionLevel = Double.NaN;
+
+    /**
+     * Gets estimated position, velocity, clock offset and clock drift once
+     * faulty measurements have been excluded.
+     *
+     * @return estimation.
+     */
+    public GNSSEstimation getEstimation() {
+        return mEstimation;
+    }
+
+    /**
+     * Gets number of provided measurements.
+     *
+     * @return number of provided measurements.
+     */
+    public int getNumberOfMeasurements() {
+        return mNumberOfMeasurements;
+    }
+
+    /**
+     * Gets number of measurements used for the final estimation.
+     *
+     * @return number of used measurements.
+     */
+    public int getNumberOfUsedMeasurements() {
+        return mNumberOfMeasurements - mNumExcluded;
+    }
+
+    /**
+     * Gets number of excluded measurements.
+     *
+     * @return number of excluded measurements.
+     */
+    public int getNumberOfExcludedMeasurements() {
+        return mNumExcluded;
+    }
+
+    /**
+     * Gets positions within provided measurements of excluded measurements,
+     * in order of exclusion.
+     *
+     * @return positions of excluded measurements.
+     */
+    public int[] getExcludedIndices() {
+        return Arrays.copyOf(mExcluded, mNumExcluded);
+    }
+
+    /**
+     * Indicates whether measurement at provided position was excluded.
+     *
+     * @param index position of a measurement.
+     * @return true if measurement was excluded, false otherwise.
+     */
+    public boolean isExcluded(final int index) {
+        for (int i = 0; i < mNumExcluded; i++) {
+            if (mExcluded[i] == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indicates whether a fault was detected on provided measurements before
+     * any exclusion.
+     *
+     * @return true if a fault was detected, false otherwise.
+     */
+    public boolean isFaultDetected() {
+        return mFaultDetected;
+    }
+
+    /**
+     * Indicates whether enough redundant measurements were available to
+     * detect faults.
+     * At least 5 measurements are required.
+     *
+     * @return true if fault detection was available, false otherwise.
+     */
+    public boolean isAvailable() {
+        return mAvailable;
+    }
+
+    /**
+     * Indicates whether remaining measurements are consistent, which
+     * happens when fault detection is available and test statistic does not
+     * exceed the detection threshold.
+     *
+     * @return true if integrity of estimation is assured, false otherwise.
+     */
+    public boolean isValid() {
+        return mAvailable && mTestStatistic <= mThreshold;
+    }
+
+    /**
+     * Gets test statistic of the remaining measurements, computed as the sum
+     * of squared residuals normalized by the pseudo-range variance.
+     *
+     * @return test statistic or NaN if not available.
+     */
+    public double getTestStatistic() {
+        return mTestStatistic;
+    }
+
+    /**
+     * Gets detection threshold of the test statistic.
+     *
+     * @return detection threshold or NaN if not available.
+     */
+    public double getThreshold() {
+        return mThreshold;
+    }
+
+    /**
+     * Gets horizontal protection level expressed in meters (m).
+     *
+     * @return horizontal protection level or NaN if not available.
+     */
+    public double getHorizontalProtectionLevel() {
+        return mHorizontalProtectionLevel;
+    }
+
+    /**
+     * Gets vertical protection level expressed in meters (m).
+     *
+     * @return vertical protection level or NaN if not available.
+     */
+    public double getVerticalProtectionLevel() {
+        return mVerticalProtectionLevel;
+    }
+
+    /**
+     * Resets this result for a new epoch.
+     *
+     * @param numberOfMeasurements number of provided measurements.
+     */
+    void reset(final int numberOfMeasurements) {
+        mNumberOfMeasurements = numberOfMeasurements;
+        mNumExcluded = 0;
+        mFaultDetected = false;
+        mAvailable = false;
+        mTestStatistic = Double.NaN;
+        mThreshold = Double.NaN;
+        mHorizontalProtectionLevel = Double.NaN;
+        mVerticalProtectionLevel = Double.NaN;
+    }
+
+    /**
+     * Adds an excluded measurement.
+     *
+     * @param index position of excluded measurement.
+     */
+    void addExcluded(final int index) {
+        if (mNumExcluded == mExcluded.length) {
+            mExcluded = Arrays.copyOf(mExcluded, Math.max(1, 2 * mExcluded.length));
+        }
+        mExcluded[mNumExcluded++] = index;
+    }
+
+    /**
+     * Specifies whether a fault was detected before any exclusion.
+     *
+     * @param faultDetected true if a fault was detected, false otherwise.
+     */
+    void setFaultDetected(final boolean faultDetected) {
+        mFaultDetected = faultDetected;
+    }
+
+    /**
+     * Specifies whether fault detection was available.
+     *
+     * @param available true if fault detection was available, false otherwise.
+     */
+    void setAvailable(final boolean available) {
+        mAvailable = available;
+    }
+
+    /**
+     * Sets test statistic and its detection threshold.
+     *
+     * @param testStatistic test statistic.
+     * @param threshold     detection threshold.
+     */
+    void setTestStatistic(final double testStatistic, final double threshold) {
+        mTestStatistic = testStatistic;
+        mThreshold = threshold;
+    }
+
+    /**
+     * Sets protection levels.
+     *
+     * @param horizontalProtectionLevel horizontal protection level.
+     * @param verticalProtectionLevel   vertical protection level.
+     */
+    void setProtectionLevels(final double horizontalProtectionLevel,
+                             final double verticalProtectionLevel) {
+        mHorizontalProtectionLevel = horizontalProtectionLevel;
+        mVerticalProtectionLevel = verticalProtectionLevel;
+    }
+}
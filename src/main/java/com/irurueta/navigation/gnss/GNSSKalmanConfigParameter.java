@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+/**
+ * Parameters of a GNSS Kalman filter configuration that can be tuned.
+ * All values are expressed in the units used by {@link GNSSKalmanConfig}.
+ */
+public enum GNSSKalmanConfigParameter {
+    /**
+     * Initial position uncertainty per axis expressed in meters (m).
+     */
+    INITIAL_POSITION_UNCERTAINTY,
+
+    /**
+     * Initial velocity uncertainty per axis expressed in meters per second (m/s).
+     */
+    INITIAL_VELOCITY_UNCERTAINTY,
+
+    /**
+     * Initial clock offset uncertainty expressed in meters (m).
+     */
+    INITIAL_CLOCK_OFFSET_UNCERTAINTY,
+
+    /**
+     * Initial clock drift uncertainty expressed in meters per second (m/s).
+     */
+    INITIAL_CLOCK_DRIFT_UNCERTAINTY,
+
+    /**
+     * Acceleration PSD (Power Spectral Density) per axis expressed in (m^2/s^3).
+     */
+    ACCELERATION_PSD,
+
+    /**
+     * Receiver clock frequency-drift PSD expressed in (m^2/s^3).
+     */
+    CLOCK_FREQUENCY_PSD,
+
+    /**
+     * Receiver clock phase-drift PSD expressed in (m^2/s).
+     */
+    CLOCK_PHASE_PSD,
+
+    /**
+     * Pseudo-range measurement noise SD (Standard Deviation) expressed in meters (m).
+     */
+    PSEUDO_RANGE_SD,
+
+    /**
+     * Pseudo-range rate measurement noise SD expressed in meters per second (m/s).
+     */
+    RANGE_RATE_SD
+}
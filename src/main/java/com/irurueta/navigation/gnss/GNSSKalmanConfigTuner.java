@@ -0,0 +1,641 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.frames.ECEFPosition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Tunes GNSS Kalman filter configuration parameters by replaying a preloaded
+ * log of measurements.
+ * Each configuration is scored either by the negative log-likelihood of the
+ * measurement innovations or, when the true trajectory is known, by the root
+ * mean square error of estimated positions. Many configurations are evaluated
+ * in parallel over the same log, which is shared by all threads and never
+ * modified, hence no measurement is copied or parsed more than once.
+ * Replaying a configuration is equivalent to updating a
+ * {@link GNSSKalmanFilteredEstimator} initialized with provided initial
+ * estimation with all epochs of the log, but measurement updates are
+ * processed by {@link GNSSKalmanUDEpochEstimator}, which does not require any
+ * matrix inversion and provides innovation likelihoods at no extra cost.
+ */
+public class GNSSKalmanConfigTuner {
+
+    /**
+     * Default initial factor by which parameters are multiplied or divided
+     * during coordinate descent.
+     */
+    public static final double DEFAULT_INITIAL_STEP_FACTOR = 4.0;
+
+    /**
+     * Default minimum step factor. Coordinate descent stops once step factor
+     * becomes smaller than this value.
+     */
+    public static final double DEFAULT_MIN_STEP_FACTOR = 1.05;
+
+    /**
+     * Default maximum number of sweeps over all tuned parameters during
+     * coordinate descent.
+     */
+    public static final int DEFAULT_MAX_SWEEPS = 20;
+
+    /**
+     * Number of candidate values evaluated on each side of current value of a
+     * parameter during coordinate descent.
+     */
+    private static final int LINE_SEARCH_STEPS = 2;
+
+    /**
+     * Measurements of each epoch of the log.
+     */
+    private final GNSSMeasurementBatch[] mMeasurements;
+
+    /**
+     * Timestamp of each epoch expressed in seconds (s).
+     */
+    private final double[] mTimestamps;
+
+    /**
+     * Estimation used to initialize the Kalman filter before the first epoch.
+     */
+    private final GNSSEstimation mInitialEstimation;
+
+    /**
+     * True ECEF coordinates of receiver position at each epoch stored
+     * consecutively, or null if true trajectory is unknown.
+     */
+    private final double[] mTruePositions;
+
+    /**
+     * Number of threads used to evaluate configurations.
+     */
+    private final int mNumberOfThreads;
+
+    /**
+     * Constructor.
+     * Uses as many threads as available processors.
+     *
+     * @param measurements      measurements of each epoch of the log.
+     * @param timestamps        timestamp of each epoch expressed in seconds (s).
+     * @param initialEstimation estimation used to initialize the Kalman filter
+     *                          before the first epoch.
+     * @throws IllegalArgumentException if log is empty, if provided arrays do not
+     *                                  have the same length or if timestamps are
+     *                                  not strictly increasing.
+     */
+    public GNSSKalmanConfigTuner(final GNSSMeasurementBatch[] measurements,
+                                 final double[] timestamps,
+                                 final GNSSEstimation initialEstimation) {
+        this(measurements, timestamps, initialEstimation, null);
+    }
+
+    /**
+     * Constructor.
+     * Uses as many threads as available processors.
+     *
+     * @param measurements      measurements of each epoch of the log.
+     * @param timestamps        timestamp of each epoch expressed in seconds (s).
+     * @param initialEstimation estimation used to initialize the Kalman filter
+     *                          before the first epoch.
+     * @param truePositions     true receiver position at each epoch or null if
+     *                          unknown.
+     * @throws IllegalArgumentException if log is empty, if provided arrays do not
+     *                                  have the same length or if timestamps are
+     *                                  not strictly increasing.
+     */
+    public GNSSKalmanConfigTuner(final GNSSMeasurementBatch[] measurements,
+                                 final double[] timestamps,
+                                 final GNSSEstimation initialEstimation,
+                                 final ECEFPosition[] truePositions) {
+        this(measurements, timestamps, initialEstimation, truePositions,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements      measurements of each epoch of the log.
+     * @param timestamps        timestamp of each epoch expressed in seconds (s).
+     * @param initialEstimation estimation used to initialize the Kalman filter
+     *                          before the first epoch.
+     * @param truePositions     true receiver position at each epoch or null if
+     *                          unknown.
+     * @param numberOfThreads   number of threads used to evaluate configurations.
+     * @throws IllegalArgumentException if log is empty, if provided arrays do not
+     *                                  have the same length, if timestamps are
+     *                                  not strictly increasing or if number of
+     *                                  threads is less than 1.
+     */
+    public GNSSKalmanConfigTuner(final GNSSMeasurementBatch[] measurements,
+                                 final double[] timestamps,
+                                 final GNSSEstimation initialEstimation,
+                                 final ECEFPosition[] truePositions,
+                                 final int numberOfThreads) {
+        final int numberOfEpochs = measurements.length;
+        if (numberOfEpochs == 0 || timestamps.length != numberOfEpochs
+                || (truePositions != null && truePositions.length != numberOfEpochs)
+                || numberOfThreads < 1) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < numberOfEpochs; i++) {
+            if (measurements[i] == null
+                    || (i > 0 && timestamps[i] <= timestamps[i - 1])) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        mMeasurements = measurements.clone();
+        mTimestamps = timestamps.clone();
+        mInitialEstimation = new GNSSEstimation(initialEstimation);
+        mNumberOfThreads = numberOfThreads;
+
+        if (truePositions != null) {
+            mTruePositions = new double[3 * numberOfEpochs];
+            for (int i = 0, pos = 0; i < numberOfEpochs; i++) {
+                final ECEFPosition position = truePositions[i];
+                mTruePositions[pos++] = position.getX();
+                mTruePositions[pos++] = position.getY();
+                mTruePositions[pos++] = position.getZ();
+            }
+        } else {
+            mTruePositions = null;
+        }
+    }
+
+    /**
+     * Gets number of epochs of the log.
+     *
+     * @return number of epochs of the log.
+     */
+    public int getNumberOfEpochs() {
+        return mMeasurements.length;
+    }
+
+    /**
+     * Gets number of threads used to evaluate configurations.
+     *
+     * @return number of threads used to evaluate configurations.
+     */
+    public int getNumberOfThreads() {
+        return mNumberOfThreads;
+    }
+
+    /**
+     * Indicates whether true receiver positions are available, and hence
+     * configurations can be scored by their position error.
+     *
+     * @return true if true receiver positions are available, false otherwise.
+     */
+    public boolean hasTruePositions() {
+        return mTruePositions != null;
+    }
+
+    /**
+     * Scores a single configuration by replaying the whole log.
+     * Lower scores are better.
+     *
+     * @param config    configuration to be scored.
+     * @param criterion criterion to be used as score.
+     * @return score of provided configuration.
+     * @throws IllegalArgumentException if position error is requested but true
+     *                                  positions are not available.
+     */
+    public double score(final GNSSKalmanConfig config,
+                        final GNSSKalmanConfigTuningCriterion criterion) {
+        checkCriterion(criterion);
+        return replay(config, criterion, new GNSSKalmanState(), new GNSSEstimation(),
+                new GNSSKalmanUDEpochEstimator.UpdateStep());
+    }
+
+    /**
+     * Scores many configurations in parallel.
+     * Lower scores are better.
+     *
+     * @param configs   configurations to be scored.
+     * @param criterion criterion to be used as score.
+     * @return score of each provided configuration.
+     * @throws IllegalArgumentException if position error is requested but true
+     *                                  positions are not available.
+     * @throws GNSSException            if evaluation fails or is interrupted.
+     */
+    public double[] score(final List<GNSSKalmanConfig> configs,
+                          final GNSSKalmanConfigTuningCriterion criterion)
+            throws GNSSException {
+        final double[] result = new double[configs.size()];
+        score(configs, criterion, result);
+        return result;
+    }
+
+    /**
+     * Scores many configurations in parallel.
+     * Lower scores are better.
+     *
+     * @param configs   configurations to be scored.
+     * @param criterion criterion to be used as score.
+     * @param result    array where score of each provided configuration will be
+     *                  stored.
+     * @throws IllegalArgumentException if position error is requested but true
+     *                                  positions are not available, or if result
+     *                                  array is shorter than the number of
+     *                                  configurations.
+     * @throws GNSSException            if evaluation fails or is interrupted.
+     */
+    public void score(final List<GNSSKalmanConfig> configs,
+                      final GNSSKalmanConfigTuningCriterion criterion,
+                      final double[] result) throws GNSSException {
+        checkCriterion(criterion);
+        if (result.length < configs.size()) {
+            throw new IllegalArgumentException();
+        }
+
+        GNSSParallelLoop.run(mNumberOfThreads, configs.size(),
+                createScorer(configs, criterion, result));
+    }
+
+    /**
+     * Evaluates in parallel all combinations of provided parameter values and
+     * finds the best one.
+     * Parameters not being tuned keep the values of provided base configuration.
+     *
+     * @param baseConfig configuration containing values of parameters not being
+     *                   tuned.
+     * @param parameters parameters to be tuned.
+     * @param values     candidate values of each parameter to be tuned.
+     * @param criterion  criterion to be minimized.
+     * @param result     instance where best configuration will be stored.
+     * @return score of best configuration.
+     * @throws IllegalArgumentException if no parameters are provided, if the
+     *                                  number of parameters and value arrays
+     *                                  differ, if any parameter has no candidate
+     *                                  values or if position error is requested
+     *                                  but true positions are not available.
+     * @throws GNSSException            if evaluation fails or is interrupted.
+     */
+    public double gridSearch(final GNSSKalmanConfig baseConfig,
+                             final GNSSKalmanConfigParameter[] parameters,
+                             final double[][] values,
+                             final GNSSKalmanConfigTuningCriterion criterion,
+                             final GNSSKalmanConfig result) throws GNSSException {
+        checkCriterion(criterion);
+        if (parameters.length == 0 || parameters.length != values.length) {
+            throw new IllegalArgumentException();
+        }
+        int numberOfCandidates = 1;
+        for (final double[] parameterValues : values) {
+            if (parameterValues.length == 0) {
+                throw new IllegalArgumentException();
+            }
+            numberOfCandidates *= parameterValues.length;
+        }
+
+        // enumerate all combinations, being the first parameter the one that
+        // changes faster
+        final List<GNSSKalmanConfig> candidates = new ArrayList<>(numberOfCandidates);
+        for (int c = 0; c < numberOfCandidates; c++) {
+            final GNSSKalmanConfig candidate = new GNSSKalmanConfig(baseConfig);
+            int index = c;
+            for (int p = 0; p < parameters.length; p++) {
+                final double[] parameterValues = values[p];
+                setParameter(candidate, parameters[p],
+                        parameterValues[index % parameterValues.length]);
+                index /= parameterValues.length;
+            }
+            candidates.add(candidate);
+        }
+
+        final double[] scores = score(candidates, criterion);
+        final int best = findBest(scores);
+        result.copyFrom(candidates.get(best));
+        return scores[best];
+    }
+
+    /**
+     * Finds the best configuration by coordinate descent using default step
+     * factors and maximum number of sweeps.
+     *
+     * @param initialConfig initial configuration.
+     * @param parameters    parameters to be tuned.
+     * @param criterion     criterion to be minimized.
+     * @param result        instance where best configuration will be stored.
+     * @return score of best configuration.
+     * @throws IllegalArgumentException if no parameters are provided or if
+     *                                  position error is requested but true
+     *                                  positions are not available.
+     * @throws GNSSException            if evaluation fails or is interrupted.
+     * @see #coordinateDescent(GNSSKalmanConfig, GNSSKalmanConfigParameter[], double,
+     * double, int, GNSSKalmanConfigTuningCriterion, GNSSKalmanConfig)
+     */
+    public double coordinateDescent(final GNSSKalmanConfig initialConfig,
+                                    final GNSSKalmanConfigParameter[] parameters,
+                                    final GNSSKalmanConfigTuningCriterion criterion,
+                                    final GNSSKalmanConfig result)
+            throws GNSSException {
+        return coordinateDescent(initialConfig, parameters,
+                DEFAULT_INITIAL_STEP_FACTOR, DEFAULT_MIN_STEP_FACTOR,
+                DEFAULT_MAX_SWEEPS, criterion, result);
+    }
+
+    /**
+     * Finds the best configuration by coordinate descent.
+     * Parameters are tuned one at a time. For each parameter, the candidate
+     * values obtained by multiplying and dividing its current value by one or
+     * two times the step factor are evaluated in parallel, and the best one is
+     * kept if it improves the score. Because steps are multiplicative, parameters
+     * keep their sign, and parameters having a zero value are never modified.
+     * Whenever a whole sweep over all parameters does not improve the score,
+     * the step factor is replaced by its square root.
+     *
+     * @param initialConfig     initial configuration.
+     * @param parameters        parameters to be tuned.
+     * @param initialStepFactor initial step factor.
+     * @param minStepFactor     minimum step factor. Descent stops once the step
+     *                          factor becomes smaller than this value.
+     * @param maxSweeps         maximum number of sweeps over all parameters.
+     * @param criterion         criterion to be minimized.
+     * @param result            instance where best configuration will be stored.
+     * @return score of best configuration.
+     * @throws IllegalArgumentException if no parameters are provided, if step
+     *                                  factors are not greater than 1, if maximum
+     *                                  number of sweeps is less than 1 or if
+     *                                  position error is requested but true
+     *                                  positions are not available.
+     * @throws GNSSException            if evaluation fails or is interrupted.
+     */
+    public double coordinateDescent(final GNSSKalmanConfig initialConfig,
+                                    final GNSSKalmanConfigParameter[] parameters,
+                                    final double initialStepFactor,
+                                    final double minStepFactor,
+                                    final int maxSweeps,
+                                    final GNSSKalmanConfigTuningCriterion criterion,
+                                    final GNSSKalmanConfig result)
+            throws GNSSException {
+        checkCriterion(criterion);
+        if (parameters.length == 0 || initialStepFactor <= 1.0
+                || minStepFactor <= 1.0 || maxSweeps < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        final GNSSKalmanConfig current = new GNSSKalmanConfig(initialConfig);
+        double bestScore = score(current, criterion);
+
+        final List<GNSSKalmanConfig> candidates = new ArrayList<>();
+        for (int k = 0; k < 2 * LINE_SEARCH_STEPS; k++) {
+            candidates.add(new GNSSKalmanConfig());
+        }
+        final double[] scores = new double[candidates.size()];
+        final GNSSParallelLoop.BodyFactory scorer = createScorer(candidates,
+                criterion, scores);
+
+        // worker threads are reused by all line searches
+        final int numWorkers = Math.min(mNumberOfThreads, candidates.size());
+        final ExecutorService executor = numWorkers > 1
+                ? GNSSParallelLoop.newExecutor(numWorkers) : null;
+        try {
+            double stepFactor = initialStepFactor;
+            for (int sweep = 0; sweep < maxSweeps && stepFactor >= minStepFactor;
+                 sweep++) {
+                boolean improved = false;
+                for (final GNSSKalmanConfigParameter parameter : parameters) {
+                    final double value = getParameter(current, parameter);
+                    if (value == 0.0) {
+                        continue;
+                    }
+
+                    double factor = 1.0;
+                    for (int k = 0; k < LINE_SEARCH_STEPS; k++) {
+                        factor *= stepFactor;
+
+                        final GNSSKalmanConfig larger = candidates.get(2 * k);
+                        larger.copyFrom(current);
+                        setParameter(larger, parameter, value * factor);
+
+                        final GNSSKalmanConfig smaller = candidates.get(2 * k + 1);
+                        smaller.copyFrom(current);
+                        setParameter(smaller, parameter, value / factor);
+                    }
+
+                    if (executor != null) {
+                        GNSSParallelLoop.run(executor, numWorkers,
+                                candidates.size(), scorer);
+                    } else {
+                        GNSSParallelLoop.run(1, candidates.size(), scorer);
+                    }
+                    final int best = findBest(scores);
+                    if (scores[best] < bestScore || (Double.isNaN(bestScore)
+                            && !Double.isNaN(scores[best]))) {
+                        bestScore = scores[best];
+                        current.copyFrom(candidates.get(best));
+                        improved = true;
+                    }
+                }
+
+                if (!improved) {
+                    stepFactor = Math.sqrt(stepFactor);
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
+        result.copyFrom(current);
+        return bestScore;
+    }
+
+    /**
+     * Gets value of a parameter of provided configuration.
+     *
+     * @param config    configuration to obtain value from.
+     * @param parameter parameter to be obtained.
+     * @return value of parameter.
+     */
+    public static double getParameter(final GNSSKalmanConfig config,
+                                      final GNSSKalmanConfigParameter parameter) {
+        switch (parameter) {
+            case INITIAL_POSITION_UNCERTAINTY:
+                return config.getInitialPositionUncertainty();
+            case INITIAL_VELOCITY_UNCERTAINTY:
+                return config.getInitialVelocityUncertainty();
+            case INITIAL_CLOCK_OFFSET_UNCERTAINTY:
+                return config.getInitialClockOffsetUncertainty();
+            case INITIAL_CLOCK_DRIFT_UNCERTAINTY:
+                return config.getInitialClockDriftUncertainty();
+            case ACCELERATION_PSD:
+                return config.getAccelerationPSD();
+            case CLOCK_FREQUENCY_PSD:
+                return config.getClockFrequencyPSD();
+            case CLOCK_PHASE_PSD:
+                return config.getClockPhasePSD();
+            case PSEUDO_RANGE_SD:
+                return config.getPseudoRangeSD();
+            case RANGE_RATE_SD:
+            default:
+                return config.getRangeRateSD();
+        }
+    }
+
+    /**
+     * Sets value of a parameter of provided configuration.
+     *
+     * @param config    configuration to be modified.
+     * @param parameter parameter to be set.
+     * @param value     value to be set.
+     */
+    public static void setParameter(final GNSSKalmanConfig config,
+                                    final GNSSKalmanConfigParameter parameter,
+                                    final double value) {
+        switch (parameter) {
+            case INITIAL_POSITION_UNCERTAINTY:
+                config.setInitialPositionUncertainty(value);
+                break;
+            case INITIAL_VELOCITY_UNCERTAINTY:
+                config.setInitialVelocityUncertainty(value);
+                break;
+            case INITIAL_CLOCK_OFFSET_UNCERTAINTY:
+                config.setInitialClockOffsetUncertainty(value);
+                break;
+            case INITIAL_CLOCK_DRIFT_UNCERTAINTY:
+                config.setInitialClockDriftUncertainty(value);
+                break;
+            case ACCELERATION_PSD:
+                config.setAccelerationPSD(value);
+                break;
+            case CLOCK_FREQUENCY_PSD:
+                config.setClockFrequencyPSD(value);
+                break;
+            case CLOCK_PHASE_PSD:
+                config.setClockPhasePSD(value);
+                break;
+            case PSEUDO_RANGE_SD:
+                config.setPseudoRangeSD(value);
+                break;
+            case RANGE_RATE_SD:
+            default:
+                config.setRangeRateSD(value);
+                break;
+        }
+    }
+
+    /**
+     * Replays the whole log with provided configuration.
+     *
+     * @param config     configuration to be used.
+     * @param criterion  criterion to be used as score.
+     * @param state      instance to be reused to store Kalman filter state.
+     * @param estimation instance to be reused to store GNSS estimation.
+     * @param step       instance to be reused to update Kalman filter state.
+     * @return score of provided configuration.
+     */
+    private double replay(final GNSSKalmanConfig config,
+                          final GNSSKalmanConfigTuningCriterion criterion,
+                          final GNSSKalmanState state,
+                          final GNSSEstimation estimation,
+                          final GNSSKalmanUDEpochEstimator.UpdateStep step) {
+        GNSSKalmanInitializer.initialize(mInitialEstimation, config, state);
+        state.getEstimation(estimation);
+        final double[] covariance = state.getPackedCovarianceBuffer();
+
+        double negativeLogLikelihood = 0.0;
+        double squaredError = 0.0;
+        for (int i = 0, pos = 0; i < mMeasurements.length; i++) {
+            final double propagationInterval = i > 0
+                    ? mTimestamps[i] - mTimestamps[i - 1] : 0.0;
+            negativeLogLikelihood += step.estimate(mMeasurements[i],
+                    propagationInterval, estimation, covariance, config,
+                    estimation, covariance);
+
+            if (mTruePositions != null) {
+                final double diffX = estimation.getX() - mTruePositions[pos++];
+                final double diffY = estimation.getY() - mTruePositions[pos++];
+                final double diffZ = estimation.getZ() - mTruePositions[pos++];
+                squaredError += diffX * diffX + diffY * diffY + diffZ * diffZ;
+            }
+        }
+
+        if (criterion == GNSSKalmanConfigTuningCriterion.POSITION_ERROR) {
+            return Math.sqrt(squaredError / mMeasurements.length);
+        } else {
+            return negativeLogLikelihood;
+        }
+    }
+
+    /**
+     * Creates the loop body scoring provided configurations, where each worker
+     * reuses its own Kalman state, estimation and update buffers while
+     * replaying the log.
+     *
+     * @param configs   configurations to be scored.
+     * @param criterion criterion to be used as score.
+     * @param result    array where score of each configuration will be stored.
+     * @return factory creating the loop body of each worker.
+     */
+    private GNSSParallelLoop.BodyFactory createScorer(
+            final List<GNSSKalmanConfig> configs,
+            final GNSSKalmanConfigTuningCriterion criterion,
+            final double[] result) {
+        return new GNSSParallelLoop.BodyFactory() {
+            @Override
+            public GNSSParallelLoop.Body create() {
+                final GNSSKalmanState state = new GNSSKalmanState();
+                final GNSSEstimation estimation = new GNSSEstimation();
+                final GNSSKalmanUDEpochEstimator.UpdateStep step =
+                        new GNSSKalmanUDEpochEstimator.UpdateStep();
+                return new GNSSParallelLoop.Body() {
+                    @Override
+                    public void run(final int index) {
+                        result[index] = replay(configs.get(index), criterion,
+                                state, estimation, step);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Ensures that provided criterion can be evaluated.
+     *
+     * @param criterion criterion to be checked.
+     * @throws IllegalArgumentException if position error is requested but true
+     *                                  positions are not available.
+     */
+    private void checkCriterion(final GNSSKalmanConfigTuningCriterion criterion) {
+        if (criterion == GNSSKalmanConfigTuningCriterion.POSITION_ERROR
+                && mTruePositions == null) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Finds position of lowest score. Scores that are not a number are never
+     * selected unless all of them are.
+     *
+     * @param scores scores to be checked.
+     * @return position of lowest score.
+     */
+    private static int findBest(final double[] scores) {
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] < scores[best] || Double.isNaN(scores[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -45,11 +45,37 @@ public class GNSSKalmanEpochEstimator {
      */
     public static final double EARTH_ROTATION_RATE = Constants.EARTH_ROTATION_RATE;
 
+    /**
+     * Default threshold on squared normalized innovations to reject measurements.
+     * This value is the quantile of the chi-square distribution with one degree
+     * of freedom for a probability of false rejection of 0.1%.
+     */
+    public static final double DEFAULT_INNOVATION_GATE_THRESHOLD = 10.827566170662733;
+
     /**
      * Number of rows and columns of transition and system noise covariance matrices.
      */
     private static final int MATRIX_SIZE = 8;
 
+    /**
+     * Indicates, for each row of the transition matrix, the column where
+     * propagation interval is located, or -1 if row is equal to the identity.
+     */
+    private static final int[] TRANSITION_SOURCES = {3, 4, 5, -1, -1, -1, 7, -1};
+
+    /**
+     * Gets the column of the transition matrix where propagation interval is
+     * located for provided row, since transition matrix only differs from the
+     * identity at (0, 3), (1, 4), (2, 5) and (6, 7).
+     *
+     * @param row row of transition matrix.
+     * @return column where propagation interval is located, or -1 if row is
+     * equal to the identity.
+     */
+    static int getTransitionSource(final int row) {
+        return TRANSITION_SOURCES[row];
+    }
+
     /**
      * Estimates the update of Kalman filter state and covariance matrix for a single
      * epoch.
@@ -150,6 +176,8 @@ public class GNSSKalmanEpochEstimator {
     /**
      * Estimates the update of Kalman filter state and covariance matrix for a single
      * epoch.
+     * Covariance is directly updated in packed form within provided result, hence
+     * provided result can be the same instance as provided previous state.
      *
      * @param measurements        satellite measurements data.
      * @param propagationInterval propagation interval expressed in seconds (s).
@@ -159,23 +187,25 @@ public class GNSSKalmanEpochEstimator {
      *                            calibration).
      * @param result              instance where updated Kalman filter state will be
      *                            stored.
-     * @throws AlgebraException if there are numerical instabilities.
+     * @throws IllegalArgumentException if previous state has no covariance.
+     * @throws AlgebraException         if there are numerical instabilities.
      */
     public static void estimate(final Collection<GNSSMeasurement> measurements,
                                 final double propagationInterval,
                                 final GNSSKalmanState previousState,
                                 final GNSSKalmanConfig config,
                                 final GNSSKalmanState result) throws AlgebraException {
+        if (!previousState.hasCovariance()) {
+            throw new IllegalArgumentException();
+        }
+
         final GNSSEstimation resultEstimation = new GNSSEstimation();
-        final Matrix resultCovariance = new Matrix(GNSSEstimation.NUM_PARAMETERS,
-                GNSSEstimation.NUM_PARAMETERS);
 
         estimate(measurements, propagationInterval, previousState.getEstimation(),
-                previousState.getCovariance(), config, resultEstimation,
-                resultCovariance);
+                previousState.getPackedCovarianceBuffer(), config, resultEstimation,
+                result.getPackedCovarianceBuffer());
 
         result.setEstimation(resultEstimation);
-        result.setCovariance(resultCovariance);
     }
 
     /**
@@ -196,7 +226,6 @@ public class GNSSKalmanEpochEstimator {
      *                                  8x8.
      * @throws AlgebraException         if there are numerical instabilities.
      */
-    @SuppressWarnings("DuplicatedCode")
     public static void estimate(final Collection<GNSSMeasurement> measurements,
                                 final double propagationInterval,
                                 final GNSSEstimation previousEstimation,
@@ -210,213 +239,791 @@ public class GNSSKalmanEpochEstimator {
             throw new IllegalArgumentException();
         }
 
-        // SYSTEM PROPAGATION PHASE
+        final double[] packedCovariance = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        GNSSKalmanState.pack(previousCovariance, packedCovariance);
 
-        // 1. Determine transition matrix using (9.147) and (9.150)
-        final Matrix phiMatrix = Matrix.identity(MATRIX_SIZE, MATRIX_SIZE);
-        phiMatrix.setElementAt(0, 3, propagationInterval);
-        phiMatrix.setElementAt(1, 4, propagationInterval);
-        phiMatrix.setElementAt(2, 5, propagationInterval);
-        phiMatrix.setElementAt(6, 7, propagationInterval);
+        estimate(measurements, propagationInterval, previousEstimation,
+                packedCovariance, config, updatedEstimation, packedCovariance);
 
-        // 2. Determine system noise covariance matrix using (9.152)
-        final double propagationInterval2 = propagationInterval * propagationInterval;
-        final double propagationInterval3 = propagationInterval2 * propagationInterval;
-        final double accelerationPSD = config.getAccelerationPSD();
-        final double clockFrequencyPSD = config.getClockFrequencyPSD();
-        final double clockPhasePSD = config.getClockPhasePSD();
+        GNSSKalmanState.unpack(packedCovariance, updatedCovariance);
+    }
 
-        final double value1 = accelerationPSD * propagationInterval3 / 3.0;
-        final double value2 = accelerationPSD * propagationInterval2 / 2.0;
-        final double value3 = accelerationPSD * propagationInterval;
-        final double value4 = clockFrequencyPSD * propagationInterval3 / 3.0 + clockPhasePSD * propagationInterval;
-        final double value5 = clockFrequencyPSD * propagationInterval2 / 2.0;
-        final double value6 = clockFrequencyPSD * propagationInterval;
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch using covariance matrices stored in packed form.
+     *
+     * @param measurements        satellite measurements data.
+     * @param propagationInterval propagation interval.
+     * @param previousEstimation  previous GNSS estimates.
+     * @param previousCovariance  upper triangular part of previous Kalman filter
+     *                            error covariance matrix stored in row-major
+     *                            packed order.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param updatedEstimation   instance where updated GNSS estimate will be stored
+     *                            after executing this method.
+     * @param updatedCovariance   array where upper triangular part of updated
+     *                            Kalman filter error covariance matrix will be
+     *                            stored in row-major packed order.
+     * @throws IllegalArgumentException if provided arrays do not have length 36.
+     * @throws AlgebraException         if there are numerical instabilities.
+     */
+    public static void estimate(final Collection<GNSSMeasurement> measurements,
+                                final Time propagationInterval,
+                                final GNSSEstimation previousEstimation,
+                                final double[] previousCovariance,
+                                final GNSSKalmanConfig config,
+                                final GNSSEstimation updatedEstimation,
+                                final double[] updatedCovariance) throws AlgebraException {
+        estimate(measurements, convertTime(propagationInterval), previousEstimation,
+                previousCovariance, config, updatedEstimation, updatedCovariance);
+    }
 
-        final Matrix qMatrix = new Matrix(MATRIX_SIZE, MATRIX_SIZE);
-        qMatrix.setElementAt(0, 0, value1);
-        qMatrix.setElementAt(1, 1, value1);
-        qMatrix.setElementAt(2, 2, value1);
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch using covariance matrices stored in packed form.
+     * Only the upper triangular part of covariance matrices is computed, so that
+     * updated covariance is always exactly symmetric.
+     * Provided previous and updated covariance arrays can be the same instance.
+     *
+     * @param measurements        satellite measurements data.
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param previousEstimation  previous GNSS estimates.
+     * @param previousCovariance  upper triangular part of previous Kalman filter
+     *                            error covariance matrix stored in row-major
+     *                            packed order.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param updatedEstimation   instance where updated GNSS estimate will be stored
+     *                            after executing this method.
+     * @param updatedCovariance   array where upper triangular part of updated
+     *                            Kalman filter error covariance matrix will be
+     *                            stored in row-major packed order.
+     * @throws IllegalArgumentException if provided arrays do not have length 36.
+     * @throws AlgebraException         if there are numerical instabilities.
+     */
+    public static void estimate(final Collection<GNSSMeasurement> measurements,
+                                final double propagationInterval,
+                                final GNSSEstimation previousEstimation,
+                                final double[] previousCovariance,
+                                final GNSSKalmanConfig config,
+                                final GNSSEstimation updatedEstimation,
+                                final double[] updatedCovariance) throws AlgebraException {
+        estimate(new GNSSMeasurementBatch(measurements), propagationInterval,
+                previousEstimation, previousCovariance, config, updatedEstimation,
+                updatedCovariance);
+    }
 
-        qMatrix.setElementAt(0, 3, value2);
-        qMatrix.setElementAt(1, 4, value2);
-        qMatrix.setElementAt(2, 5, value2);
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval.
+     * @param previousState       previous GNSS estimates and Kalman filter error
+     *                            covariance matrix.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param result              instance where updated Kalman filter state will be
+     *                            stored.
+     * @throws IllegalArgumentException if previous state has no covariance.
+     * @throws AlgebraException         if there are numerical instabilities.
+     */
+    public static void estimate(final GNSSMeasurementBatch measurements,
+                                final Time propagationInterval,
+                                final GNSSKalmanState previousState,
+                                final GNSSKalmanConfig config,
+                                final GNSSKalmanState result) throws AlgebraException {
+        estimate(measurements, convertTime(propagationInterval), previousState,
+                config, result);
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch.
+     * Covariance is directly updated in packed form within provided result, hence
+     * provided result can be the same instance as provided previous state.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param previousState       previous GNSS estimates and Kalman filter error
+     *                            covariance matrix.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param result              instance where updated Kalman filter state will be
+     *                            stored.
+     * @throws IllegalArgumentException if previous state has no covariance.
+     * @throws AlgebraException         if there are numerical instabilities.
+     */
+    public static void estimate(final GNSSMeasurementBatch measurements,
+                                final double propagationInterval,
+                                final GNSSKalmanState previousState,
+                                final GNSSKalmanConfig config,
+                                final GNSSKalmanState result) throws AlgebraException {
+        if (!previousState.hasCovariance()) {
+            throw new IllegalArgumentException();
+        }
 
-        qMatrix.setElementAt(3, 0, value2);
-        qMatrix.setElementAt(4, 1, value2);
-        qMatrix.setElementAt(5, 2, value2);
+        final GNSSEstimation resultEstimation = new GNSSEstimation();
 
-        qMatrix.setElementAt(3, 3, value3);
-        qMatrix.setElementAt(4, 4, value3);
-        qMatrix.setElementAt(5, 5, value3);
+        estimate(measurements, propagationInterval, previousState.getEstimation(),
+                previousState.getPackedCovarianceBuffer(), config, resultEstimation,
+                result.getPackedCovarianceBuffer());
 
-        qMatrix.setElementAt(6, 6, value4);
-        qMatrix.setElementAt(6, 7, value5);
-        qMatrix.setElementAt(7, 6, value5);
-        qMatrix.setElementAt(7, 7, value6);
+        result.setEstimation(resultEstimation);
+    }
 
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch using covariance matrices stored in packed form.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval.
+     * @param previousEstimation  previous GNSS estimates.
+     * @param previousCovariance  upper triangular part of previous Kalman filter
+     *                            error covariance matrix stored in row-major
+     *                            packed order.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param updatedEstimation   instance where updated GNSS estimate will be stored
+     *                            after executing this method.
+     * @param updatedCovariance   array where upper triangular part of updated
+     *                            Kalman filter error covariance matrix will be
+     *                            stored in row-major packed order.
+     * @throws IllegalArgumentException if provided arrays do not have length 36.
+     * @throws AlgebraException         if there are numerical instabilities.
+     */
+    public static void estimate(final GNSSMeasurementBatch measurements,
+                                final Time propagationInterval,
+                                final GNSSEstimation previousEstimation,
+                                final double[] previousCovariance,
+                                final GNSSKalmanConfig config,
+                                final GNSSEstimation updatedEstimation,
+                                final double[] updatedCovariance) throws AlgebraException {
+        estimate(measurements, convertTime(propagationInterval), previousEstimation,
+                previousCovariance, config, updatedEstimation, updatedCovariance);
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch using covariance matrices stored in packed form.
+     * Only the upper triangular part of covariance matrices is computed, so that
+     * updated covariance is always exactly symmetric.
+     * Provided previous and updated covariance arrays can be the same instance.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param previousEstimation  previous GNSS estimates.
+     * @param previousCovariance  upper triangular part of previous Kalman filter
+     *                            error covariance matrix stored in row-major
+     *                            packed order.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param updatedEstimation   instance where updated GNSS estimate will be stored
+     *                            after executing this method.
+     * @param updatedCovariance   array where upper triangular part of updated
+     *                            Kalman filter error covariance matrix will be
+     *                            stored in row-major packed order.
+     * @throws IllegalArgumentException if provided arrays do not have length 36.
+     * @throws AlgebraException         if there are numerical instabilities.
+     */
+    public static void estimate(final GNSSMeasurementBatch measurements,
+                                final double propagationInterval,
+                                final GNSSEstimation previousEstimation,
+                                final double[] previousCovariance,
+                                final GNSSKalmanConfig config,
+                                final GNSSEstimation updatedEstimation,
+                                final double[] updatedCovariance) throws AlgebraException {
+        estimate(measurements, propagationInterval, previousEstimation,
+                previousCovariance, config, Double.POSITIVE_INFINITY,
+                updatedEstimation, updatedCovariance, null);
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch, rejecting measurements whose innovations are not consistent with
+     * predicted state.
+     * Covariance is directly updated in packed form within provided result, hence
+     * provided result can be the same instance as provided previous state.
+     *
+     * @param measurements            satellite measurements data stored in
+     *                                primitive arrays.
+     * @param propagationInterval     propagation interval expressed in seconds (s).
+     * @param previousState           previous GNSS estimates and Kalman filter
+     *                                error covariance matrix.
+     * @param config                  system configuration (usually obtained
+     *                                through calibration).
+     * @param innovationGateThreshold threshold on squared normalized innovations
+     *                                to reject measurements. Normalized innovations
+     *                                follow a chi-square distribution with one
+     *                                degree of freedom.
+     * @param result                  instance where updated Kalman filter state
+     *                                will be stored.
+     * @param rejected                array where rejection of each innovation will
+     *                                be stored, or null if not needed. Positions
+     *                                0 to n - 1 contain rejected pseudo-ranges and
+     *                                positions n to 2n - 1 contain rejected
+     *                                pseudo-range rates, where n is the number of
+     *                                measurements.
+     * @return number of rejected innovations.
+     * @throws IllegalArgumentException if previous state has no covariance, if
+     *                                  threshold is not positive or if provided
+     *                                  rejected array is too short.
+     * @throws AlgebraException         if there are numerical instabilities.
+     */
+    public static int estimate(final GNSSMeasurementBatch measurements,
+                               final double propagationInterval,
+                               final GNSSKalmanState previousState,
+                               final GNSSKalmanConfig config,
+                               final double innovationGateThreshold,
+                               final GNSSKalmanState result,
+                               final boolean[] rejected) throws AlgebraException {
+        if (!previousState.hasCovariance()) {
+            throw new IllegalArgumentException();
+        }
+
+        final GNSSEstimation resultEstimation = new GNSSEstimation();
+
+        final int numberOfRejected = estimate(measurements, propagationInterval,
+                previousState.getEstimation(),
+                previousState.getPackedCovarianceBuffer(), config,
+                innovationGateThreshold, resultEstimation,
+                result.getPackedCovarianceBuffer(), rejected);
+
+        result.setEstimation(resultEstimation);
+        return numberOfRejected;
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch using covariance matrices stored in packed form, rejecting
+     * measurements whose innovations are not consistent with predicted state.
+     * Each innovation is normalized by its variance, which is the corresponding
+     * diagonal element of innovation covariance H * P * H^T + R. Innovations
+     * whose squared normalized value exceeds provided threshold are rejected
+     * before computing Kalman gain, so that a single faulty satellite cannot
+     * corrupt the state.
+     * If all innovations are rejected, updated state is equal to the propagated
+     * one.
+     * Only the upper triangular part of covariance matrices is computed, so that
+     * updated covariance is always exactly symmetric.
+     * Provided previous and updated covariance arrays can be the same instance.
+     *
+     * @param measurements            satellite measurements data stored in
+     *                                primitive arrays.
+     * @param propagationInterval     propagation interval expressed in seconds (s).
+     * @param previousEstimation      previous GNSS estimates.
+     * @param previousCovariance      upper triangular part of previous Kalman
+     *                                filter error covariance matrix stored in
+     *                                row-major packed order.
+     * @param config                  system configuration (usually obtained
+     *                                through calibration).
+     * @param innovationGateThreshold threshold on squared normalized innovations
+     *                                to reject measurements. Normalized innovations
+     *                                follow a chi-square distribution with one
+     *                                degree of freedom.
+     * @param updatedEstimation       instance where updated GNSS estimate will be
+     *                                stored after executing this method.
+     * @param updatedCovariance       array where upper triangular part of updated
+     *                                Kalman filter error covariance matrix will be
+     *                                stored in row-major packed order.
+     * @param rejected                array where rejection of each innovation will
+     *                                be stored, or null if not needed. Positions
+     *                                0 to n - 1 contain rejected pseudo-ranges and
+     *                                positions n to 2n - 1 contain rejected
+     *                                pseudo-range rates, where n is the number of
+     *                                measurements.
+     * @return number of rejected innovations.
+     * @throws IllegalArgumentException if provided covariance arrays do not have
+     *                                  length 36, if threshold is not positive or
+     *                                  if provided rejected array is too short.
+     * @throws AlgebraException         if there are numerical instabilities.
+     */
+    public static int estimate(final GNSSMeasurementBatch measurements,
+                               final double propagationInterval,
+                               final GNSSEstimation previousEstimation,
+                               final double[] previousCovariance,
+                               final GNSSKalmanConfig config,
+                               final double innovationGateThreshold,
+                               final GNSSEstimation updatedEstimation,
+                               final double[] updatedCovariance,
+                               final boolean[] rejected) throws AlgebraException {
+
+        if (previousCovariance.length != GNSSKalmanState.PACKED_COVARIANCE_LENGTH ||
+                updatedCovariance.length != GNSSKalmanState.PACKED_COVARIANCE_LENGTH) {
+            throw new IllegalArgumentException();
+        }
+        if (innovationGateThreshold <= 0.0) {
+            throw new IllegalArgumentException();
+        }
+        final int numberOfMeasurements = measurements.getSize();
+        final int numberOfRows = 2 * numberOfMeasurements;
+        if (rejected != null && rejected.length < numberOfRows) {
+            throw new IllegalArgumentException();
+        }
+
+        // SYSTEM PROPAGATION PHASE
+
+        // 1. Transition matrix defined in (9.147) and (9.150) is the identity
+        // except for the propagation interval at (0, 3), (1, 4), (2, 5) and (6, 7),
+        // hence it is not explicitly built.
 
         // 3. Propagate state estimates using (3.14)
-        final Matrix xEstOld = previousEstimation.asMatrix();
-        final Matrix xEstPropagated = phiMatrix.multiplyAndReturnNew(xEstOld);
-        final Matrix propagatedVelocity = xEstPropagated.getSubmatrix(
-                3, 0, 5, 0);
-        final Matrix propagatedPosition = xEstPropagated.getSubmatrix(
-                0, 0, 2, 0);
+        final double[] x = previousEstimation.asArray();
+        x[0] += propagationInterval * x[3];
+        x[1] += propagationInterval * x[4];
+        x[2] += propagationInterval * x[5];
+        x[6] += propagationInterval * x[7];
 
         // 4. Propagate state estimation error covariance matrix using (3.15)
-        final Matrix pMatrixPropagated = phiMatrix.multiplyAndReturnNew(previousCovariance);
-        phiMatrix.transpose();
-        pMatrixPropagated.multiply(phiMatrix);
-        pMatrixPropagated.add(qMatrix);
+        // and (9.152)
+        final double[] propagatedCovariance =
+                new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        propagateCovariance(previousCovariance, propagationInterval, config,
+                propagatedCovariance);
+
+        final double[] p = new double[MATRIX_SIZE * MATRIX_SIZE];
+        int packedPos = 0;
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            for (int j = i; j < MATRIX_SIZE; j++) {
+                final double value = propagatedCovariance[packedPos++];
+                p[i * MATRIX_SIZE + j] = value;
+                p[j * MATRIX_SIZE + i] = value;
+            }
+        }
 
         // MEASUREMENT UPDATE PHASE
 
-        // Skew symmetric matrix of Earth rate
-        final Matrix omegaIe = Utils.skewMatrix(new double[]{0.0, 0.0, EARTH_ROTATION_RATE});
-
-        final int numberOfMeasurements = measurements.size();
-        final Matrix uAseT = new Matrix(numberOfMeasurements, 3);
-        final Matrix predMeas = new Matrix(numberOfMeasurements, 2);
-
-        final Matrix cei = Matrix.identity(CoordinateTransformation.ROWS,
-                CoordinateTransformation.COLS);
-        final Matrix satellitePosition = new Matrix(CoordinateTransformation.ROWS, 1);
-        final Matrix satelliteVelocity = new Matrix(CoordinateTransformation.ROWS, 1);
-        final Matrix deltaR = new Matrix(CoordinateTransformation.ROWS, 1);
-        final Matrix tmp1 = new Matrix(CoordinateTransformation.ROWS, 1);
-        final Matrix tmp2 = new Matrix(CoordinateTransformation.ROWS, 1);
-        final Matrix tmp3 = new Matrix(CoordinateTransformation.ROWS, 1);
-        final Matrix tmp4 = new Matrix(CoordinateTransformation.ROWS, 1);
-        final Matrix tmp5 = new Matrix(CoordinateTransformation.ROWS, 1);
-        final Matrix tmp6 = new Matrix(CoordinateTransformation.ROWS, 1);
-        final Matrix tmp7 = new Matrix(1, CoordinateTransformation.ROWS);
+        final double[] uAseT = new double[CoordinateTransformation.ROWS * numberOfMeasurements];
+        final double[] deltaZ = new double[numberOfRows];
+        computeInnovations(measurements, x, uAseT, deltaZ);
 
-        // Loop measurements
-        int j = 0;
-        for (final GNSSMeasurement measurement : measurements) {
-            // Predict approx range
-            final double measX = measurement.getX();
-            final double measY = measurement.getY();
-            final double measZ = measurement.getZ();
+        final double pseudoRangeSD = config.getPseudoRangeSD();
+        final double pseudoRangeSD2 = pseudoRangeSD * pseudoRangeSD;
+        final double rangeRateSD = config.getRangeRateSD();
+        final double rangeRateSD2 = rangeRateSD * rangeRateSD;
 
-            final double deltaX = measX - xEstPropagated.getElementAtIndex(0);
-            final double deltaY = measY - xEstPropagated.getElementAtIndex(1);
-            final double deltaZ = measZ - xEstPropagated.getElementAtIndex(2);
-            final double approxRange = Math.sqrt(deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ);
+        // Gate innovations normalized by the diagonal of innovation covariance
+        // H * P * H^T + R. Since each row of H only contains a line of sight and
+        // a one for a clock term, each diagonal element is directly computed
+        // from P, so that rejected innovations never reach the gain computation
+        final int[] accepted = new int[numberOfRows];
+        int numberOfAccepted = 0;
+        for (int a = 0; a < numberOfRows; a++) {
+            boolean reject = false;
+            if (innovationGateThreshold != Double.POSITIVE_INFINITY) {
+                final boolean isPseudoRange = a < numberOfMeasurements;
+                final int pos = CoordinateTransformation.ROWS * (isPseudoRange ?
+                        a : a - numberOfMeasurements);
+                final int offset = isPseudoRange ? 0 : 3;
+                final int clockIndex = isPseudoRange ? 6 : 7;
+                final double uaseX = uAseT[pos];
+                final double uaseY = uAseT[pos + 1];
+                final double uaseZ = uAseT[pos + 2];
 
-            // Calculate frame rotation during signal transit time using (8.36)
-            final double ceiValue = EARTH_ROTATION_RATE * approxRange / SPEED_OF_LIGHT;
-            cei.setElementAt(0, 1, ceiValue);
-            cei.setElementAt(1, 0, -ceiValue);
+                final int row0 = offset * MATRIX_SIZE;
+                final int row1 = row0 + MATRIX_SIZE;
+                final int row2 = row1 + MATRIX_SIZE;
+                final double pu0 = p[row0 + offset] * uaseX
+                        + p[row0 + offset + 1] * uaseY + p[row0 + offset + 2] * uaseZ;
+                final double pu1 = p[row1 + offset] * uaseX
+                        + p[row1 + offset + 1] * uaseY + p[row1 + offset + 2] * uaseZ;
+                final double pu2 = p[row2 + offset] * uaseX
+                        + p[row2 + offset + 1] * uaseY + p[row2 + offset + 2] * uaseZ;
+                final double variance = uaseX * pu0 + uaseY * pu1 + uaseZ * pu2
+                        - 2.0 * (uaseX * p[row0 + clockIndex]
+                        + uaseY * p[row1 + clockIndex] + uaseZ * p[row2 + clockIndex])
+                        + p[clockIndex * MATRIX_SIZE + clockIndex]
+                        + (isPseudoRange ? pseudoRangeSD2 : rangeRateSD2);
 
-            // Predict pseudo-range using (9.165)
-            satellitePosition.setElementAtIndex(0, measX);
-            satellitePosition.setElementAtIndex(1, measY);
-            satellitePosition.setElementAtIndex(2, measZ);
-
-            cei.multiply(satellitePosition, deltaR);
-            for (int i = 0; i < CoordinateTransformation.ROWS; i++) {
-                deltaR.setElementAtIndex(i, deltaR.getElementAtIndex(i)
-                        - xEstPropagated.getElementAtIndex(i));
+                final double innovation = deltaZ[a];
+                reject = innovation * innovation > innovationGateThreshold * variance;
             }
-            final double range = Utils.normF(deltaR);
 
-            predMeas.setElementAt(j, 0, range
-                    + xEstPropagated.getElementAtIndex(6));
-
-            // Predict line of sight
-            for (int i = 0; i < CoordinateTransformation.ROWS; i++) {
-                uAseT.setElementAt(j, i, deltaR.getElementAtIndex(i) / range);
+            if (rejected != null) {
+                rejected[a] = reject;
             }
+            if (!reject) {
+                accepted[numberOfAccepted++] = a;
+            }
+        }
 
-            // Predict pseudo-range rate using (9.165)
-            satelliteVelocity.setElementAtIndex(0, measurement.getVx());
-            satelliteVelocity.setElementAtIndex(1, measurement.getVy());
-            satelliteVelocity.setElementAtIndex(2, measurement.getVz());
+        if (numberOfAccepted == 0) {
+            // no measurement update is possible, keep propagated state
+            updatedEstimation.fromArray(x);
+            System.arraycopy(propagatedCovariance, 0, updatedCovariance, 0,
+                    propagatedCovariance.length);
+            return numberOfRows;
+        }
 
-            omegaIe.multiply(satellitePosition, tmp1);
-            satelliteVelocity.add(tmp1, tmp2);
-            cei.multiply(tmp2, tmp3);
+        // 5. Measurement matrix H defined in (9.163) only contains line of sight
+        // components and ones for clock terms, hence P * H^T is directly computed
+        // for accepted innovations
+        final Matrix pht = new Matrix(MATRIX_SIZE, numberOfAccepted);
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            final int row = i * MATRIX_SIZE;
+            for (int b = 0; b < numberOfAccepted; b++) {
+                final int a = accepted[b];
+                final boolean isPseudoRange = a < numberOfMeasurements;
+                final int pos = CoordinateTransformation.ROWS * (isPseudoRange ?
+                        a : a - numberOfMeasurements);
+                final double uaseX = uAseT[pos];
+                final double uaseY = uAseT[pos + 1];
+                final double uaseZ = uAseT[pos + 2];
 
-            omegaIe.multiply(propagatedPosition, tmp4);
-            propagatedVelocity.add(tmp4, tmp6);
+                if (isPseudoRange) {
+                    pht.setElementAt(i, b, p[row + 6] - p[row] * uaseX
+                            - p[row + 1] * uaseY - p[row + 2] * uaseZ);
+                } else {
+                    pht.setElementAt(i, b, p[row + 7] - p[row + 3] * uaseX
+                            - p[row + 4] * uaseY - p[row + 5] * uaseZ);
+                }
+            }
+        }
 
-            tmp3.subtract(tmp6, tmp5);
+        // 6. Set-up innovation covariance H * P * H^T + R, assuming all measurements
+        // are independent and have equal variance for a given measurement type.
+        // Only upper triangle is computed, since it is symmetric
+        final Matrix s = new Matrix(numberOfAccepted, numberOfAccepted);
+        for (int a = 0; a < numberOfAccepted; a++) {
+            final int row = accepted[a];
+            final boolean isPseudoRange = row < numberOfMeasurements;
+            final int pos = CoordinateTransformation.ROWS * (isPseudoRange ?
+                    row : row - numberOfMeasurements);
+            final int offset = isPseudoRange ? 0 : 3;
+            final int clockIndex = isPseudoRange ? 6 : 7;
+            final double uaseX = uAseT[pos];
+            final double uaseY = uAseT[pos + 1];
+            final double uaseZ = uAseT[pos + 2];
 
-            uAseT.getSubmatrix(j, 0, j, 2, tmp7);
+            for (int b = a; b < numberOfAccepted; b++) {
+                final double value = pht.getElementAt(clockIndex, b)
+                        - uaseX * pht.getElementAt(offset, b)
+                        - uaseY * pht.getElementAt(offset + 1, b)
+                        - uaseZ * pht.getElementAt(offset + 2, b);
+                s.setElementAt(a, b, value);
+                s.setElementAt(b, a, value);
+            }
 
-            final double rangeRate = Utils.dotProduct(tmp7, tmp5);
+            s.setElementAt(a, a, s.getElementAt(a, a)
+                    + (isPseudoRange ? pseudoRangeSD2 : rangeRateSD2));
+        }
 
-            predMeas.setElementAt(j, 1,
-                    rangeRate + xEstPropagated.getElementAtIndex(7));
+        // 7. Calculate Kalman gain using (3.21)
+        final Matrix k = pht.multiplyAndReturnNew(Utils.inverse(s));
 
-            j++;
+        // 9. Update state estimates using (3.24)
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            double value = 0.0;
+            for (int b = 0; b < numberOfAccepted; b++) {
+                value += k.getElementAt(i, b) * deltaZ[accepted[b]];
+            }
+            x[i] += value;
         }
 
-        // 5. Set-up measurement matrix using (9.163)
-        final Matrix h = new Matrix(2 * numberOfMeasurements, GNSSEstimation.NUM_PARAMETERS);
-        for (int j1 = 0, j2 = numberOfMeasurements; j1 < numberOfMeasurements; j1++, j2++) {
-            for (int i1 = 0, i2 = 3; i1 < CoordinateTransformation.ROWS; i1++, i2++) {
-                final double value = -uAseT.getElementAt(j1, i1);
+        // x now contains updated state
+        updatedEstimation.fromArray(x);
 
-                h.setElementAt(j1, i1, value);
-                h.setElementAt(j2, i2, value);
+        // 10. Update state estimation error covariance matrix using (3.25),
+        // noticing that K * H * P = K * (P * H^T)^T, and computing only the upper
+        // triangle so that result is exactly symmetric
+        int pos = 0;
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            for (int j1 = i; j1 < MATRIX_SIZE; j1++) {
+                double value = 0.0;
+                for (int b = 0; b < numberOfAccepted; b++) {
+                    value += k.getElementAt(i, b) * pht.getElementAt(j1, b);
+                }
+                updatedCovariance[pos++] = p[i * MATRIX_SIZE + j1] - value;
             }
-            h.setElementAt(j1, 6, 1.0);
-            h.setElementAt(j2, 7, 1.0);
         }
 
-        // 6. Set-up measurement noise covariance matrix assuming all measurements are independent
-        // and have equal variance for a given measurement type
-        final double pseudoRangeSD = config.getPseudoRangeSD();
-        final double pseudoRangeSD2 = pseudoRangeSD * pseudoRangeSD;
-        final double rangeRateSD = config.getRangeRateSD();
-        final double rangeRateSD2 = rangeRateSD * rangeRateSD;
-        final Matrix r = new Matrix(2 * numberOfMeasurements, 2 * numberOfMeasurements);
-        for (int i1 = 0, i2 = numberOfMeasurements; i1 < numberOfMeasurements; i1++, i2++) {
-            r.setElementAt(i1, i1, pseudoRangeSD2);
-            r.setElementAt(i2, i2, rangeRateSD2);
+        return numberOfRows - numberOfAccepted;
+    }
+
+    /**
+     * Predicts Kalman filter state after provided propagation interval, without
+     * applying any measurement update (i.e. only the system propagation phase is
+     * executed).
+     * This method does not allocate any memory, hence it is suitable to obtain
+     * high rate estimations between GNSS epochs.
+     * Provided previous and predicted estimations can be the same instance.
+     *
+     * @param propagationInterval propagation interval.
+     * @param previousEstimation  previous GNSS estimates.
+     * @param predictedEstimation instance where predicted GNSS estimate will be
+     *                            stored.
+     */
+    public static void predict(final Time propagationInterval,
+                               final GNSSEstimation previousEstimation,
+                               final GNSSEstimation predictedEstimation) {
+        predict(convertTime(propagationInterval), previousEstimation,
+                predictedEstimation);
+    }
+
+    /**
+     * Predicts Kalman filter state after provided propagation interval, without
+     * applying any measurement update (i.e. only the system propagation phase is
+     * executed).
+     * This method does not allocate any memory, hence it is suitable to obtain
+     * high rate estimations between GNSS epochs.
+     * Provided previous and predicted estimations can be the same instance.
+     *
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param previousEstimation  previous GNSS estimates.
+     * @param predictedEstimation instance where predicted GNSS estimate will be
+     *                            stored.
+     */
+    public static void predict(final double propagationInterval,
+                               final GNSSEstimation previousEstimation,
+                               final GNSSEstimation predictedEstimation) {
+        // Propagate state estimates using (3.14), where transition matrix is
+        // defined in (9.147) and (9.150)
+        final double vx = previousEstimation.getVx();
+        final double vy = previousEstimation.getVy();
+        final double vz = previousEstimation.getVz();
+        final double clockDrift = previousEstimation.getClockDrift();
+
+        final double x = previousEstimation.getX() + propagationInterval * vx;
+        final double y = previousEstimation.getY() + propagationInterval * vy;
+        final double z = previousEstimation.getZ() + propagationInterval * vz;
+        final double clockOffset = previousEstimation.getClockOffset()
+                + propagationInterval * clockDrift;
+
+        predictedEstimation.setPositionCoordinates(x, y, z);
+        predictedEstimation.setVelocityCoordinates(vx, vy, vz);
+        predictedEstimation.setClockOffset(clockOffset);
+        predictedEstimation.setClockDrift(clockDrift);
+    }
+
+    /**
+     * Predicts Kalman filter state and error covariance matrix after provided
+     * propagation interval, without applying any measurement update (i.e. only
+     * the system propagation phase is executed).
+     * This method does not allocate any memory, hence it is suitable to obtain
+     * high rate estimations between GNSS epochs.
+     *
+     * @param propagationInterval propagation interval.
+     * @param previousEstimation  previous GNSS estimates.
+     * @param previousCovariance  upper triangular part of previous Kalman filter
+     *                            error covariance matrix stored in row-major
+     *                            packed order.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param predictedEstimation instance where predicted GNSS estimate will be
+     *                            stored.
+     * @param predictedCovariance array where upper triangular part of predicted
+     *                            Kalman filter error covariance matrix will be
+     *                            stored in row-major packed order. Must be a
+     *                            different instance than previous covariance.
+     * @throws IllegalArgumentException if provided arrays do not have length 36 or
+     *                                  if they are the same instance.
+     */
+    public static void predict(final Time propagationInterval,
+                               final GNSSEstimation previousEstimation,
+                               final double[] previousCovariance,
+                               final GNSSKalmanConfig config,
+                               final GNSSEstimation predictedEstimation,
+                               final double[] predictedCovariance) {
+        predict(convertTime(propagationInterval), previousEstimation,
+                previousCovariance, config, predictedEstimation, predictedCovariance);
+    }
+
+    /**
+     * Predicts Kalman filter state and error covariance matrix after provided
+     * propagation interval, without applying any measurement update (i.e. only
+     * the system propagation phase is executed).
+     * This method does not allocate any memory, hence it is suitable to obtain
+     * high rate estimations between GNSS epochs.
+     *
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param previousEstimation  previous GNSS estimates.
+     * @param previousCovariance  upper triangular part of previous Kalman filter
+     *                            error covariance matrix stored in row-major
+     *                            packed order.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param predictedEstimation instance where predicted GNSS estimate will be
+     *                            stored.
+     * @param predictedCovariance array where upper triangular part of predicted
+     *                            Kalman filter error covariance matrix will be
+     *                            stored in row-major packed order. Must be a
+     *                            different instance than previous covariance.
+     * @throws IllegalArgumentException if provided arrays do not have length 36 or
+     *                                  if they are the same instance.
+     */
+    public static void predict(final double propagationInterval,
+                               final GNSSEstimation previousEstimation,
+                               final double[] previousCovariance,
+                               final GNSSKalmanConfig config,
+                               final GNSSEstimation predictedEstimation,
+                               final double[] predictedCovariance) {
+        if (previousCovariance.length != GNSSKalmanState.PACKED_COVARIANCE_LENGTH ||
+                predictedCovariance.length != GNSSKalmanState.PACKED_COVARIANCE_LENGTH ||
+                previousCovariance == predictedCovariance) {
+            throw new IllegalArgumentException();
         }
 
-        // 7. Calculate Kalman gain using (3.21)
-        final Matrix hTransposed = h.transposeAndReturnNew();
-        final Matrix tmp8 = h.multiplyAndReturnNew(
-                pMatrixPropagated.multiplyAndReturnNew(hTransposed));
-        tmp8.add(r);
-        final Matrix tmp9 = Utils.inverse(tmp8);
-        final Matrix k = pMatrixPropagated.multiplyAndReturnNew(hTransposed);
-        k.multiply(tmp9);
-
-        // 8. Formulate measurement innovations using (3.88)
-        final Matrix deltaZ = new Matrix(2 * numberOfMeasurements, 1);
-        int i1 = 0;
-        int i2 = numberOfMeasurements;
-        for (final GNSSMeasurement measurement : measurements) {
-            deltaZ.setElementAtIndex(i1, measurement.getPseudoRange()
-                    - predMeas.getElementAt(i1, 0));
-            deltaZ.setElementAtIndex(i2, measurement.getPseudoRate()
-                    - predMeas.getElementAt(i1, 1));
-            i1++;
-            i2++;
+        predict(propagationInterval, previousEstimation, predictedEstimation);
+        propagateCovariance(previousCovariance, propagationInterval, config,
+                predictedCovariance);
+    }
+
+    /**
+     * Computes pseudo-range and pseudo-range rate innovations of provided
+     * measurements with respect to predicted state, along with the line of sight
+     * from user to each satellite.
+     *
+     * @param measurements satellite measurements data stored in primitive arrays.
+     * @param x            predicted state containing position, velocity, clock
+     *                     offset and clock drift.
+     * @param uAseT        array where line of sight of each measurement will be
+     *                     stored consecutively. Must have length 3n, where n is
+     *                     the number of measurements.
+     * @param deltaZ       array where innovations will be stored. Positions 0 to
+     *                     n - 1 contain pseudo-range innovations and positions n
+     *                     to 2n - 1 contain pseudo-range rate innovations.
+     */
+    static void computeInnovations(final GNSSMeasurementBatch measurements,
+                                   final double[] x, final double[] uAseT,
+                                   final double[] deltaZ) {
+        final int numberOfMeasurements = measurements.getSize();
+        final double[] xs = measurements.getXs();
+        final double[] ys = measurements.getYs();
+        final double[] zs = measurements.getZs();
+        final double[] vxs = measurements.getVxs();
+        final double[] vys = measurements.getVys();
+        final double[] vzs = measurements.getVzs();
+        final double[] pseudoRanges = measurements.getPseudoRanges();
+        final double[] pseudoRates = measurements.getPseudoRates();
+
+        // Loop measurements
+        for (int j = 0; j < numberOfMeasurements; j++) {
+            // Predict approx range
+            final double measX = xs[j];
+            final double measY = ys[j];
+            final double measZ = zs[j];
+
+            final double approxDeltaX = measX - x[0];
+            final double approxDeltaY = measY - x[1];
+            final double approxDeltaZ = measZ - x[2];
+            final double approxRange = Math.sqrt(approxDeltaX * approxDeltaX
+                    + approxDeltaY * approxDeltaY + approxDeltaZ * approxDeltaZ);
+
+            // Calculate frame rotation during signal transit time using (8.36)
+            final double ceiValue = EARTH_ROTATION_RATE * approxRange / SPEED_OF_LIGHT;
+
+            // Predict pseudo-range using (9.165)
+            final double deltaRx = measX + ceiValue * measY - x[0];
+            final double deltaRy = -ceiValue * measX + measY - x[1];
+            final double deltaRz = measZ - x[2];
+            final double range = Math.sqrt(deltaRx * deltaRx + deltaRy * deltaRy
+                    + deltaRz * deltaRz);
+
+            // Formulate pseudo-range innovation using (3.88)
+            deltaZ[j] = pseudoRanges[j] - (range + x[6]);
+
+            // Predict line of sight
+            final double uaseX = deltaRx / range;
+            final double uaseY = deltaRy / range;
+            final double uaseZ = deltaRz / range;
+            final int pos = CoordinateTransformation.ROWS * j;
+            uAseT[pos] = uaseX;
+            uAseT[pos + 1] = uaseY;
+            uAseT[pos + 2] = uaseZ;
+
+            // Predict pseudo-range rate using (9.165)
+            final double satVx = vxs[j] - EARTH_ROTATION_RATE * measY;
+            final double satVy = vys[j] + EARTH_ROTATION_RATE * measX;
+            final double satVz = vzs[j];
+
+            final double deltaVx = satVx + ceiValue * satVy
+                    - (x[3] - EARTH_ROTATION_RATE * x[1]);
+            final double deltaVy = -ceiValue * satVx + satVy
+                    - (x[4] + EARTH_ROTATION_RATE * x[0]);
+            final double deltaVz = satVz - x[5];
+
+            final double rangeRate = uaseX * deltaVx + uaseY * deltaVy + uaseZ * deltaVz;
+
+            // Formulate pseudo-range rate innovation using (3.88)
+            deltaZ[numberOfMeasurements + j] = pseudoRates[j]
+                    - (rangeRate + x[7]);
         }
+    }
 
-        // 9. Update state estimates using (3.24)
-        xEstPropagated.add(k.multiplyAndReturnNew(deltaZ));
+    /**
+     * Propagates Kalman filter error covariance matrix using (3.15) as
+     * Phi * P * Phi^T + Q, where Phi is the transition matrix defined in (9.147)
+     * and (9.150), and Q is the system noise covariance matrix defined in (9.152).
+     * Because transition matrix only differs from the identity at (0, 3), (1, 4),
+     * (2, 5) and (6, 7), each element of the upper triangle of the result is
+     * directly obtained from at most four elements of previous covariance, without
+     * building any intermediate matrix.
+     *
+     * @param previousCovariance  upper triangular part of previous covariance stored
+     *                            in row-major packed order.
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param config              system configuration.
+     * @param result              array where upper triangular part of propagated
+     *                            covariance will be stored in row-major packed order.
+     *                            Must be a different instance than previous
+     *                            covariance.
+     */
+    static void propagateCovariance(final double[] previousCovariance,
+                                    final double propagationInterval,
+                                    final GNSSKalmanConfig config,
+                                    final double[] result) {
+        // Determine system noise covariance matrix using (9.152)
+        final double propagationInterval2 = propagationInterval * propagationInterval;
+        final double propagationInterval3 = propagationInterval2 * propagationInterval;
+        final double accelerationPSD = config.getAccelerationPSD();
+        final double clockFrequencyPSD = config.getClockFrequencyPSD();
+        final double clockPhasePSD = config.getClockPhasePSD();
+
+        final double value1 = accelerationPSD * propagationInterval3 / 3.0;
+        final double value2 = accelerationPSD * propagationInterval2 / 2.0;
+        final double value3 = accelerationPSD * propagationInterval;
+        final double value4 = clockFrequencyPSD * propagationInterval3 / 3.0 + clockPhasePSD * propagationInterval;
+        final double value5 = clockFrequencyPSD * propagationInterval2 / 2.0;
+        final double value6 = clockFrequencyPSD * propagationInterval;
 
-        // xEstPropagated now contains updated state
-        updatedEstimation.fromMatrix(xEstPropagated);
+        int pos = 0;
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            final int si = TRANSITION_SOURCES[i];
+            for (int j = i; j < MATRIX_SIZE; j++) {
+                final int sj = TRANSITION_SOURCES[j];
+
+                double value = previousCovariance[pos];
+                if (si >= 0) {
+                    value += propagationInterval
+                            * previousCovariance[GNSSKalmanState.packedIndex(si, j)];
+                }
+                if (sj >= 0) {
+                    value += propagationInterval
+                            * previousCovariance[GNSSKalmanState.packedIndex(i, sj)];
+                    if (si >= 0) {
+                        value += propagationInterval2
+                                * previousCovariance[GNSSKalmanState.packedIndex(si, sj)];
+                    }
+                }
+
+                result[pos++] = value;
+            }
+        }
 
-        // 10. Update state estimation error covariance matrix using (3.25)
-        if (updatedCovariance.getRows() != GNSSEstimation.NUM_PARAMETERS ||
-                updatedCovariance.getColumns() != GNSSEstimation.NUM_PARAMETERS) {
-            updatedCovariance.resize(GNSSEstimation.NUM_PARAMETERS,
-                    GNSSEstimation.NUM_PARAMETERS);
+        for (int i = 0; i < CoordinateTransformation.ROWS; i++) {
+            final int i2 = i + CoordinateTransformation.ROWS;
+            result[GNSSKalmanState.packedIndex(i, i)] += value1;
+            result[GNSSKalmanState.packedIndex(i, i2)] += value2;
+            result[GNSSKalmanState.packedIndex(i2, i2)] += value3;
         }
-        Matrix.identity(updatedCovariance);
-        k.multiply(h);
-        updatedCovariance.subtract(k);
-        updatedCovariance.multiply(pMatrixPropagated);
+        result[GNSSKalmanState.packedIndex(6, 6)] += value4;
+        result[GNSSKalmanState.packedIndex(6, 7)] += value5;
+        result[GNSSKalmanState.packedIndex(7, 7)] += value6;
     }
 
     /**
@@ -22,9 +22,7 @@ import com.irurueta.units.Time;
 import com.irurueta.units.TimeConverter;
 import com.irurueta.units.TimeUnit;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 
 /**
  * Calculates position, velocity, clock offset and clock drift using an
@@ -62,8 +60,10 @@ public class GNSSKalmanFilteredEstimator {
 
     /**
      * GNSS measurements of a collection of satellites.
+     * This batch is reused on every update and it is empty when no measurements
+     * have been provided yet.
      */
-    private Collection<GNSSMeasurement> mMeasurements;
+    private final GNSSMeasurementBatch mMeasurements = new GNSSMeasurementBatch();
 
     /**
      * Current estimation containing user ECEF position, user ECEF velocity, clock offset
@@ -88,6 +88,48 @@ public class GNSSKalmanFilteredEstimator {
      */
     private boolean mRunning;
 
+    /**
+     * Latest published immutable snapshot of Kalman filter state.
+     * This is volatile so that it can be safely read from any thread.
+     */
+    private volatile GNSSKalmanSnapshot mSnapshot;
+
+    /**
+     * Sequence number of last published snapshot.
+     */
+    private long mSnapshotSequenceNumber;
+
+    /**
+     * Measurements held before last update, restored if update fails.
+     */
+    private final GNSSMeasurementBatch mPreviousMeasurements =
+            new GNSSMeasurementBatch();
+
+    /**
+     * Estimation held before last update, restored if update fails.
+     */
+    private final GNSSEstimation mPreviousEstimation = new GNSSEstimation();
+
+    /**
+     * Kalman filter state held before last update, restored if update fails.
+     */
+    private final GNSSKalmanState mPreviousState = new GNSSKalmanState();
+
+    /**
+     * Indicates whether an estimation was available before last update.
+     */
+    private boolean mPreviousEstimationAvailable;
+
+    /**
+     * Indicates whether a Kalman filter state was available before last update.
+     */
+    private boolean mPreviousStateAvailable;
+
+    /**
+     * Timestamp when Kalman filter state was last propagated before last update.
+     */
+    private Double mPreviousLastStateTimestamp;
+
     /**
      * Constructor.
      */
@@ -397,15 +439,22 @@ public class GNSSKalmanFilteredEstimator {
      * @return last updated GNSS measurements of a collection of satellites.
      */
     public Collection<GNSSMeasurement> getMeasurements() {
-        if (mMeasurements == null) {
+        if (mMeasurements.isEmpty()) {
             return null;
         }
 
-        final List<GNSSMeasurement> result = new ArrayList<>();
-        for (final GNSSMeasurement measurement : mMeasurements) {
-            result.add(new GNSSMeasurement(measurement));
-        }
-        return result;
+        return mMeasurements.toMeasurements();
+    }
+
+    /**
+     * Gets last updated GNSS measurements of a collection of satellites stored
+     * in primitive arrays.
+     *
+     * @return a copy of last updated GNSS measurements or null if not available.
+     */
+    public GNSSMeasurementBatch getMeasurementBatch() {
+        return !mMeasurements.isEmpty() ?
+                new GNSSMeasurementBatch(mMeasurements) : null;
     }
 
     /**
@@ -503,6 +552,21 @@ public class GNSSKalmanFilteredEstimator {
                 new Time(mLastStateTimestamp, TimeUnit.SECOND) : null;
     }
 
+    /**
+     * Gets latest published immutable snapshot containing Kalman filtered
+     * estimation, its error covariance and the timestamp when it was obtained.
+     * A new snapshot is atomically published at the end of each successful
+     * update or propagation.
+     * Unlike other getters, this method can be safely called from any thread
+     * at any time (even while an update is in progress) without blocking.
+     *
+     * @return latest snapshot or null if no Kalman filter state is available
+     * yet.
+     */
+    public GNSSKalmanSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
     /**
      * Indicates whether this estimator is running or not.
      *
@@ -525,6 +589,19 @@ public class GNSSKalmanFilteredEstimator {
                 .isValidMeasurements(measurements);
     }
 
+    /**
+     * Indicates whether provided measurements are ready to
+     * be used for an update.
+     *
+     * @param measurements measurements to be checked.
+     * @return true if estimator is ready, false otherwise.
+     */
+    public static boolean isUpdateMeasurementBatchReady(
+            final GNSSMeasurementBatch measurements) {
+        return GNSSLeastSquaresPositionAndVelocityEstimator
+                .isValidMeasurementBatch(measurements);
+    }
+
     /**
      * Updates GNSS measurements of this estimator when new satellite measurements
      * are available.
@@ -537,7 +614,8 @@ public class GNSSKalmanFilteredEstimator {
      * @return true if measurements were updated, false otherwise.
      * @throws LockedException   if this estimator is already running.
      * @throws NotReadyException if estimator is not ready for measurements updates.
-     * @throws GNSSException     if estimation fails due to numerical instabilities.
+     * @throws GNSSException     if estimation fails due to numerical instabilities,
+     *                           in which case this estimator is left unchanged.
      */
     public boolean updateMeasurements(
             final Collection<GNSSMeasurement> measurements, final Time timestamp)
@@ -559,7 +637,8 @@ public class GNSSKalmanFilteredEstimator {
      * @return true if measurements were updated, false otherwise.
      * @throws LockedException   if this estimator is already running.
      * @throws NotReadyException if estimator is not ready for measurements updates.
-     * @throws GNSSException     if estimation fails due to numerical instabilities.
+     * @throws GNSSException     if estimation fails due to numerical instabilities,
+     *                           in which case this estimator is left unchanged.
      */
     public boolean updateMeasurements(
             final Collection<GNSSMeasurement> measurements, final double timestamp)
@@ -578,34 +657,74 @@ public class GNSSKalmanFilteredEstimator {
             return false;
         }
 
-        try {
-            mRunning = true;
-
-            if (mListener != null) {
-                mListener.onUpdateStart(this);
-            }
+        saveState();
+        mMeasurements.setMeasurements(measurements);
+        return update(timestamp);
+    }
 
-            mMeasurements = new ArrayList<>(measurements);
+    /**
+     * Updates GNSS measurements of this estimator when new satellite measurements
+     * are available.
+     * Calls to this method will be ignored if interval between provided timestamp
+     * and last timestamp when Kalman filter was updated is less than epoch interval.
+     *
+     * @param measurements GNSS measurements to be updated stored in primitive
+     *                     arrays.
+     * @param timestamp    timestamp since epoch time when GNSS measurements were
+     *                     updated.
+     * @return true if measurements were updated, false otherwise.
+     * @throws LockedException   if this estimator is already running.
+     * @throws NotReadyException if estimator is not ready for measurements updates.
+     * @throws GNSSException     if estimation fails due to numerical instabilities,
+     *                           in which case this estimator is left unchanged.
+     */
+    public boolean updateMeasurementBatch(
+            final GNSSMeasurementBatch measurements, final Time timestamp)
+            throws LockedException, NotReadyException, GNSSException {
+        return updateMeasurementBatch(measurements, TimeConverter.convert(
+                timestamp.getValue().doubleValue(), timestamp.getUnit(),
+                TimeUnit.SECOND));
+    }
 
-            mLsEstimator.setMeasurements(mMeasurements);
-            mLsEstimator.setPriorPositionAndVelocityFromEstimation(mEstimation);
-            if (mEstimation != null) {
-                mLsEstimator.estimate(mEstimation);
-            } else {
-                mEstimation = mLsEstimator.estimate();
-            }
+    /**
+     * Updates GNSS measurements of this estimator when new satellite measurements
+     * are available.
+     * Provided measurements are copied into an internal batch that is reused
+     * between updates, hence provided batch can be reused once this method
+     * returns.
+     * Call to this method will be ignored if interval between provided timestamp
+     * and last timestamp when Kalman filter was updated is less than epoch interval.
+     *
+     * @param measurements GNSS measurements to be updated stored in primitive
+     *                     arrays.
+     * @param timestamp    timestamp expressed in seconds since epoch time when
+     *                     GNSS measurements were updated.
+     * @return true if measurements were updated, false otherwise.
+     * @throws LockedException   if this estimator is already running.
+     * @throws NotReadyException if estimator is not ready for measurements updates.
+     * @throws GNSSException     if estimation fails due to numerical instabilities,
+     *                           in which case this estimator is left unchanged.
+     */
+    public boolean updateMeasurementBatch(
+            final GNSSMeasurementBatch measurements, final double timestamp)
+            throws LockedException, NotReadyException, GNSSException {
 
-            if (mListener != null) {
-                mListener.onUpdateEnd(this);
-            }
+        if (mRunning) {
+            throw new LockedException();
+        }
 
-        } finally {
-            mRunning = false;
+        if (!isUpdateMeasurementBatchReady(measurements)) {
+            throw new NotReadyException();
         }
 
-        propagate(timestamp);
+        if (mLastStateTimestamp != null &&
+                timestamp - mLastStateTimestamp <= mEpochInterval) {
+            return false;
+        }
 
-        return true;
+        saveState();
+        mMeasurements.copyFrom(measurements);
+        return update(timestamp);
     }
 
     /**
@@ -681,6 +800,9 @@ public class GNSSKalmanFilteredEstimator {
 
             mState.getEstimation(mEstimation);
 
+            mSnapshot = new GNSSKalmanSnapshot(mState, timestamp,
+                    ++mSnapshotSequenceNumber);
+
             if (mListener != null) {
                 mListener.onPropagateEnd(this);
             }
@@ -694,6 +816,101 @@ public class GNSSKalmanFilteredEstimator {
         return true;
     }
 
+    /**
+     * Predicts GNSS estimation at provided timestamp by extrapolating last
+     * propagated Kalman filter state, without applying any measurement update.
+     * This method does not modify this estimator nor allocate any memory, hence
+     * it can be used to obtain estimations at a higher rate than GNSS epochs.
+     *
+     * @param timestamp timestamp since epoch time where estimation is predicted.
+     * @param result    instance where predicted estimation will be stored.
+     * @return true if estimation was predicted, false if no Kalman filter state
+     * is available yet.
+     */
+    public boolean predict(final Time timestamp, final GNSSEstimation result) {
+        return predict(TimeConverter.convert(timestamp.getValue().doubleValue(),
+                timestamp.getUnit(), TimeUnit.SECOND), result);
+    }
+
+    /**
+     * Predicts GNSS estimation at provided timestamp by extrapolating last
+     * propagated Kalman filter state, without applying any measurement update.
+     * This method does not modify this estimator nor allocate any memory, hence
+     * it can be used to obtain estimations at a higher rate than GNSS epochs.
+     *
+     * @param timestamp timestamp expressed in seconds since epoch time where
+     *                  estimation is predicted.
+     * @param result    instance where predicted estimation will be stored.
+     * @return true if estimation was predicted, false if no Kalman filter state
+     * is available yet.
+     */
+    public boolean predict(final double timestamp, final GNSSEstimation result) {
+        if (mState == null || mLastStateTimestamp == null) {
+            return false;
+        }
+
+        GNSSKalmanEpochEstimator.predict(timestamp - mLastStateTimestamp,
+                mState.getEstimation(), result);
+        return true;
+    }
+
+    /**
+     * Predicts GNSS estimation and its error covariance at provided timestamp by
+     * extrapolating last propagated Kalman filter state, without applying any
+     * measurement update.
+     * This method does not modify this estimator nor allocate any memory, hence
+     * it can be used to obtain estimations at a higher rate than GNSS epochs.
+     *
+     * @param timestamp        timestamp since epoch time where estimation is
+     *                         predicted.
+     * @param result           instance where predicted estimation will be stored.
+     * @param covarianceResult array where upper triangular part of predicted
+     *                         error covariance matrix will be stored in row-major
+     *                         packed order. Must have length 36.
+     * @return true if estimation was predicted, false if no Kalman filter state
+     * is available yet.
+     * @throws IllegalArgumentException if provided array does not have length 36.
+     */
+    public boolean predict(final Time timestamp, final GNSSEstimation result,
+                           final double[] covarianceResult) {
+        return predict(TimeConverter.convert(timestamp.getValue().doubleValue(),
+                timestamp.getUnit(), TimeUnit.SECOND), result, covarianceResult);
+    }
+
+    /**
+     * Predicts GNSS estimation and its error covariance at provided timestamp by
+     * extrapolating last propagated Kalman filter state, without applying any
+     * measurement update.
+     * This method does not modify this estimator nor allocate any memory, hence
+     * it can be used to obtain estimations at a higher rate than GNSS epochs.
+     *
+     * @param timestamp        timestamp expressed in seconds since epoch time
+     *                         where estimation is predicted.
+     * @param result           instance where predicted estimation will be stored.
+     * @param covarianceResult array where upper triangular part of predicted
+     *                         error covariance matrix will be stored in row-major
+     *                         packed order. Must have length 36.
+     * @return true if estimation was predicted, false if no Kalman filter state
+     * is available yet.
+     * @throws IllegalArgumentException if provided array does not have length 36.
+     */
+    public boolean predict(final double timestamp, final GNSSEstimation result,
+                           final double[] covarianceResult) {
+        if (covarianceResult.length != GNSSKalmanState.PACKED_COVARIANCE_LENGTH) {
+            throw new IllegalArgumentException();
+        }
+
+        if (mState == null || mLastStateTimestamp == null || mConfig == null
+                || !mState.hasCovariance()) {
+            return false;
+        }
+
+        GNSSKalmanEpochEstimator.predict(timestamp - mLastStateTimestamp,
+                mState.getEstimation(), mState.getPackedCovarianceBuffer(),
+                mConfig, result, covarianceResult);
+        return true;
+    }
+
     /**
      * Resets this estimator.
      *
@@ -705,10 +922,11 @@ public class GNSSKalmanFilteredEstimator {
         }
 
         mRunning = true;
-        mMeasurements = null;
+        mMeasurements.clear();
         mEstimation = null;
         mState = null;
         mLastStateTimestamp = null;
+        mSnapshot = null;
 
         if (mListener != null) {
             mListener.onReset(this);
@@ -716,4 +934,97 @@ public class GNSSKalmanFilteredEstimator {
 
         mRunning = false;
     }
+
+    /**
+     * Saves measurements, estimation and Kalman filter state held by this
+     * estimator so that they can be restored if next update fails.
+     */
+    private void saveState() {
+        mPreviousMeasurements.copyFrom(mMeasurements);
+
+        mPreviousEstimationAvailable = mEstimation != null;
+        if (mPreviousEstimationAvailable) {
+            mPreviousEstimation.copyFrom(mEstimation);
+        }
+
+        mPreviousStateAvailable = mState != null;
+        if (mPreviousStateAvailable) {
+            mPreviousState.copyFrom(mState);
+        }
+
+        mPreviousLastStateTimestamp = mLastStateTimestamp;
+    }
+
+    /**
+     * Restores measurements, estimation and Kalman filter state saved before
+     * last update.
+     */
+    private void restoreState() {
+        mMeasurements.copyFrom(mPreviousMeasurements);
+
+        if (mPreviousEstimationAvailable) {
+            mEstimation.copyFrom(mPreviousEstimation);
+        } else {
+            mEstimation = null;
+        }
+
+        if (mPreviousStateAvailable) {
+            mState.copyFrom(mPreviousState);
+        } else {
+            mState = null;
+        }
+
+        mLastStateTimestamp = mPreviousLastStateTimestamp;
+    }
+
+    /**
+     * Updates Kalman filter using measurements already copied into internal
+     * batch.
+     * If update fails, measurements, estimation and Kalman filter state held
+     * before the update are restored.
+     *
+     * @param timestamp timestamp expressed in seconds since epoch time when
+     *                  GNSS measurements were updated.
+     * @return true if measurements were updated, false otherwise.
+     * @throws LockedException   if this estimator is already running.
+     * @throws NotReadyException if estimator is not ready for measurements updates.
+     * @throws GNSSException     if estimation fails due to numerical instabilities.
+     */
+    private boolean update(final double timestamp) throws LockedException,
+            NotReadyException, GNSSException {
+        try {
+            mRunning = true;
+
+            if (mListener != null) {
+                mListener.onUpdateStart(this);
+            }
+
+            mLsEstimator.setMeasurementBatch(mMeasurements);
+            mLsEstimator.setPriorPositionAndVelocityFromEstimation(mEstimation);
+            if (mEstimation != null) {
+                mLsEstimator.estimate(mEstimation);
+            } else {
+                mEstimation = mLsEstimator.estimate();
+            }
+
+            if (mListener != null) {
+                mListener.onUpdateEnd(this);
+            }
+
+        } catch (final GNSSException e) {
+            restoreState();
+            throw e;
+        } finally {
+            mRunning = false;
+        }
+
+        try {
+            propagate(timestamp);
+        } catch (final GNSSException e) {
+            restoreState();
+            throw e;
+        }
+
+        return true;
+    }
 }
@@ -0,0 +1,598 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeConverter;
+import com.irurueta.units.TimeUnit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manages Kalman filtered GNSS estimators of many devices (i.e. receivers)
+ * identified by their device identifier.
+ * Devices are distributed among a fixed number of shards, each one processed by
+ * a single worker thread, so that each Kalman filter is only ever accessed by
+ * the worker thread of its shard and submissions of a given device are processed
+ * in submission order.
+ * Measurements can be submitted concurrently from any thread and results are
+ * notified through provided listener.
+ * Each shard queues a bounded number of pending submissions. When the queue of
+ * a shard is full, submitting threads block until the worker thread of the
+ * shard catches up, so that producers faster than the engine are slowed down
+ * instead of exhausting memory.
+ * Kalman filter of a device is created when its first measurements are
+ * submitted.
+ * This engine must be shut down when no longer needed so that its worker threads
+ * are released.
+ *
+ * @param <K> type of device identifiers.
+ */
+public class GNSSKalmanFilteredEstimatorEngine<K> {
+
+    /**
+     * Default maximum number of pending submissions queued on each shard.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Shards where devices are distributed.
+     */
+    private final List<Shard<K>> mShards;
+
+    /**
+     * Maximum number of pending submissions queued on each shard.
+     */
+    private final int mQueueCapacity;
+
+    /**
+     * GNSS Kalman filter configuration parameters used for all devices.
+     */
+    private final GNSSKalmanConfig mConfig;
+
+    /**
+     * Minimum epoch interval expressed in seconds (s) between consecutive
+     * propagations or measurements used for all devices.
+     */
+    private final double mEpochInterval;
+
+    /**
+     * Listener to notify results of each device.
+     */
+    private final GNSSKalmanFilteredEstimatorEngineListener<K> mListener;
+
+    /**
+     * Number of devices currently being managed.
+     */
+    private final AtomicInteger mNumberOfDevices = new AtomicInteger();
+
+    /**
+     * Constructor.
+     * Uses as many shards as available processors.
+     *
+     * @param config   GNSS Kalman filter configuration parameters (usually
+     *                 obtained through calibration) used for all devices.
+     * @param listener listener to notify results of each device.
+     * @throws NullPointerException if provided configuration is null.
+     */
+    public GNSSKalmanFilteredEstimatorEngine(
+            final GNSSKalmanConfig config,
+            final GNSSKalmanFilteredEstimatorEngineListener<K> listener) {
+        this(Runtime.getRuntime().availableProcessors(), config, listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numberOfShards number of shards (i.e. worker threads).
+     * @param config         GNSS Kalman filter configuration parameters (usually
+     *                       obtained through calibration) used for all devices.
+     * @param listener       listener to notify results of each device.
+     * @throws IllegalArgumentException if number of shards is less than 1.
+     * @throws NullPointerException     if provided configuration is null.
+     */
+    public GNSSKalmanFilteredEstimatorEngine(
+            final int numberOfShards, final GNSSKalmanConfig config,
+            final GNSSKalmanFilteredEstimatorEngineListener<K> listener) {
+        this(numberOfShards, config, 0.0, listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numberOfShards number of shards (i.e. worker threads).
+     * @param config         GNSS Kalman filter configuration parameters (usually
+     *                       obtained through calibration) used for all devices.
+     * @param epochInterval  minimum epoch interval between consecutive
+     *                       propagations or measurements used for all devices.
+     * @param listener       listener to notify results of each device.
+     * @throws IllegalArgumentException if number of shards is less than 1 or if
+     *                                  provided epoch interval is negative.
+     * @throws NullPointerException     if provided configuration is null.
+     */
+    public GNSSKalmanFilteredEstimatorEngine(
+            final int numberOfShards, final GNSSKalmanConfig config,
+            final Time epochInterval,
+            final GNSSKalmanFilteredEstimatorEngineListener<K> listener) {
+        this(numberOfShards, config, TimeConverter.convert(
+                epochInterval.getValue().doubleValue(), epochInterval.getUnit(),
+                TimeUnit.SECOND), listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numberOfShards number of shards (i.e. worker threads).
+     * @param config         GNSS Kalman filter configuration parameters (usually
+     *                       obtained through calibration) used for all devices.
+     * @param epochInterval  minimum epoch interval expressed in seconds (s)
+     *                       between consecutive propagations or measurements
+     *                       used for all devices.
+     * @param listener       listener to notify results of each device.
+     * @throws IllegalArgumentException if number of shards is less than 1 or if
+     *                                  provided epoch interval is negative.
+     * @throws NullPointerException     if provided configuration is null.
+     */
+    public GNSSKalmanFilteredEstimatorEngine(
+            final int numberOfShards, final GNSSKalmanConfig config,
+            final double epochInterval,
+            final GNSSKalmanFilteredEstimatorEngineListener<K> listener) {
+        this(numberOfShards, config, epochInterval, DEFAULT_QUEUE_CAPACITY,
+                listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numberOfShards number of shards (i.e. worker threads).
+     * @param config         GNSS Kalman filter configuration parameters (usually
+     *                       obtained through calibration) used for all devices.
+     * @param epochInterval  minimum epoch interval expressed in seconds (s)
+     *                       between consecutive propagations or measurements
+     *                       used for all devices.
+     * @param queueCapacity  maximum number of pending submissions queued on each
+     *                       shard before submitting threads are blocked.
+     * @param listener       listener to notify results of each device.
+     * @throws IllegalArgumentException if number of shards or queue capacity is
+     *                                  less than 1 or if provided epoch interval
+     *                                  is negative.
+     * @throws NullPointerException     if provided configuration is null.
+     */
+    public GNSSKalmanFilteredEstimatorEngine(
+            final int numberOfShards, final GNSSKalmanConfig config,
+            final double epochInterval, final int queueCapacity,
+            final GNSSKalmanFilteredEstimatorEngineListener<K> listener) {
+        if (numberOfShards < 1 || epochInterval < 0.0 || queueCapacity < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        mConfig = new GNSSKalmanConfig(config);
+        mEpochInterval = epochInterval;
+        mQueueCapacity = queueCapacity;
+        mListener = listener;
+
+        mShards = new ArrayList<>(numberOfShards);
+        for (int i = 0; i < numberOfShards; i++) {
+            mShards.add(new Shard<K>(queueCapacity));
+        }
+    }
+
+    /**
+     * Gets number of shards (i.e. worker threads).
+     *
+     * @return number of shards.
+     */
+    public int getNumberOfShards() {
+        return mShards.size();
+    }
+
+    /**
+     * Gets maximum number of pending submissions queued on each shard before
+     * submitting threads are blocked.
+     *
+     * @return maximum number of pending submissions of each shard.
+     */
+    public int getQueueCapacity() {
+        return mQueueCapacity;
+    }
+
+    /**
+     * Gets GNSS Kalman filter configuration parameters used for all devices.
+     *
+     * @param result instance where configuration parameters will be stored.
+     */
+    public void getConfig(final GNSSKalmanConfig result) {
+        result.copyFrom(mConfig);
+    }
+
+    /**
+     * Gets GNSS Kalman filter configuration parameters used for all devices.
+     *
+     * @return GNSS Kalman filter configuration parameters.
+     */
+    public GNSSKalmanConfig getConfig() {
+        return new GNSSKalmanConfig(mConfig);
+    }
+
+    /**
+     * Gets minimum epoch interval expressed in seconds (s) between consecutive
+     * propagations or measurements used for all devices.
+     *
+     * @return minimum epoch interval.
+     */
+    public double getEpochInterval() {
+        return mEpochInterval;
+    }
+
+    /**
+     * Gets minimum epoch interval between consecutive propagations or
+     * measurements used for all devices.
+     *
+     * @param result instance where minimum epoch interval will be stored.
+     */
+    public void getEpochIntervalAsTime(final Time result) {
+        result.setValue(mEpochInterval);
+        result.setUnit(TimeUnit.SECOND);
+    }
+
+    /**
+     * Gets minimum epoch interval between consecutive propagations or
+     * measurements used for all devices.
+     *
+     * @return minimum epoch interval.
+     */
+    public Time getEpochIntervalAsTime() {
+        return new Time(mEpochInterval, TimeUnit.SECOND);
+    }
+
+    /**
+     * Gets listener to notify results of each device.
+     *
+     * @return listener to notify results of each device.
+     */
+    public GNSSKalmanFilteredEstimatorEngineListener<K> getListener() {
+        return mListener;
+    }
+
+    /**
+     * Gets number of devices currently being managed.
+     * Because submissions are processed asynchronously, returned value might not
+     * yet reflect recently submitted measurements.
+     *
+     * @return number of devices.
+     */
+    public int getNumberOfDevices() {
+        return mNumberOfDevices.get();
+    }
+
+    /**
+     * Indicates whether this engine has been shut down.
+     *
+     * @return true if engine has been shut down, false otherwise.
+     */
+    public boolean isShutdown() {
+        for (final Shard<K> shard : mShards) {
+            if (!shard.mExecutor.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Submits GNSS measurements of a device to be asynchronously processed.
+     * Provided measurements are copied, so that provided collection can be
+     * reused once this method returns.
+     * If the queue of the shard of the device is full, this method blocks until
+     * there is room for the submission.
+     *
+     * @param deviceId     identifier of device.
+     * @param measurements GNSS measurements of device.
+     * @param timestamp    timestamp since epoch time when GNSS measurements
+     *                     were obtained.
+     * @throws IllegalArgumentException if device identifier is null.
+     * @throws NotReadyException        if provided measurements are not enough
+     *                                  to update a Kalman filter.
+     * @throws IllegalStateException    if this engine has been shut down or if
+     *                                  current thread is interrupted while
+     *                                  waiting for room in the queue.
+     */
+    public void submitMeasurements(final K deviceId,
+                                   final Collection<GNSSMeasurement> measurements,
+                                   final Time timestamp) throws NotReadyException {
+        submitMeasurements(deviceId, measurements, TimeConverter.convert(
+                timestamp.getValue().doubleValue(), timestamp.getUnit(),
+                TimeUnit.SECOND));
+    }
+
+    /**
+     * Submits GNSS measurements of a device to be asynchronously processed.
+     * Provided measurements are copied, so that provided collection can be
+     * reused once this method returns.
+     * If the queue of the shard of the device is full, this method blocks until
+     * there is room for the submission.
+     *
+     * @param deviceId     identifier of device.
+     * @param measurements GNSS measurements of device.
+     * @param timestamp    timestamp expressed in seconds since epoch time when
+     *                     GNSS measurements were obtained.
+     * @throws IllegalArgumentException if device identifier is null.
+     * @throws NotReadyException        if provided measurements are not enough
+     *                                  to update a Kalman filter.
+     * @throws IllegalStateException    if this engine has been shut down or if
+     *                                  current thread is interrupted while
+     *                                  waiting for room in the queue.
+     */
+    public void submitMeasurements(final K deviceId,
+                                   final Collection<GNSSMeasurement> measurements,
+                                   final double timestamp) throws NotReadyException {
+        if (deviceId == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (!GNSSKalmanFilteredEstimator.isUpdateMeasurementsReady(measurements)) {
+            throw new NotReadyException();
+        }
+
+        final Collection<GNSSMeasurement> copy = new ArrayList<>(measurements);
+        final Shard<K> shard = getShard(deviceId);
+        execute(shard, new Runnable() {
+            @Override
+            public void run() {
+                process(shard, deviceId, copy, timestamp);
+            }
+        });
+    }
+
+    /**
+     * Removes a device and discards its Kalman filter.
+     * Removal is processed asynchronously after any previously submitted
+     * measurements of the device.
+     * If the queue of the shard of the device is full, this method blocks until
+     * there is room for the removal.
+     *
+     * @param deviceId identifier of device to be removed.
+     * @throws IllegalArgumentException if device identifier is null.
+     * @throws IllegalStateException    if this engine has been shut down or if
+     *                                  current thread is interrupted while
+     *                                  waiting for room in the queue.
+     */
+    public void removeDevice(final K deviceId) {
+        if (deviceId == null) {
+            throw new IllegalArgumentException();
+        }
+
+        final Shard<K> shard = getShard(deviceId);
+        execute(shard, new Runnable() {
+            @Override
+            public void run() {
+                if (shard.mFilters.remove(deviceId) != null) {
+                    mNumberOfDevices.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Shuts down this engine.
+     * Already submitted measurements are still processed, but no new submissions
+     * are accepted.
+     */
+    public void shutdown() {
+        for (final Shard<K> shard : mShards) {
+            shard.mExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Waits until all submitted measurements have been processed after a
+     * shutdown request, or the timeout occurs, or current thread is interrupted,
+     * whichever happens first.
+     *
+     * @param timeout maximum time to wait expressed in milliseconds.
+     * @return true if engine terminated, false if timeout elapsed before
+     * termination.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitTermination(final long timeout)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        for (final Shard<K> shard : mShards) {
+            final long remaining = Math.max(0L,
+                    deadline - System.currentTimeMillis());
+            if (!shard.mExecutor.awaitTermination(remaining,
+                    java.util.concurrent.TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets shard where provided device belongs to.
+     *
+     * @param deviceId identifier of device.
+     * @return shard of device.
+     */
+    private Shard<K> getShard(final K deviceId) {
+        // spread hash bits so that poorly distributed hash codes are still
+        // evenly assigned to shards
+        final int hash = deviceId.hashCode();
+        final int spread = (hash ^ (hash >>> 16)) & Integer.MAX_VALUE;
+        return mShards.get(spread % mShards.size());
+    }
+
+    /**
+     * Executes provided task on the worker thread of provided shard.
+     *
+     * @param shard shard where task will be executed.
+     * @param task  task to be executed.
+     * @throws IllegalStateException if this engine has been shut down or if
+     *                               current thread is interrupted while waiting
+     *                               for room in the queue.
+     */
+    private static void execute(final Shard<?> shard, final Runnable task) {
+        try {
+            shard.mExecutor.execute(task);
+        } catch (final RejectedExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Processes measurements of a device.
+     * This method is always executed on the worker thread of the shard.
+     *
+     * @param shard        shard where device belongs to.
+     * @param deviceId     identifier of device.
+     * @param measurements GNSS measurements of device.
+     * @param timestamp    timestamp expressed in seconds since epoch time when
+     *                     GNSS measurements were obtained.
+     */
+    private void process(final Shard<K> shard, final K deviceId,
+                         final Collection<GNSSMeasurement> measurements,
+                         final double timestamp) {
+        GNSSKalmanFilteredEstimator estimator = shard.mFilters.get(deviceId);
+        if (estimator == null) {
+            estimator = new GNSSKalmanFilteredEstimator(mConfig, mEpochInterval);
+            shard.mFilters.put(deviceId, estimator);
+            mNumberOfDevices.incrementAndGet();
+        }
+
+        final boolean updated;
+        try {
+            updated = estimator.updateMeasurements(measurements, timestamp);
+        } catch (final Exception e) {
+            notifyFailed(deviceId, e);
+            return;
+        }
+
+        if (mListener == null) {
+            return;
+        }
+
+        // exceptions raised by listener must not stop the worker thread, which
+        // keeps the Kalman filters of all the devices of the shard
+        try {
+            if (updated) {
+                mListener.onUpdated(this, deviceId, estimator);
+            } else {
+                mListener.onIgnored(this, deviceId, timestamp);
+            }
+        } catch (final RuntimeException ignore) {
+            // listener failures are ignored
+        }
+    }
+
+    /**
+     * Notifies that processing of measurements of a device failed.
+     * This method is always executed on the worker thread of the shard.
+     *
+     * @param deviceId identifier of device.
+     * @param e        cause of failure.
+     */
+    private void notifyFailed(final K deviceId, final Exception e) {
+        if (mListener == null) {
+            return;
+        }
+
+        try {
+            mListener.onFailed(this, deviceId, e);
+        } catch (final RuntimeException ignore) {
+            // listener failures are ignored
+        }
+    }
+
+    /**
+     * Group of devices processed by a single worker thread.
+     *
+     * @param <K> type of device identifiers.
+     */
+    private static class Shard<K> {
+        /**
+         * Single threaded executor processing all devices of this shard using a
+         * bounded queue of pending tasks.
+         */
+        private final ThreadPoolExecutor mExecutor;
+
+        /**
+         * Kalman filtered estimators of each device of this shard.
+         * This map is only accessed from the worker thread of this shard.
+         */
+        private final Map<K, GNSSKalmanFilteredEstimator> mFilters =
+                new HashMap<>();
+
+        /**
+         * Constructor.
+         *
+         * @param queueCapacity maximum number of pending tasks.
+         */
+        Shard(final int queueCapacity) {
+            mExecutor = new ThreadPoolExecutor(1, 1, 0L,
+                    java.util.concurrent.TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueCapacity),
+                    new BlockingPolicy());
+        }
+    }
+
+    /**
+     * Rejection policy applying backpressure by blocking submitting threads
+     * until there is room in the queue of a shard.
+     * Tasks must never be run on the submitting thread, since Kalman filters of a
+     * shard must only be accessed by its worker thread.
+     */
+    private static class BlockingPolicy implements RejectedExecutionHandler {
+
+        /**
+         * Waits until provided task can be queued.
+         *
+         * @param r        task to be queued.
+         * @param executor executor of a shard.
+         * @throws RejectedExecutionException if executor has been shut down or
+         *                                    if current thread is interrupted.
+         */
+        @Override
+        public void rejectedExecution(final Runnable r,
+                                      final ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException();
+            }
+
+            try {
+                executor.getQueue().put(r);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+
+            // executor might have been shut down while waiting, in which case
+            // the task might never be executed
+            if (executor.isShutdown() && executor.remove(r)) {
+                throw new RejectedExecutionException();
+            }
+        }
+    }
+}
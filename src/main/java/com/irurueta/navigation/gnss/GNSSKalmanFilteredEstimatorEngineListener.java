@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+/**
+ * Listener defining events of GNSSKalmanFilteredEstimatorEngine.
+ * Events are raised from the worker thread owning the shard of each device,
+ * hence implementations must be thread-safe and must not retain provided
+ * estimators once the event has been handled.
+ *
+ * @param <K> type of device identifiers.
+ */
+public interface GNSSKalmanFilteredEstimatorEngineListener<K> {
+
+    /**
+     * Called when submitted measurements of a device have been processed and its
+     * Kalman filter has been updated.
+     *
+     * @param engine    engine raising the event.
+     * @param deviceId  identifier of updated device.
+     * @param estimator Kalman filtered estimator of the device containing updated
+     *                  estimation and state. This instance must only be accessed
+     *                  within this method.
+     */
+    void onUpdated(final GNSSKalmanFilteredEstimatorEngine<K> engine,
+                   final K deviceId, final GNSSKalmanFilteredEstimator estimator);
+
+    /**
+     * Called when submitted measurements of a device have been ignored because
+     * their timestamp was within the epoch interval of last update.
+     *
+     * @param engine    engine raising the event.
+     * @param deviceId  identifier of device.
+     * @param timestamp timestamp expressed in seconds (s) of ignored measurements.
+     */
+    void onIgnored(final GNSSKalmanFilteredEstimatorEngine<K> engine,
+                   final K deviceId, final double timestamp);
+
+    /**
+     * Called when processing of submitted measurements of a device fails.
+     *
+     * @param engine   engine raising the event.
+     * @param deviceId identifier of device.
+     * @param e        cause of failure.
+     */
+    void onFailed(final GNSSKalmanFilteredEstimatorEngine<K> engine,
+                  final K deviceId, final Exception e);
+}
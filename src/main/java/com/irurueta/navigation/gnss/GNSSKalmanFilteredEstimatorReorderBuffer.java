@@ -0,0 +1,459 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeConverter;
+import com.irurueta.units.TimeUnit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bounded reorder buffer placed in front of a GNSSKalmanFilteredEstimator so
+ * that GNSS measurements arriving slightly out of order are not discarded.
+ * Added measurements are held until a measurement set newer by at least the
+ * maximum added latency arrives (or until {@link #release(double)} is called
+ * with a current time that far ahead), and are then fed to the estimator sorted
+ * by timestamp.
+ * Measurement sets arriving after a newer set has already been fed to the
+ * estimator cannot be reordered anymore and are dropped.
+ * The number of held measurement sets is bounded, so that when the buffer is
+ * full the oldest held set is fed to the estimator regardless of its latency.
+ * This class is not thread-safe.
+ */
+public class GNSSKalmanFilteredEstimatorReorderBuffer {
+
+    /**
+     * Default maximum number of held measurement sets.
+     */
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    /**
+     * Estimator where measurements are fed in order.
+     */
+    private final GNSSKalmanFilteredEstimator mEstimator;
+
+    /**
+     * Maximum latency expressed in seconds (s) added to measurements while they
+     * are held waiting for late arrivals.
+     */
+    private final double mMaxLatency;
+
+    /**
+     * Maximum number of held measurement sets.
+     */
+    private final int mMaxSize;
+
+    /**
+     * Held measurement sets sorted by timestamp.
+     */
+    private final TreeMap<Double, Collection<GNSSMeasurement>> mBuffer =
+            new TreeMap<>();
+
+    /**
+     * Newest timestamp expressed in seconds (s) added so far.
+     */
+    private Double mNewestTimestamp;
+
+    /**
+     * Timestamp expressed in seconds (s) of last measurement set fed to the
+     * estimator.
+     */
+    private Double mLastReleasedTimestamp;
+
+    /**
+     * Number of measurement sets that arrived out of order but could be
+     * reordered.
+     */
+    private long mLateCount;
+
+    /**
+     * Number of measurement sets dropped because they arrived too late to be
+     * reordered, because they duplicated a held timestamp or because the
+     * estimator rejected them.
+     */
+    private long mDroppedCount;
+
+    /**
+     * Number of measurement sets fed to and accepted by the estimator.
+     */
+    private long mReleasedCount;
+
+    /**
+     * Constructor.
+     *
+     * @param estimator  estimator where measurements are fed in order.
+     * @param maxLatency maximum latency expressed in seconds (s) added to
+     *                   measurements while they are held.
+     * @throws IllegalArgumentException if maximum latency is negative.
+     * @throws NullPointerException     if estimator is null.
+     */
+    public GNSSKalmanFilteredEstimatorReorderBuffer(
+            final GNSSKalmanFilteredEstimator estimator, final double maxLatency) {
+        this(estimator, maxLatency, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param estimator  estimator where measurements are fed in order.
+     * @param maxLatency maximum latency added to measurements while they are
+     *                   held.
+     * @throws IllegalArgumentException if maximum latency is negative.
+     * @throws NullPointerException     if estimator is null.
+     */
+    public GNSSKalmanFilteredEstimatorReorderBuffer(
+            final GNSSKalmanFilteredEstimator estimator, final Time maxLatency) {
+        this(estimator, convertTime(maxLatency));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param estimator  estimator where measurements are fed in order.
+     * @param maxLatency maximum latency added to measurements while they are
+     *                   held.
+     * @param maxSize    maximum number of held measurement sets.
+     * @throws IllegalArgumentException if maximum latency is negative or
+     *                                  maximum size is less than 1.
+     * @throws NullPointerException     if estimator is null.
+     */
+    public GNSSKalmanFilteredEstimatorReorderBuffer(
+            final GNSSKalmanFilteredEstimator estimator, final Time maxLatency,
+            final int maxSize) {
+        this(estimator, convertTime(maxLatency), maxSize);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param estimator  estimator where measurements are fed in order.
+     * @param maxLatency maximum latency expressed in seconds (s) added to
+     *                   measurements while they are held.
+     * @param maxSize    maximum number of held measurement sets.
+     * @throws IllegalArgumentException if maximum latency is negative or
+     *                                  maximum size is less than 1.
+     * @throws NullPointerException     if estimator is null.
+     */
+    public GNSSKalmanFilteredEstimatorReorderBuffer(
+            final GNSSKalmanFilteredEstimator estimator, final double maxLatency,
+            final int maxSize) {
+        if (estimator == null) {
+            throw new NullPointerException();
+        }
+        if (maxLatency < 0.0 || maxSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        mEstimator = estimator;
+        mMaxLatency = maxLatency;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Gets estimator where measurements are fed in order.
+     *
+     * @return estimator where measurements are fed.
+     */
+    public GNSSKalmanFilteredEstimator getEstimator() {
+        return mEstimator;
+    }
+
+    /**
+     * Gets maximum latency expressed in seconds (s) added to measurements while
+     * they are held waiting for late arrivals.
+     *
+     * @return maximum added latency.
+     */
+    public double getMaxLatency() {
+        return mMaxLatency;
+    }
+
+    /**
+     * Gets maximum latency added to measurements while they are held waiting for
+     * late arrivals.
+     *
+     * @param result instance where maximum added latency will be stored.
+     */
+    public void getMaxLatencyAsTime(final Time result) {
+        result.setValue(mMaxLatency);
+        result.setUnit(TimeUnit.SECOND);
+    }
+
+    /**
+     * Gets maximum latency added to measurements while they are held waiting for
+     * late arrivals.
+     *
+     * @return maximum added latency.
+     */
+    public Time getMaxLatencyAsTime() {
+        return new Time(mMaxLatency, TimeUnit.SECOND);
+    }
+
+    /**
+     * Gets maximum number of held measurement sets.
+     *
+     * @return maximum number of held measurement sets.
+     */
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Gets number of measurement sets currently held.
+     *
+     * @return number of held measurement sets.
+     */
+    public int getBufferedCount() {
+        return mBuffer.size();
+    }
+
+    /**
+     * Gets number of measurement sets that arrived out of order but could be
+     * reordered.
+     *
+     * @return number of late measurement sets.
+     */
+    public long getLateCount() {
+        return mLateCount;
+    }
+
+    /**
+     * Gets number of measurement sets dropped because they arrived too late to
+     * be reordered, because they duplicated the timestamp of a held set or
+     * because the estimator rejected them (e.g. because they were within the
+     * epoch interval of its last update).
+     *
+     * @return number of dropped measurement sets.
+     */
+    public long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * Gets number of measurement sets fed to and accepted by the estimator.
+     *
+     * @return number of released measurement sets.
+     */
+    public long getReleasedCount() {
+        return mReleasedCount;
+    }
+
+    /**
+     * Gets timestamp expressed in seconds (s) of last measurement set fed to the
+     * estimator.
+     *
+     * @return timestamp of last released measurement set or null if none has
+     * been released yet.
+     */
+    public Double getLastReleasedTimestamp() {
+        return mLastReleasedTimestamp;
+    }
+
+    /**
+     * Adds GNSS measurements to this buffer and feeds to the estimator, in order,
+     * all held measurement sets whose latency has expired.
+     * Provided measurements are copied, so that provided collection can be
+     * reused once this method returns.
+     *
+     * @param measurements GNSS measurements.
+     * @param timestamp    timestamp since epoch time when GNSS measurements
+     *                     were obtained.
+     * @return true if measurements were held, false if they were dropped.
+     * @throws LockedException   if estimator is already running.
+     * @throws NotReadyException if provided measurements are not enough to update
+     *                           a Kalman filter.
+     * @throws GNSSException     if estimation of a released measurement set fails
+     *                           due to numerical instabilities.
+     */
+    public boolean add(final Collection<GNSSMeasurement> measurements,
+                       final Time timestamp) throws LockedException,
+            NotReadyException, GNSSException {
+        return add(measurements, convertTime(timestamp));
+    }
+
+    /**
+     * Adds GNSS measurements to this buffer and feeds to the estimator, in order,
+     * all held measurement sets whose latency has expired.
+     * Provided measurements are copied, so that provided collection can be
+     * reused once this method returns.
+     *
+     * @param measurements GNSS measurements.
+     * @param timestamp    timestamp expressed in seconds since epoch time when
+     *                     GNSS measurements were obtained.
+     * @return true if measurements were held, false if they were dropped.
+     * @throws LockedException   if estimator is already running.
+     * @throws NotReadyException if provided measurements are not enough to update
+     *                           a Kalman filter.
+     * @throws GNSSException     if estimation of a released measurement set fails
+     *                           due to numerical instabilities.
+     */
+    public boolean add(final Collection<GNSSMeasurement> measurements,
+                       final double timestamp) throws LockedException,
+            NotReadyException, GNSSException {
+        if (!GNSSKalmanFilteredEstimator.isUpdateMeasurementsReady(measurements)) {
+            throw new NotReadyException();
+        }
+
+        final boolean held;
+        if ((mLastReleasedTimestamp != null && timestamp <= mLastReleasedTimestamp)
+                || mBuffer.containsKey(timestamp)) {
+            // too late to be reordered or duplicated
+            mDroppedCount++;
+            held = false;
+        } else {
+            if (mNewestTimestamp != null && timestamp < mNewestTimestamp) {
+                mLateCount++;
+            }
+            if (mNewestTimestamp == null || timestamp > mNewestTimestamp) {
+                mNewestTimestamp = timestamp;
+            }
+
+            mBuffer.put(timestamp, new ArrayList<>(measurements));
+            held = true;
+        }
+
+        // feed oldest measurements if buffer is full
+        while (mBuffer.size() > mMaxSize) {
+            releaseFirst();
+        }
+
+        release(mNewestTimestamp);
+        return held;
+    }
+
+    /**
+     * Feeds to the estimator, in order, all held measurement sets whose latency
+     * has expired at provided current time.
+     * This method can be called periodically so that measurements are not held
+     * longer than the maximum added latency when no newer measurements arrive.
+     *
+     * @param currentTime current time since epoch time.
+     * @return number of released measurement sets accepted by the estimator.
+     * @throws LockedException if estimator is already running.
+     * @throws GNSSException   if estimation of a released measurement set fails
+     *                         due to numerical instabilities.
+     */
+    public int release(final Time currentTime) throws LockedException,
+            GNSSException {
+        return release(convertTime(currentTime));
+    }
+
+    /**
+     * Feeds to the estimator, in order, all held measurement sets whose latency
+     * has expired at provided current time.
+     * This method can be called periodically so that measurements are not held
+     * longer than the maximum added latency when no newer measurements arrive.
+     *
+     * @param currentTime current time expressed in seconds since epoch time.
+     * @return number of released measurement sets accepted by the estimator.
+     * @throws LockedException if estimator is already running.
+     * @throws GNSSException   if estimation of a released measurement set fails
+     *                         due to numerical instabilities.
+     */
+    public int release(final double currentTime) throws LockedException,
+            GNSSException {
+        int count = 0;
+        while (!mBuffer.isEmpty()
+                && currentTime - mBuffer.firstKey() >= mMaxLatency) {
+            if (releaseFirst()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Feeds to the estimator, in order, all held measurement sets regardless of
+     * their latency.
+     *
+     * @return number of released measurement sets accepted by the estimator.
+     * @throws LockedException if estimator is already running.
+     * @throws GNSSException   if estimation of a released measurement set fails
+     *                         due to numerical instabilities.
+     */
+    public int flush() throws LockedException, GNSSException {
+        int count = 0;
+        while (!mBuffer.isEmpty()) {
+            if (releaseFirst()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Discards all held measurement sets and resets metrics.
+     * Estimator is not modified.
+     */
+    public void clear() {
+        mBuffer.clear();
+        mNewestTimestamp = null;
+        mLastReleasedTimestamp = null;
+        mLateCount = 0;
+        mDroppedCount = 0;
+        mReleasedCount = 0;
+    }
+
+    /**
+     * Removes the oldest held measurement set and feeds it to the estimator.
+     * Measurement set is removed even if estimation fails, so that a failing set
+     * is never fed again.
+     * Sets rejected by the estimator or whose estimation fails are counted as
+     * dropped.
+     *
+     * @return true if estimator accepted the measurement set, false otherwise.
+     * @throws LockedException if estimator is already running.
+     * @throws GNSSException   if estimation fails due to numerical
+     *                         instabilities.
+     */
+    private boolean releaseFirst() throws LockedException, GNSSException {
+        final Map.Entry<Double, Collection<GNSSMeasurement>> entry =
+                mBuffer.pollFirstEntry();
+        final double timestamp = entry.getKey();
+        mLastReleasedTimestamp = timestamp;
+
+        boolean updated = false;
+        try {
+            updated = mEstimator.updateMeasurements(entry.getValue(), timestamp);
+        } catch (final NotReadyException ignore) {
+            // never happens because measurements were checked when added
+        } finally {
+            if (updated) {
+                mReleasedCount++;
+            } else {
+                mDroppedCount++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Converts time instance into a value expressed in seconds.
+     *
+     * @param time time instance to be converted.
+     * @return time value expressed in seconds.
+     */
+    private static double convertTime(final Time time) {
+        return TimeConverter.convert(time.getValue().doubleValue(),
+                time.getUnit(), TimeUnit.SECOND);
+    }
+}
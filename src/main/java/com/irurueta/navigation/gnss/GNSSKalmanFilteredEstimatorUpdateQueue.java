@@ -0,0 +1,569 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeConverter;
+import com.irurueta.units.TimeUnit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous front-end of a GNSSKalmanFilteredEstimator that queues submitted
+ * GNSS measurements and processes them on provided executor.
+ * When measurements arrive faster than they can be processed, stale epochs are
+ * coalesced following a latest-wins policy: any queued epoch older than newly
+ * submitted measurements and within the epoch interval of this queue is
+ * discarded, newly submitted measurements are discarded if a newer epoch
+ * within the epoch interval is already queued, and when the queue is full the
+ * oldest queued epoch is discarded. This way latency remains bounded under load
+ * spikes.
+ * Queued measurements are processed one at a time, hence provided estimator is
+ * never accessed concurrently. While this queue is in use, provided estimator
+ * must not be accessed from other threads except through
+ * {@link GNSSKalmanFilteredEstimator#getSnapshot()}.
+ */
+public class GNSSKalmanFilteredEstimatorUpdateQueue {
+
+    /**
+     * Default maximum number of queued epochs.
+     */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 16;
+
+    /**
+     * Estimator processing queued measurements.
+     */
+    private final GNSSKalmanFilteredEstimator mEstimator;
+
+    /**
+     * Executor where queued measurements are processed.
+     */
+    private final Executor mExecutor;
+
+    /**
+     * Maximum number of queued epochs.
+     */
+    private final int mMaxQueueSize;
+
+    /**
+     * Listener to notify events raised by this instance.
+     */
+    private final GNSSKalmanFilteredEstimatorUpdateQueueListener mListener;
+
+    /**
+     * Epoch interval expressed in seconds used to coalesce stale epochs.
+     * It is kept apart from the epoch interval of the estimator, since the
+     * estimator must only be accessed from the task processing queued epochs.
+     */
+    private volatile double mEpochInterval;
+
+    /**
+     * Queued epochs ordered by submission.
+     * Access must be synchronized on this collection.
+     */
+    private final Deque<Epoch> mQueue = new ArrayDeque<>();
+
+    /**
+     * Indicates whether a task processing queued epochs has been scheduled on the
+     * executor.
+     * Access must be synchronized on queue.
+     */
+    private boolean mScheduled;
+
+    /**
+     * Number of submitted epochs.
+     */
+    private final AtomicLong mSubmittedCount = new AtomicLong();
+
+    /**
+     * Number of processed epochs.
+     */
+    private final AtomicLong mProcessedCount = new AtomicLong();
+
+    /**
+     * Number of discarded epochs.
+     */
+    private final AtomicLong mDroppedCount = new AtomicLong();
+
+    /**
+     * Number of epochs whose processing failed.
+     */
+    private final AtomicLong mFailedCount = new AtomicLong();
+
+    /**
+     * Task processing queued epochs.
+     */
+    private final Runnable mDrainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * Constructor.
+     *
+     * @param estimator estimator processing queued measurements. Its current
+     *                  epoch interval is used to coalesce stale epochs.
+     * @param executor  executor where queued measurements are processed.
+     * @throws NullPointerException if estimator or executor are null.
+     */
+    public GNSSKalmanFilteredEstimatorUpdateQueue(
+            final GNSSKalmanFilteredEstimator estimator, final Executor executor) {
+        this(estimator, executor, DEFAULT_MAX_QUEUE_SIZE, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param estimator estimator processing queued measurements. Its current
+     *                  epoch interval is used to coalesce stale epochs.
+     * @param executor  executor where queued measurements are processed.
+     * @param listener  listener to notify events raised by this instance.
+     * @throws NullPointerException if estimator or executor are null.
+     */
+    public GNSSKalmanFilteredEstimatorUpdateQueue(
+            final GNSSKalmanFilteredEstimator estimator, final Executor executor,
+            final GNSSKalmanFilteredEstimatorUpdateQueueListener listener) {
+        this(estimator, executor, DEFAULT_MAX_QUEUE_SIZE, listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param estimator    estimator processing queued measurements. Its current
+     *                     epoch interval is used to coalesce stale epochs.
+     * @param executor     executor where queued measurements are processed.
+     * @param maxQueueSize maximum number of queued epochs.
+     * @param listener     listener to notify events raised by this instance.
+     * @throws IllegalArgumentException if maximum queue size is less than 1.
+     * @throws NullPointerException     if estimator or executor are null.
+     */
+    public GNSSKalmanFilteredEstimatorUpdateQueue(
+            final GNSSKalmanFilteredEstimator estimator, final Executor executor,
+            final int maxQueueSize,
+            final GNSSKalmanFilteredEstimatorUpdateQueueListener listener) {
+        if (estimator == null || executor == null) {
+            throw new NullPointerException();
+        }
+        if (maxQueueSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        mEstimator = estimator;
+        mExecutor = executor;
+        mMaxQueueSize = maxQueueSize;
+        mListener = listener;
+        mEpochInterval = estimator.getEpochInterval();
+    }
+
+    /**
+     * Gets estimator processing queued measurements.
+     * While this queue is in use, returned estimator must only be accessed
+     * through {@link GNSSKalmanFilteredEstimator#getSnapshot()}.
+     *
+     * @return estimator processing queued measurements.
+     */
+    public GNSSKalmanFilteredEstimator getEstimator() {
+        return mEstimator;
+    }
+
+    /**
+     * Gets maximum number of queued epochs.
+     *
+     * @return maximum number of queued epochs.
+     */
+    public int getMaxQueueSize() {
+        return mMaxQueueSize;
+    }
+
+    /**
+     * Gets listener to notify events raised by this instance.
+     *
+     * @return listener to notify events raised by this instance.
+     */
+    public GNSSKalmanFilteredEstimatorUpdateQueueListener getListener() {
+        return mListener;
+    }
+
+    /**
+     * Gets epoch interval expressed in seconds (s) used to coalesce stale
+     * epochs.
+     * By default this is the epoch interval of the estimator when this queue
+     * was created.
+     *
+     * @return epoch interval expressed in seconds.
+     */
+    public double getEpochInterval() {
+        return mEpochInterval;
+    }
+
+    /**
+     * Sets epoch interval expressed in seconds (s) used to coalesce stale
+     * epochs.
+     * This does not modify the epoch interval of the estimator, which must not
+     * be accessed while this queue is in use.
+     *
+     * @param epochInterval epoch interval expressed in seconds.
+     * @throws IllegalArgumentException if provided epoch interval is negative.
+     */
+    public void setEpochInterval(final double epochInterval) {
+        if (epochInterval < 0.0) {
+            throw new IllegalArgumentException();
+        }
+
+        mEpochInterval = epochInterval;
+    }
+
+    /**
+     * Gets number of epochs currently queued and waiting to be processed.
+     *
+     * @return number of queued epochs.
+     */
+    public int getQueueDepth() {
+        synchronized (mQueue) {
+            return mQueue.size();
+        }
+    }
+
+    /**
+     * Indicates whether there are no queued epochs and no epoch is being
+     * processed.
+     *
+     * @return true if this queue is idle, false otherwise.
+     */
+    public boolean isIdle() {
+        synchronized (mQueue) {
+            return mQueue.isEmpty() && !mScheduled;
+        }
+    }
+
+    /**
+     * Gets number of submitted epochs.
+     *
+     * @return number of submitted epochs.
+     */
+    public long getSubmittedCount() {
+        return mSubmittedCount.get();
+    }
+
+    /**
+     * Gets number of processed epochs.
+     *
+     * @return number of processed epochs.
+     */
+    public long getProcessedCount() {
+        return mProcessedCount.get();
+    }
+
+    /**
+     * Gets number of epochs discarded without being processed because newer
+     * measurements superseded them or because they were submitted after newer
+     * ones.
+     *
+     * @return number of discarded epochs.
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * Gets number of epochs whose processing failed.
+     *
+     * @return number of failed epochs.
+     */
+    public long getFailedCount() {
+        return mFailedCount.get();
+    }
+
+    /**
+     * Submits GNSS measurements to be asynchronously processed.
+     * Provided measurements are copied, so that provided collection can be
+     * reused once this method returns.
+     *
+     * @param measurements GNSS measurements.
+     * @param timestamp    timestamp since epoch time when GNSS measurements were
+     *                     obtained.
+     * @throws NotReadyException if provided measurements are not enough to update
+     *                           a Kalman filter.
+     */
+    public void submit(final Collection<GNSSMeasurement> measurements,
+                       final Time timestamp) throws NotReadyException {
+        submit(measurements, TimeConverter.convert(
+                timestamp.getValue().doubleValue(), timestamp.getUnit(),
+                TimeUnit.SECOND));
+    }
+
+    /**
+     * Submits GNSS measurements to be asynchronously processed.
+     * Provided measurements are copied, so that provided collection can be
+     * reused once this method returns.
+     *
+     * @param measurements GNSS measurements.
+     * @param timestamp    timestamp expressed in seconds since epoch time when
+     *                     GNSS measurements were obtained.
+     * @throws NotReadyException if provided measurements are not enough to update
+     *                           a Kalman filter.
+     */
+    public void submit(final Collection<GNSSMeasurement> measurements,
+                       final double timestamp) throws NotReadyException {
+        if (!GNSSKalmanFilteredEstimator.isUpdateMeasurementsReady(measurements)) {
+            throw new NotReadyException();
+        }
+
+        final Epoch epoch = new Epoch(new ArrayList<>(measurements), timestamp);
+        mSubmittedCount.incrementAndGet();
+
+        final double epochInterval = mEpochInterval;
+
+        final List<Epoch> dropped = new ArrayList<>();
+        boolean schedule = false;
+        synchronized (mQueue) {
+            if (isSuperseded(timestamp, epochInterval)) {
+                // a newer epoch within epoch interval is already queued
+                dropped.add(epoch);
+            } else {
+                schedule = enqueue(epoch, epochInterval, dropped);
+            }
+        }
+
+        // drain task is scheduled before notifying discarded epochs, so that
+        // queued epochs are always processed
+        if (schedule) {
+            try {
+                mExecutor.execute(mDrainTask);
+            } catch (final RuntimeException e) {
+                synchronized (mQueue) {
+                    mScheduled = false;
+                }
+                throw e;
+            }
+        }
+
+        notifyDropped(dropped);
+    }
+
+    /**
+     * Discards all queued epochs that have not been processed yet.
+     *
+     * @return number of discarded epochs.
+     */
+    public int clear() {
+        final List<Epoch> dropped;
+        synchronized (mQueue) {
+            dropped = new ArrayList<>(mQueue);
+            mQueue.clear();
+        }
+
+        notifyDropped(dropped);
+        return dropped.size();
+    }
+
+    /**
+     * Indicates whether an epoch having provided timestamp is superseded by a
+     * newer queued epoch within provided epoch interval.
+     * Must be called while holding the lock of the queue.
+     *
+     * @param timestamp     timestamp expressed in seconds since epoch time.
+     * @param epochInterval epoch interval expressed in seconds.
+     * @return true if a newer epoch is queued, false otherwise.
+     */
+    private boolean isSuperseded(final double timestamp,
+                                 final double epochInterval) {
+        for (final Epoch queued : mQueue) {
+            if (queued.mTimestamp > timestamp
+                    && queued.mTimestamp - timestamp <= epochInterval) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queues provided epoch discarding queued epochs superseded by it and oldest
+     * epochs if queue is full.
+     * Must be called while holding the lock of the queue.
+     *
+     * @param epoch         epoch to be queued.
+     * @param epochInterval epoch interval expressed in seconds.
+     * @param dropped       list where discarded epochs will be added.
+     * @return true if a task processing queued epochs must be scheduled.
+     */
+    private boolean enqueue(final Epoch epoch, final double epochInterval,
+                            final List<Epoch> dropped) {
+        // discard queued epochs superseded by new one
+        final Iterator<Epoch> iterator = mQueue.iterator();
+        while (iterator.hasNext()) {
+            final Epoch queued = iterator.next();
+            if (queued.mTimestamp <= epoch.mTimestamp
+                    && epoch.mTimestamp - queued.mTimestamp <= epochInterval) {
+                iterator.remove();
+                dropped.add(queued);
+            }
+        }
+
+        // discard oldest epochs if queue is full
+        while (mQueue.size() >= mMaxQueueSize) {
+            dropped.add(mQueue.removeFirst());
+        }
+
+        mQueue.addLast(epoch);
+
+        final boolean schedule = !mScheduled;
+        mScheduled = true;
+        return schedule;
+    }
+
+    /**
+     * Updates dropped counter and notifies discarded epochs.
+     * Exceptions raised by listener are ignored so that all discarded epochs are
+     * counted and notified.
+     *
+     * @param dropped discarded epochs.
+     */
+    private void notifyDropped(final List<Epoch> dropped) {
+        for (final Epoch epoch : dropped) {
+            mDroppedCount.incrementAndGet();
+            if (mListener != null) {
+                try {
+                    mListener.onDropped(this, epoch.mTimestamp);
+                } catch (final RuntimeException ignore) {
+                    // listener failures are ignored
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes queued epochs until queue is empty.
+     * Only one instance of this task is scheduled at a time.
+     */
+    private void drain() {
+        boolean drained = false;
+        try {
+            while (true) {
+                final Epoch epoch;
+                synchronized (mQueue) {
+                    epoch = mQueue.pollFirst();
+                    if (epoch == null) {
+                        mScheduled = false;
+                        drained = true;
+                        return;
+                    }
+                }
+
+                final boolean updated;
+                try {
+                    updated = mEstimator.updateMeasurements(epoch.mMeasurements,
+                            epoch.mTimestamp);
+                } catch (final Exception e) {
+                    mFailedCount.incrementAndGet();
+                    notifyFailed(epoch.mTimestamp, e);
+                    continue;
+                }
+
+                mProcessedCount.incrementAndGet();
+                notifyProcessed(epoch.mTimestamp, updated);
+            }
+        } finally {
+            if (!drained) {
+                // processing was aborted, so that next submission must schedule
+                // a new task for remaining epochs
+                synchronized (mQueue) {
+                    mScheduled = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies that an epoch has been processed.
+     * Exceptions raised by listener are ignored so that remaining queued epochs
+     * are still processed.
+     *
+     * @param timestamp timestamp expressed in seconds since epoch time of
+     *                  processed epoch.
+     * @param updated   true if estimator was updated, false if measurements were
+     *                  ignored.
+     */
+    private void notifyProcessed(final double timestamp, final boolean updated) {
+        if (mListener == null) {
+            return;
+        }
+
+        try {
+            mListener.onProcessed(this, timestamp, updated);
+        } catch (final RuntimeException ignore) {
+            // listener failures are ignored
+        }
+    }
+
+    /**
+     * Notifies that processing of an epoch failed.
+     * Exceptions raised by listener are ignored so that remaining queued epochs
+     * are still processed.
+     *
+     * @param timestamp timestamp expressed in seconds since epoch time of failed
+     *                  epoch.
+     * @param e         cause of failure.
+     */
+    private void notifyFailed(final double timestamp, final Exception e) {
+        if (mListener == null) {
+            return;
+        }
+
+        try {
+            mListener.onFailed(this, timestamp, e);
+        } catch (final RuntimeException ignore) {
+            // listener failures are ignored
+        }
+    }
+
+    /**
+     * Queued GNSS measurements along with their timestamp.
+     */
+    private static class Epoch {
+        /**
+         * GNSS measurements.
+         */
+        private final Collection<GNSSMeasurement> mMeasurements;
+
+        /**
+         * Timestamp expressed in seconds since epoch time.
+         */
+        private final double mTimestamp;
+
+        /**
+         * Constructor.
+         *
+         * @param measurements GNSS measurements.
+         * @param timestamp    timestamp expressed in seconds since epoch time.
+         */
+        private Epoch(final Collection<GNSSMeasurement> measurements,
+                      final double timestamp) {
+            mMeasurements = measurements;
+            mTimestamp = timestamp;
+        }
+    }
+}
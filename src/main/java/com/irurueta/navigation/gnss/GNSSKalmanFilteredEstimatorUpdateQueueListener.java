@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+/**
+ * Listener defining events of GNSSKalmanFilteredEstimatorUpdateQueue.
+ * Processing events are raised from the executor thread processing queued
+ * measurements, whereas drop events are raised from the thread submitting or
+ * clearing the measurements that cause the drop. Hence, implementations must be
+ * thread-safe.
+ */
+public interface GNSSKalmanFilteredEstimatorUpdateQueueListener {
+
+    /**
+     * Called when queued measurements have been processed.
+     *
+     * @param queue     queue raising the event.
+     * @param timestamp timestamp expressed in seconds (s) of processed
+     *                  measurements.
+     * @param updated   true if Kalman filter was updated, false if measurements
+     *                  were ignored by the estimator.
+     */
+    void onProcessed(final GNSSKalmanFilteredEstimatorUpdateQueue queue,
+                     final double timestamp, final boolean updated);
+
+    /**
+     * Called when queued measurements are discarded without being processed
+     * because newer measurements superseded them.
+     *
+     * @param queue     queue raising the event.
+     * @param timestamp timestamp expressed in seconds (s) of discarded
+     *                  measurements.
+     */
+    void onDropped(final GNSSKalmanFilteredEstimatorUpdateQueue queue,
+                   final double timestamp);
+
+    /**
+     * Called when processing of queued measurements fails.
+     *
+     * @param queue     queue raising the event.
+     * @param timestamp timestamp expressed in seconds (s) of measurements that
+     *                  could not be processed.
+     * @param e         cause of failure.
+     */
+    void onFailed(final GNSSKalmanFilteredEstimatorUpdateQueue queue,
+                  final double timestamp, final Exception e);
+}
@@ -0,0 +1,507 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.units.Time;
+
+import java.util.Collection;
+
+/**
+ * Fixed-lag smoother wrapping a GNSSKalmanFilteredEstimator, which provides
+ * smoothed estimations with a bounded latency for consumers accepting a few
+ * epochs of delay in exchange for smoother tracks.
+ * Measurements are fed to the wrapped estimator through this class, and each
+ * filtered state is recorded into a ring buffer of primitive arrays able to
+ * hold twice the lag, so that no memory is allocated per epoch.
+ * Whenever the ring buffer is full, a single Rauch-Tung-Striebel backward pass
+ * is executed over all buffered epochs and the oldest lag epochs are notified
+ * and discarded. Hence, each notified epoch is smoothed using at least lag
+ * subsequent epochs, and the cost is two backward steps per epoch regardless
+ * of the lag, instead of re-smoothing the whole window at every epoch.
+ * Kalman filter configuration of wrapped estimator is assumed to be constant
+ * while epochs are buffered.
+ * This class is not thread-safe.
+ */
+public class GNSSKalmanFixedLagSmoother {
+
+    /**
+     * Default number of subsequent epochs used to smooth each epoch.
+     */
+    public static final int DEFAULT_LAG = 10;
+
+    /**
+     * Number of states of the GNSS Kalman filter.
+     */
+    private static final int SIZE = GNSSEstimation.NUM_PARAMETERS;
+
+    /**
+     * Number of values stored for each epoch, which are the propagation interval
+     * from previous epoch, the filtered state and its packed covariance.
+     */
+    private static final int RECORD_LENGTH = 1 + SIZE
+            + GNSSKalmanState.PACKED_COVARIANCE_LENGTH;
+
+    /**
+     * Number of values stored for each smoothed epoch, which are the smoothed
+     * state and its packed covariance.
+     */
+    private static final int SMOOTHED_LENGTH = SIZE
+            + GNSSKalmanState.PACKED_COVARIANCE_LENGTH;
+
+    /**
+     * Wrapped estimator.
+     */
+    private final GNSSKalmanFilteredEstimator mEstimator;
+
+    /**
+     * Number of subsequent epochs used to smooth each epoch.
+     */
+    private final int mLag;
+
+    /**
+     * Maximum number of buffered epochs.
+     */
+    private final int mCapacity;
+
+    /**
+     * Ring buffer containing filtered epochs.
+     */
+    private final double[] mRecords;
+
+    /**
+     * Ring buffer containing timestamps of filtered epochs.
+     */
+    private final double[] mTimestamps;
+
+    /**
+     * Smoothed epochs pending to be notified.
+     */
+    private final double[] mSmoothed;
+
+    /**
+     * Position within ring buffers of oldest buffered epoch.
+     */
+    private int mHead;
+
+    /**
+     * Number of buffered epochs.
+     */
+    private int mSize;
+
+    /**
+     * Timestamp expressed in seconds (s) of last recorded epoch.
+     */
+    private Double mLastTimestamp;
+
+    /**
+     * Number of notified smoothed epochs.
+     */
+    private long mSmoothedCount;
+
+    /**
+     * Listener notified of smoothed epochs.
+     */
+    private GNSSKalmanFixedLagSmootherListener mListener;
+
+    /**
+     * Backward step of the smoother.
+     */
+    private final GNSSKalmanSmoother.BackwardStep mStep =
+            new GNSSKalmanSmoother.BackwardStep();
+
+    /**
+     * Kalman filter configuration to be reused.
+     */
+    private final GNSSKalmanConfig mConfig = new GNSSKalmanConfig();
+
+    /**
+     * Kalman filter state to be reused.
+     */
+    private final GNSSKalmanState mState = new GNSSKalmanState();
+
+    /**
+     * Estimation to be reused.
+     */
+    private final GNSSEstimation mEstimation = new GNSSEstimation();
+
+    /**
+     * Array to be reused for estimations.
+     */
+    private final double[] mEstimationArray = new double[SIZE];
+
+    /**
+     * Smoothed state to be reused.
+     */
+    private final double[] mSmoothedX = new double[SIZE];
+
+    /**
+     * Smoothed packed covariance to be reused.
+     */
+    private final double[] mSmoothedP =
+            new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+
+    /**
+     * Constructor.
+     *
+     * @param estimator estimator to be wrapped.
+     * @throws NullPointerException if estimator is null.
+     */
+    public GNSSKalmanFixedLagSmoother(final GNSSKalmanFilteredEstimator estimator) {
+        this(estimator, DEFAULT_LAG);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param estimator estimator to be wrapped.
+     * @param lag       number of subsequent epochs used to smooth each epoch.
+     * @throws IllegalArgumentException if lag is less than 1.
+     * @throws NullPointerException     if estimator is null.
+     */
+    public GNSSKalmanFixedLagSmoother(final GNSSKalmanFilteredEstimator estimator,
+                                      final int lag) {
+        this(estimator, lag, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param estimator estimator to be wrapped.
+     * @param lag       number of subsequent epochs used to smooth each epoch.
+     * @param listener  listener notified of smoothed epochs.
+     * @throws IllegalArgumentException if lag is less than 1.
+     * @throws NullPointerException     if estimator is null.
+     */
+    public GNSSKalmanFixedLagSmoother(final GNSSKalmanFilteredEstimator estimator,
+                                      final int lag,
+                                      final GNSSKalmanFixedLagSmootherListener listener) {
+        if (estimator == null) {
+            throw new NullPointerException();
+        }
+        if (lag < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        mEstimator = estimator;
+        mLag = lag;
+        mCapacity = 2 * lag;
+        mRecords = new double[mCapacity * RECORD_LENGTH];
+        mTimestamps = new double[mCapacity];
+        mSmoothed = new double[mCapacity * SMOOTHED_LENGTH];
+        mListener = listener;
+    }
+
+    /**
+     * Gets wrapped estimator.
+     *
+     * @return wrapped estimator.
+     */
+    public GNSSKalmanFilteredEstimator getEstimator() {
+        return mEstimator;
+    }
+
+    /**
+     * Gets number of subsequent epochs used to smooth each epoch.
+     *
+     * @return lag expressed in number of epochs.
+     */
+    public int getLag() {
+        return mLag;
+    }
+
+    /**
+     * Gets listener notified of smoothed epochs.
+     *
+     * @return listener notified of smoothed epochs.
+     */
+    public GNSSKalmanFixedLagSmootherListener getListener() {
+        return mListener;
+    }
+
+    /**
+     * Sets listener notified of smoothed epochs.
+     *
+     * @param listener listener notified of smoothed epochs.
+     */
+    public void setListener(final GNSSKalmanFixedLagSmootherListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Gets number of filtered epochs currently buffered.
+     *
+     * @return number of buffered epochs.
+     */
+    public int getBufferedCount() {
+        return mSize;
+    }
+
+    /**
+     * Gets number of smoothed epochs released so far.
+     *
+     * @return number of smoothed epochs.
+     */
+    public long getSmoothedCount() {
+        return mSmoothedCount;
+    }
+
+    /**
+     * Updates GNSS measurements of wrapped estimator and records its filtered
+     * state if it was updated.
+     *
+     * @param measurements GNSS measurements to be updated.
+     * @param timestamp    timestamp since epoch time when GNSS measurements were
+     *                     updated.
+     * @return true if measurements were updated, false otherwise.
+     * @throws LockedException   if wrapped estimator is already running.
+     * @throws NotReadyException if wrapped estimator is not ready for measurements
+     *                           updates.
+     * @throws GNSSException     if estimation fails due to numerical instabilities.
+     */
+    public boolean updateMeasurements(
+            final Collection<GNSSMeasurement> measurements, final Time timestamp)
+            throws LockedException, NotReadyException, GNSSException {
+        return record(mEstimator.updateMeasurements(measurements, timestamp));
+    }
+
+    /**
+     * Updates GNSS measurements of wrapped estimator and records its filtered
+     * state if it was updated.
+     *
+     * @param measurements GNSS measurements to be updated.
+     * @param timestamp    timestamp expressed in seconds since epoch time when
+     *                     GNSS measurements were updated.
+     * @return true if measurements were updated, false otherwise.
+     * @throws LockedException   if wrapped estimator is already running.
+     * @throws NotReadyException if wrapped estimator is not ready for measurements
+     *                           updates.
+     * @throws GNSSException     if estimation fails due to numerical instabilities.
+     */
+    public boolean updateMeasurements(
+            final Collection<GNSSMeasurement> measurements, final double timestamp)
+            throws LockedException, NotReadyException, GNSSException {
+        return record(mEstimator.updateMeasurements(measurements, timestamp));
+    }
+
+    /**
+     * Updates GNSS measurements of wrapped estimator and records its filtered
+     * state if it was updated.
+     *
+     * @param measurements GNSS measurements to be updated stored in primitive
+     *                     arrays.
+     * @param timestamp    timestamp since epoch time when GNSS measurements were
+     *                     updated.
+     * @return true if measurements were updated, false otherwise.
+     * @throws LockedException   if wrapped estimator is already running.
+     * @throws NotReadyException if wrapped estimator is not ready for measurements
+     *                           updates.
+     * @throws GNSSException     if estimation fails due to numerical instabilities.
+     */
+    public boolean updateMeasurementBatch(
+            final GNSSMeasurementBatch measurements, final Time timestamp)
+            throws LockedException, NotReadyException, GNSSException {
+        return record(mEstimator.updateMeasurementBatch(measurements, timestamp));
+    }
+
+    /**
+     * Updates GNSS measurements of wrapped estimator and records its filtered
+     * state if it was updated.
+     *
+     * @param measurements GNSS measurements to be updated stored in primitive
+     *                     arrays.
+     * @param timestamp    timestamp expressed in seconds since epoch time when
+     *                     GNSS measurements were updated.
+     * @return true if measurements were updated, false otherwise.
+     * @throws LockedException   if wrapped estimator is already running.
+     * @throws NotReadyException if wrapped estimator is not ready for measurements
+     *                           updates.
+     * @throws GNSSException     if estimation fails due to numerical instabilities.
+     */
+    public boolean updateMeasurementBatch(
+            final GNSSMeasurementBatch measurements, final double timestamp)
+            throws LockedException, NotReadyException, GNSSException {
+        return record(mEstimator.updateMeasurementBatch(measurements, timestamp));
+    }
+
+    /**
+     * Propagates Kalman filter state of wrapped estimator and records its
+     * filtered state if it was propagated.
+     *
+     * @param timestamp timestamp since epoch to propagate state.
+     * @return true if state was propagated, false otherwise.
+     * @throws LockedException   if wrapped estimator is already running.
+     * @throws NotReadyException if wrapped estimator is not ready for
+     *                           propagation.
+     * @throws GNSSException     if estimation fails due to numerical instabilities.
+     */
+    public boolean propagate(final Time timestamp) throws LockedException,
+            NotReadyException, GNSSException {
+        return record(mEstimator.propagate(timestamp));
+    }
+
+    /**
+     * Propagates Kalman filter state of wrapped estimator and records its
+     * filtered state if it was propagated.
+     *
+     * @param timestamp timestamp expressed in seconds since epoch to propagate
+     *                  state.
+     * @return true if state was propagated, false otherwise.
+     * @throws LockedException   if wrapped estimator is already running.
+     * @throws NotReadyException if wrapped estimator is not ready for
+     *                           propagation.
+     * @throws GNSSException     if estimation fails due to numerical instabilities.
+     */
+    public boolean propagate(final double timestamp) throws LockedException,
+            NotReadyException, GNSSException {
+        return record(mEstimator.propagate(timestamp));
+    }
+
+    /**
+     * Smooths and notifies all buffered epochs using the subsequent epochs that
+     * are available, regardless of the lag.
+     * This method is typically called at the end of a stream of measurements.
+     *
+     * @return number of notified epochs.
+     */
+    public int flush() {
+        final int count = mSize;
+        release(count);
+        return count;
+    }
+
+    /**
+     * Discards all buffered epochs without notifying them.
+     * Wrapped estimator is not modified.
+     */
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+        mLastTimestamp = null;
+        mSmoothedCount = 0;
+    }
+
+    /**
+     * Resets wrapped estimator and discards all buffered epochs without
+     * notifying them.
+     *
+     * @throws LockedException if wrapped estimator is already running.
+     */
+    public void reset() throws LockedException {
+        mEstimator.reset();
+        clear();
+    }
+
+    /**
+     * Records current filtered state of wrapped estimator if it has been
+     * updated, and releases oldest epochs once the ring buffer is full.
+     *
+     * @param updated true if wrapped estimator has been updated.
+     * @return provided value.
+     */
+    private boolean record(final boolean updated) {
+        if (!updated || !mEstimator.getState(mState)) {
+            return updated;
+        }
+
+        final double timestamp = mEstimator.getLastStateTimestamp();
+        final int index = (mHead + mSize) % mCapacity;
+        final int offset = index * RECORD_LENGTH;
+        mRecords[offset] = mLastTimestamp != null ? timestamp - mLastTimestamp : 0.0;
+        mState.getEstimation(mEstimation);
+        mEstimation.asArray(mEstimationArray);
+        System.arraycopy(mEstimationArray, 0, mRecords, offset + 1, SIZE);
+        System.arraycopy(mState.getPackedCovarianceBuffer(), 0, mRecords,
+                offset + 1 + SIZE, GNSSKalmanState.PACKED_COVARIANCE_LENGTH);
+        mTimestamps[index] = timestamp;
+        mLastTimestamp = timestamp;
+        mSize++;
+
+        if (mSize == mCapacity) {
+            release(mLag);
+        }
+        return true;
+    }
+
+    /**
+     * Executes a backward pass over all buffered epochs, discards the oldest
+     * provided number of them and notifies them in chronological order.
+     * Epochs are discarded before being notified, so that they are never
+     * notified twice even if listener fails.
+     *
+     * @param count number of epochs to be released.
+     */
+    private void release(final int count) {
+        if (count == 0) {
+            return;
+        }
+
+        final int head = mHead;
+        final boolean notify = mListener != null;
+        if (notify) {
+            mEstimator.getConfig(mConfig);
+
+            // newest epoch is already smoothed
+            int i = mSize - 1;
+            int offset = ((mHead + i) % mCapacity) * RECORD_LENGTH;
+            System.arraycopy(mRecords, offset + 1, mSmoothedX, 0, SIZE);
+            System.arraycopy(mRecords, offset + 1 + SIZE, mSmoothedP, 0,
+                    GNSSKalmanState.PACKED_COVARIANCE_LENGTH);
+            store(i, count);
+
+            double nextInterval = mRecords[offset];
+            for (i--; i >= 0; i--) {
+                offset = ((mHead + i) % mCapacity) * RECORD_LENGTH;
+                mStep.smooth(mRecords, offset + 1, nextInterval, mConfig,
+                        mSmoothedX, mSmoothedP);
+                nextInterval = mRecords[offset];
+                store(i, count);
+            }
+        }
+
+        mHead = (mHead + count) % mCapacity;
+        mSize -= count;
+        mSmoothedCount += count;
+
+        if (notify) {
+            for (int i = 0; i < count; i++) {
+                final int pos = i * SMOOTHED_LENGTH;
+                System.arraycopy(mSmoothed, pos, mEstimationArray, 0, SIZE);
+                System.arraycopy(mSmoothed, pos + SIZE, mSmoothedP, 0,
+                        GNSSKalmanState.PACKED_COVARIANCE_LENGTH);
+                mEstimation.fromArray(mEstimationArray);
+                mListener.onSmoothed(this, mTimestamps[(head + i) % mCapacity],
+                        mEstimation, mSmoothedP);
+            }
+        }
+    }
+
+    /**
+     * Stores current smoothed state if it belongs to an epoch to be released.
+     *
+     * @param i     position of epoch relative to oldest buffered epoch.
+     * @param count number of epochs to be released.
+     */
+    private void store(final int i, final int count) {
+        if (i < count) {
+            final int pos = i * SMOOTHED_LENGTH;
+            System.arraycopy(mSmoothedX, 0, mSmoothed, pos, SIZE);
+            System.arraycopy(mSmoothedP, 0, mSmoothed, pos + SIZE,
+                    GNSSKalmanState.PACKED_COVARIANCE_LENGTH);
+        }
+    }
+}
@@ -15,8 +15,7 @@
  */
 package com.irurueta.navigation.gnss;
 
-import com.irurueta.algebra.Matrix;
-import com.irurueta.algebra.WrongSizeException;
+import java.util.Arrays;
 
 /**
  * Initializes the GNSS EKF Kalman filter state estimates and error covariance matrix.
@@ -50,27 +49,20 @@ public class GNSSKalmanInitializer {
         final double initClockOffsetUnc2 = initClockOffsetUnc * initClockOffsetUnc;
         final double initClockDriftUnc2 = initClockDriftUnc * initClockDriftUnc;
 
-        Matrix covariance;
-        try {
-            covariance = new Matrix(GNSSEstimation.NUM_PARAMETERS,
-                    GNSSEstimation.NUM_PARAMETERS);
+        // only diagonal elements are non-zero
+        final double[] covariance = result.getPackedCovarianceBuffer();
+        Arrays.fill(covariance, 0.0);
 
-            covariance.setElementAt(0, 0, initPosUnc2);
-            covariance.setElementAt(1, 1, initPosUnc2);
-            covariance.setElementAt(2, 2, initPosUnc2);
+        covariance[GNSSKalmanState.packedIndex(0, 0)] = initPosUnc2;
+        covariance[GNSSKalmanState.packedIndex(1, 1)] = initPosUnc2;
+        covariance[GNSSKalmanState.packedIndex(2, 2)] = initPosUnc2;
 
-            covariance.setElementAt(3, 3, initVelUnc2);
-            covariance.setElementAt(4, 4, initVelUnc2);
-            covariance.setElementAt(5, 5, initVelUnc2);
+        covariance[GNSSKalmanState.packedIndex(3, 3)] = initVelUnc2;
+        covariance[GNSSKalmanState.packedIndex(4, 4)] = initVelUnc2;
+        covariance[GNSSKalmanState.packedIndex(5, 5)] = initVelUnc2;
 
-            covariance.setElementAt(6, 6, initClockOffsetUnc2);
-            covariance.setElementAt(7, 7, initClockDriftUnc2);
-
-            result.setCovariance(covariance);
-
-        } catch (final WrongSizeException ignore) {
-            // never happens
-        }
+        covariance[GNSSKalmanState.packedIndex(6, 6)] = initClockOffsetUnc2;
+        covariance[GNSSKalmanState.packedIndex(7, 7)] = initClockDriftUnc2;
     }
 
     /**
@@ -0,0 +1,813 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.algebra.AlgebraException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeConverter;
+import com.irurueta.units.TimeUnit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Rauch-Tung-Striebel fixed-interval smoother for the GNSS Kalman filter.
+ * Forward pass is executed using {@link GNSSKalmanEpochEstimator}, and the
+ * updated state, packed error covariance matrix and propagation interval of
+ * each epoch are recorded in chunks of primitive arrays, so that long logs
+ * (e.g. day-long 10 Hz logs containing hundreds of thousands of epochs) neither
+ * require one object per epoch nor a single huge array that must be copied
+ * as it grows.
+ * Predicted states are not stored, since they are deterministically obtained
+ * from the updated state of the previous epoch, the propagation interval and
+ * the Kalman filter configuration. They are recomputed during the backward
+ * pass, which halves required storage.
+ * Backward pass sweeps recorded chunks from last to first epoch and overwrites
+ * each filtered state with its smoothed one, hence no additional storage is
+ * required and smoothed states can be streamed through a listener as soon as
+ * they are computed.
+ * This class is not thread-safe.
+ */
+public class GNSSKalmanSmoother {
+
+    /**
+     * Default number of epochs stored in each chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /**
+     * Number of states of the GNSS Kalman filter.
+     */
+    private static final int SIZE = GNSSEstimation.NUM_PARAMETERS;
+
+    /**
+     * Position of propagation interval within the record of an epoch.
+     */
+    private static final int INTERVAL_OFFSET = 0;
+
+    /**
+     * Position of estimation within the record of an epoch.
+     */
+    private static final int ESTIMATION_OFFSET = 1;
+
+    /**
+     * Position of packed covariance within the record of an epoch.
+     */
+    private static final int COVARIANCE_OFFSET = ESTIMATION_OFFSET + SIZE;
+
+    /**
+     * Number of values stored for each epoch.
+     */
+    private static final int RECORD_LENGTH = COVARIANCE_OFFSET
+            + GNSSKalmanState.PACKED_COVARIANCE_LENGTH;
+
+    /**
+     * Kalman filter configuration.
+     */
+    private final GNSSKalmanConfig mConfig;
+
+    /**
+     * Number of epochs stored in each chunk.
+     */
+    private final int mChunkSize;
+
+    /**
+     * Chunks containing recorded epochs.
+     */
+    private final List<double[]> mChunks = new ArrayList<>();
+
+    /**
+     * Number of recorded epochs.
+     */
+    private int mNumberOfEpochs;
+
+    /**
+     * Indicates whether backward pass has already been executed.
+     */
+    private boolean mSmoothed;
+
+    /**
+     * Estimation of last recorded epoch to be reused by forward pass.
+     */
+    private final GNSSEstimation mPreviousEstimation = new GNSSEstimation();
+
+    /**
+     * Covariance of last recorded epoch to be reused by forward pass.
+     */
+    private final double[] mPreviousCovariance =
+            new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+
+    /**
+     * Updated estimation to be reused by forward pass.
+     */
+    private final GNSSEstimation mUpdatedEstimation = new GNSSEstimation();
+
+    /**
+     * Updated covariance to be reused by forward pass.
+     */
+    private final double[] mUpdatedCovariance =
+            new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+
+    /**
+     * Array to be reused to record estimations.
+     */
+    private final double[] mEstimationArray = new double[SIZE];
+
+    /**
+     * Constructor.
+     *
+     * @param config Kalman filter configuration used on forward pass.
+     * @throws NullPointerException if configuration is null.
+     */
+    public GNSSKalmanSmoother(final GNSSKalmanConfig config) {
+        this(config, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param config    Kalman filter configuration used on forward pass.
+     * @param chunkSize number of epochs stored in each chunk.
+     * @throws IllegalArgumentException if chunk size is less than 1.
+     * @throws NullPointerException     if configuration is null.
+     */
+    public GNSSKalmanSmoother(final GNSSKalmanConfig config, final int chunkSize) {
+        if (config == null) {
+            throw new NullPointerException();
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        mConfig = new GNSSKalmanConfig(config);
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Gets Kalman filter configuration used on forward pass.
+     *
+     * @return Kalman filter configuration.
+     */
+    public GNSSKalmanConfig getConfig() {
+        return new GNSSKalmanConfig(mConfig);
+    }
+
+    /**
+     * Gets number of epochs stored in each chunk.
+     *
+     * @return number of epochs stored in each chunk.
+     */
+    public int getChunkSize() {
+        return mChunkSize;
+    }
+
+    /**
+     * Gets number of recorded epochs.
+     *
+     * @return number of recorded epochs.
+     */
+    public int getNumberOfEpochs() {
+        return mNumberOfEpochs;
+    }
+
+    /**
+     * Indicates whether backward pass has already been executed, and hence
+     * recorded states are smoothed.
+     *
+     * @return true if recorded states are smoothed, false if they are filtered.
+     */
+    public boolean isSmoothed() {
+        return mSmoothed;
+    }
+
+    /**
+     * Records the filtered state of a new epoch.
+     * Propagation interval of first recorded epoch is ignored.
+     *
+     * @param propagationInterval propagation interval from previous epoch.
+     * @param state               updated Kalman filter state.
+     * @throws IllegalArgumentException if propagation interval is negative or
+     *                                  state has no covariance.
+     * @throws IllegalStateException    if backward pass has already been
+     *                                  executed.
+     */
+    public void add(final Time propagationInterval, final GNSSKalmanState state) {
+        add(convertTime(propagationInterval), state);
+    }
+
+    /**
+     * Records the filtered state of a new epoch.
+     * Propagation interval of first recorded epoch is ignored.
+     *
+     * @param propagationInterval propagation interval from previous epoch
+     *                            expressed in seconds (s).
+     * @param state               updated Kalman filter state.
+     * @throws IllegalArgumentException if propagation interval is negative or
+     *                                  state has no covariance.
+     * @throws IllegalStateException    if backward pass has already been
+     *                                  executed.
+     */
+    public void add(final double propagationInterval, final GNSSKalmanState state) {
+        if (!state.hasCovariance()) {
+            throw new IllegalArgumentException();
+        }
+
+        state.getEstimation(mUpdatedEstimation);
+        add(propagationInterval, mUpdatedEstimation,
+                state.getPackedCovarianceBuffer());
+    }
+
+    /**
+     * Records the filtered state of a new epoch.
+     * Propagation interval of first recorded epoch is ignored.
+     *
+     * @param propagationInterval propagation interval from previous epoch
+     *                            expressed in seconds (s).
+     * @param estimation          updated GNSS estimation.
+     * @param covariance          upper triangular part of updated Kalman filter
+     *                            error covariance matrix stored in row-major
+     *                            packed order.
+     * @throws IllegalArgumentException if propagation interval is negative or
+     *                                  covariance does not have length 36.
+     * @throws IllegalStateException    if backward pass has already been
+     *                                  executed.
+     */
+    public void add(final double propagationInterval,
+                    final GNSSEstimation estimation, final double[] covariance) {
+        if (mSmoothed) {
+            throw new IllegalStateException();
+        }
+        if (propagationInterval < 0.0
+                || covariance.length != GNSSKalmanState.PACKED_COVARIANCE_LENGTH) {
+            throw new IllegalArgumentException();
+        }
+
+        final int chunkIndex = mNumberOfEpochs / mChunkSize;
+        if (chunkIndex == mChunks.size()) {
+            mChunks.add(new double[mChunkSize * RECORD_LENGTH]);
+        }
+
+        final double[] chunk = mChunks.get(chunkIndex);
+        final int offset = (mNumberOfEpochs % mChunkSize) * RECORD_LENGTH;
+        chunk[offset + INTERVAL_OFFSET] = propagationInterval;
+        estimation.asArray(mEstimationArray);
+        System.arraycopy(mEstimationArray, 0, chunk, offset + ESTIMATION_OFFSET,
+                SIZE);
+        System.arraycopy(covariance, 0, chunk, offset + COVARIANCE_OFFSET,
+                GNSSKalmanState.PACKED_COVARIANCE_LENGTH);
+
+        mNumberOfEpochs++;
+    }
+
+    /**
+     * Executes one epoch of the forward pass starting at the last recorded epoch
+     * and records the updated state.
+     *
+     * @param measurements        satellite measurements data.
+     * @param propagationInterval propagation interval from last recorded epoch.
+     * @throws NotReadyException     if no epoch has been recorded yet.
+     * @throws IllegalStateException if backward pass has already been executed.
+     * @throws GNSSException         if there are numerical instabilities.
+     */
+    public void estimate(final Collection<GNSSMeasurement> measurements,
+                         final Time propagationInterval) throws NotReadyException,
+            GNSSException {
+        estimate(measurements, convertTime(propagationInterval));
+    }
+
+    /**
+     * Executes one epoch of the forward pass starting at the last recorded epoch
+     * and records the updated state.
+     *
+     * @param measurements        satellite measurements data.
+     * @param propagationInterval propagation interval from last recorded epoch
+     *                            expressed in seconds (s).
+     * @throws NotReadyException     if no epoch has been recorded yet.
+     * @throws IllegalStateException if backward pass has already been executed.
+     * @throws GNSSException         if there are numerical instabilities.
+     */
+    public void estimate(final Collection<GNSSMeasurement> measurements,
+                         final double propagationInterval) throws NotReadyException,
+            GNSSException {
+        estimate(new GNSSMeasurementBatch(measurements), propagationInterval);
+    }
+
+    /**
+     * Executes one epoch of the forward pass starting at the last recorded epoch
+     * and records the updated state.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval from last recorded epoch.
+     * @throws NotReadyException     if no epoch has been recorded yet.
+     * @throws IllegalStateException if backward pass has already been executed.
+     * @throws GNSSException         if there are numerical instabilities.
+     */
+    public void estimate(final GNSSMeasurementBatch measurements,
+                         final Time propagationInterval) throws NotReadyException,
+            GNSSException {
+        estimate(measurements, convertTime(propagationInterval));
+    }
+
+    /**
+     * Executes one epoch of the forward pass starting at the last recorded epoch
+     * and records the updated state.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval from last recorded epoch
+     *                            expressed in seconds (s).
+     * @throws IllegalArgumentException if propagation interval is negative.
+     * @throws NotReadyException        if no epoch has been recorded yet.
+     * @throws IllegalStateException    if backward pass has already been
+     *                                  executed.
+     * @throws GNSSException            if there are numerical instabilities.
+     */
+    public void estimate(final GNSSMeasurementBatch measurements,
+                         final double propagationInterval) throws NotReadyException,
+            GNSSException {
+        if (mSmoothed) {
+            throw new IllegalStateException();
+        }
+        if (mNumberOfEpochs == 0) {
+            throw new NotReadyException();
+        }
+
+        getEstimation(mNumberOfEpochs - 1, mPreviousEstimation);
+        getPackedCovariance(mNumberOfEpochs - 1, mPreviousCovariance);
+
+        try {
+            GNSSKalmanEpochEstimator.estimate(measurements, propagationInterval,
+                    mPreviousEstimation, mPreviousCovariance, mConfig,
+                    mUpdatedEstimation, mUpdatedCovariance);
+        } catch (final AlgebraException e) {
+            throw new GNSSException(e);
+        }
+
+        add(propagationInterval, mUpdatedEstimation, mUpdatedCovariance);
+    }
+
+    /**
+     * Executes the backward pass, so that recorded filtered states are replaced
+     * by smoothed ones.
+     *
+     * @throws IllegalStateException if backward pass has already been executed.
+     */
+    public void smooth() {
+        smooth(null);
+    }
+
+    /**
+     * Executes the backward pass, so that recorded filtered states are replaced
+     * by smoothed ones.
+     * For each epoch k, from the second to last one down to the first one,
+     * smoothed state is obtained as:
+     * x(k|N) = x(k|k) + C(k) * (x(k+1|N) - x(k+1|k))
+     * P(k|N) = P(k|k) + C(k) * (P(k+1|N) - P(k+1|k)) * C(k)^T
+     * where C(k) = P(k|k) * Phi(k+1)^T * P(k+1|k)^-1, and predicted state and
+     * covariance of epoch k+1 are recomputed from the filtered state of epoch k.
+     * Predicted covariance is inverted through its U * D * U^T factorization, so
+     * that any direction having no uncertainty is ignored instead of making
+     * the backward pass fail.
+     *
+     * @param listener listener notified of each smoothed epoch in reverse order,
+     *                 or null if not needed.
+     * @throws IllegalStateException if backward pass has already been executed.
+     */
+    public void smooth(final GNSSKalmanSmootherListener listener) {
+        if (mSmoothed) {
+            throw new IllegalStateException();
+        }
+        mSmoothed = true;
+
+        if (mNumberOfEpochs == 0) {
+            return;
+        }
+
+        final BackwardStep step = new BackwardStep();
+        final double[] smoothedX = new double[SIZE];
+        final double[] smoothedP = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        final GNSSEstimation estimation = listener != null ? new GNSSEstimation() : null;
+
+        // last epoch is already smoothed
+        int k = mNumberOfEpochs - 1;
+        double[] chunk = mChunks.get(k / mChunkSize);
+        int offset = (k % mChunkSize) * RECORD_LENGTH;
+        System.arraycopy(chunk, offset + ESTIMATION_OFFSET, smoothedX, 0, SIZE);
+        System.arraycopy(chunk, offset + COVARIANCE_OFFSET, smoothedP, 0,
+                GNSSKalmanState.PACKED_COVARIANCE_LENGTH);
+        double nextInterval = chunk[offset + INTERVAL_OFFSET];
+        notify(listener, k, estimation, smoothedX, smoothedP);
+
+        k--;
+        while (k >= 0) {
+            // sweep chunk containing epoch k backwards
+            final int chunkIndex = k / mChunkSize;
+            final int first = chunkIndex * mChunkSize;
+            chunk = mChunks.get(chunkIndex);
+
+            for (; k >= first; k--) {
+                offset = (k - first) * RECORD_LENGTH;
+                step.smooth(chunk, offset + ESTIMATION_OFFSET, nextInterval,
+                        mConfig, smoothedX, smoothedP);
+                nextInterval = chunk[offset + INTERVAL_OFFSET];
+
+                // replace filtered state by smoothed one
+                System.arraycopy(smoothedX, 0, chunk, offset + ESTIMATION_OFFSET,
+                        SIZE);
+                System.arraycopy(smoothedP, 0, chunk, offset + COVARIANCE_OFFSET,
+                        GNSSKalmanState.PACKED_COVARIANCE_LENGTH);
+                notify(listener, k, estimation, smoothedX, smoothedP);
+            }
+        }
+    }
+
+    /**
+     * Gets propagation interval expressed in seconds (s) from previous epoch to
+     * provided one.
+     *
+     * @param epoch index of epoch.
+     * @return propagation interval.
+     * @throws IllegalArgumentException if epoch is not recorded.
+     */
+    public double getPropagationInterval(final int epoch) {
+        final double[] chunk = getChunk(epoch);
+        return chunk[(epoch % mChunkSize) * RECORD_LENGTH + INTERVAL_OFFSET];
+    }
+
+    /**
+     * Gets recorded estimation of provided epoch, which is filtered before
+     * executing the backward pass and smoothed afterwards.
+     *
+     * @param epoch  index of epoch.
+     * @param result instance where estimation will be stored.
+     * @throws IllegalArgumentException if epoch is not recorded.
+     */
+    public void getEstimation(final int epoch, final GNSSEstimation result) {
+        final double[] chunk = getChunk(epoch);
+        final int offset = (epoch % mChunkSize) * RECORD_LENGTH + ESTIMATION_OFFSET;
+        result.setPositionCoordinates(chunk[offset], chunk[offset + 1],
+                chunk[offset + 2]);
+        result.setVelocityCoordinates(chunk[offset + 3], chunk[offset + 4],
+                chunk[offset + 5]);
+        result.setClockOffset(chunk[offset + 6]);
+        result.setClockDrift(chunk[offset + 7]);
+    }
+
+    /**
+     * Gets recorded estimation of provided epoch, which is filtered before
+     * executing the backward pass and smoothed afterwards.
+     *
+     * @param epoch index of epoch.
+     * @return estimation.
+     * @throws IllegalArgumentException if epoch is not recorded.
+     */
+    public GNSSEstimation getEstimation(final int epoch) {
+        final GNSSEstimation result = new GNSSEstimation();
+        getEstimation(epoch, result);
+        return result;
+    }
+
+    /**
+     * Gets recorded error covariance matrix of provided epoch, which is filtered
+     * before executing the backward pass and smoothed afterwards.
+     *
+     * @param epoch  index of epoch.
+     * @param result array where upper triangular part of covariance will be
+     *               stored in row-major packed order.
+     * @throws IllegalArgumentException if epoch is not recorded or if provided
+     *                                  array does not have length 36.
+     */
+    public void getPackedCovariance(final int epoch, final double[] result) {
+        if (result.length != GNSSKalmanState.PACKED_COVARIANCE_LENGTH) {
+            throw new IllegalArgumentException();
+        }
+
+        final double[] chunk = getChunk(epoch);
+        System.arraycopy(chunk,
+                (epoch % mChunkSize) * RECORD_LENGTH + COVARIANCE_OFFSET, result,
+                0, GNSSKalmanState.PACKED_COVARIANCE_LENGTH);
+    }
+
+    /**
+     * Gets recorded Kalman filter state of provided epoch, which is filtered
+     * before executing the backward pass and smoothed afterwards.
+     *
+     * @param epoch  index of epoch.
+     * @param result instance where state will be stored.
+     * @throws IllegalArgumentException if epoch is not recorded.
+     */
+    public void getState(final int epoch, final GNSSKalmanState result) {
+        getEstimation(epoch, mPreviousEstimation);
+        result.setEstimation(mPreviousEstimation);
+        getPackedCovariance(epoch, mPreviousCovariance);
+        result.setPackedCovariance(mPreviousCovariance);
+    }
+
+    /**
+     * Gets recorded Kalman filter state of provided epoch, which is filtered
+     * before executing the backward pass and smoothed afterwards.
+     *
+     * @param epoch index of epoch.
+     * @return state.
+     * @throws IllegalArgumentException if epoch is not recorded.
+     */
+    public GNSSKalmanState getState(final int epoch) {
+        final GNSSKalmanState result = new GNSSKalmanState();
+        getState(epoch, result);
+        return result;
+    }
+
+    /**
+     * Discards all recorded epochs so that a new interval can be smoothed.
+     * Allocated chunks are kept to be reused.
+     */
+    public void reset() {
+        mNumberOfEpochs = 0;
+        mSmoothed = false;
+    }
+
+    /**
+     * Gets chunk containing provided epoch.
+     *
+     * @param epoch index of epoch.
+     * @return chunk containing epoch.
+     * @throws IllegalArgumentException if epoch is not recorded.
+     */
+    private double[] getChunk(final int epoch) {
+        if (epoch < 0 || epoch >= mNumberOfEpochs) {
+            throw new IllegalArgumentException();
+        }
+        return mChunks.get(epoch / mChunkSize);
+    }
+
+    /**
+     * Notifies a smoothed epoch to provided listener, if any.
+     *
+     * @param listener   listener to be notified or null.
+     * @param epoch      index of smoothed epoch.
+     * @param estimation instance to be reused to notify estimation.
+     * @param x          smoothed state.
+     * @param covariance smoothed packed covariance.
+     */
+    private void notify(final GNSSKalmanSmootherListener listener, final int epoch,
+                        final GNSSEstimation estimation, final double[] x,
+                        final double[] covariance) {
+        if (listener != null) {
+            estimation.fromArray(x);
+            listener.onEpochSmoothed(this, epoch, estimation, covariance);
+        }
+    }
+
+    /**
+     * Converts time instance into a value expressed in seconds.
+     *
+     * @param time time instance to be converted.
+     * @return time value expressed in seconds.
+     */
+    private static double convertTime(final Time time) {
+        return TimeConverter.convert(time.getValue().doubleValue(),
+                time.getUnit(), TimeUnit.SECOND);
+    }
+
+    /**
+     * Executes one step of the Rauch-Tung-Striebel backward pass, reusing
+     * internal buffers so that no memory is allocated.
+     */
+    static class BackwardStep {
+
+        /**
+         * Filtered state of current epoch.
+         */
+        private final double[] mX = new double[SIZE];
+
+        /**
+         * Filtered covariance of current epoch in packed form.
+         */
+        private final double[] mP = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+
+        /**
+         * Predicted state of next epoch.
+         */
+        private final double[] mPredictedX = new double[SIZE];
+
+        /**
+         * Predicted covariance of next epoch in packed form.
+         */
+        private final double[] mPredictedP =
+                new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+
+        /**
+         * Filtered covariance of current epoch.
+         */
+        private final double[] mPk = new double[SIZE * SIZE];
+
+        /**
+         * Filtered covariance of current epoch multiplied by transposed
+         * transition matrix.
+         */
+        private final double[] mA = new double[SIZE * SIZE];
+
+        /**
+         * Smoother gain.
+         */
+        private final double[] mC = new double[SIZE * SIZE];
+
+        /**
+         * Difference between smoothed and predicted covariances of next epoch.
+         */
+        private final double[] mDp = new double[SIZE * SIZE];
+
+        /**
+         * Smoother gain multiplied by covariance difference.
+         */
+        private final double[] mM = new double[SIZE * SIZE];
+
+        /**
+         * Unit upper triangular factor of predicted covariance.
+         */
+        private final double[] mU = new double[SIZE * SIZE];
+
+        /**
+         * Diagonal factor of predicted covariance.
+         */
+        private final double[] mD = new double[SIZE];
+
+        /**
+         * Difference between smoothed and predicted states of next epoch.
+         */
+        private final double[] mDiffX = new double[SIZE];
+
+        /**
+         * Computes smoothed state of an epoch as:
+         * x(k|N) = x(k|k) + C(k) * (x(k+1|N) - x(k+1|k))
+         * P(k|N) = P(k|k) + C(k) * (P(k+1|N) - P(k+1|k)) * C(k)^T
+         * where C(k) = P(k|k) * Phi(k+1)^T * P(k+1|k)^-1, and predicted state and
+         * covariance of next epoch are recomputed from the filtered state of
+         * current epoch using (3.14) and (3.15).
+         * Predicted covariance is inverted through its U * D * U^T
+         * factorization, so that any direction having no uncertainty is ignored.
+         *
+         * @param records   array containing filtered state of current epoch
+         *                  followed by its packed covariance.
+         * @param offset    position of filtered state within records.
+         * @param interval  propagation interval expressed in seconds (s) from
+         *                  current epoch to next one.
+         * @param config    Kalman filter configuration.
+         * @param smoothedX smoothed state of next epoch, which is replaced by
+         *                  smoothed state of current epoch.
+         * @param smoothedP smoothed packed covariance of next epoch, which is
+         *                  replaced by smoothed packed covariance of current
+         *                  epoch.
+         */
+        void smooth(final double[] records, final int offset, final double interval,
+                    final GNSSKalmanConfig config, final double[] smoothedX,
+                    final double[] smoothedP) {
+            System.arraycopy(records, offset, mX, 0, SIZE);
+            System.arraycopy(records, offset + SIZE, mP, 0,
+                    GNSSKalmanState.PACKED_COVARIANCE_LENGTH);
+
+            // recompute prediction of next epoch using (3.14) and (3.15)
+            for (int i = 0; i < SIZE; i++) {
+                final int si = GNSSKalmanEpochEstimator.getTransitionSource(i);
+                mPredictedX[i] = si >= 0 ? mX[i] + interval * mX[si] : mX[i];
+            }
+            GNSSKalmanEpochEstimator.propagateCovariance(mP, interval, config,
+                    mPredictedP);
+
+            // A = P(k|k) * Phi^T, where transition matrix only differs from the
+            // identity at (0, 3), (1, 4), (2, 5) and (6, 7)
+            unpack(mP, mPk);
+            for (int i = 0; i < SIZE; i++) {
+                final int row = i * SIZE;
+                for (int j = 0; j < SIZE; j++) {
+                    final int sj = GNSSKalmanEpochEstimator.getTransitionSource(j);
+                    mA[row + j] = sj >= 0 ? mPk[row + j] + interval * mPk[row + sj]
+                            : mPk[row + j];
+                }
+            }
+
+            // C = A * P(k+1|k)^-1, hence each row of C solves
+            // P(k+1|k) * c^T = a^T
+            GNSSKalmanUDEpochEstimator.factorize(mPredictedP, mU, mD);
+            for (int i = 0; i < SIZE; i++) {
+                solve(mU, mD, mA, mC, i * SIZE);
+            }
+
+            // smoothed state
+            for (int i = 0; i < SIZE; i++) {
+                mDiffX[i] = smoothedX[i] - mPredictedX[i];
+            }
+            for (int i = 0; i < SIZE; i++) {
+                final int row = i * SIZE;
+                double value = mX[i];
+                for (int j = 0; j < SIZE; j++) {
+                    value += mC[row + j] * mDiffX[j];
+                }
+                smoothedX[i] = value;
+            }
+
+            // smoothed covariance, computing only the upper triangle so that it
+            // is exactly symmetric
+            for (int i = 0; i < GNSSKalmanState.PACKED_COVARIANCE_LENGTH; i++) {
+                smoothedP[i] -= mPredictedP[i];
+            }
+            unpack(smoothedP, mDp);
+            for (int i = 0; i < SIZE; i++) {
+                final int row = i * SIZE;
+                for (int j = 0; j < SIZE; j++) {
+                    double value = 0.0;
+                    for (int l = 0; l < SIZE; l++) {
+                        value += mC[row + l] * mDp[l * SIZE + j];
+                    }
+                    mM[row + j] = value;
+                }
+            }
+            int pos = 0;
+            for (int i = 0; i < SIZE; i++) {
+                final int rowI = i * SIZE;
+                for (int j = i; j < SIZE; j++) {
+                    final int rowJ = j * SIZE;
+                    double value = mPk[rowI + j];
+                    for (int l = 0; l < SIZE; l++) {
+                        value += mM[rowI + l] * mC[rowJ + l];
+                    }
+                    smoothedP[pos++] = value;
+                }
+            }
+        }
+
+        /**
+         * Solves P * y = b, where P = U * D * U^T, and b and y are rows of provided
+         * matrices.
+         * Components where D is zero are set to zero, which is equivalent to using
+         * the pseudo-inverse of P.
+         *
+         * @param u      unit upper triangular factor stored in row-major order.
+         * @param d      diagonal factor.
+         * @param b      matrix containing right hand side in a row.
+         * @param y      matrix where solution will be stored in a row.
+         * @param offset position of the row within provided matrices.
+         */
+        private static void solve(final double[] u, final double[] d,
+                                  final double[] b, final double[] y,
+                                  final int offset) {
+            // U * z = b
+            for (int j = SIZE - 1; j >= 0; j--) {
+                final int row = j * SIZE;
+                double value = b[offset + j];
+                for (int k = j + 1; k < SIZE; k++) {
+                    value -= u[row + k] * y[offset + k];
+                }
+                y[offset + j] = value;
+            }
+
+            // D * w = z
+            for (int j = 0; j < SIZE; j++) {
+                y[offset + j] = d[j] > 0.0 ? y[offset + j] / d[j] : 0.0;
+            }
+
+            // U^T * y = w
+            for (int j = 0; j < SIZE; j++) {
+                double value = y[offset + j];
+                for (int k = 0; k < j; k++) {
+                    value -= u[k * SIZE + j] * y[offset + k];
+                }
+                y[offset + j] = value;
+            }
+        }
+
+        /**
+         * Unpacks a symmetric matrix stored in row-major packed order into a full
+         * row-major array.
+         *
+         * @param packed upper triangular part of matrix.
+         * @param result array where full matrix will be stored.
+         */
+        private static void unpack(final double[] packed, final double[] result) {
+            int pos = 0;
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = i; j < SIZE; j++) {
+                    final double value = packed[pos++];
+                    result[i * SIZE + j] = value;
+                    result[j * SIZE + i] = value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+/**
+ * Listener defining events of GNSSKalmanSmoother.
+ */
+public interface GNSSKalmanSmootherListener {
+
+    /**
+     * Called when the smoothed state of an epoch has been computed during the
+     * backward pass.
+     * Epochs are notified in reverse order, starting at the last recorded epoch.
+     *
+     * @param smoother   smoother raising the event.
+     * @param epoch      index of smoothed epoch.
+     * @param estimation smoothed GNSS estimation. This instance is reused and
+     *                   must only be accessed within this method.
+     * @param covariance upper triangular part of smoothed Kalman filter error
+     *                   covariance matrix stored in row-major packed order. This
+     *                   array is reused and must only be accessed within this
+     *                   method.
+     */
+    void onEpochSmoothed(final GNSSKalmanSmoother smoother, final int epoch,
+                         final GNSSEstimation estimation, final double[] covariance);
+}
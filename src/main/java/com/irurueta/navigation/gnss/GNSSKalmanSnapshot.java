@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.algebra.Matrix;
+import com.irurueta.algebra.WrongSizeException;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of a Kalman filtered GNSS estimation, its error covariance
+ * and the timestamp when it was obtained.
+ * Because instances cannot be modified once created, they can be safely shared
+ * among any number of threads without synchronization.
+ */
+public final class GNSSKalmanSnapshot implements Serializable {
+
+    /**
+     * Estimated values (position, velocity, clock offset and clock drift) stored
+     * in the same order as {@link GNSSEstimation#asArray()}.
+     */
+    private final double[] mEstimation;
+
+    /**
+     * Upper triangular part of Kalman filter error covariance matrix stored in
+     * row-major packed order.
+     */
+    private final double[] mPackedCovariance;
+
+    /**
+     * Timestamp expressed in seconds since epoch time when Kalman filter state
+     * was propagated.
+     */
+    private final double mTimestamp;
+
+    /**
+     * Sequence number of this snapshot, which is incremented each time a new
+     * snapshot is published.
+     */
+    private final long mSequenceNumber;
+
+    /**
+     * Constructor.
+     *
+     * @param state          Kalman filter state to be copied. Must contain an
+     *                       estimation and a covariance.
+     * @param timestamp      timestamp expressed in seconds since epoch time when
+     *                       Kalman filter state was propagated.
+     * @param sequenceNumber sequence number of this snapshot.
+     */
+    GNSSKalmanSnapshot(final GNSSKalmanState state, final double timestamp,
+                       final long sequenceNumber) {
+        mEstimation = state.getEstimation().asArray();
+        mPackedCovariance = state.getPackedCovariance();
+        mTimestamp = timestamp;
+        mSequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * Gets timestamp expressed in seconds since epoch time when Kalman filter
+     * state was propagated.
+     *
+     * @return timestamp expressed in seconds since epoch time.
+     */
+    public double getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * Gets timestamp since epoch time when Kalman filter state was propagated.
+     *
+     * @param result instance where timestamp will be stored.
+     */
+    public void getTimestampAsTime(final Time result) {
+        result.setValue(mTimestamp);
+        result.setUnit(TimeUnit.SECOND);
+    }
+
+    /**
+     * Gets timestamp since epoch time when Kalman filter state was propagated.
+     *
+     * @return timestamp since epoch time.
+     */
+    public Time getTimestampAsTime() {
+        return new Time(mTimestamp, TimeUnit.SECOND);
+    }
+
+    /**
+     * Gets sequence number of this snapshot.
+     * Sequence numbers increase each time a new snapshot is published, hence
+     * they can be used to detect whether a new estimation is available.
+     *
+     * @return sequence number.
+     */
+    public long getSequenceNumber() {
+        return mSequenceNumber;
+    }
+
+    /**
+     * Gets x coordinate of estimated ECEF user position expressed in meters (m).
+     *
+     * @return x coordinate of estimated ECEF user position.
+     */
+    public double getX() {
+        return mEstimation[0];
+    }
+
+    /**
+     * Gets y coordinate of estimated ECEF user position expressed in meters (m).
+     *
+     * @return y coordinate of estimated ECEF user position.
+     */
+    public double getY() {
+        return mEstimation[1];
+    }
+
+    /**
+     * Gets z coordinate of estimated ECEF user position expressed in meters (m).
+     *
+     * @return z coordinate of estimated ECEF user position.
+     */
+    public double getZ() {
+        return mEstimation[2];
+    }
+
+    /**
+     * Gets x coordinate of estimated ECEF user velocity expressed in meters per
+     * second (m/s).
+     *
+     * @return x coordinate of estimated ECEF user velocity.
+     */
+    public double getVx() {
+        return mEstimation[3];
+    }
+
+    /**
+     * Gets y coordinate of estimated ECEF user velocity expressed in meters per
+     * second (m/s).
+     *
+     * @return y coordinate of estimated ECEF user velocity.
+     */
+    public double getVy() {
+        return mEstimation[4];
+    }
+
+    /**
+     * Gets z coordinate of estimated ECEF user velocity expressed in meters per
+     * second (m/s).
+     *
+     * @return z coordinate of estimated ECEF user velocity.
+     */
+    public double getVz() {
+        return mEstimation[5];
+    }
+
+    /**
+     * Gets estimated receiver clock offset expressed in distance units (m).
+     *
+     * @return estimated receiver clock offset.
+     */
+    public double getClockOffset() {
+        return mEstimation[6];
+    }
+
+    /**
+     * Gets estimated receiver clock drift expressed in distance units per second
+     * (m/s).
+     *
+     * @return estimated receiver clock drift.
+     */
+    public double getClockDrift() {
+        return mEstimation[7];
+    }
+
+    /**
+     * Gets estimation containing user ECEF position, user ECEF velocity, clock
+     * offset and clock drift.
+     *
+     * @param result instance where estimation will be stored.
+     */
+    public void getEstimation(final GNSSEstimation result) {
+        result.fromArray(mEstimation);
+    }
+
+    /**
+     * Gets estimation containing user ECEF position, user ECEF velocity, clock
+     * offset and clock drift.
+     *
+     * @return a new estimation instance.
+     */
+    public GNSSEstimation getEstimation() {
+        final GNSSEstimation result = new GNSSEstimation();
+        getEstimation(result);
+        return result;
+    }
+
+    /**
+     * Gets upper triangular part of Kalman filter error covariance matrix stored
+     * in row-major packed order.
+     *
+     * @param result array where packed covariance will be copied. Must have
+     *               length 36.
+     * @throws IllegalArgumentException if provided array does not have length 36.
+     */
+    public void getPackedCovariance(final double[] result) {
+        if (result.length != GNSSKalmanState.PACKED_COVARIANCE_LENGTH) {
+            throw new IllegalArgumentException();
+        }
+
+        System.arraycopy(mPackedCovariance, 0, result, 0,
+                GNSSKalmanState.PACKED_COVARIANCE_LENGTH);
+    }
+
+    /**
+     * Gets upper triangular part of Kalman filter error covariance matrix stored
+     * in row-major packed order.
+     *
+     * @return a new array containing packed covariance.
+     */
+    public double[] getPackedCovariance() {
+        return mPackedCovariance.clone();
+    }
+
+    /**
+     * Gets Kalman filter error covariance matrix.
+     *
+     * @param result instance where covariance will be stored. If needed, it will
+     *               be resized to 8x8.
+     */
+    public void getCovariance(final Matrix result) {
+        GNSSKalmanState.unpack(mPackedCovariance, result);
+    }
+
+    /**
+     * Gets Kalman filter error covariance matrix.
+     *
+     * @return a new 8x8 covariance matrix.
+     */
+    public Matrix getCovariance() {
+        try {
+            final Matrix result = new Matrix(GNSSEstimation.NUM_PARAMETERS,
+                    GNSSEstimation.NUM_PARAMETERS);
+            getCovariance(result);
+            return result;
+        } catch (final WrongSizeException ignore) {
+            // never happens
+            return null;
+        }
+    }
+
+    /**
+     * Gets Kalman filter state containing estimation and error covariance.
+     *
+     * @param result instance where state will be stored.
+     */
+    public void getState(final GNSSKalmanState result) {
+        result.setEstimation(getEstimation());
+        result.setPackedCovariance(mPackedCovariance);
+    }
+
+    /**
+     * Gets Kalman filter state containing estimation and error covariance.
+     *
+     * @return a new Kalman filter state.
+     */
+    public GNSSKalmanState getState() {
+        final GNSSKalmanState result = new GNSSKalmanState();
+        getState(result);
+        return result;
+    }
+}
@@ -16,15 +16,27 @@
 package com.irurueta.navigation.gnss;
 
 import com.irurueta.algebra.Matrix;
+import com.irurueta.algebra.WrongSizeException;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
  * Kalman filter state for filtered GNSS estimation.
+ * Because Kalman filter error covariance matrix is symmetric, only its upper
+ * triangular part is stored (in row-major packed order), which requires 36 values
+ * instead of the 64 values of a full 8x8 matrix.
  */
 public class GNSSKalmanState implements Serializable, Cloneable {
 
+    /**
+     * Number of values required to store the upper triangular part of the
+     * Kalman filter error covariance matrix.
+     */
+    public static final int PACKED_COVARIANCE_LENGTH =
+            GNSSEstimation.NUM_PARAMETERS * (GNSSEstimation.NUM_PARAMETERS + 1) / 2;
+
     /**
      * Contains estimation of ECEF position and velocity, and estimated clock
      * offset and drift.
@@ -32,9 +44,10 @@ public class GNSSKalmanState implements Serializable, Cloneable {
     private GNSSEstimation mEstimation;
 
     /**
-     * Kalman filter error covariance matrix.
+     * Upper triangular part of Kalman filter error covariance matrix stored
+     * in row-major packed order.
      */
-    private Matrix mCovariance;
+    private double[] mPackedCovariance;
 
     /**
      * Constructor.
@@ -103,13 +116,14 @@ public class GNSSKalmanState implements Serializable, Cloneable {
 
     /**
      * Gets Kalman filter error covariance matrix.
+     * If provided matrix is not 8x8 it will be resized.
      *
      * @param result instance where result data will be copied to.
      * @return true if result data has been copied, false otherwise.
      */
     public boolean getCovariance(final Matrix result) {
-        if (mCovariance != null) {
-            mCovariance.copyTo(result);
+        if (mPackedCovariance != null) {
+            unpack(mPackedCovariance, result);
             return true;
         } else {
             return false;
@@ -118,15 +132,35 @@ public class GNSSKalmanState implements Serializable, Cloneable {
 
     /**
      * Gets Kalman filter error covariance matrix.
+     * Covariance is stored in packed form, so a new matrix is built from
+     * internally packed values every time this method is called. Returned
+     * instance is never the one provided to {@link #setCovariance(Matrix)},
+     * and modifying it has no effect on this state. Use
+     * {@link #getCovariance(Matrix)} to avoid allocating a new matrix.
      *
-     * @return Kalman filter error covariance matrix.
+     * @return a new Kalman filter error covariance matrix or null if not
+     * available.
      */
     public Matrix getCovariance() {
-        return mCovariance;
+        if (mPackedCovariance == null) {
+            return null;
+        }
+
+        try {
+            final Matrix result = new Matrix(GNSSEstimation.NUM_PARAMETERS,
+                    GNSSEstimation.NUM_PARAMETERS);
+            unpack(mPackedCovariance, result);
+            return result;
+        } catch (final WrongSizeException ignore) {
+            // never happens
+            return null;
+        }
     }
 
     /**
      * Sets Kalman filter error covariance matrix.
+     * Only the upper triangular part of provided matrix is taken into account,
+     * since covariance matrices are assumed to be symmetric.
      *
      * @param covariance Kalman filter error covariance matrix to be set.
      * @throws IllegalArgumentException if provided covariance matrix is not 8x8.
@@ -137,7 +171,145 @@ public class GNSSKalmanState implements Serializable, Cloneable {
             throw new IllegalArgumentException();
         }
 
-        mCovariance = covariance;
+        if (mPackedCovariance == null) {
+            mPackedCovariance = new double[PACKED_COVARIANCE_LENGTH];
+        }
+        pack(covariance, mPackedCovariance);
+    }
+
+    /**
+     * Gets upper triangular part of Kalman filter error covariance matrix
+     * stored in row-major packed order.
+     *
+     * @param result array where packed covariance values will be copied to.
+     * @return true if result data has been copied, false otherwise.
+     * @throws IllegalArgumentException if provided array does not have length 36.
+     */
+    public boolean getPackedCovariance(final double[] result) {
+        if (result.length != PACKED_COVARIANCE_LENGTH) {
+            throw new IllegalArgumentException();
+        }
+
+        if (mPackedCovariance != null) {
+            System.arraycopy(mPackedCovariance, 0, result, 0,
+                    PACKED_COVARIANCE_LENGTH);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Gets upper triangular part of Kalman filter error covariance matrix
+     * stored in row-major packed order.
+     *
+     * @return a copy of packed covariance values or null if not available.
+     */
+    public double[] getPackedCovariance() {
+        return mPackedCovariance != null ? Arrays.copyOf(mPackedCovariance,
+                PACKED_COVARIANCE_LENGTH) : null;
+    }
+
+    /**
+     * Sets upper triangular part of Kalman filter error covariance matrix
+     * stored in row-major packed order.
+     * Provided values are copied into this instance.
+     *
+     * @param packedCovariance packed covariance values to be set.
+     * @throws IllegalArgumentException if provided array does not have length 36.
+     */
+    public void setPackedCovariance(final double[] packedCovariance) {
+        if (packedCovariance.length != PACKED_COVARIANCE_LENGTH) {
+            throw new IllegalArgumentException();
+        }
+
+        if (mPackedCovariance == null) {
+            mPackedCovariance = new double[PACKED_COVARIANCE_LENGTH];
+        }
+        System.arraycopy(packedCovariance, 0, mPackedCovariance, 0,
+                PACKED_COVARIANCE_LENGTH);
+    }
+
+    /**
+     * Gets internal array containing packed covariance values, so that it can be
+     * directly updated without further allocations.
+     * If no covariance is available yet, a new zero array is created.
+     *
+     * @return internal array containing packed covariance values.
+     */
+    double[] getPackedCovarianceBuffer() {
+        if (mPackedCovariance == null) {
+            mPackedCovariance = new double[PACKED_COVARIANCE_LENGTH];
+        }
+        return mPackedCovariance;
+    }
+
+    /**
+     * Indicates whether Kalman filter error covariance matrix is available.
+     *
+     * @return true if covariance is available, false otherwise.
+     */
+    public boolean hasCovariance() {
+        return mPackedCovariance != null;
+    }
+
+    /**
+     * Gets position within packed storage of the element of the covariance
+     * matrix located at provided row and column.
+     * Because covariance is symmetric, row and column can be provided in any
+     * order.
+     *
+     * @param row    row of covariance element. Must be between 0 and 7.
+     * @param column column of covariance element. Must be between 0 and 7.
+     * @return position within packed storage.
+     */
+    public static int packedIndex(final int row, final int column) {
+        final int i = Math.min(row, column);
+        final int j = Math.max(row, column);
+        return i * GNSSEstimation.NUM_PARAMETERS - i * (i - 1) / 2 + j - i;
+    }
+
+    /**
+     * Packs upper triangular part of provided 8x8 matrix into provided array.
+     *
+     * @param matrix matrix to be packed. Must be 8x8.
+     * @param result array where packed values will be stored. Must have length 36.
+     */
+    public static void pack(final Matrix matrix, final double[] result) {
+        int k = 0;
+        for (int i = 0; i < GNSSEstimation.NUM_PARAMETERS; i++) {
+            for (int j = i; j < GNSSEstimation.NUM_PARAMETERS; j++) {
+                result[k++] = matrix.getElementAt(i, j);
+            }
+        }
+    }
+
+    /**
+     * Unpacks provided packed values into a full symmetric 8x8 matrix.
+     * If provided matrix is not 8x8 it will be resized.
+     *
+     * @param packed packed values. Must have length 36.
+     * @param result matrix where unpacked values will be stored.
+     */
+    public static void unpack(final double[] packed, final Matrix result) {
+        if (result.getRows() != GNSSEstimation.NUM_PARAMETERS ||
+                result.getColumns() != GNSSEstimation.NUM_PARAMETERS) {
+            try {
+                result.resize(GNSSEstimation.NUM_PARAMETERS,
+                        GNSSEstimation.NUM_PARAMETERS);
+            } catch (final WrongSizeException ignore) {
+                // never happens
+            }
+        }
+
+        int k = 0;
+        for (int i = 0; i < GNSSEstimation.NUM_PARAMETERS; i++) {
+            for (int j = i; j < GNSSEstimation.NUM_PARAMETERS; j++) {
+                final double value = packed[k++];
+                result.setElementAt(i, j, value);
+                result.setElementAt(j, i, value);
+            }
+        }
     }
 
     /**
@@ -166,14 +338,14 @@ public class GNSSKalmanState implements Serializable, Cloneable {
         }
 
         // copy covariance
-        if (input.mCovariance == null) {
-            mCovariance = null;
+        if (input.mPackedCovariance == null) {
+            mPackedCovariance = null;
         } else {
-            if (mCovariance == null) {
-                mCovariance = new Matrix(input.mCovariance);
-            } else {
-                mCovariance.copyFrom(input.mCovariance);
+            if (mPackedCovariance == null) {
+                mPackedCovariance = new double[PACKED_COVARIANCE_LENGTH];
             }
+            System.arraycopy(input.mPackedCovariance, 0, mPackedCovariance, 0,
+                    PACKED_COVARIANCE_LENGTH);
         }
     }
 
@@ -185,7 +357,7 @@ public class GNSSKalmanState implements Serializable, Cloneable {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(mEstimation, mCovariance);
+        return 31 * Objects.hashCode(mEstimation) + Arrays.hashCode(mPackedCovariance);
     }
 
     /**
@@ -231,10 +403,17 @@ public class GNSSKalmanState implements Serializable, Cloneable {
             return false;
         }
 
-        return other.mEstimation != null
-                && other.mEstimation.equals(mEstimation, threshold)
-                && other.mCovariance != null
-                && other.mCovariance.equals(mCovariance, threshold);
+        if (other.mEstimation == null || !other.mEstimation.equals(mEstimation, threshold)
+                || other.mPackedCovariance == null || mPackedCovariance == null) {
+            return false;
+        }
+
+        for (int i = 0; i < PACKED_COVARIANCE_LENGTH; i++) {
+            if (Math.abs(mPackedCovariance[i] - other.mPackedCovariance[i]) > threshold) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -246,6 +425,8 @@ public class GNSSKalmanState implements Serializable, Cloneable {
     @Override
     protected Object clone() throws CloneNotSupportedException {
         final GNSSKalmanState result = (GNSSKalmanState) super.clone();
+        result.mEstimation = null;
+        result.mPackedCovariance = null;
         copyTo(result);
         return result;
     }
@@ -0,0 +1,634 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.frames.CoordinateTransformation;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeConverter;
+import com.irurueta.units.TimeUnit;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Implements one cycle of the GNSS extended Kalman filter using a UD factorized
+ * error covariance matrix.
+ * This estimator has the same inputs and outputs as
+ * {@link GNSSKalmanEpochEstimator}, but instead of updating the covariance
+ * matrix as (I - K * H) * P, propagated covariance is factorized as U * D * U^T,
+ * where U is unit upper triangular and D is diagonal, and each pseudo-range and
+ * pseudo-range rate is sequentially processed as a scalar measurement using
+ * Bierman's algorithm.
+ * Because diagonal D is kept non-negative, the updated covariance matrix is
+ * always symmetric and positive semi-definite, so that it never needs to be
+ * re-conditioned on long runs.
+ * All kernels are specialized for the 8 states of the GNSS model (position,
+ * velocity, clock offset and clock drift) and do not require any matrix
+ * inversion.
+ * This implementation is based on "Factorization Methods for Discrete
+ * Sequential Estimation", G. J. Bierman, 1977.
+ */
+public class GNSSKalmanUDEpochEstimator {
+
+    /**
+     * Number of states of the GNSS Kalman filter.
+     */
+    private static final int MATRIX_SIZE = 8;
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch.
+     *
+     * @param measurements        satellite measurements data.
+     * @param propagationInterval propagation interval.
+     * @param previousState       previous GNSS estimates and Kalman filter error
+     *                            covariance matrix.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @return new Kalman filter state.
+     * @throws IllegalArgumentException if previous state has no covariance.
+     */
+    public static GNSSKalmanState estimate(
+            final Collection<GNSSMeasurement> measurements,
+            final Time propagationInterval,
+            final GNSSKalmanState previousState,
+            final GNSSKalmanConfig config) {
+        return estimate(measurements, convertTime(propagationInterval),
+                previousState, config);
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch.
+     *
+     * @param measurements        satellite measurements data.
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param previousState       previous GNSS estimates and Kalman filter error
+     *                            covariance matrix.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @return new Kalman filter state.
+     * @throws IllegalArgumentException if previous state has no covariance.
+     */
+    public static GNSSKalmanState estimate(
+            final Collection<GNSSMeasurement> measurements,
+            final double propagationInterval,
+            final GNSSKalmanState previousState,
+            final GNSSKalmanConfig config) {
+        final GNSSKalmanState result = new GNSSKalmanState();
+        estimate(measurements, propagationInterval, previousState, config, result);
+        return result;
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch.
+     *
+     * @param measurements        satellite measurements data.
+     * @param propagationInterval propagation interval.
+     * @param previousState       previous GNSS estimates and Kalman filter error
+     *                            covariance matrix.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param result              instance where updated Kalman filter state will be
+     *                            stored.
+     * @throws IllegalArgumentException if previous state has no covariance.
+     */
+    public static void estimate(final Collection<GNSSMeasurement> measurements,
+                                final Time propagationInterval,
+                                final GNSSKalmanState previousState,
+                                final GNSSKalmanConfig config,
+                                final GNSSKalmanState result) {
+        estimate(measurements, convertTime(propagationInterval), previousState,
+                config, result);
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch.
+     * Provided result can be the same instance as provided previous state.
+     *
+     * @param measurements        satellite measurements data.
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param previousState       previous GNSS estimates and Kalman filter error
+     *                            covariance matrix.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param result              instance where updated Kalman filter state will be
+     *                            stored.
+     * @throws IllegalArgumentException if previous state has no covariance.
+     */
+    public static void estimate(final Collection<GNSSMeasurement> measurements,
+                                final double propagationInterval,
+                                final GNSSKalmanState previousState,
+                                final GNSSKalmanConfig config,
+                                final GNSSKalmanState result) {
+        estimate(new GNSSMeasurementBatch(measurements), propagationInterval,
+                previousState, config, result);
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval.
+     * @param previousState       previous GNSS estimates and Kalman filter error
+     *                            covariance matrix.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param result              instance where updated Kalman filter state will be
+     *                            stored.
+     * @throws IllegalArgumentException if previous state has no covariance.
+     */
+    public static void estimate(final GNSSMeasurementBatch measurements,
+                                final Time propagationInterval,
+                                final GNSSKalmanState previousState,
+                                final GNSSKalmanConfig config,
+                                final GNSSKalmanState result) {
+        estimate(measurements, convertTime(propagationInterval), previousState,
+                config, result);
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch.
+     * Covariance is directly updated in packed form within provided result, hence
+     * provided result can be the same instance as provided previous state.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param previousState       previous GNSS estimates and Kalman filter error
+     *                            covariance matrix.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param result              instance where updated Kalman filter state will be
+     *                            stored.
+     * @throws IllegalArgumentException if previous state has no covariance.
+     */
+    public static void estimate(final GNSSMeasurementBatch measurements,
+                                final double propagationInterval,
+                                final GNSSKalmanState previousState,
+                                final GNSSKalmanConfig config,
+                                final GNSSKalmanState result) {
+        if (!previousState.hasCovariance()) {
+            throw new IllegalArgumentException();
+        }
+
+        final GNSSEstimation resultEstimation = new GNSSEstimation();
+
+        estimate(measurements, propagationInterval, previousState.getEstimation(),
+                previousState.getPackedCovarianceBuffer(), config, resultEstimation,
+                result.getPackedCovarianceBuffer());
+
+        result.setEstimation(resultEstimation);
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch using covariance matrices stored in packed form.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval.
+     * @param previousEstimation  previous GNSS estimates.
+     * @param previousCovariance  upper triangular part of previous Kalman filter
+     *                            error covariance matrix stored in row-major
+     *                            packed order.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param updatedEstimation   instance where updated GNSS estimate will be stored
+     *                            after executing this method.
+     * @param updatedCovariance   array where upper triangular part of updated
+     *                            Kalman filter error covariance matrix will be
+     *                            stored in row-major packed order.
+     * @throws IllegalArgumentException if provided arrays do not have length 36.
+     */
+    public static void estimate(final GNSSMeasurementBatch measurements,
+                                final Time propagationInterval,
+                                final GNSSEstimation previousEstimation,
+                                final double[] previousCovariance,
+                                final GNSSKalmanConfig config,
+                                final GNSSEstimation updatedEstimation,
+                                final double[] updatedCovariance) {
+        estimate(measurements, convertTime(propagationInterval), previousEstimation,
+                previousCovariance, config, updatedEstimation, updatedCovariance);
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch using covariance matrices stored in packed form.
+     * Propagated covariance is factorized as U * D * U^T and measurements are
+     * processed one at a time, so that no matrix inversion is required and
+     * updated covariance is always symmetric and positive semi-definite.
+     * Provided previous and updated covariance arrays can be the same instance.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param previousEstimation  previous GNSS estimates.
+     * @param previousCovariance  upper triangular part of previous Kalman filter
+     *                            error covariance matrix stored in row-major
+     *                            packed order.
+     * @param config              system configuration (usually obtained through
+     *                            calibration).
+     * @param updatedEstimation   instance where updated GNSS estimate will be stored
+     *                            after executing this method.
+     * @param updatedCovariance   array where upper triangular part of updated
+     *                            Kalman filter error covariance matrix will be
+     *                            stored in row-major packed order.
+     * @throws IllegalArgumentException if provided arrays do not have length 36.
+     */
+    public static void estimate(final GNSSMeasurementBatch measurements,
+                                final double propagationInterval,
+                                final GNSSEstimation previousEstimation,
+                                final double[] previousCovariance,
+                                final GNSSKalmanConfig config,
+                                final GNSSEstimation updatedEstimation,
+                                final double[] updatedCovariance) {
+        estimateWithNegativeLogLikelihood(measurements, propagationInterval,
+                previousEstimation, previousCovariance, config, updatedEstimation,
+                updatedCovariance);
+    }
+
+    /**
+     * Estimates the update of Kalman filter state and covariance matrix for a single
+     * epoch using covariance matrices stored in packed form, and computes the
+     * negative log-likelihood of measurement innovations.
+     * Because measurements are processed one at a time, the joint likelihood of
+     * all innovations of the epoch is the product of the likelihoods of the
+     * sequential scalar residuals, hence it is obtained without computing the
+     * determinant or the inverse of the innovation covariance matrix.
+     *
+     * @param measurements        satellite measurements data stored in primitive
+     *                            arrays.
+     * @param propagationInterval propagation interval expressed in seconds (s).
+     * @param previousEstimation  previous GNSS estimates.
+     * @param previousCovariance  upper triangular part of previous Kalman filter
+     *                            error covariance matrix stored in row-major
+     *                            packed order.
+     * @param config              system configuration.
+     * @param updatedEstimation   instance where updated GNSS estimate will be stored
+     *                            after executing this method.
+     * @param updatedCovariance   array where upper triangular part of updated
+     *                            Kalman filter error covariance matrix will be
+     *                            stored in row-major packed order.
+     * @return negative log-likelihood of measurement innovations.
+     * @throws IllegalArgumentException if provided arrays do not have length 36.
+     */
+    static double estimateWithNegativeLogLikelihood(
+            final GNSSMeasurementBatch measurements,
+            final double propagationInterval,
+            final GNSSEstimation previousEstimation,
+            final double[] previousCovariance,
+            final GNSSKalmanConfig config,
+            final GNSSEstimation updatedEstimation,
+            final double[] updatedCovariance) {
+        return new UpdateStep().estimate(measurements, propagationInterval,
+                previousEstimation, previousCovariance, config, updatedEstimation,
+                updatedCovariance);
+    }
+
+    /**
+     * Factorizes a symmetric positive semi-definite matrix as U * D * U^T, where
+     * U is unit upper triangular and D is diagonal.
+     * Any pivot that is not positive because of rounding errors is set to zero
+     * along with its column of U, so that resulting factors always represent a
+     * positive semi-definite matrix.
+     *
+     * @param packed upper triangular part of matrix to be factorized stored in
+     *               row-major packed order.
+     * @param u      array of length 64 where unit upper triangular factor will be
+     *               stored in row-major order.
+     * @param d      array of length 8 where diagonal factor will be stored.
+     */
+    static void factorize(final double[] packed, final double[] u, final double[] d) {
+        for (int j = MATRIX_SIZE - 1; j >= 0; j--) {
+            final int rowJ = j * MATRIX_SIZE;
+
+            double dj = packed[GNSSKalmanState.packedIndex(j, j)];
+            for (int k = j + 1; k < MATRIX_SIZE; k++) {
+                final double ujk = u[rowJ + k];
+                dj -= d[k] * ujk * ujk;
+            }
+
+            u[rowJ + j] = 1.0;
+            for (int i = j + 1; i < MATRIX_SIZE; i++) {
+                u[i * MATRIX_SIZE + j] = 0.0;
+            }
+
+            if (dj > 0.0) {
+                d[j] = dj;
+                for (int i = 0; i < j; i++) {
+                    final int rowI = i * MATRIX_SIZE;
+                    double value = packed[GNSSKalmanState.packedIndex(i, j)];
+                    for (int k = j + 1; k < MATRIX_SIZE; k++) {
+                        value -= d[k] * u[rowI + k] * u[rowJ + k];
+                    }
+                    u[rowI + j] = value / dj;
+                }
+            } else {
+                d[j] = 0.0;
+                for (int i = 0; i < j; i++) {
+                    u[i * MATRIX_SIZE + j] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes U * D * U^T from its factors.
+     *
+     * @param u      unit upper triangular factor stored in row-major order.
+     * @param d      diagonal factor.
+     * @param packed array of length 36 where upper triangular part of resulting
+     *               matrix will be stored in row-major packed order.
+     */
+    static void recompose(final double[] u, final double[] d, final double[] packed) {
+        int pos = 0;
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            final int rowI = i * MATRIX_SIZE;
+            for (int j = i; j < MATRIX_SIZE; j++) {
+                final int rowJ = j * MATRIX_SIZE;
+                double value = 0.0;
+                for (int k = j; k < MATRIX_SIZE; k++) {
+                    value += u[rowI + k] * d[k] * u[rowJ + k];
+                }
+                packed[pos++] = value;
+            }
+        }
+    }
+
+    /**
+     * Updates UD factors and accumulated state correction with a single scalar
+     * measurement using Bierman's algorithm.
+     *
+     * @param u          unit upper triangular factor to be updated.
+     * @param d          diagonal factor to be updated.
+     * @param h          measurement row.
+     * @param innovation innovation of the measurement with respect to predicted
+     *                   state.
+     * @param variance   measurement noise variance.
+     * @param dx         accumulated state correction to be updated.
+     * @param f          array to be reused to store U^T * h.
+     * @param v          array to be reused to store D * U^T * h.
+     * @param b          array to be reused to store the unnormalized gain.
+     * @return negative log-likelihood of the measurement residual.
+     */
+    private static double update(final double[] u, final double[] d,
+                                 final double[] h, final double innovation,
+                                 final double variance, final double[] dx,
+                                 final double[] f, final double[] v,
+                                 final double[] b) {
+        // Innovation must account for corrections of previously processed
+        // measurements
+        double residual = innovation;
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            residual -= h[i] * dx[i];
+        }
+
+        for (int j = 0; j < MATRIX_SIZE; j++) {
+            double value = h[j];
+            for (int i = 0; i < j; i++) {
+                value += u[i * MATRIX_SIZE + j] * h[i];
+            }
+            f[j] = value;
+            v[j] = d[j] * value;
+        }
+
+        double alpha = variance + f[0] * v[0];
+        d[0] *= variance / alpha;
+        b[0] = v[0];
+        for (int j = 1; j < MATRIX_SIZE; j++) {
+            final double previousAlpha = alpha;
+            alpha += f[j] * v[j];
+            final double lambda = -f[j] / previousAlpha;
+            d[j] *= previousAlpha / alpha;
+            for (int i = 0; i < j; i++) {
+                final int index = i * MATRIX_SIZE + j;
+                final double uij = u[index];
+                u[index] = uij + b[i] * lambda;
+                b[i] += uij * v[j];
+            }
+            b[j] = v[j];
+        }
+
+        final double gain = residual / alpha;
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            dx[i] += b[i] * gain;
+        }
+
+        // alpha is the variance of the residual
+        return 0.5 * (Math.log(2.0 * Math.PI * alpha) + residual * gain);
+    }
+
+    /**
+     * Executes one cycle of the UD factorized Kalman filter, reusing internal
+     * buffers so that no memory is allocated once buffers are large enough for
+     * the number of measurements being processed.
+     * Instances are not thread-safe, hence each thread must use its own instance.
+     */
+    static class UpdateStep {
+
+        /**
+         * Propagated and updated state.
+         */
+        private final double[] mX = new double[MATRIX_SIZE];
+
+        /**
+         * Propagated covariance in packed form.
+         */
+        private final double[] mPropagatedCovariance =
+                new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+
+        /**
+         * Unit upper triangular factor of covariance.
+         */
+        private final double[] mU = new double[MATRIX_SIZE * MATRIX_SIZE];
+
+        /**
+         * Diagonal factor of covariance.
+         */
+        private final double[] mD = new double[MATRIX_SIZE];
+
+        /**
+         * Accumulated state correction.
+         */
+        private final double[] mDx = new double[MATRIX_SIZE];
+
+        /**
+         * Measurement row.
+         */
+        private final double[] mH = new double[MATRIX_SIZE];
+
+        /**
+         * U^T * h.
+         */
+        private final double[] mF = new double[MATRIX_SIZE];
+
+        /**
+         * D * U^T * h.
+         */
+        private final double[] mV = new double[MATRIX_SIZE];
+
+        /**
+         * Unnormalized gain.
+         */
+        private final double[] mB = new double[MATRIX_SIZE];
+
+        /**
+         * Lines of sight from user to satellites, which is resized when more
+         * measurements are processed.
+         */
+        private double[] mUAseT = new double[0];
+
+        /**
+         * Innovations of measurements, which is resized when more measurements
+         * are processed.
+         */
+        private double[] mDeltaZ = new double[0];
+
+        /**
+         * Estimates the update of Kalman filter state and covariance matrix for
+         * a single epoch using covariance matrices stored in packed form, and
+         * computes the negative log-likelihood of measurement innovations.
+         * Provided previous and updated estimations or covariance arrays can be
+         * the same instances.
+         *
+         * @param measurements        satellite measurements data stored in
+         *                            primitive arrays.
+         * @param propagationInterval propagation interval expressed in seconds
+         *                            (s).
+         * @param previousEstimation  previous GNSS estimates.
+         * @param previousCovariance  upper triangular part of previous Kalman
+         *                            filter error covariance matrix stored in
+         *                            row-major packed order.
+         * @param config              system configuration.
+         * @param updatedEstimation   instance where updated GNSS estimate will be
+         *                            stored after executing this method.
+         * @param updatedCovariance   array where upper triangular part of updated
+         *                            Kalman filter error covariance matrix will be
+         *                            stored in row-major packed order.
+         * @return negative log-likelihood of measurement innovations.
+         * @throws IllegalArgumentException if provided arrays do not have length
+         *                                  36.
+         */
+        double estimate(final GNSSMeasurementBatch measurements,
+                        final double propagationInterval,
+                        final GNSSEstimation previousEstimation,
+                        final double[] previousCovariance,
+                        final GNSSKalmanConfig config,
+                        final GNSSEstimation updatedEstimation,
+                        final double[] updatedCovariance) {
+
+            if (previousCovariance.length != GNSSKalmanState.PACKED_COVARIANCE_LENGTH ||
+                    updatedCovariance.length != GNSSKalmanState.PACKED_COVARIANCE_LENGTH) {
+                throw new IllegalArgumentException();
+            }
+
+            final int numberOfMeasurements = measurements.getSize();
+            if (mDeltaZ.length < 2 * numberOfMeasurements) {
+                mUAseT = new double[CoordinateTransformation.ROWS * numberOfMeasurements];
+                mDeltaZ = new double[2 * numberOfMeasurements];
+            }
+
+            // SYSTEM PROPAGATION PHASE
+
+            // Propagate state estimates using (3.14)
+            final double[] x = mX;
+            previousEstimation.asArray(x);
+            x[0] += propagationInterval * x[3];
+            x[1] += propagationInterval * x[4];
+            x[2] += propagationInterval * x[5];
+            x[6] += propagationInterval * x[7];
+
+            // Propagate state estimation error covariance matrix using (3.15)
+            // and (9.152), and factorize it
+            GNSSKalmanEpochEstimator.propagateCovariance(previousCovariance,
+                    propagationInterval, config, mPropagatedCovariance);
+            factorize(mPropagatedCovariance, mU, mD);
+
+            // MEASUREMENT UPDATE PHASE
+
+            GNSSKalmanEpochEstimator.computeInnovations(measurements, x, mUAseT,
+                    mDeltaZ);
+
+            final double pseudoRangeSD = config.getPseudoRangeSD();
+            final double pseudoRangeSD2 = pseudoRangeSD * pseudoRangeSD;
+            final double rangeRateSD = config.getRangeRateSD();
+            final double rangeRateSD2 = rangeRateSD * rangeRateSD;
+
+            // Measurements are assumed independent, hence processing them one at
+            // a time is equivalent to the batch update of (3.21) to (3.25) with
+            // the same linearization point. Each row of H defined in (9.163) only
+            // contains a line of sight and a one for a clock term
+            final double[] h = mH;
+            Arrays.fill(mDx, 0.0);
+            double negativeLogLikelihood = 0.0;
+            for (int j = 0; j < numberOfMeasurements; j++) {
+                final int pos = CoordinateTransformation.ROWS * j;
+                final double uaseX = mUAseT[pos];
+                final double uaseY = mUAseT[pos + 1];
+                final double uaseZ = mUAseT[pos + 2];
+
+                // pseudo-range
+                h[0] = -uaseX;
+                h[1] = -uaseY;
+                h[2] = -uaseZ;
+                h[3] = h[4] = h[5] = 0.0;
+                h[6] = 1.0;
+                h[7] = 0.0;
+                negativeLogLikelihood += update(mU, mD, h, mDeltaZ[j],
+                        pseudoRangeSD2, mDx, mF, mV, mB);
+
+                // pseudo-range rate
+                h[0] = h[1] = h[2] = 0.0;
+                h[3] = -uaseX;
+                h[4] = -uaseY;
+                h[5] = -uaseZ;
+                h[6] = 0.0;
+                h[7] = 1.0;
+                negativeLogLikelihood += update(mU, mD, h,
+                        mDeltaZ[numberOfMeasurements + j], rangeRateSD2, mDx, mF,
+                        mV, mB);
+            }
+
+            // Update state estimates using (3.24)
+            for (int i = 0; i < MATRIX_SIZE; i++) {
+                x[i] += mDx[i];
+            }
+            updatedEstimation.fromArray(x);
+
+            // Updated covariance is obtained from updated factors
+            recompose(mU, mD, updatedCovariance);
+
+            return negativeLogLikelihood;
+        }
+    }
+
+    /**
+     * Converts time instance into a value expressed in seconds.
+     *
+     * @param time time instance to be converted.
+     * @return time value expressed in seconds.
+     */
+    private static double convertTime(final Time time) {
+        return TimeConverter.convert(time.getValue().doubleValue(),
+                time.getUnit(), TimeUnit.SECOND);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies expressed in nanoseconds.
+ * Latencies are counted into buckets whose width grows with their value, so
+ * that any latency from one nanosecond up to hundreds of years is stored with
+ * a relative error lower than 1 / {@link #SUB_BUCKETS} using a fixed and small
+ * amount of memory. Recording a latency does not allocate any memory, hence
+ * histograms can be updated inside timed loops without disturbing measured
+ * latencies.
+ * Minimum, maximum and mean values are exact.
+ */
+public class GNSSLatencyHistogram {
+
+    /**
+     * Number of buckets in which each power of two is divided.
+     */
+    public static final int SUB_BUCKETS = 16;
+
+    /**
+     * Number of bits required to represent a sub-bucket.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * Total number of buckets required to represent any non-negative long value.
+     */
+    private static final int NUMBER_OF_BUCKETS =
+            (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Number of recorded values in each bucket.
+     */
+    private final long[] mCounts = new long[NUMBER_OF_BUCKETS];
+
+    /**
+     * Total number of recorded values.
+     */
+    private long mCount;
+
+    /**
+     * Sum of all recorded values.
+     */
+    private double mSum;
+
+    /**
+     * Minimum recorded value.
+     */
+    private long mMin = Long.MAX_VALUE;
+
+    /**
+     * Maximum recorded value.
+     */
+    private long mMax;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos latency expressed in nanoseconds.
+     * @throws IllegalArgumentException if provided latency is negative.
+     */
+    public void record(final long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        mCounts[bucketIndex(nanos)]++;
+        mCount++;
+        mSum += nanos;
+        mMin = Math.min(mMin, nanos);
+        mMax = Math.max(mMax, nanos);
+    }
+
+    /**
+     * Adds all latencies recorded in provided histogram to this histogram.
+     *
+     * @param other histogram to be added.
+     */
+    public void add(final GNSSLatencyHistogram other) {
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            mCounts[i] += other.mCounts[i];
+        }
+        mCount += other.mCount;
+        mSum += other.mSum;
+        mMin = Math.min(mMin, other.mMin);
+        mMax = Math.max(mMax, other.mMax);
+    }
+
+    /**
+     * Removes all recorded latencies.
+     */
+    public void reset() {
+        Arrays.fill(mCounts, 0);
+        mCount = 0;
+        mSum = 0.0;
+        mMin = Long.MAX_VALUE;
+        mMax = 0;
+    }
+
+    /**
+     * Gets number of recorded latencies.
+     *
+     * @return number of recorded latencies.
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Gets minimum recorded latency expressed in nanoseconds.
+     *
+     * @return minimum recorded latency or 0 if no latency has been recorded.
+     */
+    public long getMin() {
+        return mCount > 0 ? mMin : 0;
+    }
+
+    /**
+     * Gets maximum recorded latency expressed in nanoseconds.
+     *
+     * @return maximum recorded latency or 0 if no latency has been recorded.
+     */
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * Gets mean of recorded latencies expressed in nanoseconds.
+     *
+     * @return mean of recorded latencies or 0 if no latency has been recorded.
+     */
+    public double getMean() {
+        return mCount > 0 ? mSum / mCount : 0.0;
+    }
+
+    /**
+     * Gets the latency below or equal to which provided percentage of recorded
+     * latencies lie.
+     * Returned value is the upper bound of the bucket containing the requested
+     * percentile, limited to the maximum recorded latency, hence it never
+     * underestimates the exact percentile. Percentile 0 is the minimum
+     * recorded latency.
+     *
+     * @param percentile percentage between 0 and 100.
+     * @return latency expressed in nanoseconds or 0 if no latency has been
+     * recorded.
+     * @throws IllegalArgumentException if percentile is not between 0 and 100.
+     */
+    public long getPercentile(final double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException();
+        }
+        if (mCount == 0) {
+            return 0;
+        }
+        if (percentile == 0.0) {
+            return mMin;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * mCount));
+        long accumulated = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            accumulated += mCounts[i];
+            if (accumulated >= rank) {
+                return Math.max(mMin, Math.min(mMax, bucketUpperBound(i)));
+            }
+        }
+        return mMax;
+    }
+
+    /**
+     * Gets index of the bucket where provided value is counted.
+     *
+     * @param value a non-negative value.
+     * @return bucket index.
+     */
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value)
+                - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Gets largest value counted in provided bucket.
+     *
+     * @param index bucket index.
+     * @return largest value of bucket.
+     */
+    static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Solves many independent GNSS epochs using unweighted iterated least squares
+ * and several threads.
+ * Each epoch is solved as a snapshot, independently of any other epoch, using
+ * its own optional prior position and velocity. When no prior is provided for
+ * an epoch, it is initialized from the measurements of that epoch, as done by
+ * {@link GNSSLeastSquaresPositionAndVelocityEstimator}.
+ * Each worker thread owns a single estimator that is reused for all the epochs
+ * it solves, so that no estimator state is shared among threads. Because every
+ * epoch is solved with the same inputs regardless of the thread solving it,
+ * results do not depend on the number of threads being used.
+ * Results are stored into preallocated arrays along with a status code
+ * indicating whether each epoch could be solved.
+ * Worker threads are created on first use and reused by subsequent
+ * estimations until {@link #shutdown()} is called. Alternatively, an external
+ * executor can be provided, in which case its life cycle is managed by the
+ * caller.
+ */
+public class GNSSLeastSquaresPositionAndVelocityBatchEstimator {
+
+    /**
+     * Status indicating that an epoch was successfully solved.
+     */
+    public static final int STATUS_SUCCESS = 0;
+
+    /**
+     * Status indicating that an epoch could not be solved because it did not
+     * contain enough measurements.
+     */
+    public static final int STATUS_NOT_ENOUGH_MEASUREMENTS = 1;
+
+    /**
+     * Status indicating that an epoch could not be solved due to numerical
+     * instabilities.
+     */
+    public static final int STATUS_NUMERICAL_FAILURE = 2;
+
+    /**
+     * Status indicating that an epoch was solved but did not converge before
+     * reaching the maximum number of iterations.
+     */
+    public static final int STATUS_NOT_CONVERGED = 3;
+
+    /**
+     * Number of consecutive epochs that a worker claims at once.
+     * Claiming several epochs at once reduces contention among workers when
+     * epochs are cheap to solve.
+     */
+    private static final int CHUNK_SIZE = 16;
+
+    /**
+     * Threshold to determine when convergence has been reached.
+     */
+    private final double mConvergenceThreshold;
+
+    /**
+     * Number of threads to use.
+     */
+    private final int mNumberOfThreads;
+
+    /**
+     * Indicates whether executor is owned and hence created and shut down by
+     * this instance.
+     */
+    private final boolean mOwnsExecutor;
+
+    /**
+     * Executor where epochs are solved, or null if it has not been created yet.
+     * Access must be synchronized on this instance.
+     */
+    private ExecutorService mExecutor;
+
+    /**
+     * Constructor.
+     * Uses as many threads as available processors.
+     */
+    public GNSSLeastSquaresPositionAndVelocityBatchEstimator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numberOfThreads number of threads to use.
+     * @throws IllegalArgumentException if number of threads is less than 1.
+     */
+    public GNSSLeastSquaresPositionAndVelocityBatchEstimator(
+            final int numberOfThreads) {
+        this(numberOfThreads,
+                GNSSLeastSquaresPositionAndVelocityEstimator.CONVERGENCE_THRESHOLD);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numberOfThreads      number of threads to use.
+     * @param convergenceThreshold threshold to determine when convergence has
+     *                             been reached.
+     * @throws IllegalArgumentException if number of threads is less than 1 or
+     *                                  if threshold is zero or negative.
+     */
+    public GNSSLeastSquaresPositionAndVelocityBatchEstimator(
+            final int numberOfThreads, final double convergenceThreshold) {
+        if (numberOfThreads < 1 || convergenceThreshold <= 0.0) {
+            throw new IllegalArgumentException();
+        }
+
+        mNumberOfThreads = numberOfThreads;
+        mConvergenceThreshold = convergenceThreshold;
+        mOwnsExecutor = true;
+    }
+
+    /**
+     * Constructor.
+     * Provided executor is never shut down by this instance.
+     *
+     * @param executor        executor where epochs are solved.
+     * @param numberOfThreads number of workers to submit to provided executor.
+     * @throws IllegalArgumentException if number of threads is less than 1.
+     * @throws NullPointerException     if provided executor is null.
+     */
+    public GNSSLeastSquaresPositionAndVelocityBatchEstimator(
+            final ExecutorService executor, final int numberOfThreads) {
+        this(executor, numberOfThreads,
+                GNSSLeastSquaresPositionAndVelocityEstimator.CONVERGENCE_THRESHOLD);
+    }
+
+    /**
+     * Constructor.
+     * Provided executor is never shut down by this instance.
+     *
+     * @param executor             executor where epochs are solved.
+     * @param numberOfThreads      number of workers to submit to provided
+     *                             executor.
+     * @param convergenceThreshold threshold to determine when convergence has
+     *                             been reached.
+     * @throws IllegalArgumentException if number of threads is less than 1 or
+     *                                  if threshold is zero or negative.
+     * @throws NullPointerException     if provided executor is null.
+     */
+    public GNSSLeastSquaresPositionAndVelocityBatchEstimator(
+            final ExecutorService executor, final int numberOfThreads,
+            final double convergenceThreshold) {
+        if (executor == null) {
+            throw new NullPointerException();
+        }
+        if (numberOfThreads < 1 || convergenceThreshold <= 0.0) {
+            throw new IllegalArgumentException();
+        }
+
+        mNumberOfThreads = numberOfThreads;
+        mConvergenceThreshold = convergenceThreshold;
+        mOwnsExecutor = false;
+        mExecutor = executor;
+    }
+
+    /**
+     * Gets number of threads to use.
+     *
+     * @return number of threads to use.
+     */
+    public int getNumberOfThreads() {
+        return mNumberOfThreads;
+    }
+
+    /**
+     * Gets threshold to determine when convergence has been reached.
+     *
+     * @return threshold to determine when convergence has been reached.
+     */
+    public double getConvergenceThreshold() {
+        return mConvergenceThreshold;
+    }
+
+    /**
+     * Releases worker threads owned by this instance.
+     * Has no effect if an external executor was provided.
+     * This instance can still be used afterwards, in which case new worker
+     * threads are created.
+     */
+    public synchronized void shutdown() {
+        if (mOwnsExecutor && mExecutor != null) {
+            mExecutor.shutdownNow();
+            mExecutor = null;
+        }
+    }
+
+    /**
+     * Solves provided epochs without any prior position and velocity.
+     *
+     * @param measurements measurements of each epoch.
+     * @param results      array where estimation of each epoch will be stored.
+     *                     Existing instances are reused and missing ones are
+     *                     created.
+     * @param statuses     array where status code of each epoch will be stored.
+     * @return number of successfully solved epochs.
+     * @throws IllegalArgumentException if results or statuses arrays are
+     *                                  shorter than measurements array.
+     * @throws GNSSException            if estimation is interrupted or fails
+     *                                  unexpectedly.
+     */
+    public int estimate(final GNSSMeasurementBatch[] measurements,
+                        final GNSSEstimation[] results, final int[] statuses)
+            throws GNSSException {
+        return estimate(measurements, null, results, statuses);
+    }
+
+    /**
+     * Solves provided epochs.
+     *
+     * @param measurements measurements of each epoch.
+     * @param priors       prior position and velocity of each epoch. Either
+     *                     the whole array or any of its entries can be null,
+     *                     in which case prior is initialized from epoch
+     *                     measurements.
+     * @param results      array where estimation of each epoch will be stored.
+     *                     Existing instances are reused and missing ones are
+     *                     created.
+     * @param statuses     array where status code of each epoch will be stored.
+     * @return number of successfully solved epochs.
+     * @throws IllegalArgumentException if priors, results or statuses arrays
+     *                                  are shorter than measurements array.
+     * @throws GNSSException            if estimation is interrupted or fails
+     *                                  unexpectedly.
+     */
+    public int estimate(final GNSSMeasurementBatch[] measurements,
+                        final ECEFPositionAndVelocity[] priors,
+                        final GNSSEstimation[] results, final int[] statuses)
+            throws GNSSException {
+        final int numEpochs = measurements.length;
+        if ((priors != null && priors.length < numEpochs)
+                || results.length < numEpochs || statuses.length < numEpochs) {
+            throw new IllegalArgumentException();
+        }
+
+        final int numChunks = (numEpochs + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final GNSSParallelLoop.BodyFactory factory =
+                new GNSSParallelLoop.BodyFactory() {
+                    @Override
+                    public GNSSParallelLoop.Body create() {
+                        final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                                createEstimator();
+                        return new GNSSParallelLoop.Body() {
+                            @Override
+                            public void run(final int chunk) throws LockedException {
+                                final int end = Math.min(numEpochs,
+                                        (chunk + 1) * CHUNK_SIZE);
+                                for (int k = chunk * CHUNK_SIZE; k < end; k++) {
+                                    solve(estimator, k, measurements, priors,
+                                            results, statuses);
+                                }
+                            }
+                        };
+                    }
+                };
+
+        if (Math.min(mNumberOfThreads, numChunks) > 1) {
+            GNSSParallelLoop.run(getExecutor(), mNumberOfThreads, numChunks,
+                    factory);
+        } else {
+            // avoid creating worker threads when they are not needed
+            GNSSParallelLoop.run(1, numChunks, factory);
+        }
+
+        int successes = 0;
+        for (int k = 0; k < numEpochs; k++) {
+            if (statuses[k] == STATUS_SUCCESS) {
+                successes++;
+            }
+        }
+        return successes;
+    }
+
+    /**
+     * Gets executor where epochs are solved, creating it if needed.
+     *
+     * @return executor where epochs are solved.
+     */
+    private synchronized ExecutorService getExecutor() {
+        if (mExecutor == null) {
+            mExecutor = GNSSParallelLoop.newExecutor(mNumberOfThreads);
+        }
+        return mExecutor;
+    }
+
+    /**
+     * Creates the estimator used as workspace by a single worker.
+     *
+     * @return a new estimator.
+     */
+    private GNSSLeastSquaresPositionAndVelocityEstimator createEstimator() {
+        final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+        try {
+            estimator.setConvergenceThreshold(mConvergenceThreshold);
+        } catch (final LockedException ignore) {
+            // never happens for a new estimator
+        }
+        return estimator;
+    }
+
+    /**
+     * Solves a single epoch using provided estimator.
+     *
+     * @param estimator    estimator owned by current worker.
+     * @param k            index of epoch to solve.
+     * @param measurements measurements of each epoch.
+     * @param priors       prior position and velocity of each epoch or null.
+     * @param results      array where estimation of each epoch is stored.
+     * @param statuses     array where status code of each epoch is stored.
+     * @throws LockedException if estimator is already running.
+     */
+    private static void solve(
+            final GNSSLeastSquaresPositionAndVelocityEstimator estimator,
+            final int k, final GNSSMeasurementBatch[] measurements,
+            final ECEFPositionAndVelocity[] priors, final GNSSEstimation[] results,
+            final int[] statuses) throws LockedException {
+        final GNSSMeasurementBatch batch = measurements[k];
+        if (!GNSSLeastSquaresPositionAndVelocityEstimator.isValidMeasurementBatch(
+                batch)) {
+            statuses[k] = STATUS_NOT_ENOUGH_MEASUREMENTS;
+            return;
+        }
+
+        if (results[k] == null) {
+            results[k] = new GNSSEstimation();
+        }
+
+        estimator.setMeasurementBatch(batch);
+        // prior is always reset, so that a prior initialized for a previous
+        // epoch is never reused
+        estimator.setPriorPositionAndVelocity(priors != null ? priors[k] : null);
+        try {
+            estimator.estimate(results[k]);
+            statuses[k] = estimator.isConverged() ? STATUS_SUCCESS
+                    : STATUS_NOT_CONVERGED;
+        } catch (final NotReadyException | GNSSException e) {
+            statuses[k] = STATUS_NUMERICAL_FAILURE;
+        }
+    }
+}
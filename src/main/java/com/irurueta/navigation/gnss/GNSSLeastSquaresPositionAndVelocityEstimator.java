@@ -28,6 +28,9 @@ import com.irurueta.navigation.frames.NEDVelocity;
 import com.irurueta.navigation.frames.converters.ECEFtoNEDPositionVelocityConverter;
 import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
 import com.irurueta.navigation.geodesic.Constants;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeConverter;
+import com.irurueta.units.TimeUnit;
 
 import java.util.Collection;
 
@@ -52,6 +55,18 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
      */
     public static final double CONVERGENCE_THRESHOLD = 1e-4;
 
+    /**
+     * Default maximum number of iterations of each least squares solution.
+     */
+    public static final int DEFAULT_MAX_ITERATIONS = 20;
+
+    /**
+     * Indicates that by default, when no prior position and velocity is
+     * available, estimation is initialized with a point on Earth's surface
+     * rather than with a closed-form solution of position and clock offset.
+     */
+    public static final boolean DEFAULT_CLOSED_FORM_INITIALIZATION_ENABLED = false;
+
     /**
      * Speed of light in the vacuum expressed in meters per second (m/s).
      */
@@ -82,6 +97,18 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
      */
     private Collection<GNSSMeasurement> mMeasurements;
 
+    /**
+     * GNSS measurements of a collection of satellites stored in primitive
+     * arrays.
+     */
+    private GNSSMeasurementBatch mMeasurementBatch;
+
+    /**
+     * Internal batch to be reused where measurements provided as a collection
+     * are copied before estimation.
+     */
+    private final GNSSMeasurementBatch mInternalBatch = new GNSSMeasurementBatch();
+
     /**
      * Previously predicted ECEF user position and velocity.
      */
@@ -97,6 +124,93 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
      */
     private double mConvergenceThreshold = CONVERGENCE_THRESHOLD;
 
+    /**
+     * Maximum number of iterations of each least squares solution.
+     */
+    private int mMaxIterations = DEFAULT_MAX_ITERATIONS;
+
+    /**
+     * Indicates whether estimation is initialized with a closed-form solution
+     * of position and clock offset when no prior position and velocity is
+     * available.
+     */
+    private boolean mClosedFormInitializationEnabled =
+            DEFAULT_CLOSED_FORM_INITIALIZATION_ENABLED;
+
+    /**
+     * Closed-form solver used to initialize estimation when no prior position
+     * and velocity is available.
+     */
+    private final GNSSBancroftSolver mClosedFormSolver = new GNSSBancroftSolver();
+
+    /**
+     * Closed-form solution to be reused.
+     */
+    private final GNSSEstimation mClosedFormSolution = new GNSSEstimation();
+
+    /**
+     * Indicates whether estimation is warm-started from the last solution.
+     */
+    private boolean mWarmStartEnabled;
+
+    /**
+     * Timestamp of current measurements expressed in seconds (s) or NaN if
+     * unknown.
+     */
+    private double mTimestamp = Double.NaN;
+
+    /**
+     * Indicates whether a previous solution is available to warm-start
+     * estimation.
+     */
+    private boolean mHasLastSolution;
+
+    /**
+     * Last estimated solution.
+     */
+    private final GNSSEstimation mLastSolution = new GNSSEstimation();
+
+    /**
+     * Timestamp of last estimated solution expressed in seconds (s) or NaN if
+     * unknown.
+     */
+    private double mLastTimestamp = Double.NaN;
+
+    /**
+     * Number of iterations of last position and clock offset solution.
+     */
+    private int mPositionIterations;
+
+    /**
+     * Number of iterations of last velocity and clock drift solution.
+     */
+    private int mVelocityIterations;
+
+    /**
+     * Root mean square of pseudo-range residuals of last solution expressed in
+     * meters (m).
+     */
+    private double mPositionResidualRms = Double.NaN;
+
+    /**
+     * Root mean square of pseudo-range rate residuals of last solution expressed
+     * in meters per second (m/s).
+     */
+    private double mVelocityResidualRms = Double.NaN;
+
+    /**
+     * Dilution of precision of satellite geometry used for last position
+     * solution.
+     */
+    private final GNSSDilutionOfPrecision mDilutionOfPrecision =
+            new GNSSDilutionOfPrecision();
+
+    /**
+     * Indicates whether both least squares solutions of last estimation
+     * converged before reaching the maximum number of iterations.
+     */
+    private boolean mConverged;
+
     /**
      * Indicates whether estimation is currently running.
      */
@@ -329,6 +443,22 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
         }
     }
 
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements of a collection of satellites.
+     * @throws IllegalArgumentException if less than 4 measurements are provided.
+     */
+    public GNSSLeastSquaresPositionAndVelocityEstimator(
+            final GNSSMeasurementBatch measurements) {
+        this();
+        try {
+            setMeasurementBatch(measurements);
+        } catch (final LockedException ignore) {
+            // never happens
+        }
+    }
+
     /**
      * Constructor.
      *
@@ -407,7 +537,8 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
     /**
      * Gets GNSS measurements of a collection of satellites.
      *
-     * @return GNSS measurements of a collection of satellites.
+     * @return GNSS measurements of a collection of satellites or null if
+     * measurements were provided as a batch.
      */
     public Collection<GNSSMeasurement> getMeasurements() {
         return mMeasurements;
@@ -430,6 +561,41 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
         }
 
         mMeasurements = measurements;
+        mMeasurementBatch = null;
+    }
+
+    /**
+     * Gets GNSS measurements of a collection of satellites stored in primitive
+     * arrays.
+     *
+     * @return GNSS measurements of a collection of satellites or null if
+     * measurements were provided as a collection.
+     */
+    public GNSSMeasurementBatch getMeasurementBatch() {
+        return mMeasurementBatch;
+    }
+
+    /**
+     * Sets GNSS measurements of a collection of satellites stored in primitive
+     * arrays.
+     * Provided batch is not copied, hence it must not be modified while
+     * estimation is running.
+     *
+     * @param measurements GNSS measurements of a collection of satellites.
+     * @throws IllegalArgumentException if less than 4 measurements are provided.
+     * @throws LockedException          if this estimator is already running.
+     */
+    public void setMeasurementBatch(
+            final GNSSMeasurementBatch measurements) throws LockedException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+        if (!isValidMeasurementBatch(measurements)) {
+            throw new IllegalArgumentException();
+        }
+
+        mMeasurementBatch = measurements;
+        mMeasurements = null;
     }
 
     /**
@@ -529,13 +695,254 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
         mConvergenceThreshold = convergenceThreshold;
     }
 
+    /**
+     * Gets maximum number of iterations of each least squares solution.
+     *
+     * @return maximum number of iterations.
+     */
+    public int getMaxIterations() {
+        return mMaxIterations;
+    }
+
+    /**
+     * Sets maximum number of iterations of each least squares solution.
+     * When this number is reached before convergence, estimation stops and
+     * {@link #isConverged()} returns false.
+     *
+     * @param maxIterations maximum number of iterations.
+     * @throws LockedException          if this estimator is already running.
+     * @throws IllegalArgumentException if provided value is less than 1.
+     */
+    public void setMaxIterations(final int maxIterations)
+            throws LockedException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        mMaxIterations = maxIterations;
+    }
+
+    /**
+     * Indicates whether estimation is initialized with a closed-form solution
+     * of position and clock offset when no prior position and velocity is
+     * available.
+     *
+     * @return true if closed-form initialization is enabled, false otherwise.
+     */
+    public boolean isClosedFormInitializationEnabled() {
+        return mClosedFormInitializationEnabled;
+    }
+
+    /**
+     * Specifies whether estimation is initialized with a closed-form solution
+     * of position and clock offset when no prior position and velocity is
+     * available.
+     * When enabled, {@link GNSSBancroftSolver} is used, so that iterations
+     * start close to the final solution, and the initial position is also
+     * used to compensate Earth rotation during signal transit time.
+     * When disabled, or if the closed-form solution cannot be found, user is
+     * assumed to be located on Earth's surface below the average position of
+     * the satellites.
+     *
+     * @param closedFormInitializationEnabled true to enable closed-form
+     *                                        initialization, false otherwise.
+     * @throws LockedException if this estimator is already running.
+     */
+    public void setClosedFormInitializationEnabled(
+            final boolean closedFormInitializationEnabled)
+            throws LockedException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+
+        mClosedFormInitializationEnabled = closedFormInitializationEnabled;
+    }
+
+    /**
+     * Indicates whether estimation is warm-started from the last solution.
+     *
+     * @return true if warm start is enabled, false otherwise.
+     */
+    public boolean isWarmStartEnabled() {
+        return mWarmStartEnabled;
+    }
+
+    /**
+     * Specifies whether estimation is warm-started from the last solution.
+     * When enabled and a previous solution is available, position, velocity,
+     * clock offset and clock drift of the previous solution are extrapolated
+     * to the timestamp of current measurements and used as initial values,
+     * and any prior position and velocity is ignored.
+     * Receivers tracking a user typically converge in one or two iterations
+     * this way.
+     *
+     * @param warmStartEnabled true to enable warm start, false otherwise.
+     * @throws LockedException if this estimator is already running.
+     */
+    public void setWarmStartEnabled(final boolean warmStartEnabled)
+            throws LockedException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+
+        mWarmStartEnabled = warmStartEnabled;
+    }
+
+    /**
+     * Indicates whether a previous solution is available to warm-start next
+     * estimation.
+     * Only solutions of estimations that converged are kept.
+     *
+     * @return true if a previous solution is available, false otherwise.
+     */
+    public boolean hasLastSolution() {
+        return mHasLastSolution;
+    }
+
+    /**
+     * Discards last solution, so that next estimation is not warm-started.
+     *
+     * @throws LockedException if this estimator is already running.
+     */
+    public void resetWarmStart() throws LockedException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+
+        clearLastSolution();
+    }
+
+    /**
+     * Gets timestamp of current measurements expressed in seconds (s).
+     *
+     * @return timestamp of current measurements or NaN if unknown.
+     */
+    public double getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * Sets timestamp of current measurements expressed in seconds (s).
+     * Timestamp is only used to extrapolate the last solution when warm start
+     * is enabled. If either current or last timestamp is unknown, the last
+     * solution is used without extrapolation.
+     *
+     * @param timestamp timestamp of current measurements or NaN if unknown.
+     * @throws LockedException if this estimator is already running.
+     */
+    public void setTimestamp(final double timestamp) throws LockedException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+
+        mTimestamp = timestamp;
+    }
+
+    /**
+     * Sets timestamp of current measurements.
+     * Timestamp is only used to extrapolate the last solution when warm start
+     * is enabled.
+     *
+     * @param timestamp timestamp of current measurements.
+     * @throws LockedException if this estimator is already running.
+     */
+    public void setTimestamp(final Time timestamp) throws LockedException {
+        setTimestamp(TimeConverter.convert(timestamp.getValue().doubleValue(),
+                timestamp.getUnit(), TimeUnit.SECOND));
+    }
+
+    /**
+     * Gets number of iterations of last position and clock offset solution.
+     *
+     * @return number of iterations of last position solution.
+     */
+    public int getPositionIterations() {
+        return mPositionIterations;
+    }
+
+    /**
+     * Gets number of iterations of last velocity and clock drift solution.
+     *
+     * @return number of iterations of last velocity solution.
+     */
+    public int getVelocityIterations() {
+        return mVelocityIterations;
+    }
+
+    /**
+     * Gets root mean square of pseudo-range residuals of last solution
+     * expressed in meters (m).
+     *
+     * @return root mean square of pseudo-range residuals or NaN if not
+     * available.
+     */
+    public double getPositionResidualRms() {
+        return mPositionResidualRms;
+    }
+
+    /**
+     * Gets root mean square of pseudo-range rate residuals of last solution
+     * expressed in meters per second (m/s).
+     *
+     * @return root mean square of pseudo-range rate residuals or NaN if not
+     * available.
+     */
+    public double getVelocityResidualRms() {
+        return mVelocityResidualRms;
+    }
+
+    /**
+     * Gets dilution of precision of satellite geometry used for last position
+     * solution.
+     * Values are obtained from the inverse of the normal matrix already
+     * computed on the last iteration, hence no additional inversion is
+     * required.
+     *
+     * Returned instance is internally reused and is overwritten by next
+     * estimation. Use {@link #getDilutionOfPrecision(GNSSDilutionOfPrecision)}
+     * to keep values of a given estimation.
+     *
+     * @return dilution of precision of last solution. Values are NaN if not
+     * available.
+     */
+    public GNSSDilutionOfPrecision getDilutionOfPrecision() {
+        return mDilutionOfPrecision;
+    }
+
+    /**
+     * Gets dilution of precision of satellite geometry used for last position
+     * solution.
+     *
+     * @param result instance where dilution of precision of last solution will
+     *               be copied to.
+     * @return true if values are available, false otherwise.
+     */
+    public boolean getDilutionOfPrecision(final GNSSDilutionOfPrecision result) {
+        mDilutionOfPrecision.copyTo(result);
+        return result.isAvailable();
+    }
+
+    /**
+     * Indicates whether both least squares solutions of last estimation
+     * converged before reaching the maximum number of iterations.
+     *
+     * @return true if last estimation converged, false otherwise.
+     */
+    public boolean isConverged() {
+        return mConverged;
+    }
+
     /**
      * Indicates whether this estimator is ready to start the estimation.
      *
      * @return true if estimator is ready, false otherwise.
      */
     public boolean isReady() {
-        return isValidMeasurements(mMeasurements);
+        return isValidMeasurements(mMeasurements)
+                || isValidMeasurementBatch(mMeasurementBatch);
     }
 
     /**
@@ -558,6 +965,18 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
         return gnssMeasurements != null && gnssMeasurements.size() >= MIN_MEASUREMENTS;
     }
 
+    /**
+     * Indicates whether provided measurements are valid or not.
+     *
+     * @param gnssMeasurements measurements to be checked.
+     * @return true if at least 4 measurements are provided, false otherwise.
+     */
+    public static boolean isValidMeasurementBatch(
+            final GNSSMeasurementBatch gnssMeasurements) {
+        return gnssMeasurements != null
+                && gnssMeasurements.getSize() >= MIN_MEASUREMENTS;
+    }
+
     /**
      * Estimates new ECEF user position and velocity as well as clock
      * offset and drift.
@@ -584,24 +1003,73 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
                 mListener.onEstimateStart(this);
             }
 
-            // if no prior position and velocity is available, assume that
-            // we are at latitude,longitude equal to the average of satellite
-            // measurements, at Earth's surface (height = 0) and with zero velocity.
-            initializePriorPositionAndVelocityIfNeeded();
+            mPositionIterations = 0;
+            mVelocityIterations = 0;
+            mPositionResidualRms = Double.NaN;
+            mVelocityResidualRms = Double.NaN;
+            mDilutionOfPrecision.reset();
+            mConverged = false;
+
+            final GNSSMeasurementBatch batch;
+            if (mMeasurementBatch != null) {
+                batch = mMeasurementBatch;
+            } else {
+                mInternalBatch.setMeasurements(mMeasurements);
+                batch = mInternalBatch;
+            }
+            final double[] xs = batch.getXs();
+            final double[] ys = batch.getYs();
+            final double[] zs = batch.getZs();
+
+            final double priorX;
+            final double priorY;
+            final double priorZ;
+            final double priorVx;
+            final double priorVy;
+            final double priorVz;
+            final double priorClockOffset;
+            final double priorClockDrift;
+            if (mWarmStartEnabled && mHasLastSolution) {
+                // extrapolate last solution to the timestamp of current
+                // measurements assuming constant velocity and clock drift
+                final double dt = Double.isNaN(mTimestamp)
+                        || Double.isNaN(mLastTimestamp) ? 0.0
+                        : mTimestamp - mLastTimestamp;
+                priorVx = mLastSolution.getVx();
+                priorVy = mLastSolution.getVy();
+                priorVz = mLastSolution.getVz();
+                priorX = mLastSolution.getX() + priorVx * dt;
+                priorY = mLastSolution.getY() + priorVy * dt;
+                priorZ = mLastSolution.getZ() + priorVz * dt;
+                priorClockDrift = mLastSolution.getClockDrift();
+                priorClockOffset = mLastSolution.getClockOffset()
+                        + priorClockDrift * dt;
+            } else {
+                // if no prior position and velocity is available, solve
+                // position and clock offset in closed form, or otherwise
+                // assume that we are at latitude,longitude equal to the average
+                // of satellite measurements, at Earth's surface (height = 0)
+                // and with zero velocity.
+                priorClockOffset = initializePriorPositionAndVelocityIfNeeded(batch);
+
+                priorX = mPriorPositionAndVelocity.getX();
+                priorY = mPriorPositionAndVelocity.getY();
+                priorZ = mPriorPositionAndVelocity.getZ();
+                priorVx = mPriorPositionAndVelocity.getVx();
+                priorVy = mPriorPositionAndVelocity.getVy();
+                priorVz = mPriorPositionAndVelocity.getVz();
+                priorClockDrift = 0.0;
+            }
 
             // POSITION AND CLOCK OFFSET
 
             // Setup predicted state
-            final double priorX = mPriorPositionAndVelocity.getX();
-            final double priorY = mPriorPositionAndVelocity.getY();
-            final double priorZ = mPriorPositionAndVelocity.getZ();
-
             mXPred.setElementAtIndex(0, priorX);
             mXPred.setElementAtIndex(1, priorY);
             mXPred.setElementAtIndex(2, priorZ);
-            mXPred.setElementAtIndex(3, 0.0);
+            mXPred.setElementAtIndex(3, priorClockOffset);
 
-            final int numMeasurements = mMeasurements.size();
+            final int numMeasurements = batch.getSize();
             final Matrix predMeas = new Matrix(numMeasurements, 1);
             final Matrix h = new Matrix(numMeasurements, STATE_COMPONENTS);
             for (int i = 0; i < numMeasurements; i++) {
@@ -612,18 +1080,19 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
             final Matrix hTmp1 = new Matrix(STATE_COMPONENTS, numMeasurements);
             final Matrix deltaPseudoRange = new Matrix(numMeasurements, 1);
 
-            // Repeat until convergence
-            double testConvergence = 1.0;
-            while (testConvergence > mConvergenceThreshold) {
+            // Repeat until convergence or until maximum number of iterations
+            double testConvergence = Double.MAX_VALUE;
+            while (testConvergence > mConvergenceThreshold
+                    && mPositionIterations < mMaxIterations) {
 
                 // Loop measurements
-                int j = 0;
-                for (final GNSSMeasurement measurement : mMeasurements) {
+                final double[] pseudoRanges = batch.getPseudoRanges();
+                for (int j = 0; j < numMeasurements; j++) {
 
                     // Predict approx range
-                    final double measX = measurement.getX();
-                    final double measY = measurement.getY();
-                    final double measZ = measurement.getZ();
+                    final double measX = xs[j];
+                    final double measY = ys[j];
+                    final double measZ = zs[j];
 
                     double deltaRx = measX - priorX;
                     double deltaRy = measY - priorY;
@@ -651,14 +1120,12 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
                     predMeas.setElementAtIndex(j, predictedPseudoRange);
 
                     deltaPseudoRange.setElementAtIndex(j,
-                            measurement.getPseudoRange() - predictedPseudoRange);
+                            pseudoRanges[j] - predictedPseudoRange);
 
                     // Predict line of sight and deploy in measurement matrix, (9.144)
                     h.setElementAt(j, 0, -deltaRx / range);
                     h.setElementAt(j, 1, -deltaRy / range);
                     h.setElementAt(j, 2, -deltaRz / range);
-
-                    j++;
                 }
 
                 // Unweighted least-squares solution, (9.35)/(9.141)
@@ -672,10 +1139,15 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
 
                 // Test convergence
                 testConvergence = predictionError();
+                mPositionIterations++;
 
                 // Set predictions to estimates for next iteration
                 mXPred.copyFrom(mXEst);
             }
+            final boolean positionConverged =
+                    testConvergence <= mConvergenceThreshold;
+            mPositionResidualRms = residualRms(h, deltaPseudoRange, mTmp3,
+                    numMeasurements);
 
             // Set outputs to estimates
             final double resultX = mXEst.getElementAtIndex(0);
@@ -683,6 +1155,13 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
             final double resultZ = mXEst.getElementAtIndex(2);
             result.setPositionCoordinates(resultX, resultY, resultZ);
 
+            // inverse of normal matrix of last iteration is the cofactor
+            // matrix of satellite geometry
+            if (mPositionIterations > 0) {
+                mDilutionOfPrecision.setFromCofactor(mInvHSqr.getBuffer(),
+                        resultX, resultY, resultZ);
+            }
+
             final double resultClockOffset = mXEst.getElementAtIndex(3);
             result.setClockOffset(resultClockOffset);
 
@@ -690,14 +1169,10 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
             // VELOCITY AND CLOCK DRIFT
 
             // Setup predicted state
-            final double priorVx = mPriorPositionAndVelocity.getVx();
-            final double priorVy = mPriorPositionAndVelocity.getVy();
-            final double priorVz = mPriorPositionAndVelocity.getVz();
-
             mXPred.setElementAtIndex(0, priorVx);
             mXPred.setElementAtIndex(1, priorVy);
             mXPred.setElementAtIndex(2, priorVz);
-            mXPred.setElementAtIndex(3, 0.0);
+            mXPred.setElementAtIndex(3, priorClockDrift);
 
             mResultPosition.setElementAtIndex(0, resultX);
             mResultPosition.setElementAtIndex(1, resultY);
@@ -705,17 +1180,21 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
 
             final Matrix deltaPseudoRangeRate = new Matrix(numMeasurements, 1);
 
-            // Repeat until convergence
-            testConvergence = 1.0;
-            while (testConvergence > mConvergenceThreshold) {
+            // Repeat until convergence or until maximum number of iterations
+            testConvergence = Double.MAX_VALUE;
+            while (testConvergence > mConvergenceThreshold
+                    && mVelocityIterations < mMaxIterations) {
 
                 // Loop measurements
-                int j = 0;
-                for (final GNSSMeasurement measurement : mMeasurements) {
+                final double[] pseudoRates = batch.getPseudoRates();
+                final double[] vxs = batch.getVxs();
+                final double[] vys = batch.getVys();
+                final double[] vzs = batch.getVzs();
+                for (int j = 0; j < numMeasurements; j++) {
                     // Predict approx range
-                    final double measX = measurement.getX();
-                    final double measY = measurement.getY();
-                    final double measZ = measurement.getZ();
+                    final double measX = xs[j];
+                    final double measY = ys[j];
+                    final double measZ = zs[j];
 
                     double deltaRx = measX - resultX;
                     double deltaRy = measY - resultY;
@@ -749,9 +1228,9 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
                     mMeasurementPosition.setElementAtIndex(1, measY);
                     mMeasurementPosition.setElementAtIndex(2, measZ);
 
-                    final double measVx = measurement.getVx();
-                    final double measVy = measurement.getVy();
-                    final double measVz = measurement.getVz();
+                    final double measVx = vxs[j];
+                    final double measVy = vys[j];
+                    final double measVz = vzs[j];
 
                     mMeasurementVelocity.setElementAtIndex(0, measVx);
                     mMeasurementVelocity.setElementAtIndex(1, measVy);
@@ -780,14 +1259,12 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
                     predMeas.setElementAtIndex(j, predictedPseudoRangeRate);
 
                     deltaPseudoRangeRate.setElementAtIndex(j,
-                            measurement.getPseudoRate() - predictedPseudoRangeRate);
+                            pseudoRates[j] - predictedPseudoRangeRate);
 
                     // Predict line of sight and deploy in measurement matrix, (9.144)
                     h.setElementAt(j, 0, -uaseX);
                     h.setElementAt(j, 1, -uaseY);
                     h.setElementAt(j, 2, -uaseZ);
-
-                    j++;
                 }
 
                 // Unweighted least-squares solution, (9.35)/(9.141)
@@ -801,10 +1278,15 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
 
                 // Test convergence
                 testConvergence = predictionError();
+                mVelocityIterations++;
 
                 // Set predictions to estimates for next iteration
                 mXPred.copyFrom(mXEst);
             }
+            final boolean velocityConverged =
+                    testConvergence <= mConvergenceThreshold;
+            mVelocityResidualRms = residualRms(h, deltaPseudoRangeRate, mTmp10,
+                    numMeasurements);
 
             // Set outputs to estimates
             final double resultVx = mXEst.getElementAtIndex(0);
@@ -815,7 +1297,21 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
             final double resultClockDrift = mXEst.getElementAtIndex(3);
             result.setClockDrift(resultClockDrift);
 
+            mConverged = positionConverged && velocityConverged;
+
+            if (mConverged) {
+                // keep solution to warm-start next estimation
+                mLastSolution.copyFrom(result);
+                mLastTimestamp = mTimestamp;
+                mHasLastSolution = true;
+            } else {
+                // a solution that did not converge might be far from the
+                // actual one and must not be used as prior
+                clearLastSolution();
+            }
+
         } catch (final AlgebraException e) {
+            clearLastSolution();
             throw new GNSSException(e);
         } finally {
 
@@ -845,16 +1341,51 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
     }
 
     /**
-     * Initializes prior position and velocity if not set, assuming that
-     * user is located at the average latitude, longitude of all provided
-     * satellite measurements, at Earth's surface (height = 0) and with zero velocity.
+     * Discards last solution, so that next estimation is not warm-started.
      */
-    private void initializePriorPositionAndVelocityIfNeeded() {
+    private void clearLastSolution() {
+        mHasLastSolution = false;
+        mLastTimestamp = Double.NaN;
+    }
+
+    /**
+     * Initializes prior position and velocity if not set.
+     * If enabled, position and clock offset are solved in closed form and
+     * velocity is assumed to be zero. Otherwise, or if closed-form solution
+     * fails, user is assumed to be located at the average latitude, longitude
+     * of all provided satellite measurements, at Earth's surface (height = 0)
+     * and with zero velocity.
+     *
+     * @param batch measurements used for estimation.
+     * @return prior clock offset expressed in meters (m), which is only
+     * known when position is solved in closed form, and is zero otherwise.
+     */
+    private double initializePriorPositionAndVelocityIfNeeded(
+            final GNSSMeasurementBatch batch) {
         if (mPriorPositionAndVelocity != null) {
-            return;
+            return 0.0;
+        }
+
+        if (mClosedFormInitializationEnabled) {
+            try {
+                mClosedFormSolver.solve(batch, mClosedFormSolution);
+                mPriorPositionAndVelocity = new ECEFPositionAndVelocity(
+                        mClosedFormSolution.getX(), mClosedFormSolution.getY(),
+                        mClosedFormSolution.getZ());
+                return mClosedFormSolution.getClockOffset();
+            } catch (final GNSSException ignore) {
+                // degenerate geometry, so we fall back to a point on
+                // Earth's surface
+            }
         }
 
-        int numMeasurements = mMeasurements.size();
+        final int numMeasurements = batch.getSize();
+        final double[] xs = batch.getXs();
+        final double[] ys = batch.getYs();
+        final double[] zs = batch.getZs();
+        final double[] vxs = batch.getVxs();
+        final double[] vys = batch.getVys();
+        final double[] vzs = batch.getVzs();
         final NEDPosition nedPosition = new NEDPosition();
         final NEDVelocity nedVelocity = new NEDVelocity();
 
@@ -863,9 +1394,9 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
 
         double userLatitude = 0.0;
         double userLongitude = 0.0;
-        for (final GNSSMeasurement measurement : mMeasurements) {
-            measurement.getEcefPosition(ecefPosition);
-            measurement.getEcefVelocity(ecefVelocity);
+        for (int i = 0; i < numMeasurements; i++) {
+            ecefPosition.setCoordinates(xs[i], ys[i], zs[i]);
+            ecefVelocity.setCoordinates(vxs[i], vys[i], vzs[i]);
             ECEFtoNEDPositionVelocityConverter.convertECEFtoNED(
                     ecefPosition, ecefVelocity, nedPosition, nedVelocity);
 
@@ -884,6 +1415,7 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
 
         mPriorPositionAndVelocity = new ECEFPositionAndVelocity(
                 ecefPosition, ecefVelocity);
+        return 0.0;
     }
 
     /**
@@ -898,6 +1430,30 @@ public class GNSSLeastSquaresPositionAndVelocityEstimator {
         return Math.sqrt(x * x + y * y + z * z);
     }
 
+    /**
+     * Computes root mean square of residuals remaining after applying the
+     * state correction of a least squares iteration.
+     *
+     * @param h               measurement or geometry matrix.
+     * @param deltas          measurement innovations before correction.
+     * @param correction      state correction.
+     * @param numMeasurements number of measurements.
+     * @return root mean square of residuals.
+     */
+    private static double residualRms(final Matrix h, final Matrix deltas,
+                                      final Matrix correction,
+                                      final int numMeasurements) {
+        double sqrSum = 0.0;
+        for (int j = 0; j < numMeasurements; j++) {
+            double residual = deltas.getElementAtIndex(j);
+            for (int i = 0; i < STATE_COMPONENTS; i++) {
+                residual -= h.getElementAt(j, i) * correction.getElementAtIndex(i);
+            }
+            sqrSum += residual * residual;
+        }
+        return Math.sqrt(sqrSum / numMeasurements);
+    }
+
     /**
      * Computes norm of error between estimated state
      * and predicted state.
@@ -34,6 +34,19 @@ import java.util.Objects;
  */
 public class GNSSMeasurement implements Serializable, Cloneable {
 
+    /**
+     * Satellite identifier indicating that satellite is unknown.
+     */
+    public static final int UNKNOWN_SATELLITE_ID = -1;
+
+    /**
+     * Identifier of measured satellite (e.g. PRN number), or
+     * {@link #UNKNOWN_SATELLITE_ID} if not known.
+     * Identifiers allow matching measurements of the same satellite between
+     * epochs.
+     */
+    private int mSatelliteId = UNKNOWN_SATELLITE_ID;
+
     /**
      * Pseudo-range measurement expressed in meters (m).
      */
@@ -203,6 +216,29 @@ public class GNSSMeasurement implements Serializable, Cloneable {
         setPositionAndVelocity(positionAndVelocity);
     }
 
+    /**
+     * Constructor.
+     *
+     * @param satelliteId identifier of measured satellite (e.g. PRN number).
+     * @param pseudoRange pseudo-range measurement expressed in meters (m).
+     * @param pseudoRate  pseudo-range rate measurement expressed in meters per second (m/s).
+     * @param x           x coordinate of satellite ECEF position expressed in meters (m).
+     * @param y           y coordinate of satellite ECEF position expressed in meters (m).
+     * @param z           z coordinate of satellite ECEF position expressed in meters (m).
+     * @param vx          x coordinate of satellite ECEF velocity expressed in meters per second (m/s).
+     * @param vy          y coordinate of satellite ECEF velocity expressed in meters per second (m/s).
+     * @param vz          z coordinate of satellite ECEF velocity expressed in meters per second (m/s).
+     * @throws IllegalArgumentException if satellite identifier is negative and
+     *                                  not {@link #UNKNOWN_SATELLITE_ID}.
+     */
+    public GNSSMeasurement(final int satelliteId, final double pseudoRange,
+                           final double pseudoRate, final double x, final double y,
+                           final double z, final double vx, final double vy,
+                           final double vz) {
+        this(pseudoRange, pseudoRate, x, y, z, vx, vy, vz);
+        setSatelliteId(satelliteId);
+    }
+
     /**
      * Copy constructor.
      *
@@ -212,6 +248,41 @@ public class GNSSMeasurement implements Serializable, Cloneable {
         copyFrom(input);
     }
 
+    /**
+     * Gets identifier of measured satellite (e.g. PRN number).
+     *
+     * @return identifier of measured satellite or {@link #UNKNOWN_SATELLITE_ID}
+     * if not known.
+     */
+    public int getSatelliteId() {
+        return mSatelliteId;
+    }
+
+    /**
+     * Sets identifier of measured satellite (e.g. PRN number).
+     *
+     * @param satelliteId identifier of measured satellite or
+     *                    {@link #UNKNOWN_SATELLITE_ID} if not known.
+     * @throws IllegalArgumentException if satellite identifier is negative and
+     *                                  not {@link #UNKNOWN_SATELLITE_ID}.
+     */
+    public void setSatelliteId(final int satelliteId) {
+        if (satelliteId < UNKNOWN_SATELLITE_ID) {
+            throw new IllegalArgumentException();
+        }
+
+        mSatelliteId = satelliteId;
+    }
+
+    /**
+     * Indicates whether identifier of measured satellite is known.
+     *
+     * @return true if satellite identifier is known, false otherwise.
+     */
+    public boolean hasSatelliteId() {
+        return mSatelliteId != UNKNOWN_SATELLITE_ID;
+    }
+
     /**
      * Gets pseudo-range measurement expressed in meters (m).
      *
@@ -772,6 +843,8 @@ public class GNSSMeasurement implements Serializable, Cloneable {
      * @param output destination instance where data will be copied to.
      */
     public void copyTo(final GNSSMeasurement output) {
+        output.mSatelliteId = mSatelliteId;
+
         output.mPseudoRange = mPseudoRange;
         output.mPseudoRate = mPseudoRate;
 
@@ -790,6 +863,8 @@ public class GNSSMeasurement implements Serializable, Cloneable {
      * @param input instance to copy data from.
      */
     public void copyFrom(final GNSSMeasurement input) {
+        mSatelliteId = input.mSatelliteId;
+
         mPseudoRange = input.mPseudoRange;
         mPseudoRate = input.mPseudoRate;
 
@@ -810,7 +885,8 @@ public class GNSSMeasurement implements Serializable, Cloneable {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(mPseudoRange, mPseudoRate, mX, mY, mZ, mVx, mVy, mVz);
+        return Objects.hash(mSatelliteId, mPseudoRange, mPseudoRate, mX, mY, mZ,
+                mVx, mVy, mVz);
     }
 
     /**
@@ -846,6 +922,7 @@ public class GNSSMeasurement implements Serializable, Cloneable {
     /**
      * Checks if provided instance has contents similar to this instance up to provided
      * threshold value.
+     * Satellite identifiers must be exactly equal.
      *
      * @param other     instance to be compared.
      * @param threshold maximum difference allowed for values.
@@ -857,7 +934,8 @@ public class GNSSMeasurement implements Serializable, Cloneable {
             return false;
         }
 
-        return Math.abs(mPseudoRange - other.mPseudoRange) <= threshold
+        return mSatelliteId == other.mSatelliteId
+                && Math.abs(mPseudoRange - other.mPseudoRange) <= threshold
                 && Math.abs(mPseudoRate - other.mPseudoRate) <= threshold
                 && Math.abs(mX - other.mX) <= threshold
                 && Math.abs(mY - other.mY) <= threshold
@@ -0,0 +1,798 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Contains GNSS measurement data of a collection of satellites stored in
+ * primitive arrays (one array per measured quantity) rather than as individual
+ * GNSSMeasurement instances.
+ * Instances can be reused between epochs, since storage is only reallocated
+ * when capacity needs to grow.
+ */
+public class GNSSMeasurementBatch implements Serializable, Cloneable {
+
+    /**
+     * Default capacity.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Identifiers of measured satellites.
+     */
+    private int[] mSatelliteIds;
+
+    /**
+     * Pseudo-range measurements expressed in meters (m).
+     */
+    private double[] mPseudoRanges;
+
+    /**
+     * Pseudo-range rate measurements expressed in meters per second (m/s).
+     */
+    private double[] mPseudoRates;
+
+    /**
+     * X coordinates of satellite ECEF positions expressed in meters (m).
+     */
+    private double[] mX;
+
+    /**
+     * Y coordinates of satellite ECEF positions expressed in meters (m).
+     */
+    private double[] mY;
+
+    /**
+     * Z coordinates of satellite ECEF positions expressed in meters (m).
+     */
+    private double[] mZ;
+
+    /**
+     * X coordinates of satellite ECEF velocities expressed in meters per
+     * second (m/s).
+     */
+    private double[] mVx;
+
+    /**
+     * Y coordinates of satellite ECEF velocities expressed in meters per
+     * second (m/s).
+     */
+    private double[] mVy;
+
+    /**
+     * Z coordinates of satellite ECEF velocities expressed in meters per
+     * second (m/s).
+     */
+    private double[] mVz;
+
+    /**
+     * Number of measurements contained in this batch.
+     */
+    private int mSize;
+
+    /**
+     * Constructor.
+     */
+    public GNSSMeasurementBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity initial capacity.
+     * @throws IllegalArgumentException if capacity is negative.
+     */
+    public GNSSMeasurementBatch(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        allocate(capacity);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements measurements to be copied.
+     */
+    public GNSSMeasurementBatch(final Collection<GNSSMeasurement> measurements) {
+        this(measurements.size());
+        setMeasurements(measurements);
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param input instance to copy data from.
+     */
+    public GNSSMeasurementBatch(final GNSSMeasurementBatch input) {
+        this(input.mSize);
+        copyFrom(input);
+    }
+
+    /**
+     * Gets number of measurements contained in this batch.
+     *
+     * @return number of measurements.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Indicates whether this batch contains no measurements.
+     *
+     * @return true if batch is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Gets number of measurements that can be contained without reallocating
+     * storage.
+     *
+     * @return capacity.
+     */
+    public int getCapacity() {
+        return mPseudoRanges.length;
+    }
+
+    /**
+     * Ensures that at least provided number of measurements can be contained
+     * without reallocating storage.
+     * Contained measurements are preserved.
+     *
+     * @param capacity minimum capacity.
+     */
+    public void ensureCapacity(final int capacity) {
+        if (capacity <= mPseudoRanges.length) {
+            return;
+        }
+
+        final int newCapacity = Math.max(capacity, 2 * mPseudoRanges.length);
+        mSatelliteIds = Arrays.copyOf(mSatelliteIds, newCapacity);
+        mPseudoRanges = Arrays.copyOf(mPseudoRanges, newCapacity);
+        mPseudoRates = Arrays.copyOf(mPseudoRates, newCapacity);
+        mX = Arrays.copyOf(mX, newCapacity);
+        mY = Arrays.copyOf(mY, newCapacity);
+        mZ = Arrays.copyOf(mZ, newCapacity);
+        mVx = Arrays.copyOf(mVx, newCapacity);
+        mVy = Arrays.copyOf(mVy, newCapacity);
+        mVz = Arrays.copyOf(mVz, newCapacity);
+    }
+
+    /**
+     * Removes all measurements from this batch.
+     * Capacity is preserved.
+     */
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Adds a measurement to this batch.
+     *
+     * @param pseudoRange pseudo-range measurement expressed in meters (m).
+     * @param pseudoRate  pseudo-range rate measurement expressed in meters per
+     *                    second (m/s).
+     * @param x           x coordinate of satellite ECEF position expressed in
+     *                    meters (m).
+     * @param y           y coordinate of satellite ECEF position expressed in
+     *                    meters (m).
+     * @param z           z coordinate of satellite ECEF position expressed in
+     *                    meters (m).
+     * @param vx          x coordinate of satellite ECEF velocity expressed in
+     *                    meters per second (m/s).
+     * @param vy          y coordinate of satellite ECEF velocity expressed in
+     *                    meters per second (m/s).
+     * @param vz          z coordinate of satellite ECEF velocity expressed in
+     *                    meters per second (m/s).
+     */
+    public void add(final double pseudoRange, final double pseudoRate,
+                    final double x, final double y, final double z,
+                    final double vx, final double vy, final double vz) {
+        ensureCapacity(mSize + 1);
+        put(mSize, GNSSMeasurement.UNKNOWN_SATELLITE_ID, pseudoRange, pseudoRate,
+                x, y, z, vx, vy, vz);
+        mSize++;
+    }
+
+    /**
+     * Adds a measurement to this batch.
+     *
+     * @param satelliteId identifier of measured satellite or
+     *                    {@link GNSSMeasurement#UNKNOWN_SATELLITE_ID}.
+     * @param pseudoRange pseudo-range measurement expressed in meters (m).
+     * @param pseudoRate  pseudo-range rate measurement expressed in meters per
+     *                    second (m/s).
+     * @param x           x coordinate of satellite ECEF position expressed in
+     *                    meters (m).
+     * @param y           y coordinate of satellite ECEF position expressed in
+     *                    meters (m).
+     * @param z           z coordinate of satellite ECEF position expressed in
+     *                    meters (m).
+     * @param vx          x coordinate of satellite ECEF velocity expressed in
+     *                    meters per second (m/s).
+     * @param vy          y coordinate of satellite ECEF velocity expressed in
+     *                    meters per second (m/s).
+     * @param vz          z coordinate of satellite ECEF velocity expressed in
+     *                    meters per second (m/s).
+     * @throws IllegalArgumentException if satellite identifier is negative and
+     *                                  not unknown.
+     */
+    public void add(final int satelliteId, final double pseudoRange,
+                    final double pseudoRate, final double x, final double y,
+                    final double z, final double vx, final double vy,
+                    final double vz) {
+        checkSatelliteId(satelliteId);
+        ensureCapacity(mSize + 1);
+        put(mSize, satelliteId, pseudoRange, pseudoRate, x, y, z, vx, vy, vz);
+        mSize++;
+    }
+
+    /**
+     * Adds a measurement to this batch.
+     *
+     * @param measurement measurement to be added.
+     */
+    public void add(final GNSSMeasurement measurement) {
+        add(measurement.getSatelliteId(),
+                measurement.getPseudoRange(), measurement.getPseudoRate(),
+                measurement.getX(), measurement.getY(), measurement.getZ(),
+                measurement.getVx(), measurement.getVy(), measurement.getVz());
+    }
+
+    /**
+     * Replaces measurement at provided position.
+     *
+     * @param index       position of measurement to be replaced.
+     * @param pseudoRange pseudo-range measurement expressed in meters (m).
+     * @param pseudoRate  pseudo-range rate measurement expressed in meters per
+     *                    second (m/s).
+     * @param x           x coordinate of satellite ECEF position expressed in
+     *                    meters (m).
+     * @param y           y coordinate of satellite ECEF position expressed in
+     *                    meters (m).
+     * @param z           z coordinate of satellite ECEF position expressed in
+     *                    meters (m).
+     * @param vx          x coordinate of satellite ECEF velocity expressed in
+     *                    meters per second (m/s).
+     * @param vy          y coordinate of satellite ECEF velocity expressed in
+     *                    meters per second (m/s).
+     * @param vz          z coordinate of satellite ECEF velocity expressed in
+     *                    meters per second (m/s).
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public void set(final int index, final double pseudoRange,
+                    final double pseudoRate, final double x, final double y,
+                    final double z, final double vx, final double vy,
+                    final double vz) {
+        checkIndex(index);
+        put(index, mSatelliteIds[index], pseudoRange, pseudoRate, x, y, z,
+                vx, vy, vz);
+    }
+
+    /**
+     * Replaces measurement at provided position.
+     *
+     * @param index       position of measurement to be replaced.
+     * @param measurement measurement to be set.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public void set(final int index, final GNSSMeasurement measurement) {
+        checkIndex(index);
+        put(index, measurement.getSatelliteId(),
+                measurement.getPseudoRange(), measurement.getPseudoRate(),
+                measurement.getX(), measurement.getY(), measurement.getZ(),
+                measurement.getVx(), measurement.getVy(), measurement.getVz());
+    }
+
+    /**
+     * Gets identifier of measured satellite.
+     *
+     * @param index position of measurement.
+     * @return identifier of measured satellite or
+     * {@link GNSSMeasurement#UNKNOWN_SATELLITE_ID} if not known.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public int getSatelliteId(final int index) {
+        checkIndex(index);
+        return mSatelliteIds[index];
+    }
+
+    /**
+     * Sets identifier of measured satellite.
+     *
+     * @param index       position of measurement.
+     * @param satelliteId identifier of measured satellite or
+     *                    {@link GNSSMeasurement#UNKNOWN_SATELLITE_ID}.
+     * @throws IllegalArgumentException if index is not within batch size or if
+     *                                  satellite identifier is negative and not
+     *                                  unknown.
+     */
+    public void setSatelliteId(final int index, final int satelliteId) {
+        checkIndex(index);
+        checkSatelliteId(satelliteId);
+        mSatelliteIds[index] = satelliteId;
+    }
+
+    /**
+     * Gets pseudo-range measurement expressed in meters (m).
+     *
+     * @param index position of measurement.
+     * @return pseudo-range measurement.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public double getPseudoRange(final int index) {
+        checkIndex(index);
+        return mPseudoRanges[index];
+    }
+
+    /**
+     * Gets pseudo-range rate measurement expressed in meters per second (m/s).
+     *
+     * @param index position of measurement.
+     * @return pseudo-range rate measurement.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public double getPseudoRate(final int index) {
+        checkIndex(index);
+        return mPseudoRates[index];
+    }
+
+    /**
+     * Gets x coordinate of satellite ECEF position expressed in meters (m).
+     *
+     * @param index position of measurement.
+     * @return x coordinate of satellite ECEF position.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public double getX(final int index) {
+        checkIndex(index);
+        return mX[index];
+    }
+
+    /**
+     * Gets y coordinate of satellite ECEF position expressed in meters (m).
+     *
+     * @param index position of measurement.
+     * @return y coordinate of satellite ECEF position.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public double getY(final int index) {
+        checkIndex(index);
+        return mY[index];
+    }
+
+    /**
+     * Gets z coordinate of satellite ECEF position expressed in meters (m).
+     *
+     * @param index position of measurement.
+     * @return z coordinate of satellite ECEF position.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public double getZ(final int index) {
+        checkIndex(index);
+        return mZ[index];
+    }
+
+    /**
+     * Gets x coordinate of satellite ECEF velocity expressed in meters per
+     * second (m/s).
+     *
+     * @param index position of measurement.
+     * @return x coordinate of satellite ECEF velocity.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public double getVx(final int index) {
+        checkIndex(index);
+        return mVx[index];
+    }
+
+    /**
+     * Gets y coordinate of satellite ECEF velocity expressed in meters per
+     * second (m/s).
+     *
+     * @param index position of measurement.
+     * @return y coordinate of satellite ECEF velocity.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public double getVy(final int index) {
+        checkIndex(index);
+        return mVy[index];
+    }
+
+    /**
+     * Gets z coordinate of satellite ECEF velocity expressed in meters per
+     * second (m/s).
+     *
+     * @param index position of measurement.
+     * @return z coordinate of satellite ECEF velocity.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public double getVz(final int index) {
+        checkIndex(index);
+        return mVz[index];
+    }
+
+    /**
+     * Copies satellite identifier, pseudo-range, pseudo-range rate and satellite
+     * ECEF position and velocity of measurement at provided position into
+     * provided instance, so that it can be reused without allocating new
+     * measurements.
+     *
+     * @param index  position of measurement.
+     * @param result instance where measurement data will be copied.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public void getMeasurement(final int index, final GNSSMeasurement result) {
+        checkIndex(index);
+        result.setSatelliteId(mSatelliteIds[index]);
+        result.setPseudoRange(mPseudoRanges[index]);
+        result.setPseudoRate(mPseudoRates[index]);
+        result.setPositionCoordinates(mX[index], mY[index], mZ[index]);
+        result.setVelocityCoordinates(mVx[index], mVy[index], mVz[index]);
+    }
+
+    /**
+     * Gets a new measurement containing a copy of the data of the measurement at
+     * provided position.
+     *
+     * @param index position of measurement.
+     * @return a new measurement instance.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    public GNSSMeasurement getMeasurement(final int index) {
+        final GNSSMeasurement result = new GNSSMeasurement();
+        getMeasurement(index, result);
+        return result;
+    }
+
+    /**
+     * Replaces contents of this batch with provided measurements.
+     *
+     * @param measurements measurements to be copied.
+     */
+    public void setMeasurements(final Collection<GNSSMeasurement> measurements) {
+        mSize = 0;
+        ensureCapacity(measurements.size());
+        for (final GNSSMeasurement measurement : measurements) {
+            add(measurement);
+        }
+    }
+
+    /**
+     * Stores contained measurements into provided collection.
+     * Provided collection is cleared before new measurement instances are added.
+     *
+     * @param result collection where measurements will be stored.
+     */
+    public void toMeasurements(final Collection<GNSSMeasurement> result) {
+        result.clear();
+        for (int i = 0; i < mSize; i++) {
+            result.add(getMeasurement(i));
+        }
+    }
+
+    /**
+     * Gets contained measurements as a list.
+     *
+     * @return a new list containing new measurement instances.
+     */
+    public List<GNSSMeasurement> toMeasurements() {
+        final List<GNSSMeasurement> result = new ArrayList<>(mSize);
+        toMeasurements(result);
+        return result;
+    }
+
+    /**
+     * Copies this instance data into provided instance.
+     *
+     * @param output destination instance where data will be copied to.
+     */
+    public void copyTo(final GNSSMeasurementBatch output) {
+        output.copyFrom(this);
+    }
+
+    /**
+     * Copies data of provided instance into this instance.
+     *
+     * @param input instance to copy data from.
+     */
+    public void copyFrom(final GNSSMeasurementBatch input) {
+        final int size = input.mSize;
+        mSize = 0;
+        ensureCapacity(size);
+
+        System.arraycopy(input.mSatelliteIds, 0, mSatelliteIds, 0, size);
+        System.arraycopy(input.mPseudoRanges, 0, mPseudoRanges, 0, size);
+        System.arraycopy(input.mPseudoRates, 0, mPseudoRates, 0, size);
+        System.arraycopy(input.mX, 0, mX, 0, size);
+        System.arraycopy(input.mY, 0, mY, 0, size);
+        System.arraycopy(input.mZ, 0, mZ, 0, size);
+        System.arraycopy(input.mVx, 0, mVx, 0, size);
+        System.arraycopy(input.mVy, 0, mVy, 0, size);
+        System.arraycopy(input.mVz, 0, mVz, 0, size);
+        mSize = size;
+    }
+
+    /**
+     * Computes and returns hash code for this instance. Hash codes are almost unique
+     * values that are useful for fast classification and storage of objects in
+     * collections.
+     *
+     * @return Hash code.
+     */
+    @Override
+    public int hashCode() {
+        int result = mSize;
+        for (int i = 0; i < mSize; i++) {
+            result = 31 * result + mSatelliteIds[i];
+            result = 31 * result + Double.valueOf(mPseudoRanges[i]).hashCode();
+            result = 31 * result + Double.valueOf(mPseudoRates[i]).hashCode();
+            result = 31 * result + Double.valueOf(mX[i]).hashCode();
+            result = 31 * result + Double.valueOf(mY[i]).hashCode();
+            result = 31 * result + Double.valueOf(mZ[i]).hashCode();
+            result = 31 * result + Double.valueOf(mVx[i]).hashCode();
+            result = 31 * result + Double.valueOf(mVy[i]).hashCode();
+            result = 31 * result + Double.valueOf(mVz[i]).hashCode();
+        }
+        return result;
+    }
+
+    /**
+     * Checks if provided object is a GNSSMeasurementBatch having exactly the same
+     * contents as this instance.
+     *
+     * @param obj Object to be compared.
+     * @return true if both objects are considered to be equal, false otherwise.
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final GNSSMeasurementBatch other = (GNSSMeasurementBatch) obj;
+        return equals(other);
+    }
+
+    /**
+     * Checks if provided instance has exactly the same contents as this instance.
+     *
+     * @param other instance to be compared.
+     * @return true if both instances are considered to be equal, false otherwise.
+     */
+    public boolean equals(final GNSSMeasurementBatch other) {
+        return equals(other, 0.0);
+    }
+
+    /**
+     * Checks if provided instance has contents similar to this instance up to
+     * provided threshold value.
+     * Satellite identifiers must be exactly equal.
+     *
+     * @param other     instance to be compared.
+     * @param threshold maximum allowed difference between values.
+     * @return true if both instances are considered to be equal (up to provided
+     * threshold), false otherwise.
+     */
+    public boolean equals(final GNSSMeasurementBatch other, final double threshold) {
+        if (other == null || other.mSize != mSize) {
+            return false;
+        }
+
+        for (int i = 0; i < mSize; i++) {
+            if (mSatelliteIds[i] != other.mSatelliteIds[i]
+                    || Math.abs(mPseudoRanges[i] - other.mPseudoRanges[i]) > threshold
+                    || Math.abs(mPseudoRates[i] - other.mPseudoRates[i]) > threshold
+                    || Math.abs(mX[i] - other.mX[i]) > threshold
+                    || Math.abs(mY[i] - other.mY[i]) > threshold
+                    || Math.abs(mZ[i] - other.mZ[i]) > threshold
+                    || Math.abs(mVx[i] - other.mVx[i]) > threshold
+                    || Math.abs(mVy[i] - other.mVy[i]) > threshold
+                    || Math.abs(mVz[i] - other.mVz[i]) > threshold) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes a copy of this instance.
+     *
+     * @return a copy of this instance.
+     * @throws CloneNotSupportedException if clone fails for some reason.
+     */
+    @Override
+    protected Object clone() throws CloneNotSupportedException {
+        final GNSSMeasurementBatch result = (GNSSMeasurementBatch) super.clone();
+        result.allocate(mSize);
+        copyTo(result);
+        return result;
+    }
+
+    /**
+     * Gets internal array containing identifiers of measured satellites.
+     * Only the first {@link #getSize()} values are meaningful.
+     *
+     * @return internal array.
+     */
+    int[] getSatelliteIds() {
+        return mSatelliteIds;
+    }
+
+    /**
+     * Gets internal array containing pseudo-range measurements.
+     * Only the first {@link #getSize()} values are meaningful.
+     *
+     * @return internal array.
+     */
+    double[] getPseudoRanges() {
+        return mPseudoRanges;
+    }
+
+    /**
+     * Gets internal array containing pseudo-range rate measurements.
+     * Only the first {@link #getSize()} values are meaningful.
+     *
+     * @return internal array.
+     */
+    double[] getPseudoRates() {
+        return mPseudoRates;
+    }
+
+    /**
+     * Gets internal array containing x coordinates of satellite positions.
+     * Only the first {@link #getSize()} values are meaningful.
+     *
+     * @return internal array.
+     */
+    double[] getXs() {
+        return mX;
+    }
+
+    /**
+     * Gets internal array containing y coordinates of satellite positions.
+     * Only the first {@link #getSize()} values are meaningful.
+     *
+     * @return internal array.
+     */
+    double[] getYs() {
+        return mY;
+    }
+
+    /**
+     * Gets internal array containing z coordinates of satellite positions.
+     * Only the first {@link #getSize()} values are meaningful.
+     *
+     * @return internal array.
+     */
+    double[] getZs() {
+        return mZ;
+    }
+
+    /**
+     * Gets internal array containing x coordinates of satellite velocities.
+     * Only the first {@link #getSize()} values are meaningful.
+     *
+     * @return internal array.
+     */
+    double[] getVxs() {
+        return mVx;
+    }
+
+    /**
+     * Gets internal array containing y coordinates of satellite velocities.
+     * Only the first {@link #getSize()} values are meaningful.
+     *
+     * @return internal array.
+     */
+    double[] getVys() {
+        return mVy;
+    }
+
+    /**
+     * Gets internal array containing z coordinates of satellite velocities.
+     * Only the first {@link #getSize()} values are meaningful.
+     *
+     * @return internal array.
+     */
+    double[] getVzs() {
+        return mVz;
+    }
+
+    /**
+     * Allocates empty storage with provided capacity.
+     *
+     * @param capacity capacity to be allocated.
+     */
+    private void allocate(final int capacity) {
+        mSatelliteIds = new int[capacity];
+        mPseudoRanges = new double[capacity];
+        mPseudoRates = new double[capacity];
+        mX = new double[capacity];
+        mY = new double[capacity];
+        mZ = new double[capacity];
+        mVx = new double[capacity];
+        mVy = new double[capacity];
+        mVz = new double[capacity];
+        mSize = 0;
+    }
+
+    /**
+     * Stores measurement values at provided position without checking bounds.
+     *
+     * @param index       position where values will be stored.
+     * @param satelliteId identifier of measured satellite.
+     * @param pseudoRange pseudo-range measurement.
+     * @param pseudoRate  pseudo-range rate measurement.
+     * @param x           x coordinate of satellite ECEF position.
+     * @param y           y coordinate of satellite ECEF position.
+     * @param z           z coordinate of satellite ECEF position.
+     * @param vx          x coordinate of satellite ECEF velocity.
+     * @param vy          y coordinate of satellite ECEF velocity.
+     * @param vz          z coordinate of satellite ECEF velocity.
+     */
+    private void put(final int index, final int satelliteId,
+                     final double pseudoRange, final double pseudoRate,
+                     final double x, final double y, final double z,
+                     final double vx, final double vy, final double vz) {
+        mSatelliteIds[index] = satelliteId;
+        mPseudoRanges[index] = pseudoRange;
+        mPseudoRates[index] = pseudoRate;
+        mX[index] = x;
+        mY[index] = y;
+        mZ[index] = z;
+        mVx[index] = vx;
+        mVy[index] = vy;
+        mVz[index] = vz;
+    }
+
+    /**
+     * Checks that provided satellite identifier is valid.
+     *
+     * @param satelliteId satellite identifier to be checked.
+     * @throws IllegalArgumentException if satellite identifier is negative and
+     *                                  not unknown.
+     */
+    private static void checkSatelliteId(final int satelliteId) {
+        if (satelliteId < GNSSMeasurement.UNKNOWN_SATELLITE_ID) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Checks that provided index is within batch size.
+     *
+     * @param index index to be checked.
+     * @throws IllegalArgumentException if index is not within batch size.
+     */
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IllegalArgumentException();
+        }
+    }
+}
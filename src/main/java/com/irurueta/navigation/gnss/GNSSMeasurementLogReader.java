@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads timestamped sets of GNSS measurements from a binary log written by
+ * {@link GNSSMeasurementLogWriter}.
+ * Records are read sequentially in the same order as they were written, and
+ * measurements are stored into batches provided by the caller, so that no
+ * memory needs to be allocated once batches have grown to the largest number
+ * of measurements of the log.
+ */
+public class GNSSMeasurementLogReader implements Closeable {
+
+    /**
+     * Size of the buffer used to read data, expressed in bytes.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Stream where data is read from.
+     */
+    private final DataInputStream mInput;
+
+    /**
+     * Timestamp of last read record expressed in seconds.
+     */
+    private double mTimestamp;
+
+    /**
+     * Number of read records.
+     */
+    private long mRecordCount;
+
+    /**
+     * Constructor.
+     * Header is read and checked immediately.
+     *
+     * @param input stream containing the log. This stream will be closed when
+     *              this reader is closed.
+     * @throws IOException if an I/O error occurs or if provided stream does not
+     *                     contain a log with a supported format.
+     */
+    public GNSSMeasurementLogReader(final InputStream input) throws IOException {
+        mInput = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+        if (mInput.readInt() != GNSSMeasurementLogWriter.MAGIC
+                || mInput.readInt() != GNSSMeasurementLogWriter.VERSION) {
+            throw new IOException();
+        }
+    }
+
+    /**
+     * Gets timestamp of last read record expressed in seconds since epoch time.
+     *
+     * @return timestamp of last read record.
+     */
+    public double getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * Gets number of read records.
+     *
+     * @return number of read records.
+     */
+    public long getRecordCount() {
+        return mRecordCount;
+    }
+
+    /**
+     * Reads next record of the log.
+     * Any previous content of provided batch is discarded.
+     *
+     * @param result batch where measurements of read record will be stored.
+     * @return true if a record was read, false if the end of the log has been
+     * reached.
+     * @throws IOException if an I/O error occurs, if log is corrupted or
+     *                     truncated, or if record contains more than
+     *                     {@link GNSSMeasurementLogWriter#MAX_RECORD_MEASUREMENTS}
+     *                     measurements.
+     */
+    public boolean read(final GNSSMeasurementBatch result) throws IOException {
+        final int marker = mInput.read();
+        if (marker < 0) {
+            return false;
+        }
+        if (marker != GNSSMeasurementLogWriter.RECORD_MARKER) {
+            throw new IOException();
+        }
+
+        final double timestamp = mInput.readDouble();
+        final int size = mInput.readInt();
+        if (size < 0 || size > GNSSMeasurementLogWriter.MAX_RECORD_MEASUREMENTS) {
+            throw new IOException();
+        }
+
+        result.clear();
+        result.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            final int satelliteId = mInput.readInt();
+            final double pseudoRange = mInput.readDouble();
+            final double pseudoRate = mInput.readDouble();
+            final double x = mInput.readDouble();
+            final double y = mInput.readDouble();
+            final double z = mInput.readDouble();
+            final double vx = mInput.readDouble();
+            final double vy = mInput.readDouble();
+            final double vz = mInput.readDouble();
+            try {
+                result.add(satelliteId, pseudoRange, pseudoRate, x, y, z,
+                        vx, vy, vz);
+            } catch (final IllegalArgumentException e) {
+                throw new IOException(e);
+            }
+        }
+
+        mTimestamp = timestamp;
+        mRecordCount++;
+        return true;
+    }
+
+    /**
+     * Closes underlying stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        mInput.close();
+    }
+}
@@ -0,0 +1,586 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a binary log of GNSS measurements written by
+ * {@link GNSSMeasurementLogWriter} through a {@link GNSSKalmanFilteredEstimator}
+ * or a {@link GNSSLeastSquaresPositionAndVelocityEstimator}.
+ * Records are processed sequentially by the calling thread in the same order
+ * as they are stored in the log, hence replaying the same log with an estimator
+ * in the same initial state always produces the same estimations. Replay can
+ * run as fast as possible or paced at a scaled real-time rate, which only
+ * modifies when records are processed but not their results.
+ * Time spent by the estimator on each record is recorded into a latency
+ * histogram, and estimations obtained after each record can be recorded so that
+ * they can be compared against those obtained from other library versions.
+ * Records whose estimation fails due to numerical instabilities are counted as
+ * failed and leave the estimation obtained from previous records unchanged, and
+ * replay continues with the next record.
+ */
+public class GNSSMeasurementLogReplayer {
+
+    /**
+     * Speed factor indicating that records must be replayed as fast as possible.
+     */
+    public static final double AS_FAST_AS_POSSIBLE = 0.0;
+
+    /**
+     * Number of values stored for each recorded output: timestamp, flags and
+     * estimation parameters.
+     */
+    private static final int OUTPUT_LENGTH = 2 + GNSSEstimation.NUM_PARAMETERS;
+
+    /**
+     * Flag indicating that estimator was updated.
+     */
+    private static final int UPDATED_FLAG = 1;
+
+    /**
+     * Flag indicating that an estimation was available.
+     */
+    private static final int ESTIMATION_FLAG = 2;
+
+    /**
+     * Flag indicating that estimation failed.
+     */
+    private static final int FAILED_FLAG = 4;
+
+    /**
+     * Initial number of outputs that can be recorded before growing storage.
+     */
+    private static final int INITIAL_OUTPUT_CAPACITY = 1024;
+
+    /**
+     * Kalman filtered estimator where records are replayed, or null if records
+     * are replayed through a least squares estimator.
+     */
+    private final GNSSKalmanFilteredEstimator mKalmanEstimator;
+
+    /**
+     * Least squares estimator where records are replayed, or null if records
+     * are replayed through a Kalman filtered estimator.
+     */
+    private final GNSSLeastSquaresPositionAndVelocityEstimator mLeastSquaresEstimator;
+
+    /**
+     * Histogram of latencies of the estimator.
+     */
+    private final GNSSLatencyHistogram mLatencyHistogram = new GNSSLatencyHistogram();
+
+    /**
+     * Batch where measurements of each record are read.
+     */
+    private final GNSSMeasurementBatch mMeasurements = new GNSSMeasurementBatch();
+
+    /**
+     * Estimation obtained after processing each record.
+     */
+    private final GNSSEstimation mEstimation = new GNSSEstimation();
+
+    /**
+     * Estimation of least squares estimator, which is only copied into
+     * current estimation when least squares estimation succeeds.
+     */
+    private final GNSSEstimation mLeastSquaresEstimation = new GNSSEstimation();
+
+    /**
+     * Array containing estimation parameters.
+     */
+    private final double[] mEstimationArray = new double[GNSSEstimation.NUM_PARAMETERS];
+
+    /**
+     * Factor by which log time is accelerated with respect to real time, or
+     * {@link #AS_FAST_AS_POSSIBLE}.
+     */
+    private double mSpeedFactor = AS_FAST_AS_POSSIBLE;
+
+    /**
+     * Listener to notify events raised by this instance.
+     */
+    private GNSSMeasurementLogReplayerListener mListener;
+
+    /**
+     * Indicates whether outputs of each record are recorded.
+     */
+    private boolean mOutputRecorded;
+
+    /**
+     * Recorded outputs stored consecutively.
+     */
+    private double[] mOutputs;
+
+    /**
+     * Number of recorded outputs.
+     */
+    private int mNumberOfOutputs;
+
+    /**
+     * Indicates whether least squares estimator has provided an estimation.
+     */
+    private boolean mLeastSquaresEstimationAvailable;
+
+    /**
+     * Number of records whose estimation failed.
+     */
+    private long mNumberOfFailedEpochs;
+
+    /**
+     * Indicates whether estimation of current record failed.
+     */
+    private boolean mFailed;
+
+    /**
+     * Indicates whether a log is being replayed.
+     */
+    private boolean mRunning;
+
+    /**
+     * Constructor.
+     *
+     * @param estimator Kalman filtered estimator where records will be replayed.
+     * @throws NullPointerException if provided estimator is null.
+     */
+    public GNSSMeasurementLogReplayer(final GNSSKalmanFilteredEstimator estimator) {
+        if (estimator == null) {
+            throw new NullPointerException();
+        }
+        mKalmanEstimator = estimator;
+        mLeastSquaresEstimator = null;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param estimator least squares estimator where records will be replayed.
+     * @throws NullPointerException if provided estimator is null.
+     */
+    public GNSSMeasurementLogReplayer(
+            final GNSSLeastSquaresPositionAndVelocityEstimator estimator) {
+        if (estimator == null) {
+            throw new NullPointerException();
+        }
+        mKalmanEstimator = null;
+        mLeastSquaresEstimator = estimator;
+    }
+
+    /**
+     * Gets Kalman filtered estimator where records are replayed.
+     *
+     * @return Kalman filtered estimator or null if records are replayed through a
+     * least squares estimator.
+     */
+    public GNSSKalmanFilteredEstimator getKalmanEstimator() {
+        return mKalmanEstimator;
+    }
+
+    /**
+     * Gets least squares estimator where records are replayed.
+     *
+     * @return least squares estimator or null if records are replayed through a
+     * Kalman filtered estimator.
+     */
+    public GNSSLeastSquaresPositionAndVelocityEstimator getLeastSquaresEstimator() {
+        return mLeastSquaresEstimator;
+    }
+
+    /**
+     * Gets factor by which log time is accelerated with respect to real time.
+     * A value of 1 replays records at the same rate as they were recorded, a
+     * value of 2 replays them twice as fast, and {@link #AS_FAST_AS_POSSIBLE}
+     * replays them without waiting.
+     *
+     * @return speed factor.
+     */
+    public double getSpeedFactor() {
+        return mSpeedFactor;
+    }
+
+    /**
+     * Sets factor by which log time is accelerated with respect to real time.
+     * A value of 1 replays records at the same rate as they were recorded, a
+     * value of 2 replays them twice as fast, and {@link #AS_FAST_AS_POSSIBLE}
+     * replays them without waiting.
+     *
+     * @param speedFactor speed factor.
+     * @throws IllegalArgumentException if provided value is negative.
+     * @throws LockedException          if a log is being replayed.
+     */
+    public void setSpeedFactor(final double speedFactor) throws LockedException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+        if (speedFactor < 0.0) {
+            throw new IllegalArgumentException();
+        }
+        mSpeedFactor = speedFactor;
+    }
+
+    /**
+     * Gets listener to notify events raised by this instance.
+     *
+     * @return listener to notify events raised by this instance.
+     */
+    public GNSSMeasurementLogReplayerListener getListener() {
+        return mListener;
+    }
+
+    /**
+     * Sets listener to notify events raised by this instance.
+     *
+     * @param listener listener to notify events raised by this instance.
+     * @throws LockedException if a log is being replayed.
+     */
+    public void setListener(final GNSSMeasurementLogReplayerListener listener)
+            throws LockedException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+        mListener = listener;
+    }
+
+    /**
+     * Indicates whether outputs of each record are recorded.
+     *
+     * @return true if outputs are recorded, false otherwise.
+     */
+    public boolean isOutputRecorded() {
+        return mOutputRecorded;
+    }
+
+    /**
+     * Specifies whether outputs of each record are recorded.
+     *
+     * @param outputRecorded true if outputs are recorded, false otherwise.
+     * @throws LockedException if a log is being replayed.
+     */
+    public void setOutputRecorded(final boolean outputRecorded)
+            throws LockedException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+        mOutputRecorded = outputRecorded;
+    }
+
+    /**
+     * Indicates whether a log is being replayed.
+     *
+     * @return true if a log is being replayed, false otherwise.
+     */
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Gets histogram of latencies of the estimator for all replayed records.
+     *
+     * @return histogram of latencies.
+     */
+    public GNSSLatencyHistogram getLatencyHistogram() {
+        return mLatencyHistogram;
+    }
+
+    /**
+     * Gets number of replayed records whose estimation failed due to numerical
+     * instabilities.
+     *
+     * @return number of failed records.
+     */
+    public long getNumberOfFailedEpochs() {
+        return mNumberOfFailedEpochs;
+    }
+
+    /**
+     * Gets number of recorded outputs.
+     *
+     * @return number of recorded outputs.
+     */
+    public int getNumberOfOutputs() {
+        return mNumberOfOutputs;
+    }
+
+    /**
+     * Gets timestamp of a recorded output expressed in seconds since epoch time.
+     *
+     * @param index position of recorded output.
+     * @return timestamp of recorded output.
+     * @throws IllegalArgumentException if index is not valid.
+     */
+    public double getOutputTimestamp(final int index) {
+        return mOutputs[checkOutputIndex(index)];
+    }
+
+    /**
+     * Indicates whether estimator was updated with the measurements of a
+     * recorded output.
+     *
+     * @param index position of recorded output.
+     * @return true if estimator was updated, false otherwise.
+     * @throws IllegalArgumentException if index is not valid.
+     */
+    public boolean isOutputUpdated(final int index) {
+        return (getOutputFlags(index) & UPDATED_FLAG) != 0;
+    }
+
+    /**
+     * Indicates whether estimation failed for the measurements of a recorded
+     * output, in which case estimator was not updated.
+     *
+     * @param index position of recorded output.
+     * @return true if estimation failed, false otherwise.
+     * @throws IllegalArgumentException if index is not valid.
+     */
+    public boolean isOutputFailed(final int index) {
+        return (getOutputFlags(index) & FAILED_FLAG) != 0;
+    }
+
+    /**
+     * Gets estimation of a recorded output.
+     * This method does not update result instance if no estimation was available.
+     *
+     * @param index  position of recorded output.
+     * @param result instance where estimation will be stored.
+     * @return true if result estimation was updated, false otherwise.
+     * @throws IllegalArgumentException if index is not valid.
+     */
+    public boolean getOutputEstimation(final int index, final GNSSEstimation result) {
+        if ((getOutputFlags(index) & ESTIMATION_FLAG) == 0) {
+            return false;
+        }
+        System.arraycopy(mOutputs, index * OUTPUT_LENGTH + 2, mEstimationArray, 0,
+                GNSSEstimation.NUM_PARAMETERS);
+        result.fromArray(mEstimationArray);
+        return true;
+    }
+
+    /**
+     * Removes recorded latencies, outputs, number of failed records and last
+     * least squares estimation.
+     * Estimator is not modified.
+     *
+     * @throws LockedException if a log is being replayed.
+     */
+    public void reset() throws LockedException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+        mLatencyHistogram.reset();
+        mNumberOfOutputs = 0;
+        mNumberOfFailedEpochs = 0;
+
+        mLeastSquaresEstimationAvailable = false;
+        Arrays.fill(mEstimationArray, 0.0);
+        mEstimation.fromArray(mEstimationArray);
+        mLeastSquaresEstimation.fromArray(mEstimationArray);
+    }
+
+    /**
+     * Replays all remaining records of provided log.
+     * Latencies, outputs and failed records are appended to those of previously
+     * replayed logs until this instance is reset.
+     *
+     * @param reader reader of the log to be replayed.
+     * @return number of replayed records.
+     * @throws IOException     if log cannot be read.
+     * @throws LockedException if a log is already being replayed or if estimator
+     *                         is already running.
+     * @throws GNSSException   if paced replay is interrupted.
+     */
+    public long replay(final GNSSMeasurementLogReader reader) throws IOException,
+            LockedException, GNSSException {
+        if (mRunning) {
+            throw new LockedException();
+        }
+
+        try {
+            mRunning = true;
+
+            long epoch = 0;
+            long startNanos = 0;
+            double startTimestamp = 0.0;
+            while (reader.read(mMeasurements)) {
+                final double timestamp = reader.getTimestamp();
+
+                if (mSpeedFactor > AS_FAST_AS_POSSIBLE) {
+                    if (epoch == 0) {
+                        startNanos = System.nanoTime();
+                        startTimestamp = timestamp;
+                    } else {
+                        waitUntil(startNanos + (long) ((timestamp - startTimestamp)
+                                / mSpeedFactor * 1e9));
+                    }
+                }
+
+                final long start = System.nanoTime();
+                final boolean updated = process(timestamp);
+                final long latency = System.nanoTime() - start;
+
+                mLatencyHistogram.record(latency);
+
+                final boolean available = getEstimation();
+                if (mOutputRecorded) {
+                    recordOutput(timestamp, updated, available);
+                }
+
+                if (mListener != null) {
+                    mListener.onEpochReplayed(this, epoch, timestamp, updated,
+                            available ? mEstimation : null, latency);
+                }
+
+                epoch++;
+            }
+
+            return epoch;
+        } finally {
+            mRunning = false;
+        }
+    }
+
+    /**
+     * Processes measurements of current record with the estimator.
+     * If estimation fails due to numerical instabilities, record is counted
+     * as failed and measurements are ignored, keeping the estimation obtained
+     * from previous records.
+     *
+     * @param timestamp timestamp of current record expressed in seconds.
+     * @return true if estimator was updated, false if measurements were ignored.
+     * @throws LockedException if estimator is already running.
+     */
+    private boolean process(final double timestamp) throws LockedException {
+        mFailed = false;
+
+        // not enough measurements are ignored in the same way by both estimators
+        if (!GNSSLeastSquaresPositionAndVelocityEstimator.isValidMeasurementBatch(
+                mMeasurements)) {
+            return false;
+        }
+
+        try {
+            if (mKalmanEstimator != null) {
+                return mKalmanEstimator.updateMeasurementBatch(mMeasurements, timestamp);
+            } else {
+                mLeastSquaresEstimator.setMeasurementBatch(mMeasurements);
+                mLeastSquaresEstimator.setTimestamp(timestamp);
+                mLeastSquaresEstimator.estimate(mLeastSquaresEstimation);
+                mEstimation.copyFrom(mLeastSquaresEstimation);
+                mLeastSquaresEstimationAvailable = true;
+                return true;
+            }
+        } catch (final NotReadyException e) {
+            // never happens because measurements have already been checked
+            return false;
+        } catch (final GNSSException e) {
+            mFailed = true;
+            mNumberOfFailedEpochs++;
+            return false;
+        }
+    }
+
+    /**
+     * Obtains current estimation of the estimator.
+     *
+     * @return true if an estimation is available, false otherwise.
+     */
+    private boolean getEstimation() {
+        if (mKalmanEstimator != null) {
+            return mKalmanEstimator.getEstimation(mEstimation);
+        } else {
+            // last least squares estimation is kept until a new one is obtained
+            return mLeastSquaresEstimationAvailable;
+        }
+    }
+
+    /**
+     * Records output of current record.
+     *
+     * @param timestamp timestamp of current record.
+     * @param updated   true if estimator was updated.
+     * @param available true if an estimation is available.
+     */
+    private void recordOutput(final double timestamp, final boolean updated,
+                              final boolean available) {
+        final int required = (mNumberOfOutputs + 1) * OUTPUT_LENGTH;
+        if (mOutputs == null) {
+            mOutputs = new double[Math.max(required,
+                    INITIAL_OUTPUT_CAPACITY * OUTPUT_LENGTH)];
+        } else if (mOutputs.length < required) {
+            mOutputs = Arrays.copyOf(mOutputs, Math.max(required,
+                    2 * mOutputs.length));
+        }
+
+        final int pos = mNumberOfOutputs * OUTPUT_LENGTH;
+        mOutputs[pos] = timestamp;
+        mOutputs[pos + 1] = (updated ? UPDATED_FLAG : 0)
+                | (available ? ESTIMATION_FLAG : 0) | (mFailed ? FAILED_FLAG : 0);
+        if (available) {
+            mEstimation.asArray(mEstimationArray);
+            System.arraycopy(mEstimationArray, 0, mOutputs, pos + 2,
+                    GNSSEstimation.NUM_PARAMETERS);
+        }
+        mNumberOfOutputs++;
+    }
+
+    /**
+     * Gets flags of a recorded output.
+     *
+     * @param index position of recorded output.
+     * @return flags of recorded output.
+     * @throws IllegalArgumentException if index is not valid.
+     */
+    private int getOutputFlags(final int index) {
+        return (int) mOutputs[checkOutputIndex(index) + 1];
+    }
+
+    /**
+     * Checks that provided index corresponds to a recorded output.
+     *
+     * @param index position of recorded output.
+     * @return position where recorded output starts.
+     * @throws IllegalArgumentException if index is not valid.
+     */
+    private int checkOutputIndex(final int index) {
+        if (index < 0 || index >= mNumberOfOutputs) {
+            throw new IllegalArgumentException();
+        }
+        return index * OUTPUT_LENGTH;
+    }
+
+    /**
+     * Waits until provided instant is reached.
+     *
+     * @param nanos instant expressed in nanoseconds as returned by
+     *              {@link System#nanoTime()}.
+     * @throws GNSSException if waiting thread is interrupted.
+     */
+    private static void waitUntil(final long nanos) throws GNSSException {
+        final long remaining = nanos - System.nanoTime();
+        if (remaining > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GNSSException(e);
+            }
+        }
+    }
+}
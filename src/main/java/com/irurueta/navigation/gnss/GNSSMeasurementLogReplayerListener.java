@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+/**
+ * Listener defining events of GNSSMeasurementLogReplayer.
+ */
+public interface GNSSMeasurementLogReplayerListener {
+
+    /**
+     * Called when a record of the log has been processed by the estimator.
+     * Records are notified in the same order as they are stored in the log.
+     *
+     * @param replayer   replayer raising the event.
+     * @param epoch      position of the record within the log.
+     * @param timestamp  timestamp of the record expressed in seconds since epoch
+     *                   time.
+     * @param updated    true if estimator was updated with measurements of the
+     *                   record, false if they were ignored.
+     * @param estimation current estimation of the estimator or null if no
+     *                   estimation is available yet. This instance is reused and
+     *                   must only be accessed within this method.
+     * @param latency    time spent by the estimator to process the record,
+     *                   expressed in nanoseconds.
+     */
+    void onEpochReplayed(final GNSSMeasurementLogReplayer replayer, final long epoch,
+                         final double timestamp, final boolean updated,
+                         final GNSSEstimation estimation, final long latency);
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeConverter;
+import com.irurueta.units.TimeUnit;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes timestamped sets of GNSS measurements into a binary log that can be
+ * later replayed using {@link GNSSMeasurementLogReader}.
+ * A log starts with a header containing {@link #MAGIC} and {@link #VERSION},
+ * followed by one record per epoch. Each record contains
+ * {@link #RECORD_MARKER}, the timestamp expressed in seconds, the number of
+ * measurements and, for each measurement, the satellite identifier, the
+ * pseudo-range, the pseudo-range rate and the ECEF position and velocity of the
+ * satellite. All values are stored in big-endian order, hence logs are
+ * portable between platforms and replayed values are bit-exact copies of the
+ * recorded ones.
+ */
+public class GNSSMeasurementLogWriter implements Closeable {
+
+    /**
+     * Value identifying GNSS measurement logs ("GNSM").
+     */
+    public static final int MAGIC = 0x474e534d;
+
+    /**
+     * Version of log format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Byte written at the start of each record, used to detect corrupted logs.
+     */
+    public static final int RECORD_MARKER = 0x52;
+
+    /**
+     * Maximum number of measurements of a single record, which is far larger
+     * than the number of satellites of all constellations being tracked at
+     * once. Readers reject records exceeding this value, so that a corrupted
+     * size does not cause a huge allocation.
+     */
+    public static final int MAX_RECORD_MEASUREMENTS = 1024;
+
+    /**
+     * Size of the buffer used to write data, expressed in bytes.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Stream where data is written.
+     */
+    private final DataOutputStream mOutput;
+
+    /**
+     * Number of written records.
+     */
+    private long mRecordCount;
+
+    /**
+     * Constructor.
+     * Header is written immediately.
+     *
+     * @param output stream where log will be written. This stream will be closed
+     *               when this writer is closed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public GNSSMeasurementLogWriter(final OutputStream output) throws IOException {
+        mOutput = new DataOutputStream(new BufferedOutputStream(output,
+                BUFFER_SIZE));
+        mOutput.writeInt(MAGIC);
+        mOutput.writeInt(VERSION);
+    }
+
+    /**
+     * Gets number of written records.
+     *
+     * @return number of written records.
+     */
+    public long getRecordCount() {
+        return mRecordCount;
+    }
+
+    /**
+     * Writes a record containing provided measurements.
+     *
+     * @param timestamp    timestamp when measurements were obtained.
+     * @param measurements measurements to be written.
+     * @throws IllegalArgumentException if provided batch contains more than
+     *                                  {@link #MAX_RECORD_MEASUREMENTS}
+     *                                  measurements.
+     * @throws IOException              if an I/O error occurs.
+     */
+    public void write(final Time timestamp, final GNSSMeasurementBatch measurements)
+            throws IOException {
+        write(TimeConverter.convert(timestamp.getValue().doubleValue(),
+                timestamp.getUnit(), TimeUnit.SECOND), measurements);
+    }
+
+    /**
+     * Writes a record containing provided measurements.
+     *
+     * @param timestamp    timestamp expressed in seconds since epoch time when
+     *                     measurements were obtained.
+     * @param measurements measurements to be written.
+     * @throws IllegalArgumentException if provided batch contains more than
+     *                                  {@link #MAX_RECORD_MEASUREMENTS}
+     *                                  measurements.
+     * @throws IOException              if an I/O error occurs.
+     */
+    public void write(final double timestamp, final GNSSMeasurementBatch measurements)
+            throws IOException {
+        final int size = measurements.getSize();
+        if (size > MAX_RECORD_MEASUREMENTS) {
+            throw new IllegalArgumentException();
+        }
+        mOutput.writeByte(RECORD_MARKER);
+        mOutput.writeDouble(timestamp);
+        mOutput.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            mOutput.writeInt(measurements.getSatelliteId(i));
+            mOutput.writeDouble(measurements.getPseudoRange(i));
+            mOutput.writeDouble(measurements.getPseudoRate(i));
+            mOutput.writeDouble(measurements.getX(i));
+            mOutput.writeDouble(measurements.getY(i));
+            mOutput.writeDouble(measurements.getZ(i));
+            mOutput.writeDouble(measurements.getVx(i));
+            mOutput.writeDouble(measurements.getVy(i));
+            mOutput.writeDouble(measurements.getVz(i));
+        }
+        mRecordCount++;
+    }
+
+    /**
+     * Flushes any buffered data into underlying stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public void flush() throws IOException {
+        mOutput.flush();
+    }
+
+    /**
+     * Flushes any buffered data and closes underlying stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        mOutput.close();
+    }
+}
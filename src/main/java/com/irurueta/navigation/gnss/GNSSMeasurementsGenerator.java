@@ -15,10 +15,6 @@
  */
 package com.irurueta.navigation.gnss;
 
-import com.irurueta.algebra.Matrix;
-import com.irurueta.algebra.Utils;
-import com.irurueta.algebra.WrongSizeException;
-import com.irurueta.navigation.frames.CoordinateTransformation;
 import com.irurueta.navigation.frames.ECEFPosition;
 import com.irurueta.navigation.frames.ECEFVelocity;
 import com.irurueta.navigation.frames.NEDPosition;
@@ -312,15 +308,130 @@ public class GNSSMeasurementsGenerator {
             final double userVx, final double userVy, final double userVz,
             final List<Double> gnssRangeErrorBiases, final GNSSConfig config,
             final Random random, final Collection<GNSSMeasurement> result) {
+        final GNSSMeasurementBatch batch = new GNSSMeasurementBatch(
+                satellitePositionsAndVelocities.size());
+        generate(time, satellitePositionsAndVelocities, userX, userY, userZ,
+                userVx, userVy, userVz, gnssRangeErrorBiases, config, random, batch);
+        batch.toMeasurements(result);
+    }
+
+    /**
+     * Generates satellite GNSS measurements and stores them in primitive arrays.
+     *
+     * @param time                            current simulation time.
+     * @param satellitePositionsAndVelocities satellite positions and velocities.
+     * @param userPositionAndVelocity         user position and velocity.
+     * @param gnssRangeErrorBiases            GNSS range error biases for each
+     *                                        satellite position and velocity.
+     * @param config                          GNSS configuration parameters.
+     * @param random                          random number generator.
+     * @param result                          instance where resulting GNSS
+     *                                        measurements are stored.
+     */
+    public static void generate(
+            final Time time, final List<ECEFPositionAndVelocity> satellitePositionsAndVelocities,
+            final ECEFPositionAndVelocity userPositionAndVelocity,
+            final List<Double> gnssRangeErrorBiases, final GNSSConfig config,
+            final Random random, final GNSSMeasurementBatch result) {
+        generate(convertTime(time), satellitePositionsAndVelocities,
+                userPositionAndVelocity, gnssRangeErrorBiases, config, random,
+                result);
+    }
+
+    /**
+     * Generates satellite GNSS measurements and stores them in primitive arrays.
+     *
+     * @param time                            current simulation time expressed in
+     *                                        seconds (s).
+     * @param satellitePositionsAndVelocities satellite positions and velocities.
+     * @param userPositionAndVelocity         user position and velocity.
+     * @param gnssRangeErrorBiases            GNSS range error biases for each
+     *                                        satellite position and velocity.
+     * @param config                          GNSS configuration parameters.
+     * @param random                          random number generator.
+     * @param result                          instance where resulting GNSS
+     *                                        measurements are stored.
+     */
+    public static void generate(
+            final double time, final List<ECEFPositionAndVelocity> satellitePositionsAndVelocities,
+            final ECEFPositionAndVelocity userPositionAndVelocity,
+            final List<Double> gnssRangeErrorBiases, final GNSSConfig config,
+            final Random random, final GNSSMeasurementBatch result) {
+        generate(time, satellitePositionsAndVelocities, userPositionAndVelocity.getX(),
+                userPositionAndVelocity.getY(), userPositionAndVelocity.getZ(),
+                userPositionAndVelocity.getVx(), userPositionAndVelocity.getVy(),
+                userPositionAndVelocity.getVz(), gnssRangeErrorBiases, config, random,
+                result);
+    }
+
+    /**
+     * Generates satellite GNSS measurements and stores them in primitive arrays.
+     * User NED position and all intermediate matrices are computed only once for
+     * all satellites, and provided result is reused without allocating new
+     * measurement instances.
+     * Each generated measurement is identified by the position of its satellite
+     * within provided list.
+     *
+     * @param time                            current simulation time expressed in
+     *                                        seconds (s).
+     * @param satellitePositionsAndVelocities satellite positions and velocities.
+     * @param userX                           x ECEF coordinate of user position
+     *                                        expressed in meters (m).
+     * @param userY                           y ECEF coordinate of user position
+     *                                        expressed in meters (m).
+     * @param userZ                           z ECEF coordinate of user position
+     *                                        expressed in meters (m).
+     * @param userVx                          x ECEF coordinate of user velocity
+     *                                        expressed in meters per second (m/s).
+     * @param userVy                          y ECEF coordinate of user velocity
+     *                                        expressed in meters per second (m/s).
+     * @param userVz                          z ECEF coordinate of user velocity
+     *                                        expressed in meters per second (m/s).
+     * @param gnssRangeErrorBiases            GNSS range error biases for each
+     *                                        satellite position and velocity.
+     * @param config                          GNSS configuration parameters.
+     * @param random                          random number generator.
+     * @param result                          instance where resulting GNSS
+     *                                        measurements are stored.
+     * @throws IllegalArgumentException if number of satellites and biases
+     *                                  differ.
+     */
+    public static void generate(
+            final double time, final List<ECEFPositionAndVelocity> satellitePositionsAndVelocities,
+            final double userX, final double userY, final double userZ,
+            final double userVx, final double userVy, final double userVz,
+            final List<Double> gnssRangeErrorBiases, final GNSSConfig config,
+            final Random random, final GNSSMeasurementBatch result) {
 
         if (satellitePositionsAndVelocities.size() != gnssRangeErrorBiases.size()) {
             throw new IllegalArgumentException();
         }
 
         result.clear();
+        result.ensureCapacity(satellitePositionsAndVelocities.size());
+
+        final NEDPosition userNedPosition = new NEDPosition();
+        final NEDVelocity userNedVelocity = new NEDVelocity();
+        ECEFtoNEDPositionVelocityConverter.convertECEFtoNED(
+                userX, userY, userZ,
+                userVx, userVy, userVz, userNedPosition, userNedVelocity);
+
+        // Local vertical and elevation mask are computed once for all
+        // satellites, so that satellites below the mask are discarded with a
+        // single dot product before computing their measurements
+        final double userLatitude = userNedPosition.getLatitude();
+        final double userLongitude = userNedPosition.getLongitude();
+        final double cosLat = Math.cos(userLatitude);
+        final double upX = cosLat * Math.cos(userLongitude);
+        final double upY = cosLat * Math.sin(userLongitude);
+        final double upZ = Math.sin(userLatitude);
+        final double sinMask = Math.sin(Math.toRadians(config.getMaskAngleDegrees()));
+
+        final GNSSMeasurement measurement = new GNSSMeasurement();
 
         int pos = 0;
         for (final ECEFPositionAndVelocity satellitePositionAndVelocity : satellitePositionsAndVelocities) {
+            final int satelliteId = pos;
             final Double gnssRangeErrorBias = gnssRangeErrorBiases.get(pos);
             pos++;
 
@@ -328,17 +439,16 @@ public class GNSSMeasurementsGenerator {
                 continue;
             }
 
-            final GNSSMeasurement measurement = generate(time,
-                    satellitePositionAndVelocity.getX(),
+            measurement.setSatelliteId(satelliteId);
+            if (generate(time, satellitePositionAndVelocity.getX(),
                     satellitePositionAndVelocity.getY(),
                     satellitePositionAndVelocity.getZ(),
                     satellitePositionAndVelocity.getVx(),
                     satellitePositionAndVelocity.getVy(),
                     satellitePositionAndVelocity.getVz(),
-                    userX, userY, userZ,
-                    userVx, userVy, userVz, gnssRangeErrorBias, config,
-                    random);
-            if (measurement != null) {
+                    userX, userY, userZ, userVx, userVy, userVz,
+                    gnssRangeErrorBias, config, upX, upY, upZ, sinMask, random,
+                    measurement)) {
                 result.add(measurement);
             }
         }
@@ -703,37 +813,27 @@ public class GNSSMeasurementsGenerator {
             final double gnssRangeErrorBias, final GNSSConfig config,
             final Random random, final GNSSMeasurement result) {
 
-        // Calculate ECEF to NED coordinate transformation matrix using (2.150)
-        final Matrix cen = CoordinateTransformation.ecefToNedMatrix(userLatitude, userLongitude);
-
-        // Skew symmetric matrix of Earth rate
-        try {
-            final Matrix omegaIe = Utils.skewMatrix(new double[]{0.0, 0.0, EARTH_ROTATION_RATE});
-            final Matrix cei = Matrix.identity(CoordinateTransformation.ROWS,
-                    CoordinateTransformation.COLS);
-            final Matrix satellitePosition = new Matrix(CoordinateTransformation.ROWS, 1);
-            final Matrix deltaR = new Matrix(CoordinateTransformation.ROWS, 1);
-            final Matrix satelliteVelocity = new Matrix(CoordinateTransformation.ROWS, 1);
-            final Matrix userPosition = new Matrix(CoordinateTransformation.ROWS, 1);
-            final Matrix userVelocity = new Matrix(CoordinateTransformation.ROWS, 1);
-            final Matrix tmp1 = new Matrix(CoordinateTransformation.ROWS, 1);
-            final Matrix tmp2 = new Matrix(CoordinateTransformation.ROWS, 1);
-            final Matrix tmp3 = new Matrix(CoordinateTransformation.ROWS, 1);
-            final Matrix tmp4 = new Matrix(CoordinateTransformation.ROWS, 1);
-            final Matrix tmp5 = new Matrix(CoordinateTransformation.ROWS, 1);
-            final Matrix tmp6 = new Matrix(CoordinateTransformation.ROWS, 1);
-
-            return generate(time, satelliteX, satelliteY, satelliteZ, satelliteVx, satelliteVy, satelliteVz,
-                    userX, userY, userZ, userVx, userVy, userVz, gnssRangeErrorBias, config, cen,
-                    omegaIe, cei, satellitePosition, deltaR, satelliteVelocity, userPosition,
-                    userVelocity, tmp1, tmp2, tmp3, tmp4, tmp5, tmp6, random, result);
-        } catch (final WrongSizeException ignore) {
-            return false;
-        }
+        // Local vertical is the opposite of the third row of the ECEF to NED
+        // coordinate transformation matrix (2.150)
+        final double cosLat = Math.cos(userLatitude);
+        final double upX = cosLat * Math.cos(userLongitude);
+        final double upY = cosLat * Math.sin(userLongitude);
+        final double upZ = Math.sin(userLatitude);
+        final double sinMask = Math.sin(Math.toRadians(config.getMaskAngleDegrees()));
+
+        return generate(time, satelliteX, satelliteY, satelliteZ, satelliteVx, satelliteVy, satelliteVz,
+                userX, userY, userZ, userVx, userVy, userVz, gnssRangeErrorBias, config,
+                upX, upY, upZ, sinMask, random, result);
     }
 
     /**
      * Internal method to generate a single satellite GNSS measurement.
+     * Satellites below the elevation mask are rejected first by comparing the
+     * projection of the line-of-sight vector on the local vertical against the
+     * sine of the mask angle, which is equivalent to comparing elevation
+     * against the mask angle. Only visible satellites go through the Sagnac
+     * corrected range and range rate computation, which is done without
+     * allocating any object.
      *
      * @param time               current simulation time expressed in seconds (s).
      * @param satelliteX         x ECEF coordinate of satellite position
@@ -762,27 +862,18 @@ public class GNSSMeasurementsGenerator {
      *                           expressed in meters per second (m/s).
      * @param gnssRangeErrorBias GNSS range error bias.
      * @param config             GNSS configuration parameters.
-     * @param cen                ECEF to NED coordinate transformation matrix.
-     * @param omegaIe            skew symmetric matrix of Earth rotation rate.
-     * @param cei                ECEF to ECI conversion matrix.
-     * @param satellitePosition  column matrix containing satellite position.
-     * @param deltaR             vector containing satellite to user position
-     *                           difference.
-     * @param satelliteVelocity  column matrix containing satellite velocity.
-     * @param userPosition       column matrix containing user position.
-     * @param userVelocity       column matrix containing user velocity.
-     * @param tmp1               column matrix containing temporal values.
-     * @param tmp2               column matrix containing temporal values.
-     * @param tmp3               column matrix containing temporal values.
-     * @param tmp4               column matrix containing temporal values.
-     * @param tmp5               column matrix containing temporal values.
-     * @param tmp6               column matrix containing temporal values.
+     * @param upX                x ECEF coordinate of unitary local vertical
+     *                           pointing up at user position.
+     * @param upY                y ECEF coordinate of unitary local vertical
+     *                           pointing up at user position.
+     * @param upZ                z ECEF coordinate of unitary local vertical
+     *                           pointing up at user position.
+     * @param sinMask            sine of elevation mask angle.
      * @param random             random number generator.
      * @param result             instance where resulting GNSS measurement
      *                           is stored.
      * @return true if result has been obtained, failed if satellite is below elevation
      * mask angle and result is not updated.
-     * @throws WrongSizeException if an error occurs.
      */
     private static boolean generate(
             final double time,
@@ -791,12 +882,8 @@ public class GNSSMeasurementsGenerator {
             final double userX, final double userY, final double userZ,
             final double userVx, final double userVy, final double userVz,
             final double gnssRangeErrorBias, final GNSSConfig config,
-            final Matrix cen, final Matrix omegaIe, final Matrix cei,
-            final Matrix satellitePosition, final Matrix deltaR,
-            final Matrix satelliteVelocity, final Matrix userPosition,
-            final Matrix userVelocity, final Matrix tmp1, final Matrix tmp2,
-            final Matrix tmp3, final Matrix tmp4, final Matrix tmp5, final Matrix tmp6,
-            final Random random, final GNSSMeasurement result) throws WrongSizeException {
+            final double upX, final double upY, final double upZ, final double sinMask,
+            final Random random, final GNSSMeasurement result) {
 
         // Determine ECEF line-of-sight vector using (8.41)
         final double deltaRx = satelliteX - userX;
@@ -805,92 +892,57 @@ public class GNSSMeasurementsGenerator {
 
         final double approxRange = Math.sqrt(deltaRx * deltaRx + deltaRy * deltaRy + deltaRz * deltaRz);
 
+        // Determine if satellite is above the masking angle. Elevation (8.57)
+        // is the arc sine of the projection of the line-of-sight vector on the
+        // local vertical, hence comparing sines avoids computing the arc sine
+        if (upX * deltaRx + upY * deltaRy + upZ * deltaRz < sinMask * approxRange) {
+            // Indicate that result is not updated
+            return false;
+        }
+
         final double uaseX = deltaRx / approxRange;
         final double uaseY = deltaRy / approxRange;
         final double uaseZ = deltaRz / approxRange;
 
-        // Convert line-of-sight vector to NED using (8.39) and determine
-        // elevation using (8.57)
-        final double cen1 = cen.getElementAt(2, 0);
-        final double cen2 = cen.getElementAt(2, 1);
-        final double cen3 = cen.getElementAt(2, 2);
-
-        final double elevation = -Math.asin(cen1 * uaseX + cen2 * uaseY + cen3 * uaseZ);
-
-        // Determine if satellite is above the masking angle
-        if (elevation >= Math.toRadians(config.getMaskAngleDegrees())) {
-
-            // Calculate frame rotation during signal transit time using (8.36)
-            final double ceiValue = EARTH_ROTATION_RATE * approxRange / SPEED_OF_LIGHT;
-            cei.setElementAt(0, 1, ceiValue);
-            cei.setElementAt(1, 0, -ceiValue);
-
-            // Calculate range using (8.35)
-            satellitePosition.setElementAtIndex(0, satelliteX);
-            satellitePosition.setElementAtIndex(1, satelliteY);
-            satellitePosition.setElementAtIndex(2, satelliteZ);
-
-            cei.multiply(satellitePosition, deltaR);
-
-            deltaR.setElementAtIndex(0, deltaR.getElementAtIndex(0) - userX);
-            deltaR.setElementAtIndex(1, deltaR.getElementAtIndex(1) - userY);
-            deltaR.setElementAtIndex(2, deltaR.getElementAtIndex(2) - userZ);
-
-            final double range = Utils.normF(deltaR);
-
-            // Calculate range rate using (8.44)
-
-            satelliteVelocity.setElementAtIndex(0, satelliteVx);
-            satelliteVelocity.setElementAtIndex(1, satelliteVy);
-            satelliteVelocity.setElementAtIndex(2, satelliteVz);
-
-            omegaIe.multiply(satellitePosition, tmp1);
-
-            satelliteVelocity.add(tmp1, tmp2);
-
-            cei.multiply(tmp2, tmp3);
-
-            userPosition.setElementAtIndex(0, userX);
-            userPosition.setElementAtIndex(1, userY);
-            userPosition.setElementAtIndex(2, userZ);
-
-            omegaIe.multiply(userPosition, tmp4);
-
-            userVelocity.setElementAtIndex(0, userVx);
-            userVelocity.setElementAtIndex(1, userVy);
-            userVelocity.setElementAtIndex(2, userVz);
-
-            userVelocity.add(tmp4, tmp5);
-
-            tmp3.subtract(tmp5, tmp6);
-
-            final double rangeRate = uaseX * tmp6.getElementAtIndex(0)
-                    + uaseY * tmp6.getElementAtIndex(1)
-                    + uaseZ * tmp6.getElementAtIndex(2);
-
-            // Calculate pseudo-range measurement
-            final double pseudoRange = range + gnssRangeErrorBias
-                    + config.getInitialReceiverClockOffset()
-                    + config.getInitialReceiverClockDrift() * time
-                    + config.getCodeTrackingErrorSD() * random.nextGaussian();
-
-            // Calculate pseudo-range rate measurement
-            final double pseudoRate = rangeRate
-                    + config.getInitialReceiverClockDrift()
-                    + config.getRangeRateTrackingErrorSD() * random.nextGaussian();
-
-            // Set result values
-            result.setPseudoRange(pseudoRange);
-            result.setPseudoRate(pseudoRate);
-            result.setPositionCoordinates(satelliteX, satelliteY, satelliteZ);
-            result.setVelocityCoordinates(satelliteVx, satelliteVy, satelliteVz);
-
-            // Indicate that result has been updated
-            return true;
-        } else {
-            // Indicate that result is not updated
-            return false;
-        }
+        // Calculate frame rotation during signal transit time using (8.36)
+        final double ceiValue = EARTH_ROTATION_RATE * approxRange / SPEED_OF_LIGHT;
+
+        // Calculate range using (8.35)
+        final double rangeX = satelliteX + ceiValue * satelliteY - userX;
+        final double rangeY = -ceiValue * satelliteX + satelliteY - userY;
+        final double rangeZ = satelliteZ - userZ;
+        final double range = Math.sqrt(rangeX * rangeX + rangeY * rangeY + rangeZ * rangeZ);
+
+        // Calculate range rate using (8.44)
+        final double satX = satelliteVx - EARTH_ROTATION_RATE * satelliteY;
+        final double satY = satelliteVy + EARTH_ROTATION_RATE * satelliteX;
+        final double diffX = satX + ceiValue * satY
+                - (userVx - EARTH_ROTATION_RATE * userY);
+        final double diffY = -ceiValue * satX + satY
+                - (userVy + EARTH_ROTATION_RATE * userX);
+        final double diffZ = satelliteVz - userVz;
+
+        final double rangeRate = uaseX * diffX + uaseY * diffY + uaseZ * diffZ;
+
+        // Calculate pseudo-range measurement
+        final double pseudoRange = range + gnssRangeErrorBias
+                + config.getInitialReceiverClockOffset()
+                + config.getInitialReceiverClockDrift() * time
+                + config.getCodeTrackingErrorSD() * random.nextGaussian();
+
+        // Calculate pseudo-range rate measurement
+        final double pseudoRate = rangeRate
+                + config.getInitialReceiverClockDrift()
+                + config.getRangeRateTrackingErrorSD() * random.nextGaussian();
+
+        // Set result values
+        result.setPseudoRange(pseudoRange);
+        result.setPseudoRate(pseudoRate);
+        result.setPositionCoordinates(satelliteX, satelliteY, satelliteZ);
+        result.setVelocityCoordinates(satelliteVx, satelliteVy, satelliteVz);
+
+        // Indicate that result has been updated
+        return true;
     }
 
     /**
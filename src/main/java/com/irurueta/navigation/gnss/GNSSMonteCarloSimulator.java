@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.frames.ECEFPosition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Simulates GNSS measurements of many users over many epochs using several
+ * threads.
+ * Each user is an independent random stream whose random number generator is
+ * seeded with a value deterministically derived from a master seed and the
+ * user index. Because a user is always simulated sequentially by a single
+ * thread using its own generator, results are exactly reproducible for a
+ * given master seed regardless of the number of threads being used or of the
+ * order in which threads are scheduled.
+ * For each user, range error biases are generated once at the start of the
+ * scenario, and then measurements of each epoch are generated using the
+ * satellite positions of the configured constellation. Users move with
+ * constant velocity from their initial position.
+ */
+public class GNSSMonteCarloSimulator {
+
+    /**
+     * Golden ratio increment used to derive stream seeds.
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * GNSS configuration parameters.
+     */
+    private final GNSSConfig mConfig;
+
+    /**
+     * Constellation of satellites.
+     */
+    private final GNSSConstellation mConstellation;
+
+    /**
+     * Initial position and velocity of each user.
+     */
+    private final List<ECEFPositionAndVelocity> mUsers;
+
+    /**
+     * Time of first epoch expressed in seconds (s).
+     */
+    private final double mStartTime;
+
+    /**
+     * Number of epochs to simulate for each user.
+     */
+    private final int mNumberOfEpochs;
+
+    /**
+     * Master seed from which the seeds of all user streams are derived.
+     */
+    private final long mMasterSeed;
+
+    /**
+     * Number of threads used to run the simulation.
+     */
+    private final int mNumberOfThreads;
+
+    /**
+     * Constructor.
+     * Uses as many threads as available processors.
+     *
+     * @param config         GNSS configuration parameters.
+     * @param users          initial position and velocity of each user.
+     * @param startTime      time of first epoch expressed in seconds (s).
+     * @param numberOfEpochs number of epochs to simulate for each user.
+     * @param masterSeed     master seed from which the seeds of all user
+     *                       streams are derived.
+     * @throws IllegalArgumentException if number of epochs is less than 1.
+     * @throws NullPointerException     if provided configuration or users are
+     *                                  null.
+     */
+    public GNSSMonteCarloSimulator(final GNSSConfig config,
+                                   final List<ECEFPositionAndVelocity> users,
+                                   final double startTime, final int numberOfEpochs,
+                                   final long masterSeed) {
+        this(config, users, startTime, numberOfEpochs, masterSeed,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param config          GNSS configuration parameters.
+     * @param users           initial position and velocity of each user.
+     * @param startTime       time of first epoch expressed in seconds (s).
+     * @param numberOfEpochs  number of epochs to simulate for each user.
+     * @param masterSeed      master seed from which the seeds of all user
+     *                        streams are derived.
+     * @param numberOfThreads number of threads used to run the simulation.
+     * @throws IllegalArgumentException if number of epochs or number of threads
+     *                                  is less than 1.
+     * @throws NullPointerException     if provided configuration or users are
+     *                                  null.
+     */
+    public GNSSMonteCarloSimulator(final GNSSConfig config,
+                                   final List<ECEFPositionAndVelocity> users,
+                                   final double startTime, final int numberOfEpochs,
+                                   final long masterSeed, final int numberOfThreads) {
+        if (numberOfEpochs < 1 || numberOfThreads < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        mConfig = new GNSSConfig(config);
+        mConstellation = new GNSSConstellation(mConfig);
+        mUsers = new ArrayList<>();
+        for (final ECEFPositionAndVelocity user : users) {
+            mUsers.add(new ECEFPositionAndVelocity(user));
+        }
+        mStartTime = startTime;
+        mNumberOfEpochs = numberOfEpochs;
+        mMasterSeed = masterSeed;
+        mNumberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Gets GNSS configuration parameters.
+     *
+     * @return GNSS configuration parameters.
+     */
+    public GNSSConfig getConfig() {
+        return new GNSSConfig(mConfig);
+    }
+
+    /**
+     * Gets number of simulated users.
+     *
+     * @return number of simulated users.
+     */
+    public int getNumberOfUsers() {
+        return mUsers.size();
+    }
+
+    /**
+     * Gets initial position and velocity of provided user.
+     *
+     * @param user user index.
+     * @return initial position and velocity of user.
+     * @throws IllegalArgumentException if user index is not valid.
+     */
+    public ECEFPositionAndVelocity getUser(final int user) {
+        checkUser(user);
+        return new ECEFPositionAndVelocity(mUsers.get(user));
+    }
+
+    /**
+     * Gets time of first epoch expressed in seconds (s).
+     *
+     * @return time of first epoch.
+     */
+    public double getStartTime() {
+        return mStartTime;
+    }
+
+    /**
+     * Gets number of epochs to simulate for each user.
+     *
+     * @return number of epochs.
+     */
+    public int getNumberOfEpochs() {
+        return mNumberOfEpochs;
+    }
+
+    /**
+     * Gets time of provided epoch expressed in seconds (s).
+     * Epochs are separated by the epoch interval of the GNSS configuration.
+     *
+     * @param epoch epoch index.
+     * @return time of epoch.
+     */
+    public double getEpochTime(final int epoch) {
+        return mStartTime + epoch * mConfig.getEpochInterval();
+    }
+
+    /**
+     * Gets master seed from which the seeds of all user streams are derived.
+     *
+     * @return master seed.
+     */
+    public long getMasterSeed() {
+        return mMasterSeed;
+    }
+
+    /**
+     * Gets number of threads used to run the simulation.
+     *
+     * @return number of threads.
+     */
+    public int getNumberOfThreads() {
+        return mNumberOfThreads;
+    }
+
+    /**
+     * Simulates measurements of all users and epochs.
+     *
+     * @return simulated measurements indexed by user and epoch.
+     * @throws GNSSException if simulation fails or is interrupted.
+     */
+    public GNSSMeasurementBatch[][] simulate() throws GNSSException {
+        final GNSSMeasurementBatch[][] result =
+                new GNSSMeasurementBatch[mUsers.size()][mNumberOfEpochs];
+        simulate(result);
+        return result;
+    }
+
+    /**
+     * Simulates measurements of all users and epochs.
+     * Batches already contained in provided result are reused, and missing
+     * ones are created.
+     *
+     * @param result array indexed by user and epoch where simulated
+     *               measurements will be stored.
+     * @throws IllegalArgumentException if provided array does not have one row
+     *                                  per user and at least one column per
+     *                                  epoch.
+     * @throws GNSSException            if simulation fails or is interrupted.
+     */
+    public void simulate(final GNSSMeasurementBatch[][] result) throws GNSSException {
+        if (result.length != mUsers.size()) {
+            throw new IllegalArgumentException();
+        }
+        for (final GNSSMeasurementBatch[] row : result) {
+            if (row == null || row.length < mNumberOfEpochs) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        GNSSParallelLoop.run(mNumberOfThreads, result.length,
+                new GNSSParallelLoop.BodyFactory() {
+                    @Override
+                    public GNSSParallelLoop.Body create() {
+                        return new GNSSParallelLoop.Body() {
+                            @Override
+                            public void run(final int index) {
+                                simulateUser(index, result[index]);
+                            }
+                        };
+                    }
+                });
+    }
+
+    /**
+     * Simulates measurements of all epochs for a single user.
+     * Results are identical to those obtained for the same user when
+     * simulating all users.
+     *
+     * @param user user index.
+     * @return simulated measurements of each epoch.
+     * @throws IllegalArgumentException if user index is not valid.
+     */
+    public GNSSMeasurementBatch[] simulateUser(final int user) {
+        final GNSSMeasurementBatch[] result = new GNSSMeasurementBatch[mNumberOfEpochs];
+        simulateUser(user, result);
+        return result;
+    }
+
+    /**
+     * Simulates measurements of all epochs for a single user.
+     * Results are identical to those obtained for the same user when
+     * simulating all users.
+     * Batches already contained in provided result are reused, and missing
+     * ones are created.
+     *
+     * @param user   user index.
+     * @param result array where simulated measurements of each epoch will be
+     *               stored.
+     * @throws IllegalArgumentException if user index is not valid or if provided
+     *                                  array is shorter than the number of epochs.
+     */
+    public void simulateUser(final int user, final GNSSMeasurementBatch[] result) {
+        checkUser(user);
+        if (result.length < mNumberOfEpochs) {
+            throw new IllegalArgumentException();
+        }
+
+        final Random random = new Random(getStreamSeed(mMasterSeed, user));
+
+        final ECEFPositionAndVelocity initial = mUsers.get(user);
+        final double x0 = initial.getX();
+        final double y0 = initial.getY();
+        final double z0 = initial.getZ();
+        final double vx = initial.getVx();
+        final double vy = initial.getVy();
+        final double vz = initial.getVz();
+
+        final int numSatellites = mConstellation.getNumberOfSatellites();
+        final double[] satX = new double[numSatellites];
+        final double[] satY = new double[numSatellites];
+        final double[] satZ = new double[numSatellites];
+        final double[] satVx = new double[numSatellites];
+        final double[] satVy = new double[numSatellites];
+        final double[] satVz = new double[numSatellites];
+
+        final List<ECEFPositionAndVelocity> satellites = new ArrayList<>();
+        final List<ECEFPosition> satellitePositions = new ArrayList<>();
+        for (int j = 0; j < numSatellites; j++) {
+            satellites.add(new ECEFPositionAndVelocity());
+            satellitePositions.add(new ECEFPosition());
+        }
+
+        // generate range error biases once at the start of the scenario
+        mConstellation.generateSatellitesPositionAndVelocity(mStartTime,
+                satX, satY, satZ, satVx, satVy, satVz);
+        for (int j = 0; j < numSatellites; j++) {
+            satellitePositions.get(j).setCoordinates(satX[j], satY[j], satZ[j]);
+        }
+        final List<Double> biases = new ArrayList<>();
+        GNSSBiasesGenerator.generateBiases(satellitePositions,
+                new ECEFPosition(x0, y0, z0), mConfig, random, biases);
+
+        for (int k = 0; k < mNumberOfEpochs; k++) {
+            final double time = getEpochTime(k);
+            final double elapsed = time - mStartTime;
+
+            mConstellation.generateSatellitesPositionAndVelocity(time,
+                    satX, satY, satZ, satVx, satVy, satVz);
+            for (int j = 0; j < numSatellites; j++) {
+                final ECEFPositionAndVelocity satellite = satellites.get(j);
+                satellite.setPositionCoordinates(satX[j], satY[j], satZ[j]);
+                satellite.setVelocityCoordinates(satVx[j], satVy[j], satVz[j]);
+            }
+
+            GNSSMeasurementBatch batch = result[k];
+            if (batch == null) {
+                batch = new GNSSMeasurementBatch(numSatellites);
+                result[k] = batch;
+            }
+
+            GNSSMeasurementsGenerator.generate(time, satellites,
+                    x0 + vx * elapsed, y0 + vy * elapsed, z0 + vz * elapsed,
+                    vx, vy, vz, biases, mConfig, random, batch);
+        }
+    }
+
+    /**
+     * Derives the seed of a random stream from a master seed.
+     * Seeds of consecutive streams are decorrelated by mixing their bits, so
+     * that consecutive stream indices do not produce correlated generators.
+     *
+     * @param masterSeed master seed.
+     * @param stream     stream index.
+     * @return seed of stream.
+     */
+    public static long getStreamSeed(final long masterSeed, final int stream) {
+        long z = masterSeed + (stream + 1L) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Checks that provided user index is valid.
+     *
+     * @param user user index.
+     * @throws IllegalArgumentException if user index is not valid.
+     */
+    private void checkUser(final int user) {
+        if (user < 0 || user >= mUsers.size()) {
+            throw new IllegalArgumentException();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the iterations of a loop on several worker threads.
+ * Each worker creates its own loop body, so that any workspace needed to run
+ * iterations is owned by a single thread and is reused for all the iterations
+ * claimed by that worker. Iterations are claimed dynamically, so that workers
+ * finishing early keep claiming pending iterations.
+ */
+class GNSSParallelLoop {
+
+    /**
+     * Constructor.
+     * Prevents instantiation of helper class.
+     */
+    private GNSSParallelLoop() {
+    }
+
+    /**
+     * Creates an executor having a fixed number of daemon threads, so that
+     * executors not being explicitly shut down do not prevent the JVM from
+     * exiting.
+     *
+     * @param numberOfThreads number of threads.
+     * @return a new executor.
+     */
+    static ExecutorService newExecutor(final int numberOfThreads) {
+        return Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = Executors.defaultThreadFactory().newThread(r);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Runs iterations of a loop using a temporary executor that is shut down
+     * once all iterations have been run.
+     * If a single worker is needed, iterations are run on the calling thread.
+     *
+     * @param numberOfThreads maximum number of worker threads.
+     * @param count           number of iterations.
+     * @param factory         factory creating the loop body of each worker.
+     * @throws GNSSException if any iteration fails with a checked exception or
+     *                       if calling thread is interrupted.
+     */
+    static void run(final int numberOfThreads, final int count,
+                    final BodyFactory factory) throws GNSSException {
+        final int numWorkers = Math.min(numberOfThreads, Math.max(1, count));
+        if (numWorkers == 1) {
+            runSequentially(count, factory);
+            return;
+        }
+
+        final ExecutorService executor = newExecutor(numWorkers);
+        try {
+            run(executor, numWorkers, count, factory);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs iterations of a loop on provided executor.
+     * If a single worker is needed, iterations are run on the calling thread.
+     *
+     * @param executor        executor where workers are run.
+     * @param numberOfWorkers maximum number of workers.
+     * @param count           number of iterations.
+     * @param factory         factory creating the loop body of each worker.
+     * @throws GNSSException if any iteration fails with a checked exception or
+     *                       if calling thread is interrupted. Unchecked exceptions
+     *                       and errors raised by iterations are rethrown as they
+     *                       are.
+     */
+    static void run(final ExecutorService executor, final int numberOfWorkers,
+                    final int count, final BodyFactory factory)
+            throws GNSSException {
+        final int numWorkers = Math.min(numberOfWorkers, Math.max(1, count));
+        if (numWorkers == 1) {
+            runSequentially(count, factory);
+            return;
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        final List<Future<Void>> futures = new ArrayList<>(numWorkers);
+        try {
+            for (int t = 0; t < numWorkers; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        final Body body = factory.create();
+                        int i;
+                        while ((i = next.getAndIncrement()) < count) {
+                            body.run(i);
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GNSSException(e);
+        } catch (final ExecutionException e) {
+            // failures are reported the same way as when running sequentially
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new GNSSException(cause);
+            }
+        } finally {
+            // stop remaining workers if any of them failed
+            next.set(count);
+            for (final Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Runs all iterations of a loop on the calling thread.
+     *
+     * @param count   number of iterations.
+     * @param factory factory creating the loop body.
+     * @throws GNSSException if any iteration fails with a checked exception.
+     */
+    private static void runSequentially(final int count,
+                                        final BodyFactory factory)
+            throws GNSSException {
+        try {
+            final Body body = factory.create();
+            for (int i = 0; i < count; i++) {
+                body.run(i);
+            }
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new GNSSException(e);
+        }
+    }
+
+    /**
+     * Body of a loop run by a single worker.
+     */
+    interface Body {
+        /**
+         * Runs a single iteration.
+         *
+         * @param index index of iteration.
+         * @throws Exception if iteration fails.
+         */
+        void run(final int index) throws Exception;
+    }
+
+    /**
+     * Creates the loop body of each worker.
+     */
+    interface BodyFactory {
+        /**
+         * Creates the loop body of a worker along with any workspace it needs.
+         *
+         * @return a new loop body.
+         */
+        Body create();
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.frames.ECEFPosition;
+
+import java.util.Arrays;
+
+/**
+ * Selects the subset of GNSS satellites having the best geometry and
+ * computes dilution of precision (DOP) of satellite geometries.
+ * Selection is done greedily by backward elimination: starting with all
+ * satellites, the satellite whose removal increases dilution of precision the
+ * least is removed until the requested number of satellites remains.
+ * The cofactor matrix (H^T * H)^-1 is inverted only once and then downdated
+ * on each removal by means of the Sherman-Morrison formula, hence each
+ * removal only requires rank-one updates of a 4x4 matrix.
+ * Greedy selection is not guaranteed to find the optimal subset, but it is
+ * usually close to it at a small fraction of the cost of an exhaustive search.
+ * Instances of this class reuse internal buffers and are not thread-safe.
+ */
+public class GNSSSatelliteSelector {
+
+    /**
+     * Minimum number of satellites required to solve position and clock
+     * offset.
+     */
+    public static final int MIN_MEASUREMENTS = GNSSCofactorMatrix.MIN_MEASUREMENTS;
+
+    /**
+     * Default criterion to be minimized.
+     */
+    public static final GNSSSatelliteSelectionCriterion DEFAULT_CRITERION =
+            GNSSSatelliteSelectionCriterion.GDOP;
+
+    /**
+     * Number of unknowns (position coordinates and clock offset).
+     */
+    private static final int UNKNOWNS = GNSSCofactorMatrix.UNKNOWNS;
+
+    /**
+     * Minimum redundancy that a satellite must have to be removed.
+     * Removing a satellite with no redundancy would make geometry singular.
+     */
+    private static final double MIN_REDUNDANCY = 1e-9;
+
+    /**
+     * Criterion to be minimized.
+     */
+    private GNSSSatelliteSelectionCriterion mCriterion = DEFAULT_CRITERION;
+
+    /**
+     * Cofactor matrix of current set of satellites.
+     */
+    private final GNSSCofactorMatrix mCofactor = new GNSSCofactorMatrix();
+
+    /**
+     * Rows of measurement matrix containing the negated line of sight of each
+     * satellite and a unit clock offset term.
+     */
+    private double[] mH = new double[0];
+
+    /**
+     * Indicates whether each satellite is currently selected.
+     */
+    private boolean[] mSelected = new boolean[0];
+
+    /**
+     * Closed form solver used to obtain user position when none is provided.
+     */
+    private final GNSSBancroftSolver mClosedFormSolver = new GNSSBancroftSolver();
+
+    /**
+     * Internal estimation containing closed form user position.
+     */
+    private final GNSSEstimation mClosedFormSolution = new GNSSEstimation();
+
+    /**
+     * Constructor.
+     */
+    public GNSSSatelliteSelector() {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param criterion criterion to be minimized.
+     */
+    public GNSSSatelliteSelector(final GNSSSatelliteSelectionCriterion criterion) {
+        this();
+        mCriterion = criterion;
+    }
+
+    /**
+     * Gets criterion to be minimized.
+     *
+     * @return criterion to be minimized.
+     */
+    public GNSSSatelliteSelectionCriterion getCriterion() {
+        return mCriterion;
+    }
+
+    /**
+     * Sets criterion to be minimized.
+     *
+     * @param criterion criterion to be minimized.
+     */
+    public void setCriterion(final GNSSSatelliteSelectionCriterion criterion) {
+        mCriterion = criterion;
+    }
+
+    /**
+     * Selects the subset of satellites having the best geometry as seen from
+     * provided user position.
+     *
+     * @param measurements       GNSS measurements of all available
+     *                           satellites.
+     * @param x                  x coordinate of user position expressed in
+     *                           meters (m).
+     * @param y                  y coordinate of user position expressed in
+     *                           meters (m).
+     * @param z                  z coordinate of user position expressed in
+     *                           meters (m).
+     * @param numberOfSatellites number of satellites to be selected.
+     * @param result             array where positions within provided
+     *                           measurements of selected satellites will be
+     *                           stored in ascending order.
+     * @param dop                instance where dilution of precision of
+     *                           selected satellites will be stored, or null
+     *                           if not needed.
+     * @throws IllegalArgumentException if number of satellites is less than 4
+     *                                  or greater than number of measurements,
+     *                                  or if result array is too short.
+     * @throws GNSSException            if geometry of satellites is singular.
+     */
+    public void select(final GNSSMeasurementBatch measurements,
+                       final double x, final double y, final double z,
+                       final int numberOfSatellites, final int[] result,
+                       final GNSSDilutionOfPrecision dop) throws GNSSException {
+        final int n = measurements.getSize();
+        if (numberOfSatellites < MIN_MEASUREMENTS || numberOfSatellites > n
+                || result.length < numberOfSatellites) {
+            throw new IllegalArgumentException();
+        }
+
+        if (mSelected.length < n) {
+            mSelected = new boolean[n];
+        }
+        Arrays.fill(mSelected, 0, n, true);
+        buildCofactor(measurements, null, n, x, y, z);
+
+        final boolean positionOnly =
+                mCriterion == GNSSSatelliteSelectionCriterion.PDOP;
+        final double[] qh = mCofactor.getProduct();
+        for (int remaining = n; remaining > numberOfSatellites; remaining--) {
+            // find satellite whose removal increases criterion the least.
+            // Removing row h increases cofactor matrix by
+            // Q*h*h^T*Q / (1 - h^T*Q*h), hence trace increases by
+            // |Q*h|^2 / (1 - h^T*Q*h)
+            int best = -1;
+            double bestIncrease = Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                if (!mSelected[i]) {
+                    continue;
+                }
+                final double redundancy = 1.0 - mCofactor.leverage(mH, i);
+                if (redundancy <= MIN_REDUNDANCY) {
+                    continue;
+                }
+                double numerator = qh[0] * qh[0] + qh[1] * qh[1] + qh[2] * qh[2];
+                if (!positionOnly) {
+                    numerator += qh[3] * qh[3];
+                }
+                final double increase = numerator / redundancy;
+                if (increase < bestIncrease) {
+                    bestIncrease = increase;
+                    best = i;
+                }
+            }
+
+            if (best < 0) {
+                throw new GNSSException();
+            }
+
+            // downdate cofactor matrix using Sherman-Morrison formula
+            mCofactor.downdate(1.0 - mCofactor.leverage(mH, best));
+            mSelected[best] = false;
+        }
+
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            if (mSelected[i]) {
+                result[pos++] = i;
+            }
+        }
+
+        if (dop != null) {
+            dop.setFromCofactor(mCofactor.getCofactor(), x, y, z);
+        }
+    }
+
+    /**
+     * Selects the subset of satellites having the best geometry as seen from
+     * provided user position.
+     *
+     * @param measurements       GNSS measurements of all available
+     *                           satellites.
+     * @param position           user position.
+     * @param numberOfSatellites number of satellites to be selected.
+     * @return positions within provided measurements of selected satellites
+     * in ascending order.
+     * @throws IllegalArgumentException if number of satellites is less than 4
+     *                                  or greater than number of measurements.
+     * @throws GNSSException            if geometry of satellites is singular.
+     */
+    public int[] select(final GNSSMeasurementBatch measurements,
+                        final ECEFPosition position,
+                        final int numberOfSatellites) throws GNSSException {
+        final int[] result = new int[Math.max(numberOfSatellites, 0)];
+        select(measurements, position.getX(), position.getY(),
+                position.getZ(), numberOfSatellites, result, null);
+        return result;
+    }
+
+    /**
+     * Selects the subset of satellites having the best geometry.
+     * User position is obtained in closed form from provided pseudo-ranges.
+     *
+     * @param measurements       GNSS measurements of all available
+     *                           satellites.
+     * @param numberOfSatellites number of satellites to be selected.
+     * @return positions within provided measurements of selected satellites
+     * in ascending order.
+     * @throws IllegalArgumentException if number of satellites is less than 4
+     *                                  or greater than number of measurements.
+     * @throws GNSSException            if user position cannot be solved or
+     *                                  geometry of satellites is singular.
+     */
+    public int[] select(final GNSSMeasurementBatch measurements,
+                        final int numberOfSatellites) throws GNSSException {
+        if (numberOfSatellites < MIN_MEASUREMENTS
+                || numberOfSatellites > measurements.getSize()) {
+            throw new IllegalArgumentException();
+        }
+        mClosedFormSolver.solve(measurements, mClosedFormSolution);
+
+        final int[] result = new int[numberOfSatellites];
+        select(measurements, mClosedFormSolution.getX(),
+                mClosedFormSolution.getY(), mClosedFormSolution.getZ(),
+                numberOfSatellites, result, null);
+        return result;
+    }
+
+    /**
+     * Computes dilution of precision of a subset of satellites as seen from
+     * provided user position.
+     *
+     * @param measurements GNSS measurements.
+     * @param indices      positions of measurements to be used.
+     * @param x            x coordinate of user position expressed in meters
+     *                     (m).
+     * @param y            y coordinate of user position expressed in meters
+     *                     (m).
+     * @param z            z coordinate of user position expressed in meters
+     *                     (m).
+     * @param result       instance where dilution of precision will be stored.
+     * @throws IllegalArgumentException if less than 4 indices are provided.
+     * @throws GNSSException            if geometry of satellites is singular.
+     */
+    public void computeDilutionOfPrecision(
+            final GNSSMeasurementBatch measurements, final int[] indices,
+            final double x, final double y, final double z,
+            final GNSSDilutionOfPrecision result) throws GNSSException {
+        if (indices.length < MIN_MEASUREMENTS) {
+            throw new IllegalArgumentException();
+        }
+        buildCofactor(measurements, indices, indices.length, x, y, z);
+        result.setFromCofactor(mCofactor.getCofactor(), x, y, z);
+    }
+
+    /**
+     * Computes dilution of precision of all satellites as seen from provided
+     * user position.
+     *
+     * @param measurements GNSS measurements.
+     * @param x            x coordinate of user position expressed in meters
+     *                     (m).
+     * @param y            y coordinate of user position expressed in meters
+     *                     (m).
+     * @param z            z coordinate of user position expressed in meters
+     *                     (m).
+     * @param result       instance where dilution of precision will be stored.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws GNSSException            if geometry of satellites is singular.
+     */
+    public void computeDilutionOfPrecision(
+            final GNSSMeasurementBatch measurements,
+            final double x, final double y, final double z,
+            final GNSSDilutionOfPrecision result) throws GNSSException {
+        final int n = measurements.getSize();
+        if (n < MIN_MEASUREMENTS) {
+            throw new IllegalArgumentException();
+        }
+        buildCofactor(measurements, null, n, x, y, z);
+        result.setFromCofactor(mCofactor.getCofactor(), x, y, z);
+    }
+
+    /**
+     * Computes dilution of precision of all satellites as seen from provided
+     * user position.
+     *
+     * @param measurements GNSS measurements.
+     * @param position     user position.
+     * @return dilution of precision.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws GNSSException            if geometry of satellites is singular.
+     */
+    public GNSSDilutionOfPrecision computeDilutionOfPrecision(
+            final GNSSMeasurementBatch measurements,
+            final ECEFPosition position) throws GNSSException {
+        final GNSSDilutionOfPrecision result = new GNSSDilutionOfPrecision();
+        computeDilutionOfPrecision(measurements, position.getX(),
+                position.getY(), position.getZ(), result);
+        return result;
+    }
+
+    /**
+     * Builds rows of measurement matrix and inverts its normal matrix to
+     * obtain cofactor matrix.
+     *
+     * @param measurements GNSS measurements.
+     * @param indices      positions of measurements to be used or null to use
+     *                     the first n measurements.
+     * @param n            number of measurements to be used.
+     * @param x            x coordinate of user position.
+     * @param y            y coordinate of user position.
+     * @param z            z coordinate of user position.
+     * @throws GNSSException if geometry of satellites is singular.
+     */
+    private void buildCofactor(final GNSSMeasurementBatch measurements,
+                               final int[] indices, final int n,
+                               final double x, final double y, final double z)
+            throws GNSSException {
+        final int size = measurements.getSize();
+        if (mH.length < size * UNKNOWNS) {
+            mH = new double[size * UNKNOWNS];
+        }
+
+        final double[] xs = measurements.getXs();
+        final double[] ys = measurements.getYs();
+        final double[] zs = measurements.getZs();
+
+        for (int j = 0; j < n; j++) {
+            final int i = indices != null ? indices[j] : j;
+            final double diffX = xs[i] - x;
+            final double diffY = ys[i] - y;
+            final double diffZ = zs[i] - z;
+            final double range = Math.sqrt(diffX * diffX + diffY * diffY
+                    + diffZ * diffZ);
+
+            final int row = i * UNKNOWNS;
+            mH[row] = -diffX / range;
+            mH[row + 1] = -diffY / range;
+            mH[row + 2] = -diffZ / range;
+            mH[row + 3] = 1.0;
+        }
+
+        mCofactor.invert(mH, indices, n);
+
+        final double[] q = mCofactor.getCofactor();
+        for (final double value : q) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new GNSSException();
+            }
+        }
+
+        // rounding errors of nearly singular geometries might produce
+        // non-positive variances
+        for (int i = 0; i < UNKNOWNS; i++) {
+            if (q[i * UNKNOWNS + i] <= 0.0) {
+                throw new GNSSException();
+            }
+        }
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.numerical.robust.PROMedSRobustEstimator;
+import com.irurueta.numerical.robust.PROMedSRobustEstimatorListener;
+import com.irurueta.numerical.robust.RobustEstimator;
+import com.irurueta.numerical.robust.RobustEstimatorException;
+import com.irurueta.numerical.robust.RobustEstimatorMethod;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Robustly estimates GNSS position and velocity using PROMedS algorithm.
+ */
+@SuppressWarnings("DuplicatedCode")
+public class PROMedSRobustGNSSPositionAndVelocityEstimator extends
+        RobustGNSSPositionAndVelocityEstimator {
+
+    /**
+     * Default value to be used for stop threshold, expressed in meters (m).
+     * Stop threshold can be used to avoid keeping the algorithm unnecessarily
+     * iterating in case that the median of pseudo-range residuals is already
+     * small enough, which happens when remaining errors are dominated by
+     * measurement noise rather than by outliers.
+     */
+    public static final double DEFAULT_STOP_THRESHOLD = 1.0;
+
+    /**
+     * Minimum allowed stop threshold value.
+     */
+    public static final double MIN_STOP_THRESHOLD = 0.0;
+
+    /**
+     * Threshold to be used to keep the algorithm iterating in case that best
+     * estimated threshold using median of residuals is not small enough. Once
+     * a solution is found that generates a threshold below this value, the
+     * algorithm will stop.
+     */
+    private double mStopThreshold = DEFAULT_STOP_THRESHOLD;
+
+    /**
+     * Quality scores corresponding to each measurement.
+     * The larger the score value the better the quality of the measurement.
+     */
+    private double[] mQualityScores;
+
+    /**
+     * Constructor.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator() {
+        super();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param listener listener to be notified of events such as when
+     *                 estimation starts, ends or its progress significantly
+     *                 changes.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(
+            final GNSSMeasurementBatch measurements) {
+        super(measurements);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @param listener     listener to be notified of events such as when
+     *                     estimation starts, ends or its progress
+     *                     significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(
+            final GNSSMeasurementBatch measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(measurements, listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(
+            final Collection<GNSSMeasurement> measurements) {
+        super(measurements);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @param listener     listener to be notified of events such as when
+     *                     estimation starts, ends or its progress
+     *                     significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(
+            final Collection<GNSSMeasurement> measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(measurements, listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @throws IllegalArgumentException if quality scores is null or length of
+     *                                  quality scores is less than 4.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(final double[] qualityScores) {
+        super();
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @param listener      listener to be notified of events such as when
+     *                      estimation starts, ends or its progress
+     *                      significantly changes.
+     * @throws IllegalArgumentException if quality scores is null or length of
+     *                                  quality scores is less than 4.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(
+            final double[] qualityScores,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(listener);
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @param measurements  GNSS measurements to estimate position and
+     *                      velocity from.
+     * @throws IllegalArgumentException if less than 4 measurements or quality
+     *                                  scores are provided.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(
+            final double[] qualityScores,
+            final GNSSMeasurementBatch measurements) {
+        super(measurements);
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @param measurements  GNSS measurements to estimate position and
+     *                      velocity from.
+     * @param listener      listener to be notified of events such as when
+     *                      estimation starts, ends or its progress
+     *                      significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements or quality
+     *                                  scores are provided.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(
+            final double[] qualityScores,
+            final GNSSMeasurementBatch measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(measurements, listener);
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @param measurements  GNSS measurements to estimate position and
+     *                      velocity from.
+     * @throws IllegalArgumentException if less than 4 measurements or quality
+     *                                  scores are provided.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(
+            final double[] qualityScores,
+            final Collection<GNSSMeasurement> measurements) {
+        super(measurements);
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @param measurements  GNSS measurements to estimate position and
+     *                      velocity from.
+     * @param listener      listener to be notified of events such as when
+     *                      estimation starts, ends or its progress
+     *                      significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements or quality
+     *                                  scores are provided.
+     */
+    public PROMedSRobustGNSSPositionAndVelocityEstimator(
+            final double[] qualityScores,
+            final Collection<GNSSMeasurement> measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(measurements, listener);
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Returns threshold to be used to keep the algorithm iterating in case
+     * that best estimated threshold using median of residuals is not small
+     * enough. Once a solution is found that generates a threshold below this
+     * value, the algorithm will stop.
+     * Stop threshold is expressed in meters (m).
+     *
+     * @return stop threshold to stop the algorithm prematurely when a certain
+     * accuracy has been reached.
+     */
+    public double getStopThreshold() {
+        return mStopThreshold;
+    }
+
+    /**
+     * Sets threshold to be used to keep the algorithm iterating in case that
+     * best estimated threshold using median of residuals is not small enough.
+     * Once a solution is found that generates a threshold below this value,
+     * the algorithm will stop.
+     * Stop threshold is expressed in meters (m).
+     *
+     * @param stopThreshold stop threshold to stop the algorithm prematurely
+     *                      when a certain accuracy has been reached.
+     * @throws IllegalArgumentException if provided value is zero or negative.
+     * @throws LockedException          if this estimator is locked.
+     */
+    public void setStopThreshold(final double stopThreshold)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        if (stopThreshold <= MIN_STOP_THRESHOLD) {
+            throw new IllegalArgumentException();
+        }
+        mStopThreshold = stopThreshold;
+    }
+
+    /**
+     * Returns quality scores corresponding to each measurement.
+     * The larger the score value the better the quality of the measurement.
+     *
+     * @return quality scores corresponding to each measurement.
+     */
+    @Override
+    public double[] getQualityScores() {
+        return mQualityScores;
+    }
+
+    /**
+     * Sets quality scores corresponding to each measurement.
+     * The larger the score value the better the quality of the measurement.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @throws IllegalArgumentException if provided quality scores length is
+     *                                  smaller than minimum required
+     *                                  measurements (i.e. 4).
+     * @throws LockedException          if this estimator is locked.
+     */
+    @Override
+    public void setQualityScores(final double[] qualityScores)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Indicates whether this estimator is ready to start the estimation.
+     *
+     * @return true if estimator is ready, false otherwise.
+     */
+    @Override
+    public boolean isReady() {
+        return super.isReady() && mQualityScores != null
+                && mQualityScores.length == getNumberOfMeasurements();
+    }
+
+    /**
+     * Robustly estimates position, velocity, clock offset and clock drift.
+     *
+     * @return estimated position, velocity, clock offset and clock drift.
+     * @throws LockedException          if this estimator is locked.
+     * @throws NotReadyException        if this estimator is not ready.
+     * @throws RobustEstimatorException if estimation fails for any reason
+     *                                  (i.e. numerical instability, no
+     *                                  solution available, etc).
+     */
+    @Override
+    public GNSSEstimation estimate() throws LockedException, NotReadyException,
+            RobustEstimatorException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        if (!isReady()) {
+            throw new NotReadyException();
+        }
+
+        final PROMedSRobustEstimator<GNSSEstimation> innerEstimator =
+                new PROMedSRobustEstimator<>(
+                        new PROMedSRobustEstimatorListener<GNSSEstimation>() {
+                            @Override
+                            public double getThreshold() {
+                                return mStopThreshold;
+                            }
+
+                            @Override
+                            public double[] getQualityScores() {
+                                return mQualityScores;
+                            }
+
+                            @Override
+                            public int getTotalSamples() {
+                                return getNumberOfMeasurements();
+                            }
+
+                            @Override
+                            public int getSubsetSize() {
+                                return MIN_MEASUREMENTS;
+                            }
+
+                            @Override
+                            public void estimatePreliminarSolutions(
+                                    final int[] samplesIndices,
+                                    final List<GNSSEstimation> solutions) {
+                                solvePreliminarySolutions(samplesIndices, solutions);
+                            }
+
+                            @Override
+                            public double computeResidual(
+                                    final GNSSEstimation currentEstimation,
+                                    final int i) {
+                                return PROMedSRobustGNSSPositionAndVelocityEstimator.this
+                                        .computeResidual(currentEstimation, i);
+                            }
+
+                            @Override
+                            public boolean isReady() {
+                                return PROMedSRobustGNSSPositionAndVelocityEstimator.this
+                                        .isReady();
+                            }
+
+                            @Override
+                            public void onEstimateStart(
+                                    final RobustEstimator<GNSSEstimation> estimator) {
+                            }
+
+                            @Override
+                            public void onEstimateEnd(
+                                    final RobustEstimator<GNSSEstimation> estimator) {
+                            }
+
+                            @Override
+                            public void onEstimateNextIteration(
+                                    final RobustEstimator<GNSSEstimation> estimator,
+                                    final int iteration) {
+                                if (mListener != null) {
+                                    mListener.onEstimateNextIteration(
+                                            PROMedSRobustGNSSPositionAndVelocityEstimator.this,
+                                            iteration);
+                                }
+                            }
+
+                            @Override
+                            public void onEstimateProgressChange(
+                                    final RobustEstimator<GNSSEstimation> estimator,
+                                    final float progress) {
+                                if (mListener != null) {
+                                    mListener.onEstimateProgressChange(
+                                            PROMedSRobustGNSSPositionAndVelocityEstimator.this,
+                                            progress);
+                                }
+                            }
+                        });
+
+        try {
+            mLocked = true;
+
+            if (mListener != null) {
+                mListener.onEstimateStart(this);
+            }
+
+            mInliersData = null;
+            innerEstimator.setUseInlierThresholds(false);
+            innerEstimator.setConfidence(mConfidence);
+            innerEstimator.setMaxIterations(mMaxIterations);
+            innerEstimator.setProgressDelta(mProgressDelta);
+            final GNSSEstimation result = innerEstimator.estimate();
+            mInliersData = innerEstimator.getInliersData();
+            final GNSSEstimation refined = attemptRefine(result);
+
+            if (mListener != null) {
+                mListener.onEstimateEnd(this);
+            }
+
+            return refined;
+
+        } catch (final com.irurueta.numerical.LockedException e) {
+            throw new LockedException(e);
+        } catch (final com.irurueta.numerical.NotReadyException e) {
+            throw new NotReadyException(e);
+        } finally {
+            mLocked = false;
+        }
+    }
+
+    /**
+     * Returns method being used for robust estimation.
+     *
+     * @return method being used for robust estimation.
+     */
+    @Override
+    public RobustEstimatorMethod getMethod() {
+        return RobustEstimatorMethod.PROMedS;
+    }
+
+    /**
+     * Sets quality scores corresponding to each measurement.
+     * This method is used internally and does not check whether instance is
+     * locked or not.
+     *
+     * @param qualityScores quality scores to be set.
+     * @throws IllegalArgumentException if provided quality scores length is
+     *                                  smaller than 4 measurements.
+     */
+    private void internalSetQualityScores(final double[] qualityScores) {
+        if (qualityScores == null || qualityScores.length < MIN_MEASUREMENTS) {
+            throw new IllegalArgumentException();
+        }
+        mQualityScores = qualityScores;
+    }
+}
@@ -0,0 +1,540 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.numerical.robust.PROSACRobustEstimator;
+import com.irurueta.numerical.robust.PROSACRobustEstimatorListener;
+import com.irurueta.numerical.robust.RobustEstimator;
+import com.irurueta.numerical.robust.RobustEstimatorException;
+import com.irurueta.numerical.robust.RobustEstimatorMethod;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Robustly estimates GNSS position and velocity using PROSAC algorithm.
+ */
+@SuppressWarnings("DuplicatedCode")
+public class PROSACRobustGNSSPositionAndVelocityEstimator extends
+        RobustGNSSPositionAndVelocityEstimator {
+
+    /**
+     * Constant defining default threshold on pseudo-range residuals to
+     * determine whether a measurement is an inlier or not, expressed in
+     * meters (m).
+     */
+    public static final double DEFAULT_THRESHOLD = 20.0;
+
+    /**
+     * Minimum value that can be set as threshold.
+     * Threshold must be strictly greater than 0.0.
+     */
+    public static final double MIN_THRESHOLD = 0.0;
+
+    /**
+     * Indicates that by default inliers will only be computed but not kept.
+     */
+    public static final boolean DEFAULT_COMPUTE_AND_KEEP_INLIERS = false;
+
+    /**
+     * Indicates that by default residuals will only be computed but not kept.
+     */
+    public static final boolean DEFAULT_COMPUTE_AND_KEEP_RESIDUALS = false;
+
+    /**
+     * Threshold on pseudo-range residuals to determine whether a measurement
+     * is an inlier or not, expressed in meters (m).
+     */
+    private double mThreshold = DEFAULT_THRESHOLD;
+
+    /**
+     * Indicates whether inliers must be computed and kept.
+     */
+    private boolean mComputeAndKeepInliers = DEFAULT_COMPUTE_AND_KEEP_INLIERS;
+
+    /**
+     * Indicates whether residuals must be computed and kept.
+     */
+    private boolean mComputeAndKeepResiduals = DEFAULT_COMPUTE_AND_KEEP_RESIDUALS;
+
+    /**
+     * Quality scores corresponding to each measurement.
+     * The larger the score value the better the quality of the measurement.
+     */
+    private double[] mQualityScores;
+
+    /**
+     * Constructor.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator() {
+        super();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param listener listener to be notified of events such as when
+     *                 estimation starts, ends or its progress significantly
+     *                 changes.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(
+            final GNSSMeasurementBatch measurements) {
+        super(measurements);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @param listener     listener to be notified of events such as when
+     *                     estimation starts, ends or its progress
+     *                     significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(
+            final GNSSMeasurementBatch measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(measurements, listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(
+            final Collection<GNSSMeasurement> measurements) {
+        super(measurements);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @param listener     listener to be notified of events such as when
+     *                     estimation starts, ends or its progress
+     *                     significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(
+            final Collection<GNSSMeasurement> measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(measurements, listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @throws IllegalArgumentException if quality scores is null or length of
+     *                                  quality scores is less than 4.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(final double[] qualityScores) {
+        super();
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @param listener      listener to be notified of events such as when
+     *                      estimation starts, ends or its progress
+     *                      significantly changes.
+     * @throws IllegalArgumentException if quality scores is null or length of
+     *                                  quality scores is less than 4.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(
+            final double[] qualityScores,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(listener);
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @param measurements  GNSS measurements to estimate position and
+     *                      velocity from.
+     * @throws IllegalArgumentException if less than 4 measurements or quality
+     *                                  scores are provided.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(
+            final double[] qualityScores,
+            final GNSSMeasurementBatch measurements) {
+        super(measurements);
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @param measurements  GNSS measurements to estimate position and
+     *                      velocity from.
+     * @param listener      listener to be notified of events such as when
+     *                      estimation starts, ends or its progress
+     *                      significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements or quality
+     *                                  scores are provided.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(
+            final double[] qualityScores,
+            final GNSSMeasurementBatch measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(measurements, listener);
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @param measurements  GNSS measurements to estimate position and
+     *                      velocity from.
+     * @throws IllegalArgumentException if less than 4 measurements or quality
+     *                                  scores are provided.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(
+            final double[] qualityScores,
+            final Collection<GNSSMeasurement> measurements) {
+        super(measurements);
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @param measurements  GNSS measurements to estimate position and
+     *                      velocity from.
+     * @param listener      listener to be notified of events such as when
+     *                      estimation starts, ends or its progress
+     *                      significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements or quality
+     *                                  scores are provided.
+     */
+    public PROSACRobustGNSSPositionAndVelocityEstimator(
+            final double[] qualityScores,
+            final Collection<GNSSMeasurement> measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(measurements, listener);
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Gets threshold on pseudo-range residuals to determine whether a
+     * measurement is an inlier or not, expressed in meters (m).
+     *
+     * @return threshold to determine whether measurements are inliers or not.
+     */
+    public double getThreshold() {
+        return mThreshold;
+    }
+
+    /**
+     * Sets threshold on pseudo-range residuals to determine whether a
+     * measurement is an inlier or not, expressed in meters (m).
+     *
+     * @param threshold threshold to determine whether measurements are inliers
+     *                  or not.
+     * @throws IllegalArgumentException if provided value is equal or less than
+     *                                  zero.
+     * @throws LockedException          if this estimator is locked.
+     */
+    public void setThreshold(final double threshold) throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        if (threshold <= MIN_THRESHOLD) {
+            throw new IllegalArgumentException();
+        }
+        mThreshold = threshold;
+    }
+
+    /**
+     * Indicates whether inliers must be computed and kept.
+     *
+     * @return true if inliers must be computed and kept, false if inliers
+     * only need to be computed but not kept.
+     */
+    public boolean isComputeAndKeepInliersEnabled() {
+        return mComputeAndKeepInliers;
+    }
+
+    /**
+     * Specifies whether inliers must be computed and kept.
+     *
+     * @param computeAndKeepInliers true if inliers must be computed and kept,
+     *                              false if inliers only need to be computed
+     *                              but not kept.
+     * @throws LockedException if this estimator is locked.
+     */
+    public void setComputeAndKeepInliersEnabled(final boolean computeAndKeepInliers)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        mComputeAndKeepInliers = computeAndKeepInliers;
+    }
+
+    /**
+     * Indicates whether residuals must be computed and kept.
+     *
+     * @return true if residuals must be computed and kept, false if residuals
+     * only need to be computed but not kept.
+     */
+    public boolean isComputeAndKeepResiduals() {
+        return mComputeAndKeepResiduals;
+    }
+
+    /**
+     * Specifies whether residuals must be computed and kept.
+     *
+     * @param computeAndKeepResiduals true if residuals must be computed and
+     *                                kept, false if residuals only need to be
+     *                                computed but not kept.
+     * @throws LockedException if this estimator is locked.
+     */
+    public void setComputeAndKeepResidualsEnabled(final boolean computeAndKeepResiduals)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        mComputeAndKeepResiduals = computeAndKeepResiduals;
+    }
+
+    /**
+     * Returns quality scores corresponding to each measurement.
+     * The larger the score value the better the quality of the measurement.
+     *
+     * @return quality scores corresponding to each measurement.
+     */
+    @Override
+    public double[] getQualityScores() {
+        return mQualityScores;
+    }
+
+    /**
+     * Sets quality scores corresponding to each measurement.
+     * The larger the score value the better the quality of the measurement.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @throws IllegalArgumentException if provided quality scores length is
+     *                                  smaller than minimum required
+     *                                  measurements (i.e. 4).
+     * @throws LockedException          if this estimator is locked.
+     */
+    @Override
+    public void setQualityScores(final double[] qualityScores)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        internalSetQualityScores(qualityScores);
+    }
+
+    /**
+     * Indicates whether this estimator is ready to start the estimation.
+     *
+     * @return true if estimator is ready, false otherwise.
+     */
+    @Override
+    public boolean isReady() {
+        return super.isReady() && mQualityScores != null
+                && mQualityScores.length == getNumberOfMeasurements();
+    }
+
+    /**
+     * Robustly estimates position, velocity, clock offset and clock drift.
+     *
+     * @return estimated position, velocity, clock offset and clock drift.
+     * @throws LockedException          if this estimator is locked.
+     * @throws NotReadyException        if this estimator is not ready.
+     * @throws RobustEstimatorException if estimation fails for any reason
+     *                                  (i.e. numerical instability, no
+     *                                  solution available, etc).
+     */
+    @Override
+    public GNSSEstimation estimate() throws LockedException, NotReadyException,
+            RobustEstimatorException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        if (!isReady()) {
+            throw new NotReadyException();
+        }
+
+        final PROSACRobustEstimator<GNSSEstimation> innerEstimator =
+                new PROSACRobustEstimator<>(
+                        new PROSACRobustEstimatorListener<GNSSEstimation>() {
+                            @Override
+                            public double getThreshold() {
+                                return mThreshold;
+                            }
+
+                            @Override
+                            public double[] getQualityScores() {
+                                return mQualityScores;
+                            }
+
+                            @Override
+                            public int getTotalSamples() {
+                                return getNumberOfMeasurements();
+                            }
+
+                            @Override
+                            public int getSubsetSize() {
+                                return MIN_MEASUREMENTS;
+                            }
+
+                            @Override
+                            public void estimatePreliminarSolutions(
+                                    final int[] samplesIndices,
+                                    final List<GNSSEstimation> solutions) {
+                                solvePreliminarySolutions(samplesIndices, solutions);
+                            }
+
+                            @Override
+                            public double computeResidual(
+                                    final GNSSEstimation currentEstimation,
+                                    final int i) {
+                                return PROSACRobustGNSSPositionAndVelocityEstimator.this
+                                        .computeResidual(currentEstimation, i);
+                            }
+
+                            @Override
+                            public boolean isReady() {
+                                return PROSACRobustGNSSPositionAndVelocityEstimator.this
+                                        .isReady();
+                            }
+
+                            @Override
+                            public void onEstimateStart(
+                                    final RobustEstimator<GNSSEstimation> estimator) {
+                            }
+
+                            @Override
+                            public void onEstimateEnd(
+                                    final RobustEstimator<GNSSEstimation> estimator) {
+                            }
+
+                            @Override
+                            public void onEstimateNextIteration(
+                                    final RobustEstimator<GNSSEstimation> estimator,
+                                    final int iteration) {
+                                if (mListener != null) {
+                                    mListener.onEstimateNextIteration(
+                                            PROSACRobustGNSSPositionAndVelocityEstimator.this,
+                                            iteration);
+                                }
+                            }
+
+                            @Override
+                            public void onEstimateProgressChange(
+                                    final RobustEstimator<GNSSEstimation> estimator,
+                                    final float progress) {
+                                if (mListener != null) {
+                                    mListener.onEstimateProgressChange(
+                                            PROSACRobustGNSSPositionAndVelocityEstimator.this,
+                                            progress);
+                                }
+                            }
+                        });
+
+        try {
+            mLocked = true;
+
+            if (mListener != null) {
+                mListener.onEstimateStart(this);
+            }
+
+            mInliersData = null;
+            innerEstimator.setComputeAndKeepInliersEnabled(
+                    mComputeAndKeepInliers || mRefineResult);
+            innerEstimator.setComputeAndKeepResidualsEnabled(
+                    mComputeAndKeepResiduals || mRefineResult);
+            innerEstimator.setConfidence(mConfidence);
+            innerEstimator.setMaxIterations(mMaxIterations);
+            innerEstimator.setProgressDelta(mProgressDelta);
+            final GNSSEstimation result = innerEstimator.estimate();
+            mInliersData = innerEstimator.getInliersData();
+            final GNSSEstimation refined = attemptRefine(result);
+
+            if (mListener != null) {
+                mListener.onEstimateEnd(this);
+            }
+
+            return refined;
+
+        } catch (final com.irurueta.numerical.LockedException e) {
+            throw new LockedException(e);
+        } catch (final com.irurueta.numerical.NotReadyException e) {
+            throw new NotReadyException(e);
+        } finally {
+            mLocked = false;
+        }
+    }
+
+    /**
+     * Returns method being used for robust estimation.
+     *
+     * @return method being used for robust estimation.
+     */
+    @Override
+    public RobustEstimatorMethod getMethod() {
+        return RobustEstimatorMethod.PROSAC;
+    }
+
+    /**
+     * Sets quality scores corresponding to each measurement.
+     * This method is used internally and does not check whether instance is
+     * locked or not.
+     *
+     * @param qualityScores quality scores to be set.
+     * @throws IllegalArgumentException if provided quality scores length is
+     *                                  smaller than 4 measurements.
+     */
+    private void internalSetQualityScores(final double[] qualityScores) {
+        if (qualityScores == null || qualityScores.length < MIN_MEASUREMENTS) {
+            throw new IllegalArgumentException();
+        }
+        mQualityScores = qualityScores;
+    }
+}
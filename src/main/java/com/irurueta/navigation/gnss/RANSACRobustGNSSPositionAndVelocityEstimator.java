@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.numerical.robust.RANSACRobustEstimator;
+import com.irurueta.numerical.robust.RANSACRobustEstimatorListener;
+import com.irurueta.numerical.robust.RobustEstimator;
+import com.irurueta.numerical.robust.RobustEstimatorException;
+import com.irurueta.numerical.robust.RobustEstimatorMethod;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Robustly estimates GNSS position and velocity using RANSAC algorithm.
+ */
+@SuppressWarnings("DuplicatedCode")
+public class RANSACRobustGNSSPositionAndVelocityEstimator extends
+        RobustGNSSPositionAndVelocityEstimator {
+
+    /**
+     * Constant defining default threshold on pseudo-range residuals to
+     * determine whether a measurement is an inlier or not, expressed in
+     * meters (m).
+     */
+    public static final double DEFAULT_THRESHOLD = 20.0;
+
+    /**
+     * Minimum value that can be set as threshold.
+     * Threshold must be strictly greater than 0.0.
+     */
+    public static final double MIN_THRESHOLD = 0.0;
+
+    /**
+     * Indicates that by default inliers will only be computed but not kept.
+     */
+    public static final boolean DEFAULT_COMPUTE_AND_KEEP_INLIERS = false;
+
+    /**
+     * Indicates that by default residuals will only be computed but not kept.
+     */
+    public static final boolean DEFAULT_COMPUTE_AND_KEEP_RESIDUALS = false;
+
+    /**
+     * Threshold on pseudo-range residuals to determine whether a measurement
+     * is an inlier or not, expressed in meters (m).
+     */
+    private double mThreshold = DEFAULT_THRESHOLD;
+
+    /**
+     * Indicates whether inliers must be computed and kept.
+     */
+    private boolean mComputeAndKeepInliers = DEFAULT_COMPUTE_AND_KEEP_INLIERS;
+
+    /**
+     * Indicates whether residuals must be computed and kept.
+     */
+    private boolean mComputeAndKeepResiduals = DEFAULT_COMPUTE_AND_KEEP_RESIDUALS;
+
+    /**
+     * Constructor.
+     */
+    public RANSACRobustGNSSPositionAndVelocityEstimator() {
+        super();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param listener listener to be notified of events such as when
+     *                 estimation starts, ends or its progress significantly
+     *                 changes.
+     */
+    public RANSACRobustGNSSPositionAndVelocityEstimator(
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public RANSACRobustGNSSPositionAndVelocityEstimator(
+            final GNSSMeasurementBatch measurements) {
+        super(measurements);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @param listener     listener to be notified of events such as when
+     *                     estimation starts, ends or its progress
+     *                     significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public RANSACRobustGNSSPositionAndVelocityEstimator(
+            final GNSSMeasurementBatch measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(measurements, listener);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public RANSACRobustGNSSPositionAndVelocityEstimator(
+            final Collection<GNSSMeasurement> measurements) {
+        super(measurements);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @param listener     listener to be notified of events such as when
+     *                     estimation starts, ends or its progress
+     *                     significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public RANSACRobustGNSSPositionAndVelocityEstimator(
+            final Collection<GNSSMeasurement> measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        super(measurements, listener);
+    }
+
+    /**
+     * Gets threshold on pseudo-range residuals to determine whether a
+     * measurement is an inlier or not, expressed in meters (m).
+     *
+     * @return threshold to determine whether measurements are inliers or not.
+     */
+    public double getThreshold() {
+        return mThreshold;
+    }
+
+    /**
+     * Sets threshold on pseudo-range residuals to determine whether a
+     * measurement is an inlier or not, expressed in meters (m).
+     *
+     * @param threshold threshold to determine whether measurements are inliers
+     *                  or not.
+     * @throws IllegalArgumentException if provided value is equal or less than
+     *                                  zero.
+     * @throws LockedException          if this estimator is locked.
+     */
+    public void setThreshold(final double threshold) throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        if (threshold <= MIN_THRESHOLD) {
+            throw new IllegalArgumentException();
+        }
+        mThreshold = threshold;
+    }
+
+    /**
+     * Indicates whether inliers must be computed and kept.
+     *
+     * @return true if inliers must be computed and kept, false if inliers
+     * only need to be computed but not kept.
+     */
+    public boolean isComputeAndKeepInliersEnabled() {
+        return mComputeAndKeepInliers;
+    }
+
+    /**
+     * Specifies whether inliers must be computed and kept.
+     *
+     * @param computeAndKeepInliers true if inliers must be computed and kept,
+     *                              false if inliers only need to be computed
+     *                              but not kept.
+     * @throws LockedException if this estimator is locked.
+     */
+    public void setComputeAndKeepInliersEnabled(final boolean computeAndKeepInliers)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        mComputeAndKeepInliers = computeAndKeepInliers;
+    }
+
+    /**
+     * Indicates whether residuals must be computed and kept.
+     *
+     * @return true if residuals must be computed and kept, false if residuals
+     * only need to be computed but not kept.
+     */
+    public boolean isComputeAndKeepResiduals() {
+        return mComputeAndKeepResiduals;
+    }
+
+    /**
+     * Specifies whether residuals must be computed and kept.
+     *
+     * @param computeAndKeepResiduals true if residuals must be computed and
+     *                                kept, false if residuals only need to be
+     *                                computed but not kept.
+     * @throws LockedException if this estimator is locked.
+     */
+    public void setComputeAndKeepResidualsEnabled(final boolean computeAndKeepResiduals)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        mComputeAndKeepResiduals = computeAndKeepResiduals;
+    }
+
+    /**
+     * Robustly estimates position, velocity, clock offset and clock drift.
+     *
+     * @return estimated position, velocity, clock offset and clock drift.
+     * @throws LockedException          if this estimator is locked.
+     * @throws NotReadyException        if this estimator is not ready.
+     * @throws RobustEstimatorException if estimation fails for any reason
+     *                                  (i.e. numerical instability, no
+     *                                  solution available, etc).
+     */
+    @Override
+    public GNSSEstimation estimate() throws LockedException, NotReadyException,
+            RobustEstimatorException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        if (!isReady()) {
+            throw new NotReadyException();
+        }
+
+        final RANSACRobustEstimator<GNSSEstimation> innerEstimator =
+                new RANSACRobustEstimator<>(
+                        new RANSACRobustEstimatorListener<GNSSEstimation>() {
+                            @Override
+                            public double getThreshold() {
+                                return mThreshold;
+                            }
+
+                            @Override
+                            public int getTotalSamples() {
+                                return getNumberOfMeasurements();
+                            }
+
+                            @Override
+                            public int getSubsetSize() {
+                                return MIN_MEASUREMENTS;
+                            }
+
+                            @Override
+                            public void estimatePreliminarSolutions(
+                                    final int[] samplesIndices,
+                                    final List<GNSSEstimation> solutions) {
+                                solvePreliminarySolutions(samplesIndices, solutions);
+                            }
+
+                            @Override
+                            public double computeResidual(
+                                    final GNSSEstimation currentEstimation,
+                                    final int i) {
+                                return RANSACRobustGNSSPositionAndVelocityEstimator.this
+                                        .computeResidual(currentEstimation, i);
+                            }
+
+                            @Override
+                            public boolean isReady() {
+                                return RANSACRobustGNSSPositionAndVelocityEstimator.this
+                                        .isReady();
+                            }
+
+                            @Override
+                            public void onEstimateStart(
+                                    final RobustEstimator<GNSSEstimation> estimator) {
+                            }
+
+                            @Override
+                            public void onEstimateEnd(
+                                    final RobustEstimator<GNSSEstimation> estimator) {
+                            }
+
+                            @Override
+                            public void onEstimateNextIteration(
+                                    final RobustEstimator<GNSSEstimation> estimator,
+                                    final int iteration) {
+                                if (mListener != null) {
+                                    mListener.onEstimateNextIteration(
+                                            RANSACRobustGNSSPositionAndVelocityEstimator.this,
+                                            iteration);
+                                }
+                            }
+
+                            @Override
+                            public void onEstimateProgressChange(
+                                    final RobustEstimator<GNSSEstimation> estimator,
+                                    final float progress) {
+                                if (mListener != null) {
+                                    mListener.onEstimateProgressChange(
+                                            RANSACRobustGNSSPositionAndVelocityEstimator.this,
+                                            progress);
+                                }
+                            }
+                        });
+
+        try {
+            mLocked = true;
+
+            if (mListener != null) {
+                mListener.onEstimateStart(this);
+            }
+
+            mInliersData = null;
+            innerEstimator.setComputeAndKeepInliersEnabled(
+                    mComputeAndKeepInliers || mRefineResult);
+            innerEstimator.setComputeAndKeepResidualsEnabled(
+                    mComputeAndKeepResiduals || mRefineResult);
+            innerEstimator.setConfidence(mConfidence);
+            innerEstimator.setMaxIterations(mMaxIterations);
+            innerEstimator.setProgressDelta(mProgressDelta);
+            final GNSSEstimation result = innerEstimator.estimate();
+            mInliersData = innerEstimator.getInliersData();
+            final GNSSEstimation refined = attemptRefine(result);
+
+            if (mListener != null) {
+                mListener.onEstimateEnd(this);
+            }
+
+            return refined;
+
+        } catch (final com.irurueta.numerical.LockedException e) {
+            throw new LockedException(e);
+        } catch (final com.irurueta.numerical.NotReadyException e) {
+            throw new NotReadyException(e);
+        } finally {
+            mLocked = false;
+        }
+    }
+
+    /**
+     * Returns method being used for robust estimation.
+     *
+     * @return method being used for robust estimation.
+     */
+    @Override
+    public RobustEstimatorMethod getMethod() {
+        return RobustEstimatorMethod.RANSAC;
+    }
+}
@@ -0,0 +1,777 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.numerical.robust.InliersData;
+import com.irurueta.numerical.robust.RobustEstimatorException;
+import com.irurueta.numerical.robust.RobustEstimatorMethod;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Base class for robust GNSS position and velocity estimators.
+ * Robust estimators are able to discard outlier pseudo-ranges, such as those
+ * produced by multipath in urban canyons, by solving many minimal subsets of 4
+ * measurements in closed form using {@link GNSSBancroftSolver} and keeping the
+ * solution best supported by the remaining measurements.
+ * Once a solution is found, it is refined by default using
+ * {@link GNSSLeastSquaresPositionAndVelocityEstimator} and only the inlier
+ * measurements, which also provides user velocity and receiver clock drift.
+ * When result is not refined, estimated velocity and clock drift are zero.
+ */
+public abstract class RobustGNSSPositionAndVelocityEstimator {
+
+    /**
+     * Default robust estimator method when none is provided.
+     */
+    public static final RobustEstimatorMethod DEFAULT_ROBUST_METHOD =
+            RobustEstimatorMethod.PROMedS;
+
+    /**
+     * Indicates that result is refined by default using inlier measurements.
+     */
+    public static final boolean DEFAULT_REFINE_RESULT = true;
+
+    /**
+     * Default amount of progress variation before notifying a change in
+     * estimation progress. By default this is set to 5%.
+     */
+    public static final float DEFAULT_PROGRESS_DELTA = 0.05f;
+
+    /**
+     * Minimum allowed value for progress delta.
+     */
+    public static final float MIN_PROGRESS_DELTA = 0.0f;
+
+    /**
+     * Maximum allowed value for progress delta.
+     */
+    public static final float MAX_PROGRESS_DELTA = 1.0f;
+
+    /**
+     * Constant defining default confidence of the estimated result, which is
+     * 99%. This means that with a probability of 99% estimation will be
+     * accurate because chosen subsamples will be inliers.
+     */
+    public static final double DEFAULT_CONFIDENCE = 0.99;
+
+    /**
+     * Default maximum allowed number of iterations.
+     */
+    public static final int DEFAULT_MAX_ITERATIONS = 5000;
+
+    /**
+     * Minimum allowed confidence value.
+     */
+    public static final double MIN_CONFIDENCE = 0.0;
+
+    /**
+     * Maximum allowed confidence value.
+     */
+    public static final double MAX_CONFIDENCE = 1.0;
+
+    /**
+     * Minimum allowed number of iterations.
+     */
+    public static final int MIN_ITERATIONS = 1;
+
+    /**
+     * Number of measurements being picked on each minimal subset.
+     */
+    public static final int MIN_MEASUREMENTS = GNSSBancroftSolver.MIN_MEASUREMENTS;
+
+    /**
+     * Speed of light in the vacuum expressed in meters per second (m/s).
+     */
+    public static final double SPEED_OF_LIGHT = GNSSBancroftSolver.SPEED_OF_LIGHT;
+
+    /**
+     * Earth rotation rate expressed in radians per second (rad/s).
+     */
+    public static final double EARTH_ROTATION_RATE =
+            GNSSBancroftSolver.EARTH_ROTATION_RATE;
+
+    /**
+     * GNSS measurements to estimate position and velocity from.
+     */
+    protected GNSSMeasurementBatch mMeasurements;
+
+    /**
+     * Listener to be notified of events such as when estimation starts, ends
+     * or its progress significantly changes.
+     */
+    protected RobustGNSSPositionAndVelocityEstimatorListener mListener;
+
+    /**
+     * Indicates if this instance is locked because estimation is being
+     * computed.
+     */
+    protected boolean mLocked;
+
+    /**
+     * Amount of progress variation before notifying a progress change during
+     * estimation.
+     */
+    protected float mProgressDelta = DEFAULT_PROGRESS_DELTA;
+
+    /**
+     * Amount of confidence expressed as a value between 0.0 and 1.0 (which is
+     * equivalent to 100%). The amount of confidence indicates the probability
+     * that the estimated result is correct. Usually this value will be close
+     * to 1.0, but not exactly 1.0.
+     */
+    protected double mConfidence = DEFAULT_CONFIDENCE;
+
+    /**
+     * Maximum allowed number of iterations. When the maximum number of
+     * iterations is exceeded, result will not be available, however an
+     * approximate result will be available for retrieval.
+     */
+    protected int mMaxIterations = DEFAULT_MAX_ITERATIONS;
+
+    /**
+     * Data related to inliers found after estimation.
+     */
+    protected InliersData mInliersData;
+
+    /**
+     * Indicates whether result must be refined using
+     * {@link GNSSLeastSquaresPositionAndVelocityEstimator} and found inliers.
+     */
+    protected boolean mRefineResult = DEFAULT_REFINE_RESULT;
+
+    /**
+     * Estimated position, velocity, clock offset and clock drift.
+     */
+    protected GNSSEstimation mEstimation;
+
+    /**
+     * Solver of minimal subsets of measurements.
+     */
+    private final GNSSBancroftSolver mMinimalSolver = new GNSSBancroftSolver();
+
+    /**
+     * Least squares estimator used to refine result using found inliers.
+     */
+    private final GNSSLeastSquaresPositionAndVelocityEstimator mRefiner =
+            new GNSSLeastSquaresPositionAndVelocityEstimator();
+
+    /**
+     * Constructor.
+     */
+    public RobustGNSSPositionAndVelocityEstimator() {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param listener listener to be notified of events such as when
+     *                 estimation starts, ends or its progress significantly
+     *                 changes.
+     */
+    public RobustGNSSPositionAndVelocityEstimator(
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public RobustGNSSPositionAndVelocityEstimator(
+            final GNSSMeasurementBatch measurements) {
+        internalSetMeasurements(measurements);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @param listener     listener to be notified of events such as when
+     *                     estimation starts, ends or its progress
+     *                     significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public RobustGNSSPositionAndVelocityEstimator(
+            final GNSSMeasurementBatch measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        this(measurements);
+        mListener = listener;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public RobustGNSSPositionAndVelocityEstimator(
+            final Collection<GNSSMeasurement> measurements) {
+        internalSetMeasurements(measurements);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @param listener     listener to be notified of events such as when
+     *                     estimation starts, ends or its progress
+     *                     significantly changes.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public RobustGNSSPositionAndVelocityEstimator(
+            final Collection<GNSSMeasurement> measurements,
+            final RobustGNSSPositionAndVelocityEstimatorListener listener) {
+        this(measurements);
+        mListener = listener;
+    }
+
+    /**
+     * Gets GNSS measurements to estimate position and velocity from.
+     *
+     * @return GNSS measurements.
+     */
+    public GNSSMeasurementBatch getMeasurementBatch() {
+        return mMeasurements;
+    }
+
+    /**
+     * Sets GNSS measurements to estimate position and velocity from.
+     * Provided batch is kept by reference and must not be modified while
+     * estimation is in progress.
+     *
+     * @param measurements GNSS measurements.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws LockedException          if this estimator is locked.
+     */
+    public void setMeasurementBatch(final GNSSMeasurementBatch measurements)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        internalSetMeasurements(measurements);
+    }
+
+    /**
+     * Sets GNSS measurements to estimate position and velocity from.
+     *
+     * @param measurements GNSS measurements.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     * @throws LockedException          if this estimator is locked.
+     */
+    public void setMeasurements(final Collection<GNSSMeasurement> measurements)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        internalSetMeasurements(measurements);
+    }
+
+    /**
+     * Gets listener to be notified of events such as when estimation starts,
+     * ends or its progress significantly changes.
+     *
+     * @return listener to be notified of events.
+     */
+    public RobustGNSSPositionAndVelocityEstimatorListener getListener() {
+        return mListener;
+    }
+
+    /**
+     * Sets listener to be notified of events such as when estimation starts,
+     * ends or its progress significantly changes.
+     *
+     * @param listener listener to be notified of events.
+     * @throws LockedException if this estimator is locked.
+     */
+    public void setListener(
+            final RobustGNSSPositionAndVelocityEstimatorListener listener)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        mListener = listener;
+    }
+
+    /**
+     * Indicates whether this estimator is locked because an estimation is
+     * being computed.
+     *
+     * @return true if locked, false otherwise.
+     */
+    public boolean isLocked() {
+        return mLocked;
+    }
+
+    /**
+     * Returns amount of progress variation before notifying a progress change
+     * during estimation.
+     *
+     * @return amount of progress variation before notifying a progress change
+     * during estimation.
+     */
+    public float getProgressDelta() {
+        return mProgressDelta;
+    }
+
+    /**
+     * Sets amount of progress variation before notifying a progress change
+     * during estimation.
+     *
+     * @param progressDelta amount of progress variation before notifying a
+     *                      progress change during estimation.
+     * @throws IllegalArgumentException if progress delta is less than zero or
+     *                                  greater than 1.
+     * @throws LockedException          if this estimator is locked.
+     */
+    public void setProgressDelta(final float progressDelta)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        if (progressDelta < MIN_PROGRESS_DELTA ||
+                progressDelta > MAX_PROGRESS_DELTA) {
+            throw new IllegalArgumentException();
+        }
+        mProgressDelta = progressDelta;
+    }
+
+    /**
+     * Returns amount of confidence expressed as a value between 0.0 and 1.0
+     * (which is equivalent to 100%). The amount of confidence indicates the
+     * probability that the estimated result is correct. Usually this value
+     * will be close to 1.0, but not exactly 1.0.
+     *
+     * @return amount of confidence as a value between 0.0 and 1.0.
+     */
+    public double getConfidence() {
+        return mConfidence;
+    }
+
+    /**
+     * Sets amount of confidence expressed as a value between 0.0 and 1.0
+     * (which is equivalent to 100%). The amount of confidence indicates the
+     * probability that the estimated result is correct. Usually this value
+     * will be close to 1.0, but not exactly 1.0.
+     *
+     * @param confidence confidence to be set as a value between 0.0 and 1.0.
+     * @throws IllegalArgumentException if provided value is not between 0.0
+     *                                  and 1.0.
+     * @throws LockedException          if this estimator is locked.
+     */
+    public void setConfidence(final double confidence) throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        if (confidence < MIN_CONFIDENCE || confidence > MAX_CONFIDENCE) {
+            throw new IllegalArgumentException();
+        }
+        mConfidence = confidence;
+    }
+
+    /**
+     * Returns maximum allowed number of iterations. If maximum allowed number
+     * of iterations is achieved without converging to a result when calling
+     * estimate(), a RobustEstimatorException will be raised.
+     *
+     * @return maximum allowed number of iterations.
+     */
+    public int getMaxIterations() {
+        return mMaxIterations;
+    }
+
+    /**
+     * Sets maximum allowed number of iterations. When the maximum number of
+     * iterations is exceeded, result will not be available, however an
+     * approximate result will be available for retrieval.
+     *
+     * @param maxIterations maximum allowed number of iterations to be set.
+     * @throws IllegalArgumentException if provided value is less than 1.
+     * @throws LockedException          if this estimator is locked.
+     */
+    public void setMaxIterations(final int maxIterations)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        if (maxIterations < MIN_ITERATIONS) {
+            throw new IllegalArgumentException();
+        }
+        mMaxIterations = maxIterations;
+    }
+
+    /**
+     * Gets data related to inliers found after estimation.
+     *
+     * @return data related to inliers found after estimation.
+     */
+    public InliersData getInliersData() {
+        return mInliersData;
+    }
+
+    /**
+     * Indicates whether result must be refined using
+     * {@link GNSSLeastSquaresPositionAndVelocityEstimator} and found inliers.
+     *
+     * @return true if result must be refined, false otherwise.
+     */
+    public boolean isResultRefined() {
+        return mRefineResult;
+    }
+
+    /**
+     * Specifies whether result must be refined using
+     * {@link GNSSLeastSquaresPositionAndVelocityEstimator} and found inliers.
+     *
+     * @param refineResult true if result must be refined, false otherwise.
+     * @throws LockedException if this estimator is locked.
+     */
+    public void setResultRefined(final boolean refineResult)
+            throws LockedException {
+        if (isLocked()) {
+            throw new LockedException();
+        }
+        mRefineResult = refineResult;
+    }
+
+    /**
+     * Gets last estimated position, velocity, clock offset and clock drift.
+     *
+     * @return last estimation or null if not available.
+     */
+    public GNSSEstimation getEstimation() {
+        return mEstimation;
+    }
+
+    /**
+     * Returns quality scores corresponding to each measurement.
+     * The larger the score value the better the quality of the measurement.
+     * This implementation always returns null.
+     * Subclasses using quality scores must implement proper behavior.
+     *
+     * @return quality scores corresponding to each measurement.
+     */
+    public double[] getQualityScores() {
+        return null;
+    }
+
+    /**
+     * Sets quality scores corresponding to each measurement.
+     * The larger the score value the better the quality of the measurement.
+     * This implementation makes no action.
+     * Subclasses using quality scores must implement proper behaviour.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     * @throws IllegalArgumentException if provided quality scores length is
+     *                                  smaller than minimum required
+     *                                  measurements (i.e. 4).
+     * @throws LockedException          if this estimator is locked.
+     */
+    public void setQualityScores(final double[] qualityScores)
+            throws LockedException {
+    }
+
+    /**
+     * Indicates whether this estimator is ready to start the estimation.
+     *
+     * @return true if estimator is ready, false otherwise.
+     */
+    public boolean isReady() {
+        return mMeasurements != null
+                && mMeasurements.getSize() >= MIN_MEASUREMENTS;
+    }
+
+    /**
+     * Robustly estimates position, velocity, clock offset and clock drift.
+     *
+     * @return estimated position, velocity, clock offset and clock drift.
+     * @throws LockedException          if this estimator is locked.
+     * @throws NotReadyException        if this estimator is not ready.
+     * @throws RobustEstimatorException if estimation fails for any reason
+     *                                  (i.e. numerical instability, no
+     *                                  solution available, etc).
+     */
+    public abstract GNSSEstimation estimate() throws LockedException,
+            NotReadyException, RobustEstimatorException;
+
+    /**
+     * Returns method being used for robust estimation.
+     *
+     * @return method being used for robust estimation.
+     */
+    public abstract RobustEstimatorMethod getMethod();
+
+    /**
+     * Creates a robust GNSS position and velocity estimator using provided
+     * method.
+     *
+     * @param method robust estimator method.
+     * @return a new robust GNSS position and velocity estimator.
+     */
+    public static RobustGNSSPositionAndVelocityEstimator create(
+            final RobustEstimatorMethod method) {
+        switch (method) {
+            case RANSAC:
+                return new RANSACRobustGNSSPositionAndVelocityEstimator();
+            case LMedS:
+                return new LMedSRobustGNSSPositionAndVelocityEstimator();
+            case MSAC:
+                return new MSACRobustGNSSPositionAndVelocityEstimator();
+            case PROSAC:
+                return new PROSACRobustGNSSPositionAndVelocityEstimator();
+            case PROMedS:
+            default:
+                return new PROMedSRobustGNSSPositionAndVelocityEstimator();
+        }
+    }
+
+    /**
+     * Creates a robust GNSS position and velocity estimator using provided
+     * measurements and method.
+     *
+     * @param measurements GNSS measurements to estimate position and velocity
+     *                     from.
+     * @param method       robust estimator method.
+     * @return a new robust GNSS position and velocity estimator.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    public static RobustGNSSPositionAndVelocityEstimator create(
+            final GNSSMeasurementBatch measurements,
+            final RobustEstimatorMethod method) {
+        switch (method) {
+            case RANSAC:
+                return new RANSACRobustGNSSPositionAndVelocityEstimator(
+                        measurements);
+            case LMedS:
+                return new LMedSRobustGNSSPositionAndVelocityEstimator(
+                        measurements);
+            case MSAC:
+                return new MSACRobustGNSSPositionAndVelocityEstimator(
+                        measurements);
+            case PROSAC:
+                return new PROSACRobustGNSSPositionAndVelocityEstimator(
+                        measurements);
+            case PROMedS:
+            default:
+                return new PROMedSRobustGNSSPositionAndVelocityEstimator(
+                        measurements);
+        }
+    }
+
+    /**
+     * Creates a robust GNSS position and velocity estimator using provided
+     * measurements, quality scores and method.
+     *
+     * @param qualityScores quality scores corresponding to each measurement.
+     *                      Only used by PROSAC and PROMedS.
+     * @param measurements  GNSS measurements to estimate position and
+     *                      velocity from.
+     * @param method        robust estimator method.
+     * @return a new robust GNSS position and velocity estimator.
+     * @throws IllegalArgumentException if less than 4 measurements or quality
+     *                                  scores are provided.
+     */
+    public static RobustGNSSPositionAndVelocityEstimator create(
+            final double[] qualityScores,
+            final GNSSMeasurementBatch measurements,
+            final RobustEstimatorMethod method) {
+        switch (method) {
+            case RANSAC:
+                return new RANSACRobustGNSSPositionAndVelocityEstimator(
+                        measurements);
+            case LMedS:
+                return new LMedSRobustGNSSPositionAndVelocityEstimator(
+                        measurements);
+            case MSAC:
+                return new MSACRobustGNSSPositionAndVelocityEstimator(
+                        measurements);
+            case PROSAC:
+                return new PROSACRobustGNSSPositionAndVelocityEstimator(
+                        qualityScores, measurements);
+            case PROMedS:
+            default:
+                return new PROMedSRobustGNSSPositionAndVelocityEstimator(
+                        qualityScores, measurements);
+        }
+    }
+
+    /**
+     * Creates a robust GNSS position and velocity estimator using default
+     * method.
+     *
+     * @return a new robust GNSS position and velocity estimator.
+     */
+    public static RobustGNSSPositionAndVelocityEstimator create() {
+        return create(DEFAULT_ROBUST_METHOD);
+    }
+
+    /**
+     * Gets number of provided measurements.
+     *
+     * @return number of provided measurements.
+     */
+    protected int getNumberOfMeasurements() {
+        return mMeasurements.getSize();
+    }
+
+    /**
+     * Solves a preliminary solution for a minimal subset of measurements
+     * picked by a robust estimator.
+     *
+     * @param samplesIndices indices of measurements picked by the robust
+     *                       estimator.
+     * @param solutions      list where estimated preliminary solution will be
+     *                       stored.
+     */
+    protected void solvePreliminarySolutions(final int[] samplesIndices,
+                                             final List<GNSSEstimation> solutions) {
+        try {
+            final GNSSEstimation solution = new GNSSEstimation();
+            mMinimalSolver.solve(mMeasurements, samplesIndices, solution);
+            solutions.add(solution);
+        } catch (final GNSSException ignore) {
+            // degenerate geometry, so no solution is added
+        }
+    }
+
+    /**
+     * Computes absolute pseudo-range residual of a measurement for provided
+     * solution, taking into account Earth rotation during signal transit
+     * time.
+     *
+     * @param solution solution to be evaluated.
+     * @param i        position of measurement.
+     * @return absolute pseudo-range residual expressed in meters (m).
+     */
+    protected double computeResidual(final GNSSEstimation solution, final int i) {
+        final double x = solution.getX();
+        final double y = solution.getY();
+        final double z = solution.getZ();
+
+        final double satX = mMeasurements.getXs()[i];
+        final double satY = mMeasurements.getYs()[i];
+        final double satZ = mMeasurements.getZs()[i];
+
+        double diffX = satX - x;
+        double diffY = satY - y;
+        final double diffZ = satZ - z;
+        final double approxRange = Math.sqrt(diffX * diffX + diffY * diffY
+                + diffZ * diffZ);
+
+        // Calculate frame rotation during signal transit time using (8.36)
+        final double ceiValue = EARTH_ROTATION_RATE * approxRange / SPEED_OF_LIGHT;
+        diffX = satX + ceiValue * satY - x;
+        diffY = -ceiValue * satX + satY - y;
+        final double range = Math.sqrt(diffX * diffX + diffY * diffY
+                + diffZ * diffZ);
+
+        return Math.abs(mMeasurements.getPseudoRanges()[i]
+                - (range + solution.getClockOffset()));
+    }
+
+    /**
+     * Refines provided solution using
+     * {@link GNSSLeastSquaresPositionAndVelocityEstimator} and found inliers,
+     * if refinement is requested and enough inliers are available.
+     *
+     * @param solution solution to be refined.
+     * @return refined solution or provided one if refinement was not
+     * requested or failed.
+     */
+    protected GNSSEstimation attemptRefine(final GNSSEstimation solution) {
+        if (mRefineResult && mInliersData != null
+                && mInliersData.getNumInliers() >= MIN_MEASUREMENTS) {
+            final BitSet inliers = mInliersData.getInliers();
+            final int n = mMeasurements.getSize();
+            final GNSSMeasurementBatch inlierMeasurements =
+                    new GNSSMeasurementBatch(mInliersData.getNumInliers());
+            final GNSSMeasurement measurement = new GNSSMeasurement();
+            for (int i = 0; i < n; i++) {
+                if (inliers.get(i)) {
+                    mMeasurements.getMeasurement(i, measurement);
+                    inlierMeasurements.add(measurement);
+                }
+            }
+
+            try {
+                mRefiner.setMeasurementBatch(inlierMeasurements);
+                mRefiner.setPriorPositionAndVelocityFromEstimation(solution);
+                final GNSSEstimation refined = new GNSSEstimation();
+                mRefiner.estimate(refined);
+
+                // Earth rotation correction is linearized around the prior,
+                // which might be far from the refined solution when the
+                // solution of a minimal subset is inaccurate
+                mRefiner.setPriorPositionAndVelocityFromEstimation(refined);
+                mRefiner.estimate(refined);
+                mEstimation = refined;
+            } catch (final Exception e) {
+                // refinement failed, so we return input value
+                mEstimation = solution;
+            }
+        } else {
+            mEstimation = solution;
+        }
+
+        return mEstimation;
+    }
+
+    /**
+     * Internally sets GNSS measurements.
+     *
+     * @param measurements GNSS measurements.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    private void internalSetMeasurements(final GNSSMeasurementBatch measurements) {
+        if (measurements == null || measurements.getSize() < MIN_MEASUREMENTS) {
+            throw new IllegalArgumentException();
+        }
+        mMeasurements = measurements;
+    }
+
+    /**
+     * Internally sets GNSS measurements.
+     *
+     * @param measurements GNSS measurements.
+     * @throws IllegalArgumentException if less than 4 measurements are
+     *                                  provided.
+     */
+    private void internalSetMeasurements(
+            final Collection<GNSSMeasurement> measurements) {
+        if (measurements == null || measurements.size() < MIN_MEASUREMENTS) {
+            throw new IllegalArgumentException();
+        }
+        mMeasurements = new GNSSMeasurementBatch(measurements);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSBancroftSolverTest {
+
+    private static final double MIN_LATITUDE_DEGREES = -70.0;
+    private static final double MAX_LATITUDE_DEGREES = 70.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_HEIGHT = -50.0;
+    private static final double MAX_HEIGHT = 10000.0;
+
+    private static final double CLOCK_OFFSET = 10000.0;
+
+    private static final double ABSOLUTE_ERROR = 1e-3;
+    private static final double LARGE_ABSOLUTE_ERROR = 1e-1;
+
+    private static final int TIMES = 50;
+
+    @Test
+    public void testSolveNoiseFree() throws GNSSException {
+        final GNSSBancroftSolver solver = new GNSSBancroftSolver();
+        final GNSSEstimation result = new GNSSEstimation();
+
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPositionAndVelocity user = createUser();
+            final GNSSMeasurementBatch measurements = simulate(user, false);
+            if (measurements.getSize() < GNSSBancroftSolver.MIN_MEASUREMENTS) {
+                continue;
+            }
+
+            solver.solve(measurements, result);
+
+            assertEquals(result.getX(), user.getX(), ABSOLUTE_ERROR);
+            assertEquals(result.getY(), user.getY(), ABSOLUTE_ERROR);
+            assertEquals(result.getZ(), user.getZ(), ABSOLUTE_ERROR);
+            assertEquals(result.getClockOffset(), CLOCK_OFFSET, ABSOLUTE_ERROR);
+            assertEquals(result.getVx(), 0.0, 0.0);
+            assertEquals(result.getVy(), 0.0, 0.0);
+            assertEquals(result.getVz(), 0.0, 0.0);
+            assertEquals(result.getClockDrift(), 0.0, 0.0);
+
+            // solve using measurements collection
+            final GNSSEstimation result2 = solver.solve(
+                    measurements.toMeasurements());
+            assertTrue(result.equals(result2, ABSOLUTE_ERROR));
+        }
+    }
+
+    @Test
+    public void testSolveMinimalSubset() throws GNSSException {
+        final GNSSBancroftSolver solver = new GNSSBancroftSolver();
+
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPositionAndVelocity user = createUser();
+            final GNSSMeasurementBatch measurements = simulate(user, false);
+            final int n = measurements.getSize();
+            if (n < GNSSBancroftSolver.MIN_MEASUREMENTS + 1) {
+                continue;
+            }
+
+            // pick last 4 measurements
+            final int[] indices = new int[GNSSBancroftSolver.MIN_MEASUREMENTS];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = n - 1 - i;
+            }
+
+            final GNSSEstimation result = new GNSSEstimation();
+            try {
+                solver.solve(measurements, indices, result);
+            } catch (final GNSSException ignore) {
+                // geometry of minimal set of satellites might be degenerate
+                continue;
+            }
+
+            final double dx = result.getX() - user.getX();
+            final double dy = result.getY() - user.getY();
+            final double dz = result.getZ() - user.getZ();
+            if (Math.sqrt(dx * dx + dy * dy + dz * dz) > LARGE_ABSOLUTE_ERROR) {
+                // poor geometry of minimal subsets amplifies rounding errors
+                continue;
+            }
+            assertEquals(result.getClockOffset(), CLOCK_OFFSET,
+                    LARGE_ABSOLUTE_ERROR);
+            numValid++;
+        }
+
+        assertTrue(numValid > 0);
+
+        // Force IllegalArgumentException
+        try {
+            solver.solve(new GNSSMeasurementBatch(), new int[3],
+                    new GNSSEstimation());
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            solver.solve(new GNSSMeasurementBatch());
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testSolveNoisyMatchesLeastSquares() throws GNSSException,
+            LockedException, NotReadyException {
+        final GNSSBancroftSolver solver = new GNSSBancroftSolver();
+
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPositionAndVelocity user = createUser();
+            final GNSSMeasurementBatch measurements = simulate(user, true);
+            if (measurements.getSize() < GNSSBancroftSolver.MIN_MEASUREMENTS + 2) {
+                continue;
+            }
+
+            final GNSSEstimation result = solver.solve(measurements);
+
+            final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                    new GNSSLeastSquaresPositionAndVelocityEstimator(measurements);
+            estimator.setPriorPositionAndVelocity(user);
+            final GNSSEstimation expected = estimator.estimate();
+
+            // closed form solution minimizes a different cost, but must be
+            // close to the least squares one
+            final double dx = result.getX() - expected.getX();
+            final double dy = result.getY() - expected.getY();
+            final double dz = result.getZ() - expected.getZ();
+            assertTrue(Math.sqrt(dx * dx + dy * dy + dz * dz) < 50.0);
+            assertEquals(result.getClockOffset(), expected.getClockOffset(), 50.0);
+        }
+    }
+
+    private static GNSSMeasurementBatch simulate(
+            final ECEFPositionAndVelocity user, final boolean noisy)
+            throws GNSSException {
+        final List<ECEFPositionAndVelocity> users = new ArrayList<>();
+        users.add(user);
+        return new GNSSMonteCarloSimulator(createConfig(noisy), users, 0.0, 1,
+                new Random().nextLong(), 1).simulate()[0][0];
+    }
+
+    private static ECEFPositionAndVelocity createUser() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final NEDPosition nedPosition = new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                        MAX_LATITUDE_DEGREES)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)),
+                randomizer.nextDouble(MIN_HEIGHT, MAX_HEIGHT));
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                new NEDVelocity(), ecefPosition, ecefVelocity);
+        return new ECEFPositionAndVelocity(ecefPosition, ecefVelocity);
+    }
+
+    private static GNSSConfig createConfig(final boolean noisy) {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(1.0);
+        config.setNumberOfSatellites(30);
+        config.setOrbitalRadiusOfSatellites(2.656175E7);
+        config.setSatellitesInclinationDegrees(55.0);
+        config.setMaskAngleDegrees(10.0);
+        if (noisy) {
+            config.setSISErrorSD(1.0);
+            config.setZenithIonosphereErrorSD(2.0);
+            config.setZenithTroposphereErrorSD(0.2);
+            config.setCodeTrackingErrorSD(1.0);
+            config.setRangeRateTrackingErrorSD(0.02);
+        }
+        config.setInitialReceiverClockOffset(CLOCK_OFFSET);
+        config.setInitialReceiverClockDrift(100.0);
+        return config;
+    }
+}
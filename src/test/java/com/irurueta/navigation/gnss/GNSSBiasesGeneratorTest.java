@@ -32,7 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -120,6 +120,96 @@ public class GNSSBiasesGeneratorTest {
         }
     }
 
+    @Test
+    public void testGenerateBiasesArrays() throws WrongSizeException {
+        final GNSSConfig config = generateConfig();
+        final int numSatellites = config.getNumberOfSatellites();
+
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+
+        final ECEFPosition userPosition = new ECEFPosition(
+                randomizer.nextDouble(MIN_USER_POSITION_VALUE, MAX_USER_POSITION_VALUE),
+                randomizer.nextDouble(MIN_USER_POSITION_VALUE, MAX_USER_POSITION_VALUE),
+                randomizer.nextDouble(MIN_USER_POSITION_VALUE, MAX_USER_POSITION_VALUE));
+
+        final List<ECEFPosition> satellitePositions = new ArrayList<>();
+        final double[] satelliteX = new double[numSatellites];
+        final double[] satelliteY = new double[numSatellites];
+        final double[] satelliteZ = new double[numSatellites];
+        for (int i = 0; i < numSatellites; i++) {
+            final ECEFPosition satellitePosition = new ECEFPosition(
+                    randomizer.nextDouble(MIN_SAT_POSITION_VALUE, MAX_SAT_POSITION_VALUE),
+                    randomizer.nextDouble(MIN_SAT_POSITION_VALUE, MAX_SAT_POSITION_VALUE),
+                    randomizer.nextDouble(MIN_SAT_POSITION_VALUE, MAX_SAT_POSITION_VALUE));
+            satellitePositions.add(satellitePosition);
+            satelliteX[i] = satellitePosition.getX();
+            satelliteY[i] = satellitePosition.getY();
+            satelliteZ[i] = satellitePosition.getZ();
+        }
+
+        final long seed = new Random().nextLong();
+
+        final List<Double> expected = GNSSBiasesGenerator.generateBiases(
+                satellitePositions, userPosition, config, new Random(seed));
+
+        final double[] biases1 = new double[numSatellites];
+        GNSSBiasesGenerator.generateBiases(satelliteX, satelliteY, satelliteZ,
+                userPosition, config, new Random(seed), biases1);
+
+        final double[] biases2 = new double[numSatellites + 1];
+        GNSSBiasesGenerator.generateBiases(satelliteX, satelliteY, satelliteZ,
+                userPosition.getX(), userPosition.getY(), userPosition.getZ(),
+                config, new Random(seed), biases2);
+
+        final Matrix cen = GNSSBiasesGenerator.ecefToNedMatrix(userPosition.getX(),
+                userPosition.getY(), userPosition.getZ());
+        final double[] biases3 = new double[numSatellites];
+        GNSSBiasesGenerator.generateBiases(satelliteX, satelliteY, satelliteZ,
+                userPosition.getX(), userPosition.getY(), userPosition.getZ(),
+                cen, config, new Random(seed), biases3);
+
+        final Random random = new Random(seed);
+        for (int i = 0; i < numSatellites; i++) {
+            final double bias4 = GNSSBiasesGenerator.generateBias(satelliteX[i],
+                    satelliteY[i], satelliteZ[i], userPosition.getX(),
+                    userPosition.getY(), userPosition.getZ(), cen, config, random);
+
+            assertEquals(expected.get(i), biases1[i], 0.0);
+            assertEquals(expected.get(i), biases2[i], 0.0);
+            assertEquals(expected.get(i), biases3[i], 0.0);
+            assertEquals(expected.get(i), bias4, 0.0);
+        }
+
+        // check transformation matrix
+        final NEDPosition userNedPosition = new NEDPosition();
+        final NEDVelocity userNedVelocity = new NEDVelocity();
+        ECEFtoNEDPositionVelocityConverter.convertECEFtoNED(userPosition, new ECEFVelocity(),
+                userNedPosition, userNedVelocity);
+        assertTrue(cen.equals(CoordinateTransformation.ecefToNedMatrix(
+                userNedPosition.getLatitude(), userNedPosition.getLongitude()),
+                ABSOLUTE_ERROR));
+
+        // Force IllegalArgumentException
+        try {
+            GNSSBiasesGenerator.generateBiases(satelliteX, new double[numSatellites + 1],
+                    satelliteZ, userPosition, config, random, biases1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            GNSSBiasesGenerator.generateBiases(satelliteX, satelliteY,
+                    new double[numSatellites + 1], userPosition, config, random, biases1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            GNSSBiasesGenerator.generateBiases(satelliteX, satelliteY, satelliteZ,
+                    userPosition, config, random, new double[numSatellites - 1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
     private static double generateBias(final ECEFPosition satellitePosition,
                                        final ECEFPosition userPosition,
                                        final GNSSConfig config, final Random random)
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSCofactorMatrixTest {
+
+    private static final int MIN_MEASUREMENTS = 6;
+    private static final int MAX_MEASUREMENTS = 12;
+
+    private static final double ABSOLUTE_ERROR = 1e-9;
+    private static final double RELATIVE_ERROR = 1e-9;
+
+    private static final int TIMES = 20;
+
+    @Test
+    public void testInvert() throws GNSSException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final int n = randomizer.nextInt(MIN_MEASUREMENTS, MAX_MEASUREMENTS);
+        final double[] h = createGeometry(randomizer, n);
+
+        final GNSSCofactorMatrix cofactor = new GNSSCofactorMatrix();
+        cofactor.invert(h, null, n);
+
+        // cofactor matrix times normal matrix is the identity
+        final double[] normal = normal(h, null, n);
+        final double[] q = cofactor.getCofactor();
+        final int unknowns = GNSSCofactorMatrix.UNKNOWNS;
+        for (int k = 0; k < unknowns; k++) {
+            for (int l = 0; l < unknowns; l++) {
+                double value = 0.0;
+                for (int m = 0; m < unknowns; m++) {
+                    value += q[k * unknowns + m] * normal[m * unknowns + l];
+                }
+                assertEquals(value, k == l ? 1.0 : 0.0, ABSOLUTE_ERROR);
+            }
+        }
+
+        // using indices produces the same result as using first rows
+        final int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        final GNSSCofactorMatrix cofactor2 = new GNSSCofactorMatrix();
+        cofactor2.invert(h, indices, n);
+        assertArrayEquals(q, cofactor2.getCofactor(), 0.0);
+    }
+
+    @Test
+    public void testLeverageAndDowndate() throws GNSSException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        for (int t = 0; t < TIMES; t++) {
+            final int n = randomizer.nextInt(MIN_MEASUREMENTS, MAX_MEASUREMENTS);
+            final double[] h = createGeometry(randomizer, n);
+            final int removed = randomizer.nextInt(0, n);
+
+            final GNSSCofactorMatrix cofactor = new GNSSCofactorMatrix();
+            cofactor.invert(h, null, n);
+
+            // sum of leverages equals the number of unknowns
+            double sum = 0.0;
+            for (int i = 0; i < n; i++) {
+                final double leverage = cofactor.leverage(h, i);
+                assertTrue(leverage > 0.0);
+                assertTrue(leverage <= 1.0 + ABSOLUTE_ERROR);
+                sum += leverage;
+            }
+            assertEquals(sum, GNSSCofactorMatrix.UNKNOWNS, ABSOLUTE_ERROR);
+
+            final double redundancy = 1.0 - cofactor.leverage(h, removed);
+            cofactor.downdate(redundancy);
+
+            // downdated matrix equals inverse of normal matrix without
+            // removed measurement
+            final int[] indices = new int[n - 1];
+            int pos = 0;
+            for (int i = 0; i < n; i++) {
+                if (i != removed) {
+                    indices[pos++] = i;
+                }
+            }
+            final GNSSCofactorMatrix expected = new GNSSCofactorMatrix();
+            expected.invert(h, indices, n - 1);
+
+            final double[] q = cofactor.getCofactor();
+            final double[] expectedQ = expected.getCofactor();
+            for (int k = 0; k < q.length; k++) {
+                assertEquals(q[k], expectedQ[k], RELATIVE_ERROR
+                        * Math.max(1.0, Math.abs(expectedQ[k])));
+            }
+        }
+    }
+
+    private static double[] createGeometry(final UniformRandomizer randomizer,
+                                           final int n) {
+        final int unknowns = GNSSCofactorMatrix.UNKNOWNS;
+        final double[] h = new double[n * unknowns];
+        for (int i = 0; i < n; i++) {
+            // unit line of sight above the horizon of a user at the north
+            // pole and a unit clock offset term
+            final double azimuth = randomizer.nextDouble(0.0, 2.0 * Math.PI);
+            final double elevation = randomizer.nextDouble(Math.toRadians(10.0),
+                    Math.toRadians(90.0));
+            final int row = i * unknowns;
+            h[row] = -Math.cos(elevation) * Math.cos(azimuth);
+            h[row + 1] = -Math.cos(elevation) * Math.sin(azimuth);
+            h[row + 2] = -Math.sin(elevation);
+            h[row + 3] = 1.0;
+        }
+        return h;
+    }
+
+    private static double[] normal(final double[] h, final int[] indices,
+                                   final int n) {
+        final int unknowns = GNSSCofactorMatrix.UNKNOWNS;
+        final double[] result = new double[unknowns * unknowns];
+        for (int j = 0; j < n; j++) {
+            final int row = (indices != null ? indices[j] : j) * unknowns;
+            for (int k = 0; k < unknowns; k++) {
+                for (int l = 0; l < unknowns; l++) {
+                    result[k * unknowns + l] += h[row + k] * h[row + l];
+                }
+            }
+        }
+        return result;
+    }
+}
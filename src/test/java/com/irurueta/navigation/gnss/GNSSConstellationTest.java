@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSConstellationTest {
+
+    private static final int MIN_SATELLITES = 4;
+    private static final int MAX_SATELLITES = 40;
+
+    private static final double MIN_TIME_SECONDS = 0.0;
+    private static final double MAX_TIME_SECONDS = 86400.0;
+
+    private static final double MIN_ORBITAL_RADIUS = 2.0e7;
+    private static final double MAX_ORBITAL_RADIUS = 3.0e7;
+
+    private static final double MIN_DEGREES = -10.0;
+    private static final double MAX_DEGREES = 60.0;
+
+    private static final double ABSOLUTE_ERROR = 1e-6;
+
+    private static final int TIMES = 100;
+
+    @Test
+    public void testConstants() {
+        assertEquals(GNSSConstellation.EARTH_GRAVITATIONAL_CONSTANT,
+                SatelliteECEFPositionAndVelocityGenerator.EARTH_GRAVITATIONAL_CONSTANT,
+                0.0);
+        assertEquals(GNSSConstellation.EARTH_ROTATION_RATE,
+                SatelliteECEFPositionAndVelocityGenerator.EARTH_ROTATION_RATE,
+                0.0);
+    }
+
+    @Test
+    public void testConstructor() {
+        final GNSSConfig config = createConfig();
+
+        final GNSSConstellation constellation = new GNSSConstellation(config);
+
+        // check
+        assertEquals(constellation.getNumberOfSatellites(),
+                config.getNumberOfSatellites());
+        assertEquals(constellation.getOrbitalRadius(),
+                config.getOrbitalRadiusOfSatellites(), 0.0);
+        assertEquals(constellation.getInclination(),
+                Math.toRadians(config.getSatellitesInclinationDegrees()), 0.0);
+        assertEquals(constellation.getOrbitalAngularRate(),
+                Math.sqrt(GNSSConstellation.EARTH_GRAVITATIONAL_CONSTANT
+                        / Math.pow(config.getOrbitalRadiusOfSatellites(), 3.0)),
+                1e-15);
+        assertEquals(constellation.getConstellationTimingOffset(),
+                config.getConstellationTimingOffset(), 0.0);
+    }
+
+    @Test
+    public void testGenerateSatellitesPositionAndVelocity() {
+        for (int t = 0; t < TIMES; t++) {
+            final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+            final GNSSConfig config = createConfig();
+            final GNSSConstellation constellation = new GNSSConstellation(config);
+            final int numberOfSatellites = config.getNumberOfSatellites();
+
+            final double time = randomizer.nextDouble(MIN_TIME_SECONDS,
+                    MAX_TIME_SECONDS);
+
+            final Collection<ECEFPositionAndVelocity> expected =
+                    SatelliteECEFPositionAndVelocityGenerator
+                            .generateSatellitesPositionAndVelocity(time, config);
+
+            final List<ECEFPositionAndVelocity> result1 = new ArrayList<>();
+            result1.add(new ECEFPositionAndVelocity());
+            constellation.generateSatellitesPositionAndVelocity(time, result1);
+
+            final Collection<ECEFPositionAndVelocity> result2 =
+                    constellation.generateSatellitesPositionAndVelocity(time);
+
+            final Time t2 = new Time(time, TimeUnit.SECOND);
+            final List<ECEFPositionAndVelocity> result3 = new ArrayList<>();
+            constellation.generateSatellitesPositionAndVelocity(t2, result3);
+
+            final Collection<ECEFPositionAndVelocity> result4 =
+                    constellation.generateSatellitesPositionAndVelocity(t2);
+
+            final double[] x = new double[numberOfSatellites];
+            final double[] y = new double[numberOfSatellites];
+            final double[] z = new double[numberOfSatellites];
+            final double[] vx = new double[numberOfSatellites];
+            final double[] vy = new double[numberOfSatellites];
+            final double[] vz = new double[numberOfSatellites];
+            constellation.generateSatellitesPositionAndVelocity(time,
+                    x, y, z, vx, vy, vz);
+
+            // larger arrays are also accepted
+            final double[] x2 = new double[numberOfSatellites + 1];
+            final double[] y2 = new double[numberOfSatellites + 1];
+            final double[] z2 = new double[numberOfSatellites + 1];
+            final double[] vx2 = new double[numberOfSatellites + 1];
+            final double[] vy2 = new double[numberOfSatellites + 1];
+            final double[] vz2 = new double[numberOfSatellites + 1];
+            constellation.generateSatellitesPositionAndVelocity(t2,
+                    x2, y2, z2, vx2, vy2, vz2);
+
+            assertEquals(result1.size(), numberOfSatellites);
+            assertEquals(result2.size(), numberOfSatellites);
+            assertEquals(result1, result2);
+            assertEquals(result1, result3);
+            assertEquals(result1, result4);
+
+            final Iterator<ECEFPositionAndVelocity> it = expected.iterator();
+            for (int j = 0; j < numberOfSatellites; j++) {
+                final ECEFPositionAndVelocity e = it.next();
+                final ECEFPositionAndVelocity r = result1.get(j);
+                assertTrue(e.equals(r, ABSOLUTE_ERROR));
+
+                assertEquals(x[j], r.getX(), 0.0);
+                assertEquals(y[j], r.getY(), 0.0);
+                assertEquals(z[j], r.getZ(), 0.0);
+                assertEquals(vx[j], r.getVx(), 0.0);
+                assertEquals(vy[j], r.getVy(), 0.0);
+                assertEquals(vz[j], r.getVz(), 0.0);
+
+                assertEquals(x2[j], x[j], 0.0);
+                assertEquals(y2[j], y[j], 0.0);
+                assertEquals(z2[j], z[j], 0.0);
+                assertEquals(vx2[j], vx[j], 0.0);
+                assertEquals(vy2[j], vy[j], 0.0);
+                assertEquals(vz2[j], vz[j], 0.0);
+            }
+
+            // Force IllegalArgumentException
+            try {
+                constellation.generateSatellitesPositionAndVelocity(time,
+                        new double[numberOfSatellites - 1], y, z, vx, vy, vz);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+            try {
+                constellation.generateSatellitesPositionAndVelocity(time,
+                        x, y, z, vx, vy, new double[numberOfSatellites - 1]);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+        }
+    }
+
+    @Test
+    public void testGenerateSatellitePositionAndVelocity() {
+        for (int t = 0; t < TIMES; t++) {
+            final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+            final GNSSConfig config = createConfig();
+            final GNSSConstellation constellation = new GNSSConstellation(config);
+            final int numberOfSatellites = config.getNumberOfSatellites();
+
+            final double time = randomizer.nextDouble(MIN_TIME_SECONDS,
+                    MAX_TIME_SECONDS);
+            final Time t2 = new Time(time, TimeUnit.SECOND);
+
+            final List<ECEFPositionAndVelocity> all = new ArrayList<>();
+            constellation.generateSatellitesPositionAndVelocity(time, all);
+
+            for (int j = 0; j < numberOfSatellites; j++) {
+                final ECEFPositionAndVelocity expected =
+                        SatelliteECEFPositionAndVelocityGenerator
+                                .generateSatellitePositionAndVelocity(time, config, j);
+
+                final ECEFPositionAndVelocity result1 = new ECEFPositionAndVelocity();
+                constellation.generateSatellitePositionAndVelocity(time, j, result1);
+                final ECEFPositionAndVelocity result2 =
+                        constellation.generateSatellitePositionAndVelocity(time, j);
+                final ECEFPositionAndVelocity result3 = new ECEFPositionAndVelocity();
+                constellation.generateSatellitePositionAndVelocity(t2, j, result3);
+                final ECEFPositionAndVelocity result4 =
+                        constellation.generateSatellitePositionAndVelocity(t2, j);
+
+                assertTrue(expected.equals(result1, ABSOLUTE_ERROR));
+                assertEquals(result1, result2);
+                assertEquals(result1, result3);
+                assertEquals(result1, result4);
+                assertEquals(result1, all.get(j));
+            }
+
+            // Force IllegalArgumentException
+            try {
+                constellation.generateSatellitePositionAndVelocity(time, -1);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+            try {
+                constellation.generateSatellitePositionAndVelocity(time,
+                        numberOfSatellites);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+        }
+    }
+
+    private static GNSSConfig createConfig() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+
+        final GNSSConfig config = new GNSSConfig();
+        config.setNumberOfSatellites(randomizer.nextInt(MIN_SATELLITES,
+                MAX_SATELLITES));
+        config.setOrbitalRadiusOfSatellites(randomizer.nextDouble(
+                MIN_ORBITAL_RADIUS, MAX_ORBITAL_RADIUS));
+        config.setSatellitesInclinationDegrees(randomizer.nextDouble(
+                MIN_DEGREES, MAX_DEGREES));
+        config.setConstellationLongitudeOffsetDegrees(randomizer.nextDouble(
+                MIN_DEGREES, MAX_DEGREES));
+        config.setConstellationTimingOffset(randomizer.nextDouble(
+                MIN_TIME_SECONDS, MAX_TIME_SECONDS));
+        return config;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.algebra.AlgebraException;
+import com.irurueta.algebra.Matrix;
+import com.irurueta.navigation.frames.CoordinateTransformation;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSDilutionOfPrecisionTest {
+
+    private static final double MIN_LATITUDE_DEGREES = -70.0;
+    private static final double MAX_LATITUDE_DEGREES = 70.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_HEIGHT = -50.0;
+    private static final double MAX_HEIGHT = 10000.0;
+
+    private static final double ABSOLUTE_ERROR = 1e-9;
+
+    private static final int TIMES = 50;
+
+    @Test
+    public void testConstructor() {
+        final GNSSDilutionOfPrecision dop = new GNSSDilutionOfPrecision();
+
+        assertEquals(dop.getGdop(), Double.NaN, 0.0);
+        assertEquals(dop.getPdop(), Double.NaN, 0.0);
+        assertEquals(dop.getHdop(), Double.NaN, 0.0);
+        assertEquals(dop.getVdop(), Double.NaN, 0.0);
+        assertEquals(dop.getTdop(), Double.NaN, 0.0);
+        assertFalse(dop.isAvailable());
+    }
+
+    @Test
+    public void testSetFromIdentityCofactor() {
+        final GNSSDilutionOfPrecision dop = new GNSSDilutionOfPrecision();
+
+        final double[] cofactor = new double[16];
+        cofactor[0] = cofactor[5] = cofactor[10] = cofactor[15] = 1.0;
+
+        final ECEFPosition position = createPosition();
+        dop.setFromCofactor(cofactor, position.getX(), position.getY(),
+                position.getZ());
+
+        // an isotropic cofactor matrix is equal in any frame
+        assertTrue(dop.isAvailable());
+        assertEquals(dop.getGdop(), 2.0, ABSOLUTE_ERROR);
+        assertEquals(dop.getPdop(), Math.sqrt(3.0), ABSOLUTE_ERROR);
+        assertEquals(dop.getHdop(), Math.sqrt(2.0), ABSOLUTE_ERROR);
+        assertEquals(dop.getVdop(), 1.0, ABSOLUTE_ERROR);
+        assertEquals(dop.getTdop(), 1.0, ABSOLUTE_ERROR);
+
+        // copy
+        final GNSSDilutionOfPrecision dop2 = new GNSSDilutionOfPrecision();
+        dop.copyTo(dop2);
+        final GNSSDilutionOfPrecision dop3 = new GNSSDilutionOfPrecision();
+        dop3.copyFrom(dop);
+
+        assertTrue(dop2.isAvailable());
+        assertEquals(dop.getGdop(), dop2.getGdop(), 0.0);
+        assertEquals(dop.getPdop(), dop2.getPdop(), 0.0);
+        assertEquals(dop.getHdop(), dop2.getHdop(), 0.0);
+        assertEquals(dop.getVdop(), dop2.getVdop(), 0.0);
+        assertEquals(dop.getTdop(), dop2.getTdop(), 0.0);
+        assertEquals(dop.getGdop(), dop3.getGdop(), 0.0);
+        assertEquals(dop.getPdop(), dop3.getPdop(), 0.0);
+        assertEquals(dop.getHdop(), dop3.getHdop(), 0.0);
+        assertEquals(dop.getVdop(), dop3.getVdop(), 0.0);
+        assertEquals(dop.getTdop(), dop3.getTdop(), 0.0);
+
+        // reset
+        dop.reset();
+
+        // copies are not modified
+        assertTrue(dop2.isAvailable());
+
+        assertEquals(dop.getGdop(), Double.NaN, 0.0);
+        assertEquals(dop.getPdop(), Double.NaN, 0.0);
+        assertEquals(dop.getHdop(), Double.NaN, 0.0);
+        assertEquals(dop.getVdop(), Double.NaN, 0.0);
+        assertEquals(dop.getTdop(), Double.NaN, 0.0);
+        assertFalse(dop.isAvailable());
+    }
+
+    @Test
+    public void testSetFromCofactorMatchesExplicitRotation()
+            throws AlgebraException {
+        final GNSSDilutionOfPrecision dop = new GNSSDilutionOfPrecision();
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+
+        for (int t = 0; t < TIMES; t++) {
+            // random symmetric positive definite cofactor matrix
+            final Matrix a = Matrix.createWithUniformRandomValues(4, 4,
+                    -1.0, 1.0);
+            final Matrix q = a.transposeAndReturnNew().multiplyAndReturnNew(a);
+            q.add(Matrix.identity(4, 4));
+
+            final NEDPosition nedPosition = createNedPosition(randomizer);
+            final ECEFPosition position = toEcef(nedPosition);
+
+            dop.setFromCofactor(q.getBuffer(), position.getX(),
+                    position.getY(), position.getZ());
+
+            // rotate position block to NED using ECEF to NED coordinate
+            // transformation
+            final Matrix cne = CoordinateTransformation.ecefToNedMatrix(
+                    nedPosition.getLatitude(), nedPosition.getLongitude());
+            final Matrix qPos = q.getSubmatrix(0, 0, 2, 2);
+            final Matrix qNed = cne.multiplyAndReturnNew(qPos)
+                    .multiplyAndReturnNew(cne.transposeAndReturnNew());
+
+            final double trace = q.getElementAt(0, 0) + q.getElementAt(1, 1)
+                    + q.getElementAt(2, 2);
+            assertEquals(dop.getGdop(), Math.sqrt(trace + q.getElementAt(3, 3)),
+                    ABSOLUTE_ERROR);
+            assertEquals(dop.getPdop(), Math.sqrt(trace), ABSOLUTE_ERROR);
+            assertEquals(dop.getHdop(), Math.sqrt(qNed.getElementAt(0, 0)
+                    + qNed.getElementAt(1, 1)), ABSOLUTE_ERROR);
+            assertEquals(dop.getVdop(), Math.sqrt(qNed.getElementAt(2, 2)),
+                    ABSOLUTE_ERROR);
+            assertEquals(dop.getTdop(), Math.sqrt(q.getElementAt(3, 3)),
+                    ABSOLUTE_ERROR);
+
+            // horizontal and vertical components add up to position
+            assertEquals(dop.getPdop() * dop.getPdop(),
+                    dop.getHdop() * dop.getHdop() + dop.getVdop() * dop.getVdop(),
+                    ABSOLUTE_ERROR);
+        }
+    }
+
+    private static ECEFPosition createPosition() {
+        return toEcef(createNedPosition(new UniformRandomizer(new Random())));
+    }
+
+    private static NEDPosition createNedPosition(
+            final UniformRandomizer randomizer) {
+        return new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                        MAX_LATITUDE_DEGREES)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)),
+                randomizer.nextDouble(MIN_HEIGHT, MAX_HEIGHT));
+    }
+
+    private static ECEFPosition toEcef(final NEDPosition nedPosition) {
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                new NEDVelocity(), ecefPosition, ecefVelocity);
+        return ecefPosition;
+    }
+}
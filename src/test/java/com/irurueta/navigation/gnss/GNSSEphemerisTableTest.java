@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSEphemerisTableTest {
+
+    private static final int MIN_SATELLITES = 4;
+    private static final int MAX_SATELLITES = 40;
+
+    private static final double MIN_ORBITAL_RADIUS = 2.0e7;
+    private static final double MAX_ORBITAL_RADIUS = 3.0e7;
+
+    private static final double MIN_DEGREES = -10.0;
+    private static final double MAX_DEGREES = 60.0;
+
+    private static final double MIN_START_TIME = 0.0;
+    private static final double MAX_START_TIME = 86400.0;
+
+    private static final double MIN_TIME_INTERVAL = 1.0;
+    private static final double MAX_TIME_INTERVAL = 10.0;
+
+    private static final int MIN_EPOCHS = 2;
+    private static final int MAX_EPOCHS = 100;
+
+    private static final double ABSOLUTE_ERROR = 1e-6;
+    private static final double INTERPOLATION_ABSOLUTE_ERROR = 1e-3;
+
+    private static final int TIMES = 100;
+
+    @Test
+    public void testConstructor() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final GNSSConfig config = createConfig();
+        final GNSSConstellation constellation = new GNSSConstellation(config);
+        final double startTime = randomizer.nextDouble(MIN_START_TIME, MAX_START_TIME);
+        final double timeInterval = randomizer.nextDouble(MIN_TIME_INTERVAL,
+                MAX_TIME_INTERVAL);
+        final int numberOfEpochs = randomizer.nextInt(MIN_EPOCHS, MAX_EPOCHS);
+        final Time startTime2 = new Time(startTime, TimeUnit.SECOND);
+        final Time timeInterval2 = new Time(timeInterval, TimeUnit.SECOND);
+
+        final GNSSEphemerisTable table1 = new GNSSEphemerisTable(constellation,
+                startTime, timeInterval, numberOfEpochs);
+        final GNSSEphemerisTable table2 = new GNSSEphemerisTable(constellation,
+                startTime2, timeInterval2, numberOfEpochs);
+        final GNSSEphemerisTable table3 = new GNSSEphemerisTable(config,
+                startTime, timeInterval, numberOfEpochs);
+        final GNSSEphemerisTable table4 = new GNSSEphemerisTable(config,
+                startTime2, timeInterval2, numberOfEpochs);
+
+        for (final GNSSEphemerisTable table : new GNSSEphemerisTable[]{
+                table1, table2, table3, table4}) {
+            assertEquals(table.getNumberOfSatellites(),
+                    config.getNumberOfSatellites());
+            assertEquals(table.getNumberOfEpochs(), numberOfEpochs);
+            assertEquals(table.getStartTime(), startTime, 0.0);
+            assertEquals(table.getTimeInterval(), timeInterval, 0.0);
+            assertEquals(table.getEndTime(),
+                    startTime + (numberOfEpochs - 1) * timeInterval, 0.0);
+            assertEquals(table.getEpochTime(1), startTime + timeInterval, 0.0);
+
+            assertTrue(table.isInRange(startTime));
+            assertTrue(table.isInRange(table.getEndTime()));
+            assertTrue(table.isInRange(startTime2));
+            assertFalse(table.isInRange(startTime - 1.0));
+            assertFalse(table.isInRange(table.getEndTime() + 1.0));
+        }
+
+        // Force IllegalArgumentException
+        try {
+            new GNSSEphemerisTable(constellation, startTime, 0.0, numberOfEpochs);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            new GNSSEphemerisTable(constellation, startTime, timeInterval, 1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testGridEpochs() {
+        for (int t = 0; t < TIMES; t++) {
+            final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+            final GNSSConstellation constellation = new GNSSConstellation(createConfig());
+            final double startTime = randomizer.nextDouble(MIN_START_TIME,
+                    MAX_START_TIME);
+            final double timeInterval = randomizer.nextDouble(MIN_TIME_INTERVAL,
+                    MAX_TIME_INTERVAL);
+            final int numberOfEpochs = randomizer.nextInt(MIN_EPOCHS, MAX_EPOCHS);
+
+            final GNSSEphemerisTable table = new GNSSEphemerisTable(constellation,
+                    startTime, timeInterval, numberOfEpochs);
+
+            final int epoch = randomizer.nextInt(0, numberOfEpochs);
+            final double time = table.getEpochTime(epoch);
+
+            final List<ECEFPositionAndVelocity> expected = new ArrayList<>();
+            constellation.generateSatellitesPositionAndVelocity(time, expected);
+            final List<ECEFPositionAndVelocity> result = new ArrayList<>();
+            table.generateSatellitesPositionAndVelocity(time, result);
+
+            assertEquals(expected.size(), result.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertTrue(expected.get(j).equals(result.get(j), ABSOLUTE_ERROR));
+            }
+        }
+    }
+
+    @Test
+    public void testGenerateSatellitesPositionAndVelocity() {
+        for (int t = 0; t < TIMES; t++) {
+            final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+            final GNSSConstellation constellation = new GNSSConstellation(createConfig());
+            final int numberOfSatellites = constellation.getNumberOfSatellites();
+            final double startTime = randomizer.nextDouble(MIN_START_TIME,
+                    MAX_START_TIME);
+            final double timeInterval = randomizer.nextDouble(MIN_TIME_INTERVAL,
+                    MAX_TIME_INTERVAL);
+            final int numberOfEpochs = randomizer.nextInt(MIN_EPOCHS, MAX_EPOCHS);
+
+            final GNSSEphemerisTable table = new GNSSEphemerisTable(constellation,
+                    startTime, timeInterval, numberOfEpochs);
+
+            final double time = randomizer.nextDouble(table.getStartTime(),
+                    table.getEndTime());
+            final Time time2 = new Time(time, TimeUnit.SECOND);
+
+            final List<ECEFPositionAndVelocity> expected = new ArrayList<>();
+            constellation.generateSatellitesPositionAndVelocity(time, expected);
+
+            final List<ECEFPositionAndVelocity> result1 = new ArrayList<>();
+            table.generateSatellitesPositionAndVelocity(time, result1);
+            final Collection<ECEFPositionAndVelocity> result2 =
+                    table.generateSatellitesPositionAndVelocity(time);
+            final List<ECEFPositionAndVelocity> result3 = new ArrayList<>();
+            table.generateSatellitesPositionAndVelocity(time2, result3);
+            final Collection<ECEFPositionAndVelocity> result4 =
+                    table.generateSatellitesPositionAndVelocity(time2);
+
+            final double[] x = new double[numberOfSatellites];
+            final double[] y = new double[numberOfSatellites];
+            final double[] z = new double[numberOfSatellites];
+            final double[] vx = new double[numberOfSatellites];
+            final double[] vy = new double[numberOfSatellites];
+            final double[] vz = new double[numberOfSatellites];
+            table.generateSatellitesPositionAndVelocity(time2, x, y, z, vx, vy, vz);
+
+            assertEquals(result1.size(), numberOfSatellites);
+            assertEquals(result1, result2);
+            assertEquals(result1, result3);
+            assertEquals(result1, result4);
+
+            for (int j = 0; j < numberOfSatellites; j++) {
+                final ECEFPositionAndVelocity r = result1.get(j);
+                assertTrue(expected.get(j).equals(r, INTERPOLATION_ABSOLUTE_ERROR));
+
+                assertEquals(x[j], r.getX(), 0.0);
+                assertEquals(y[j], r.getY(), 0.0);
+                assertEquals(z[j], r.getZ(), 0.0);
+                assertEquals(vx[j], r.getVx(), 0.0);
+                assertEquals(vy[j], r.getVy(), 0.0);
+                assertEquals(vz[j], r.getVz(), 0.0);
+
+                final ECEFPositionAndVelocity single1 = new ECEFPositionAndVelocity();
+                table.generateSatellitePositionAndVelocity(time, j, single1);
+                final ECEFPositionAndVelocity single2 =
+                        table.generateSatellitePositionAndVelocity(time, j);
+                final ECEFPositionAndVelocity single3 = new ECEFPositionAndVelocity();
+                table.generateSatellitePositionAndVelocity(time2, j, single3);
+                final ECEFPositionAndVelocity single4 =
+                        table.generateSatellitePositionAndVelocity(time2, j);
+
+                assertEquals(r, single1);
+                assertEquals(r, single2);
+                assertEquals(r, single3);
+                assertEquals(r, single4);
+
+                final double[] values1 = new double[6];
+                table.generateSatellitePositionAndVelocity(time, j, values1);
+                final double[] values2 = new double[6];
+                table.generateSatellitePositionAndVelocity(time2, j, values2);
+
+                assertArrayEquals(new double[]{r.getX(), r.getY(), r.getZ(),
+                        r.getVx(), r.getVy(), r.getVz()}, values1, 0.0);
+                assertArrayEquals(values1, values2, 0.0);
+            }
+
+            // end of table is also valid
+            final Collection<ECEFPositionAndVelocity> last =
+                    table.generateSatellitesPositionAndVelocity(table.getEndTime());
+            final Collection<ECEFPositionAndVelocity> expectedLast =
+                    constellation.generateSatellitesPositionAndVelocity(
+                            table.getEndTime());
+            assertEquals(last.size(), expectedLast.size());
+
+            final ECEFPositionAndVelocity lastSatellite = table
+                    .generateSatellitePositionAndVelocity(table.getEndTime(),
+                            numberOfSatellites - 1);
+            assertTrue(lastSatellite.equals(constellation
+                    .generateSatellitePositionAndVelocity(table.getEndTime(),
+                            numberOfSatellites - 1), ABSOLUTE_ERROR));
+
+            // Force IllegalArgumentException
+            try {
+                table.generateSatellitesPositionAndVelocity(startTime - 1.0);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+            try {
+                table.generateSatellitesPositionAndVelocity(table.getEndTime() + 1.0);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+            try {
+                table.generateSatellitesPositionAndVelocity(time,
+                        new double[numberOfSatellites - 1], y, z, vx, vy, vz);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+            try {
+                table.generateSatellitePositionAndVelocity(time, -1);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+            try {
+                table.generateSatellitePositionAndVelocity(time, numberOfSatellites);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+            try {
+                table.generateSatellitePositionAndVelocity(time, 0, new double[5]);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+        }
+    }
+
+    private static GNSSConfig createConfig() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+
+        final GNSSConfig config = new GNSSConfig();
+        config.setNumberOfSatellites(randomizer.nextInt(MIN_SATELLITES,
+                MAX_SATELLITES));
+        config.setOrbitalRadiusOfSatellites(randomizer.nextDouble(
+                MIN_ORBITAL_RADIUS, MAX_ORBITAL_RADIUS));
+        config.setSatellitesInclinationDegrees(randomizer.nextDouble(
+                MIN_DEGREES, MAX_DEGREES));
+        config.setConstellationLongitudeOffsetDegrees(randomizer.nextDouble(
+                MIN_DEGREES, MAX_DEGREES));
+        return config;
+    }
+}
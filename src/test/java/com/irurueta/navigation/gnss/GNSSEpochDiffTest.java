@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSEpochDiffTest {
+
+    private static final int MAX_SATELLITE_ID = 32;
+
+    private static final int TIMES = 100;
+
+    @Test
+    public void testConstructor() {
+        final GNSSEpochDiff diff = new GNSSEpochDiff();
+
+        // check default values
+        assertEquals(diff.getPreviousSize(), 0);
+        assertEquals(diff.getCurrentSize(), 0);
+        assertEquals(diff.getNumberOfAdded(), 0);
+        assertEquals(diff.getNumberOfRemoved(), 0);
+        assertEquals(diff.getNumberOfPersisting(), 0);
+        assertTrue(diff.isUnchanged());
+        assertEquals(diff.getAddedIndices().length, 0);
+        assertEquals(diff.getRemovedIndices().length, 0);
+        assertEquals(diff.getPersistingPreviousIndices().length, 0);
+        assertEquals(diff.getPersistingCurrentIndices().length, 0);
+
+        // test constructors with measurements
+        final GNSSMeasurementBatch previous = createBatch(1, 2, 3);
+        final GNSSMeasurementBatch current = createBatch(2, 3, 4, 5);
+
+        final GNSSEpochDiff diff2 = new GNSSEpochDiff(previous, current);
+        assertArrayEquals(diff2.getAddedIndices(), new int[]{2, 3});
+        assertArrayEquals(diff2.getRemovedIndices(), new int[]{0});
+
+        final GNSSEpochDiff diff3 = new GNSSEpochDiff(previous.toMeasurements(),
+                current.toMeasurements());
+        assertArrayEquals(diff3.getAddedIndices(), new int[]{2, 3});
+        assertArrayEquals(diff3.getRemovedIndices(), new int[]{0});
+    }
+
+    @Test
+    public void testCompute() {
+        final GNSSEpochDiff diff = new GNSSEpochDiff();
+
+        final GNSSMeasurementBatch previous = createBatch(5, 1, 8, 3);
+        final GNSSMeasurementBatch current = createBatch(3, 9, 5, 2, 8);
+
+        diff.compute(previous, current);
+
+        // check
+        assertEquals(diff.getPreviousSize(), 4);
+        assertEquals(diff.getCurrentSize(), 5);
+        assertFalse(diff.isUnchanged());
+
+        assertEquals(diff.getNumberOfAdded(), 2);
+        assertArrayEquals(diff.getAddedIndices(), new int[]{1, 3});
+        assertEquals(diff.getAddedIndex(0), 1);
+        assertEquals(diff.getAddedIndex(1), 3);
+
+        assertEquals(diff.getNumberOfRemoved(), 1);
+        assertArrayEquals(diff.getRemovedIndices(), new int[]{1});
+        assertEquals(diff.getRemovedIndex(0), 1);
+
+        assertEquals(diff.getNumberOfPersisting(), 3);
+        assertArrayEquals(diff.getPersistingCurrentIndices(), new int[]{0, 2, 4});
+        assertArrayEquals(diff.getPersistingPreviousIndices(), new int[]{3, 0, 2});
+        assertEquals(diff.getPersistingCurrentIndex(1), 2);
+        assertEquals(diff.getPersistingPreviousIndex(1), 0);
+
+        assertEquals(diff.getPreviousIndex(0), 3);
+        assertEquals(diff.getPreviousIndex(1), GNSSEpochDiff.NO_INDEX);
+        assertEquals(diff.getCurrentIndex(0), 2);
+        assertEquals(diff.getCurrentIndex(1), GNSSEpochDiff.NO_INDEX);
+
+        // Force IllegalArgumentException
+        try {
+            diff.getAddedIndex(2);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            diff.getRemovedIndex(-1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            diff.getPersistingPreviousIndex(3);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            diff.getPreviousIndex(5);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            diff.getCurrentIndex(4);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // instance can be reused with a smaller epoch
+        diff.compute(createBatch(1, 2), createBatch(1, 2));
+
+        assertEquals(diff.getPreviousSize(), 2);
+        assertEquals(diff.getCurrentSize(), 2);
+        assertTrue(diff.isUnchanged());
+        assertEquals(diff.getNumberOfPersisting(), 2);
+    }
+
+    @Test
+    public void testReorderedIsNotUnchanged() {
+        final GNSSEpochDiff diff = new GNSSEpochDiff(createBatch(1, 2, 3),
+                createBatch(3, 2, 1));
+
+        assertFalse(diff.isUnchanged());
+        assertEquals(diff.getNumberOfAdded(), 0);
+        assertEquals(diff.getNumberOfRemoved(), 0);
+        assertArrayEquals(diff.getPersistingPreviousIndices(), new int[]{2, 1, 0});
+    }
+
+    @Test
+    public void testUnknownAndDuplicatedIdentifiers() {
+        final int unknown = GNSSMeasurement.UNKNOWN_SATELLITE_ID;
+        final GNSSEpochDiff diff = new GNSSEpochDiff(
+                createBatch(unknown, 4, 4), createBatch(4, unknown));
+
+        // unknown satellites are never matched and duplicated identifiers are
+        // matched once
+        assertArrayEquals(diff.getAddedIndices(), new int[]{1});
+        assertArrayEquals(diff.getRemovedIndices(), new int[]{0, 2});
+        assertArrayEquals(diff.getPersistingCurrentIndices(), new int[]{0});
+        assertArrayEquals(diff.getPersistingPreviousIndices(), new int[]{1});
+    }
+
+    @Test
+    public void testComputeRandom() {
+        final GNSSEpochDiff diff = new GNSSEpochDiff();
+        for (int t = 0; t < TIMES; t++) {
+            final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+
+            final List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < MAX_SATELLITE_ID; i++) {
+                ids.add(i);
+            }
+
+            Collections.shuffle(ids);
+            final int previousSize = randomizer.nextInt(0, MAX_SATELLITE_ID);
+            final int[] previousIds = new int[previousSize];
+            for (int i = 0; i < previousSize; i++) {
+                previousIds[i] = ids.get(i);
+            }
+
+            Collections.shuffle(ids);
+            final int currentSize = randomizer.nextInt(0, MAX_SATELLITE_ID);
+            final int[] currentIds = new int[currentSize];
+            for (int i = 0; i < currentSize; i++) {
+                currentIds[i] = ids.get(i);
+            }
+
+            diff.compute(createBatch(previousIds), createBatch(currentIds));
+
+            assertEquals(diff.getNumberOfAdded() + diff.getNumberOfPersisting(),
+                    currentSize);
+            assertEquals(diff.getNumberOfRemoved() + diff.getNumberOfPersisting(),
+                    previousSize);
+
+            for (int n = 0; n < diff.getNumberOfPersisting(); n++) {
+                final int previousIndex = diff.getPersistingPreviousIndex(n);
+                final int currentIndex = diff.getPersistingCurrentIndex(n);
+                assertEquals(previousIds[previousIndex], currentIds[currentIndex]);
+                assertEquals(diff.getCurrentIndex(previousIndex), currentIndex);
+                assertEquals(diff.getPreviousIndex(currentIndex), previousIndex);
+            }
+            for (int n = 0; n < diff.getNumberOfAdded(); n++) {
+                final int id = currentIds[diff.getAddedIndex(n)];
+                for (final int previousId : previousIds) {
+                    assertNotEquals(id, previousId);
+                }
+            }
+            for (int n = 0; n < diff.getNumberOfRemoved(); n++) {
+                final int id = previousIds[diff.getRemovedIndex(n)];
+                for (final int currentId : currentIds) {
+                    assertNotEquals(id, currentId);
+                }
+            }
+        }
+    }
+
+    private static GNSSMeasurementBatch createBatch(final int... satelliteIds) {
+        final GNSSMeasurementBatch result = new GNSSMeasurementBatch();
+        for (final int satelliteId : satelliteIds) {
+            result.add(satelliteId, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+        }
+        return result;
+    }
+}
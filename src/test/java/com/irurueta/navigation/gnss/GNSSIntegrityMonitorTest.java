@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSIntegrityMonitorTest {
+
+    private static final double MIN_LATITUDE_DEGREES = -70.0;
+    private static final double MAX_LATITUDE_DEGREES = 70.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final int NUM_SATELLITES = 30;
+    private static final double ORBITAL_RADIUS = 2.656175E7;
+    private static final double INCLINATION_DEGREES = 55.0;
+    private static final double MASK_ANGLE_DEGREES = 10.0;
+
+    private static final double MIN_FAULT = 200.0;
+    private static final double MAX_FAULT = 500.0;
+
+    private static final double ABSOLUTE_ERROR = 1e-3;
+    private static final double RELATIVE_ERROR = 1e-2;
+
+    private static final int TIMES = 20;
+
+    @Test
+    public void testConstructor() {
+        GNSSIntegrityMonitor monitor = new GNSSIntegrityMonitor();
+
+        // check default values
+        assertEquals(monitor.getPseudoRangeStandardDeviation(),
+                GNSSIntegrityMonitor.DEFAULT_PSEUDO_RANGE_STANDARD_DEVIATION, 0.0);
+        assertEquals(monitor.getProbabilityOfFalseAlarm(),
+                GNSSIntegrityMonitor.DEFAULT_PROBABILITY_OF_FALSE_ALARM, 0.0);
+        assertEquals(monitor.getProbabilityOfMissedDetection(),
+                GNSSIntegrityMonitor.DEFAULT_PROBABILITY_OF_MISSED_DETECTION, 0.0);
+        assertEquals(monitor.getMaxExclusions(),
+                GNSSIntegrityMonitor.DEFAULT_MAX_EXCLUSIONS);
+
+        monitor = new GNSSIntegrityMonitor(3.0);
+
+        // check
+        assertEquals(monitor.getPseudoRangeStandardDeviation(), 3.0, 0.0);
+
+        // Force IllegalArgumentException
+        monitor = null;
+        try {
+            monitor = new GNSSIntegrityMonitor(0.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        assertNull(monitor);
+    }
+
+    @Test
+    public void testGetSetters() {
+        final GNSSIntegrityMonitor monitor = new GNSSIntegrityMonitor();
+
+        monitor.setPseudoRangeStandardDeviation(2.0);
+        monitor.setProbabilityOfFalseAlarm(1e-3);
+        monitor.setProbabilityOfMissedDetection(1e-2);
+        monitor.setMaxExclusions(0);
+
+        // check
+        assertEquals(monitor.getPseudoRangeStandardDeviation(), 2.0, 0.0);
+        assertEquals(monitor.getProbabilityOfFalseAlarm(), 1e-3, 0.0);
+        assertEquals(monitor.getProbabilityOfMissedDetection(), 1e-2, 0.0);
+        assertEquals(monitor.getMaxExclusions(), 0);
+
+        // Force IllegalArgumentException
+        try {
+            monitor.setPseudoRangeStandardDeviation(-1.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            monitor.setProbabilityOfFalseAlarm(0.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            monitor.setProbabilityOfFalseAlarm(1.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            monitor.setProbabilityOfMissedDetection(0.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            monitor.setProbabilityOfMissedDetection(1.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            monitor.setMaxExclusions(-1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testMonitorFaultFree() throws GNSSException {
+        final GNSSIntegrityMonitor monitor = new GNSSIntegrityMonitor();
+        final GNSSIntegrityResult result = new GNSSIntegrityResult();
+
+        for (int t = 0; t < TIMES; t++) {
+            final GNSSMeasurementBatch measurements = simulate(new Random());
+            final int n = measurements.getSize();
+            if (n < GNSSIntegrityMonitor.MIN_MEASUREMENTS_FOR_DETECTION) {
+                continue;
+            }
+
+            monitor.monitor(measurements, result);
+
+            assertEquals(result.getNumberOfMeasurements(), n);
+            assertEquals(result.getNumberOfUsedMeasurements(), n);
+            assertEquals(result.getNumberOfExcludedMeasurements(), 0);
+            assertEquals(result.getExcludedIndices().length, 0);
+            assertTrue(result.isAvailable());
+            assertFalse(result.isFaultDetected());
+            assertTrue(result.isValid());
+            assertTrue(result.getTestStatistic() >= 0.0);
+            assertTrue(result.getTestStatistic() <= result.getThreshold());
+            assertTrue(result.getHorizontalProtectionLevel() > 0.0);
+            assertTrue(result.getVerticalProtectionLevel() > 0.0);
+        }
+    }
+
+    @Test
+    public void testMonitorFaultDetectionAndExclusion() throws GNSSException,
+            LockedException, NotReadyException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final GNSSIntegrityMonitor monitor = new GNSSIntegrityMonitor();
+
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPositionAndVelocity user = createUser(new Random());
+            final GNSSMeasurementBatch measurements = simulate(user, new Random());
+            final int n = measurements.getSize();
+            if (n < GNSSIntegrityMonitor.MIN_MEASUREMENTS_FOR_EXCLUSION + 1) {
+                continue;
+            }
+
+            // inject fault on a single measurement
+            final int faulty = randomizer.nextInt(0, n);
+            final GNSSMeasurement measurement = measurements.getMeasurement(faulty);
+            measurement.setPseudoRange(measurement.getPseudoRange()
+                    + randomizer.nextDouble(MIN_FAULT, MAX_FAULT));
+            measurements.set(faulty, measurement);
+
+            final GNSSIntegrityResult result = monitor.monitor(measurements);
+
+            assertTrue(result.isAvailable());
+            assertTrue(result.isFaultDetected());
+            if (result.getNumberOfExcludedMeasurements() != 1) {
+                // fault on a measurement with poor redundancy may not be
+                // separable from other measurements
+                continue;
+            }
+            assertArrayEquals(result.getExcludedIndices(), new int[]{faulty});
+            assertTrue(result.isExcluded(faulty));
+            assertEquals(result.getNumberOfUsedMeasurements(), n - 1);
+            assertTrue(result.isValid());
+
+            // compare with solving again without the faulty measurement
+            final GNSSMeasurementBatch remaining = new GNSSMeasurementBatch();
+            for (int i = 0; i < n; i++) {
+                if (i != faulty) {
+                    remaining.add(measurements.getMeasurement(i));
+                }
+            }
+            final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                    new GNSSLeastSquaresPositionAndVelocityEstimator(remaining);
+            estimator.setPriorPositionAndVelocity(user);
+            final GNSSEstimation expected = estimator.estimate();
+
+            assertTrue(expected.equals(result.getEstimation(), ABSOLUTE_ERROR));
+
+            final double sigma = monitor.getPseudoRangeStandardDeviation();
+            final double expectedStatistic = estimator.getPositionResidualRms()
+                    * estimator.getPositionResidualRms() * (n - 1) / (sigma * sigma);
+            assertEquals(result.getTestStatistic(), expectedStatistic,
+                    RELATIVE_ERROR * expectedStatistic);
+
+            numValid++;
+        }
+
+        assertTrue(numValid > 0);
+    }
+
+    @Test
+    public void testMonitorDetectionOnly() throws GNSSException {
+        final GNSSIntegrityMonitor monitor = new GNSSIntegrityMonitor();
+        monitor.setMaxExclusions(0);
+
+        GNSSMeasurementBatch measurements;
+        do {
+            measurements = simulate(new Random());
+        } while (measurements.getSize()
+                < GNSSIntegrityMonitor.MIN_MEASUREMENTS_FOR_EXCLUSION);
+
+        final GNSSMeasurement measurement = measurements.getMeasurement(0);
+        measurement.setPseudoRange(measurement.getPseudoRange() + MAX_FAULT);
+        measurements.set(0, measurement);
+
+        final GNSSIntegrityResult result = monitor.monitor(
+                measurements.toMeasurements());
+
+        assertTrue(result.isAvailable());
+        assertTrue(result.isFaultDetected());
+        assertFalse(result.isValid());
+        assertEquals(result.getNumberOfExcludedMeasurements(), 0);
+        assertTrue(result.getTestStatistic() > result.getThreshold());
+    }
+
+    @Test
+    public void testMonitorNotAvailable() throws GNSSException {
+        final GNSSIntegrityMonitor monitor = new GNSSIntegrityMonitor();
+
+        GNSSMeasurementBatch measurements;
+        GNSSIntegrityResult result = null;
+        do {
+            measurements = simulate(new Random());
+            if (measurements.getSize()
+                    < GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS) {
+                continue;
+            }
+
+            final GNSSMeasurementBatch minimal = new GNSSMeasurementBatch();
+            for (int i = 0;
+                 i < GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS;
+                 i++) {
+                minimal.add(measurements.getMeasurement(i));
+            }
+
+            try {
+                result = monitor.monitor(minimal);
+            } catch (final GNSSException ignore) {
+                // geometry of minimal set of satellites might be degenerate
+            }
+        } while (result == null);
+
+        assertFalse(result.isAvailable());
+        assertFalse(result.isFaultDetected());
+        assertFalse(result.isValid());
+        assertTrue(Double.isNaN(result.getTestStatistic()));
+        assertTrue(Double.isNaN(result.getHorizontalProtectionLevel()));
+        assertTrue(Double.isNaN(result.getVerticalProtectionLevel()));
+
+        // Force IllegalArgumentException
+        final GNSSMeasurementBatch notEnough = new GNSSMeasurementBatch();
+        notEnough.add(measurements.getMeasurement(0));
+        try {
+            monitor.monitor(notEnough);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    private static ECEFPositionAndVelocity createUser(final Random random) {
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final NEDPosition nedPosition = new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                        MAX_LATITUDE_DEGREES)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)), 0.0);
+
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                new NEDVelocity(), ecefPosition, ecefVelocity);
+        return new ECEFPositionAndVelocity(ecefPosition, ecefVelocity);
+    }
+
+    private static GNSSMeasurementBatch simulate(final Random random)
+            throws GNSSException {
+        return simulate(createUser(random), random);
+    }
+
+    private static GNSSMeasurementBatch simulate(final ECEFPositionAndVelocity user,
+                                                 final Random random)
+            throws GNSSException {
+        // simulated pseudo-range errors are consistent with the default
+        // standard deviation assumed by the monitor
+        final GNSSConfig config = new GNSSConfig();
+        config.setNumberOfSatellites(NUM_SATELLITES);
+        config.setOrbitalRadiusOfSatellites(ORBITAL_RADIUS);
+        config.setSatellitesInclinationDegrees(INCLINATION_DEGREES);
+        config.setMaskAngleDegrees(MASK_ANGLE_DEGREES);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+
+        return new GNSSMonteCarloSimulator(config,
+                Collections.singletonList(user), 0.0, 1, random.nextLong(), 1)
+                .simulate()[0][0];
+    }
+}
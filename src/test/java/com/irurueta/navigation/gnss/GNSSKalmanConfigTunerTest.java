@@ -0,0 +1,475 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSKalmanConfigTunerTest {
+
+    private static final double EPOCH_INTERVAL_SECONDS = 1.0;
+
+    private static final double CLOCK_OFFSET = 10000.0;
+    private static final double CLOCK_DRIFT = 100.0;
+
+    private static final double MIN_LATITUDE_DEGREES = -70.0;
+    private static final double MAX_LATITUDE_DEGREES = 70.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_USER_HEIGHT = -50.0;
+    private static final double MAX_USER_HEIGHT = 50.0;
+
+    private static final int EPOCHS = 50;
+
+    private static final int NUMBER_OF_THREADS = 4;
+
+    private static final double ABSOLUTE_ERROR = 1e-6;
+
+    @Test
+    public void testConstructor() throws GNSSException {
+        final ECEFPositionAndVelocity user = createUser(new Random());
+        final GNSSMeasurementBatch[] measurements = simulate(user,
+                EPOCH_INTERVAL_SECONDS, EPOCHS, new Random());
+        final double[] timestamps = createTimestamps();
+        final GNSSEstimation initialEstimation = new GNSSEstimation();
+
+        GNSSKalmanConfigTuner tuner = new GNSSKalmanConfigTuner(measurements,
+                timestamps, initialEstimation);
+
+        assertEquals(EPOCHS, tuner.getNumberOfEpochs());
+        assertEquals(Runtime.getRuntime().availableProcessors(),
+                tuner.getNumberOfThreads());
+        assertFalse(tuner.hasTruePositions());
+
+        final ECEFPosition[] truePositions = createTruePositions(user);
+        tuner = new GNSSKalmanConfigTuner(measurements, timestamps,
+                initialEstimation, truePositions);
+
+        assertEquals(EPOCHS, tuner.getNumberOfEpochs());
+        assertTrue(tuner.hasTruePositions());
+
+        tuner = new GNSSKalmanConfigTuner(measurements, timestamps,
+                initialEstimation, null, NUMBER_OF_THREADS);
+
+        assertEquals(NUMBER_OF_THREADS, tuner.getNumberOfThreads());
+        assertFalse(tuner.hasTruePositions());
+
+        // force IllegalArgumentException
+        tuner = null;
+        try {
+            tuner = new GNSSKalmanConfigTuner(new GNSSMeasurementBatch[0],
+                    new double[0], initialEstimation);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            tuner = new GNSSKalmanConfigTuner(measurements, new double[1],
+                    initialEstimation);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            tuner = new GNSSKalmanConfigTuner(measurements, timestamps,
+                    initialEstimation, new ECEFPosition[1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            tuner = new GNSSKalmanConfigTuner(measurements, timestamps,
+                    initialEstimation, truePositions, 0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        final double[] wrongTimestamps = timestamps.clone();
+        wrongTimestamps[1] = wrongTimestamps[0];
+        try {
+            tuner = new GNSSKalmanConfigTuner(measurements, wrongTimestamps,
+                    initialEstimation);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        final GNSSMeasurementBatch[] wrongMeasurements = measurements.clone();
+        wrongMeasurements[1] = null;
+        try {
+            tuner = new GNSSKalmanConfigTuner(wrongMeasurements, timestamps,
+                    initialEstimation);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        assertNull(tuner);
+    }
+
+    @Test
+    public void testGetAndSetParameter() {
+        final GNSSKalmanConfig config = new GNSSKalmanConfig();
+        final GNSSKalmanConfigParameter[] parameters =
+                GNSSKalmanConfigParameter.values();
+        for (int i = 0; i < parameters.length; i++) {
+            GNSSKalmanConfigTuner.setParameter(config, parameters[i], i + 1.0);
+        }
+
+        assertEquals(new GNSSKalmanConfig(1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0,
+                8.0, 9.0), config);
+        for (int i = 0; i < parameters.length; i++) {
+            assertEquals(i + 1.0, GNSSKalmanConfigTuner.getParameter(config,
+                    parameters[i]), 0.0);
+        }
+    }
+
+    @Test
+    public void testScoreMatchesFilteredEstimator() throws LockedException,
+            NotReadyException, GNSSException {
+        final ECEFPositionAndVelocity user = createUser(new Random());
+        final GNSSMeasurementBatch[] measurements = simulate(user,
+                EPOCH_INTERVAL_SECONDS, EPOCHS, new Random());
+        final double[] timestamps = createTimestamps();
+        final ECEFPosition[] truePositions = createTruePositions(user);
+        final GNSSKalmanConfig config = createKalmanConfig();
+
+        // replay log through a filtered estimator
+        final GNSSKalmanFilteredEstimator estimator =
+                new GNSSKalmanFilteredEstimator(config);
+        final GNSSEstimation estimation = new GNSSEstimation();
+        double squaredError = 0.0;
+        for (int e = 0; e < EPOCHS; e++) {
+            assertTrue(estimator.updateMeasurementBatch(measurements[e], timestamps[e]));
+            estimator.getState().getEstimation(estimation);
+            squaredError += Math.pow(estimation.getX() - user.getX(), 2.0)
+                    + Math.pow(estimation.getY() - user.getY(), 2.0)
+                    + Math.pow(estimation.getZ() - user.getZ(), 2.0);
+        }
+        final double expected = Math.sqrt(squaredError / EPOCHS);
+
+        final GNSSLeastSquaresPositionAndVelocityEstimator lsEstimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+        lsEstimator.setMeasurementBatch(measurements[0]);
+        final GNSSEstimation initialEstimation = lsEstimator.estimate();
+
+        final GNSSKalmanConfigTuner tuner = new GNSSKalmanConfigTuner(measurements,
+                timestamps, initialEstimation, truePositions, NUMBER_OF_THREADS);
+
+        assertEquals(expected, tuner.score(config,
+                GNSSKalmanConfigTuningCriterion.POSITION_ERROR), ABSOLUTE_ERROR);
+
+        // likelihood decreases when measurement noise is wrongly modelled
+        final double likelihood = tuner.score(config,
+                GNSSKalmanConfigTuningCriterion.INNOVATION_LIKELIHOOD);
+        final GNSSKalmanConfig wrongConfig = new GNSSKalmanConfig(config);
+        wrongConfig.setPseudoRangeSD(100.0 * config.getPseudoRangeSD());
+        assertTrue(likelihood < tuner.score(wrongConfig,
+                GNSSKalmanConfigTuningCriterion.INNOVATION_LIKELIHOOD));
+        wrongConfig.setPseudoRangeSD(0.01 * config.getPseudoRangeSD());
+        assertTrue(likelihood < tuner.score(wrongConfig,
+                GNSSKalmanConfigTuningCriterion.INNOVATION_LIKELIHOOD));
+
+        // force IllegalArgumentException
+        final GNSSKalmanConfigTuner tunerWithoutTruth = new GNSSKalmanConfigTuner(
+                measurements, timestamps, initialEstimation);
+        try {
+            tunerWithoutTruth.score(config,
+                    GNSSKalmanConfigTuningCriterion.POSITION_ERROR);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testParallelScore() throws GNSSException {
+        final ECEFPositionAndVelocity user = createUser(new Random());
+        final GNSSMeasurementBatch[] measurements = simulate(user,
+                EPOCH_INTERVAL_SECONDS, EPOCHS, new Random());
+        final double[] timestamps = createTimestamps();
+        final ECEFPosition[] truePositions = createTruePositions(user);
+        final GNSSEstimation initialEstimation = createInitialEstimation(user);
+        final GNSSKalmanConfigTuner tuner = new GNSSKalmanConfigTuner(measurements,
+                timestamps, initialEstimation, truePositions, NUMBER_OF_THREADS);
+        final GNSSKalmanConfigTuner sequentialTuner = new GNSSKalmanConfigTuner(
+                measurements, timestamps, initialEstimation, truePositions, 1);
+
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final List<GNSSKalmanConfig> configs = new ArrayList<>();
+        for (int i = 0; i < 3 * NUMBER_OF_THREADS + 1; i++) {
+            final GNSSKalmanConfig config = createKalmanConfig();
+            config.setAccelerationPSD(randomizer.nextDouble(0.01, 10.0));
+            config.setPseudoRangeSD(randomizer.nextDouble(1.0, 10.0));
+            configs.add(config);
+        }
+
+        for (final GNSSKalmanConfigTuningCriterion criterion :
+                GNSSKalmanConfigTuningCriterion.values()) {
+            final double[] scores = tuner.score(configs, criterion);
+            final double[] sequentialScores = sequentialTuner.score(configs,
+                    criterion);
+
+            assertEquals(configs.size(), scores.length);
+            for (int i = 0; i < configs.size(); i++) {
+                final double expected = tuner.score(configs.get(i), criterion);
+                assertEquals(expected, scores[i], 0.0);
+                assertEquals(expected, sequentialScores[i], 0.0);
+            }
+        }
+
+        // force IllegalArgumentException
+        try {
+            tuner.score(configs, GNSSKalmanConfigTuningCriterion.POSITION_ERROR,
+                    new double[1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testGridSearch() throws GNSSException {
+        final GNSSKalmanConfigTuner tuner = createTuner();
+        final GNSSKalmanConfig baseConfig = createKalmanConfig();
+
+        final GNSSKalmanConfigParameter[] parameters = {
+                GNSSKalmanConfigParameter.PSEUDO_RANGE_SD,
+                GNSSKalmanConfigParameter.ACCELERATION_PSD,
+                GNSSKalmanConfigParameter.RANGE_RATE_SD
+        };
+        final double[][] values = {
+                {0.5, 5.0, 50.0},
+                {0.01, 1.0},
+                {0.01, 0.1, 1.0, 10.0}
+        };
+
+        for (final GNSSKalmanConfigTuningCriterion criterion :
+                GNSSKalmanConfigTuningCriterion.values()) {
+            final GNSSKalmanConfig result = new GNSSKalmanConfig();
+            final double score = tuner.gridSearch(baseConfig, parameters, values,
+                    criterion, result);
+
+            // check against exhaustive sequential evaluation
+            double bestScore = Double.MAX_VALUE;
+            GNSSKalmanConfig best = null;
+            for (final double v0 : values[0]) {
+                for (final double v1 : values[1]) {
+                    for (final double v2 : values[2]) {
+                        final GNSSKalmanConfig config = new GNSSKalmanConfig(
+                                baseConfig);
+                        config.setPseudoRangeSD(v0);
+                        config.setAccelerationPSD(v1);
+                        config.setRangeRateSD(v2);
+                        final double s = tuner.score(config, criterion);
+                        if (s < bestScore) {
+                            bestScore = s;
+                            best = config;
+                        }
+                    }
+                }
+            }
+
+            assertEquals(bestScore, score, 0.0);
+            assertEquals(best, result);
+            assertEquals(baseConfig.getInitialPositionUncertainty(),
+                    result.getInitialPositionUncertainty(), 0.0);
+            assertEquals(baseConfig.getClockPhasePSD(), result.getClockPhasePSD(),
+                    0.0);
+        }
+
+        // force IllegalArgumentException
+        final GNSSKalmanConfig result = new GNSSKalmanConfig();
+        try {
+            tuner.gridSearch(baseConfig, new GNSSKalmanConfigParameter[0],
+                    new double[0][], GNSSKalmanConfigTuningCriterion.POSITION_ERROR,
+                    result);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            tuner.gridSearch(baseConfig, parameters, new double[1][],
+                    GNSSKalmanConfigTuningCriterion.POSITION_ERROR, result);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            tuner.gridSearch(baseConfig, parameters,
+                    new double[][]{values[0], new double[0], values[2]},
+                    GNSSKalmanConfigTuningCriterion.POSITION_ERROR, result);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testCoordinateDescent() throws GNSSException {
+        final GNSSKalmanConfigTuner tuner = createTuner();
+
+        // start from a badly tuned configuration
+        final GNSSKalmanConfig initialConfig = createKalmanConfig();
+        initialConfig.setPseudoRangeSD(100.0);
+        initialConfig.setRangeRateSD(10.0);
+        initialConfig.setAccelerationPSD(0.0);
+
+        final GNSSKalmanConfigParameter[] parameters = {
+                GNSSKalmanConfigParameter.PSEUDO_RANGE_SD,
+                GNSSKalmanConfigParameter.RANGE_RATE_SD,
+                GNSSKalmanConfigParameter.ACCELERATION_PSD
+        };
+
+        final GNSSKalmanConfigTuningCriterion criterion =
+                GNSSKalmanConfigTuningCriterion.INNOVATION_LIKELIHOOD;
+        final double initialScore = tuner.score(initialConfig, criterion);
+
+        final GNSSKalmanConfig result = new GNSSKalmanConfig();
+        final double score = tuner.coordinateDescent(initialConfig, parameters,
+                criterion, result);
+
+        assertTrue(score < initialScore);
+        assertEquals(tuner.score(result, criterion), score, 0.0);
+        assertTrue(result.getPseudoRangeSD() < initialConfig.getPseudoRangeSD());
+        assertTrue(result.getRangeRateSD() < initialConfig.getRangeRateSD());
+
+        // parameters with zero value or not being tuned are not modified
+        assertEquals(0.0, result.getAccelerationPSD(), 0.0);
+        assertEquals(initialConfig.getClockFrequencyPSD(),
+                result.getClockFrequencyPSD(), 0.0);
+
+        // a single sweep cannot be better than a full descent
+        final GNSSKalmanConfig singleSweepResult = new GNSSKalmanConfig();
+        final double singleSweepScore = tuner.coordinateDescent(initialConfig,
+                parameters, GNSSKalmanConfigTuner.DEFAULT_INITIAL_STEP_FACTOR,
+                GNSSKalmanConfigTuner.DEFAULT_MIN_STEP_FACTOR, 1, criterion,
+                singleSweepResult);
+        assertTrue(singleSweepScore < initialScore);
+        assertTrue(score <= singleSweepScore);
+
+        // force IllegalArgumentException
+        try {
+            tuner.coordinateDescent(initialConfig, new GNSSKalmanConfigParameter[0],
+                    criterion, result);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            tuner.coordinateDescent(initialConfig, parameters, 1.0,
+                    GNSSKalmanConfigTuner.DEFAULT_MIN_STEP_FACTOR,
+                    GNSSKalmanConfigTuner.DEFAULT_MAX_SWEEPS, criterion, result);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            tuner.coordinateDescent(initialConfig, parameters,
+                    GNSSKalmanConfigTuner.DEFAULT_INITIAL_STEP_FACTOR, 1.0,
+                    GNSSKalmanConfigTuner.DEFAULT_MAX_SWEEPS, criterion, result);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            tuner.coordinateDescent(initialConfig, parameters,
+                    GNSSKalmanConfigTuner.DEFAULT_INITIAL_STEP_FACTOR,
+                    GNSSKalmanConfigTuner.DEFAULT_MIN_STEP_FACTOR, 0, criterion,
+                    result);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    private static GNSSKalmanConfigTuner createTuner() throws GNSSException {
+        final ECEFPositionAndVelocity user = createUser(new Random());
+        return new GNSSKalmanConfigTuner(simulate(user, EPOCH_INTERVAL_SECONDS,
+                EPOCHS, new Random()), createTimestamps(),
+                createInitialEstimation(user), createTruePositions(user),
+                NUMBER_OF_THREADS);
+    }
+
+    private static GNSSEstimation createInitialEstimation(
+            final ECEFPositionAndVelocity user) {
+        return new GNSSEstimation(user.getX(), user.getY(), user.getZ(),
+                user.getVx(), user.getVy(), user.getVz(),
+                CLOCK_OFFSET, CLOCK_DRIFT);
+    }
+
+    private static double[] createTimestamps() {
+        final double[] result = new double[EPOCHS];
+        for (int e = 0; e < EPOCHS; e++) {
+            result[e] = (e + 1) * EPOCH_INTERVAL_SECONDS;
+        }
+        return result;
+    }
+
+    private static ECEFPosition[] createTruePositions(
+            final ECEFPositionAndVelocity user) {
+        // users are static
+        final ECEFPosition[] result = new ECEFPosition[EPOCHS];
+        for (int e = 0; e < EPOCHS; e++) {
+            result[e] = new ECEFPosition(user.getX(), user.getY(), user.getZ());
+        }
+        return result;
+    }
+
+    private static ECEFPositionAndVelocity createUser(final Random random) {
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final NEDPosition nedPosition = new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                        MAX_LATITUDE_DEGREES)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)),
+                randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT));
+
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                new NEDVelocity(), ecefPosition, ecefVelocity);
+        return new ECEFPositionAndVelocity(ecefPosition, ecefVelocity);
+    }
+
+    private static GNSSConfig createConfig() {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(EPOCH_INTERVAL_SECONDS);
+        config.setNumberOfSatellites(30);
+        config.setOrbitalRadiusOfSatellites(2.656175E7);
+        config.setSatellitesInclinationDegrees(55.0);
+        config.setMaskAngleDegrees(10.0);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(CLOCK_OFFSET);
+        config.setInitialReceiverClockDrift(CLOCK_DRIFT);
+        return config;
+    }
+
+    private static GNSSMeasurementBatch[] simulate(
+            final ECEFPositionAndVelocity user, final double startTime,
+            final int numberOfEpochs, final Random random) throws GNSSException {
+        return new GNSSMonteCarloSimulator(createConfig(),
+                Collections.singletonList(user), startTime, numberOfEpochs,
+                random.nextLong(), 1).simulate()[0];
+    }
+
+    private static GNSSKalmanConfig createKalmanConfig() {
+        return new GNSSKalmanConfig(10.0, 0.1, 10.0, 0.1, 1.0, 1.0, 1.0, 5.0, 0.1);
+    }
+}
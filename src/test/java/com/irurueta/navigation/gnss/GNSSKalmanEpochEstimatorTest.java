@@ -20,8 +20,13 @@ import com.irurueta.algebra.Matrix;
 import com.irurueta.algebra.Utils;
 import com.irurueta.geometry.Point3D;
 import com.irurueta.navigation.frames.ECEFFrame;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
 import com.irurueta.navigation.frames.NEDFrame;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
 import com.irurueta.navigation.frames.converters.NEDtoECEFFrameConverter;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
 import com.irurueta.navigation.geodesic.Constants;
 import com.irurueta.statistics.UniformRandomizer;
 import com.irurueta.units.Time;
@@ -69,6 +74,26 @@ public class GNSSKalmanEpochEstimatorTest {
 
     private static final int TIMES = 100;
 
+    private static final double GATING_CLOCK_OFFSET = 10000.0;
+    private static final double GATING_CLOCK_DRIFT = 100.0;
+    private static final double GATING_PSEUDO_RANGE_SD = 5.0;
+    private static final double GATING_RANGE_RATE_SD = 0.1;
+    private static final double PSEUDO_RANGE_FAULT = 500.0;
+
+    @Test
+    public void testGetTransitionSource() {
+        // transition matrix only differs from the identity at (0, 3), (1, 4),
+        // (2, 5) and (6, 7)
+        assertEquals(GNSSKalmanEpochEstimator.getTransitionSource(0), 3);
+        assertEquals(GNSSKalmanEpochEstimator.getTransitionSource(1), 4);
+        assertEquals(GNSSKalmanEpochEstimator.getTransitionSource(2), 5);
+        assertEquals(GNSSKalmanEpochEstimator.getTransitionSource(3), -1);
+        assertEquals(GNSSKalmanEpochEstimator.getTransitionSource(4), -1);
+        assertEquals(GNSSKalmanEpochEstimator.getTransitionSource(5), -1);
+        assertEquals(GNSSKalmanEpochEstimator.getTransitionSource(6), 7);
+        assertEquals(GNSSKalmanEpochEstimator.getTransitionSource(7), -1);
+    }
+
     @Test
     public void testEstimate() throws AlgebraException {
         for (int t = 0; t < TIMES; t++) {
@@ -235,6 +260,62 @@ public class GNSSKalmanEpochEstimatorTest {
 
             assertEquals(updatedEstimation1, updatedEstimation2);
             assertEquals(updatedCovariance1, updatedCovariance2);
+
+            // updated covariance is exactly symmetric
+            assertEquals(updatedCovariance1,
+                    updatedCovariance1.transposeAndReturnNew());
+
+            // packed estimation produces same results
+            final double[] previousPackedCovariance =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanState.pack(previousCovariance, previousPackedCovariance);
+            final GNSSEstimation updatedEstimation4 = new GNSSEstimation();
+            final double[] updatedPackedCovariance4 =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanEpochEstimator.estimate(measurements, propagationInterval,
+                    previousEstimation, previousPackedCovariance, config,
+                    updatedEstimation4, updatedPackedCovariance4);
+            final Matrix updatedCovariance4 = new Matrix(1, 1);
+            GNSSKalmanState.unpack(updatedPackedCovariance4, updatedCovariance4);
+
+            assertEquals(updatedEstimation1, updatedEstimation4);
+            assertEquals(updatedCovariance1, updatedCovariance4);
+
+            // estimation of measurements stored in a batch produces same results
+            final GNSSMeasurementBatch batch = new GNSSMeasurementBatch(measurements);
+            final GNSSEstimation updatedEstimation5 = new GNSSEstimation();
+            final double[] updatedPackedCovariance5 =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanEpochEstimator.estimate(batch, TIME_INTERVAL_SECONDS,
+                    previousEstimation, previousPackedCovariance, config,
+                    updatedEstimation5, updatedPackedCovariance5);
+
+            assertEquals(updatedEstimation1, updatedEstimation5);
+            assertArrayEquals(updatedPackedCovariance4, updatedPackedCovariance5, 0.0);
+
+            final GNSSEstimation updatedEstimation6 = new GNSSEstimation();
+            final double[] updatedPackedCovariance6 =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanEpochEstimator.estimate(batch, propagationInterval,
+                    previousEstimation, previousPackedCovariance, config,
+                    updatedEstimation6, updatedPackedCovariance6);
+
+            assertEquals(updatedEstimation1, updatedEstimation6);
+            assertArrayEquals(updatedPackedCovariance4, updatedPackedCovariance6, 0.0);
+
+            final GNSSKalmanState previousState = new GNSSKalmanState(
+                    previousEstimation, previousCovariance);
+            final GNSSKalmanState state7 = new GNSSKalmanState();
+            GNSSKalmanEpochEstimator.estimate(batch, TIME_INTERVAL_SECONDS,
+                    previousState, config, state7);
+            final GNSSKalmanState state8 = new GNSSKalmanState();
+            GNSSKalmanEpochEstimator.estimate(batch, propagationInterval,
+                    previousState, config, state8);
+
+            assertEquals(updatedEstimation1, state7.getEstimation());
+            assertArrayEquals(updatedPackedCovariance4,
+                    state7.getPackedCovariance(), 0.0);
+            assertEquals(state7, state8);
         }
     }
 
@@ -404,6 +485,164 @@ public class GNSSKalmanEpochEstimatorTest {
         }
     }
 
+    @Test
+    public void testEstimateWithInnovationGating() throws AlgebraException,
+            GNSSException {
+        final GNSSKalmanConfig config = createGatingConfig();
+
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPositionAndVelocity user = createGatingUser();
+            final GNSSMeasurementBatch measurements = simulateGating(user);
+            final int n = measurements.getSize();
+            if (n < MIN_MEASUREMENTS + 1) {
+                continue;
+            }
+
+            final GNSSEstimation previousEstimation = new GNSSEstimation(
+                    user.getX(), user.getY(), user.getZ(),
+                    user.getVx(), user.getVy(), user.getVz(),
+                    GATING_CLOCK_OFFSET, GATING_CLOCK_DRIFT);
+            final GNSSKalmanState previousState = GNSSKalmanInitializer.initialize(
+                    previousEstimation, config);
+            final double[] previousCovariance = previousState.getPackedCovariance();
+
+            // without gating, results are equal to the ungated estimation
+            final GNSSEstimation expectedEstimation = new GNSSEstimation();
+            final double[] expectedCovariance =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanEpochEstimator.estimate(measurements, 0.0,
+                    previousEstimation, previousCovariance, config,
+                    expectedEstimation, expectedCovariance);
+
+            final GNSSEstimation ungatedEstimation = new GNSSEstimation();
+            final double[] ungatedCovariance =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            final boolean[] rejected = new boolean[2 * n];
+            assertEquals(0, GNSSKalmanEpochEstimator.estimate(measurements, 0.0,
+                    previousEstimation, previousCovariance, config,
+                    Double.POSITIVE_INFINITY, ungatedEstimation,
+                    ungatedCovariance, rejected));
+            assertEquals(expectedEstimation, ungatedEstimation);
+            assertArrayEquals(expectedCovariance, ungatedCovariance, 0.0);
+            for (final boolean r : rejected) {
+                assertFalse(r);
+            }
+
+            // consistent measurements are accepted by default threshold
+            final GNSSEstimation gatedEstimation = new GNSSEstimation();
+            final double[] gatedCovariance =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            final int numRejected = GNSSKalmanEpochEstimator.estimate(
+                    measurements, 0.0, previousEstimation, previousCovariance,
+                    config, GNSSKalmanEpochEstimator.DEFAULT_INNOVATION_GATE_THRESHOLD,
+                    gatedEstimation, gatedCovariance, rejected);
+            if (numRejected > 0) {
+                // noise might exceed threshold with a small probability
+                continue;
+            }
+            assertEquals(expectedEstimation, gatedEstimation);
+            assertArrayEquals(expectedCovariance, gatedCovariance, 0.0);
+
+            // add a large error to the pseudo-range of a single satellite
+            final int faulty = new Random().nextInt(n);
+            measurements.getPseudoRanges()[faulty] += PSEUDO_RANGE_FAULT;
+
+            final GNSSEstimation faultyEstimation = new GNSSEstimation();
+            final double[] faultyCovariance =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanEpochEstimator.estimate(measurements, 0.0,
+                    previousEstimation, previousCovariance, config,
+                    faultyEstimation, faultyCovariance);
+
+            final GNSSKalmanState result = new GNSSKalmanState();
+            assertEquals(1, GNSSKalmanEpochEstimator.estimate(measurements,
+                    0.0, previousState, config,
+                    GNSSKalmanEpochEstimator.DEFAULT_INNOVATION_GATE_THRESHOLD,
+                    result, rejected));
+            for (int i = 0; i < 2 * n; i++) {
+                assertEquals(i == faulty, rejected[i]);
+            }
+
+            // rejecting faulty measurement keeps estimation close to the
+            // fault free one
+            final GNSSEstimation estimation = result.getEstimation();
+            assertTrue(positionError(estimation, user)
+                    < positionError(faultyEstimation, user));
+            assertTrue(positionError(estimation, user) < PSEUDO_RANGE_FAULT / 10.0);
+            numValid++;
+        }
+
+        assertTrue(numValid > 0);
+    }
+
+    @Test
+    public void testEstimateWithAllInnovationsRejected() throws AlgebraException,
+            GNSSException {
+        final GNSSKalmanConfig config = createGatingConfig();
+
+        final ECEFPositionAndVelocity user = createGatingUser();
+        final GNSSMeasurementBatch measurements = simulateGating(user);
+        final int n = measurements.getSize();
+
+        // all pseudo-ranges and rates are offset
+        for (int i = 0; i < n; i++) {
+            measurements.getPseudoRanges()[i] += PSEUDO_RANGE_FAULT;
+            measurements.getPseudoRates()[i] += PSEUDO_RANGE_FAULT;
+        }
+
+        final GNSSEstimation previousEstimation = new GNSSEstimation(
+                user.getX(), user.getY(), user.getZ(),
+                user.getVx(), user.getVy(), user.getVz(),
+                GATING_CLOCK_OFFSET, GATING_CLOCK_DRIFT);
+        final GNSSKalmanState previousState = GNSSKalmanInitializer.initialize(
+                previousEstimation, config);
+
+        final GNSSKalmanState result = new GNSSKalmanState();
+        final boolean[] rejected = new boolean[2 * n];
+        assertEquals(2 * n, GNSSKalmanEpochEstimator.estimate(measurements,
+                TIME_INTERVAL_SECONDS, previousState, config,
+                GNSSKalmanEpochEstimator.DEFAULT_INNOVATION_GATE_THRESHOLD,
+                result, rejected));
+        for (final boolean r : rejected) {
+            assertTrue(r);
+        }
+
+        // state is only propagated
+        final GNSSEstimation expectedEstimation = new GNSSEstimation();
+        final double[] expectedCovariance =
+                new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        GNSSKalmanEpochEstimator.predict(TIME_INTERVAL_SECONDS,
+                previousEstimation, previousState.getPackedCovariance(), config,
+                expectedEstimation, expectedCovariance);
+        assertEquals(expectedEstimation, result.getEstimation());
+        assertArrayEquals(expectedCovariance, result.getPackedCovariance(), 0.0);
+
+        // Force IllegalArgumentException
+        try {
+            GNSSKalmanEpochEstimator.estimate(measurements, TIME_INTERVAL_SECONDS,
+                    previousState, config, 0.0, result, rejected);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            GNSSKalmanEpochEstimator.estimate(measurements, TIME_INTERVAL_SECONDS,
+                    previousState, config,
+                    GNSSKalmanEpochEstimator.DEFAULT_INNOVATION_GATE_THRESHOLD,
+                    result, new boolean[1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            GNSSKalmanEpochEstimator.estimate(measurements, TIME_INTERVAL_SECONDS,
+                    new GNSSKalmanState(), config,
+                    GNSSKalmanEpochEstimator.DEFAULT_INNOVATION_GATE_THRESHOLD,
+                    result, rejected);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
     private void estimate(final List<GNSSMeasurement> measurements,
                           final GNSSEstimation previousEstimation,
                           final Matrix previousCovariance,
@@ -606,4 +845,53 @@ public class GNSSKalmanEpochEstimatorTest {
         updatedEstimation.fromMatrix(xEstNew);
         updatedCovariance.copyFrom(pMatrixNew);
     }
+
+    private static GNSSKalmanConfig createGatingConfig() {
+        return new GNSSKalmanConfig(10.0, 0.1, 10.0, 0.1, 1.0, 1.0, 1.0,
+                GATING_PSEUDO_RANGE_SD, GATING_RANGE_RATE_SD);
+    }
+
+    private static ECEFPositionAndVelocity createGatingUser() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final NEDPosition nedPosition = new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(-70.0, 70.0)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)),
+                randomizer.nextDouble(MIN_HEIGHT_METERS, MAX_HEIGHT_METERS));
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                new NEDVelocity(), ecefPosition, ecefVelocity);
+        return new ECEFPositionAndVelocity(ecefPosition, ecefVelocity);
+    }
+
+    private static GNSSMeasurementBatch simulateGating(
+            final ECEFPositionAndVelocity user) throws GNSSException {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(1.0);
+        config.setNumberOfSatellites(30);
+        config.setOrbitalRadiusOfSatellites(2.656175E7);
+        config.setSatellitesInclinationDegrees(55.0);
+        config.setMaskAngleDegrees(10.0);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(GATING_CLOCK_OFFSET);
+        config.setInitialReceiverClockDrift(GATING_CLOCK_DRIFT);
+
+        final List<ECEFPositionAndVelocity> users = new ArrayList<>();
+        users.add(user);
+        return new GNSSMonteCarloSimulator(config, users, 0.0, 1,
+                new Random().nextLong(), 1).simulate()[0][0];
+    }
+
+    private static double positionError(final GNSSEstimation estimation,
+                                        final ECEFPositionAndVelocity user) {
+        final double dx = estimation.getX() - user.getX();
+        final double dy = estimation.getY() - user.getY();
+        final double dz = estimation.getZ() - user.getZ();
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
 }
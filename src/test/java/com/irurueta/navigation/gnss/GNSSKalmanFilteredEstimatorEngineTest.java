@@ -0,0 +1,582 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class GNSSKalmanFilteredEstimatorEngineTest implements
+        GNSSKalmanFilteredEstimatorEngineListener<Integer> {
+
+    private static final double MIN_VALUE = 1e-4;
+    private static final double MAX_VALUE = 1e-3;
+
+    private static final double MIN_EPOCH_INTERVAL = 1e-5;
+    private static final double MAX_EPOCH_INTERVAL = 1.0;
+
+    private static final int MIN_NUM_SAT = 4;
+    private static final int MAX_NUM_SAT = 10;
+
+    private static final double MIN_TIME = 0.0;
+    private static final double MAX_TIME = 1.0;
+
+    private static final double MIN_LATITUDE_DEGREES = -90.0;
+    private static final double MAX_LATITUDE_DEGREES = 90.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_USER_HEIGHT = -50.0;
+    private static final double MAX_USER_HEIGHT = 50.0;
+
+    private static final double MIN_USER_VELOCITY_VALUE = -2.0;
+    private static final double MAX_USER_VELOCITY_VALUE = 2.0;
+
+    private static final double MIN_SAT_HEIGHT = 150000.0;
+    private static final double MAX_SAT_HEIGHT = 800000.0;
+
+    private static final double MIN_SAT_VELOCITY_VALUE = -3500.0;
+    private static final double MAX_SAT_VELOCITY_VALUE = 3500.0;
+
+    private static final double MIN_MASK_ANGLE_DEGREES = 15.0;
+    private static final double MAX_MASK_ANGLE_DEGREES = 20.0;
+
+    private static final int NUM_SHARDS = 3;
+
+    private static final int NUM_DEVICES = 20;
+
+    private static final int NUM_EPOCHS = 3;
+
+    private static final long TIMEOUT = 60000L;
+
+    private static final int QUEUE_CAPACITY = 2;
+
+    private final Map<Integer, GNSSKalmanState> mStates =
+            new ConcurrentHashMap<>();
+
+    private final Map<Integer, Exception> mFailures = new ConcurrentHashMap<>();
+
+    private final AtomicInteger mUpdated = new AtomicInteger();
+
+    private final AtomicInteger mIgnored = new AtomicInteger();
+
+    private CountDownLatch mLatch;
+
+    @Test
+    public void testConstructor() {
+        final GNSSKalmanConfig kalmanConfig = generateKalmanConfig();
+
+        // test constructor with config and listener
+        GNSSKalmanFilteredEstimatorEngine<Integer> engine =
+                new GNSSKalmanFilteredEstimatorEngine<>(kalmanConfig, this);
+
+        // check default values
+        assertEquals(Runtime.getRuntime().availableProcessors(),
+                engine.getNumberOfShards());
+        assertEquals(kalmanConfig, engine.getConfig());
+        final GNSSKalmanConfig config = new GNSSKalmanConfig();
+        engine.getConfig(config);
+        assertEquals(kalmanConfig, config);
+        assertEquals(0.0, engine.getEpochInterval(), 0.0);
+        assertEquals(new Time(0.0, TimeUnit.SECOND),
+                engine.getEpochIntervalAsTime());
+        assertEquals(GNSSKalmanFilteredEstimatorEngine.DEFAULT_QUEUE_CAPACITY,
+                engine.getQueueCapacity());
+        assertSame(this, engine.getListener());
+        assertEquals(0, engine.getNumberOfDevices());
+        assertFalse(engine.isShutdown());
+
+        engine.shutdown();
+        assertTrue(engine.isShutdown());
+
+        // test constructor with number of shards
+        engine = new GNSSKalmanFilteredEstimatorEngine<>(NUM_SHARDS, kalmanConfig,
+                this);
+
+        // check default values
+        assertEquals(NUM_SHARDS, engine.getNumberOfShards());
+        assertEquals(kalmanConfig, engine.getConfig());
+        assertEquals(0.0, engine.getEpochInterval(), 0.0);
+        assertSame(this, engine.getListener());
+
+        engine.shutdown();
+
+        // test constructor with epoch interval
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double epochInterval = randomizer.nextDouble(MIN_EPOCH_INTERVAL,
+                MAX_EPOCH_INTERVAL);
+        engine = new GNSSKalmanFilteredEstimatorEngine<>(NUM_SHARDS, kalmanConfig,
+                epochInterval, this);
+
+        // check default values
+        assertEquals(NUM_SHARDS, engine.getNumberOfShards());
+        assertEquals(kalmanConfig, engine.getConfig());
+        assertEquals(epochInterval, engine.getEpochInterval(), 0.0);
+        final Time epochIntervalTime = new Time(0.0, TimeUnit.MILLISECOND);
+        engine.getEpochIntervalAsTime(epochIntervalTime);
+        assertEquals(new Time(epochInterval, TimeUnit.SECOND), epochIntervalTime);
+        assertSame(this, engine.getListener());
+
+        engine.shutdown();
+
+        engine = new GNSSKalmanFilteredEstimatorEngine<>(NUM_SHARDS, kalmanConfig,
+                new Time(epochInterval, TimeUnit.SECOND), null);
+
+        // check default values
+        assertEquals(NUM_SHARDS, engine.getNumberOfShards());
+        assertEquals(epochInterval, engine.getEpochInterval(), 0.0);
+        assertNull(engine.getListener());
+
+        engine.shutdown();
+
+        // test constructor with queue capacity
+        engine = new GNSSKalmanFilteredEstimatorEngine<>(NUM_SHARDS, kalmanConfig,
+                epochInterval, QUEUE_CAPACITY, this);
+
+        // check default values
+        assertEquals(NUM_SHARDS, engine.getNumberOfShards());
+        assertEquals(epochInterval, engine.getEpochInterval(), 0.0);
+        assertEquals(QUEUE_CAPACITY, engine.getQueueCapacity());
+        assertSame(this, engine.getListener());
+
+        engine.shutdown();
+
+        // Force IllegalArgumentException
+        engine = null;
+        try {
+            engine = new GNSSKalmanFilteredEstimatorEngine<>(0, kalmanConfig,
+                    this);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            engine = new GNSSKalmanFilteredEstimatorEngine<>(NUM_SHARDS,
+                    kalmanConfig, -1.0, this);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            engine = new GNSSKalmanFilteredEstimatorEngine<>(NUM_SHARDS,
+                    kalmanConfig, 0.0, 0, this);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        assertNull(engine);
+    }
+
+    @Test
+    public void testSubmitMeasurements() throws NotReadyException,
+            InterruptedException {
+        final Random random = new Random();
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final GNSSKalmanConfig kalmanConfig = generateKalmanConfig();
+
+        final List<Collection<GNSSMeasurement>> measurements = new ArrayList<>();
+        for (int i = 0; i < NUM_DEVICES; i++) {
+            measurements.add(generateMeasurements(random));
+        }
+
+        final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+        // compute expected results sequentially
+        final GNSSKalmanState[] expectedStates = new GNSSKalmanState[NUM_DEVICES];
+        final boolean[] expectedFailures = new boolean[NUM_DEVICES];
+        for (int i = 0; i < NUM_DEVICES; i++) {
+            final GNSSKalmanFilteredEstimator estimator =
+                    new GNSSKalmanFilteredEstimator(kalmanConfig);
+            try {
+                for (int e = 0; e < NUM_EPOCHS; e++) {
+                    assertTrue(estimator.updateMeasurements(measurements.get(i),
+                            timeSeconds + e));
+                }
+                expectedStates[i] = estimator.getState();
+            } catch (final Exception ex) {
+                expectedFailures[i] = true;
+            }
+        }
+
+        final GNSSKalmanFilteredEstimatorEngine<Integer> engine =
+                new GNSSKalmanFilteredEstimatorEngine<>(NUM_SHARDS, kalmanConfig,
+                        this);
+
+        // submit all epochs of all devices from several threads, where each
+        // thread submits the epochs of a subset of devices in order
+        reset(NUM_DEVICES * NUM_EPOCHS);
+        final Thread[] threads = new Thread[NUM_SHARDS];
+        for (int t = 0; t < NUM_SHARDS; t++) {
+            final int first = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int e = 0; e < NUM_EPOCHS; e++) {
+                        for (int i = first; i < NUM_DEVICES; i += NUM_SHARDS) {
+                            try {
+                                engine.submitMeasurements(i, measurements.get(i),
+                                        timeSeconds + e);
+                            } catch (final NotReadyException ex) {
+                                fail();
+                            }
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(mLatch.await(TIMEOUT, java.util.concurrent.TimeUnit.MILLISECONDS));
+
+        assertEquals(NUM_DEVICES, engine.getNumberOfDevices());
+        assertEquals(0, mIgnored.get());
+        for (int i = 0; i < NUM_DEVICES; i++) {
+            if (expectedFailures[i]) {
+                assertTrue(mFailures.containsKey(i));
+            } else {
+                assertFalse(mFailures.containsKey(i));
+                assertEquals(expectedStates[i], mStates.get(i));
+            }
+        }
+
+        // submitting same timestamp again is ignored
+        reset(1);
+        engine.submitMeasurements(0, measurements.get(0),
+                new Time(timeSeconds + NUM_EPOCHS - 1, TimeUnit.SECOND));
+        assertTrue(mLatch.await(TIMEOUT, java.util.concurrent.TimeUnit.MILLISECONDS));
+        if (!expectedFailures[0]) {
+            assertEquals(1, mIgnored.get());
+            assertEquals(0, mUpdated.get());
+        }
+
+        // remove devices
+        for (int i = 0; i < NUM_DEVICES; i++) {
+            engine.removeDevice(i);
+        }
+        // removing unknown device has no effect
+        engine.removeDevice(NUM_DEVICES);
+
+        engine.shutdown();
+        assertTrue(engine.awaitTermination(TIMEOUT));
+        assertTrue(engine.isShutdown());
+        assertEquals(0, engine.getNumberOfDevices());
+
+        // Force IllegalStateException
+        try {
+            engine.submitMeasurements(0, measurements.get(0), timeSeconds);
+            fail("IllegalStateException expected but not thrown");
+        } catch (final IllegalStateException ignore) {
+        }
+        try {
+            engine.removeDevice(0);
+            fail("IllegalStateException expected but not thrown");
+        } catch (final IllegalStateException ignore) {
+        }
+    }
+
+    @Test
+    public void testSubmitMeasurementsInvalid() throws NotReadyException {
+        final GNSSKalmanFilteredEstimatorEngine<Integer> engine =
+                new GNSSKalmanFilteredEstimatorEngine<>(NUM_SHARDS,
+                        generateKalmanConfig(), this);
+
+        final Collection<GNSSMeasurement> measurements =
+                generateMeasurements(new Random());
+
+        // Force IllegalArgumentException
+        try {
+            engine.submitMeasurements(null, measurements, 0.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            engine.removeDevice(null);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // Force NotReadyException
+        try {
+            engine.submitMeasurements(0,
+                    Collections.<GNSSMeasurement>emptyList(), 0.0);
+            fail("NotReadyException expected but not thrown");
+        } catch (final NotReadyException ignore) {
+        }
+
+        engine.shutdown();
+    }
+
+    @Test
+    public void testBoundedQueueAndFailingListener() throws NotReadyException,
+            InterruptedException {
+        final Collection<GNSSMeasurement> measurements =
+                generateMeasurements(new Random());
+
+        // listener fails on every event
+        final CountDownLatch latch = new CountDownLatch(NUM_DEVICES * NUM_EPOCHS);
+        final GNSSKalmanFilteredEstimatorEngineListener<Integer> listener =
+                new GNSSKalmanFilteredEstimatorEngineListener<Integer>() {
+                    @Override
+                    public void onUpdated(
+                            final GNSSKalmanFilteredEstimatorEngine<Integer> engine,
+                            final Integer deviceId,
+                            final GNSSKalmanFilteredEstimator estimator) {
+                        latch.countDown();
+                        throw new IllegalStateException();
+                    }
+
+                    @Override
+                    public void onIgnored(
+                            final GNSSKalmanFilteredEstimatorEngine<Integer> engine,
+                            final Integer deviceId, final double timestamp) {
+                        latch.countDown();
+                        throw new IllegalStateException();
+                    }
+
+                    @Override
+                    public void onFailed(
+                            final GNSSKalmanFilteredEstimatorEngine<Integer> engine,
+                            final Integer deviceId, final Exception e) {
+                        latch.countDown();
+                        throw new IllegalStateException();
+                    }
+                };
+
+        // a single shard with a small queue blocks submissions until the worker
+        // thread catches up
+        final GNSSKalmanFilteredEstimatorEngine<Integer> engine =
+                new GNSSKalmanFilteredEstimatorEngine<>(1, generateKalmanConfig(),
+                        0.0, QUEUE_CAPACITY, listener);
+        for (int e = 0; e < NUM_EPOCHS; e++) {
+            for (int i = 0; i < NUM_DEVICES; i++) {
+                engine.submitMeasurements(i, measurements, e);
+            }
+        }
+
+        // all submissions are processed despite listener failures
+        assertTrue(latch.await(TIMEOUT, java.util.concurrent.TimeUnit.MILLISECONDS));
+        assertEquals(NUM_DEVICES, engine.getNumberOfDevices());
+
+        engine.shutdown();
+        assertTrue(engine.awaitTermination(TIMEOUT));
+    }
+
+    @Override
+    public void onUpdated(final GNSSKalmanFilteredEstimatorEngine<Integer> engine,
+                          final Integer deviceId,
+                          final GNSSKalmanFilteredEstimator estimator) {
+        assertFalse(estimator.isRunning());
+        mStates.put(deviceId, estimator.getState());
+        mUpdated.incrementAndGet();
+        mLatch.countDown();
+    }
+
+    @Override
+    public void onIgnored(final GNSSKalmanFilteredEstimatorEngine<Integer> engine,
+                          final Integer deviceId, final double timestamp) {
+        mIgnored.incrementAndGet();
+        mLatch.countDown();
+    }
+
+    @Override
+    public void onFailed(final GNSSKalmanFilteredEstimatorEngine<Integer> engine,
+                         final Integer deviceId, final Exception e) {
+        mFailures.put(deviceId, e);
+        mLatch.countDown();
+    }
+
+    private void reset(final int count) {
+        mUpdated.set(0);
+        mIgnored.set(0);
+        mLatch = new CountDownLatch(count);
+    }
+
+    private static Collection<GNSSMeasurement> generateMeasurements(
+            final Random random) {
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+
+        Collection<GNSSMeasurement> measurements;
+        do {
+            final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+            final double userLatitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LATITUDE_DEGREES, MAX_LATITUDE_DEGREES));
+            final double userLongitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LONGITUDE_DEGREES, MAX_LONGITUDE_DEGREES));
+            final double userHeight = randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT);
+            final NEDPosition nedUserPosition =
+                    new NEDPosition(userLatitude, userLongitude, userHeight);
+
+            final double userVn = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVe = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVd = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final NEDVelocity nedUserVelocity = new NEDVelocity(userVn, userVe, userVd);
+
+            final ECEFPosition ecefUserPosition = new ECEFPosition();
+            final ECEFVelocity ecefUserVelocity = new ECEFVelocity();
+            NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                    nedUserPosition, nedUserVelocity, ecefUserPosition, ecefUserVelocity);
+
+            final ECEFPositionAndVelocity ecefUserPositionAndVelocity =
+                    new ECEFPositionAndVelocity(ecefUserPosition, ecefUserVelocity);
+
+            final GNSSConfig config = generateConfig();
+            final int numSatellites = config.getNumberOfSatellites();
+            final double maskAngle = Math.toRadians(config.getMaskAngleDegrees());
+            final double delta = maskAngle / 3.0;
+
+            final List<Double> biases = new ArrayList<>();
+            final List<ECEFPositionAndVelocity> satellitePositionsAndVelocities =
+                    new ArrayList<>();
+            for (int n = 0; n < numSatellites; n++) {
+                final double satLatitude = randomizer.nextDouble(
+                        userLatitude - delta,
+                        userLatitude + delta);
+                final double satLongitude = randomizer.nextDouble(
+                        userLongitude - delta,
+                        userLongitude + delta);
+                final double satHeight = randomizer.nextDouble(MIN_SAT_HEIGHT,
+                        MAX_SAT_HEIGHT);
+                final NEDPosition nedSatPosition =
+                        new NEDPosition(satLatitude, satLongitude, satHeight);
+
+                final double satVn = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVe = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVd = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final NEDVelocity nedSatVelocity = new NEDVelocity(satVn, satVe, satVd);
+
+                final ECEFPosition ecefSatPosition = new ECEFPosition();
+                final ECEFVelocity ecefSatVelocity = new ECEFVelocity();
+                NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                        nedSatPosition, nedSatVelocity, ecefSatPosition, ecefSatVelocity);
+
+                final ECEFPositionAndVelocity ecefSatPositionAndVelocity =
+                        new ECEFPositionAndVelocity(ecefSatPosition, ecefSatVelocity);
+
+                final double bias = GNSSBiasesGenerator.generateBias(ecefSatPosition,
+                        ecefUserPosition, config, random);
+
+                biases.add(bias);
+                satellitePositionsAndVelocities.add(ecefSatPositionAndVelocity);
+            }
+
+            measurements = GNSSMeasurementsGenerator.generate(timeSeconds,
+                    satellitePositionsAndVelocities, ecefUserPositionAndVelocity,
+                    biases, config, random);
+        } while (measurements.size() <
+                GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS);
+
+        return measurements;
+    }
+
+    private static GNSSKalmanConfig generateKalmanConfig() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double initialPositionUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double initialVelocityUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double initialClockOffsetUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double initialClockDriftUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double accelerationPSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double clockFrequencyPSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double clockPhasePSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double pseudoRangeSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double rangeRateSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+
+        return new GNSSKalmanConfig(initialPositionUncertainty,
+                initialVelocityUncertainty, initialClockOffsetUncertainty,
+                initialClockDriftUncertainty, accelerationPSD, clockFrequencyPSD,
+                clockPhasePSD, pseudoRangeSD, rangeRateSD);
+    }
+
+    private static GNSSConfig generateConfig() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double epochInterval = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double initialEstimatedEcefPositionX = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialEstimatedEcefPositionY = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialEstimatedEcefPositionZ = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final int numberOfSatellites = randomizer.nextInt(MIN_NUM_SAT,
+                MAX_NUM_SAT);
+        final double orbitalRadiusOfSatellites = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double satellitesInclinationDegrees = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double constellationLongitudeOffsetDegrees = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double constellationTimingOffset = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double maskAngleDegrees = randomizer.nextDouble(
+                MIN_MASK_ANGLE_DEGREES, MAX_MASK_ANGLE_DEGREES);
+        final double sisErrorSD = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double zenithIonosphereErrorSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double zenithTroposphereErrorSD = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double codeTrackingErrorSD = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double rangeRateTrackingErrorSD = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialReceiverClockOffset = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialReceiverClockDrift = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+
+        return new GNSSConfig(epochInterval, initialEstimatedEcefPositionX,
+                initialEstimatedEcefPositionY, initialEstimatedEcefPositionZ,
+                numberOfSatellites, orbitalRadiusOfSatellites,
+                satellitesInclinationDegrees, constellationLongitudeOffsetDegrees,
+                constellationTimingOffset, maskAngleDegrees, sisErrorSD,
+                zenithIonosphereErrorSD, zenithTroposphereErrorSD, codeTrackingErrorSD,
+                rangeRateTrackingErrorSD, initialReceiverClockOffset,
+                initialReceiverClockDrift);
+    }
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSKalmanFilteredEstimatorReorderBufferTest {
+
+    private static final double MIN_VALUE = 1e-4;
+    private static final double MAX_VALUE = 1e-3;
+
+    private static final double MIN_EPOCH_INTERVAL = 1e-5;
+    private static final double MAX_EPOCH_INTERVAL = 1.0;
+
+    private static final int MIN_NUM_SAT = 4;
+    private static final int MAX_NUM_SAT = 10;
+
+    private static final double MIN_TIME = 0.0;
+    private static final double MAX_TIME = 1.0;
+
+    private static final double MIN_LATITUDE_DEGREES = -90.0;
+    private static final double MAX_LATITUDE_DEGREES = 90.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_USER_HEIGHT = -50.0;
+    private static final double MAX_USER_HEIGHT = 50.0;
+
+    private static final double MIN_USER_VELOCITY_VALUE = -2.0;
+    private static final double MAX_USER_VELOCITY_VALUE = 2.0;
+
+    private static final double MIN_SAT_HEIGHT = 150000.0;
+    private static final double MAX_SAT_HEIGHT = 800000.0;
+
+    private static final double MIN_SAT_VELOCITY_VALUE = -3500.0;
+    private static final double MAX_SAT_VELOCITY_VALUE = 3500.0;
+
+    private static final double MIN_MASK_ANGLE_DEGREES = 15.0;
+    private static final double MAX_MASK_ANGLE_DEGREES = 20.0;
+
+    private static final double MAX_LATENCY = 1.5;
+
+    private static final int MAX_SIZE = 4;
+
+    private static final int TIMES = 100;
+
+    @Test
+    public void testConstructor() {
+        final GNSSKalmanFilteredEstimator estimator =
+                new GNSSKalmanFilteredEstimator(generateKalmanConfig());
+
+        GNSSKalmanFilteredEstimatorReorderBuffer buffer =
+                new GNSSKalmanFilteredEstimatorReorderBuffer(estimator, MAX_LATENCY);
+
+        // check default values
+        assertSame(estimator, buffer.getEstimator());
+        assertEquals(MAX_LATENCY, buffer.getMaxLatency(), 0.0);
+        assertEquals(new Time(MAX_LATENCY, TimeUnit.SECOND),
+                buffer.getMaxLatencyAsTime());
+        final Time maxLatency = new Time(0.0, TimeUnit.MILLISECOND);
+        buffer.getMaxLatencyAsTime(maxLatency);
+        assertEquals(new Time(MAX_LATENCY, TimeUnit.SECOND), maxLatency);
+        assertEquals(GNSSKalmanFilteredEstimatorReorderBuffer.DEFAULT_MAX_SIZE,
+                buffer.getMaxSize());
+        assertEquals(0, buffer.getBufferedCount());
+        assertEquals(0, buffer.getLateCount());
+        assertEquals(0, buffer.getDroppedCount());
+        assertEquals(0, buffer.getReleasedCount());
+        assertNull(buffer.getLastReleasedTimestamp());
+
+        buffer = new GNSSKalmanFilteredEstimatorReorderBuffer(estimator,
+                new Time(MAX_LATENCY, TimeUnit.SECOND));
+
+        // check default values
+        assertEquals(MAX_LATENCY, buffer.getMaxLatency(), 0.0);
+        assertEquals(GNSSKalmanFilteredEstimatorReorderBuffer.DEFAULT_MAX_SIZE,
+                buffer.getMaxSize());
+
+        buffer = new GNSSKalmanFilteredEstimatorReorderBuffer(estimator,
+                MAX_LATENCY, MAX_SIZE);
+
+        // check default values
+        assertEquals(MAX_LATENCY, buffer.getMaxLatency(), 0.0);
+        assertEquals(MAX_SIZE, buffer.getMaxSize());
+
+        buffer = new GNSSKalmanFilteredEstimatorReorderBuffer(estimator,
+                new Time(MAX_LATENCY, TimeUnit.SECOND), MAX_SIZE);
+
+        // check default values
+        assertEquals(MAX_LATENCY, buffer.getMaxLatency(), 0.0);
+        assertEquals(MAX_SIZE, buffer.getMaxSize());
+
+        // Force IllegalArgumentException
+        buffer = null;
+        try {
+            buffer = new GNSSKalmanFilteredEstimatorReorderBuffer(estimator, -1.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            buffer = new GNSSKalmanFilteredEstimatorReorderBuffer(estimator,
+                    MAX_LATENCY, 0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // Force NullPointerException
+        try {
+            buffer = new GNSSKalmanFilteredEstimatorReorderBuffer(null,
+                    MAX_LATENCY);
+            fail("NullPointerException expected but not thrown");
+        } catch (final NullPointerException ignore) {
+        }
+        assertNull(buffer);
+    }
+
+    @Test
+    public void testRejectedSetsAreDropped() throws LockedException,
+            NotReadyException {
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final Random random = new Random();
+            final UniformRandomizer randomizer = new UniformRandomizer(random);
+            final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+            final Collection<GNSSMeasurement> measurements =
+                    generateMeasurements(random);
+
+            // estimator ignores sets within 1 second of its last update
+            final GNSSKalmanFilteredEstimator estimator =
+                    new GNSSKalmanFilteredEstimator(generateKalmanConfig(), 1.0);
+            final GNSSKalmanFilteredEstimatorReorderBuffer buffer =
+                    new GNSSKalmanFilteredEstimatorReorderBuffer(estimator,
+                            MAX_LATENCY, MAX_SIZE);
+
+            try {
+                assertTrue(buffer.add(measurements, timeSeconds));
+                assertTrue(buffer.add(measurements, timeSeconds + 0.5));
+                assertEquals(2, buffer.getBufferedCount());
+
+                // second set is rejected by estimator
+                assertEquals(1, buffer.flush());
+                assertEquals(0, buffer.getBufferedCount());
+                assertEquals(1, buffer.getReleasedCount());
+                assertEquals(1, buffer.getDroppedCount());
+                assertEquals(timeSeconds, estimator.getLastStateTimestamp(), 0.0);
+                assertEquals(timeSeconds + 0.5, buffer.getLastReleasedTimestamp(),
+                        0.0);
+            } catch (final GNSSException e) {
+                continue;
+            }
+
+            numValid++;
+            break;
+        }
+
+        assertTrue(numValid > 0);
+    }
+
+    @Test
+    public void testAddReleaseAndFlush() throws LockedException,
+            NotReadyException {
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final Random random = new Random();
+            final UniformRandomizer randomizer = new UniformRandomizer(random);
+            final GNSSKalmanConfig kalmanConfig = generateKalmanConfig();
+            final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+            final Collection<GNSSMeasurement> measurements =
+                    generateMeasurements(random);
+
+            final GNSSKalmanFilteredEstimator estimator =
+                    new GNSSKalmanFilteredEstimator(kalmanConfig);
+            final GNSSKalmanFilteredEstimatorReorderBuffer buffer =
+                    new GNSSKalmanFilteredEstimatorReorderBuffer(estimator,
+                            MAX_LATENCY, MAX_SIZE);
+
+            try {
+                // first set is held
+                assertTrue(buffer.add(measurements, timeSeconds));
+                assertEquals(1, buffer.getBufferedCount());
+                assertNull(estimator.getLastStateTimestamp());
+
+                // newer set releases first one
+                assertTrue(buffer.add(measurements, new Time(timeSeconds + 2.0,
+                        TimeUnit.SECOND)));
+                assertEquals(1, buffer.getBufferedCount());
+                assertEquals(timeSeconds, estimator.getLastStateTimestamp(), 0.0);
+                assertEquals(timeSeconds, buffer.getLastReleasedTimestamp(), 0.0);
+
+                // late set is held and reordered
+                assertTrue(buffer.add(measurements, timeSeconds + 1.0));
+                assertEquals(2, buffer.getBufferedCount());
+                assertEquals(1, buffer.getLateCount());
+
+                // newer set releases late one before the others
+                assertTrue(buffer.add(measurements, timeSeconds + 3.0));
+                assertEquals(2, buffer.getBufferedCount());
+                assertEquals(timeSeconds + 1.0, estimator.getLastStateTimestamp(),
+                        0.0);
+
+                // set older than last released one is dropped
+                assertFalse(buffer.add(measurements, timeSeconds + 0.5));
+                assertEquals(1, buffer.getDroppedCount());
+
+                // duplicated set is dropped
+                assertFalse(buffer.add(measurements, timeSeconds + 3.0));
+                assertEquals(2, buffer.getDroppedCount());
+                assertEquals(2, buffer.getBufferedCount());
+
+                // releasing at a current time releases expired sets
+                assertEquals(0, buffer.release(timeSeconds + 3.0));
+                assertEquals(2, buffer.release(new Time(timeSeconds + 5.0,
+                        TimeUnit.SECOND)));
+                assertEquals(0, buffer.getBufferedCount());
+                assertEquals(timeSeconds + 3.0, estimator.getLastStateTimestamp(),
+                        0.0);
+                assertEquals(4, buffer.getReleasedCount());
+
+                // when buffer is full the oldest set is released
+                for (int i = 0; i <= MAX_SIZE; i++) {
+                    assertTrue(buffer.add(measurements,
+                            timeSeconds + 10.0 + 0.1 * i));
+                }
+                assertEquals(MAX_SIZE, buffer.getBufferedCount());
+                assertEquals(timeSeconds + 10.0,
+                        estimator.getLastStateTimestamp(), 0.0);
+
+                // flush releases everything
+                assertEquals(MAX_SIZE, buffer.flush());
+                assertEquals(0, buffer.getBufferedCount());
+                assertEquals(timeSeconds + 10.0 + 0.1 * MAX_SIZE,
+                        estimator.getLastStateTimestamp(), 0.0);
+                assertEquals(5 + MAX_SIZE, buffer.getReleasedCount());
+
+                // estimator state matches in-order processing
+                final GNSSKalmanFilteredEstimator expected =
+                        new GNSSKalmanFilteredEstimator(kalmanConfig);
+                final List<Double> timestamps = new ArrayList<>();
+                timestamps.add(timeSeconds);
+                timestamps.add(timeSeconds + 1.0);
+                timestamps.add(timeSeconds + 2.0);
+                timestamps.add(timeSeconds + 3.0);
+                for (int i = 0; i <= MAX_SIZE; i++) {
+                    timestamps.add(timeSeconds + 10.0 + 0.1 * i);
+                }
+                for (final double timestamp : timestamps) {
+                    expected.updateMeasurements(measurements, timestamp);
+                }
+                assertEquals(expected.getState(), estimator.getState());
+            } catch (final GNSSException e) {
+                continue;
+            }
+
+            // clear resets metrics
+            buffer.clear();
+            assertEquals(0, buffer.getBufferedCount());
+            assertEquals(0, buffer.getLateCount());
+            assertEquals(0, buffer.getDroppedCount());
+            assertEquals(0, buffer.getReleasedCount());
+            assertNull(buffer.getLastReleasedTimestamp());
+
+            // Force NotReadyException
+            try {
+                buffer.add(Collections.<GNSSMeasurement>emptyList(), timeSeconds);
+                fail("NotReadyException expected but not thrown");
+            } catch (final NotReadyException ignore) {
+            } catch (final GNSSException e) {
+                fail();
+            }
+
+            numValid++;
+            break;
+        }
+
+        assertTrue(numValid > 0);
+    }
+
+    private static Collection<GNSSMeasurement> generateMeasurements(
+            final Random random) {
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+
+        Collection<GNSSMeasurement> measurements;
+        do {
+            final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+            final double userLatitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LATITUDE_DEGREES, MAX_LATITUDE_DEGREES));
+            final double userLongitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LONGITUDE_DEGREES, MAX_LONGITUDE_DEGREES));
+            final double userHeight = randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT);
+            final NEDPosition nedUserPosition =
+                    new NEDPosition(userLatitude, userLongitude, userHeight);
+
+            final double userVn = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVe = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVd = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final NEDVelocity nedUserVelocity = new NEDVelocity(userVn, userVe, userVd);
+
+            final ECEFPosition ecefUserPosition = new ECEFPosition();
+            final ECEFVelocity ecefUserVelocity = new ECEFVelocity();
+            NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                    nedUserPosition, nedUserVelocity, ecefUserPosition, ecefUserVelocity);
+
+            final ECEFPositionAndVelocity ecefUserPositionAndVelocity =
+                    new ECEFPositionAndVelocity(ecefUserPosition, ecefUserVelocity);
+
+            final GNSSConfig config = generateConfig();
+            final int numSatellites = config.getNumberOfSatellites();
+            final double maskAngle = Math.toRadians(config.getMaskAngleDegrees());
+            final double delta = maskAngle / 3.0;
+
+            final List<Double> biases = new ArrayList<>();
+            final List<ECEFPositionAndVelocity> satellitePositionsAndVelocities =
+                    new ArrayList<>();
+            for (int n = 0; n < numSatellites; n++) {
+                final double satLatitude = randomizer.nextDouble(
+                        userLatitude - delta,
+                        userLatitude + delta);
+                final double satLongitude = randomizer.nextDouble(
+                        userLongitude - delta,
+                        userLongitude + delta);
+                final double satHeight = randomizer.nextDouble(MIN_SAT_HEIGHT,
+                        MAX_SAT_HEIGHT);
+                final NEDPosition nedSatPosition =
+                        new NEDPosition(satLatitude, satLongitude, satHeight);
+
+                final double satVn = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVe = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVd = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final NEDVelocity nedSatVelocity = new NEDVelocity(satVn, satVe, satVd);
+
+                final ECEFPosition ecefSatPosition = new ECEFPosition();
+                final ECEFVelocity ecefSatVelocity = new ECEFVelocity();
+                NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                        nedSatPosition, nedSatVelocity, ecefSatPosition, ecefSatVelocity);
+
+                final ECEFPositionAndVelocity ecefSatPositionAndVelocity =
+                        new ECEFPositionAndVelocity(ecefSatPosition, ecefSatVelocity);
+
+                final double bias = GNSSBiasesGenerator.generateBias(ecefSatPosition,
+                        ecefUserPosition, config, random);
+
+                biases.add(bias);
+                satellitePositionsAndVelocities.add(ecefSatPositionAndVelocity);
+            }
+
+            measurements = GNSSMeasurementsGenerator.generate(timeSeconds,
+                    satellitePositionsAndVelocities, ecefUserPositionAndVelocity,
+                    biases, config, random);
+        } while (measurements.size() <
+                GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS);
+
+        return measurements;
+    }
+
+    private static GNSSKalmanConfig generateKalmanConfig() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double initialPositionUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double initialVelocityUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double initialClockOffsetUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double initialClockDriftUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double accelerationPSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double clockFrequencyPSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double clockPhasePSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double pseudoRangeSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double rangeRateSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+
+        return new GNSSKalmanConfig(initialPositionUncertainty,
+                initialVelocityUncertainty, initialClockOffsetUncertainty,
+                initialClockDriftUncertainty, accelerationPSD, clockFrequencyPSD,
+                clockPhasePSD, pseudoRangeSD, rangeRateSD);
+    }
+
+    private static GNSSConfig generateConfig() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double epochInterval = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double initialEstimatedEcefPositionX = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialEstimatedEcefPositionY = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialEstimatedEcefPositionZ = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final int numberOfSatellites = randomizer.nextInt(MIN_NUM_SAT,
+                MAX_NUM_SAT);
+        final double orbitalRadiusOfSatellites = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double satellitesInclinationDegrees = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double constellationLongitudeOffsetDegrees = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double constellationTimingOffset = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double maskAngleDegrees = randomizer.nextDouble(
+                MIN_MASK_ANGLE_DEGREES, MAX_MASK_ANGLE_DEGREES);
+        final double sisErrorSD = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double zenithIonosphereErrorSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double zenithTroposphereErrorSD = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double codeTrackingErrorSD = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double rangeRateTrackingErrorSD = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialReceiverClockOffset = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialReceiverClockDrift = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+
+        return new GNSSConfig(epochInterval, initialEstimatedEcefPositionX,
+                initialEstimatedEcefPositionY, initialEstimatedEcefPositionZ,
+                numberOfSatellites, orbitalRadiusOfSatellites,
+                satellitesInclinationDegrees, constellationLongitudeOffsetDegrees,
+                constellationTimingOffset, maskAngleDegrees, sisErrorSD,
+                zenithIonosphereErrorSD, zenithTroposphereErrorSD, codeTrackingErrorSD,
+                rangeRateTrackingErrorSD, initialReceiverClockOffset,
+                initialReceiverClockDrift);
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.irurueta.navigation.gnss;
 
+import com.irurueta.algebra.AlgebraException;
 import com.irurueta.algebra.Matrix;
 import com.irurueta.algebra.Utils;
 import com.irurueta.navigation.LockedException;
@@ -77,6 +78,9 @@ public class GNSSKalmanFilteredEstimatorTest implements GNSSKalmanFilteredEstima
 
     private static final double PROPAGATION_ERROR = 1.0;
 
+    private static final double ABSOLUTE_ERROR = 1e-8;
+    private static final double COVARIANCE_ERROR = 1e-12;
+
     private static final int TIMES = 100;
 
     private int mUpdateStart;
@@ -481,6 +485,12 @@ public class GNSSKalmanFilteredEstimatorTest implements GNSSKalmanFilteredEstima
             measurements.add(new GNSSMeasurement());
         }
         assertTrue(GNSSKalmanFilteredEstimator.isUpdateMeasurementsReady(measurements));
+
+        assertFalse(GNSSKalmanFilteredEstimator.isUpdateMeasurementBatchReady(null));
+        assertFalse(GNSSKalmanFilteredEstimator.isUpdateMeasurementBatchReady(
+                new GNSSMeasurementBatch()));
+        assertTrue(GNSSKalmanFilteredEstimator.isUpdateMeasurementBatchReady(
+                new GNSSMeasurementBatch(measurements)));
     }
 
     @Test
@@ -670,6 +680,293 @@ public class GNSSKalmanFilteredEstimatorTest implements GNSSKalmanFilteredEstima
         assertTrue(numValid > 0);
     }
 
+    @Test
+    public void testUpdateMeasurementBatch() throws LockedException, NotReadyException,
+            GNSSException {
+
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final Random random = new Random();
+            final UniformRandomizer randomizer = new UniformRandomizer(random);
+
+            final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+            final double userLatitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LATITUDE_DEGREES, MAX_LATITUDE_DEGREES));
+            final double userLongitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LONGITUDE_DEGREES, MAX_LONGITUDE_DEGREES));
+            final double userHeight = randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT);
+            final NEDPosition nedUserPosition =
+                    new NEDPosition(userLatitude, userLongitude, userHeight);
+
+            final double userVn = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVe = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVd = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final NEDVelocity nedUserVelocity = new NEDVelocity(userVn, userVe, userVd);
+
+            final ECEFPosition ecefUserPosition = new ECEFPosition();
+            final ECEFVelocity ecefUserVelocity = new ECEFVelocity();
+            NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                    nedUserPosition, nedUserVelocity, ecefUserPosition, ecefUserVelocity);
+
+            final ECEFPositionAndVelocity ecefUserPositionAndVelocity =
+                    new ECEFPositionAndVelocity(ecefUserPosition, ecefUserVelocity);
+
+            final GNSSConfig config = generateConfig();
+            final int numSatellites = config.getNumberOfSatellites();
+            final double maskAngle = Math.toRadians(config.getMaskAngleDegrees());
+            final double delta = maskAngle / 3.0;
+
+            final List<Double> biases = new ArrayList<>();
+            final List<ECEFPositionAndVelocity> satellitePositionsAndVelocities =
+                    new ArrayList<>();
+            for (int n = 0; n < numSatellites; n++) {
+                final double satLatitude = randomizer.nextDouble(
+                        userLatitude - delta,
+                        userLatitude + delta);
+                final double satLongitude = randomizer.nextDouble(
+                        userLongitude - delta,
+                        userLongitude + delta);
+                final double satHeight = randomizer.nextDouble(MIN_SAT_HEIGHT,
+                        MAX_SAT_HEIGHT);
+                final NEDPosition nedSatPosition =
+                        new NEDPosition(satLatitude, satLongitude, satHeight);
+
+                final double satVn = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVe = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVd = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final NEDVelocity nedSatVelocity = new NEDVelocity(satVn, satVe, satVd);
+
+                final ECEFPosition ecefSatPosition = new ECEFPosition();
+                final ECEFVelocity ecefSatVelocity = new ECEFVelocity();
+                NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                        nedSatPosition, nedSatVelocity, ecefSatPosition, ecefSatVelocity);
+
+                final ECEFPositionAndVelocity ecefSatPositionAndVelocity =
+                        new ECEFPositionAndVelocity(ecefSatPosition, ecefSatVelocity);
+
+                final double bias = GNSSBiasesGenerator.generateBias(ecefSatPosition,
+                        ecefUserPosition, config, random);
+
+                biases.add(bias);
+                satellitePositionsAndVelocities.add(ecefSatPositionAndVelocity);
+            }
+
+            final Collection<GNSSMeasurement> measurements = GNSSMeasurementsGenerator
+                    .generate(timeSeconds, satellitePositionsAndVelocities,
+                            ecefUserPositionAndVelocity, biases, config, random);
+
+            if (measurements.size() <
+                    GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS) {
+                continue;
+            }
+
+            final GNSSKalmanConfig kalmanConfig = generateKalmanConfig();
+            final GNSSKalmanFilteredEstimator estimator1 =
+                    new GNSSKalmanFilteredEstimator(kalmanConfig);
+            final GNSSKalmanFilteredEstimator estimator2 =
+                    new GNSSKalmanFilteredEstimator(kalmanConfig);
+            final GNSSKalmanFilteredEstimator estimator3 =
+                    new GNSSKalmanFilteredEstimator(kalmanConfig);
+
+            assertNull(estimator2.getMeasurementBatch());
+
+            final GNSSMeasurementBatch batch = new GNSSMeasurementBatch(measurements);
+            try {
+                assertTrue(estimator1.updateMeasurements(measurements, timeSeconds));
+                assertTrue(estimator2.updateMeasurementBatch(batch, timeSeconds));
+                assertTrue(estimator3.updateMeasurementBatch(batch,
+                        new Time(timeSeconds, TimeUnit.SECOND)));
+            } catch (final GNSSException e) {
+                continue;
+            }
+
+            // provided batch is copied
+            final GNSSMeasurementBatch batch2 = estimator2.getMeasurementBatch();
+            assertEquals(batch, batch2);
+            assertNotSame(batch, batch2);
+            batch.clear();
+            assertEquals(estimator2.getMeasurementBatch(), batch2);
+            assertEquals(estimator1.getMeasurementBatch(), batch2);
+            assertEquals(estimator1.getMeasurements(), estimator2.getMeasurements());
+
+            // same results are obtained
+            assertEquals(estimator1.getEstimation(), estimator2.getEstimation());
+            assertEquals(estimator1.getState(), estimator2.getState());
+            assertEquals(estimator2.getState(), estimator3.getState());
+
+            // updates within epoch interval are ignored
+            assertFalse(estimator2.updateMeasurementBatch(batch2, timeSeconds));
+
+            // Force NotReadyException
+            try {
+                estimator2.updateMeasurementBatch(new GNSSMeasurementBatch(),
+                        timeSeconds + MAX_EPOCH_INTERVAL);
+                fail("NotReadyException expected but not thrown");
+            } catch (final NotReadyException ignore) {
+            } catch (final GNSSException e) {
+                fail("NotReadyException expected but not thrown");
+            }
+
+            // reset discards measurements
+            estimator2.reset();
+            assertNull(estimator2.getMeasurementBatch());
+            assertNull(estimator2.getMeasurements());
+
+            numValid++;
+            break;
+        }
+
+        assertTrue(numValid > 0);
+    }
+
+    @Test
+    public void testFailedUpdateRestoresState() throws LockedException,
+            NotReadyException, GNSSException {
+
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final Random random = new Random();
+            final UniformRandomizer randomizer = new UniformRandomizer(random);
+
+            final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+            final double userLatitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LATITUDE_DEGREES, MAX_LATITUDE_DEGREES));
+            final double userLongitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LONGITUDE_DEGREES, MAX_LONGITUDE_DEGREES));
+            final double userHeight = randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT);
+            final NEDPosition nedUserPosition =
+                    new NEDPosition(userLatitude, userLongitude, userHeight);
+
+            final double userVn = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVe = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVd = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final NEDVelocity nedUserVelocity = new NEDVelocity(userVn, userVe, userVd);
+
+            final ECEFPosition ecefUserPosition = new ECEFPosition();
+            final ECEFVelocity ecefUserVelocity = new ECEFVelocity();
+            NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                    nedUserPosition, nedUserVelocity, ecefUserPosition, ecefUserVelocity);
+
+            final ECEFPositionAndVelocity ecefUserPositionAndVelocity =
+                    new ECEFPositionAndVelocity(ecefUserPosition, ecefUserVelocity);
+
+            final GNSSConfig config = generateConfig();
+            final int numSatellites = config.getNumberOfSatellites();
+            final double maskAngle = Math.toRadians(config.getMaskAngleDegrees());
+            final double delta = maskAngle / 3.0;
+
+            final List<Double> biases = new ArrayList<>();
+            final List<ECEFPositionAndVelocity> satellitePositionsAndVelocities =
+                    new ArrayList<>();
+            for (int n = 0; n < numSatellites; n++) {
+                final double satLatitude = randomizer.nextDouble(
+                        userLatitude - delta,
+                        userLatitude + delta);
+                final double satLongitude = randomizer.nextDouble(
+                        userLongitude - delta,
+                        userLongitude + delta);
+                final double satHeight = randomizer.nextDouble(MIN_SAT_HEIGHT,
+                        MAX_SAT_HEIGHT);
+                final NEDPosition nedSatPosition =
+                        new NEDPosition(satLatitude, satLongitude, satHeight);
+
+                final double satVn = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVe = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVd = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final NEDVelocity nedSatVelocity = new NEDVelocity(satVn, satVe, satVd);
+
+                final ECEFPosition ecefSatPosition = new ECEFPosition();
+                final ECEFVelocity ecefSatVelocity = new ECEFVelocity();
+                NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                        nedSatPosition, nedSatVelocity, ecefSatPosition, ecefSatVelocity);
+
+                final ECEFPositionAndVelocity ecefSatPositionAndVelocity =
+                        new ECEFPositionAndVelocity(ecefSatPosition, ecefSatVelocity);
+
+                final double bias = GNSSBiasesGenerator.generateBias(ecefSatPosition,
+                        ecefUserPosition, config, random);
+
+                biases.add(bias);
+                satellitePositionsAndVelocities.add(ecefSatPositionAndVelocity);
+            }
+
+            final Collection<GNSSMeasurement> measurements = GNSSMeasurementsGenerator
+                    .generate(timeSeconds, satellitePositionsAndVelocities,
+                            ecefUserPositionAndVelocity, biases, config, random);
+
+            if (measurements.size() <
+                    GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS) {
+                continue;
+            }
+
+            // all satellites of degenerate batch are located at the same position,
+            // hence least squares estimation fails
+            final GNSSMeasurementBatch batch = new GNSSMeasurementBatch(measurements);
+            final GNSSMeasurementBatch degenerate = new GNSSMeasurementBatch(batch);
+            for (int i = 1; i < degenerate.getSize(); i++) {
+                degenerate.getXs()[i] = degenerate.getXs()[0];
+                degenerate.getYs()[i] = degenerate.getYs()[0];
+                degenerate.getZs()[i] = degenerate.getZs()[0];
+            }
+
+            final GNSSKalmanFilteredEstimator estimator =
+                    new GNSSKalmanFilteredEstimator(generateKalmanConfig());
+
+            // failed first update leaves estimator empty
+            try {
+                estimator.updateMeasurementBatch(degenerate, timeSeconds);
+                // degenerate geometry was not detected due to rounding errors
+                continue;
+            } catch (final GNSSException ignore) {
+            }
+            assertNull(estimator.getMeasurementBatch());
+            assertNull(estimator.getEstimation());
+            assertNull(estimator.getState());
+            assertNull(estimator.getLastStateTimestamp());
+
+            try {
+                assertTrue(estimator.updateMeasurementBatch(batch, timeSeconds));
+            } catch (final GNSSException e) {
+                continue;
+            }
+
+            final GNSSEstimation estimation = estimator.getEstimation();
+            final GNSSKalmanState state = estimator.getState();
+            final Double lastStateTimestamp = estimator.getLastStateTimestamp();
+
+            // failed update leaves estimator as it was before the update
+            try {
+                estimator.updateMeasurementBatch(degenerate,
+                        timeSeconds + MAX_EPOCH_INTERVAL);
+                continue;
+            } catch (final GNSSException ignore) {
+            }
+            assertEquals(batch, estimator.getMeasurementBatch());
+            assertEquals(estimation, estimator.getEstimation());
+            assertEquals(state, estimator.getState());
+            assertEquals(lastStateTimestamp, estimator.getLastStateTimestamp());
+
+            numValid++;
+            break;
+        }
+
+        assertTrue(numValid > 0);
+    }
+
     @Test(expected = NotReadyException.class)
     public void testUpdateWhenNotReadyThrowsNotReadyException()
             throws LockedException, NotReadyException, GNSSException {
@@ -926,6 +1223,213 @@ public class GNSSKalmanFilteredEstimatorTest implements GNSSKalmanFilteredEstima
         estimator.propagate(0.0);
     }
 
+    @Test
+    public void testPredict() throws LockedException, NotReadyException,
+            AlgebraException {
+
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final Random random = new Random();
+            final UniformRandomizer randomizer = new UniformRandomizer(random);
+
+            final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+            final double userLatitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LATITUDE_DEGREES, MAX_LATITUDE_DEGREES));
+            final double userLongitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LONGITUDE_DEGREES, MAX_LONGITUDE_DEGREES));
+            final double userHeight = randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT);
+            final NEDPosition nedUserPosition =
+                    new NEDPosition(userLatitude, userLongitude, userHeight);
+
+            final double userVn = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVe = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVd = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final NEDVelocity nedUserVelocity = new NEDVelocity(userVn, userVe, userVd);
+
+            final ECEFPosition ecefUserPosition = new ECEFPosition();
+            final ECEFVelocity ecefUserVelocity = new ECEFVelocity();
+            NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                    nedUserPosition, nedUserVelocity, ecefUserPosition, ecefUserVelocity);
+
+            final ECEFPositionAndVelocity ecefUserPositionAndVelocity =
+                    new ECEFPositionAndVelocity(ecefUserPosition, ecefUserVelocity);
+
+            final GNSSConfig config = generateConfig();
+            final int numSatellites = config.getNumberOfSatellites();
+            final double maskAngle = Math.toRadians(config.getMaskAngleDegrees());
+            final double delta = maskAngle / 3.0;
+
+            final List<Double> biases = new ArrayList<>();
+            final List<ECEFPositionAndVelocity> satellitePositionsAndVelocities =
+                    new ArrayList<>();
+            for (int n = 0; n < numSatellites; n++) {
+                final double satLatitude = randomizer.nextDouble(
+                        userLatitude - delta,
+                        userLatitude + delta);
+                final double satLongitude = randomizer.nextDouble(
+                        userLongitude - delta,
+                        userLongitude + delta);
+                final double satHeight = randomizer.nextDouble(MIN_SAT_HEIGHT,
+                        MAX_SAT_HEIGHT);
+                final NEDPosition nedSatPosition =
+                        new NEDPosition(satLatitude, satLongitude, satHeight);
+
+                final double satVn = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVe = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVd = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final NEDVelocity nedSatVelocity = new NEDVelocity(satVn, satVe, satVd);
+
+                final ECEFPosition ecefSatPosition = new ECEFPosition();
+                final ECEFVelocity ecefSatVelocity = new ECEFVelocity();
+                NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                        nedSatPosition, nedSatVelocity, ecefSatPosition, ecefSatVelocity);
+
+                final ECEFPositionAndVelocity ecefSatPositionAndVelocity =
+                        new ECEFPositionAndVelocity(ecefSatPosition, ecefSatVelocity);
+
+                final double bias = GNSSBiasesGenerator.generateBias(ecefSatPosition,
+                        ecefUserPosition, config, random);
+
+                biases.add(bias);
+                satellitePositionsAndVelocities.add(ecefSatPositionAndVelocity);
+            }
+
+            final Collection<GNSSMeasurement> measurements = GNSSMeasurementsGenerator
+                    .generate(timeSeconds, satellitePositionsAndVelocities,
+                            ecefUserPositionAndVelocity, biases, config, random);
+
+            if (measurements.size() <
+                    GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS) {
+                continue;
+            }
+
+            final GNSSKalmanConfig kalmanConfig = generateKalmanConfig();
+            final GNSSKalmanFilteredEstimator estimator =
+                    new GNSSKalmanFilteredEstimator(kalmanConfig, this);
+
+            final GNSSEstimation predicted = new GNSSEstimation();
+            final double[] predictedCovariance =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+
+            // no state is available yet
+            assertFalse(estimator.predict(timeSeconds, predicted));
+            assertFalse(estimator.predict(timeSeconds, predicted,
+                    predictedCovariance));
+
+            try {
+                assertTrue(estimator.updateMeasurements(measurements, timeSeconds));
+            } catch (final GNSSException e) {
+                continue;
+            }
+
+            final GNSSKalmanState state = estimator.getState();
+            final GNSSEstimation estimation = state.getEstimation();
+            final Matrix covariance = state.getCovariance();
+
+            reset();
+
+            final double dt = randomizer.nextDouble(MIN_EPOCH_INTERVAL,
+                    MAX_EPOCH_INTERVAL);
+            final double predictionTimestamp = timeSeconds + dt;
+
+            // predict estimation only
+            assertTrue(estimator.predict(predictionTimestamp, predicted));
+
+            assertEquals(estimation.getX() + dt * estimation.getVx(),
+                    predicted.getX(), ABSOLUTE_ERROR);
+            assertEquals(estimation.getY() + dt * estimation.getVy(),
+                    predicted.getY(), ABSOLUTE_ERROR);
+            assertEquals(estimation.getZ() + dt * estimation.getVz(),
+                    predicted.getZ(), ABSOLUTE_ERROR);
+            assertEquals(estimation.getVx(), predicted.getVx(), 0.0);
+            assertEquals(estimation.getVy(), predicted.getVy(), 0.0);
+            assertEquals(estimation.getVz(), predicted.getVz(), 0.0);
+            assertEquals(estimation.getClockOffset()
+                            + dt * estimation.getClockDrift(),
+                    predicted.getClockOffset(), ABSOLUTE_ERROR);
+            assertEquals(estimation.getClockDrift(), predicted.getClockDrift(),
+                    0.0);
+
+            final GNSSEstimation predicted2 = new GNSSEstimation();
+            assertTrue(estimator.predict(
+                    new Time(predictionTimestamp, TimeUnit.SECOND), predicted2));
+            assertEquals(predicted, predicted2);
+
+            // predict estimation and covariance
+            final GNSSEstimation predicted3 = new GNSSEstimation();
+            assertTrue(estimator.predict(predictionTimestamp, predicted3,
+                    predictedCovariance));
+            assertEquals(predicted, predicted3);
+
+            final Matrix phi = Matrix.identity(GNSSEstimation.NUM_PARAMETERS,
+                    GNSSEstimation.NUM_PARAMETERS);
+            phi.setElementAt(0, 3, dt);
+            phi.setElementAt(1, 4, dt);
+            phi.setElementAt(2, 5, dt);
+            phi.setElementAt(6, 7, dt);
+
+            final Matrix q = new Matrix(GNSSEstimation.NUM_PARAMETERS,
+                    GNSSEstimation.NUM_PARAMETERS);
+            final double accelerationPSD = kalmanConfig.getAccelerationPSD();
+            final double clockFrequencyPSD = kalmanConfig.getClockFrequencyPSD();
+            final double clockPhasePSD = kalmanConfig.getClockPhasePSD();
+            for (int i = 0; i < 3; i++) {
+                q.setElementAt(i, i, accelerationPSD * dt * dt * dt / 3.0);
+                q.setElementAt(i, i + 3, accelerationPSD * dt * dt / 2.0);
+                q.setElementAt(i + 3, i, accelerationPSD * dt * dt / 2.0);
+                q.setElementAt(i + 3, i + 3, accelerationPSD * dt);
+            }
+            q.setElementAt(6, 6, clockFrequencyPSD * dt * dt * dt / 3.0
+                    + clockPhasePSD * dt);
+            q.setElementAt(6, 7, clockFrequencyPSD * dt * dt / 2.0);
+            q.setElementAt(7, 6, clockFrequencyPSD * dt * dt / 2.0);
+            q.setElementAt(7, 7, clockFrequencyPSD * dt);
+
+            final Matrix expectedCovariance = phi.multiplyAndReturnNew(covariance)
+                    .multiplyAndReturnNew(phi.transposeAndReturnNew());
+            expectedCovariance.add(q);
+
+            final Matrix predictedCovarianceMatrix = new Matrix(1, 1);
+            GNSSKalmanState.unpack(predictedCovariance, predictedCovarianceMatrix);
+            assertTrue(expectedCovariance.equals(predictedCovarianceMatrix,
+                    COVARIANCE_ERROR * Math.max(1.0, Utils.normF(expectedCovariance))));
+
+            final double[] predictedCovariance2 =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            assertTrue(estimator.predict(
+                    new Time(predictionTimestamp, TimeUnit.SECOND), predicted3,
+                    predictedCovariance2));
+            assertArrayEquals(predictedCovariance, predictedCovariance2, 0.0);
+
+            // estimator has not been modified
+            assertEquals(state, estimator.getState());
+            assertEquals(timeSeconds, estimator.getLastStateTimestamp(), 0.0);
+            assertEquals(mUpdateStart, 0);
+            assertEquals(mUpdateEnd, 0);
+            assertEquals(mPropagateStart, 0);
+            assertEquals(mPropagateEnd, 0);
+
+            // Force IllegalArgumentException
+            try {
+                estimator.predict(predictionTimestamp, predicted, new double[1]);
+                fail("IllegalArgumentException expected but not thrown");
+            } catch (final IllegalArgumentException ignore) {
+            }
+
+            numValid++;
+            break;
+        }
+
+        assertTrue(numValid > 0);
+    }
+
     @Test
     public void testReset() throws LockedException, NotReadyException,
             GNSSException {
@@ -1027,6 +1531,7 @@ public class GNSSKalmanFilteredEstimatorTest implements GNSSKalmanFilteredEstima
             assertFalse(estimator.getEstimation(null));
             assertNull(estimator.getState());
             assertFalse(estimator.getState(null));
+            assertNull(estimator.getSnapshot());
 
             // update measurement
             try {
@@ -1052,6 +1557,13 @@ public class GNSSKalmanFilteredEstimatorTest implements GNSSKalmanFilteredEstima
 
             assertEquals(estimation1, state1.getEstimation());
 
+            final GNSSKalmanSnapshot snapshot1 = estimator.getSnapshot();
+            assertNotNull(snapshot1);
+            assertEquals(1, snapshot1.getSequenceNumber());
+            assertEquals(timeSeconds, snapshot1.getTimestamp(), 0.0);
+            assertEquals(estimation1, snapshot1.getEstimation());
+            assertEquals(state1, snapshot1.getState());
+
             final ECEFPosition estimatedPosition = estimation1.getEcefPosition();
             final ECEFVelocity estimatedVelocity = estimation1.getEcefVelocity();
 
@@ -1090,6 +1602,7 @@ public class GNSSKalmanFilteredEstimatorTest implements GNSSKalmanFilteredEstima
             assertNull(estimator.getState());
             assertNull(estimator.getLastStateTimestamp());
             assertFalse(estimator.isRunning());
+            assertNull(estimator.getSnapshot());
 
             // update again with same timestamp now it does make an action
             assertTrue(estimator.updateMeasurements(measurements,
@@ -1103,6 +1616,10 @@ public class GNSSKalmanFilteredEstimatorTest implements GNSSKalmanFilteredEstima
             assertEquals(estimation1, estimation2);
             assertEquals(state1, state2);
 
+            final GNSSKalmanSnapshot snapshot2 = estimator.getSnapshot();
+            assertEquals(2, snapshot2.getSequenceNumber());
+            assertEquals(state2, snapshot2.getState());
+
             assertEquals(mUpdateStart, 2);
             assertEquals(mUpdateEnd, 2);
             assertEquals(mPropagateStart, 2);
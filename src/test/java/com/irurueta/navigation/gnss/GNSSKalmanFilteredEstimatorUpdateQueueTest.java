@@ -0,0 +1,637 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class GNSSKalmanFilteredEstimatorUpdateQueueTest implements
+        GNSSKalmanFilteredEstimatorUpdateQueueListener {
+
+    private static final double MIN_VALUE = 1e-4;
+    private static final double MAX_VALUE = 1e-3;
+
+    private static final double MIN_EPOCH_INTERVAL = 1e-5;
+    private static final double MAX_EPOCH_INTERVAL = 1.0;
+
+    private static final int MIN_NUM_SAT = 4;
+    private static final int MAX_NUM_SAT = 10;
+
+    private static final double MIN_TIME = 0.0;
+    private static final double MAX_TIME = 1.0;
+
+    private static final double MIN_LATITUDE_DEGREES = -90.0;
+    private static final double MAX_LATITUDE_DEGREES = 90.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_USER_HEIGHT = -50.0;
+    private static final double MAX_USER_HEIGHT = 50.0;
+
+    private static final double MIN_USER_VELOCITY_VALUE = -2.0;
+    private static final double MAX_USER_VELOCITY_VALUE = 2.0;
+
+    private static final double MIN_SAT_HEIGHT = 150000.0;
+    private static final double MAX_SAT_HEIGHT = 800000.0;
+
+    private static final double MIN_SAT_VELOCITY_VALUE = -3500.0;
+    private static final double MAX_SAT_VELOCITY_VALUE = 3500.0;
+
+    private static final double MIN_MASK_ANGLE_DEGREES = 15.0;
+    private static final double MAX_MASK_ANGLE_DEGREES = 20.0;
+
+    private static final int MAX_QUEUE_SIZE = 4;
+
+    private static final long TIMEOUT = 60000L;
+
+    private final List<Double> mProcessed = Collections.synchronizedList(
+            new ArrayList<Double>());
+
+    private final List<Double> mDropped = Collections.synchronizedList(
+            new ArrayList<Double>());
+
+    private final List<Double> mFailed = Collections.synchronizedList(
+            new ArrayList<Double>());
+
+    private CountDownLatch mLatch;
+
+    @Test
+    public void testConstructor() {
+        final GNSSKalmanFilteredEstimator estimator =
+                new GNSSKalmanFilteredEstimator(generateKalmanConfig());
+        final ManualExecutor executor = new ManualExecutor();
+
+        GNSSKalmanFilteredEstimatorUpdateQueue queue =
+                new GNSSKalmanFilteredEstimatorUpdateQueue(estimator, executor);
+
+        // check default values
+        assertSame(estimator, queue.getEstimator());
+        assertEquals(GNSSKalmanFilteredEstimatorUpdateQueue.DEFAULT_MAX_QUEUE_SIZE,
+                queue.getMaxQueueSize());
+        assertNull(queue.getListener());
+        assertEquals(estimator.getEpochInterval(), queue.getEpochInterval(), 0.0);
+        assertEquals(0, queue.getQueueDepth());
+        assertTrue(queue.isIdle());
+        assertEquals(0, queue.getSubmittedCount());
+        assertEquals(0, queue.getProcessedCount());
+        assertEquals(0, queue.getDroppedCount());
+        assertEquals(0, queue.getFailedCount());
+
+        queue = new GNSSKalmanFilteredEstimatorUpdateQueue(estimator, executor,
+                this);
+
+        // check default values
+        assertEquals(GNSSKalmanFilteredEstimatorUpdateQueue.DEFAULT_MAX_QUEUE_SIZE,
+                queue.getMaxQueueSize());
+        assertSame(this, queue.getListener());
+
+        queue = new GNSSKalmanFilteredEstimatorUpdateQueue(estimator, executor,
+                MAX_QUEUE_SIZE, this);
+
+        // check default values
+        assertEquals(MAX_QUEUE_SIZE, queue.getMaxQueueSize());
+        assertSame(this, queue.getListener());
+
+        // Force IllegalArgumentException
+        queue = null;
+        try {
+            queue = new GNSSKalmanFilteredEstimatorUpdateQueue(estimator,
+                    executor, 0, this);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // Force NullPointerException
+        try {
+            queue = new GNSSKalmanFilteredEstimatorUpdateQueue(null, executor);
+            fail("NullPointerException expected but not thrown");
+        } catch (final NullPointerException ignore) {
+        }
+        try {
+            queue = new GNSSKalmanFilteredEstimatorUpdateQueue(estimator, null);
+            fail("NullPointerException expected but not thrown");
+        } catch (final NullPointerException ignore) {
+        }
+        assertNull(queue);
+    }
+
+    @Test
+    public void testSubmitCoalescesStaleEpochs() throws NotReadyException {
+        final Random random = new Random();
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final GNSSKalmanConfig kalmanConfig = generateKalmanConfig();
+        final double epochInterval = randomizer.nextDouble(MIN_EPOCH_INTERVAL,
+                MAX_EPOCH_INTERVAL);
+        final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+        final Collection<GNSSMeasurement> measurements = generateMeasurements(random);
+
+        final GNSSKalmanFilteredEstimator estimator =
+                new GNSSKalmanFilteredEstimator(kalmanConfig, epochInterval);
+        final ManualExecutor executor = new ManualExecutor();
+        final GNSSKalmanFilteredEstimatorUpdateQueue queue =
+                new GNSSKalmanFilteredEstimatorUpdateQueue(estimator, executor,
+                        MAX_QUEUE_SIZE, this);
+        reset(0);
+
+        // submit first epoch, which schedules a single task
+        queue.submit(measurements, timeSeconds);
+        assertEquals(1, queue.getQueueDepth());
+        assertEquals(1, executor.mTasks.size());
+        assertFalse(queue.isIdle());
+
+        // epoch within epoch interval of queued one supersedes it
+        final double timeSeconds2 = timeSeconds + 0.5 * epochInterval;
+        queue.submit(measurements, new Time(timeSeconds2, TimeUnit.SECOND));
+        assertEquals(1, queue.getQueueDepth());
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(Collections.singletonList(timeSeconds), mDropped);
+
+        // epochs far enough from each other are kept until queue is full
+        final List<Double> timestamps = new ArrayList<>();
+        timestamps.add(timeSeconds2);
+        for (int i = 1; i <= MAX_QUEUE_SIZE; i++) {
+            final double t = timeSeconds2 + 2.0 * i * epochInterval;
+            queue.submit(measurements, t);
+            timestamps.add(t);
+        }
+
+        // oldest epoch was discarded when queue became full
+        assertEquals(MAX_QUEUE_SIZE, queue.getQueueDepth());
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(timeSeconds2, mDropped.get(1), 0.0);
+        timestamps.remove(0);
+
+        assertEquals(MAX_QUEUE_SIZE + 2, queue.getSubmittedCount());
+        assertEquals(0, queue.getProcessedCount());
+
+        // only one drain task is ever scheduled while queue is not idle
+        assertEquals(1, executor.mTasks.size());
+
+        // process queued epochs
+        executor.runAll();
+
+        assertTrue(queue.isIdle());
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(MAX_QUEUE_SIZE, queue.getProcessedCount()
+                + queue.getFailedCount());
+        assertEquals(timestamps.size(), mProcessed.size() + mFailed.size());
+
+        if (mFailed.isEmpty()) {
+            assertEquals(timestamps, mProcessed);
+
+            // estimator state matches sequential processing of remaining epochs
+            final GNSSKalmanFilteredEstimator expected =
+                    new GNSSKalmanFilteredEstimator(kalmanConfig, epochInterval);
+            for (final double t : timestamps) {
+                try {
+                    expected.updateMeasurements(measurements, t);
+                } catch (final Exception e) {
+                    fail();
+                }
+            }
+            assertEquals(expected.getState(), estimator.getState());
+        }
+
+        // submitting again schedules a new task
+        queue.submit(measurements, timestamps.get(timestamps.size() - 1)
+                + 2.0 * epochInterval);
+        assertEquals(1, executor.mTasks.size());
+
+        // clear discards queued epochs
+        assertEquals(1, queue.clear());
+        assertEquals(3, queue.getDroppedCount());
+        executor.runAll();
+        assertTrue(queue.isIdle());
+
+        // Force NotReadyException
+        try {
+            queue.submit(Collections.<GNSSMeasurement>emptyList(), timeSeconds);
+            fail("NotReadyException expected but not thrown");
+        } catch (final NotReadyException ignore) {
+        }
+    }
+
+    @Test
+    public void testSubmitDropsOlderEpochs() throws NotReadyException,
+            LockedException {
+        final Random random = new Random();
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final double epochInterval = randomizer.nextDouble(MIN_EPOCH_INTERVAL,
+                MAX_EPOCH_INTERVAL);
+        final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+        final Collection<GNSSMeasurement> measurements = generateMeasurements(random);
+
+        final GNSSKalmanFilteredEstimator estimator =
+                new GNSSKalmanFilteredEstimator(generateKalmanConfig(),
+                        epochInterval);
+        final ManualExecutor executor = new ManualExecutor();
+        final GNSSKalmanFilteredEstimatorUpdateQueue queue =
+                new GNSSKalmanFilteredEstimatorUpdateQueue(estimator, executor,
+                        MAX_QUEUE_SIZE, this);
+        reset(0);
+
+        queue.submit(measurements, timeSeconds);
+
+        // an older epoch within epoch interval of a queued one is discarded
+        // and queued one is kept
+        final double timeSeconds2 = timeSeconds - 0.5 * epochInterval;
+        queue.submit(measurements, timeSeconds2);
+        assertEquals(1, queue.getQueueDepth());
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(Collections.singletonList(timeSeconds2), mDropped);
+
+        // changes of epoch interval of estimator are not read by queue
+        estimator.setEpochInterval(4.0 * epochInterval);
+        assertEquals(epochInterval, queue.getEpochInterval(), 0.0);
+
+        // changes of epoch interval of queue are taken into account
+        queue.setEpochInterval(4.0 * epochInterval);
+        assertEquals(4.0 * epochInterval, queue.getEpochInterval(), 0.0);
+        final double timeSeconds3 = timeSeconds + 2.0 * epochInterval;
+        queue.submit(measurements, timeSeconds3);
+        assertEquals(1, queue.getQueueDepth());
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(timeSeconds, mDropped.get(1), 0.0);
+
+        assertEquals(3, queue.getSubmittedCount());
+
+        executor.runAll();
+        assertTrue(queue.isIdle());
+        assertEquals(1, mProcessed.size() + mFailed.size());
+
+        // Force IllegalArgumentException
+        try {
+            queue.setEpochInterval(-1.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testListenerFailuresAreIgnored() throws NotReadyException {
+        final Random random = new Random();
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+        final Collection<GNSSMeasurement> measurements = generateMeasurements(random);
+
+        final GNSSKalmanFilteredEstimatorUpdateQueueListener listener =
+                new GNSSKalmanFilteredEstimatorUpdateQueueListener() {
+                    @Override
+                    public void onProcessed(
+                            final GNSSKalmanFilteredEstimatorUpdateQueue queue,
+                            final double timestamp, final boolean updated) {
+                        throw new IllegalStateException();
+                    }
+
+                    @Override
+                    public void onDropped(
+                            final GNSSKalmanFilteredEstimatorUpdateQueue queue,
+                            final double timestamp) {
+                        throw new IllegalStateException();
+                    }
+
+                    @Override
+                    public void onFailed(
+                            final GNSSKalmanFilteredEstimatorUpdateQueue queue,
+                            final double timestamp, final Exception e) {
+                        throw new IllegalStateException();
+                    }
+                };
+
+        final ManualExecutor executor = new ManualExecutor();
+        final GNSSKalmanFilteredEstimatorUpdateQueue queue =
+                new GNSSKalmanFilteredEstimatorUpdateQueue(
+                        new GNSSKalmanFilteredEstimator(generateKalmanConfig()),
+                        executor, MAX_QUEUE_SIZE, listener);
+
+        for (int i = 0; i < MAX_QUEUE_SIZE; i++) {
+            queue.submit(measurements, timeSeconds + i);
+        }
+        assertEquals(1, executor.mTasks.size());
+
+        // all queued epochs are processed despite listener failures
+        executor.runAll();
+        assertTrue(queue.isIdle());
+        assertEquals(MAX_QUEUE_SIZE, queue.getProcessedCount()
+                + queue.getFailedCount());
+
+        // a new task is scheduled on next submission
+        queue.submit(measurements, timeSeconds + MAX_QUEUE_SIZE);
+        assertEquals(1, executor.mTasks.size());
+        executor.runAll();
+        assertTrue(queue.isIdle());
+
+        // a task is still scheduled when submission discards an epoch and
+        // notification of the discarded epoch fails
+        for (int i = 0; i <= MAX_QUEUE_SIZE; i++) {
+            queue.submit(measurements, timeSeconds + MAX_QUEUE_SIZE + 1 + i);
+        }
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(MAX_QUEUE_SIZE, queue.getQueueDepth());
+        executor.runAll();
+        assertTrue(queue.isIdle());
+
+        // when executor rejects a task, queued epoch is kept, and a later
+        // submission discarding it schedules a task even if notification of
+        // the discarded epoch fails
+        executor.mReject = true;
+        try {
+            queue.submit(measurements, timeSeconds + 3.0 * MAX_QUEUE_SIZE);
+            fail("RejectedExecutionException expected but not thrown");
+        } catch (final RejectedExecutionException ignore) {
+        }
+        assertEquals(1, queue.getQueueDepth());
+        assertTrue(executor.mTasks.isEmpty());
+
+        executor.mReject = false;
+        queue.submit(measurements, timeSeconds + 3.0 * MAX_QUEUE_SIZE);
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(1, executor.mTasks.size());
+        executor.runAll();
+        assertTrue(queue.isIdle());
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    public void testSubmitWithExecutorService() throws NotReadyException,
+            InterruptedException {
+        final Random random = new Random();
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+        final Collection<GNSSMeasurement> measurements = generateMeasurements(random);
+
+        final GNSSKalmanFilteredEstimator estimator =
+                new GNSSKalmanFilteredEstimator(generateKalmanConfig());
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final GNSSKalmanFilteredEstimatorUpdateQueue queue =
+                new GNSSKalmanFilteredEstimatorUpdateQueue(estimator, executor,
+                        this);
+
+        final int n = 2 * GNSSKalmanFilteredEstimatorUpdateQueue.DEFAULT_MAX_QUEUE_SIZE;
+        reset(n);
+        for (int i = 0; i < n; i++) {
+            queue.submit(measurements, timeSeconds + i);
+        }
+
+        // every submitted epoch is either processed, dropped or failed
+        assertTrue(mLatch.await(TIMEOUT, java.util.concurrent.TimeUnit.MILLISECONDS));
+        assertEquals(n, queue.getSubmittedCount());
+        assertEquals(n, queue.getProcessedCount() + queue.getDroppedCount()
+                + queue.getFailedCount());
+
+        // processed epochs are processed in order
+        for (int i = 1; i < mProcessed.size(); i++) {
+            assertTrue(mProcessed.get(i) > mProcessed.get(i - 1));
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(TIMEOUT,
+                java.util.concurrent.TimeUnit.MILLISECONDS));
+        assertTrue(queue.isIdle());
+    }
+
+    @Override
+    public void onProcessed(final GNSSKalmanFilteredEstimatorUpdateQueue queue,
+                            final double timestamp, final boolean updated) {
+        mProcessed.add(timestamp);
+        mLatch.countDown();
+    }
+
+    @Override
+    public void onDropped(final GNSSKalmanFilteredEstimatorUpdateQueue queue,
+                          final double timestamp) {
+        mDropped.add(timestamp);
+        mLatch.countDown();
+    }
+
+    @Override
+    public void onFailed(final GNSSKalmanFilteredEstimatorUpdateQueue queue,
+                         final double timestamp, final Exception e) {
+        mFailed.add(timestamp);
+        mLatch.countDown();
+    }
+
+    private void reset(final int count) {
+        mProcessed.clear();
+        mDropped.clear();
+        mFailed.clear();
+        mLatch = new CountDownLatch(count);
+    }
+
+    private static Collection<GNSSMeasurement> generateMeasurements(
+            final Random random) {
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+
+        Collection<GNSSMeasurement> measurements;
+        do {
+            final double timeSeconds = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+
+            final double userLatitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LATITUDE_DEGREES, MAX_LATITUDE_DEGREES));
+            final double userLongitude = Math.toRadians(
+                    randomizer.nextDouble(MIN_LONGITUDE_DEGREES, MAX_LONGITUDE_DEGREES));
+            final double userHeight = randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT);
+            final NEDPosition nedUserPosition =
+                    new NEDPosition(userLatitude, userLongitude, userHeight);
+
+            final double userVn = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVe = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final double userVd = randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                    MAX_USER_VELOCITY_VALUE);
+            final NEDVelocity nedUserVelocity = new NEDVelocity(userVn, userVe, userVd);
+
+            final ECEFPosition ecefUserPosition = new ECEFPosition();
+            final ECEFVelocity ecefUserVelocity = new ECEFVelocity();
+            NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                    nedUserPosition, nedUserVelocity, ecefUserPosition, ecefUserVelocity);
+
+            final ECEFPositionAndVelocity ecefUserPositionAndVelocity =
+                    new ECEFPositionAndVelocity(ecefUserPosition, ecefUserVelocity);
+
+            final GNSSConfig config = generateConfig();
+            final int numSatellites = config.getNumberOfSatellites();
+            final double maskAngle = Math.toRadians(config.getMaskAngleDegrees());
+            final double delta = maskAngle / 3.0;
+
+            final List<Double> biases = new ArrayList<>();
+            final List<ECEFPositionAndVelocity> satellitePositionsAndVelocities =
+                    new ArrayList<>();
+            for (int n = 0; n < numSatellites; n++) {
+                final double satLatitude = randomizer.nextDouble(
+                        userLatitude - delta,
+                        userLatitude + delta);
+                final double satLongitude = randomizer.nextDouble(
+                        userLongitude - delta,
+                        userLongitude + delta);
+                final double satHeight = randomizer.nextDouble(MIN_SAT_HEIGHT,
+                        MAX_SAT_HEIGHT);
+                final NEDPosition nedSatPosition =
+                        new NEDPosition(satLatitude, satLongitude, satHeight);
+
+                final double satVn = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVe = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final double satVd = randomizer.nextDouble(MIN_SAT_VELOCITY_VALUE,
+                        MAX_SAT_VELOCITY_VALUE);
+                final NEDVelocity nedSatVelocity = new NEDVelocity(satVn, satVe, satVd);
+
+                final ECEFPosition ecefSatPosition = new ECEFPosition();
+                final ECEFVelocity ecefSatVelocity = new ECEFVelocity();
+                NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                        nedSatPosition, nedSatVelocity, ecefSatPosition, ecefSatVelocity);
+
+                final ECEFPositionAndVelocity ecefSatPositionAndVelocity =
+                        new ECEFPositionAndVelocity(ecefSatPosition, ecefSatVelocity);
+
+                final double bias = GNSSBiasesGenerator.generateBias(ecefSatPosition,
+                        ecefUserPosition, config, random);
+
+                biases.add(bias);
+                satellitePositionsAndVelocities.add(ecefSatPositionAndVelocity);
+            }
+
+            measurements = GNSSMeasurementsGenerator.generate(timeSeconds,
+                    satellitePositionsAndVelocities, ecefUserPositionAndVelocity,
+                    biases, config, random);
+        } while (measurements.size() <
+                GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS);
+
+        return measurements;
+    }
+
+    private static GNSSKalmanConfig generateKalmanConfig() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double initialPositionUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double initialVelocityUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double initialClockOffsetUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double initialClockDriftUncertainty = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double accelerationPSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double clockFrequencyPSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double clockPhasePSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double pseudoRangeSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double rangeRateSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+
+        return new GNSSKalmanConfig(initialPositionUncertainty,
+                initialVelocityUncertainty, initialClockOffsetUncertainty,
+                initialClockDriftUncertainty, accelerationPSD, clockFrequencyPSD,
+                clockPhasePSD, pseudoRangeSD, rangeRateSD);
+    }
+
+    private static GNSSConfig generateConfig() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double epochInterval = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double initialEstimatedEcefPositionX = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialEstimatedEcefPositionY = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialEstimatedEcefPositionZ = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final int numberOfSatellites = randomizer.nextInt(MIN_NUM_SAT,
+                MAX_NUM_SAT);
+        final double orbitalRadiusOfSatellites = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double satellitesInclinationDegrees = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double constellationLongitudeOffsetDegrees = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double constellationTimingOffset = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double maskAngleDegrees = randomizer.nextDouble(
+                MIN_MASK_ANGLE_DEGREES, MAX_MASK_ANGLE_DEGREES);
+        final double sisErrorSD = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double zenithIonosphereErrorSD = randomizer.nextDouble(
+                MIN_VALUE, MAX_VALUE);
+        final double zenithTroposphereErrorSD = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double codeTrackingErrorSD = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double rangeRateTrackingErrorSD = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialReceiverClockOffset = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+        final double initialReceiverClockDrift = randomizer.nextDouble(MIN_VALUE,
+                MAX_VALUE);
+
+        return new GNSSConfig(epochInterval, initialEstimatedEcefPositionX,
+                initialEstimatedEcefPositionY, initialEstimatedEcefPositionZ,
+                numberOfSatellites, orbitalRadiusOfSatellites,
+                satellitesInclinationDegrees, constellationLongitudeOffsetDegrees,
+                constellationTimingOffset, maskAngleDegrees, sisErrorSD,
+                zenithIonosphereErrorSD, zenithTroposphereErrorSD, codeTrackingErrorSD,
+                rangeRateTrackingErrorSD, initialReceiverClockOffset,
+                initialReceiverClockDrift);
+    }
+
+    private static class ManualExecutor implements Executor {
+
+        private final List<Runnable> mTasks = new ArrayList<>();
+
+        private boolean mReject;
+
+        @Override
+        public void execute(final Runnable command) {
+            if (mReject) {
+                throw new RejectedExecutionException();
+            }
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                mTasks.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSKalmanFixedLagSmootherTest {
+
+    private static final double EPOCH_INTERVAL_SECONDS = 1.0;
+
+    private static final double CLOCK_OFFSET = 10000.0;
+    private static final double CLOCK_DRIFT = 100.0;
+
+    private static final double MIN_LATITUDE_DEGREES = -70.0;
+    private static final double MAX_LATITUDE_DEGREES = 70.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_USER_HEIGHT = -50.0;
+    private static final double MAX_USER_HEIGHT = 50.0;
+
+    private static final int LAG = 4;
+    private static final int EPOCHS = 23;
+
+    private static final double ABSOLUTE_ERROR = 1e-9;
+
+    @Test
+    public void testConstructor() {
+        final GNSSKalmanFilteredEstimator estimator = new GNSSKalmanFilteredEstimator(
+                generateKalmanConfig());
+
+        GNSSKalmanFixedLagSmoother smoother = new GNSSKalmanFixedLagSmoother(
+                estimator);
+
+        assertSame(estimator, smoother.getEstimator());
+        assertEquals(GNSSKalmanFixedLagSmoother.DEFAULT_LAG, smoother.getLag());
+        assertNull(smoother.getListener());
+        assertEquals(0, smoother.getBufferedCount());
+        assertEquals(0, smoother.getSmoothedCount());
+
+        final GNSSKalmanFixedLagSmootherListener listener =
+                new GNSSKalmanFixedLagSmootherListener() {
+                    @Override
+                    public void onSmoothed(final GNSSKalmanFixedLagSmoother smoother,
+                                           final double timestamp,
+                                           final GNSSEstimation estimation,
+                                           final double[] covariance) {
+                    }
+                };
+        smoother = new GNSSKalmanFixedLagSmoother(estimator, LAG, listener);
+
+        assertEquals(LAG, smoother.getLag());
+        assertSame(listener, smoother.getListener());
+
+        smoother.setListener(null);
+        assertNull(smoother.getListener());
+
+        // force IllegalArgumentException
+        smoother = null;
+        try {
+            smoother = new GNSSKalmanFixedLagSmoother(estimator, 0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // force NullPointerException
+        try {
+            smoother = new GNSSKalmanFixedLagSmoother(null);
+            fail("NullPointerException expected but not thrown");
+        } catch (final NullPointerException ignore) {
+        }
+        assertNull(smoother);
+    }
+
+    @Test
+    public void testSmoothMatchesFixedIntervalSmootherOnWindows()
+            throws LockedException, NotReadyException, GNSSException {
+        final GNSSKalmanConfig config = generateKalmanConfig();
+        final GNSSKalmanFilteredEstimator estimator =
+                new GNSSKalmanFilteredEstimator(config);
+
+        final List<Double> timestamps = new ArrayList<>();
+        final List<GNSSEstimation> estimations = new ArrayList<>();
+        final List<double[]> covariances = new ArrayList<>();
+        final GNSSKalmanFixedLagSmoother smoother = new GNSSKalmanFixedLagSmoother(
+                estimator, LAG, new GNSSKalmanFixedLagSmootherListener() {
+            @Override
+            public void onSmoothed(final GNSSKalmanFixedLagSmoother smoother,
+                                   final double timestamp,
+                                   final GNSSEstimation estimation,
+                                   final double[] covariance) {
+                timestamps.add(timestamp);
+                estimations.add(new GNSSEstimation(estimation));
+                covariances.add(covariance.clone());
+            }
+        });
+
+        final ECEFPositionAndVelocity user = generateUser(new Random());
+        final GNSSMeasurementBatch[] measurements = simulate(user,
+                EPOCH_INTERVAL_SECONDS, EPOCHS, new Random());
+
+        // forward pass keeping filtered states
+        final List<GNSSKalmanState> filtered = new ArrayList<>();
+        for (int e = 0; e < EPOCHS; e++) {
+            final double timestamp = (e + 1) * EPOCH_INTERVAL_SECONDS;
+            if (e % 2 == 0) {
+                assertTrue(smoother.updateMeasurementBatch(measurements[e], timestamp));
+            } else {
+                assertTrue(smoother.updateMeasurements(
+                        measurements[e].toMeasurements(),
+                        new Time(timestamp, TimeUnit.SECOND)));
+            }
+            filtered.add(estimator.getState());
+
+            // epochs are released in blocks of lag epochs once twice the lag
+            // has been buffered
+            final int recorded = e + 1;
+            final int released = recorded < 2 * LAG ? 0
+                    : ((recorded - 2 * LAG) / LAG + 1) * LAG;
+            assertEquals(released, smoother.getSmoothedCount());
+            assertEquals(released, timestamps.size());
+            assertEquals(recorded - released, smoother.getBufferedCount());
+        }
+
+        // ignored measurements are not recorded
+        final int buffered = smoother.getBufferedCount();
+        assertFalse(smoother.updateMeasurementBatch(measurements[EPOCHS - 1],
+                EPOCHS * EPOCH_INTERVAL_SECONDS));
+        assertEquals(buffered, smoother.getBufferedCount());
+
+        final int released = (int) smoother.getSmoothedCount();
+        assertEquals(buffered, smoother.flush());
+        assertEquals(0, smoother.getBufferedCount());
+        assertEquals(EPOCHS, smoother.getSmoothedCount());
+        assertEquals(EPOCHS, timestamps.size());
+
+        // each release block is equal to a fixed-interval smoother executed over
+        // the epochs buffered at release time
+        for (int start = 0; start <= released; start += LAG) {
+            final int end = start < released ? start + 2 * LAG : EPOCHS;
+            final GNSSKalmanSmoother fixedInterval = new GNSSKalmanSmoother(config);
+            for (int e = start; e < end; e++) {
+                fixedInterval.add(e == start ? 0.0 : EPOCH_INTERVAL_SECONDS,
+                        filtered.get(e));
+            }
+            fixedInterval.smooth();
+
+            final int count = start < released ? LAG : EPOCHS - start;
+            for (int i = 0; i < count; i++) {
+                final int e = start + i;
+                assertEquals((e + 1) * EPOCH_INTERVAL_SECONDS, timestamps.get(e),
+                        0.0);
+                assertTrue(fixedInterval.getEstimation(i).equals(
+                        estimations.get(e), ABSOLUTE_ERROR));
+
+                final double[] expected =
+                        new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+                fixedInterval.getPackedCovariance(i, expected);
+                assertArrayEquals(expected, covariances.get(e), ABSOLUTE_ERROR);
+
+                // smoothed uncertainty never exceeds filtered one
+                final double[] filteredCovariance =
+                        filtered.get(e).getPackedCovariance();
+                for (int j = 0; j < GNSSEstimation.NUM_PARAMETERS; j++) {
+                    final int index = GNSSKalmanState.packedIndex(j, j);
+                    assertTrue(covariances.get(e)[index]
+                            <= filteredCovariance[index] + ABSOLUTE_ERROR);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testListenerFailureDoesNotRepeatEpochs() throws LockedException,
+            NotReadyException, GNSSException {
+        final GNSSKalmanFilteredEstimator estimator =
+                new GNSSKalmanFilteredEstimator(generateKalmanConfig());
+
+        final List<Double> timestamps = new ArrayList<>();
+        final GNSSKalmanFixedLagSmoother smoother = new GNSSKalmanFixedLagSmoother(
+                estimator, LAG, new GNSSKalmanFixedLagSmootherListener() {
+            @Override
+            public void onSmoothed(final GNSSKalmanFixedLagSmoother smoother,
+                                   final double timestamp,
+                                   final GNSSEstimation estimation,
+                                   final double[] covariance) {
+                timestamps.add(timestamp);
+                if (timestamps.size() == 1) {
+                    throw new IllegalStateException();
+                }
+            }
+        });
+
+        final GNSSMeasurementBatch[] measurements = simulate(
+                generateUser(new Random()), EPOCH_INTERVAL_SECONDS, EPOCHS,
+                new Random());
+        for (int e = 0; e < 2 * LAG - 1; e++) {
+            assertTrue(smoother.updateMeasurementBatch(measurements[e],
+                    (e + 1) * EPOCH_INTERVAL_SECONDS));
+        }
+
+        // first release fails while notifying its oldest epoch
+        try {
+            smoother.updateMeasurementBatch(measurements[2 * LAG - 1],
+                    2 * LAG * EPOCH_INTERVAL_SECONDS);
+            fail("IllegalStateException expected but not thrown");
+        } catch (final IllegalStateException ignore) {
+        }
+
+        // released epochs are discarded anyway
+        assertEquals(1, timestamps.size());
+        assertEquals(LAG, smoother.getSmoothedCount());
+        assertEquals(LAG, smoother.getBufferedCount());
+
+        // following epochs are released only once and in order
+        for (int e = 2 * LAG; e < 3 * LAG; e++) {
+            assertTrue(smoother.updateMeasurementBatch(measurements[e],
+                    (e + 1) * EPOCH_INTERVAL_SECONDS));
+        }
+        assertEquals(2 * LAG, smoother.getSmoothedCount());
+        assertEquals(LAG, smoother.getBufferedCount());
+        assertEquals(1 + LAG, timestamps.size());
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertEquals((LAG + i) * EPOCH_INTERVAL_SECONDS, timestamps.get(i),
+                    0.0);
+        }
+    }
+
+    @Test
+    public void testPropagateWithoutListener() throws LockedException,
+            NotReadyException, GNSSException {
+        final GNSSKalmanFilteredEstimator estimator =
+                new GNSSKalmanFilteredEstimator(generateKalmanConfig());
+        final GNSSKalmanFixedLagSmoother smoother = new GNSSKalmanFixedLagSmoother(
+                estimator, LAG);
+
+        final GNSSMeasurementBatch[] measurements = simulate(
+                generateUser(new Random()), EPOCH_INTERVAL_SECONDS, EPOCHS,
+                new Random());
+        assertTrue(smoother.updateMeasurementBatch(measurements[0],
+                EPOCH_INTERVAL_SECONDS));
+        for (int e = 1; e < 2 * LAG; e++) {
+            final double timestamp = (e + 1) * EPOCH_INTERVAL_SECONDS;
+            if (e % 2 == 0) {
+                assertTrue(smoother.propagate(timestamp));
+            } else {
+                assertTrue(smoother.propagate(new Time(timestamp, TimeUnit.SECOND)));
+            }
+        }
+
+        // epochs are released even if there is no listener
+        assertEquals(LAG, smoother.getBufferedCount());
+        assertEquals(LAG, smoother.getSmoothedCount());
+
+        // clear
+        smoother.clear();
+        assertEquals(0, smoother.getBufferedCount());
+        assertEquals(0, smoother.getSmoothedCount());
+        assertNotNull(estimator.getState());
+        assertEquals(0, smoother.flush());
+
+        // reset
+        assertTrue(smoother.updateMeasurementBatch(measurements[1],
+                10 * LAG * EPOCH_INTERVAL_SECONDS));
+        assertEquals(1, smoother.getBufferedCount());
+        smoother.reset();
+        assertEquals(0, smoother.getBufferedCount());
+        assertNull(estimator.getState());
+    }
+
+    private static ECEFPositionAndVelocity generateUser(final Random random) {
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final NEDPosition nedPosition = new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                        MAX_LATITUDE_DEGREES)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)),
+                randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT));
+
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                new NEDVelocity(), ecefPosition, ecefVelocity);
+        return new ECEFPositionAndVelocity(ecefPosition, ecefVelocity);
+    }
+
+    private static GNSSConfig generateConfig() {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(EPOCH_INTERVAL_SECONDS);
+        config.setNumberOfSatellites(30);
+        config.setOrbitalRadiusOfSatellites(2.656175E7);
+        config.setSatellitesInclinationDegrees(55.0);
+        config.setMaskAngleDegrees(10.0);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(CLOCK_OFFSET);
+        config.setInitialReceiverClockDrift(CLOCK_DRIFT);
+        return config;
+    }
+
+    private static GNSSMeasurementBatch[] simulate(
+            final ECEFPositionAndVelocity user, final double startTime,
+            final int numberOfEpochs, final Random random) throws GNSSException {
+        return new GNSSMonteCarloSimulator(generateConfig(),
+                Collections.singletonList(user), startTime, numberOfEpochs,
+                random.nextLong(), 1).simulate()[0];
+    }
+
+    private static GNSSKalmanConfig generateKalmanConfig() {
+        return new GNSSKalmanConfig(10.0, 0.1, 10.0, 0.1, 1.0, 1.0, 1.0, 5.0, 0.1);
+    }
+}
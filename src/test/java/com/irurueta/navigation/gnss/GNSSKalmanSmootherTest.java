@@ -0,0 +1,414 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.algebra.AlgebraException;
+import com.irurueta.algebra.Matrix;
+import com.irurueta.algebra.Utils;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSKalmanSmootherTest {
+
+    private static final double EPOCH_INTERVAL_SECONDS = 1.0;
+
+    private static final double CLOCK_OFFSET = 10000.0;
+    private static final double CLOCK_DRIFT = 100.0;
+
+    private static final double MIN_LATITUDE_DEGREES = -70.0;
+    private static final double MAX_LATITUDE_DEGREES = 70.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_USER_HEIGHT = -50.0;
+    private static final double MAX_USER_HEIGHT = 50.0;
+
+    private static final double MIN_USER_VELOCITY_VALUE = -20.0;
+    private static final double MAX_USER_VELOCITY_VALUE = 20.0;
+
+    private static final double MIN_VALUE = -1.0;
+    private static final double MAX_VALUE = 1.0;
+
+    private static final int EPOCHS = 60;
+    private static final int CHUNK_SIZE = 7;
+
+    private static final int SIZE = 8;
+
+    private static final double ABSOLUTE_ERROR = 1e-6;
+    private static final double RELATIVE_ERROR = 1e-6;
+
+    private static final int TIMES = 5;
+
+    @Test
+    public void testConstructor() {
+        final GNSSKalmanConfig config = generateKalmanConfig();
+
+        GNSSKalmanSmoother smoother = new GNSSKalmanSmoother(config);
+
+        assertEquals(config, smoother.getConfig());
+        assertEquals(GNSSKalmanSmoother.DEFAULT_CHUNK_SIZE, smoother.getChunkSize());
+        assertEquals(0, smoother.getNumberOfEpochs());
+        assertFalse(smoother.isSmoothed());
+
+        smoother = new GNSSKalmanSmoother(config, CHUNK_SIZE);
+
+        assertEquals(config, smoother.getConfig());
+        assertEquals(CHUNK_SIZE, smoother.getChunkSize());
+
+        // force IllegalArgumentException
+        smoother = null;
+        try {
+            smoother = new GNSSKalmanSmoother(config, 0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // force NullPointerException
+        try {
+            smoother = new GNSSKalmanSmoother(null);
+            fail("NullPointerException expected but not thrown");
+        } catch (final NullPointerException ignore) {
+        }
+        assertNull(smoother);
+    }
+
+    @Test
+    public void testAddAndGet() {
+        final GNSSKalmanSmoother smoother = new GNSSKalmanSmoother(generateKalmanConfig(),
+                CHUNK_SIZE);
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+
+        final List<GNSSKalmanState> states = new ArrayList<>();
+        final double[] intervals = new double[3 * CHUNK_SIZE + 1];
+        for (int e = 0; e < intervals.length; e++) {
+            final GNSSKalmanState state = createState(randomizer);
+            intervals[e] = randomizer.nextDouble(0.0, MAX_VALUE);
+            if (e % 2 == 0) {
+                smoother.add(intervals[e], state);
+            } else {
+                smoother.add(new Time(intervals[e], TimeUnit.SECOND), state);
+            }
+            states.add(state);
+        }
+
+        assertEquals(intervals.length, smoother.getNumberOfEpochs());
+        for (int e = 0; e < intervals.length; e++) {
+            assertEquals(intervals[e], smoother.getPropagationInterval(e), 0.0);
+            assertEquals(states.get(e), smoother.getState(e));
+            assertEquals(states.get(e).getEstimation(), smoother.getEstimation(e));
+
+            final double[] covariance =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            smoother.getPackedCovariance(e, covariance);
+            assertArrayEquals(states.get(e).getPackedCovariance(), covariance, 0.0);
+        }
+
+        // force IllegalArgumentException
+        try {
+            smoother.getEstimation(-1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            smoother.getState(intervals.length);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            smoother.getPackedCovariance(0, new double[1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            smoother.add(-1.0, states.get(0));
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            smoother.add(0.0, new GNSSKalmanState());
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            smoother.add(0.0, new GNSSEstimation(), new double[1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // once smoothed, no more epochs can be added
+        smoother.smooth();
+        assertTrue(smoother.isSmoothed());
+        try {
+            smoother.add(0.0, states.get(0));
+            fail("IllegalStateException expected but not thrown");
+        } catch (final IllegalStateException ignore) {
+        }
+        try {
+            smoother.smooth();
+            fail("IllegalStateException expected but not thrown");
+        } catch (final IllegalStateException ignore) {
+        }
+
+        // reset
+        smoother.reset();
+        assertEquals(0, smoother.getNumberOfEpochs());
+        assertFalse(smoother.isSmoothed());
+
+        // chunks are reused after reset
+        smoother.add(intervals[0], states.get(1));
+        assertEquals(states.get(1), smoother.getState(0));
+    }
+
+    @Test
+    public void testEstimateWithoutEpochs() throws GNSSException {
+        final GNSSKalmanSmoother smoother = new GNSSKalmanSmoother(generateKalmanConfig());
+
+        try {
+            smoother.estimate(new GNSSMeasurementBatch(), EPOCH_INTERVAL_SECONDS);
+            fail("NotReadyException expected but not thrown");
+        } catch (final NotReadyException ignore) {
+        }
+    }
+
+    @Test
+    public void testSmoothMatchesExplicitRauchTungStriebel()
+            throws AlgebraException, GNSSException, NotReadyException {
+        final GNSSKalmanConfig config = generateKalmanConfig();
+
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPositionAndVelocity user = generateUser(new Random());
+            final GNSSMeasurementBatch[] measurements = simulate(user,
+                    EPOCH_INTERVAL_SECONDS, EPOCHS, new Random());
+
+            final GNSSKalmanState initialState = GNSSKalmanInitializer.initialize(
+                    new GNSSEstimation(user.getX(), user.getY(), user.getZ(),
+                            user.getVx(), user.getVy(), user.getVz(),
+                            CLOCK_OFFSET, CLOCK_DRIFT), config);
+
+            final GNSSKalmanSmoother smoother = new GNSSKalmanSmoother(config,
+                    CHUNK_SIZE);
+            final GNSSKalmanSmoother smoother2 = new GNSSKalmanSmoother(config);
+            smoother.add(0.0, initialState);
+            smoother2.add(0.0, initialState);
+
+            // forward pass using epoch estimator, keeping predictions
+            final List<Matrix> filteredX = new ArrayList<>();
+            final List<Matrix> filteredP = new ArrayList<>();
+            final List<Matrix> predictedX = new ArrayList<>();
+            final List<Matrix> predictedP = new ArrayList<>();
+            filteredX.add(Matrix.newFromArray(
+                    initialState.getEstimation().asArray()));
+            filteredP.add(initialState.getCovariance());
+            predictedX.add(null);
+            predictedP.add(null);
+
+            final GNSSKalmanState state = new GNSSKalmanState(initialState);
+            final GNSSEstimation predictedEstimation = new GNSSEstimation();
+            final double[] predictedCovariance =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            for (final GNSSMeasurementBatch batch : measurements) {
+                GNSSKalmanEpochEstimator.predict(EPOCH_INTERVAL_SECONDS,
+                        state.getEstimation(), state.getPackedCovariance(),
+                        config, predictedEstimation, predictedCovariance);
+                predictedX.add(Matrix.newFromArray(predictedEstimation.asArray()));
+                final Matrix p = new Matrix(SIZE, SIZE);
+                GNSSKalmanState.unpack(predictedCovariance, p);
+                predictedP.add(p);
+
+                GNSSKalmanEpochEstimator.estimate(batch, EPOCH_INTERVAL_SECONDS,
+                        state, config, state);
+                filteredX.add(Matrix.newFromArray(state.getEstimation().asArray()));
+                filteredP.add(state.getCovariance());
+
+                smoother.estimate(batch, EPOCH_INTERVAL_SECONDS);
+                smoother2.estimate(batch.toMeasurements(),
+                        new Time(EPOCH_INTERVAL_SECONDS, TimeUnit.SECOND));
+            }
+
+            assertEquals(measurements.length + 1, smoother.getNumberOfEpochs());
+            for (int e = 0; e < smoother.getNumberOfEpochs(); e++) {
+                assertEquals(e == 0 ? 0.0 : EPOCH_INTERVAL_SECONDS,
+                        smoother.getPropagationInterval(e), 0.0);
+                assertArrayEquals(filteredX.get(e).getBuffer(),
+                        smoother.getEstimation(e).asArray(), 0.0);
+            }
+
+            // explicit backward pass
+            final Matrix phi = Matrix.identity(SIZE, SIZE);
+            phi.setElementAt(0, 3, EPOCH_INTERVAL_SECONDS);
+            phi.setElementAt(1, 4, EPOCH_INTERVAL_SECONDS);
+            phi.setElementAt(2, 5, EPOCH_INTERVAL_SECONDS);
+            phi.setElementAt(6, 7, EPOCH_INTERVAL_SECONDS);
+
+            final int last = smoother.getNumberOfEpochs() - 1;
+            final Matrix[] smoothedX = new Matrix[last + 1];
+            final Matrix[] smoothedP = new Matrix[last + 1];
+            smoothedX[last] = filteredX.get(last);
+            smoothedP[last] = filteredP.get(last);
+            for (int k = last - 1; k >= 0; k--) {
+                final Matrix c = filteredP.get(k).multiplyAndReturnNew(
+                        phi.transposeAndReturnNew()).multiplyAndReturnNew(
+                        Utils.inverse(predictedP.get(k + 1)));
+                smoothedX[k] = filteredX.get(k).addAndReturnNew(
+                        c.multiplyAndReturnNew(smoothedX[k + 1]
+                                .subtractAndReturnNew(predictedX.get(k + 1))));
+                smoothedP[k] = filteredP.get(k).addAndReturnNew(
+                        c.multiplyAndReturnNew(smoothedP[k + 1]
+                                .subtractAndReturnNew(predictedP.get(k + 1)))
+                                .multiplyAndReturnNew(c.transposeAndReturnNew()));
+            }
+
+            final int[] count = new int[1];
+            smoother.smooth(new GNSSKalmanSmootherListener() {
+                @Override
+                public void onEpochSmoothed(final GNSSKalmanSmoother smoother,
+                                            final int epoch,
+                                            final GNSSEstimation estimation,
+                                            final double[] covariance) {
+                    // epochs are notified in reverse order
+                    assertEquals(last - count[0], epoch);
+                    count[0]++;
+                }
+            });
+            smoother2.smooth();
+            assertEquals(last + 1, count[0]);
+            assertTrue(smoother.isSmoothed());
+
+            final Matrix covariance = new Matrix(SIZE, SIZE);
+            for (int k = 0; k <= last; k++) {
+                final double[] x = smoother.getEstimation(k).asArray();
+                for (int i = 0; i < SIZE; i++) {
+                    assertEquals(smoothedX[k].getElementAtIndex(i), x[i],
+                            ABSOLUTE_ERROR);
+                }
+
+                smoother.getState(k).getCovariance(covariance);
+                assertTrue(smoothedP[k].equals(covariance,
+                        RELATIVE_ERROR * maxAbs(smoothedP[k])));
+
+                // smoothed uncertainty never exceeds filtered one
+                for (int i = 0; i < SIZE; i++) {
+                    assertTrue(covariance.getElementAt(i, i)
+                            <= filteredP.get(k).getElementAt(i, i)
+                            * (1.0 + RELATIVE_ERROR));
+                }
+
+                // chunk size does not change results
+                assertEquals(smoother.getState(k), smoother2.getState(k));
+            }
+        }
+    }
+
+    private static double maxAbs(final Matrix m) {
+        double result = 0.0;
+        for (final double value : m.getBuffer()) {
+            result = Math.max(result, Math.abs(value));
+        }
+        return result;
+    }
+
+    private static GNSSKalmanState createState(final UniformRandomizer randomizer) {
+        final GNSSEstimation estimation = new GNSSEstimation(
+                randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                randomizer.nextDouble(MIN_VALUE, MAX_VALUE));
+
+        final double[] covariance = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        for (int i = 0; i < covariance.length; i++) {
+            covariance[i] = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        }
+
+        final GNSSKalmanState state = new GNSSKalmanState();
+        state.setEstimation(estimation);
+        state.setPackedCovariance(covariance);
+        return state;
+    }
+
+    private static ECEFPositionAndVelocity generateUser(final Random random) {
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final NEDPosition nedPosition = new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                        MAX_LATITUDE_DEGREES)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)),
+                randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT));
+
+        // user moves so that smoothing also corrects velocity states
+        final NEDVelocity nedVelocity = new NEDVelocity(
+                randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                        MAX_USER_VELOCITY_VALUE),
+                randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                        MAX_USER_VELOCITY_VALUE),
+                randomizer.nextDouble(MIN_USER_VELOCITY_VALUE,
+                        MAX_USER_VELOCITY_VALUE));
+
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                nedVelocity, ecefPosition, ecefVelocity);
+        return new ECEFPositionAndVelocity(ecefPosition, ecefVelocity);
+    }
+
+    private static GNSSConfig generateConfig() {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(EPOCH_INTERVAL_SECONDS);
+        config.setNumberOfSatellites(30);
+        config.setOrbitalRadiusOfSatellites(2.656175E7);
+        config.setSatellitesInclinationDegrees(55.0);
+        config.setMaskAngleDegrees(10.0);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(CLOCK_OFFSET);
+        config.setInitialReceiverClockDrift(CLOCK_DRIFT);
+        return config;
+    }
+
+    private static GNSSMeasurementBatch[] simulate(
+            final ECEFPositionAndVelocity user, final double startTime,
+            final int numberOfEpochs, final Random random) throws GNSSException {
+        return new GNSSMonteCarloSimulator(generateConfig(),
+                Collections.singletonList(user), startTime, numberOfEpochs,
+                random.nextLong(), 1).simulate()[0];
+    }
+
+    private static GNSSKalmanConfig generateKalmanConfig() {
+        return new GNSSKalmanConfig(10.0, 0.1, 10.0, 0.1, 1.0, 1.0, 1.0, 5.0, 0.1);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.algebra.Matrix;
+import com.irurueta.algebra.WrongSizeException;
+import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSKalmanSnapshotTest {
+
+    private static final double MIN_VALUE = -1.0;
+    private static final double MAX_VALUE = 1.0;
+
+    @Test
+    public void testConstructor() throws WrongSizeException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double x = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double y = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double z = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double vx = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double vy = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double vz = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double clockOffset = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final double clockDrift = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final GNSSEstimation estimation = new GNSSEstimation(x, y, z, vx, vy, vz,
+                clockOffset, clockDrift);
+
+        final Matrix m = Matrix.createWithUniformRandomValues(
+                GNSSEstimation.NUM_PARAMETERS, GNSSEstimation.NUM_PARAMETERS,
+                MIN_VALUE, MAX_VALUE);
+        final Matrix covariance = m.multiplyAndReturnNew(m.transposeAndReturnNew());
+        final GNSSKalmanState state = new GNSSKalmanState(estimation, covariance);
+
+        final double timestamp = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+        final long sequenceNumber = randomizer.nextInt(0, 100);
+
+        final GNSSKalmanSnapshot snapshot = new GNSSKalmanSnapshot(state,
+                timestamp, sequenceNumber);
+
+        // check values
+        assertEquals(timestamp, snapshot.getTimestamp(), 0.0);
+        assertEquals(new Time(timestamp, TimeUnit.SECOND),
+                snapshot.getTimestampAsTime());
+        final Time time = new Time(0.0, TimeUnit.MILLISECOND);
+        snapshot.getTimestampAsTime(time);
+        assertEquals(new Time(timestamp, TimeUnit.SECOND), time);
+        assertEquals(sequenceNumber, snapshot.getSequenceNumber());
+
+        assertEquals(x, snapshot.getX(), 0.0);
+        assertEquals(y, snapshot.getY(), 0.0);
+        assertEquals(z, snapshot.getZ(), 0.0);
+        assertEquals(vx, snapshot.getVx(), 0.0);
+        assertEquals(vy, snapshot.getVy(), 0.0);
+        assertEquals(vz, snapshot.getVz(), 0.0);
+        assertEquals(clockOffset, snapshot.getClockOffset(), 0.0);
+        assertEquals(clockDrift, snapshot.getClockDrift(), 0.0);
+
+        assertEquals(estimation, snapshot.getEstimation());
+        final GNSSEstimation estimation2 = new GNSSEstimation();
+        snapshot.getEstimation(estimation2);
+        assertEquals(estimation, estimation2);
+
+        assertArrayEquals(state.getPackedCovariance(),
+                snapshot.getPackedCovariance(), 0.0);
+        final double[] packed = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        snapshot.getPackedCovariance(packed);
+        assertArrayEquals(state.getPackedCovariance(), packed, 0.0);
+
+        assertEquals(state.getCovariance(), snapshot.getCovariance());
+        final Matrix covariance2 = new Matrix(1, 1);
+        snapshot.getCovariance(covariance2);
+        assertEquals(state.getCovariance(), covariance2);
+
+        assertEquals(state, snapshot.getState());
+        final GNSSKalmanState state2 = new GNSSKalmanState();
+        snapshot.getState(state2);
+        assertEquals(state, state2);
+
+        // modifying source state or returned values does not modify snapshot
+        estimation.setX(x + 1.0);
+        state.setCovariance(Matrix.identity(GNSSEstimation.NUM_PARAMETERS,
+                GNSSEstimation.NUM_PARAMETERS));
+        snapshot.getPackedCovariance()[0] += 1.0;
+        snapshot.getEstimation().setY(y + 1.0);
+
+        assertEquals(x, snapshot.getX(), 0.0);
+        assertEquals(y, snapshot.getY(), 0.0);
+        assertArrayEquals(packed, snapshot.getPackedCovariance(), 0.0);
+
+        // Force IllegalArgumentException
+        try {
+            snapshot.getPackedCovariance(new double[1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+}
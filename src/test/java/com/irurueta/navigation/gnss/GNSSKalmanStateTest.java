@@ -59,7 +59,9 @@ public class GNSSKalmanStateTest {
 
         // check default values
         assertSame(state.getEstimation(), estimation);
-        assertSame(state.getCovariance(), covariance);
+        // covariance is stored packed, so an equal copy is returned
+        assertEquals(state.getCovariance(), covariance);
+        assertNotSame(state.getCovariance(), covariance);
 
         // Force IllegalArgumentException
         state = null;
@@ -132,6 +134,69 @@ public class GNSSKalmanStateTest {
         assertEquals(covariance1, covariance3);
     }
 
+    @Test
+    public void testGetSetPackedCovariance() throws WrongSizeException {
+        final GNSSKalmanState state = new GNSSKalmanState();
+
+        // check default value
+        assertNull(state.getPackedCovariance());
+        assertFalse(state.getPackedCovariance(
+                new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH]));
+        assertFalse(state.hasCovariance());
+
+        // set new value
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double[] packed1 = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        randomizer.fill(packed1, MIN_VALUE, MAX_VALUE);
+        state.setPackedCovariance(packed1);
+
+        // check
+        assertTrue(state.hasCovariance());
+        final double[] packed2 = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        assertTrue(state.getPackedCovariance(packed2));
+        final double[] packed3 = state.getPackedCovariance();
+
+        assertArrayEquals(packed1, packed2, 0.0);
+        assertArrayEquals(packed1, packed3, 0.0);
+        assertNotSame(packed1, packed3);
+
+        // check that unpacked covariance is symmetric and matches packed values
+        final Matrix covariance = state.getCovariance();
+        for (int i = 0; i < GNSSEstimation.NUM_PARAMETERS; i++) {
+            for (int j = 0; j < GNSSEstimation.NUM_PARAMETERS; j++) {
+                assertEquals(covariance.getElementAt(i, j),
+                        covariance.getElementAt(j, i), 0.0);
+                assertEquals(covariance.getElementAt(i, j),
+                        packed1[GNSSKalmanState.packedIndex(i, j)], 0.0);
+            }
+        }
+
+        // setting a full matrix keeps its upper triangular part
+        final Matrix covariance2 = Matrix.createWithUniformRandomValues(
+                GNSSEstimation.NUM_PARAMETERS, GNSSEstimation.NUM_PARAMETERS,
+                MIN_VALUE, MAX_VALUE);
+        state.setCovariance(covariance2);
+        final double[] packed4 = state.getPackedCovariance();
+        for (int i = 0; i < GNSSEstimation.NUM_PARAMETERS; i++) {
+            for (int j = i; j < GNSSEstimation.NUM_PARAMETERS; j++) {
+                assertEquals(covariance2.getElementAt(i, j),
+                        packed4[GNSSKalmanState.packedIndex(i, j)], 0.0);
+                assertEquals(GNSSKalmanState.packedIndex(i, j),
+                        GNSSKalmanState.packedIndex(j, i));
+            }
+        }
+
+        // Force IllegalArgumentException
+        try {
+            state.setPackedCovariance(new double[1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) { }
+        try {
+            state.getPackedCovariance(new double[1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) { }
+    }
+
     @Test
     public void testCopyToWhenInputHasValuesAndOutputDoesNotHaveValues()
             throws WrongSizeException {
@@ -0,0 +1,505 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.algebra.AlgebraException;
+import com.irurueta.algebra.CholeskyDecomposer;
+import com.irurueta.algebra.Matrix;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSKalmanUDEpochEstimatorTest {
+
+    private static final double EPOCH_INTERVAL_SECONDS = 1.0;
+
+    private static final double CLOCK_OFFSET = 10000.0;
+    private static final double CLOCK_DRIFT = 100.0;
+
+    private static final double MIN_LATITUDE_DEGREES = -70.0;
+    private static final double MAX_LATITUDE_DEGREES = 70.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_USER_HEIGHT = -50.0;
+    private static final double MAX_USER_HEIGHT = 50.0;
+
+    private static final int EPOCHS = 300;
+
+    private static final int SIZE = 8;
+
+    private static final double ABSOLUTE_ERROR = 1e-8;
+    private static final double RELATIVE_ERROR = 1e-6;
+    private static final double POSITION_ERROR = 1e-4;
+    private static final double MAX_POSITION_ERROR = 50.0;
+
+    private static final int TIMES = 50;
+
+    @Test
+    public void testFactorizeAndRecompose() throws AlgebraException {
+        for (int t = 0; t < TIMES; t++) {
+            final Matrix a = Matrix.createWithUniformRandomValues(SIZE, SIZE,
+                    -1.0, 1.0);
+            final Matrix p = a.transposeAndReturnNew().multiplyAndReturnNew(a);
+            p.add(Matrix.identity(SIZE, SIZE));
+
+            final double[] packed = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanState.pack(p, packed);
+
+            final double[] u = new double[SIZE * SIZE];
+            final double[] d = new double[SIZE];
+            GNSSKalmanUDEpochEstimator.factorize(packed, u, d);
+
+            // U is unit upper triangular and D is positive
+            for (int i = 0; i < SIZE; i++) {
+                assertTrue(d[i] > 0.0);
+                assertEquals(u[i * SIZE + i], 1.0, 0.0);
+                for (int j = 0; j < i; j++) {
+                    assertEquals(u[i * SIZE + j], 0.0, 0.0);
+                }
+            }
+
+            final double[] recomposed = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanUDEpochEstimator.recompose(u, d, recomposed);
+            assertArrayEquals(packed, recomposed, ABSOLUTE_ERROR);
+        }
+    }
+
+    @Test
+    public void testFactorizeSemiDefinite() throws AlgebraException {
+        for (int t = 0; t < TIMES; t++) {
+            // rank deficient matrix
+            final Matrix a = Matrix.createWithUniformRandomValues(3, SIZE,
+                    -1.0, 1.0);
+            final Matrix p = a.transposeAndReturnNew().multiplyAndReturnNew(a);
+
+            final double[] packed = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanState.pack(p, packed);
+
+            // slightly break positive semi-definiteness
+            packed[GNSSKalmanState.packedIndex(0, 0)] -= 1e-9;
+
+            final double[] u = new double[SIZE * SIZE];
+            final double[] d = new double[SIZE];
+            GNSSKalmanUDEpochEstimator.factorize(packed, u, d);
+
+            for (int i = 0; i < SIZE; i++) {
+                assertTrue(d[i] >= 0.0);
+            }
+
+            final double[] recomposed = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanUDEpochEstimator.recompose(u, d, recomposed);
+            for (int i = 0; i < SIZE; i++) {
+                assertTrue(recomposed[GNSSKalmanState.packedIndex(i, i)] >= 0.0);
+            }
+            assertArrayEquals(packed, recomposed, 1e-6);
+        }
+    }
+
+    @Test
+    public void testEstimateMatchesConventionalFilter() throws AlgebraException,
+            GNSSException {
+        final GNSSKalmanConfig config = generateKalmanConfig();
+
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPositionAndVelocity user = generateUser(new Random());
+            final GNSSMeasurementBatch measurements = simulate(user, new Random());
+
+            final GNSSEstimation previousEstimation = new GNSSEstimation(
+                    user.getX(), user.getY(), user.getZ(),
+                    user.getVx(), user.getVy(), user.getVz(),
+                    CLOCK_OFFSET, CLOCK_DRIFT);
+            final GNSSKalmanState previousState = GNSSKalmanInitializer.initialize(
+                    previousEstimation, config);
+
+            final GNSSKalmanState expected = new GNSSKalmanState();
+            GNSSKalmanEpochEstimator.estimate(measurements, EPOCH_INTERVAL_SECONDS,
+                    previousState, config, expected);
+
+            final GNSSKalmanState result = new GNSSKalmanState();
+            GNSSKalmanUDEpochEstimator.estimate(measurements, EPOCH_INTERVAL_SECONDS,
+                    previousState, config, result);
+
+            assertEstimationEquals(expected.getEstimation(), result.getEstimation());
+            assertCovarianceEquals(expected.getPackedCovariance(),
+                    result.getPackedCovariance());
+        }
+    }
+
+    @Test
+    public void testEstimateWithNegativeLogLikelihood() throws AlgebraException,
+            GNSSException {
+        final GNSSKalmanConfig config = generateKalmanConfig();
+
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPositionAndVelocity user = generateUser(new Random());
+            final GNSSMeasurementBatch measurements = simulate(user, new Random());
+            final int m = measurements.getSize();
+
+            final GNSSEstimation previousEstimation = new GNSSEstimation(
+                    user.getX(), user.getY(), user.getZ(),
+                    user.getVx(), user.getVy(), user.getVz(),
+                    CLOCK_OFFSET, CLOCK_DRIFT);
+            final GNSSKalmanState previousState = GNSSKalmanInitializer.initialize(
+                    previousEstimation, config);
+
+            // explicit likelihood of the whole innovation vector
+            final double[] x = previousEstimation.asArray();
+            x[0] += EPOCH_INTERVAL_SECONDS * x[3];
+            x[1] += EPOCH_INTERVAL_SECONDS * x[4];
+            x[2] += EPOCH_INTERVAL_SECONDS * x[5];
+            x[6] += EPOCH_INTERVAL_SECONDS * x[7];
+            final double[] packed = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            GNSSKalmanEpochEstimator.propagateCovariance(
+                    previousState.getPackedCovariance(), EPOCH_INTERVAL_SECONDS,
+                    config, packed);
+            final Matrix p = new Matrix(SIZE, SIZE);
+            GNSSKalmanState.unpack(packed, p);
+
+            final double[] uAseT = new double[3 * m];
+            final double[] deltaZ = new double[2 * m];
+            GNSSKalmanEpochEstimator.computeInnovations(measurements, x, uAseT,
+                    deltaZ);
+
+            final Matrix h = new Matrix(2 * m, SIZE);
+            final Matrix r = new Matrix(2 * m, 2 * m);
+            for (int j = 0; j < m; j++) {
+                for (int k = 0; k < 3; k++) {
+                    h.setElementAt(j, k, -uAseT[3 * j + k]);
+                    h.setElementAt(m + j, 3 + k, -uAseT[3 * j + k]);
+                }
+                h.setElementAt(j, 6, 1.0);
+                h.setElementAt(m + j, 7, 1.0);
+                r.setElementAt(j, j, Math.pow(config.getPseudoRangeSD(), 2.0));
+                r.setElementAt(m + j, m + j, Math.pow(config.getRangeRateSD(), 2.0));
+            }
+            final Matrix s = h.multiplyAndReturnNew(p).multiplyAndReturnNew(
+                    h.transposeAndReturnNew());
+            s.add(r);
+            s.add(s.transposeAndReturnNew());
+            s.multiplyByScalar(0.5);
+
+            final CholeskyDecomposer decomposer = new CholeskyDecomposer(s);
+            decomposer.decompose();
+            final Matrix l = decomposer.getL();
+            double logDet = 0.0;
+            for (int i = 0; i < 2 * m; i++) {
+                logDet += 2.0 * Math.log(l.getElementAt(i, i));
+            }
+            final Matrix innovations = Matrix.newFromArray(deltaZ);
+            final Matrix solved = decomposer.solve(innovations);
+            double mahalanobis = 0.0;
+            for (int i = 0; i < 2 * m; i++) {
+                mahalanobis += deltaZ[i] * solved.getElementAtIndex(i);
+            }
+            final double expected = 0.5 * (2 * m * Math.log(2.0 * Math.PI)
+                    + logDet + mahalanobis);
+
+            final GNSSEstimation estimation = new GNSSEstimation();
+            final double[] covariance =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            final double result =
+                    GNSSKalmanUDEpochEstimator.estimateWithNegativeLogLikelihood(
+                            measurements, EPOCH_INTERVAL_SECONDS,
+                            previousEstimation, previousState.getPackedCovariance(),
+                            config, estimation, covariance);
+            assertEquals(expected, result, RELATIVE_ERROR * Math.abs(expected));
+
+            // updated state is the same as the one obtained without likelihood
+            final GNSSKalmanState state = new GNSSKalmanState();
+            GNSSKalmanUDEpochEstimator.estimate(measurements, EPOCH_INTERVAL_SECONDS,
+                    previousState, config, state);
+            assertTrue(state.getEstimation().equals(estimation, 0.0));
+            assertArrayEquals(state.getPackedCovariance(), covariance, 0.0);
+        }
+    }
+
+    @Test
+    public void testUpdateStepReusesBuffers() throws GNSSException {
+        final GNSSKalmanConfig config = generateKalmanConfig();
+        final GNSSKalmanUDEpochEstimator.UpdateStep step =
+                new GNSSKalmanUDEpochEstimator.UpdateStep();
+
+        final GNSSEstimation estimation = new GNSSEstimation();
+        final double[] covariance =
+                new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        for (int t = 0; t < TIMES; t++) {
+            // each epoch has a different user, so that the number of visible
+            // satellites changes and buffers are reused or enlarged
+            final ECEFPositionAndVelocity user = generateUser(new Random());
+            final GNSSMeasurementBatch measurements = simulate(user, new Random());
+
+            final GNSSEstimation previousEstimation = new GNSSEstimation(
+                    user.getX(), user.getY(), user.getZ(),
+                    user.getVx(), user.getVy(), user.getVz(),
+                    CLOCK_OFFSET, CLOCK_DRIFT);
+            final GNSSKalmanState previousState = GNSSKalmanInitializer.initialize(
+                    previousEstimation, config);
+
+            final GNSSEstimation expectedEstimation = new GNSSEstimation();
+            final double[] expectedCovariance =
+                    new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+            final double expected =
+                    GNSSKalmanUDEpochEstimator.estimateWithNegativeLogLikelihood(
+                            measurements, EPOCH_INTERVAL_SECONDS,
+                            previousEstimation, previousState.getPackedCovariance(),
+                            config, expectedEstimation, expectedCovariance);
+
+            // previous and updated values can be the same instances
+            previousEstimation.copyTo(estimation);
+            previousState.getPackedCovariance(covariance);
+            final double result = step.estimate(measurements,
+                    EPOCH_INTERVAL_SECONDS, estimation, covariance, config,
+                    estimation, covariance);
+
+            assertEquals(expected, result, 0.0);
+            assertTrue(expectedEstimation.equals(estimation, 0.0));
+            assertArrayEquals(expectedCovariance, covariance, 0.0);
+        }
+    }
+
+    @Test
+    public void testEstimateOverloads() throws GNSSException {
+        final GNSSKalmanConfig config = generateKalmanConfig();
+        final ECEFPositionAndVelocity user = generateUser(new Random());
+        final GNSSMeasurementBatch measurements = simulate(user, new Random());
+        final List<GNSSMeasurement> measurementList = measurements.toMeasurements();
+
+        final GNSSEstimation previousEstimation = new GNSSEstimation(
+                user.getX(), user.getY(), user.getZ(),
+                user.getVx(), user.getVy(), user.getVz(),
+                CLOCK_OFFSET, CLOCK_DRIFT);
+        final GNSSKalmanState previousState = GNSSKalmanInitializer.initialize(
+                previousEstimation, config);
+        final Time propagationInterval = new Time(EPOCH_INTERVAL_SECONDS,
+                TimeUnit.SECOND);
+
+        final GNSSEstimation updatedEstimation = new GNSSEstimation();
+        final double[] updatedCovariance =
+                new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        GNSSKalmanUDEpochEstimator.estimate(measurements, EPOCH_INTERVAL_SECONDS,
+                previousEstimation, previousState.getPackedCovariance(), config,
+                updatedEstimation, updatedCovariance);
+        final GNSSKalmanState state1 = new GNSSKalmanState();
+        state1.setEstimation(updatedEstimation);
+        state1.setPackedCovariance(updatedCovariance);
+
+        final GNSSEstimation updatedEstimation2 = new GNSSEstimation();
+        final double[] updatedCovariance2 =
+                new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        GNSSKalmanUDEpochEstimator.estimate(measurements, propagationInterval,
+                previousEstimation, previousState.getPackedCovariance(), config,
+                updatedEstimation2, updatedCovariance2);
+        final GNSSKalmanState state2 = new GNSSKalmanState();
+        state2.setEstimation(updatedEstimation2);
+        state2.setPackedCovariance(updatedCovariance2);
+
+        final GNSSKalmanState state3 = new GNSSKalmanState();
+        GNSSKalmanUDEpochEstimator.estimate(measurements, propagationInterval,
+                previousState, config, state3);
+
+        final GNSSKalmanState state4 = GNSSKalmanUDEpochEstimator.estimate(
+                measurementList, EPOCH_INTERVAL_SECONDS, previousState, config);
+
+        final GNSSKalmanState state5 = GNSSKalmanUDEpochEstimator.estimate(
+                measurementList, propagationInterval, previousState, config);
+
+        final GNSSKalmanState state6 = new GNSSKalmanState();
+        GNSSKalmanUDEpochEstimator.estimate(measurementList, propagationInterval,
+                previousState, config, state6);
+
+        // result can be the same instance as previous state
+        final GNSSKalmanState state7 = new GNSSKalmanState(previousState);
+        GNSSKalmanUDEpochEstimator.estimate(measurements, EPOCH_INTERVAL_SECONDS,
+                state7, config, state7);
+
+        // previous and updated covariance can be the same instance
+        final GNSSEstimation updatedEstimation8 = new GNSSEstimation();
+        final double[] covariance8 = previousState.getPackedCovariance();
+        GNSSKalmanUDEpochEstimator.estimate(measurements, EPOCH_INTERVAL_SECONDS,
+                previousEstimation, covariance8, config, updatedEstimation8,
+                covariance8);
+        final GNSSKalmanState state8 = new GNSSKalmanState();
+        state8.setEstimation(updatedEstimation8);
+        state8.setPackedCovariance(covariance8);
+
+        assertEquals(state1, state2);
+        assertEquals(state1, state3);
+        assertEquals(state1, state4);
+        assertEquals(state1, state5);
+        assertEquals(state1, state6);
+        assertEquals(state1, state7);
+        assertEquals(state1, state8);
+    }
+
+    @Test
+    public void testLongRunKeepsCovariancePositiveDefinite()
+            throws AlgebraException, GNSSException {
+        final GNSSKalmanConfig config = generateKalmanConfig();
+        final ECEFPositionAndVelocity user = generateUser(new Random());
+        final GNSSMeasurementBatch[] measurements = simulate(user, 0.0, EPOCHS,
+                new Random());
+
+        final GNSSEstimation initialEstimation = new GNSSEstimation(
+                user.getX(), user.getY(), user.getZ(),
+                user.getVx(), user.getVy(), user.getVz(),
+                CLOCK_OFFSET, CLOCK_DRIFT);
+        final GNSSKalmanState state = GNSSKalmanInitializer.initialize(
+                initialEstimation, config);
+        final GNSSKalmanState conventionalState = new GNSSKalmanState(state);
+
+        final Matrix covariance = new Matrix(SIZE, SIZE);
+        final CholeskyDecomposer decomposer = new CholeskyDecomposer();
+        for (int e = 0; e < EPOCHS; e++) {
+            final double interval = e == 0 ? 0.0 : EPOCH_INTERVAL_SECONDS;
+            GNSSKalmanUDEpochEstimator.estimate(measurements[e], interval, state,
+                    config, state);
+            GNSSKalmanEpochEstimator.estimate(measurements[e], interval,
+                    conventionalState, config, conventionalState);
+
+            state.getCovariance(covariance);
+            decomposer.setInputMatrix(covariance);
+            decomposer.decompose();
+            assertTrue(decomposer.isSPD());
+
+            assertEstimationEquals(conventionalState.getEstimation(),
+                    state.getEstimation());
+        }
+
+        final GNSSEstimation estimation = state.getEstimation();
+        final double dx = estimation.getX() - user.getX();
+        final double dy = estimation.getY() - user.getY();
+        final double dz = estimation.getZ() - user.getZ();
+        assertTrue(Math.sqrt(dx * dx + dy * dy + dz * dz) < MAX_POSITION_ERROR);
+    }
+
+    @Test
+    public void testEstimateWithInvalidArguments() throws GNSSException {
+        final GNSSKalmanConfig config = generateKalmanConfig();
+        final ECEFPositionAndVelocity user = generateUser(new Random());
+        final GNSSMeasurementBatch measurements = simulate(user, new Random());
+
+        final GNSSEstimation previousEstimation = new GNSSEstimation();
+        final GNSSEstimation updatedEstimation = new GNSSEstimation();
+        final double[] covariance = new double[GNSSKalmanState.PACKED_COVARIANCE_LENGTH];
+        final double[] wrong = new double[1];
+
+        try {
+            GNSSKalmanUDEpochEstimator.estimate(measurements, 0.0,
+                    previousEstimation, wrong, config, updatedEstimation,
+                    covariance);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            GNSSKalmanUDEpochEstimator.estimate(measurements, 0.0,
+                    previousEstimation, covariance, config, updatedEstimation,
+                    wrong);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            GNSSKalmanUDEpochEstimator.estimate(measurements, 0.0,
+                    new GNSSKalmanState(), config, new GNSSKalmanState());
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    private static void assertEstimationEquals(final GNSSEstimation expected,
+                                               final GNSSEstimation estimation) {
+        final double[] expectedArray = expected.asArray();
+        final double[] array = estimation.asArray();
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expectedArray[i], array[i], POSITION_ERROR);
+        }
+    }
+
+    private static void assertCovarianceEquals(final double[] expected,
+                                               final double[] covariance) {
+        double norm = 0.0;
+        for (final double value : expected) {
+            norm = Math.max(norm, Math.abs(value));
+        }
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], covariance[i], RELATIVE_ERROR * norm);
+        }
+    }
+
+    private static ECEFPositionAndVelocity generateUser(final Random random) {
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final NEDPosition nedPosition = new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                        MAX_LATITUDE_DEGREES)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)),
+                randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT));
+
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                new NEDVelocity(), ecefPosition, ecefVelocity);
+        return new ECEFPositionAndVelocity(ecefPosition, ecefVelocity);
+    }
+
+    private static GNSSConfig generateConfig() {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(EPOCH_INTERVAL_SECONDS);
+        config.setNumberOfSatellites(30);
+        config.setOrbitalRadiusOfSatellites(2.656175E7);
+        config.setSatellitesInclinationDegrees(55.0);
+        config.setMaskAngleDegrees(10.0);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(CLOCK_OFFSET);
+        config.setInitialReceiverClockDrift(CLOCK_DRIFT);
+        return config;
+    }
+
+    private static GNSSMeasurementBatch simulate(final ECEFPositionAndVelocity user,
+                                                 final Random random)
+            throws GNSSException {
+        return simulate(user, 0.0, 1, random)[0];
+    }
+
+    private static GNSSMeasurementBatch[] simulate(
+            final ECEFPositionAndVelocity user, final double startTime,
+            final int numberOfEpochs, final Random random) throws GNSSException {
+        return new GNSSMonteCarloSimulator(generateConfig(),
+                Collections.singletonList(user), startTime, numberOfEpochs,
+                random.nextLong(), 1).simulate()[0];
+    }
+
+    private static GNSSKalmanConfig generateKalmanConfig() {
+        return new GNSSKalmanConfig(10.0, 0.1, 10.0, 0.1, 1.0, 1.0, 1.0, 5.0, 0.1);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSLatencyHistogramTest {
+
+    private static final int SAMPLES = 10000;
+
+    private static final long MAX_LATENCY = 1000000000L;
+
+    private static final double RELATIVE_ERROR =
+            1.0 / GNSSLatencyHistogram.SUB_BUCKETS;
+
+    @Test
+    public void testEmpty() {
+        final GNSSLatencyHistogram histogram = new GNSSLatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0.0, histogram.getMean(), 0.0);
+        assertEquals(0, histogram.getPercentile(50.0));
+    }
+
+    @Test
+    public void testBuckets() {
+        // small values are exact
+        for (int i = 0; i < GNSSLatencyHistogram.SUB_BUCKETS; i++) {
+            assertEquals(i, GNSSLatencyHistogram.bucketIndex(i));
+            assertEquals(i, GNSSLatencyHistogram.bucketUpperBound(i));
+        }
+
+        // buckets are contiguous and cover all non-negative values
+        final int last = GNSSLatencyHistogram.bucketIndex(Long.MAX_VALUE);
+        for (int i = 1; i <= last; i++) {
+            final long lower = GNSSLatencyHistogram.bucketUpperBound(i - 1) + 1;
+            final long upper = GNSSLatencyHistogram.bucketUpperBound(i);
+            assertEquals(i, GNSSLatencyHistogram.bucketIndex(lower));
+            assertEquals(i, GNSSLatencyHistogram.bucketIndex(upper));
+            assertTrue(upper - lower <= lower * RELATIVE_ERROR);
+        }
+        assertEquals(Long.MAX_VALUE, GNSSLatencyHistogram.bucketUpperBound(last));
+    }
+
+    @Test
+    public void testRecordAndPercentiles() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final GNSSLatencyHistogram histogram = new GNSSLatencyHistogram();
+
+        final long[] values = new long[SAMPLES];
+        double sum = 0.0;
+        for (int i = 0; i < SAMPLES; i++) {
+            values[i] = (long) randomizer.nextDouble(0.0, MAX_LATENCY);
+            histogram.record(values[i]);
+            sum += values[i];
+        }
+        Arrays.sort(values);
+
+        assertEquals(SAMPLES, histogram.getCount());
+        assertEquals(values[0], histogram.getMin());
+        assertEquals(values[SAMPLES - 1], histogram.getMax());
+        assertEquals(sum / SAMPLES, histogram.getMean(), 1e-6 * sum / SAMPLES);
+
+        assertEquals(values[0], histogram.getPercentile(0.0));
+        assertEquals(values[SAMPLES - 1], histogram.getPercentile(100.0));
+        for (final double percentile : new double[]{1.0, 25.0, 50.0, 90.0, 99.0}) {
+            final long expected = values[(int) Math.ceil(percentile / 100.0 * SAMPLES) - 1];
+            final long result = histogram.getPercentile(percentile);
+
+            // percentiles are never underestimated
+            assertTrue(result >= expected);
+            assertTrue(result - expected <= expected * RELATIVE_ERROR);
+        }
+
+        // force IllegalArgumentException
+        try {
+            histogram.getPercentile(-1.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            histogram.getPercentile(101.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            histogram.record(-1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // reset
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(100.0));
+    }
+
+    @Test
+    public void testAdd() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final GNSSLatencyHistogram histogram1 = new GNSSLatencyHistogram();
+        final GNSSLatencyHistogram histogram2 = new GNSSLatencyHistogram();
+        final GNSSLatencyHistogram expected = new GNSSLatencyHistogram();
+
+        for (int i = 0; i < SAMPLES; i++) {
+            final long value = (long) randomizer.nextDouble(0.0, MAX_LATENCY);
+            if (i % 2 == 0) {
+                histogram1.record(value);
+            } else {
+                histogram2.record(value);
+            }
+            expected.record(value);
+        }
+
+        histogram1.add(histogram2);
+
+        assertEquals(expected.getCount(), histogram1.getCount());
+        assertEquals(expected.getMin(), histogram1.getMin());
+        assertEquals(expected.getMax(), histogram1.getMax());
+        assertEquals(expected.getMean(), histogram1.getMean(),
+                1e-9 * expected.getMean());
+        for (int p = 0; p <= 100; p++) {
+            assertEquals(expected.getPercentile(p), histogram1.getPercentile(p));
+        }
+
+        // adding an empty histogram has no effect
+        histogram1.add(new GNSSLatencyHistogram());
+        assertEquals(expected.getCount(), histogram1.getCount());
+        assertEquals(expected.getMin(), histogram1.getMin());
+    }
+}
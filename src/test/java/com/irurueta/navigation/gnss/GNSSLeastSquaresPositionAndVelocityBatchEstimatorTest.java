@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.geodesic.Constants;
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class GNSSLeastSquaresPositionAndVelocityBatchEstimatorTest {
+
+    private static final int NUMBER_OF_SATELLITES = 30;
+    private static final double ORBITAL_RADIUS = 2.656175E7;
+    private static final double INCLINATION_DEGREES = 55.0;
+    private static final double MASK_ANGLE_DEGREES = 10.0;
+
+    private static final int MIN_EPOCHS = 20;
+    private static final int MAX_EPOCHS = 100;
+
+    private static final double MIN_USER_OFFSET = -1000.0;
+    private static final double MAX_USER_OFFSET = 1000.0;
+
+    private static final double MIN_USER_SPEED = -10.0;
+    private static final double MAX_USER_SPEED = 10.0;
+
+    private static final double ABSOLUTE_ERROR = 1e-8;
+    private static final double POSITION_ERROR = 100.0;
+
+    private static final int TIMES = 5;
+
+    @Test
+    public void testConstructor() {
+        GNSSLeastSquaresPositionAndVelocityBatchEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityBatchEstimator();
+
+        // check default values
+        assertEquals(estimator.getNumberOfThreads(),
+                Runtime.getRuntime().availableProcessors());
+        assertEquals(estimator.getConvergenceThreshold(),
+                GNSSLeastSquaresPositionAndVelocityEstimator.CONVERGENCE_THRESHOLD,
+                0.0);
+
+        estimator = new GNSSLeastSquaresPositionAndVelocityBatchEstimator(3);
+
+        // check
+        assertEquals(estimator.getNumberOfThreads(), 3);
+        assertEquals(estimator.getConvergenceThreshold(),
+                GNSSLeastSquaresPositionAndVelocityEstimator.CONVERGENCE_THRESHOLD,
+                0.0);
+
+        estimator = new GNSSLeastSquaresPositionAndVelocityBatchEstimator(2, 1e-3);
+
+        // check
+        assertEquals(estimator.getNumberOfThreads(), 2);
+        assertEquals(estimator.getConvergenceThreshold(), 1e-3, 0.0);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        estimator = new GNSSLeastSquaresPositionAndVelocityBatchEstimator(
+                executor, 3);
+
+        // check
+        assertEquals(estimator.getNumberOfThreads(), 3);
+        assertEquals(estimator.getConvergenceThreshold(),
+                GNSSLeastSquaresPositionAndVelocityEstimator.CONVERGENCE_THRESHOLD,
+                0.0);
+
+        estimator = new GNSSLeastSquaresPositionAndVelocityBatchEstimator(
+                executor, 2, 1e-3);
+
+        // check
+        assertEquals(estimator.getNumberOfThreads(), 2);
+        assertEquals(estimator.getConvergenceThreshold(), 1e-3, 0.0);
+
+        // shutting down estimator does not shut down external executor
+        estimator.shutdown();
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+
+        // Force IllegalArgumentException
+        estimator = null;
+        try {
+            estimator = new GNSSLeastSquaresPositionAndVelocityBatchEstimator(0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator = new GNSSLeastSquaresPositionAndVelocityBatchEstimator(1, 0.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator = new GNSSLeastSquaresPositionAndVelocityBatchEstimator(
+                    executor, 0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // Force NullPointerException
+        try {
+            estimator = new GNSSLeastSquaresPositionAndVelocityBatchEstimator(
+                    null, 1);
+            fail("NullPointerException expected but not thrown");
+        } catch (final NullPointerException ignore) {
+        }
+        assertNull(estimator);
+    }
+
+    @Test
+    public void testEstimateMatchesSequentialEstimator() throws GNSSException,
+            LockedException, NotReadyException {
+        for (int t = 0; t < TIMES; t++) {
+            final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+            final int numEpochs = randomizer.nextInt(MIN_EPOCHS, MAX_EPOCHS);
+            final ECEFPositionAndVelocity user = createUser();
+            final GNSSMeasurementBatch[] measurements = simulate(user, numEpochs);
+
+            // provide priors only for some epochs
+            final ECEFPositionAndVelocity[] priors =
+                    new ECEFPositionAndVelocity[numEpochs];
+            for (int k = 0; k < numEpochs; k += 2) {
+                priors[k] = user;
+            }
+
+            // solve sequentially
+            final GNSSEstimation[] expected = new GNSSEstimation[numEpochs];
+            for (int k = 0; k < numEpochs; k++) {
+                final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                        new GNSSLeastSquaresPositionAndVelocityEstimator();
+                estimator.setMeasurementBatch(measurements[k]);
+                estimator.setPriorPositionAndVelocity(priors[k]);
+                expected[k] = estimator.estimate();
+            }
+
+            for (final int numThreads : new int[]{1, 2, 4}) {
+                final GNSSLeastSquaresPositionAndVelocityBatchEstimator estimator =
+                        new GNSSLeastSquaresPositionAndVelocityBatchEstimator(
+                                numThreads);
+
+                final GNSSEstimation[] results = new GNSSEstimation[numEpochs];
+                results[0] = new GNSSEstimation();
+                final int[] statuses = new int[numEpochs];
+
+                assertEquals(estimator.estimate(measurements, priors, results,
+                        statuses), numEpochs);
+
+                for (int k = 0; k < numEpochs; k++) {
+                    assertEquals(statuses[k],
+                            GNSSLeastSquaresPositionAndVelocityBatchEstimator.STATUS_SUCCESS);
+                    assertTrue(expected[k].equals(results[k], ABSOLUTE_ERROR));
+
+                    final double distance = Math.sqrt(
+                            Math.pow(results[k].getX() - user.getX(), 2.0)
+                                    + Math.pow(results[k].getY() - user.getY(), 2.0)
+                                    + Math.pow(results[k].getZ() - user.getZ(), 2.0));
+                    assertTrue(distance < POSITION_ERROR + numEpochs
+                            * Math.sqrt(user.getVx() * user.getVx()
+                            + user.getVy() * user.getVy()
+                            + user.getVz() * user.getVz()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEstimateWithoutPriors() throws GNSSException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final int numEpochs = randomizer.nextInt(MIN_EPOCHS, MAX_EPOCHS);
+        final GNSSMeasurementBatch[] measurements = simulate(createUser(), numEpochs);
+
+        final GNSSLeastSquaresPositionAndVelocityBatchEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityBatchEstimator(3);
+
+        final GNSSEstimation[] results1 = new GNSSEstimation[numEpochs];
+        final int[] statuses1 = new int[numEpochs];
+        final GNSSEstimation[] results2 = new GNSSEstimation[numEpochs];
+        final int[] statuses2 = new int[numEpochs];
+
+        assertEquals(estimator.estimate(measurements, results1, statuses1),
+                numEpochs);
+        assertEquals(estimator.estimate(measurements,
+                new ECEFPositionAndVelocity[numEpochs], results2, statuses2),
+                numEpochs);
+
+        assertArrayEquals(statuses1, statuses2);
+        assertArrayEquals(results1, results2);
+
+        // estimator can still be used after releasing its threads
+        estimator.shutdown();
+        final GNSSEstimation[] results3 = new GNSSEstimation[numEpochs];
+        final int[] statuses3 = new int[numEpochs];
+        assertEquals(estimator.estimate(measurements, results3, statuses3),
+                numEpochs);
+        assertArrayEquals(statuses1, statuses3);
+        assertArrayEquals(results1, results3);
+        estimator.shutdown();
+    }
+
+    @Test
+    public void testEstimateWithExternalExecutor() throws GNSSException,
+            InterruptedException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final int numEpochs = randomizer.nextInt(MIN_EPOCHS, MAX_EPOCHS);
+        final GNSSMeasurementBatch[] measurements = simulate(createUser(), numEpochs);
+
+        final GNSSLeastSquaresPositionAndVelocityBatchEstimator estimator1 =
+                new GNSSLeastSquaresPositionAndVelocityBatchEstimator(1);
+        final GNSSEstimation[] results1 = new GNSSEstimation[numEpochs];
+        final int[] statuses1 = new int[numEpochs];
+        estimator1.estimate(measurements, results1, statuses1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final GNSSLeastSquaresPositionAndVelocityBatchEstimator estimator2 =
+                new GNSSLeastSquaresPositionAndVelocityBatchEstimator(executor, 4);
+        final GNSSEstimation[] results2 = new GNSSEstimation[numEpochs];
+        final int[] statuses2 = new int[numEpochs];
+        estimator2.estimate(measurements, results2, statuses2);
+
+        assertArrayEquals(statuses1, statuses2);
+        assertArrayEquals(results1, results2);
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1L,
+                TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void testEstimateNotEnoughMeasurements() throws GNSSException {
+        final GNSSMeasurementBatch[] measurements = simulate(createUser(), MIN_EPOCHS);
+
+        // remove measurements of some epochs
+        final GNSSMeasurementBatch reduced = new GNSSMeasurementBatch();
+        for (int i = 0;
+             i < GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS - 1;
+             i++) {
+            reduced.add(measurements[1].getMeasurement(i));
+        }
+        measurements[1] = reduced;
+        measurements[3] = null;
+
+        final GNSSLeastSquaresPositionAndVelocityBatchEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityBatchEstimator(2);
+
+        final GNSSEstimation[] results = new GNSSEstimation[MIN_EPOCHS];
+        final int[] statuses = new int[MIN_EPOCHS];
+        assertEquals(estimator.estimate(measurements, results, statuses),
+                MIN_EPOCHS - 2);
+
+        for (int k = 0; k < MIN_EPOCHS; k++) {
+            if (k == 1 || k == 3) {
+                assertEquals(statuses[k], GNSSLeastSquaresPositionAndVelocityBatchEstimator
+                        .STATUS_NOT_ENOUGH_MEASUREMENTS);
+                assertNull(results[k]);
+            } else {
+                assertEquals(statuses[k],
+                        GNSSLeastSquaresPositionAndVelocityBatchEstimator.STATUS_SUCCESS);
+                assertNotNull(results[k]);
+            }
+        }
+    }
+
+    @Test
+    public void testEstimateInvalidArrays() throws GNSSException {
+        final GNSSMeasurementBatch[] measurements = simulate(createUser(), MIN_EPOCHS);
+
+        final GNSSLeastSquaresPositionAndVelocityBatchEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityBatchEstimator();
+
+        // Force IllegalArgumentException
+        try {
+            estimator.estimate(measurements, new GNSSEstimation[MIN_EPOCHS - 1],
+                    new int[MIN_EPOCHS]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator.estimate(measurements, new GNSSEstimation[MIN_EPOCHS],
+                    new int[MIN_EPOCHS - 1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator.estimate(measurements,
+                    new ECEFPositionAndVelocity[MIN_EPOCHS - 1],
+                    new GNSSEstimation[MIN_EPOCHS], new int[MIN_EPOCHS]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    private static GNSSMeasurementBatch[] simulate(
+            final ECEFPositionAndVelocity user, final int numEpochs)
+            throws GNSSException {
+        final List<ECEFPositionAndVelocity> users = new ArrayList<>();
+        users.add(user);
+        return new GNSSMonteCarloSimulator(createConfig(), users, 0.0, numEpochs,
+                new Random().nextLong(), 1).simulate()[0];
+    }
+
+    private static GNSSConfig createConfig() {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(1.0);
+        config.setNumberOfSatellites(NUMBER_OF_SATELLITES);
+        config.setOrbitalRadiusOfSatellites(ORBITAL_RADIUS);
+        config.setSatellitesInclinationDegrees(INCLINATION_DEGREES);
+        config.setMaskAngleDegrees(MASK_ANGLE_DEGREES);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(10000.0);
+        config.setInitialReceiverClockDrift(100.0);
+        return config;
+    }
+
+    private static ECEFPositionAndVelocity createUser() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        return new ECEFPositionAndVelocity(
+                Constants.EARTH_EQUATORIAL_RADIUS_WGS84
+                        + randomizer.nextDouble(MIN_USER_OFFSET, MAX_USER_OFFSET),
+                randomizer.nextDouble(MIN_USER_OFFSET, MAX_USER_OFFSET),
+                randomizer.nextDouble(MIN_USER_OFFSET, MAX_USER_OFFSET),
+                randomizer.nextDouble(MIN_USER_SPEED, MAX_USER_SPEED),
+                randomizer.nextDouble(MIN_USER_SPEED, MAX_USER_SPEED),
+                randomizer.nextDouble(MIN_USER_SPEED, MAX_USER_SPEED));
+    }
+}
@@ -22,7 +22,10 @@ import com.irurueta.navigation.frames.ECEFVelocity;
 import com.irurueta.navigation.frames.NEDPosition;
 import com.irurueta.navigation.frames.NEDVelocity;
 import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.navigation.geodesic.Constants;
 import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -84,6 +87,11 @@ public class GNSSLeastSquaresPositionAndVelocityEstimatorTest implements
 
     private static final int TIMES = 100;
 
+    private static final int WARM_START_EPOCHS = 10;
+    private static final double WARM_START_ERROR = 1e-2;
+
+    private static final double CLOSED_FORM_ERROR = 1e-2;
+
     private int mEstimateStart;
     private int mEstimateEnd;
 
@@ -322,6 +330,49 @@ public class GNSSLeastSquaresPositionAndVelocityEstimatorTest implements
         }
     }
 
+    @Test
+    public void testGetSetMeasurementBatch() throws LockedException {
+        final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+
+        // check default value
+        assertNull(estimator.getMeasurementBatch());
+        assertFalse(estimator.isReady());
+
+        // set new value
+        final GNSSMeasurementBatch batch = new GNSSMeasurementBatch();
+        for (int i = 0; i < GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS; i++) {
+            batch.add(new GNSSMeasurement());
+        }
+
+        estimator.setMeasurementBatch(batch);
+
+        // check
+        assertSame(estimator.getMeasurementBatch(), batch);
+        assertNull(estimator.getMeasurements());
+        assertTrue(estimator.isReady());
+
+        // setting a collection discards batch
+        final List<GNSSMeasurement> measurements = batch.toMeasurements();
+        estimator.setMeasurements(measurements);
+
+        assertNull(estimator.getMeasurementBatch());
+        assertSame(estimator.getMeasurements(), measurements);
+        assertTrue(estimator.isReady());
+
+        // test constructor
+        final GNSSLeastSquaresPositionAndVelocityEstimator estimator2 =
+                new GNSSLeastSquaresPositionAndVelocityEstimator(batch);
+        assertSame(estimator2.getMeasurementBatch(), batch);
+
+        // Force IllegalArgumentException
+        try {
+            estimator.setMeasurementBatch(new GNSSMeasurementBatch());
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
     @Test
     public void testGetSetPriorPositionAndVelocity() throws LockedException {
         final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
@@ -399,6 +450,86 @@ public class GNSSLeastSquaresPositionAndVelocityEstimatorTest implements
         assertEquals(estimator.getConvergenceThreshold(), threshold, 0.0);
     }
 
+    @Test
+    public void testGetSetMaxIterations() throws LockedException {
+        final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+
+        // check default value
+        assertEquals(estimator.getMaxIterations(),
+                GNSSLeastSquaresPositionAndVelocityEstimator.DEFAULT_MAX_ITERATIONS);
+
+        // set new value
+        estimator.setMaxIterations(5);
+
+        // check
+        assertEquals(estimator.getMaxIterations(), 5);
+
+        // Force IllegalArgumentException
+        try {
+            estimator.setMaxIterations(0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testIsSetWarmStartEnabled() throws LockedException {
+        final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+
+        // check default value
+        assertFalse(estimator.isWarmStartEnabled());
+        assertFalse(estimator.hasLastSolution());
+
+        // set new value
+        estimator.setWarmStartEnabled(true);
+
+        // check
+        assertTrue(estimator.isWarmStartEnabled());
+    }
+
+    @Test
+    public void testIsSetClosedFormInitializationEnabled() throws LockedException {
+        final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+
+        // check default value
+        assertEquals(estimator.isClosedFormInitializationEnabled(),
+                GNSSLeastSquaresPositionAndVelocityEstimator
+                        .DEFAULT_CLOSED_FORM_INITIALIZATION_ENABLED);
+        assertFalse(estimator.isClosedFormInitializationEnabled());
+
+        // set new value
+        estimator.setClosedFormInitializationEnabled(true);
+
+        // check
+        assertTrue(estimator.isClosedFormInitializationEnabled());
+    }
+
+    @Test
+    public void testGetSetTimestamp() throws LockedException {
+        final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+
+        // check default value
+        assertTrue(Double.isNaN(estimator.getTimestamp()));
+
+        // set new value
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double timestamp = randomizer.nextDouble(MIN_TIME, MAX_TIME);
+        estimator.setTimestamp(timestamp);
+
+        // check
+        assertEquals(estimator.getTimestamp(), timestamp, 0.0);
+
+        // set as time
+        estimator.setTimestamp(new Time(2.0 * timestamp, TimeUnit.SECOND));
+
+        // check
+        assertEquals(estimator.getTimestamp(), 2.0 * timestamp, 0.0);
+    }
+
     @Test
     public void testIsValidMeasurements() {
         assertFalse(GNSSLeastSquaresPositionAndVelocityEstimator.isValidMeasurements(
@@ -416,6 +547,13 @@ public class GNSSLeastSquaresPositionAndVelocityEstimatorTest implements
 
         assertTrue(GNSSLeastSquaresPositionAndVelocityEstimator.isValidMeasurements(
                 measurements));
+
+        assertFalse(GNSSLeastSquaresPositionAndVelocityEstimator.isValidMeasurementBatch(
+                null));
+        assertFalse(GNSSLeastSquaresPositionAndVelocityEstimator.isValidMeasurementBatch(
+                new GNSSMeasurementBatch()));
+        assertTrue(GNSSLeastSquaresPositionAndVelocityEstimator.isValidMeasurementBatch(
+                new GNSSMeasurementBatch(measurements)));
     }
 
     @Test
@@ -520,6 +658,16 @@ public class GNSSLeastSquaresPositionAndVelocityEstimatorTest implements
                 continue;
             }
 
+            // estimating with measurements stored in a batch gives the same result
+            final GNSSLeastSquaresPositionAndVelocityEstimator batchEstimator =
+                    new GNSSLeastSquaresPositionAndVelocityEstimator(
+                            new GNSSMeasurementBatch(measurements));
+            try {
+                assertEquals(batchEstimator.estimate(), estimation);
+            } catch (final GNSSException e) {
+                fail();
+            }
+
             final ECEFPosition estimatedPosition = estimation.getEcefPosition();
             final ECEFVelocity estimatedVelocity = estimation.getEcefVelocity();
 
@@ -716,6 +864,214 @@ public class GNSSLeastSquaresPositionAndVelocityEstimatorTest implements
         assertTrue(numValid > 0);
     }
 
+    @Test
+    public void testEstimateWithWarmStart() throws GNSSException, LockedException,
+            NotReadyException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final double userLatitude = Math.toRadians(
+                randomizer.nextDouble(MIN_LATITUDE_DEGREES, MAX_LATITUDE_DEGREES));
+        final double userLongitude = Math.toRadians(
+                randomizer.nextDouble(MIN_LONGITUDE_DEGREES, MAX_LONGITUDE_DEGREES));
+        final double userHeight = randomizer.nextDouble(MIN_USER_HEIGHT,
+                MAX_USER_HEIGHT);
+        final NEDPosition nedUserPosition =
+                new NEDPosition(userLatitude, userLongitude, userHeight);
+        final NEDVelocity nedUserVelocity = new NEDVelocity(
+                randomizer.nextDouble(MIN_USER_VELOCITY_VALUE, MAX_USER_VELOCITY_VALUE),
+                randomizer.nextDouble(MIN_USER_VELOCITY_VALUE, MAX_USER_VELOCITY_VALUE),
+                randomizer.nextDouble(MIN_USER_VELOCITY_VALUE, MAX_USER_VELOCITY_VALUE));
+        final ECEFPosition ecefUserPosition = new ECEFPosition();
+        final ECEFVelocity ecefUserVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                nedUserPosition, nedUserVelocity, ecefUserPosition, ecefUserVelocity);
+
+        final List<ECEFPositionAndVelocity> users = new ArrayList<>();
+        users.add(new ECEFPositionAndVelocity(ecefUserPosition, ecefUserVelocity));
+        final GNSSConfig config = createConstellationConfig();
+        final GNSSMeasurementBatch[] measurements = new GNSSMonteCarloSimulator(
+                config, users, 0.0, WARM_START_EPOCHS, new Random().nextLong(), 1)
+                .simulate()[0];
+
+        final GNSSLeastSquaresPositionAndVelocityEstimator coldEstimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+        coldEstimator.setClosedFormInitializationEnabled(false);
+        final GNSSLeastSquaresPositionAndVelocityEstimator referenceEstimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+        final GNSSLeastSquaresPositionAndVelocityEstimator warmEstimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+        warmEstimator.setWarmStartEnabled(true);
+
+        for (int k = 0; k < WARM_START_EPOCHS; k++) {
+            if (measurements[k].getSize()
+                    < GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS) {
+                continue;
+            }
+
+            coldEstimator.setMeasurementBatch(measurements[k]);
+            coldEstimator.setPriorPositionAndVelocity(null);
+            coldEstimator.estimate();
+
+            // reference solution is started from true user position, so that
+            // the Sagnac correction is evaluated at the same location as when
+            // warm-started
+            final double time = k * config.getEpochInterval();
+            referenceEstimator.setMeasurementBatch(measurements[k]);
+            referenceEstimator.setPriorPositionAndVelocity(
+                    new ECEFPositionAndVelocity(
+                            ecefUserPosition.getX() + ecefUserVelocity.getVx() * time,
+                            ecefUserPosition.getY() + ecefUserVelocity.getVy() * time,
+                            ecefUserPosition.getZ() + ecefUserVelocity.getVz() * time,
+                            ecefUserVelocity.getVx(), ecefUserVelocity.getVy(),
+                            ecefUserVelocity.getVz()));
+            final GNSSEstimation referenceEstimation = referenceEstimator.estimate();
+
+            final boolean warmStarted = warmEstimator.hasLastSolution();
+            warmEstimator.setMeasurementBatch(measurements[k]);
+            warmEstimator.setTimestamp(time);
+            final GNSSEstimation warmEstimation = warmEstimator.estimate();
+
+            assertTrue(coldEstimator.isConverged());
+            assertTrue(warmEstimator.isConverged());
+            assertTrue(warmEstimator.hasLastSolution());
+            assertTrue(coldEstimator.getPositionIterations() > 0);
+            assertTrue(coldEstimator.getVelocityIterations() > 0);
+            assertTrue(coldEstimator.getPositionResidualRms() >= 0.0);
+            assertTrue(coldEstimator.getVelocityResidualRms() >= 0.0);
+
+            if (warmStarted) {
+                assertEquals(warmEstimator.getPositionResidualRms(),
+                        referenceEstimator.getPositionResidualRms(),
+                        WARM_START_ERROR);
+                assertEquals(warmEstimator.getVelocityResidualRms(),
+                        referenceEstimator.getVelocityResidualRms(),
+                        WARM_START_ERROR);
+                assertTrue(referenceEstimation.equals(warmEstimation,
+                        WARM_START_ERROR));
+
+                assertTrue(warmEstimator.getPositionIterations()
+                        < coldEstimator.getPositionIterations());
+                assertTrue(warmEstimator.getPositionIterations() <= 2);
+                assertTrue(warmEstimator.getVelocityIterations() <= 2);
+            }
+        }
+
+        // once reset, estimation is no longer warm-started
+        warmEstimator.resetWarmStart();
+        assertFalse(warmEstimator.hasLastSolution());
+    }
+
+    @Test
+    public void testEstimateWithClosedFormInitialization() throws GNSSException,
+            LockedException, NotReadyException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final GNSSConfig config = createConstellationConfig();
+
+        final GNSSLeastSquaresPositionAndVelocityEstimator closedFormEstimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+        closedFormEstimator.setClosedFormInitializationEnabled(true);
+        final GNSSLeastSquaresPositionAndVelocityEstimator surfaceEstimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+        final GNSSLeastSquaresPositionAndVelocityEstimator referenceEstimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+
+        int closedFormIterations = 0;
+        int surfaceIterations = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final NEDPosition nedUserPosition = new NEDPosition(
+                    Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                            MAX_LATITUDE_DEGREES)),
+                    Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                            MAX_LONGITUDE_DEGREES)),
+                    randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT));
+            final ECEFPosition ecefUserPosition = new ECEFPosition();
+            final ECEFVelocity ecefUserVelocity = new ECEFVelocity();
+            NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(
+                    nedUserPosition, new NEDVelocity(), ecefUserPosition,
+                    ecefUserVelocity);
+            final ECEFPositionAndVelocity user = new ECEFPositionAndVelocity(
+                    ecefUserPosition, ecefUserVelocity);
+
+            final List<ECEFPositionAndVelocity> users = new ArrayList<>();
+            users.add(user);
+            final GNSSMeasurementBatch measurements = new GNSSMonteCarloSimulator(
+                    config, users, 0.0, 1, new Random().nextLong(), 1)
+                    .simulate()[0][0];
+            if (measurements.getSize()
+                    < GNSSLeastSquaresPositionAndVelocityEstimator.MIN_MEASUREMENTS + 1) {
+                continue;
+            }
+
+            closedFormEstimator.setMeasurementBatch(measurements);
+            closedFormEstimator.setPriorPositionAndVelocity(null);
+            final GNSSEstimation closedFormEstimation = closedFormEstimator.estimate();
+
+            surfaceEstimator.setMeasurementBatch(measurements);
+            surfaceEstimator.setPriorPositionAndVelocity(null);
+            surfaceEstimator.estimate();
+
+            referenceEstimator.setMeasurementBatch(measurements);
+            referenceEstimator.setPriorPositionAndVelocity(user);
+            final GNSSEstimation referenceEstimation = referenceEstimator.estimate();
+
+            // prior is initialized from measurements
+            assertNotNull(closedFormEstimator.getPriorPositionAndVelocity());
+            assertTrue(closedFormEstimator.isConverged());
+
+            // closed-form initialization starts close enough to the solution
+            // to evaluate Sagnac correction as if user position was known
+            assertTrue(referenceEstimation.equals(closedFormEstimation,
+                    CLOSED_FORM_ERROR));
+            assertTrue(closedFormEstimator.getPositionIterations()
+                    <= surfaceEstimator.getPositionIterations());
+            assertTrue(closedFormEstimator.getPositionIterations() <= 3);
+
+            closedFormIterations += closedFormEstimator.getPositionIterations();
+            surfaceIterations += surfaceEstimator.getPositionIterations();
+        }
+
+        assertTrue(closedFormIterations < surfaceIterations);
+    }
+
+    @Test
+    public void testEstimateMaxIterations() throws GNSSException, LockedException,
+            NotReadyException {
+        final List<ECEFPositionAndVelocity> users = new ArrayList<>();
+        users.add(new ECEFPositionAndVelocity(
+                Constants.EARTH_EQUATORIAL_RADIUS_WGS84, 0.0, 0.0,
+                0.0, 0.0, 0.0));
+        final GNSSMeasurementBatch measurements = new GNSSMonteCarloSimulator(
+                createConstellationConfig(), users, 0.0, 1,
+                new Random().nextLong(), 1).simulate()[0][0];
+
+        final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator(measurements);
+        estimator.setMaxIterations(1);
+
+        estimator.estimate();
+
+        // check
+        assertFalse(estimator.isConverged());
+        assertEquals(estimator.getPositionIterations(), 1);
+        assertEquals(estimator.getVelocityIterations(), 1);
+
+        // solutions that did not converge are not kept to warm-start
+        // next estimation
+        assertFalse(estimator.hasLastSolution());
+
+        // once converged, solution is kept
+        estimator.setMaxIterations(
+                GNSSLeastSquaresPositionAndVelocityEstimator.DEFAULT_MAX_ITERATIONS);
+        estimator.estimate();
+        assertTrue(estimator.isConverged());
+        assertTrue(estimator.hasLastSolution());
+
+        // and it is discarded again if a later estimation does not converge
+        estimator.setMaxIterations(1);
+        estimator.estimate();
+        assertFalse(estimator.isConverged());
+        assertFalse(estimator.hasLastSolution());
+    }
+
     @Override
     public void onEstimateStart(final GNSSLeastSquaresPositionAndVelocityEstimator estimator) {
         checkLocked(estimator);
@@ -760,6 +1116,31 @@ public class GNSSLeastSquaresPositionAndVelocityEstimatorTest implements
             fail("LockedException expected but not thrown");
         } catch (final LockedException ignore) {
         }
+        try {
+            estimator.setMaxIterations(0);
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.setClosedFormInitializationEnabled(true);
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.setWarmStartEnabled(true);
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.resetWarmStart();
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.setTimestamp(0.0);
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
         try {
             estimator.estimate(null);
             fail("LockedException expected but not thrown");
@@ -813,4 +1194,21 @@ public class GNSSLeastSquaresPositionAndVelocityEstimatorTest implements
                 rangeRateTrackingErrorSD, initialReceiverClockOffset,
                 initialReceiverClockDrift);
     }
+
+    private static GNSSConfig createConstellationConfig() {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(1.0);
+        config.setNumberOfSatellites(30);
+        config.setOrbitalRadiusOfSatellites(2.656175E7);
+        config.setSatellitesInclinationDegrees(55.0);
+        config.setMaskAngleDegrees(10.0);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(10000.0);
+        config.setInitialReceiverClockDrift(100.0);
+        return config;
+    }
 }
@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.geodesic.Constants;
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSMeasurementBatchTest {
+
+    private static final double MIN_POS_VALUE = Constants.EARTH_EQUATORIAL_RADIUS_WGS84 - 50.0;
+    private static final double MAX_POS_VALUE = Constants.EARTH_EQUATORIAL_RADIUS_WGS84 + 50.0;
+
+    private static final double MIN_SPEED_VALUE = -2.0;
+    private static final double MAX_SPEED_VALUE = 2.0;
+
+    private static final int MIN_MEASUREMENTS = 4;
+    private static final int MAX_MEASUREMENTS = 40;
+
+    private static final double THRESHOLD = 1e-6;
+
+    @Test
+    public void testConstructor() {
+        // test empty constructor
+        GNSSMeasurementBatch batch = new GNSSMeasurementBatch();
+
+        // check default values
+        assertEquals(batch.getSize(), 0);
+        assertTrue(batch.isEmpty());
+        assertEquals(batch.getCapacity(), GNSSMeasurementBatch.DEFAULT_CAPACITY);
+
+        // test constructor with capacity
+        batch = new GNSSMeasurementBatch(5);
+
+        // check default values
+        assertEquals(batch.getSize(), 0);
+        assertEquals(batch.getCapacity(), 5);
+
+        // Force IllegalArgumentException
+        batch = null;
+        try {
+            batch = new GNSSMeasurementBatch(-1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        assertNull(batch);
+
+        // test constructor with measurements
+        final List<GNSSMeasurement> measurements = generateMeasurements();
+        batch = new GNSSMeasurementBatch(measurements);
+
+        // check
+        assertEquals(batch.getSize(), measurements.size());
+        assertEquals(batch.toMeasurements(), measurements);
+
+        // test copy constructor
+        final GNSSMeasurementBatch batch2 = new GNSSMeasurementBatch(batch);
+
+        // check
+        assertEquals(batch, batch2);
+    }
+
+    @Test
+    public void testAddAndGet() {
+        final List<GNSSMeasurement> measurements = generateMeasurements();
+
+        // add measurements one at a time beyond initial capacity
+        final GNSSMeasurementBatch batch = new GNSSMeasurementBatch(1);
+        for (final GNSSMeasurement measurement : measurements) {
+            batch.add(measurement.getPseudoRange(), measurement.getPseudoRate(),
+                    measurement.getX(), measurement.getY(), measurement.getZ(),
+                    measurement.getVx(), measurement.getVy(), measurement.getVz());
+        }
+
+        // check
+        assertEquals(batch.getSize(), measurements.size());
+        assertTrue(batch.getCapacity() >= measurements.size());
+        final GNSSMeasurement measurement = new GNSSMeasurement();
+        for (int i = 0; i < measurements.size(); i++) {
+            final GNSSMeasurement expected = measurements.get(i);
+            assertEquals(batch.getPseudoRange(i), expected.getPseudoRange(), 0.0);
+            assertEquals(batch.getPseudoRate(i), expected.getPseudoRate(), 0.0);
+            assertEquals(batch.getX(i), expected.getX(), 0.0);
+            assertEquals(batch.getY(i), expected.getY(), 0.0);
+            assertEquals(batch.getZ(i), expected.getZ(), 0.0);
+            assertEquals(batch.getVx(i), expected.getVx(), 0.0);
+            assertEquals(batch.getVy(i), expected.getVy(), 0.0);
+            assertEquals(batch.getVz(i), expected.getVz(), 0.0);
+
+            batch.getMeasurement(i, measurement);
+            assertEquals(measurement, expected);
+            assertEquals(batch.getMeasurement(i), expected);
+        }
+
+        // Force IllegalArgumentException
+        try {
+            batch.getPseudoRange(-1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            batch.getMeasurement(measurements.size());
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testSatelliteIds() {
+        final List<GNSSMeasurement> measurements = generateMeasurements();
+        for (int i = 0; i < measurements.size(); i++) {
+            measurements.get(i).setSatelliteId(i);
+        }
+
+        final GNSSMeasurementBatch batch = new GNSSMeasurementBatch(measurements);
+
+        // check
+        for (int i = 0; i < measurements.size(); i++) {
+            assertEquals(batch.getSatelliteId(i), i);
+            assertEquals(batch.getMeasurement(i).getSatelliteId(), i);
+        }
+        assertEquals(batch.toMeasurements(), measurements);
+
+        // measurements added without identifier have unknown identifier
+        batch.add(1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0);
+        final int last = batch.getSize() - 1;
+        assertEquals(batch.getSatelliteId(last), GNSSMeasurement.UNKNOWN_SATELLITE_ID);
+
+        batch.add(7, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0);
+        assertEquals(batch.getSatelliteId(last + 1), 7);
+
+        batch.setSatelliteId(last, 3);
+        assertEquals(batch.getSatelliteId(last), 3);
+
+        // setting values preserves identifier
+        batch.set(last, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0);
+        assertEquals(batch.getSatelliteId(last), 3);
+
+        // identifiers are taken into account on comparisons
+        final GNSSMeasurementBatch batch2 = new GNSSMeasurementBatch(batch);
+        assertEquals(batch, batch2);
+        batch2.setSatelliteId(0, GNSSMeasurement.UNKNOWN_SATELLITE_ID);
+        assertFalse(batch.equals(batch2, Double.MAX_VALUE));
+
+        // Force IllegalArgumentException
+        try {
+            batch.setSatelliteId(0, -2);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            batch.add(-2, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testSet() {
+        final List<GNSSMeasurement> measurements = generateMeasurements();
+        final GNSSMeasurementBatch batch = new GNSSMeasurementBatch(measurements);
+
+        final GNSSMeasurement measurement = measurements.get(0);
+        batch.set(1, measurement);
+
+        // check
+        assertEquals(batch.getMeasurement(1), measurement);
+        assertEquals(batch.getSize(), measurements.size());
+
+        // Force IllegalArgumentException
+        try {
+            batch.set(measurements.size(), measurement);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testClearAndEnsureCapacity() {
+        final List<GNSSMeasurement> measurements = generateMeasurements();
+        final GNSSMeasurementBatch batch = new GNSSMeasurementBatch(measurements);
+        final int capacity = batch.getCapacity();
+
+        batch.clear();
+
+        // check that capacity is preserved
+        assertEquals(batch.getSize(), 0);
+        assertTrue(batch.isEmpty());
+        assertEquals(batch.getCapacity(), capacity);
+
+        // ensuring a smaller capacity does not change anything
+        batch.ensureCapacity(1);
+        assertEquals(batch.getCapacity(), capacity);
+
+        // ensuring a larger capacity preserves contents
+        batch.add(measurements.get(0));
+        batch.ensureCapacity(capacity + 1);
+        assertTrue(batch.getCapacity() > capacity);
+        assertEquals(batch.getSize(), 1);
+        assertEquals(batch.getMeasurement(0), measurements.get(0));
+    }
+
+    @Test
+    public void testSetMeasurementsAndToMeasurements() {
+        final List<GNSSMeasurement> measurements1 = generateMeasurements();
+        final List<GNSSMeasurement> measurements2 = generateMeasurements();
+
+        final GNSSMeasurementBatch batch = new GNSSMeasurementBatch(measurements1);
+        batch.setMeasurements(measurements2);
+
+        // check
+        assertEquals(batch.getSize(), measurements2.size());
+        assertEquals(batch.toMeasurements(), measurements2);
+
+        final Collection<GNSSMeasurement> result = new ArrayList<>(measurements1);
+        batch.toMeasurements(result);
+        assertEquals(result, measurements2);
+    }
+
+    @Test
+    public void testCopyToAndFrom() {
+        final GNSSMeasurementBatch batch1 = new GNSSMeasurementBatch(
+                generateMeasurements());
+        final GNSSMeasurementBatch batch2 = new GNSSMeasurementBatch(1);
+
+        batch1.copyTo(batch2);
+
+        // check
+        assertEquals(batch1, batch2);
+
+        final GNSSMeasurementBatch batch3 = new GNSSMeasurementBatch(
+                generateMeasurements());
+        batch2.copyFrom(batch3);
+
+        // check
+        assertEquals(batch2, batch3);
+    }
+
+    @Test
+    public void testHashCode() {
+        final List<GNSSMeasurement> measurements = generateMeasurements();
+        final GNSSMeasurementBatch batch1 = new GNSSMeasurementBatch(measurements);
+        final GNSSMeasurementBatch batch2 = new GNSSMeasurementBatch(measurements);
+        final GNSSMeasurementBatch batch3 = new GNSSMeasurementBatch(
+                generateMeasurements());
+
+        assertEquals(batch1.hashCode(), batch2.hashCode());
+        assertNotEquals(batch1.hashCode(), batch3.hashCode());
+    }
+
+    @Test
+    public void testEquals() {
+        final List<GNSSMeasurement> measurements = generateMeasurements();
+        final GNSSMeasurementBatch batch1 = new GNSSMeasurementBatch(measurements);
+        final GNSSMeasurementBatch batch2 = new GNSSMeasurementBatch(measurements);
+        final GNSSMeasurementBatch batch3 = new GNSSMeasurementBatch(
+                generateMeasurements());
+
+        //noinspection ConstantConditions,SimplifiableJUnitAssertion
+        assertTrue(batch1.equals((Object) batch1));
+        assertTrue(batch1.equals(batch1));
+        assertTrue(batch1.equals(batch2));
+        assertFalse(batch1.equals(batch3));
+        //noinspection SimplifiableJUnitAssertion,ConstantConditions
+        assertFalse(batch1.equals((Object) null));
+        assertFalse(batch1.equals(null));
+        //noinspection SimplifiableJUnitAssertion
+        assertFalse(batch1.equals(new Object()));
+
+        // batches with different capacity but same contents are equal
+        final GNSSMeasurementBatch batch4 = new GNSSMeasurementBatch(
+                2 * measurements.size());
+        batch4.setMeasurements(measurements);
+        assertEquals(batch1, batch4);
+
+        // batches with different size are not equal
+        batch4.add(measurements.get(0));
+        assertNotEquals(batch1, batch4);
+    }
+
+    @Test
+    public void testEqualsWithThreshold() {
+        final List<GNSSMeasurement> measurements = generateMeasurements();
+        final GNSSMeasurementBatch batch1 = new GNSSMeasurementBatch(measurements);
+        final GNSSMeasurementBatch batch2 = new GNSSMeasurementBatch(measurements);
+        final GNSSMeasurementBatch batch3 = new GNSSMeasurementBatch(
+                generateMeasurements());
+
+        assertTrue(batch1.equals(batch1, THRESHOLD));
+        assertTrue(batch1.equals(batch2, THRESHOLD));
+        assertFalse(batch1.equals(batch3, THRESHOLD));
+        assertFalse(batch1.equals(null, THRESHOLD));
+    }
+
+    @Test
+    public void testClone() throws CloneNotSupportedException {
+        final GNSSMeasurementBatch batch1 = new GNSSMeasurementBatch(
+                generateMeasurements());
+
+        final Object batch2 = batch1.clone();
+
+        // check
+        assertEquals(batch1, batch2);
+        assertNotSame(batch1, batch2);
+
+        // modifying clone does not modify original
+        ((GNSSMeasurementBatch) batch2).clear();
+        assertFalse(batch1.isEmpty());
+    }
+
+    private static List<GNSSMeasurement> generateMeasurements() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final int numMeasurements = randomizer.nextInt(MIN_MEASUREMENTS,
+                MAX_MEASUREMENTS);
+
+        final List<GNSSMeasurement> result = new ArrayList<>();
+        for (int i = 0; i < numMeasurements; i++) {
+            final double pseudoRange = randomizer.nextDouble(MIN_POS_VALUE, MAX_POS_VALUE);
+            final double pseudoRate = randomizer.nextDouble(MIN_SPEED_VALUE, MAX_SPEED_VALUE);
+
+            final double x = randomizer.nextDouble(MIN_POS_VALUE, MAX_POS_VALUE);
+            final double y = randomizer.nextDouble(MIN_POS_VALUE, MAX_POS_VALUE);
+            final double z = randomizer.nextDouble(MIN_POS_VALUE, MAX_POS_VALUE);
+
+            final double vx = randomizer.nextDouble(MIN_SPEED_VALUE, MAX_SPEED_VALUE);
+            final double vy = randomizer.nextDouble(MIN_SPEED_VALUE, MAX_SPEED_VALUE);
+            final double vz = randomizer.nextDouble(MIN_SPEED_VALUE, MAX_SPEED_VALUE);
+
+            result.add(new GNSSMeasurement(pseudoRange, pseudoRate, x, y, z,
+                    vx, vy, vz));
+        }
+        return result;
+    }
+}
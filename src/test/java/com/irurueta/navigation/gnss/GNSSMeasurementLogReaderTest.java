@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSMeasurementLogReaderTest {
+
+    private static final int RECORDS = 100;
+    private static final int MAX_MEASUREMENTS = 20;
+
+    private static final double MIN_VALUE = -1e7;
+    private static final double MAX_VALUE = 1e7;
+
+    @Test
+    public void testRead() throws IOException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+
+        final double[] timestamps = new double[RECORDS];
+        final GNSSMeasurementBatch[] batches = new GNSSMeasurementBatch[RECORDS];
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final GNSSMeasurementLogWriter writer = new GNSSMeasurementLogWriter(output);
+        for (int i = 0; i < RECORDS; i++) {
+            timestamps[i] = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
+            batches[i] = createBatch(randomizer,
+                    randomizer.nextInt(0, MAX_MEASUREMENTS));
+            writer.write(timestamps[i], batches[i]);
+        }
+        writer.close();
+
+        final GNSSMeasurementLogReader reader = new GNSSMeasurementLogReader(
+                new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(0, reader.getRecordCount());
+
+        // read batch is reused
+        final GNSSMeasurementBatch batch = createBatch(randomizer, MAX_MEASUREMENTS);
+        for (int i = 0; i < RECORDS; i++) {
+            assertTrue(reader.read(batch));
+            assertEquals(i + 1, reader.getRecordCount());
+            assertEquals(timestamps[i], reader.getTimestamp(), 0.0);
+            assertTrue(batches[i].equals(batch, 0.0));
+            for (int j = 0; j < batch.getSize(); j++) {
+                assertEquals(batches[i].getSatelliteId(j), batch.getSatelliteId(j));
+            }
+        }
+
+        // end of log
+        assertFalse(reader.read(batch));
+        assertFalse(reader.read(batch));
+        assertEquals(RECORDS, reader.getRecordCount());
+        assertEquals(timestamps[RECORDS - 1], reader.getTimestamp(), 0.0);
+        reader.close();
+    }
+
+    @Test
+    public void testInvalidLogs() throws IOException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final GNSSMeasurementLogWriter writer = new GNSSMeasurementLogWriter(output);
+        writer.write(1.0, createBatch(randomizer, 4));
+        writer.close();
+        final byte[] log = output.toByteArray();
+
+        // wrong magic
+        byte[] data = log.clone();
+        data[0]++;
+        try {
+            new GNSSMeasurementLogReader(new ByteArrayInputStream(data));
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) {
+        }
+
+        // wrong version
+        data = log.clone();
+        data[7]++;
+        try {
+            new GNSSMeasurementLogReader(new ByteArrayInputStream(data));
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) {
+        }
+
+        // missing header
+        try {
+            new GNSSMeasurementLogReader(new ByteArrayInputStream(new byte[0]));
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) {
+        }
+
+        final GNSSMeasurementBatch batch = new GNSSMeasurementBatch();
+
+        // wrong record marker
+        data = log.clone();
+        data[8]++;
+        GNSSMeasurementLogReader reader = new GNSSMeasurementLogReader(
+                new ByteArrayInputStream(data));
+        try {
+            reader.read(batch);
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) {
+        }
+
+        // truncated record
+        data = Arrays.copyOf(log, log.length - 1);
+        reader = new GNSSMeasurementLogReader(new ByteArrayInputStream(data));
+        try {
+            reader.read(batch);
+            fail("EOFException expected but not thrown");
+        } catch (final EOFException ignore) {
+        }
+
+        // negative number of measurements
+        data = log.clone();
+        data[17] = (byte) 0xff;
+        reader = new GNSSMeasurementLogReader(new ByteArrayInputStream(data));
+        try {
+            reader.read(batch);
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) {
+        }
+
+        // corrupted number of measurements is rejected before allocating
+        // memory for them
+        data = log.clone();
+        data[17] = (byte) 0x7f;
+        reader = new GNSSMeasurementLogReader(new ByteArrayInputStream(data));
+        try {
+            reader.read(batch);
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) {
+        }
+
+        // number of measurements exceeding maximum
+        final int size = GNSSMeasurementLogWriter.MAX_RECORD_MEASUREMENTS + 1;
+        data = log.clone();
+        data[17] = (byte) (size >>> 24);
+        data[18] = (byte) (size >>> 16);
+        data[19] = (byte) (size >>> 8);
+        data[20] = (byte) size;
+        reader = new GNSSMeasurementLogReader(new ByteArrayInputStream(data));
+        try {
+            reader.read(batch);
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) {
+        }
+
+        // invalid satellite identifier
+        data = log.clone();
+        data[21] = (byte) 0xf0;
+        reader = new GNSSMeasurementLogReader(new ByteArrayInputStream(data));
+        try {
+            reader.read(batch);
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) {
+        }
+        assertEquals(0, reader.getRecordCount());
+    }
+
+    private static GNSSMeasurementBatch createBatch(
+            final UniformRandomizer randomizer, final int size) {
+        final GNSSMeasurementBatch result = new GNSSMeasurementBatch();
+        for (int i = 0; i < size; i++) {
+            result.add(i, randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE));
+        }
+        return result;
+    }
+}
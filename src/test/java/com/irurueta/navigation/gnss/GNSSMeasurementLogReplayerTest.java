@@ -0,0 +1,567 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSMeasurementLogReplayerTest {
+
+    private static final double EPOCH_INTERVAL_SECONDS = 1.0;
+
+    private static final double CLOCK_OFFSET = 10000.0;
+    private static final double CLOCK_DRIFT = 100.0;
+
+    private static final double MIN_LATITUDE_DEGREES = -70.0;
+    private static final double MAX_LATITUDE_DEGREES = 70.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_USER_HEIGHT = -50.0;
+    private static final double MAX_USER_HEIGHT = 50.0;
+
+    private static final int EPOCHS = 30;
+
+    private static final double SPEED_FACTOR = 200.0;
+
+    private static final int TIMES = 10;
+
+    @Test
+    public void testConstructor() throws LockedException {
+        final GNSSKalmanFilteredEstimator kalmanEstimator =
+                new GNSSKalmanFilteredEstimator(createKalmanConfig());
+        GNSSMeasurementLogReplayer replayer = new GNSSMeasurementLogReplayer(
+                kalmanEstimator);
+
+        assertSame(kalmanEstimator, replayer.getKalmanEstimator());
+        assertNull(replayer.getLeastSquaresEstimator());
+        assertEquals(GNSSMeasurementLogReplayer.AS_FAST_AS_POSSIBLE,
+                replayer.getSpeedFactor(), 0.0);
+        assertNull(replayer.getListener());
+        assertFalse(replayer.isOutputRecorded());
+        assertFalse(replayer.isRunning());
+        assertEquals(0, replayer.getLatencyHistogram().getCount());
+        assertEquals(0, replayer.getNumberOfOutputs());
+
+        final GNSSLeastSquaresPositionAndVelocityEstimator lsEstimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+        replayer = new GNSSMeasurementLogReplayer(lsEstimator);
+
+        assertNull(replayer.getKalmanEstimator());
+        assertSame(lsEstimator, replayer.getLeastSquaresEstimator());
+
+        // set values
+        final GNSSMeasurementLogReplayerListener listener =
+                new GNSSMeasurementLogReplayerListener() {
+                    @Override
+                    public void onEpochReplayed(
+                            final GNSSMeasurementLogReplayer replayer,
+                            final long epoch, final double timestamp,
+                            final boolean updated, final GNSSEstimation estimation,
+                            final long latency) {
+                    }
+                };
+        replayer.setListener(listener);
+        replayer.setSpeedFactor(SPEED_FACTOR);
+        replayer.setOutputRecorded(true);
+
+        assertSame(listener, replayer.getListener());
+        assertEquals(SPEED_FACTOR, replayer.getSpeedFactor(), 0.0);
+        assertTrue(replayer.isOutputRecorded());
+
+        // force IllegalArgumentException
+        try {
+            replayer.setSpeedFactor(-1.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            replayer.getOutputTimestamp(0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // force NullPointerException
+        replayer = null;
+        try {
+            replayer = new GNSSMeasurementLogReplayer(
+                    (GNSSKalmanFilteredEstimator) null);
+            fail("NullPointerException expected but not thrown");
+        } catch (final NullPointerException ignore) {
+        }
+        try {
+            replayer = new GNSSMeasurementLogReplayer(
+                    (GNSSLeastSquaresPositionAndVelocityEstimator) null);
+            fail("NullPointerException expected but not thrown");
+        } catch (final NullPointerException ignore) {
+        }
+        assertNull(replayer);
+    }
+
+    @Test
+    public void testReplayKalmanFilteredEstimator() throws IOException,
+            LockedException, NotReadyException, GNSSException {
+        final GNSSMeasurementBatch[] measurements = simulate(
+                createUser(new Random()), EPOCH_INTERVAL_SECONDS, EPOCHS,
+                new Random());
+        final byte[] log = createLog(measurements);
+
+        // expected estimations from direct updates
+        final GNSSKalmanFilteredEstimator expectedEstimator =
+                new GNSSKalmanFilteredEstimator(createKalmanConfig());
+        final List<GNSSEstimation> expected = new ArrayList<>();
+        final List<Boolean> expectedUpdated = new ArrayList<>();
+        for (int e = 0; e < EPOCHS; e++) {
+            final GNSSMeasurementBatch batch = getRecord(measurements, e);
+            final boolean updated = GNSSKalmanFilteredEstimator
+                    .isUpdateMeasurementBatchReady(batch)
+                    && expectedEstimator.updateMeasurementBatch(batch,
+                    getTimestamp(e));
+            expectedUpdated.add(updated);
+            expected.add(expectedEstimator.getEstimation());
+        }
+
+        final GNSSKalmanFilteredEstimator estimator =
+                new GNSSKalmanFilteredEstimator(createKalmanConfig());
+        final GNSSMeasurementLogReplayer replayer = new GNSSMeasurementLogReplayer(
+                estimator);
+        replayer.setOutputRecorded(true);
+
+        final List<Long> epochs = new ArrayList<>();
+        replayer.setListener(new GNSSMeasurementLogReplayerListener() {
+            @Override
+            public void onEpochReplayed(final GNSSMeasurementLogReplayer replayer,
+                                        final long epoch, final double timestamp,
+                                        final boolean updated,
+                                        final GNSSEstimation estimation,
+                                        final long latency) {
+                assertTrue(replayer.isRunning());
+                final int e = (int) epoch;
+                assertEquals(getTimestamp(e), timestamp, 0.0);
+                assertEquals(expectedUpdated.get(e), updated);
+                assertEquals(expected.get(e), estimation);
+                assertTrue(latency >= 0);
+                epochs.add(epoch);
+
+                try {
+                    replayer.setSpeedFactor(1.0);
+                    fail("LockedException expected but not thrown");
+                } catch (final LockedException ignore) {
+                }
+            }
+        });
+
+        assertEquals(EPOCHS, replayer.replay(createReader(log)));
+        assertFalse(replayer.isRunning());
+
+        // epochs are notified in log order
+        assertEquals(EPOCHS, epochs.size());
+        for (int e = 0; e < EPOCHS; e++) {
+            assertEquals(e, epochs.get(e).longValue());
+        }
+
+        // ignored records are also recorded
+        assertFalse(expectedUpdated.get(1));
+        assertFalse(expectedUpdated.get(2));
+        assertEquals(EPOCHS, replayer.getLatencyHistogram().getCount());
+        assertEquals(EPOCHS, replayer.getNumberOfOutputs());
+        final GNSSEstimation estimation = new GNSSEstimation();
+        for (int e = 0; e < EPOCHS; e++) {
+            assertEquals(getTimestamp(e), replayer.getOutputTimestamp(e), 0.0);
+            assertEquals(expectedUpdated.get(e), replayer.isOutputUpdated(e));
+            assertTrue(replayer.getOutputEstimation(e, estimation));
+            assertEquals(expected.get(e), estimation);
+        }
+
+        // replaying the same log from the same initial state is deterministic
+        final GNSSMeasurementLogReplayer replayer2 = new GNSSMeasurementLogReplayer(
+                new GNSSKalmanFilteredEstimator(createKalmanConfig()));
+        replayer2.setOutputRecorded(true);
+        replayer2.replay(createReader(log));
+        final GNSSEstimation estimation2 = new GNSSEstimation();
+        for (int e = 0; e < EPOCHS; e++) {
+            assertTrue(replayer.getOutputEstimation(e, estimation));
+            assertTrue(replayer2.getOutputEstimation(e, estimation2));
+            assertEquals(estimation, estimation2);
+        }
+
+        // reset
+        replayer.reset();
+        assertEquals(0, replayer.getLatencyHistogram().getCount());
+        assertEquals(0, replayer.getNumberOfOutputs());
+    }
+
+    @Test
+    public void testReplayLeastSquaresEstimator() throws IOException,
+            LockedException, NotReadyException, GNSSException {
+        final GNSSMeasurementBatch[] measurements = simulate(
+                createUser(new Random()), EPOCH_INTERVAL_SECONDS, EPOCHS,
+                new Random());
+        final byte[] log = createLog(measurements);
+
+        final GNSSMeasurementLogReplayer replayer = new GNSSMeasurementLogReplayer(
+                new GNSSLeastSquaresPositionAndVelocityEstimator());
+        replayer.setOutputRecorded(true);
+        assertEquals(EPOCHS, replayer.replay(createReader(log)));
+
+        final GNSSLeastSquaresPositionAndVelocityEstimator expectedEstimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator();
+        final GNSSEstimation expected = new GNSSEstimation();
+        final GNSSEstimation estimation = new GNSSEstimation();
+        for (int e = 0; e < EPOCHS; e++) {
+            final GNSSMeasurementBatch batch = getRecord(measurements, e);
+            final boolean updated = GNSSLeastSquaresPositionAndVelocityEstimator
+                    .isValidMeasurementBatch(batch);
+            if (updated) {
+                expectedEstimator.setMeasurementBatch(batch);
+                expectedEstimator.setTimestamp(getTimestamp(e));
+                expectedEstimator.estimate(expected);
+            }
+
+            assertEquals(getTimestamp(e), replayer.getOutputTimestamp(e), 0.0);
+            assertEquals(updated, replayer.isOutputUpdated(e));
+            assertTrue(replayer.getOutputEstimation(e, estimation));
+            assertEquals(expected, estimation);
+        }
+
+        // record with too few measurements keeps last estimation
+        assertFalse(replayer.isOutputUpdated(2));
+    }
+
+    @Test
+    public void testPacedReplay() throws IOException, LockedException,
+            GNSSException {
+        final GNSSMeasurementBatch[] measurements = simulate(
+                createUser(new Random()), EPOCH_INTERVAL_SECONDS, EPOCHS,
+                new Random());
+        final byte[] log = createLog(measurements);
+
+        final GNSSMeasurementLogReplayer replayer = new GNSSMeasurementLogReplayer(
+                new GNSSKalmanFilteredEstimator(createKalmanConfig()));
+        replayer.setOutputRecorded(true);
+        replayer.setSpeedFactor(SPEED_FACTOR);
+
+        final long start = System.nanoTime();
+        assertEquals(EPOCHS, replayer.replay(createReader(log)));
+        final long elapsed = System.nanoTime() - start;
+
+        // replay lasts at least the duration of the log at scaled rate
+        final double duration = getTimestamp(EPOCHS - 1) - getTimestamp(0);
+        assertTrue(elapsed >= (long) (duration / SPEED_FACTOR * 1e9));
+
+        // pacing does not modify results
+        final GNSSMeasurementLogReplayer fastReplayer = new GNSSMeasurementLogReplayer(
+                new GNSSKalmanFilteredEstimator(createKalmanConfig()));
+        fastReplayer.setOutputRecorded(true);
+        fastReplayer.replay(createReader(log));
+
+        final GNSSEstimation estimation1 = new GNSSEstimation();
+        final GNSSEstimation estimation2 = new GNSSEstimation();
+        for (int e = 0; e < EPOCHS; e++) {
+            assertEquals(fastReplayer.isOutputUpdated(e), replayer.isOutputUpdated(e));
+            assertTrue(replayer.getOutputEstimation(e, estimation1));
+            assertTrue(fastReplayer.getOutputEstimation(e, estimation2));
+            assertEquals(estimation2, estimation1);
+        }
+    }
+
+    @Test
+    public void testReplayContinuesAfterFailedEpoch() throws IOException,
+            LockedException, NotReadyException, GNSSException {
+        final GNSSMeasurementBatch[] measurements = simulate(
+                createUser(new Random()), EPOCH_INTERVAL_SECONDS, EPOCHS,
+                new Random());
+        final byte[] log = createLog(measurements);
+
+        // estimation of fourth record fails
+        final int failedEpoch = 3;
+        final double failedTimestamp = getTimestamp(failedEpoch);
+        final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator() {
+                    @Override
+                    public void estimate(final GNSSEstimation result)
+                            throws LockedException, NotReadyException,
+                            GNSSException {
+                        if (getTimestamp() == failedTimestamp) {
+                            result.setPositionCoordinates(0.0, 0.0, 0.0);
+                            throw new GNSSException();
+                        }
+                        super.estimate(result);
+                    }
+                };
+        final GNSSMeasurementLogReplayer replayer =
+                new GNSSMeasurementLogReplayer(estimator);
+        replayer.setOutputRecorded(true);
+        assertEquals(0, replayer.getNumberOfFailedEpochs());
+
+        assertEquals(EPOCHS, replayer.replay(createReader(log)));
+
+        // failed record is recorded as not updated and keeps last estimation
+        assertEquals(1, replayer.getNumberOfFailedEpochs());
+        assertEquals(EPOCHS, replayer.getNumberOfOutputs());
+        final GNSSEstimation previous = new GNSSEstimation();
+        final GNSSEstimation estimation = new GNSSEstimation();
+        assertTrue(replayer.getOutputEstimation(failedEpoch - 1, previous));
+        assertTrue(replayer.getOutputEstimation(failedEpoch, estimation));
+        assertEquals(previous, estimation);
+        for (int e = 0; e < EPOCHS; e++) {
+            assertEquals(e == failedEpoch, replayer.isOutputFailed(e));
+            if (e == failedEpoch) {
+                assertFalse(replayer.isOutputUpdated(e));
+            }
+        }
+
+        // records after failed one are still estimated
+        assertTrue(replayer.isOutputUpdated(failedEpoch + 1));
+
+        replayer.reset();
+        assertEquals(0, replayer.getNumberOfFailedEpochs());
+    }
+
+    @Test
+    public void testFailedKalmanEpochKeepsEstimatorState() throws IOException,
+            LockedException, NotReadyException, GNSSException {
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final GNSSMeasurementBatch[] measurements = simulate(
+                    createUser(new Random()), EPOCH_INTERVAL_SECONDS, EPOCHS,
+                    new Random());
+
+            // all satellites of sixth record are located at the same position,
+            // hence its estimation fails
+            final int failedEpoch = 5;
+            final GNSSMeasurementBatch degenerate = new GNSSMeasurementBatch(
+                    measurements[failedEpoch]);
+            for (int i = 1; i < degenerate.getSize(); i++) {
+                degenerate.getXs()[i] = degenerate.getXs()[0];
+                degenerate.getYs()[i] = degenerate.getYs()[0];
+                degenerate.getZs()[i] = degenerate.getZs()[0];
+            }
+
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final GNSSMeasurementLogWriter writer =
+                    new GNSSMeasurementLogWriter(output);
+            for (int e = 0; e < EPOCHS; e++) {
+                writer.write(getTimestamp(e), e == failedEpoch ? degenerate :
+                        getRecord(measurements, e));
+            }
+            writer.close();
+
+            final GNSSMeasurementLogReplayer replayer =
+                    new GNSSMeasurementLogReplayer(new GNSSKalmanFilteredEstimator(
+                            createKalmanConfig()));
+            replayer.setOutputRecorded(true);
+            assertEquals(EPOCHS, replayer.replay(createReader(
+                    output.toByteArray())));
+
+            if (replayer.getNumberOfFailedEpochs() == 0) {
+                // degenerate geometry was not detected due to rounding errors
+                continue;
+            }
+            assertEquals(1, replayer.getNumberOfFailedEpochs());
+            assertTrue(replayer.isOutputFailed(failedEpoch));
+            assertFalse(replayer.isOutputUpdated(failedEpoch));
+
+            // failed record leaves estimator as if the record had not been
+            // replayed
+            final GNSSKalmanFilteredEstimator expectedEstimator =
+                    new GNSSKalmanFilteredEstimator(createKalmanConfig());
+            final GNSSEstimation estimation = new GNSSEstimation();
+            for (int e = 0; e < EPOCHS; e++) {
+                final GNSSMeasurementBatch batch = getRecord(measurements, e);
+                if (e != failedEpoch && GNSSKalmanFilteredEstimator
+                        .isUpdateMeasurementBatchReady(batch)) {
+                    expectedEstimator.updateMeasurementBatch(batch,
+                            getTimestamp(e));
+                }
+
+                assertTrue(replayer.getOutputEstimation(e, estimation));
+                assertEquals(expectedEstimator.getEstimation(), estimation);
+            }
+
+            numValid++;
+            break;
+        }
+
+        assertTrue(numValid > 0);
+    }
+
+    @Test
+    public void testResetDiscardsLeastSquaresEstimation() throws IOException,
+            LockedException, GNSSException {
+        final GNSSMeasurementBatch[] measurements = simulate(
+                createUser(new Random()), EPOCH_INTERVAL_SECONDS, EPOCHS,
+                new Random());
+
+        final GNSSMeasurementLogReplayer replayer = new GNSSMeasurementLogReplayer(
+                new GNSSLeastSquaresPositionAndVelocityEstimator());
+        replayer.setOutputRecorded(true);
+        replayer.replay(createReader(createLog(measurements)));
+        assertTrue(replayer.getOutputEstimation(EPOCHS - 1, new GNSSEstimation()));
+
+        replayer.reset();
+
+        // a record without enough measurements does not provide the estimation
+        // obtained before reset
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final GNSSMeasurementLogWriter writer = new GNSSMeasurementLogWriter(output);
+        writer.write(getTimestamp(0), new GNSSMeasurementBatch());
+        writer.close();
+
+        replayer.setListener(new GNSSMeasurementLogReplayerListener() {
+            @Override
+            public void onEpochReplayed(final GNSSMeasurementLogReplayer replayer,
+                                        final long epoch, final double timestamp,
+                                        final boolean updated,
+                                        final GNSSEstimation estimation,
+                                        final long latency) {
+                assertFalse(updated);
+                assertNull(estimation);
+            }
+        });
+        assertEquals(1, replayer.replay(createReader(output.toByteArray())));
+
+        assertEquals(1, replayer.getNumberOfOutputs());
+        assertFalse(replayer.getOutputEstimation(0, new GNSSEstimation()));
+    }
+
+    @Test
+    public void testReplayWithoutEstimation() throws IOException, LockedException,
+            GNSSException {
+        // a log whose records never have enough measurements
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final GNSSMeasurementLogWriter writer = new GNSSMeasurementLogWriter(output);
+        writer.write(getTimestamp(0), new GNSSMeasurementBatch());
+        writer.close();
+
+        final GNSSMeasurementLogReplayer replayer = new GNSSMeasurementLogReplayer(
+                new GNSSKalmanFilteredEstimator(createKalmanConfig()));
+        replayer.setOutputRecorded(true);
+        replayer.setListener(new GNSSMeasurementLogReplayerListener() {
+            @Override
+            public void onEpochReplayed(final GNSSMeasurementLogReplayer replayer,
+                                        final long epoch, final double timestamp,
+                                        final boolean updated,
+                                        final GNSSEstimation estimation,
+                                        final long latency) {
+                assertFalse(updated);
+                assertNull(estimation);
+            }
+        });
+        assertEquals(1, replayer.replay(createReader(output.toByteArray())));
+
+        assertFalse(replayer.isOutputUpdated(0));
+        assertFalse(replayer.getOutputEstimation(0, new GNSSEstimation()));
+    }
+
+    private static double getTimestamp(final int epoch) {
+        // second and third records are duplicated
+        return (Math.max(epoch, 1) + 1) * EPOCH_INTERVAL_SECONDS;
+    }
+
+    private static GNSSMeasurementBatch getRecord(
+            final GNSSMeasurementBatch[] measurements, final int epoch) {
+        if (epoch == 2) {
+            // third record does not contain enough measurements
+            final GNSSMeasurementBatch result = new GNSSMeasurementBatch();
+            for (int i = 0; i < GNSSLeastSquaresPositionAndVelocityEstimator
+                    .MIN_MEASUREMENTS - 1; i++) {
+                result.add(measurements[epoch].getMeasurement(i));
+            }
+            return result;
+        }
+        return measurements[epoch];
+    }
+
+    private static byte[] createLog(final GNSSMeasurementBatch[] measurements)
+            throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final GNSSMeasurementLogWriter writer = new GNSSMeasurementLogWriter(output);
+        for (int e = 0; e < EPOCHS; e++) {
+            writer.write(getTimestamp(e), getRecord(measurements, e));
+        }
+        writer.close();
+        return output.toByteArray();
+    }
+
+    private static GNSSMeasurementLogReader createReader(final byte[] log)
+            throws IOException {
+        return new GNSSMeasurementLogReader(new ByteArrayInputStream(log));
+    }
+
+    private static ECEFPositionAndVelocity createUser(final Random random) {
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final NEDPosition nedPosition = new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                        MAX_LATITUDE_DEGREES)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)),
+                randomizer.nextDouble(MIN_USER_HEIGHT, MAX_USER_HEIGHT));
+
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                new NEDVelocity(), ecefPosition, ecefVelocity);
+        return new ECEFPositionAndVelocity(ecefPosition, ecefVelocity);
+    }
+
+    private static GNSSConfig createConfig() {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(EPOCH_INTERVAL_SECONDS);
+        config.setNumberOfSatellites(30);
+        config.setOrbitalRadiusOfSatellites(2.656175E7);
+        config.setSatellitesInclinationDegrees(55.0);
+        config.setMaskAngleDegrees(10.0);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(CLOCK_OFFSET);
+        config.setInitialReceiverClockDrift(CLOCK_DRIFT);
+        return config;
+    }
+
+    private static GNSSMeasurementBatch[] simulate(
+            final ECEFPositionAndVelocity user, final double startTime,
+            final int numberOfEpochs, final Random random) throws GNSSException {
+        return new GNSSMonteCarloSimulator(createConfig(),
+                Collections.singletonList(user), startTime, numberOfEpochs,
+                random.nextLong(), 1).simulate()[0];
+    }
+
+    private static GNSSKalmanConfig createKalmanConfig() {
+        return new GNSSKalmanConfig(10.0, 0.1, 10.0, 0.1, 1.0, 1.0, 1.0, 5.0, 0.1);
+    }
+}
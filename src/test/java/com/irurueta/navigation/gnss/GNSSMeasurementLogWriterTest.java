@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.statistics.UniformRandomizer;
+import com.irurueta.units.Time;
+import com.irurueta.units.TimeUnit;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSMeasurementLogWriterTest {
+
+    private static final int HEADER_LENGTH = 8;
+    private static final int RECORD_HEADER_LENGTH = 13;
+    private static final int MEASUREMENT_LENGTH = 68;
+
+    private static final double MIN_VALUE = -1e7;
+    private static final double MAX_VALUE = 1e7;
+
+    @Test
+    public void testWrite() throws IOException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final GNSSMeasurementBatch batch = createBatch(randomizer, 5);
+        final double timestamp = randomizer.nextDouble(0.0, MAX_VALUE);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final GNSSMeasurementLogWriter writer = new GNSSMeasurementLogWriter(output);
+        assertEquals(0, writer.getRecordCount());
+
+        writer.write(timestamp, batch);
+        writer.write(new Time(1000.0 * timestamp, TimeUnit.MILLISECOND),
+                new GNSSMeasurementBatch());
+        assertEquals(2, writer.getRecordCount());
+
+        // data is buffered until flushed
+        assertEquals(0, output.size());
+        writer.flush();
+        assertEquals(HEADER_LENGTH + 2 * RECORD_HEADER_LENGTH
+                + batch.getSize() * MEASUREMENT_LENGTH, output.size());
+        writer.close();
+
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+                output.toByteArray()));
+        assertEquals(GNSSMeasurementLogWriter.MAGIC, input.readInt());
+        assertEquals(GNSSMeasurementLogWriter.VERSION, input.readInt());
+
+        assertEquals(GNSSMeasurementLogWriter.RECORD_MARKER, input.readByte());
+        assertEquals(timestamp, input.readDouble(), 0.0);
+        assertEquals(batch.getSize(), input.readInt());
+        for (int i = 0; i < batch.getSize(); i++) {
+            assertEquals(batch.getSatelliteId(i), input.readInt());
+            assertEquals(batch.getPseudoRange(i), input.readDouble(), 0.0);
+            assertEquals(batch.getPseudoRate(i), input.readDouble(), 0.0);
+            assertEquals(batch.getX(i), input.readDouble(), 0.0);
+            assertEquals(batch.getY(i), input.readDouble(), 0.0);
+            assertEquals(batch.getZ(i), input.readDouble(), 0.0);
+            assertEquals(batch.getVx(i), input.readDouble(), 0.0);
+            assertEquals(batch.getVy(i), input.readDouble(), 0.0);
+            assertEquals(batch.getVz(i), input.readDouble(), 0.0);
+        }
+
+        assertEquals(GNSSMeasurementLogWriter.RECORD_MARKER, input.readByte());
+        assertEquals(timestamp, input.readDouble(), 1e-9 * timestamp);
+        assertEquals(0, input.readInt());
+        assertEquals(-1, input.read());
+    }
+
+    @Test
+    public void testWriteTooManyMeasurements() throws IOException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final GNSSMeasurementBatch batch = createBatch(randomizer,
+                GNSSMeasurementLogWriter.MAX_RECORD_MEASUREMENTS + 1);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final GNSSMeasurementLogWriter writer = new GNSSMeasurementLogWriter(output);
+
+        // Force IllegalArgumentException
+        try {
+            writer.write(1.0, batch);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        // nothing is written
+        assertEquals(0, writer.getRecordCount());
+        writer.close();
+        assertEquals(HEADER_LENGTH, output.size());
+    }
+
+    private static GNSSMeasurementBatch createBatch(
+            final UniformRandomizer randomizer, final int size) {
+        final GNSSMeasurementBatch result = new GNSSMeasurementBatch();
+        for (int i = 0; i < size; i++) {
+            result.add(i, randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE),
+                    randomizer.nextDouble(MIN_VALUE, MAX_VALUE));
+        }
+        return result;
+    }
+}
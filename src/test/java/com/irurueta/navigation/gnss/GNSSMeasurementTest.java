@@ -41,6 +41,8 @@ public class GNSSMeasurementTest {
 
     private static final double THRESHOLD = 1e-6;
 
+    private static final int MAX_SATELLITE_ID = 32;
+
     @Test
     public void testConstructor() {
         // test empty constructor
@@ -199,6 +201,48 @@ public class GNSSMeasurementTest {
         assertEquals(measurement2.getVz(), measurement.getVz(), 0.0);
     }
 
+    @Test
+    public void testGetSetSatelliteId() {
+        final GNSSMeasurement measurement = new GNSSMeasurement();
+
+        // check default value
+        assertEquals(measurement.getSatelliteId(),
+                GNSSMeasurement.UNKNOWN_SATELLITE_ID);
+        assertFalse(measurement.hasSatelliteId());
+
+        // set new value
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final int satelliteId = randomizer.nextInt(0, MAX_SATELLITE_ID);
+        measurement.setSatelliteId(satelliteId);
+
+        // check
+        assertEquals(measurement.getSatelliteId(), satelliteId);
+        assertTrue(measurement.hasSatelliteId());
+
+        // copies and comparisons take identifier into account
+        final GNSSMeasurement measurement2 = new GNSSMeasurement(measurement);
+        assertEquals(measurement2.getSatelliteId(), satelliteId);
+        assertEquals(measurement, measurement2);
+        assertEquals(measurement.hashCode(), measurement2.hashCode());
+
+        measurement2.setSatelliteId(GNSSMeasurement.UNKNOWN_SATELLITE_ID);
+        assertFalse(measurement.equals(measurement2, Double.MAX_VALUE));
+
+        // test constructor with identifier
+        final GNSSMeasurement measurement3 = new GNSSMeasurement(satelliteId,
+                1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0);
+        assertEquals(measurement3.getSatelliteId(), satelliteId);
+        assertEquals(measurement3.getPseudoRange(), 1.0, 0.0);
+        assertEquals(measurement3.getVz(), 8.0, 0.0);
+
+        // Force IllegalArgumentException
+        try {
+            measurement.setSatelliteId(-2);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
     @Test
     public void testGetSetPseudoRange() {
         final GNSSMeasurement measurement = new GNSSMeasurement();
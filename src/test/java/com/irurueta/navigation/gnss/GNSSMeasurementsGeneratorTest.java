@@ -262,6 +262,7 @@ public class GNSSMeasurementsGeneratorTest {
             final GNSSMeasurement measurement = generate(timeSeconds,
                     satellitePositionAndVelocity, userPositionAndVelocity,
                     bias, config, random);
+            measurement.setSatelliteId(n);
 
             expectedResult.add(measurement);
         }
@@ -311,7 +312,25 @@ public class GNSSMeasurementsGeneratorTest {
                 GNSSMeasurementsGenerator.generate(time, satellitePositionsAndVelocities,
                         userPositionAndVelocity, biases, config, random);
 
+        final GNSSMeasurementBatch result11 = new GNSSMeasurementBatch(1);
+        GNSSMeasurementsGenerator.generate(timeSeconds,
+                satellitePositionsAndVelocities, userX, userY, userZ,
+                userVx, userVy, userVz, biases, config, random, result11);
+
+        final GNSSMeasurementBatch result12 = new GNSSMeasurementBatch();
+        GNSSMeasurementsGenerator.generate(timeSeconds,
+                satellitePositionsAndVelocities, userPositionAndVelocity,
+                biases, config, random, result12);
+
+        final GNSSMeasurementBatch result13 = new GNSSMeasurementBatch();
+        result13.add(new GNSSMeasurement());
+        GNSSMeasurementsGenerator.generate(time, satellitePositionsAndVelocities,
+                userPositionAndVelocity, biases, config, random, result13);
+
         assertEquals(result1.size(), numSatellites);
+        assertEquals(result1, result11.toMeasurements());
+        assertEquals(result11, result12);
+        assertEquals(result11, result13);
         assertEquals(result1, result2);
         assertEquals(result1, result3);
         assertEquals(result1, result4);
@@ -331,6 +350,57 @@ public class GNSSMeasurementsGeneratorTest {
         }
     }
 
+    @Test
+    public void testGenerateElevationMask() throws WrongSizeException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final GNSSConfig config = generateConfig();
+        config.setMaskAngleDegrees(10.0);
+
+        final double maskRadians = Math.toRadians(config.getMaskAngleDegrees());
+        final double orbitalRadius = 2.656175E7;
+        final double earthRadius = Constants.EARTH_EQUATORIAL_RADIUS_WGS84;
+
+        // user on the equator, whose local vertical is the ECEF x axis
+        final ECEFPositionAndVelocity userPositionAndVelocity =
+                new ECEFPositionAndVelocity(earthRadius, 0.0, 0.0);
+
+        for (int t = 0; t < TIMES; t++) {
+            // satellite on the orbital sphere at a given elevation above the
+            // local horizon of the user
+            final double elevation = randomizer.nextDouble(-Math.PI / 2.0,
+                    Math.PI / 2.0);
+            final double cosElevation = Math.cos(elevation);
+            final double sinElevation = Math.sin(elevation);
+            final double distance = -earthRadius * sinElevation + Math.sqrt(
+                    orbitalRadius * orbitalRadius
+                            - earthRadius * earthRadius * cosElevation * cosElevation);
+
+            final ECEFPositionAndVelocity satellitePositionAndVelocity =
+                    new ECEFPositionAndVelocity(
+                            earthRadius + distance * sinElevation,
+                            distance * cosElevation, 0.0,
+                            0.0, 0.0, 0.0);
+
+            final Random random1 = new Random(t);
+            final Random random2 = new Random(t);
+
+            final GNSSMeasurement result = GNSSMeasurementsGenerator.generate(
+                    0.0, satellitePositionAndVelocity, userPositionAndVelocity,
+                    0.0, config, random1);
+            final GNSSMeasurement expected = generate(0.0,
+                    satellitePositionAndVelocity, userPositionAndVelocity,
+                    0.0, config, random2);
+
+            if (elevation >= maskRadians) {
+                assertNotNull(result);
+                assertTrue(expected.equals(result, ABSOLUTE_ERROR));
+            } else {
+                assertNull(result);
+                assertNull(expected);
+            }
+        }
+    }
+
     private static GNSSConfig generateConfig() {
         final UniformRandomizer randomizer = new UniformRandomizer(new Random());
         final double epochInterval = randomizer.nextDouble(MIN_VALUE, MAX_VALUE);
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.geodesic.Constants;
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class GNSSMonteCarloSimulatorTest {
+
+    private static final int NUMBER_OF_SATELLITES = 30;
+    private static final double ORBITAL_RADIUS = 2.656175E7;
+    private static final double INCLINATION_DEGREES = 55.0;
+    private static final double MASK_ANGLE_DEGREES = 10.0;
+
+    private static final int MIN_USERS = 5;
+    private static final int MAX_USERS = 20;
+
+    private static final int MIN_EPOCHS = 1;
+    private static final int MAX_EPOCHS = 10;
+
+    private static final double MIN_USER_OFFSET = -1000.0;
+    private static final double MAX_USER_OFFSET = 1000.0;
+
+    private static final double MIN_USER_SPEED = -10.0;
+    private static final double MAX_USER_SPEED = 10.0;
+
+    private static final int TIMES = 10;
+
+    @Test
+    public void testConstructor() {
+        final GNSSConfig config = createConfig();
+        final List<ECEFPositionAndVelocity> users = createUsers(MIN_USERS);
+
+        GNSSMonteCarloSimulator simulator = new GNSSMonteCarloSimulator(config,
+                users, 1.0, 3, 5L);
+
+        // check default values
+        assertEquals(simulator.getConfig(), config);
+        assertEquals(simulator.getNumberOfUsers(), MIN_USERS);
+        assertEquals(simulator.getUser(0), users.get(0));
+        assertEquals(simulator.getStartTime(), 1.0, 0.0);
+        assertEquals(simulator.getNumberOfEpochs(), 3);
+        assertEquals(simulator.getEpochTime(2), 1.0 + 2.0 * config.getEpochInterval(),
+                0.0);
+        assertEquals(simulator.getMasterSeed(), 5L);
+        assertEquals(simulator.getNumberOfThreads(),
+                Runtime.getRuntime().availableProcessors());
+
+        simulator = new GNSSMonteCarloSimulator(config, users, 1.0, 3, 5L, 2);
+
+        // check
+        assertEquals(simulator.getNumberOfThreads(), 2);
+
+        // modifying provided users does not modify simulator
+        users.get(0).setPositionCoordinates(0.0, 0.0, 0.0);
+        assertNotEquals(simulator.getUser(0), users.get(0));
+
+        // Force IllegalArgumentException
+        try {
+            simulator.getUser(-1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            simulator.getUser(MIN_USERS);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+
+        simulator = null;
+        try {
+            simulator = new GNSSMonteCarloSimulator(config, users, 1.0, 0, 5L);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            simulator = new GNSSMonteCarloSimulator(config, users, 1.0, 3, 5L, 0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        assertNull(simulator);
+    }
+
+    @Test
+    public void testGetStreamSeed() {
+        final Set<Long> seeds = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(GNSSMonteCarloSimulator.getStreamSeed(1L, i),
+                    GNSSMonteCarloSimulator.getStreamSeed(1L, i));
+            seeds.add(GNSSMonteCarloSimulator.getStreamSeed(1L, i));
+        }
+        assertEquals(seeds.size(), 1000);
+
+        assertNotEquals(GNSSMonteCarloSimulator.getStreamSeed(1L, 0),
+                GNSSMonteCarloSimulator.getStreamSeed(2L, 0));
+    }
+
+    @Test
+    public void testSimulateIsReproducibleRegardlessOfThreads() throws GNSSException {
+        for (int t = 0; t < TIMES; t++) {
+            final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+            final GNSSConfig config = createConfig();
+            final int numUsers = randomizer.nextInt(MIN_USERS, MAX_USERS);
+            final int numEpochs = randomizer.nextInt(MIN_EPOCHS, MAX_EPOCHS);
+            final List<ECEFPositionAndVelocity> users = createUsers(numUsers);
+            final long seed = new Random().nextLong();
+
+            final GNSSMeasurementBatch[][] result1 = new GNSSMonteCarloSimulator(
+                    config, users, 0.0, numEpochs, seed, 1).simulate();
+            final GNSSMeasurementBatch[][] result2 = new GNSSMonteCarloSimulator(
+                    config, users, 0.0, numEpochs, seed, 2).simulate();
+            final GNSSMeasurementBatch[][] result4 = new GNSSMonteCarloSimulator(
+                    config, users, 0.0, numEpochs, seed, 4).simulate();
+
+            final GNSSMonteCarloSimulator simulator = new GNSSMonteCarloSimulator(
+                    config, users, 0.0, numEpochs, seed, 3);
+            final GNSSMeasurementBatch[][] result3 = simulator.simulate();
+
+            // reusing results produces the same values
+            final GNSSMeasurementBatch[][] reused = new GNSSMeasurementBatch[numUsers][];
+            for (int i = 0; i < numUsers; i++) {
+                reused[i] = new GNSSMeasurementBatch[numEpochs];
+                reused[i][0] = new GNSSMeasurementBatch(result4[i][0]);
+            }
+            simulator.simulate(reused);
+
+            assertEquals(result1.length, numUsers);
+            int numMeasurements = 0;
+            for (int i = 0; i < numUsers; i++) {
+                assertEquals(result1[i].length, numEpochs);
+                assertArrayEquals(result1[i], result2[i]);
+                assertArrayEquals(result1[i], result3[i]);
+                assertArrayEquals(result1[i], result4[i]);
+                assertArrayEquals(result1[i], reused[i]);
+                assertArrayEquals(result1[i], simulator.simulateUser(i));
+
+                for (final GNSSMeasurementBatch batch : result1[i]) {
+                    numMeasurements += batch.getSize();
+                }
+            }
+            assertTrue(numMeasurements > 0);
+
+            // a different master seed produces different measurements
+            final GNSSMeasurementBatch[][] other = new GNSSMonteCarloSimulator(
+                    config, users, 0.0, numEpochs, seed + 1, 2).simulate();
+            boolean different = false;
+            for (int i = 0; i < numUsers; i++) {
+                for (int k = 0; k < numEpochs; k++) {
+                    if (!other[i][k].equals(result1[i][k])) {
+                        different = true;
+                    }
+                }
+            }
+            assertTrue(different);
+        }
+    }
+
+    @Test
+    public void testSimulateUser() {
+        final GNSSConfig config = createConfig();
+        final List<ECEFPositionAndVelocity> users = createUsers(MIN_USERS);
+        final GNSSMonteCarloSimulator simulator = new GNSSMonteCarloSimulator(
+                config, users, 0.0, 2, 7L, 1);
+
+        final GNSSMeasurementBatch[] result = new GNSSMeasurementBatch[3];
+        simulator.simulateUser(1, result);
+
+        assertNotNull(result[0]);
+        assertNotNull(result[1]);
+        assertNull(result[2]);
+        assertTrue(result[0].getSize() > 0);
+        assertArrayEquals(simulator.simulateUser(1),
+                new GNSSMeasurementBatch[]{result[0], result[1]});
+
+        // Force IllegalArgumentException
+        try {
+            simulator.simulateUser(-1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            simulator.simulateUser(0, new GNSSMeasurementBatch[1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testSimulateInvalidResult() throws GNSSException {
+        final GNSSMonteCarloSimulator simulator = new GNSSMonteCarloSimulator(
+                createConfig(), createUsers(MIN_USERS), 0.0, 2, 7L);
+
+        // Force IllegalArgumentException
+        try {
+            simulator.simulate(new GNSSMeasurementBatch[MIN_USERS - 1][2]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            simulator.simulate(new GNSSMeasurementBatch[MIN_USERS][1]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            simulator.simulate(new GNSSMeasurementBatch[MIN_USERS][]);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    private static GNSSConfig createConfig() {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(1.0);
+        config.setNumberOfSatellites(NUMBER_OF_SATELLITES);
+        config.setOrbitalRadiusOfSatellites(ORBITAL_RADIUS);
+        config.setSatellitesInclinationDegrees(INCLINATION_DEGREES);
+        config.setMaskAngleDegrees(MASK_ANGLE_DEGREES);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(10000.0);
+        config.setInitialReceiverClockDrift(100.0);
+        return config;
+    }
+
+    private static List<ECEFPositionAndVelocity> createUsers(final int numUsers) {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final List<ECEFPositionAndVelocity> result = new ArrayList<>();
+        for (int i = 0; i < numUsers; i++) {
+            result.add(new ECEFPositionAndVelocity(
+                    Constants.EARTH_EQUATORIAL_RADIUS_WGS84
+                            + randomizer.nextDouble(MIN_USER_OFFSET, MAX_USER_OFFSET),
+                    randomizer.nextDouble(MIN_USER_OFFSET, MAX_USER_OFFSET),
+                    randomizer.nextDouble(MIN_USER_OFFSET, MAX_USER_OFFSET),
+                    randomizer.nextDouble(MIN_USER_SPEED, MAX_USER_SPEED),
+                    randomizer.nextDouble(MIN_USER_SPEED, MAX_USER_SPEED),
+                    randomizer.nextDouble(MIN_USER_SPEED, MAX_USER_SPEED)));
+        }
+        return result;
+    }
+}
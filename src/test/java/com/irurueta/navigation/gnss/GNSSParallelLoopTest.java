@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+public class GNSSParallelLoopTest {
+
+    private static final int MIN_COUNT = 50;
+    private static final int MAX_COUNT = 100;
+
+    private static final int NUM_THREADS = 4;
+
+    @Test
+    public void testRun() throws GNSSException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final int count = randomizer.nextInt(MIN_COUNT, MAX_COUNT);
+
+        for (int numThreads = 1; numThreads <= NUM_THREADS; numThreads++) {
+            final AtomicIntegerArray runs = new AtomicIntegerArray(count);
+            GNSSParallelLoop.run(numThreads, count, createCounter(runs));
+
+            // every iteration is run exactly once
+            for (int i = 0; i < count; i++) {
+                assertEquals(1, runs.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testRunWithExecutor() throws GNSSException {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final int count = randomizer.nextInt(MIN_COUNT, MAX_COUNT);
+
+        final ExecutorService executor = GNSSParallelLoop.newExecutor(NUM_THREADS);
+        try {
+            final AtomicIntegerArray runs = new AtomicIntegerArray(count);
+            GNSSParallelLoop.run(executor, NUM_THREADS, count, createCounter(runs));
+            GNSSParallelLoop.run(executor, NUM_THREADS, count, createCounter(runs));
+
+            // executor is reused and not shut down
+            assertFalse(executor.isShutdown());
+            for (int i = 0; i < count; i++) {
+                assertEquals(2, runs.get(i));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRunFailures() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final int count = randomizer.nextInt(MIN_COUNT, MAX_COUNT);
+        final int failed = randomizer.nextInt(0, count);
+
+        // the same failure is reported the same way for any number of threads
+        for (int numThreads = 1; numThreads <= NUM_THREADS; numThreads++) {
+            final IllegalStateException runtimeException =
+                    new IllegalStateException();
+            try {
+                GNSSParallelLoop.run(numThreads, count,
+                        createFailing(failed, runtimeException));
+                fail("IllegalStateException expected but not thrown");
+            } catch (final IllegalStateException e) {
+                assertSame(runtimeException, e);
+            } catch (final GNSSException e) {
+                fail("IllegalStateException expected but not thrown");
+            }
+
+            final AssertionError error = new AssertionError();
+            try {
+                GNSSParallelLoop.run(numThreads, count,
+                        createFailing(failed, error));
+                fail("AssertionError expected but not thrown");
+            } catch (final AssertionError e) {
+                assertSame(error, e);
+            } catch (final GNSSException e) {
+                fail("AssertionError expected but not thrown");
+            }
+
+            final IOException checkedException = new IOException();
+            try {
+                GNSSParallelLoop.run(numThreads, count,
+                        createFailing(failed, checkedException));
+                fail("GNSSException expected but not thrown");
+            } catch (final GNSSException e) {
+                assertSame(checkedException, e.getCause());
+            }
+        }
+    }
+
+    private static GNSSParallelLoop.BodyFactory createCounter(
+            final AtomicIntegerArray runs) {
+        return new GNSSParallelLoop.BodyFactory() {
+            @Override
+            public GNSSParallelLoop.Body create() {
+                return new GNSSParallelLoop.Body() {
+                    @Override
+                    public void run(final int index) {
+                        runs.incrementAndGet(index);
+                    }
+                };
+            }
+        };
+    }
+
+    private static GNSSParallelLoop.BodyFactory createFailing(
+            final int failed, final Throwable failure) {
+        return new GNSSParallelLoop.BodyFactory() {
+            @Override
+            public GNSSParallelLoop.Body create() {
+                return new GNSSParallelLoop.Body() {
+                    @Override
+                    public void run(final int index) throws Exception {
+                        if (index != failed) {
+                            return;
+                        }
+                        if (failure instanceof Error) {
+                            throw (Error) failure;
+                        }
+                        throw (Exception) failure;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.algebra.AlgebraException;
+import com.irurueta.algebra.Matrix;
+import com.irurueta.algebra.Utils;
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GNSSSatelliteSelectorTest {
+
+    private static final double MIN_LATITUDE_DEGREES = -70.0;
+    private static final double MAX_LATITUDE_DEGREES = 70.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final double MIN_HEIGHT = -50.0;
+    private static final double MAX_HEIGHT = 10000.0;
+
+    private static final int SELECTED = 5;
+
+    private static final int RANDOM_SUBSETS = 20;
+
+    private static final double ABSOLUTE_ERROR = 1e-6;
+
+    private static final int TIMES = 50;
+
+    @Test
+    public void testConstructor() {
+        GNSSSatelliteSelector selector = new GNSSSatelliteSelector();
+        assertEquals(selector.getCriterion(),
+                GNSSSatelliteSelector.DEFAULT_CRITERION);
+        assertEquals(selector.getCriterion(),
+                GNSSSatelliteSelectionCriterion.GDOP);
+
+        selector = new GNSSSatelliteSelector(
+                GNSSSatelliteSelectionCriterion.PDOP);
+        assertEquals(selector.getCriterion(),
+                GNSSSatelliteSelectionCriterion.PDOP);
+    }
+
+    @Test
+    public void testGetSetCriterion() {
+        final GNSSSatelliteSelector selector = new GNSSSatelliteSelector();
+
+        // check default value
+        assertEquals(selector.getCriterion(),
+                GNSSSatelliteSelectionCriterion.GDOP);
+
+        // set new value
+        selector.setCriterion(GNSSSatelliteSelectionCriterion.PDOP);
+
+        // check
+        assertEquals(selector.getCriterion(),
+                GNSSSatelliteSelectionCriterion.PDOP);
+    }
+
+    @Test
+    public void testComputeDilutionOfPrecision() throws GNSSException,
+            AlgebraException {
+        final GNSSSatelliteSelector selector = new GNSSSatelliteSelector();
+        final GNSSDilutionOfPrecision dop = new GNSSDilutionOfPrecision();
+
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPosition user = createUser();
+            final GNSSMeasurementBatch measurements = simulate(user);
+            final int n = measurements.getSize();
+            if (n < GNSSSatelliteSelector.MIN_MEASUREMENTS) {
+                continue;
+            }
+
+            selector.computeDilutionOfPrecision(measurements, user.getX(),
+                    user.getY(), user.getZ(), dop);
+
+            final Matrix q = explicitCofactor(measurements, null, user);
+            assertEquals(dop.getGdop(), Math.sqrt(q.getElementAt(0, 0)
+                    + q.getElementAt(1, 1) + q.getElementAt(2, 2)
+                    + q.getElementAt(3, 3)), ABSOLUTE_ERROR);
+            assertEquals(dop.getPdop(), Math.sqrt(q.getElementAt(0, 0)
+                    + q.getElementAt(1, 1) + q.getElementAt(2, 2)),
+                    ABSOLUTE_ERROR);
+            assertEquals(dop.getTdop(), Math.sqrt(q.getElementAt(3, 3)),
+                    ABSOLUTE_ERROR);
+            assertTrue(dop.getHdop() <= dop.getPdop());
+            assertTrue(dop.getVdop() <= dop.getPdop());
+            assertTrue(dop.getPdop() <= dop.getGdop());
+
+            final GNSSDilutionOfPrecision dop2 =
+                    selector.computeDilutionOfPrecision(measurements, user);
+            assertEquals(dop.getGdop(), dop2.getGdop(), 0.0);
+            assertEquals(dop.getHdop(), dop2.getHdop(), 0.0);
+            assertEquals(dop.getVdop(), dop2.getVdop(), 0.0);
+
+            // adding satellites can only improve geometry
+            final int[] indices = new int[GNSSSatelliteSelector.MIN_MEASUREMENTS];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+            try {
+                selector.computeDilutionOfPrecision(measurements, indices,
+                        user.getX(), user.getY(), user.getZ(), dop2);
+            } catch (final GNSSException ignore) {
+                // minimal geometry might be singular
+                continue;
+            }
+            assertTrue(dop2.getGdop() >= dop.getGdop() - ABSOLUTE_ERROR);
+        }
+
+        // Force IllegalArgumentException
+        try {
+            selector.computeDilutionOfPrecision(new GNSSMeasurementBatch(),
+                    0.0, 0.0, 0.0, dop);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            selector.computeDilutionOfPrecision(new GNSSMeasurementBatch(),
+                    new int[3], 0.0, 0.0, 0.0, dop);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testSelect() throws GNSSException {
+        final GNSSSatelliteSelector selector = new GNSSSatelliteSelector();
+        final GNSSDilutionOfPrecision dop = new GNSSDilutionOfPrecision();
+        final GNSSDilutionOfPrecision subsetDop = new GNSSDilutionOfPrecision();
+
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPosition user = createUser();
+            final GNSSMeasurementBatch measurements = simulate(user);
+            final int n = measurements.getSize();
+            if (n <= SELECTED) {
+                continue;
+            }
+
+            final int[] selected = new int[SELECTED];
+            selector.select(measurements, user.getX(), user.getY(),
+                    user.getZ(), SELECTED, selected, dop);
+
+            // indices are unique and sorted
+            for (int i = 1; i < SELECTED; i++) {
+                assertTrue(selected[i] > selected[i - 1]);
+            }
+            assertTrue(selected[0] >= 0);
+            assertTrue(selected[SELECTED - 1] < n);
+
+            // downdated dilution of precision is equal to the one of the
+            // selected subset
+            selector.computeDilutionOfPrecision(measurements, selected,
+                    user.getX(), user.getY(), user.getZ(), subsetDop);
+            assertEquals(dop.getGdop(), subsetDop.getGdop(), ABSOLUTE_ERROR);
+            assertEquals(dop.getPdop(), subsetDop.getPdop(), ABSOLUTE_ERROR);
+            assertEquals(dop.getHdop(), subsetDop.getHdop(), ABSOLUTE_ERROR);
+            assertEquals(dop.getVdop(), subsetDop.getVdop(), ABSOLUTE_ERROR);
+            assertEquals(dop.getTdop(), subsetDop.getTdop(), ABSOLUTE_ERROR);
+
+            // greedy selection is not optimal, but must be better than most
+            // random subsets
+            final List<Integer> all = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                all.add(i);
+            }
+            final int[] random = new int[SELECTED];
+            int better = 0;
+            int total = 0;
+            for (int s = 0; s < RANDOM_SUBSETS; s++) {
+                Collections.shuffle(all);
+                for (int i = 0; i < SELECTED; i++) {
+                    random[i] = all.get(i);
+                }
+                try {
+                    selector.computeDilutionOfPrecision(measurements, random,
+                            user.getX(), user.getY(), user.getZ(), subsetDop);
+                } catch (final GNSSException ignore) {
+                    continue;
+                }
+                total++;
+                if (subsetDop.getGdop() < dop.getGdop() - ABSOLUTE_ERROR) {
+                    better++;
+                }
+            }
+            assertTrue(better <= total / 2);
+
+            // selecting all satellites keeps them all
+            final int[] allSelected = selector.select(measurements, user, n);
+            for (int i = 0; i < n; i++) {
+                assertEquals(allSelected[i], i);
+            }
+
+            // select using closed form position
+            final int[] selected2 = selector.select(measurements, SELECTED);
+            assertEquals(selected2.length, SELECTED);
+            numValid++;
+        }
+
+        assertTrue(numValid > 0);
+
+        // Force IllegalArgumentException
+        final GNSSMeasurementBatch measurements = simulate(createUser());
+        try {
+            selector.select(measurements, 0.0, 0.0, 0.0,
+                    GNSSSatelliteSelector.MIN_MEASUREMENTS - 1,
+                    new int[GNSSSatelliteSelector.MIN_MEASUREMENTS], null);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            selector.select(measurements, 0.0, 0.0, 0.0,
+                    measurements.getSize() + 1,
+                    new int[measurements.getSize() + 1], null);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            selector.select(measurements, 0.0, 0.0, 0.0,
+                    GNSSSatelliteSelector.MIN_MEASUREMENTS, new int[1], null);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            selector.select(measurements,
+                    GNSSSatelliteSelector.MIN_MEASUREMENTS - 1);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testSelectPositionCriterion() throws GNSSException {
+        final GNSSSatelliteSelector gdopSelector = new GNSSSatelliteSelector();
+        final GNSSSatelliteSelector pdopSelector = new GNSSSatelliteSelector(
+                GNSSSatelliteSelectionCriterion.PDOP);
+        final GNSSDilutionOfPrecision dop = new GNSSDilutionOfPrecision();
+        final GNSSDilutionOfPrecision subsetDop = new GNSSDilutionOfPrecision();
+
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPosition user = createUser();
+            final GNSSMeasurementBatch measurements = simulate(user);
+            final int n = measurements.getSize();
+            if (n <= SELECTED) {
+                continue;
+            }
+
+            final int[] selected = new int[SELECTED];
+            pdopSelector.select(measurements, user.getX(), user.getY(),
+                    user.getZ(), SELECTED, selected, dop);
+
+            pdopSelector.computeDilutionOfPrecision(measurements, selected,
+                    user.getX(), user.getY(), user.getZ(), subsetDop);
+            assertEquals(dop.getPdop(), subsetDop.getPdop(), ABSOLUTE_ERROR);
+
+            final int[] gdopSelected = gdopSelector.select(measurements, user,
+                    SELECTED);
+            assertEquals(gdopSelected.length, SELECTED);
+        }
+    }
+
+    @Test
+    public void testLeastSquaresDilutionOfPrecision() throws GNSSException,
+            LockedException, NotReadyException {
+        final GNSSSatelliteSelector selector = new GNSSSatelliteSelector();
+        final GNSSDilutionOfPrecision dop = new GNSSDilutionOfPrecision();
+
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPosition user = createUser();
+            final GNSSMeasurementBatch measurements = simulate(user);
+            if (measurements.getSize() < GNSSSatelliteSelector.MIN_MEASUREMENTS) {
+                continue;
+            }
+
+            final GNSSLeastSquaresPositionAndVelocityEstimator estimator =
+                    new GNSSLeastSquaresPositionAndVelocityEstimator(measurements);
+            assertFalse(estimator.getDilutionOfPrecision().isAvailable());
+            final GNSSDilutionOfPrecision lsDop = new GNSSDilutionOfPrecision();
+            assertFalse(estimator.getDilutionOfPrecision(lsDop));
+
+            final GNSSEstimation estimation = estimator.estimate();
+            assertTrue(estimator.getDilutionOfPrecision().isAvailable());
+            assertTrue(estimator.getDilutionOfPrecision(lsDop));
+            assertNotSame(estimator.getDilutionOfPrecision(), lsDop);
+            assertEquals(estimator.getDilutionOfPrecision().getGdop(),
+                    lsDop.getGdop(), 0.0);
+
+            // least squares geometry accounts for Earth rotation during
+            // signal transit time, which slightly changes line of sight
+            selector.computeDilutionOfPrecision(measurements,
+                    estimation.getX(), estimation.getY(), estimation.getZ(),
+                    dop);
+            assertEquals(lsDop.getGdop(), dop.getGdop(),
+                    1e-4 * dop.getGdop());
+            assertEquals(lsDop.getPdop(), dop.getPdop(),
+                    1e-4 * dop.getPdop());
+            assertEquals(lsDop.getHdop(), dop.getHdop(),
+                    1e-4 * dop.getHdop());
+            assertEquals(lsDop.getVdop(), dop.getVdop(),
+                    1e-4 * dop.getVdop());
+            assertEquals(lsDop.getTdop(), dop.getTdop(),
+                    1e-4 * dop.getTdop());
+        }
+    }
+
+    private static Matrix explicitCofactor(
+            final GNSSMeasurementBatch measurements, final int[] indices,
+            final ECEFPosition user) throws AlgebraException {
+        final int n = indices != null ? indices.length : measurements.getSize();
+        final Matrix h = new Matrix(n, 4);
+        for (int j = 0; j < n; j++) {
+            final int i = indices != null ? indices[j] : j;
+            final double dx = measurements.getXs()[i] - user.getX();
+            final double dy = measurements.getYs()[i] - user.getY();
+            final double dz = measurements.getZs()[i] - user.getZ();
+            final double range = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            h.setElementAt(j, 0, -dx / range);
+            h.setElementAt(j, 1, -dy / range);
+            h.setElementAt(j, 2, -dz / range);
+            h.setElementAt(j, 3, 1.0);
+        }
+        return Utils.inverse(h.transposeAndReturnNew().multiplyAndReturnNew(h));
+    }
+
+    private static GNSSMeasurementBatch simulate(final ECEFPosition user)
+            throws GNSSException {
+        final List<ECEFPositionAndVelocity> users = new ArrayList<>();
+        users.add(new ECEFPositionAndVelocity(user, new ECEFVelocity()));
+        return new GNSSMonteCarloSimulator(createConfig(), users, 0.0, 1,
+                new Random().nextLong(), 1).simulate()[0][0];
+    }
+
+    private static ECEFPosition createUser() {
+        final UniformRandomizer randomizer = new UniformRandomizer(new Random());
+        final NEDPosition nedPosition = new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                        MAX_LATITUDE_DEGREES)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)),
+                randomizer.nextDouble(MIN_HEIGHT, MAX_HEIGHT));
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                new NEDVelocity(), ecefPosition, ecefVelocity);
+        return ecefPosition;
+    }
+
+    private static GNSSConfig createConfig() {
+        final GNSSConfig config = new GNSSConfig();
+        config.setEpochInterval(1.0);
+        config.setNumberOfSatellites(30);
+        config.setOrbitalRadiusOfSatellites(2.656175E7);
+        config.setSatellitesInclinationDegrees(55.0);
+        config.setMaskAngleDegrees(10.0);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(10000.0);
+        config.setInitialReceiverClockDrift(100.0);
+        return config;
+    }
+}
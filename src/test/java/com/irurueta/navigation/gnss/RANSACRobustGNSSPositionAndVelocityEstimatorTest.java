@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.NotReadyException;
+import com.irurueta.numerical.robust.RobustEstimatorMethod;
+import com.irurueta.statistics.UniformRandomizer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static com.irurueta.navigation.gnss.RobustGNSSPositionAndVelocityEstimatorTestHelper.*;
+import static org.junit.Assert.*;
+
+public class RANSACRobustGNSSPositionAndVelocityEstimatorTest implements
+        RobustGNSSPositionAndVelocityEstimatorListener {
+
+    private int estimateStart;
+    private int estimateEnd;
+    private int estimateNextIteration;
+    private int estimateProgressChange;
+
+    @Test
+    public void testConstructor() throws GNSSException {
+        final Random random = new Random(SEED);
+        final GNSSMeasurementBatch measurements = simulate(createUser(random),
+                random);
+
+        RANSACRobustGNSSPositionAndVelocityEstimator estimator =
+                new RANSACRobustGNSSPositionAndVelocityEstimator();
+
+        // check default values
+        checkDefaults(estimator);
+        assertNull(estimator.getMeasurementBatch());
+        assertNull(estimator.getListener());
+        assertNull(estimator.getQualityScores());
+        assertFalse(estimator.isReady());
+
+        estimator = new RANSACRobustGNSSPositionAndVelocityEstimator(this);
+        checkDefaults(estimator);
+        assertSame(estimator.getListener(), this);
+        assertFalse(estimator.isReady());
+
+        estimator = new RANSACRobustGNSSPositionAndVelocityEstimator(measurements);
+        checkDefaults(estimator);
+        assertSame(estimator.getMeasurementBatch(), measurements);
+        assertTrue(estimator.isReady());
+
+        estimator = new RANSACRobustGNSSPositionAndVelocityEstimator(measurements, this);
+        assertSame(estimator.getMeasurementBatch(), measurements);
+        assertSame(estimator.getListener(), this);
+        assertTrue(estimator.isReady());
+
+        estimator = new RANSACRobustGNSSPositionAndVelocityEstimator(measurements.toMeasurements());
+        assertEquals(estimator.getMeasurementBatch(), measurements);
+        assertTrue(estimator.isReady());
+
+        estimator =
+                new RANSACRobustGNSSPositionAndVelocityEstimator(measurements.toMeasurements(),
+                        this);
+        assertEquals(estimator.getMeasurementBatch(), measurements);
+        assertSame(estimator.getListener(), this);
+        assertTrue(estimator.isReady());
+
+        // Force IllegalArgumentException
+        estimator = null;
+        try {
+            estimator = new RANSACRobustGNSSPositionAndVelocityEstimator(
+                    new GNSSMeasurementBatch());
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator = new RANSACRobustGNSSPositionAndVelocityEstimator(
+                    new ArrayList<GNSSMeasurement>());
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        assertNull(estimator);
+    }
+
+    @Test
+    public void testGetSetters() throws LockedException {
+        final RANSACRobustGNSSPositionAndVelocityEstimator estimator =
+                new RANSACRobustGNSSPositionAndVelocityEstimator();
+
+        estimator.setListener(this);
+        estimator.setProgressDelta(0.5f);
+        estimator.setConfidence(0.5);
+        estimator.setMaxIterations(10);
+        estimator.setResultRefined(false);
+
+        // check
+        assertSame(estimator.getListener(), this);
+        assertEquals(estimator.getProgressDelta(), 0.5f, 0.0f);
+        assertEquals(estimator.getConfidence(), 0.5, 0.0);
+        assertEquals(estimator.getMaxIterations(), 10);
+        assertFalse(estimator.isResultRefined());
+
+        // quality scores are ignored
+        estimator.setQualityScores(new double[4]);
+        assertNull(estimator.getQualityScores());
+
+        estimator.setThreshold(10.0);
+        assertEquals(estimator.getThreshold(), 10.0, 0.0);
+        estimator.setComputeAndKeepInliersEnabled(true);
+        assertTrue(estimator.isComputeAndKeepInliersEnabled());
+        estimator.setComputeAndKeepResidualsEnabled(true);
+        assertTrue(estimator.isComputeAndKeepResiduals());
+
+        // Force IllegalArgumentException
+        try {
+            estimator.setThreshold(0.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator.setProgressDelta(-1.0f);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator.setProgressDelta(2.0f);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator.setConfidence(-1.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator.setConfidence(2.0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator.setMaxIterations(0);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            estimator.setMeasurementBatch(new GNSSMeasurementBatch());
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void testEstimateWithOutliers() throws Exception {
+        final Random random = new Random(SEED);
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPositionAndVelocity user = createUser(random);
+            final GNSSMeasurementBatch measurements = simulateRedundant(user,
+                    random);
+            if (measurements == null) {
+                continue;
+            }
+            final int n = measurements.getSize();
+
+            final boolean[] outliers = injectOutliers(measurements, randomizer);
+
+            final RANSACRobustGNSSPositionAndVelocityEstimator estimator =
+                    new RANSACRobustGNSSPositionAndVelocityEstimator(
+                    measurements, this);
+
+            reset();
+            assertEquals(estimateStart, 0);
+            assertEquals(estimateEnd, 0);
+            assertTrue(estimator.isReady());
+            assertFalse(estimator.isLocked());
+            assertNull(estimator.getEstimation());
+            assertNull(estimator.getInliersData());
+
+            final GNSSEstimation result = estimator.estimate();
+
+            assertSame(estimator.getEstimation(), result);
+            assertEquals(estimateStart, 1);
+            assertEquals(estimateEnd, 1);
+            assertTrue(estimateNextIteration > 0);
+            assertFalse(estimator.isLocked());
+
+            if (checkRefinedResult(estimator, result, measurements, outliers,
+                    user)) {
+                numValid++;
+            }
+        }
+
+        assertEnoughValid(numValid);
+    }
+
+    @Test
+    public void testEstimateNoRefinement() throws Exception {
+        final Random random = new Random(SEED);
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+
+        int numValid = 0;
+        for (int t = 0; t < TIMES; t++) {
+            final ECEFPositionAndVelocity user = createUser(random);
+            final GNSSMeasurementBatch measurements = simulateRedundant(user,
+                    random);
+            if (measurements == null) {
+                continue;
+            }
+            final int n = measurements.getSize();
+
+            final boolean[] outliers = injectOutliers(measurements, randomizer);
+
+            final RANSACRobustGNSSPositionAndVelocityEstimator estimator =
+                    new RANSACRobustGNSSPositionAndVelocityEstimator(
+                    measurements);
+            estimator.setResultRefined(false);
+
+            final GNSSEstimation result = estimator.estimate();
+
+            // only position and clock offset are estimated
+            assertEquals(estimator.getMethod(), RobustEstimatorMethod.RANSAC);
+            if (!isNear(result, user)) {
+                // solution of a minimal subset is not as accurate as a
+                // refined one
+                continue;
+            }
+            assertEquals(result.getVx(), 0.0, 0.0);
+            assertEquals(result.getVy(), 0.0, 0.0);
+            assertEquals(result.getVz(), 0.0, 0.0);
+            assertEquals(result.getClockDrift(), 0.0, 0.0);
+
+            numValid++;
+        }
+
+        assertEnoughValid(numValid);
+
+        // Force NotReadyException
+        final RANSACRobustGNSSPositionAndVelocityEstimator estimator =
+                new RANSACRobustGNSSPositionAndVelocityEstimator();
+        try {
+            estimator.estimate();
+            fail("NotReadyException expected but not thrown");
+        } catch (final NotReadyException ignore) {
+        }
+    }
+
+    @Override
+    public void onEstimateStart(
+            final RobustGNSSPositionAndVelocityEstimator estimator) {
+        estimateStart++;
+        checkLocked((RANSACRobustGNSSPositionAndVelocityEstimator) estimator);
+    }
+
+    @Override
+    public void onEstimateEnd(
+            final RobustGNSSPositionAndVelocityEstimator estimator) {
+        estimateEnd++;
+        checkLocked((RANSACRobustGNSSPositionAndVelocityEstimator) estimator);
+    }
+
+    @Override
+    public void onEstimateNextIteration(
+            final RobustGNSSPositionAndVelocityEstimator estimator,
+            final int iteration) {
+        estimateNextIteration++;
+        checkLocked((RANSACRobustGNSSPositionAndVelocityEstimator) estimator);
+    }
+
+    @Override
+    public void onEstimateProgressChange(
+            final RobustGNSSPositionAndVelocityEstimator estimator,
+            final float progress) {
+        estimateProgressChange++;
+        checkLocked((RANSACRobustGNSSPositionAndVelocityEstimator) estimator);
+    }
+
+    private void reset() {
+        estimateStart = estimateEnd = estimateNextIteration =
+                estimateProgressChange = 0;
+    }
+
+    private static void checkDefaults(
+            final RANSACRobustGNSSPositionAndVelocityEstimator estimator) {
+        checkCommonDefaults(estimator, RobustEstimatorMethod.RANSAC);
+        assertEquals(estimator.getThreshold(),
+                RANSACRobustGNSSPositionAndVelocityEstimator.DEFAULT_THRESHOLD, 0.0);
+        assertEquals(estimator.isComputeAndKeepInliersEnabled(),
+                RANSACRobustGNSSPositionAndVelocityEstimator.DEFAULT_COMPUTE_AND_KEEP_INLIERS);
+        assertEquals(estimator.isComputeAndKeepResiduals(),
+                RANSACRobustGNSSPositionAndVelocityEstimator.DEFAULT_COMPUTE_AND_KEEP_RESIDUALS);
+    }
+
+    private static void checkLocked(
+            final RANSACRobustGNSSPositionAndVelocityEstimator estimator) {
+        checkCommonLocked(estimator);
+        try {
+            estimator.setThreshold(10.0);
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.numerical.robust.RobustEstimatorMethod;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RobustGNSSPositionAndVelocityEstimatorTest {
+
+    @Test
+    public void testCreate() {
+        // default method
+        RobustGNSSPositionAndVelocityEstimator estimator =
+                RobustGNSSPositionAndVelocityEstimator.create();
+
+        // check
+        assertTrue(estimator instanceof PROMedSRobustGNSSPositionAndVelocityEstimator);
+        assertEquals(estimator.getMethod(),
+                RobustGNSSPositionAndVelocityEstimator.DEFAULT_ROBUST_METHOD);
+
+        // RANSAC
+        estimator = RobustGNSSPositionAndVelocityEstimator.create(
+                RobustEstimatorMethod.RANSAC);
+
+        // check
+        assertTrue(estimator instanceof RANSACRobustGNSSPositionAndVelocityEstimator);
+        assertEquals(estimator.getMethod(), RobustEstimatorMethod.RANSAC);
+        assertNull(estimator.getMeasurementBatch());
+
+        // LMedS
+        estimator = RobustGNSSPositionAndVelocityEstimator.create(
+                RobustEstimatorMethod.LMedS);
+
+        // check
+        assertTrue(estimator instanceof LMedSRobustGNSSPositionAndVelocityEstimator);
+        assertEquals(estimator.getMethod(), RobustEstimatorMethod.LMedS);
+        assertNull(estimator.getMeasurementBatch());
+
+        // MSAC
+        estimator = RobustGNSSPositionAndVelocityEstimator.create(
+                RobustEstimatorMethod.MSAC);
+
+        // check
+        assertTrue(estimator instanceof MSACRobustGNSSPositionAndVelocityEstimator);
+        assertEquals(estimator.getMethod(), RobustEstimatorMethod.MSAC);
+        assertNull(estimator.getMeasurementBatch());
+
+        // PROSAC
+        estimator = RobustGNSSPositionAndVelocityEstimator.create(
+                RobustEstimatorMethod.PROSAC);
+
+        // check
+        assertTrue(estimator instanceof PROSACRobustGNSSPositionAndVelocityEstimator);
+        assertEquals(estimator.getMethod(), RobustEstimatorMethod.PROSAC);
+        assertNull(estimator.getMeasurementBatch());
+
+        // PROMedS
+        estimator = RobustGNSSPositionAndVelocityEstimator.create(
+                RobustEstimatorMethod.PROMedS);
+
+        // check
+        assertTrue(estimator instanceof PROMedSRobustGNSSPositionAndVelocityEstimator);
+        assertEquals(estimator.getMethod(), RobustEstimatorMethod.PROMedS);
+        assertNull(estimator.getMeasurementBatch());
+    }
+
+    @Test
+    public void testCreateWithMeasurements() {
+        final GNSSMeasurementBatch measurements = createMeasurements();
+        final double[] qualityScores = new double[measurements.getSize()];
+
+        // RANSAC
+        RobustGNSSPositionAndVelocityEstimator estimatorRANSAC =
+                RobustGNSSPositionAndVelocityEstimator.create(measurements,
+                        RobustEstimatorMethod.RANSAC);
+
+        // check
+        assertTrue(estimatorRANSAC instanceof RANSACRobustGNSSPositionAndVelocityEstimator);
+        assertSame(estimatorRANSAC.getMeasurementBatch(), measurements);
+        assertNull(estimatorRANSAC.getQualityScores());
+        assertEquals(estimatorRANSAC.isReady(), true);
+
+        estimatorRANSAC = RobustGNSSPositionAndVelocityEstimator.create(
+                qualityScores, measurements, RobustEstimatorMethod.RANSAC);
+
+        // check
+        assertTrue(estimatorRANSAC instanceof RANSACRobustGNSSPositionAndVelocityEstimator);
+        assertSame(estimatorRANSAC.getMeasurementBatch(), measurements);
+        assertNull(estimatorRANSAC.getQualityScores());
+        assertTrue(estimatorRANSAC.isReady());
+
+        // LMedS
+        RobustGNSSPositionAndVelocityEstimator estimatorLMedS =
+                RobustGNSSPositionAndVelocityEstimator.create(measurements,
+                        RobustEstimatorMethod.LMedS);
+
+        // check
+        assertTrue(estimatorLMedS instanceof LMedSRobustGNSSPositionAndVelocityEstimator);
+        assertSame(estimatorLMedS.getMeasurementBatch(), measurements);
+        assertNull(estimatorLMedS.getQualityScores());
+        assertEquals(estimatorLMedS.isReady(), true);
+
+        estimatorLMedS = RobustGNSSPositionAndVelocityEstimator.create(
+                qualityScores, measurements, RobustEstimatorMethod.LMedS);
+
+        // check
+        assertTrue(estimatorLMedS instanceof LMedSRobustGNSSPositionAndVelocityEstimator);
+        assertSame(estimatorLMedS.getMeasurementBatch(), measurements);
+        assertNull(estimatorLMedS.getQualityScores());
+        assertTrue(estimatorLMedS.isReady());
+
+        // MSAC
+        RobustGNSSPositionAndVelocityEstimator estimatorMSAC =
+                RobustGNSSPositionAndVelocityEstimator.create(measurements,
+                        RobustEstimatorMethod.MSAC);
+
+        // check
+        assertTrue(estimatorMSAC instanceof MSACRobustGNSSPositionAndVelocityEstimator);
+        assertSame(estimatorMSAC.getMeasurementBatch(), measurements);
+        assertNull(estimatorMSAC.getQualityScores());
+        assertEquals(estimatorMSAC.isReady(), true);
+
+        estimatorMSAC = RobustGNSSPositionAndVelocityEstimator.create(
+                qualityScores, measurements, RobustEstimatorMethod.MSAC);
+
+        // check
+        assertTrue(estimatorMSAC instanceof MSACRobustGNSSPositionAndVelocityEstimator);
+        assertSame(estimatorMSAC.getMeasurementBatch(), measurements);
+        assertNull(estimatorMSAC.getQualityScores());
+        assertTrue(estimatorMSAC.isReady());
+
+        // PROSAC
+        RobustGNSSPositionAndVelocityEstimator estimatorPROSAC =
+                RobustGNSSPositionAndVelocityEstimator.create(measurements,
+                        RobustEstimatorMethod.PROSAC);
+
+        // check
+        assertTrue(estimatorPROSAC instanceof PROSACRobustGNSSPositionAndVelocityEstimator);
+        assertSame(estimatorPROSAC.getMeasurementBatch(), measurements);
+        assertNull(estimatorPROSAC.getQualityScores());
+        assertEquals(estimatorPROSAC.isReady(), false);
+
+        estimatorPROSAC = RobustGNSSPositionAndVelocityEstimator.create(
+                qualityScores, measurements, RobustEstimatorMethod.PROSAC);
+
+        // check
+        assertTrue(estimatorPROSAC instanceof PROSACRobustGNSSPositionAndVelocityEstimator);
+        assertSame(estimatorPROSAC.getMeasurementBatch(), measurements);
+        assertSame(estimatorPROSAC.getQualityScores(), qualityScores);
+        assertTrue(estimatorPROSAC.isReady());
+
+        // PROMedS
+        RobustGNSSPositionAndVelocityEstimator estimatorPROMedS =
+                RobustGNSSPositionAndVelocityEstimator.create(measurements,
+                        RobustEstimatorMethod.PROMedS);
+
+        // check
+        assertTrue(estimatorPROMedS instanceof PROMedSRobustGNSSPositionAndVelocityEstimator);
+        assertSame(estimatorPROMedS.getMeasurementBatch(), measurements);
+        assertNull(estimatorPROMedS.getQualityScores());
+        assertEquals(estimatorPROMedS.isReady(), false);
+
+        estimatorPROMedS = RobustGNSSPositionAndVelocityEstimator.create(
+                qualityScores, measurements, RobustEstimatorMethod.PROMedS);
+
+        // check
+        assertTrue(estimatorPROMedS instanceof PROMedSRobustGNSSPositionAndVelocityEstimator);
+        assertSame(estimatorPROMedS.getMeasurementBatch(), measurements);
+        assertSame(estimatorPROMedS.getQualityScores(), qualityScores);
+        assertTrue(estimatorPROMedS.isReady());
+
+        // Force IllegalArgumentException
+        try {
+            RobustGNSSPositionAndVelocityEstimator.create(
+                    new GNSSMeasurementBatch(), RobustEstimatorMethod.RANSAC);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+        try {
+            RobustGNSSPositionAndVelocityEstimator.create(new double[3],
+                    measurements, RobustEstimatorMethod.PROSAC);
+            fail("IllegalArgumentException expected but not thrown");
+        } catch (final IllegalArgumentException ignore) {
+        }
+    }
+
+    private static GNSSMeasurementBatch createMeasurements() {
+        final GNSSMeasurementBatch measurements = new GNSSMeasurementBatch();
+        for (int i = 0; i < RobustGNSSPositionAndVelocityEstimator.MIN_MEASUREMENTS; i++) {
+            measurements.add(new GNSSMeasurement());
+        }
+        return measurements;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2019 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.navigation.gnss;
+
+import com.irurueta.navigation.LockedException;
+import com.irurueta.navigation.frames.ECEFPosition;
+import com.irurueta.navigation.frames.ECEFVelocity;
+import com.irurueta.navigation.frames.NEDPosition;
+import com.irurueta.navigation.frames.NEDVelocity;
+import com.irurueta.navigation.frames.converters.NEDtoECEFPositionVelocityConverter;
+import com.irurueta.numerical.robust.RobustEstimatorMethod;
+import com.irurueta.statistics.UniformRandomizer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Fixtures and checks shared by tests of robust GNSS position and velocity
+ * estimators.
+ */
+final class RobustGNSSPositionAndVelocityEstimatorTestHelper {
+
+    /**
+     * Seed of the random generators used by tests, so that simulated scenarios
+     * are reproducible.
+     */
+    static final long SEED = 6543210L;
+
+    /**
+     * Number of simulated scenarios per test.
+     */
+    static final int TIMES = 20;
+
+    /**
+     * Minimum fraction of scenarios that must be checked by each test.
+     */
+    static final double MIN_VALID_FRACTION = 0.5;
+
+    private static final double MIN_LATITUDE_DEGREES = -70.0;
+    private static final double MAX_LATITUDE_DEGREES = 70.0;
+
+    private static final double MIN_LONGITUDE_DEGREES = -180.0;
+    private static final double MAX_LONGITUDE_DEGREES = 180.0;
+
+    private static final int NUM_SATELLITES = 30;
+    private static final double ORBITAL_RADIUS = 2.656175E7;
+    private static final double INCLINATION_DEGREES = 55.0;
+    private static final double MASK_ANGLE_DEGREES = 10.0;
+
+    private static final double MIN_OUTLIER_ERROR = 100.0;
+    private static final double MAX_OUTLIER_ERROR = 500.0;
+
+    private static final int MIN_SATELLITES = 7;
+
+    private static final int PERCENTAGE_OUTLIERS = 25;
+
+    private static final double ABSOLUTE_ERROR = 1e-3;
+    private static final double LARGE_ABSOLUTE_ERROR = 50.0;
+
+    /**
+     * Constructor.
+     * Prevents instantiation of helper class.
+     */
+    private RobustGNSSPositionAndVelocityEstimatorTestHelper() {
+    }
+
+    /**
+     * Creates a static user located at a random latitude and longitude on
+     * Earth's surface.
+     *
+     * @param random random generator.
+     * @return created user.
+     */
+    static ECEFPositionAndVelocity createUser(final Random random) {
+        final UniformRandomizer randomizer = new UniformRandomizer(random);
+        final NEDPosition nedPosition = new NEDPosition(
+                Math.toRadians(randomizer.nextDouble(MIN_LATITUDE_DEGREES,
+                        MAX_LATITUDE_DEGREES)),
+                Math.toRadians(randomizer.nextDouble(MIN_LONGITUDE_DEGREES,
+                        MAX_LONGITUDE_DEGREES)), 0.0);
+
+        final ECEFPosition ecefPosition = new ECEFPosition();
+        final ECEFVelocity ecefVelocity = new ECEFVelocity();
+        NEDtoECEFPositionVelocityConverter.convertNEDtoECEF(nedPosition,
+                new NEDVelocity(), ecefPosition, ecefVelocity);
+        return new ECEFPositionAndVelocity(ecefPosition, ecefVelocity);
+    }
+
+    /**
+     * Simulates measurements of all satellites visible by provided user.
+     *
+     * @param user   user to simulate.
+     * @param random random generator.
+     * @return simulated measurements.
+     * @throws GNSSException if simulation fails.
+     */
+    static GNSSMeasurementBatch simulate(final ECEFPositionAndVelocity user,
+                                         final Random random) throws GNSSException {
+        final GNSSConfig config = new GNSSConfig();
+        config.setNumberOfSatellites(NUM_SATELLITES);
+        config.setOrbitalRadiusOfSatellites(ORBITAL_RADIUS);
+        config.setSatellitesInclinationDegrees(INCLINATION_DEGREES);
+        config.setMaskAngleDegrees(MASK_ANGLE_DEGREES);
+        config.setSISErrorSD(1.0);
+        config.setZenithIonosphereErrorSD(2.0);
+        config.setZenithTroposphereErrorSD(0.2);
+        config.setCodeTrackingErrorSD(1.0);
+        config.setRangeRateTrackingErrorSD(0.02);
+        config.setInitialReceiverClockOffset(10000.0);
+        config.setInitialReceiverClockDrift(100.0);
+
+        return new GNSSMonteCarloSimulator(config,
+                Collections.singletonList(user), 0.0, 1, random.nextLong(), 1)
+                .simulate()[0][0];
+    }
+
+    /**
+     * Simulates measurements of a scenario having enough satellites to tolerate
+     * outliers.
+     *
+     * @param user   user to simulate.
+     * @param random random generator.
+     * @return simulated measurements or null if not enough satellites are
+     * visible.
+     * @throws GNSSException if simulation fails.
+     */
+    static GNSSMeasurementBatch simulateRedundant(final ECEFPositionAndVelocity user,
+                                                  final Random random)
+            throws GNSSException {
+        final GNSSMeasurementBatch measurements = simulate(user, random);
+        return measurements.getSize() >= MIN_SATELLITES ? measurements : null;
+    }
+
+    static boolean[] injectOutliers(final GNSSMeasurementBatch measurements,
+                                    final UniformRandomizer randomizer) {
+        final int n = measurements.getSize();
+        final boolean[] outliers = new boolean[n];
+        int numOutliers = 0;
+        final int maxOutliers = Math.max(1, n * PERCENTAGE_OUTLIERS / 100);
+        while (numOutliers < maxOutliers) {
+            final int i = randomizer.nextInt(0, n);
+            if (outliers[i]) {
+                continue;
+            }
+
+            // multipath always delays received signals
+            final GNSSMeasurement measurement = measurements.getMeasurement(i);
+            measurement.setPseudoRange(measurement.getPseudoRange()
+                    + randomizer.nextDouble(MIN_OUTLIER_ERROR, MAX_OUTLIER_ERROR));
+            measurements.set(i, measurement);
+            outliers[i] = true;
+            numOutliers++;
+        }
+        return outliers;
+    }
+
+    static double distance(final GNSSEstimation estimation,
+                           final ECEFPositionAndVelocity user) {
+        final double dx = estimation.getX() - user.getX();
+        final double dy = estimation.getY() - user.getY();
+        final double dz = estimation.getZ() - user.getZ();
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Indicates whether provided estimation is close to the true user position.
+     *
+     * @param estimation estimation to be checked.
+     * @param user       true user position and velocity.
+     * @return true if estimation is close to true position.
+     */
+    static boolean isNear(final GNSSEstimation estimation,
+                          final ECEFPositionAndVelocity user) {
+        return distance(estimation, user) <= LARGE_ABSOLUTE_ERROR;
+    }
+
+    /**
+     * Checks that a refined robust result is a least squares solution of the
+     * inliers found by the estimator.
+     *
+     * @param estimator    estimator that found the result.
+     * @param result       refined result.
+     * @param measurements all measurements, including outliers.
+     * @param outliers     indicates which measurements are outliers.
+     * @param user         true user position and velocity.
+     * @return true if result was checked, false if estimator did not discard
+     * all outliers, which might happen with low redundancy when a subset
+     * containing outliers is as consistent as the true solution.
+     * @throws Exception if least squares estimation fails.
+     */
+    static boolean checkRefinedResult(
+            final RobustGNSSPositionAndVelocityEstimator estimator,
+            final GNSSEstimation result, final GNSSMeasurementBatch measurements,
+            final boolean[] outliers, final ECEFPositionAndVelocity user)
+            throws Exception {
+        if (!isNear(result, user)) {
+            return false;
+        }
+
+        final BitSet inliers = estimator.getInliersData().getInliers();
+        final GNSSMeasurementBatch inlierMeasurements = new GNSSMeasurementBatch();
+        for (int i = 0; i < measurements.getSize(); i++) {
+            if (inliers.get(i)) {
+                if (outliers[i]) {
+                    return false;
+                }
+                inlierMeasurements.add(measurements.getMeasurement(i));
+            }
+        }
+
+        // refined result is a fixed point of least squares on found inliers.
+        // Least squares is started from the result, because Earth rotation
+        // correction depends on the prior and hence solutions obtained from
+        // different priors are only close but not equal
+        final GNSSLeastSquaresPositionAndVelocityEstimator lsEstimator =
+                new GNSSLeastSquaresPositionAndVelocityEstimator(inlierMeasurements);
+        lsEstimator.setPriorPositionAndVelocityFromEstimation(result);
+        final GNSSEstimation expected = lsEstimator.estimate();
+
+        assertTrue(expected.equals(result, ABSOLUTE_ERROR));
+        return true;
+    }
+
+    /**
+     * Asserts that enough scenarios were checked.
+     *
+     * @param numValid number of checked scenarios.
+     */
+    static void assertEnoughValid(final int numValid) {
+        assertTrue("only " + numValid + " of " + TIMES + " scenarios were valid",
+                numValid >= MIN_VALID_FRACTION * TIMES);
+    }
+
+    static void checkCommonDefaults(
+            final RobustGNSSPositionAndVelocityEstimator estimator,
+            final RobustEstimatorMethod method) {
+        assertEquals(estimator.getMethod(), method);
+        assertEquals(estimator.getProgressDelta(),
+                RobustGNSSPositionAndVelocityEstimator.DEFAULT_PROGRESS_DELTA, 0.0f);
+        assertEquals(estimator.getConfidence(),
+                RobustGNSSPositionAndVelocityEstimator.DEFAULT_CONFIDENCE, 0.0);
+        assertEquals(estimator.getMaxIterations(),
+                RobustGNSSPositionAndVelocityEstimator.DEFAULT_MAX_ITERATIONS);
+        assertEquals(estimator.isResultRefined(),
+                RobustGNSSPositionAndVelocityEstimator.DEFAULT_REFINE_RESULT);
+        assertFalse(estimator.isLocked());
+        assertNull(estimator.getInliersData());
+        assertNull(estimator.getEstimation());
+    }
+
+    static void checkCommonLocked(
+            final RobustGNSSPositionAndVelocityEstimator estimator) {
+        assertTrue(estimator.isLocked());
+        try {
+            estimator.setMeasurementBatch(new GNSSMeasurementBatch());
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.setMeasurements(new ArrayList<GNSSMeasurement>());
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.setListener(null);
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.setProgressDelta(0.5f);
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.setConfidence(0.5);
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.setMaxIterations(10);
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.setResultRefined(false);
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        }
+        try {
+            estimator.estimate();
+            fail("LockedException expected but not thrown");
+        } catch (final LockedException ignore) {
+        } catch (final Exception e) {
+            fail("LockedException expected but not thrown");
+        }
+    }
+}